@@ -24,6 +24,7 @@ import java.util.List;
 import org.neo4j.jmx.Description;
 import org.neo4j.jmx.ManagementInterface;
 import org.neo4j.kernel.info.LockInfo;
+import org.neo4j.kernel.info.LockWaitInfo;
 
 @ManagementInterface( name = LockManager.NAME )
 @Description( "Information about the Neo4j lock status" )
@@ -38,8 +39,13 @@ public interface LockManager
     @Description( "Information about all locks held by Neo4j" )
     List<LockInfo> getLocks();
 
-    @Description( "Information about contended locks (locks where at least one thread is waiting) held by Neo4j. "
-                  + "The parameter is used to get locks where threads have waited for at least the specified number "
-                  + "of milliseconds, a value of 0 retrieves all contended locks." )
+    @Description( "Information about the most contended locks since the database was started, the ones that "
+                  + "transactions have waited for the most times first. The parameter is used to get locks that "
+                  + "have been waited for at least the specified number of milliseconds in total, a value of 0 "
+                  + "retrieves all contended locks." )
     List<LockInfo> getContendedLocks( long minWaitTime );
+
+    @Description( "How many times and for how long transactions have waited for locks, per type of resource, "
+                  + "since the database was started" )
+    List<LockWaitInfo> getLockWaits();
 }
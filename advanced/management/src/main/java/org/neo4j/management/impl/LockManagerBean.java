@@ -21,6 +21,7 @@ package org.neo4j.management.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.NotCompliantMBeanException;
 
@@ -28,8 +29,11 @@ import org.neo4j.helpers.Service;
 import org.neo4j.jmx.impl.ManagementBeanProvider;
 import org.neo4j.jmx.impl.ManagementData;
 import org.neo4j.jmx.impl.Neo4jMBean;
+import org.neo4j.graphdb.DependencyResolver;
+import org.neo4j.kernel.impl.locking.LockWaitStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.info.LockInfo;
+import org.neo4j.kernel.info.LockWaitInfo;
 import org.neo4j.management.LockManager;
 
 @Service.Implementation( ManagementBeanProvider.class )
@@ -55,19 +59,21 @@ public final class LockManagerBean extends ManagementBeanProvider
     private static class LockManagerImpl extends Neo4jMBean implements LockManager
     {
         private final Locks lockManager;
+        private final LockWaitStatistics lockWaitStatistics;
 
         LockManagerImpl( ManagementData management ) throws NotCompliantMBeanException
         {
             super( management );
-            this.lockManager = lockManager( management );
+            this.lockManager = resolve( management, Locks.class );
+            this.lockWaitStatistics = resolve( management, LockWaitStatistics.class );
         }
 
-        private Locks lockManager( ManagementData management )
+        private static <T> T resolve( ManagementData management, Class<T> type )
         {
             try
             {
-                return management.getKernelData().graphDatabase().getDependencyResolver()
-                        .resolveDependency( Locks.class );
+                DependencyResolver resolver = management.getKernelData().graphDatabase().getDependencyResolver();
+                return resolver.resolveDependency( type );
             }
             catch(Throwable e)
             {
@@ -79,13 +85,14 @@ public final class LockManagerBean extends ManagementBeanProvider
         LockManagerImpl( ManagementData management, boolean mxBean )
         {
             super( management, mxBean );
-            this.lockManager = lockManager( management );
+            this.lockManager = resolve( management, Locks.class );
+            this.lockWaitStatistics = resolve( management, LockWaitStatistics.class );
         }
 
         @Override
         public long getNumberOfAvertedDeadlocks()
         {
-            return -1l;
+            return lockWaitStatistics == null ? -1l : lockWaitStatistics.deadlocks();
         }
 
         @Override
@@ -106,8 +113,46 @@ public final class LockManagerBean extends ManagementBeanProvider
         @Override
         public List<LockInfo> getContendedLocks( final long minWaitTime )
         {
-            // Contended locks can no longer be found by the new lock manager, since that knowledge is not centralized.
-            return getLocks();
+            if ( lockWaitStatistics == null )
+            {
+                return getLocks();
+            }
+            long minWaitNanos = TimeUnit.MILLISECONDS.toNanos( minWaitTime );
+            List<LockInfo> locks = new ArrayList<>();
+            for ( LockWaitStatistics.ContendedResource resource :
+                    lockWaitStatistics.mostContendedResources( LockWaitStatistics.DEFAULT_SKETCH_CAPACITY ) )
+            {
+                if ( resource.waitNanos() >= minWaitNanos )
+                {
+                    locks.add( new LockInfo( resource.resourceType().toString(),
+                            String.valueOf( resource.resourceId() ), resource.toString() ) );
+                }
+            }
+            return locks;
+        }
+
+        @Override
+        public List<LockWaitInfo> getLockWaits()
+        {
+            List<LockWaitInfo> waits = new ArrayList<>();
+            if ( lockWaitStatistics == null )
+            {
+                return waits;
+            }
+            for ( Locks.ResourceType type : lockWaitStatistics.resourceTypes() )
+            {
+                waits.add( new LockWaitInfo( type.toString(), lockWaitStatistics.waits( type ),
+                        micros( lockWaitStatistics.totalWaitNanos( type ) ),
+                        micros( lockWaitStatistics.waitNanosPercentile( type, 50 ) ),
+                        micros( lockWaitStatistics.waitNanosPercentile( type, 99 ) ),
+                        lockWaitStatistics.deadlocks( type ) ) );
+            }
+            return waits;
+        }
+
+        private static long micros( long nanos )
+        {
+            return TimeUnit.NANOSECONDS.toMicros( nanos );
         }
     }
 }
@@ -29,6 +29,7 @@ import org.neo4j.graphdb.Transaction;
 import org.neo4j.jmx.impl.JmxKernelExtension;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.info.LockInfo;
+import org.neo4j.kernel.info.LockWaitInfo;
 import org.neo4j.test.ImpermanentDatabaseRule;
 
 import static org.junit.Assert.*;
@@ -56,6 +57,20 @@ public class TestLockManagerBean
         assertEquals( "unexpected lock count", 0, lockManager.getLocks().size() );
     }
 
+    @Test
+    public void uncontendedGraphHasNotWaitedForLocks()
+    {
+        createNode();
+
+        assertEquals( 0, lockManager.getNumberOfAvertedDeadlocks() );
+        assertEquals( 0, lockManager.getContendedLocks( 0 ).size() );
+        assertFalse( "no resource types", lockManager.getLockWaits().isEmpty() );
+        for ( LockWaitInfo waits : lockManager.getLockWaits() )
+        {
+            assertEquals( waits.toString(), 0, waits.getWaits() );
+        }
+    }
+
     @Test
     public void modifiedNodeImpliesLock()
     {
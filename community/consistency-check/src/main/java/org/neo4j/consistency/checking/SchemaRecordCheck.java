@@ -175,7 +175,10 @@ public class SchemaRecordCheck implements RecordCheck<DynamicRecord, Consistency
     {
         if ( phase == Phase.CHECK_RULES )
         {
-            engine.comparativeCheck( records.propertyKey( rule.getPropertyKey() ), VALID_PROPERTY_KEY );
+            for ( int propertyKey : rule.getPropertyKeys() )
+            {
+                engine.comparativeCheck( records.propertyKey( propertyKey ), VALID_PROPERTY_KEY );
+            }
             if ( rule.isConstraintIndex() && rule.getOwningConstraint() != null )
             {
                 DynamicRecord previousObligation = constraintObligations.put( rule.getOwningConstraint(), record );
@@ -19,6 +19,8 @@
  */
 package org.neo4j.consistency.checking;
 
+import java.util.Arrays;
+
 import org.neo4j.kernel.impl.store.UniquenessConstraintRule;
 import org.neo4j.kernel.impl.store.record.IndexRule;
 import org.neo4j.kernel.impl.store.record.SchemaRule;
@@ -74,7 +76,7 @@ public class SchemaRuleContent
 
     private static boolean indexRulesEquals( IndexRule lhs, IndexRule rhs )
     {
-        return lhs.getPropertyKey() == rhs.getPropertyKey();
+        return Arrays.equals( lhs.getPropertyKeys(), rhs.getPropertyKeys() );
     }
 
     private static boolean uniquenessConstraintEquals( UniquenessConstraintRule lhs, UniquenessConstraintRule rhs )
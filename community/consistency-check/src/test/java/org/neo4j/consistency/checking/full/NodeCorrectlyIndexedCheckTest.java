@@ -238,6 +238,26 @@ public class NodeCorrectlyIndexedCheckTest
                     return count;
                 }
 
+                @Override
+                public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                                Number upper, boolean includeUpper )
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                                String upper, boolean includeUpper )
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+                {
+                    throw new UnsupportedOperationException();
+                }
+
                 @Override
                 public long sampleIndex( Register.DoubleLong.Out sampler )
                 {
@@ -19,12 +19,20 @@
  */
 package org.neo4j.cypher.internal
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap
+import com.googlecode.concurrentlinkedhashmap.{ConcurrentLinkedHashMap, EvictionListener}
 
-class LRUCache[K, V](cacheSize: Int) extends ((K, => V) => V) {
+/**
+ * @param onEvict called with the key of every entry dropped to keep the cache within its size
+ */
+class LRUCache[K, V](cacheSize: Int, onEvict: K => Unit = (_: K) => ()) extends ((K, => V) => V) {
 
   val inner = new ConcurrentLinkedHashMap.Builder[K, V]
     .maximumWeightedCapacity(cacheSize)
+    .listener(new EvictionListener[K, V] {
+      def onEviction(key: K, value: V) {
+        onEvict(key)
+      }
+    })
     .build()
 
   def getOrElseUpdate(key: K, f: => V): V = {
@@ -19,12 +19,14 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2
 
+import java.util.concurrent.ForkJoinPool
+
 import org.neo4j.cypher.internal.compiler.v2_2.ast.Statement
 import org.neo4j.cypher.internal.compiler.v2_2.ast.rewriters.{normalizeReturnClauses, normalizeWithClauses}
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan._
 import org.neo4j.cypher.internal.compiler.v2_2.parser.{CypherParser, ParserMonitor}
 import org.neo4j.cypher.internal.compiler.v2_2.planner._
-import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.{CachedMetricsFactory, SimpleMetricsFactory}
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.{CachedMetricsFactory, CardinalityFeedback, FeedbackMetricsFactory, SimpleMetricsFactory}
 import org.neo4j.cypher.internal.compiler.v2_2.spi.PlanContext
 import org.neo4j.cypher.internal.{LRUCache, ExecutionMode}
 import org.neo4j.graphdb.GraphDatabaseService
@@ -52,48 +54,55 @@ trait CypherCacheHitMonitor[T] {
   def cacheHit(key: T){}
   def cacheMiss(key: T){}
   def cacheDiscard(key: T){}
+  def cacheEvict(key: T){}
 }
 
 trait CypherCacheMonitor[T, E] extends CypherCacheHitMonitor[T] with CypherCacheFlushingMonitor[E]
 
-trait AstCacheMonitor extends CypherCacheMonitor[PreparedQuery, CacheAccessor[PreparedQuery, ExecutionPlan]]
+trait AstCacheMonitor extends CypherCacheMonitor[Statement, CacheAccessor[Statement, ExecutionPlan]]
 
 object CypherCompilerFactory {
   val monitorTag = "cypher2.2"
   def conservativeCompiler(graph: GraphDatabaseService, queryCacheSize: Int, statsDivergenceThreshold: Double,
                         queryPlanTTL: Long, clock: Clock, kernelMonitors: KernelMonitors,
-                        logger: StringLogger, acceptor: (UnionQuery => Boolean) = conservativeQueryAcceptor): CypherCompiler = {
+                        logger: StringLogger, acceptor: (UnionQuery => Boolean) = conservativeQueryAcceptor,
+                        slottedRows: Boolean = false, compiledRuntime: Boolean = false,
+                        queryMemoryLimit: Long = 0,
+                        parallelWorkers: Option[ForkJoinPool] = None): CypherCompiler = {
     val monitors = new Monitors(kernelMonitors)
     val parser = new CypherParser(monitors.newMonitor[ParserMonitor[Statement]](monitorTag))
     val checker = new SemanticChecker(monitors.newMonitor[SemanticCheckMonitor](monitorTag))
     val rewriter = new ASTRewriter(monitors.newMonitor[AstRewritingMonitor](monitorTag))
     val planBuilderMonitor = monitors.newMonitor[NewLogicalPlanSuccessRateMonitor](monitorTag)
     val planningMonitor = monitors.newMonitor[PlanningMonitor](monitorTag)
-    val metricsFactory = CachedMetricsFactory(SimpleMetricsFactory)
-    val planner = new Planner(monitors, metricsFactory, planningMonitor, clock, acceptQuery = acceptor)
+    val cardinalityFeedback = new CardinalityFeedback()
+    val metricsFactory = CachedMetricsFactory(FeedbackMetricsFactory(SimpleMetricsFactory, cardinalityFeedback))
+    val planner = new Planner(monitors, metricsFactory, planningMonitor, clock, acceptQuery = acceptor,
+      slottedRows = slottedRows, compiledRuntime = compiledRuntime, parallelWorkers = parallelWorkers)
     val pipeBuilder = new LegacyVsNewPipeBuilder(new LegacyPipeBuilder(monitors), planner, planBuilderMonitor)
     val executionMonitor = monitors.newMonitor[QueryExecutionMonitor](monitorTag)
-    val execPlanBuilder = new ExecutionPlanBuilder(graph, statsDivergenceThreshold, queryPlanTTL, clock, pipeBuilder)
-    val planCacheFactory = () => new LRUCache[PreparedQuery, ExecutionPlan](queryCacheSize)
-    monitors.addMonitorListener(logStalePlanRemovalMonitor(logger), monitorTag)
+    val execPlanBuilder =
+      new ExecutionPlanBuilder(graph, statsDivergenceThreshold, queryPlanTTL, clock, pipeBuilder, queryMemoryLimit,
+        Some(cardinalityFeedback))
     val cacheMonitor = monitors.newMonitor[AstCacheMonitor](monitorTag)
-    val cache = new MonitoringCacheAccessor[PreparedQuery, ExecutionPlan](cacheMonitor)
+    val planCacheFactory = () => new LRUCache[Statement, ExecutionPlan](queryCacheSize, cacheMonitor.cacheEvict)
+    val cache = new MonitoringCacheAccessor[Statement, ExecutionPlan](cacheMonitor)
 
-    new CypherCompiler(parser, checker, execPlanBuilder, rewriter, cache, planCacheFactory, cacheMonitor, monitors)
+    new CypherCompiler(parser, checker, execPlanBuilder, rewriter, cache, planCacheFactory, cacheMonitor, monitors,
+      logger)
   }
 
   def costBasedCompiler(graph: GraphDatabaseService, queryCacheSize: Int, statsDivergenceThreshold: Double,
                     queryPlanTTL: Long, clock: Clock, kernelMonitors: KernelMonitors,
-                    logger: StringLogger): CypherCompiler = conservativeCompiler(graph, queryCacheSize,
-    statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger, _ => true)
+                    logger: StringLogger, slottedRows: Boolean = false,
+                    compiledRuntime: Boolean = false, queryMemoryLimit: Long = 0,
+                    parallelWorkers: Option[ForkJoinPool] = None): CypherCompiler =
+    conservativeCompiler(graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger,
+      _ => true, slottedRows, compiledRuntime, queryMemoryLimit, parallelWorkers)
 
-  private def logStalePlanRemovalMonitor(logger: StringLogger) = new AstCacheMonitor {
-    override def cacheDiscard(key: PreparedQuery) {
-      logger.info(s"Discarded stale query from the query cache: ${key.queryText}")
-    }
-  }
   def ruleBasedCompiler(graph: GraphDatabaseService, queryCacheSize: Int, statsDivergenceThreshold: Double,
-                     queryPlanTTL: Long, clock: Clock, kernelMonitors: KernelMonitors): CypherCompiler = {
+                     queryPlanTTL: Long, clock: Clock, kernelMonitors: KernelMonitors,
+                     queryMemoryLimit: Long = 0): CypherCompiler = {
     val monitors = new Monitors(kernelMonitors)
     val parser = new CypherParser(monitors.newMonitor[ParserMonitor[ast.Statement]](monitorTag))
     val checker = new SemanticChecker(monitors.newMonitor[SemanticCheckMonitor](monitorTag))
@@ -101,10 +110,11 @@ object CypherCompilerFactory {
     val pipeBuilder = new LegacyPipeBuilder(monitors)
 
     val executionMonitor = monitors.newMonitor[QueryExecutionMonitor](monitorTag)
-    val execPlanBuilder = new ExecutionPlanBuilder(graph, statsDivergenceThreshold, queryPlanTTL, clock, pipeBuilder)
-    val planCacheFactory = () => new LRUCache[PreparedQuery, ExecutionPlan](queryCacheSize)
+    val execPlanBuilder =
+      new ExecutionPlanBuilder(graph, statsDivergenceThreshold, queryPlanTTL, clock, pipeBuilder, queryMemoryLimit)
     val cacheMonitor = monitors.newMonitor[AstCacheMonitor](monitorTag)
-    val cache = new MonitoringCacheAccessor[PreparedQuery, ExecutionPlan](cacheMonitor)
+    val planCacheFactory = () => new LRUCache[Statement, ExecutionPlan](queryCacheSize, cacheMonitor.cacheEvict)
+    val cache = new MonitoringCacheAccessor[Statement, ExecutionPlan](cacheMonitor)
 
     new CypherCompiler(parser, checker, execPlanBuilder, rewriter, cache, planCacheFactory, cacheMonitor, monitors)
   }
@@ -114,10 +124,11 @@ case class CypherCompiler(parser: CypherParser,
                           semanticChecker: SemanticChecker,
                           executionPlanBuilder: ExecutionPlanBuilder,
                           astRewriter: ASTRewriter,
-                          cacheAccessor: CacheAccessor[PreparedQuery, ExecutionPlan],
-                          planCacheFactory: () => LRUCache[PreparedQuery, ExecutionPlan],
-                          cacheMonitor: CypherCacheFlushingMonitor[CacheAccessor[PreparedQuery, ExecutionPlan]],
-                          monitors: Monitors) {
+                          cacheAccessor: CacheAccessor[Statement, ExecutionPlan],
+                          planCacheFactory: () => LRUCache[Statement, ExecutionPlan],
+                          cacheMonitor: CypherCacheFlushingMonitor[CacheAccessor[Statement, ExecutionPlan]],
+                          monitors: Monitors,
+                          logger: StringLogger = StringLogger.DEV_NULL) {
 
   def planQuery(queryText: String, context: PlanContext): (ExecutionPlan, Map[String, Any]) =
     planPreparedQuery(prepareQuery(queryText), context)
@@ -135,17 +146,20 @@ case class CypherCompiler(parser: CypherParser,
     PreparedQuery(rewrittenStatement, queryText, extractedParams)(table, postRewriteSemanticState.scopeTree)
   }
 
+  // Plans are cached by statement, which is the same for queries that only differ in the literals that were
+  // extracted into parameters, so that such queries share their plans
   def planPreparedQuery(parsedQuery: PreparedQuery, context: PlanContext): (ExecutionPlan, Map[String, Any]) = {
     val cache = provideCache(cacheAccessor, cacheMonitor, context)
     var planned = false
     val plan = Iterator.continually {
-      cacheAccessor.getOrElseUpdate(cache)(parsedQuery, {
+      cacheAccessor.getOrElseUpdate(cache)(parsedQuery.statement, {
         planned = true
         executionPlanBuilder.build(context, parsedQuery)
       })
     }.flatMap { plan =>
       if ( !planned && plan.isStale(context.txIdProvider, context.statistics) ) {
-        cacheAccessor.remove(cache)(parsedQuery)
+        cacheAccessor.remove(cache)(parsedQuery.statement)
+        logger.info(s"Discarded stale query from the query cache: ${parsedQuery.queryText}")
         None
       } else {
         Some(plan)
@@ -154,8 +168,8 @@ case class CypherCompiler(parser: CypherParser,
     (plan, parsedQuery.extractedParams)
   }
 
-  private def provideCache(cacheAccessor: CacheAccessor[PreparedQuery, ExecutionPlan],
-                           monitor: CypherCacheFlushingMonitor[CacheAccessor[PreparedQuery, ExecutionPlan]],
+  private def provideCache(cacheAccessor: CacheAccessor[Statement, ExecutionPlan],
+                           monitor: CypherCacheFlushingMonitor[CacheAccessor[Statement, ExecutionPlan]],
                            context: PlanContext) =
     context.getOrCreateFromSchemaState(cacheAccessor, {
       monitor.cacheFlushDetected(cacheAccessor)
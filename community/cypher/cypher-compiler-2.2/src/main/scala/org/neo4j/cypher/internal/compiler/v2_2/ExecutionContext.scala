@@ -77,22 +77,22 @@ case class ExecutionContext(m: MutableMap[String, Any] = MutableMaps.empty,
 
   def newWith1(key1: String, value1: Any) = {
     val newMap = m.clone()
-    newMap.put(key1, value1)
+    newMap.update(key1, value1)
     createWithNewMap(newMap)
   }
 
   def newWith2(key1: String, value1: Any, key2: String, value2: Any) = {
     val newMap = m.clone()
-    newMap.put(key1, value1)
-    newMap.put(key2, value2)
+    newMap.update(key1, value1)
+    newMap.update(key2, value2)
     createWithNewMap(newMap)
   }
 
   def newWith3(key1: String, value1: Any, key2: String, value2: Any, key3: String, value3: Any) = {
     val newMap = m.clone()
-    newMap.put(key1, value1)
-    newMap.put(key2, value2)
-    newMap.put(key3, value3)
+    newMap.update(key1, value1)
+    newMap.update(key2, value2)
+    newMap.update(key3, value3)
     createWithNewMap(newMap)
   }
 
@@ -54,12 +54,20 @@ class ClosingIterator(inner: Iterator[collection.Map[String, Any]],
 
   def toEager = new EagerResultIterator(this)
 
+  private var exhausted = false
+
   def wasMaterialized: Boolean = isEmpty
 
+  /**
+   * Whether all the results were read, as opposed to the iterator being closed before that.
+   */
+  def isExhausted: Boolean = exhausted
+
   def hasNext: Boolean = failIfThrows {
     if (!closer.isClosed) {
       val innerHasNext: Boolean = inner.hasNext
       if (!innerHasNext) {
+        exhausted = true
         close(success = true)
       }
       innerHasNext
@@ -74,6 +82,7 @@ class ClosingIterator(inner: Iterator[collection.Map[String, Any]],
     val input: collection.Map[String, Any] = inner.next()
     val result: Map[String, Any] = Eagerly.immutableMapValues(input, materialize)
     if (!inner.hasNext) {
+      exhausted = true
       close(success = true)
     }
     result
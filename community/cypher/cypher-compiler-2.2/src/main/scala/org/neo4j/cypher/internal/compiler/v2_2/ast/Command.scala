@@ -24,14 +24,20 @@ import symbols._
 
 sealed trait Command extends Statement
 
-case class CreateIndex(label: LabelName, property: PropertyKeyName)(val position: InputPosition) extends Command {
-  def semanticCheck = Seq()
-}
+trait IndexCommand extends Command with SemanticChecking {
+  def label: LabelName
+  def properties: Seq[PropertyKeyName]
 
-case class DropIndex(label: LabelName, property: PropertyKeyName)(val position: InputPosition) extends Command {
-  def semanticCheck = Seq()
+  def semanticCheck =
+    when (properties.map(_.name).distinct.size != properties.size) {
+      SemanticError("Cannot index the same property more than once", position)
+    }
 }
 
+case class CreateIndex(label: LabelName, properties: Seq[PropertyKeyName])(val position: InputPosition) extends IndexCommand
+
+case class DropIndex(label: LabelName, properties: Seq[PropertyKeyName])(val position: InputPosition) extends IndexCommand
+
 trait UniqueConstraintCommand extends Command with SemanticChecking {
   def identifier: Identifier
   def label: LabelName
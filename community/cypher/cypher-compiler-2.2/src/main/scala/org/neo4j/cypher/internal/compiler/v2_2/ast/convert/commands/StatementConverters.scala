@@ -36,9 +36,9 @@ object StatementConverters {
           case _          => innerQuery
         }
       case s: ast.CreateIndex =>
-        commands.CreateIndex(s.label.name, Seq(s.property.name))
+        commands.CreateIndex(s.label.name, s.properties.map(_.name))
       case s: ast.DropIndex =>
-        commands.DropIndex(s.label.name, Seq(s.property.name))
+        commands.DropIndex(s.label.name, s.properties.map(_.name))
       case s: ast.CreateUniqueConstraint =>
         commands.CreateUniqueConstraint(
           id = s.identifier.name,
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.codegen
+
+import java.util.concurrent.atomic.AtomicLong
+
+import org.codehaus.commons.compiler.CompileException
+import org.codehaus.janino.SimpleCompiler
+import org.neo4j.cypher.internal.compiler.v2_2.ast
+import org.neo4j.cypher.internal.compiler.v2_2.ast.ConstantExpression
+import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.{Expression => CommandExpression}
+import org.neo4j.cypher.internal.compiler.v2_2.functions
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.{LazyLabel, LazyTypes, Pipe, PipeMonitor, QueryState, RonjaPipe}
+import org.neo4j.cypher.internal.compiler.v2_2.planner.CantHandleQueryException
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Generates one Java class for the logical plan of a query, which runs the whole plan as nested loops over the store,
+ * with the identifiers of the plan in fields, instead of pulling rows through a tree of pipes that copy a map per
+ * row. The class is compiled in memory by Janino, and lives as long as the plan in the plan cache.
+ *
+ * Only plans of a scan or an index seek, followed by expands, selections and projections, and optionally ending in
+ * an aggregation that counts, are supported. Generation is all or nothing: for any other plan, or any expression the
+ * generator does not know, [[generate]] returns None and the query runs on the pipes as before.
+ */
+class CodeGenerator {
+
+  import CodeGenerator._
+
+  private val classIds = new AtomicLong()
+
+  def generate(plan: LogicalPlan, interpreted: Pipe, estimatedCardinality: Option[Long],
+               buildExpression: ast.Expression => CommandExpression)
+              (implicit monitor: PipeMonitor): Option[Pipe with RonjaPipe] =
+    try {
+      val className = "CompiledQuery" + classIds.incrementAndGet()
+      val generation = new Generation(buildExpression)
+      val columns = generation.root(plan)
+
+      val compiler = new SimpleCompiler()
+      compiler.setParentClassLoader(classOf[CompiledPlan].getClassLoader)
+      compiler.cook(generation.source(className))
+      val compiled = compiler.getClassLoader.loadClass(s"$packageName.$className").asSubclass(classOf[CompiledPlan])
+
+      Some(CompiledPlanPipe(compiled, generation.resources, columns, interpreted)(estimatedCardinality))
+    } catch {
+      case _: CantHandleQueryException => None
+      case _: CompileException => None
+    }
+}
+
+object CodeGenerator {
+  val packageName = "org.neo4j.cypher.internal.compiler.v2_2.codegen"
+
+  private case class Variable(field: String, entity: Boolean)
+
+  /**
+   * One loop of the generated code, over the nodes of a scan or seek, or over the relationships of an expand. The
+   * statements run for every element, binding fields and skipping the element if a predicate does not hold.
+   */
+  private class Level(val source: String) {
+    val statements = ArrayBuffer[String]()
+  }
+
+  private class Generation(buildExpression: ast.Expression => CommandExpression) {
+    private val constants = ArrayBuffer[CommandExpression]()
+    private val labels = ArrayBuffer[LazyLabel]()
+    private val types = ArrayBuffer[LazyTypes]()
+    private val propertyKeys = ArrayBuffer[String]()
+    private val seeks = ArrayBuffer[CompiledIndexSeek]()
+    private val levels = ArrayBuffer[Level]()
+    private var fields = 0
+    private var scope = Map.empty[String, Variable]
+    private var rowCode = ""
+
+    def resources =
+      CompiledPlanResources(constants.toList, labels.toList, types.toList, propertyKeys.toList, seeks.toList)
+
+    /**
+     * Generates the loops of the plan, and the code that makes a row of their fields, or of the groups counted over
+     * them.
+     *
+     * @return the names of the columns of the rows.
+     */
+    def root(plan: LogicalPlan): Seq[String] = plan match {
+      case Aggregation(left, groupingExpressions, aggregationExpressions) if aggregationExpressions.nonEmpty =>
+        loops(left)
+        val grouping = groupingExpressions.toSeq
+        val counters = aggregationExpressions.toSeq
+        val key = if (grouping.isEmpty) "new Object[0]"
+                  else grouping.map(g => expression(g._2)).mkString("new Object[] { ", ", ", " }")
+        val counts = counters.zipWithIndex.map {
+          case ((_, ast.CountStar()), i) =>
+            s"counts[$i]++;"
+          case ((_, f @ ast.FunctionInvocation(_, false, IndexedSeq(argument))), i) if f.function == Some(functions.Count) =>
+            s"if ( ${expression(argument)} != null ) { counts[$i]++; }"
+          case ((_, other), _) =>
+            throw new CantHandleQueryException(other.toString)
+        }
+        rowCode =
+          s"""        if ( groups == null )
+             |        {
+             |            while ( produce() )
+             |            {
+             |                long[] counts = group( $key, ${counters.size} );
+             |${counts.map("                " + _).mkString("\n")}
+             |            }
+             |            groups = aggregatedRows( ${grouping.size}, ${counters.size} );
+             |        }
+             |        return groups.hasNext() ? (Object[]) groups.next() : null;""".stripMargin
+        grouping.map(_._1) ++ counters.map(_._1)
+
+      case _ =>
+        loops(plan)
+        val columns = scope.keys.toSeq
+        rowCode =
+          s"""        if ( !produce() )
+             |        {
+             |            return null;
+             |        }
+             |        return ${if (columns.isEmpty) "new Object[0]" else columns.map(scope(_).field).mkString("new Object[] { ", ", ", " }")};""".stripMargin
+        columns
+    }
+
+    def source(className: String): String = {
+      val fieldDeclarations =
+        (0 until fields).map(i => s"    private Object v$i;") ++
+        levels.indices.map(i => s"    private java.util.Iterator it$i;")
+      val loopCode = levels.zipWithIndex.map {
+        case (level, i) =>
+          val exhausted = if (i == 0) "return false;" else "depth--;\n                    continue;"
+          val next = if (i == levels.size - 1) "return true;"
+                     else s"it${i + 1} = ${levels(i + 1).source};\n                depth++;\n                continue;"
+          s"""            if ( depth == $i )
+             |            {
+             |                if ( !it$i.hasNext() )
+             |                {
+             |                    $exhausted
+             |                }
+             |${level.statements.map("                " + _).mkString("\n")}
+             |                $next
+             |            }""".stripMargin
+      }
+
+      s"""package $packageName;
+         |
+         |public final class $className extends ${classOf[CompiledPlan].getName}
+         |{
+         |${fieldDeclarations.mkString("\n")}
+         |    private java.util.Iterator groups;
+         |    private int depth;
+         |
+         |    public $className( ${classOf[QueryState].getName} state, ${classOf[CompiledPlanResources].getName} resources )
+         |    {
+         |        super( state, resources );
+         |        it0 = ${levels.head.source};
+         |    }
+         |
+         |    public Object[] nextRow()
+         |    {
+         |$rowCode
+         |    }
+         |
+         |    private boolean produce()
+         |    {
+         |        while ( true )
+         |        {
+         |${loopCode.mkString("\n")}
+         |        }
+         |    }
+         |}
+         |""".stripMargin
+    }
+
+    private def loops(plan: LogicalPlan): Unit = plan match {
+      case AllNodesScan(IdName(id), arguments) if arguments.isEmpty =>
+        loop("allNodes()", id)
+
+      case NodeByLabelScan(IdName(id), label, arguments) if arguments.isEmpty =>
+        loop(s"nodesByLabel( ${offset(labels, label)} )", id)
+
+      case NodeIndexSeek(IdName(id), label, propertyKey, valueExpr, arguments) if arguments.isEmpty =>
+        val seek = CompiledIndexSeek(label, propertyKey, valueExpr.map(buildExpression), unique = false)
+        loop(s"indexSeek( ${offset(seeks, seek)} )", id)
+
+      case NodeIndexUniqueSeek(IdName(id), label, propertyKey, valueExpr, arguments) if arguments.isEmpty =>
+        val seek = CompiledIndexSeek(label, propertyKey, valueExpr.map(buildExpression), unique = true)
+        loop(s"indexSeek( ${offset(seeks, seek)} )", id)
+
+      case Expand(left, IdName(from), dir, relTypes, IdName(to), IdName(relName), ExpandAll) =>
+        loops(left)
+        val node = entity(from)
+        val types = offset(this.types, LazyTypes(relTypes.map(_.name)))
+        val rel = loop(s"relationships( $node, org.neo4j.graphdb.Direction.${dir.name}, $types )", relName)
+        levels.last.statements += s"${bind(to, entity = true)} = otherNode( $rel, $node );"
+
+      case Selection(predicates, left) =>
+        loops(left)
+        predicates.foreach {
+          p => levels.last.statements += s"if ( !isTrue( ${predicate(p)} ) ) { continue; }"
+        }
+
+      case Projection(left, expressions) =>
+        loops(left)
+        val projected = expressions.toSeq.map {
+          case (name, e @ ast.Identifier(id)) => (name, variable(id).entity, expression(e))
+          case (name, e) => (name, false, expression(e))
+        }
+        scope = Map.empty
+        projected.foreach {
+          case (name, isEntity, code) => levels.last.statements += s"${bind(name, isEntity)} = $code;"
+        }
+
+      case _ =>
+        throw new CantHandleQueryException(plan.toString)
+    }
+
+    private def loop(source: String, id: String): String = {
+      levels += new Level(source)
+      val field = bind(id, entity = true)
+      levels.last.statements += s"$field = it${levels.size - 1}.next();"
+      field
+    }
+
+    private def expression(e: ast.Expression): String = e match {
+      case ast.Identifier(name) =>
+        variable(name).field
+      case ast.Property(ast.Identifier(name), propertyKey) if variable(name).entity =>
+        s"property( ${variable(name).field}, ${offset(propertyKeys, propertyKey.name)} )"
+      case ConstantExpression(constant) =>
+        s"constant( ${offset(constants, buildExpression(constant))} )"
+      case _ =>
+        predicate(e)
+    }
+
+    private def predicate(e: ast.Expression): String = e match {
+      case ast.Not(a) => s"not( ${predicate(a)} )"
+      case ast.And(a, b) => s"and( ${predicate(a)}, ${predicate(b)} )"
+      case ast.Ands(exprs) => exprs.map(predicate).reduce((a, b) => s"and( $a, $b )")
+      case ast.Or(a, b) => s"or( ${predicate(a)}, ${predicate(b)} )"
+      case ast.Ors(exprs) => exprs.map(predicate).reduce((a, b) => s"or( $a, $b )")
+      case ast.Equals(a, b) => s"equal( ${expression(a)}, ${expression(b)} )"
+      case ast.NotEquals(a, b) => s"not( equal( ${expression(a)}, ${expression(b)} ) )"
+      case ast.LessThan(a, b) => s"lessThan( ${expression(a)}, ${expression(b)} )"
+      case ast.LessThanOrEqual(a, b) => s"lessThanOrEqual( ${expression(a)}, ${expression(b)} )"
+      case ast.GreaterThan(a, b) => s"greaterThan( ${expression(a)}, ${expression(b)} )"
+      case ast.GreaterThanOrEqual(a, b) => s"greaterThanOrEqual( ${expression(a)}, ${expression(b)} )"
+      case ast.In(a, b) => s"in( ${expression(a)}, ${expression(b)} )"
+      case ast.IsNull(a) => s"isNull( ${expression(a)} )"
+      case ast.IsNotNull(a) => s"not( isNull( ${expression(a)} ) )"
+      case ast.HasLabels(ast.Identifier(name), labelNames) if variable(name).entity =>
+        labelNames.map {
+          label => s"hasLabel( ${variable(name).field}, ${offset(labels, LazyLabel(label.name))} )"
+        }.reduce((a, b) => s"and( $a, $b )")
+      case _ =>
+        throw new CantHandleQueryException(e.toString)
+    }
+
+    private def variable(name: String): Variable =
+      scope.getOrElse(name, throw new CantHandleQueryException(s"Unknown identifier $name"))
+
+    private def entity(name: String): String = variable(name) match {
+      case Variable(field, true) => field
+      case _ => throw new CantHandleQueryException(s"$name is not known to be a node")
+    }
+
+    private def bind(name: String, entity: Boolean): String = {
+      val field = s"v$fields"
+      fields += 1
+      scope += name -> Variable(field, entity)
+      field
+    }
+
+    private def offset[T](values: ArrayBuffer[T], value: T): Int = values.indexOf(value) match {
+      case -1 =>
+        values += value
+        values.size - 1
+      case i => i
+    }
+  }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.codegen
+
+import java.util.{Collections, LinkedHashMap => JavaLinkedHashMap, Iterator => JavaIterator}
+
+import org.neo4j.cypher.internal.compiler.v2_2.ast.{LabelToken, PropertyKeyToken}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.{Expression => CommandExpression}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{QueryExpression, indexQuery}
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.{LazyLabel, LazyTypes, NiceHasher, QueryState}
+import org.neo4j.cypher.internal.compiler.v2_2.{Comparer, EntityNotFoundException, ExecutionContext, IncomparableValuesException}
+import org.neo4j.cypher.internal.helpers.{CollectionSupport, IsCollection}
+import org.neo4j.graphdb.{Direction, Node, NotFoundException, Relationship}
+import org.neo4j.kernel.api.index.IndexDescriptor
+
+import scala.collection.JavaConverters._
+
+/**
+ * Everything a generated class refers to by position, rather than spelling it out in its code: the expressions that
+ * are constant for an execution of the query, such as literals and parameters, and the labels, relationship types,
+ * property keys and indexes that it reads. Names are resolved to ids once per execution, since they may not exist
+ * yet when the query is compiled.
+ */
+case class CompiledPlanResources(constants: Seq[CommandExpression],
+                                 labels: Seq[LazyLabel],
+                                 types: Seq[LazyTypes],
+                                 propertyKeys: Seq[String],
+                                 seeks: Seq[CompiledIndexSeek])
+
+case class CompiledIndexSeek(label: LabelToken,
+                             propertyKey: PropertyKeyToken,
+                             valueExpr: QueryExpression[CommandExpression],
+                             unique: Boolean) {
+  val descriptor = new IndexDescriptor(label.nameId.id, propertyKey.nameId.id)
+}
+
+/**
+ * The superclass of the classes generated by the [[CodeGenerator]]. A generated class holds the loops of one query,
+ * and calls back into these methods to read the graph, and to evaluate predicates in the three-valued logic of
+ * Cypher, where null stands for unknown. The methods take and return plain objects, so that the generated code
+ * needs no casts and no boxing of its own.
+ */
+abstract class CompiledPlan(state: QueryState, resources: CompiledPlanResources) extends Comparer with CollectionSupport {
+
+  private val constants: Array[AnyRef] =
+    resources.constants.map(_.apply(ExecutionContext.empty)(state).asInstanceOf[AnyRef]).toArray
+  private val labelIds: Array[Int] = resources.labels.map(_.id(state.query).map(_.id).getOrElse(-1)).toArray
+  private val typeIds: Array[Option[Seq[Int]]] = resources.types.map(_.types(state.query)).toArray
+  private val propertyKeyIds: Array[Int] =
+    resources.propertyKeys.map(state.query.getOptPropertyKeyId(_).getOrElse(-1)).toArray
+  private val groups = new JavaLinkedHashMap[NiceHasher, (Array[AnyRef], Array[Long])]()
+
+  /**
+   * @return the values of the next row of the query, in the order of its columns, or null when there are no more.
+   */
+  def nextRow(): Array[AnyRef]
+
+  def constant(offset: Int): AnyRef = constants(offset)
+
+  def allNodes(): JavaIterator[Node] = state.query.nodeOps.all.asJava
+
+  def nodesByLabel(label: Int): JavaIterator[Node] = labelIds(label) match {
+    case -1 => Collections.emptyIterator[Node]()
+    case id => state.query.getNodesByLabel(id).asJava
+  }
+
+  def indexSeek(offset: Int): JavaIterator[Node] = {
+    val seek = resources.seeks(offset)
+    val index: Any => Iterator[Node] =
+      if (seek.unique)
+        value => state.query.exactUniqueIndexSearch(seek.descriptor, value).toIterator
+      else
+        value => state.query.exactIndexSearch(seek.descriptor, value)
+    indexQuery(seek.valueExpr, ExecutionContext.empty, state, index, seek.label.name, seek.propertyKey.name).asJava
+  }
+
+  def relationships(node: AnyRef, dir: Direction, types: Int): JavaIterator[Relationship] =
+    state.query.getRelationshipsForIds(node.asInstanceOf[Node], dir, typeIds(types)).asJava
+
+  def otherNode(relationship: AnyRef, node: AnyRef): AnyRef =
+    relationship.asInstanceOf[Relationship].getOtherNode(node.asInstanceOf[Node])
+
+  def property(entity: AnyRef, propertyKey: Int): AnyRef = {
+    val id = propertyKeyIds(propertyKey)
+    if (entity == null || id == -1)
+      return null
+    try {
+      entity match {
+        case n: Node => state.query.nodeOps.getProperty(n.getId, id).asInstanceOf[AnyRef]
+        case r: Relationship => state.query.relationshipOps.getProperty(r.getId, id).asInstanceOf[AnyRef]
+      }
+    } catch {
+      case _: EntityNotFoundException => null
+      case _: NotFoundException => null
+    }
+  }
+
+  def hasLabel(node: AnyRef, label: Int): java.lang.Boolean = {
+    val id = labelIds(label)
+    if (node == null) null
+    else id != -1 && state.query.isLabelSetOnNode(id, node.asInstanceOf[Node].getId)
+  }
+
+  def equal(a: AnyRef, b: AnyRef): java.lang.Boolean = (a, b) match {
+    case (null, _)                                             => null
+    case (_, null)                                             => null
+    case (IsCollection(l), IsCollection(r))                    => l == r
+    case (l: Node, r) if !r.isInstanceOf[Node]                 => incomparable(l, r)
+    case (l, r: Node) if !l.isInstanceOf[Node]                 => incomparable(l, r)
+    case (l: Relationship, r) if !r.isInstanceOf[Relationship] => incomparable(l, r)
+    case (l, r: Relationship) if !l.isInstanceOf[Relationship] => incomparable(l, r)
+    case _                                                     => a == b
+  }
+
+  def lessThan(a: AnyRef, b: AnyRef): java.lang.Boolean = compareWith(a, b)(_ < 0)
+
+  def lessThanOrEqual(a: AnyRef, b: AnyRef): java.lang.Boolean = compareWith(a, b)(_ <= 0)
+
+  def greaterThan(a: AnyRef, b: AnyRef): java.lang.Boolean = compareWith(a, b)(_ > 0)
+
+  def greaterThanOrEqual(a: AnyRef, b: AnyRef): java.lang.Boolean = compareWith(a, b)(_ >= 0)
+
+  def in(value: AnyRef, collection: AnyRef): java.lang.Boolean = {
+    var result: java.lang.Boolean = false
+    val items = makeTraversable(collection).iterator
+    while (items.hasNext) {
+      equal(value, items.next().asInstanceOf[AnyRef]) match {
+        case null => result = null
+        case matched if matched.booleanValue() => return true
+        case _ =>
+      }
+    }
+    result
+  }
+
+  def not(a: java.lang.Boolean): java.lang.Boolean = if (a == null) null else !a.booleanValue()
+
+  def and(a: java.lang.Boolean, b: java.lang.Boolean): java.lang.Boolean =
+    if (a == java.lang.Boolean.FALSE || b == java.lang.Boolean.FALSE) false
+    else if (a == null || b == null) null
+    else true
+
+  def or(a: java.lang.Boolean, b: java.lang.Boolean): java.lang.Boolean =
+    if (a == java.lang.Boolean.TRUE || b == java.lang.Boolean.TRUE) true
+    else if (a == null || b == null) null
+    else false
+
+  def isNull(a: AnyRef): java.lang.Boolean = a == null
+
+  def isTrue(a: java.lang.Boolean): Boolean = a != null && a.booleanValue()
+
+  /**
+   * @return the counters of the group with the given grouping key values, created with zeroes on first use.
+   */
+  def group(key: Array[AnyRef], counters: Int): Array[Long] = {
+    val hasher = new NiceHasher(key.toSeq)
+    var group = groups.get(hasher)
+    if (group == null) {
+      group = (key, new Array[Long](counters))
+      groups.put(hasher, group)
+    }
+    group._2
+  }
+
+  /**
+   * @return one row per group, of its grouping key values followed by its counters. Without grouping keys there is
+   *         always exactly one group, even if no rows were counted.
+   */
+  def aggregatedRows(groupingKeys: Int, counters: Int): JavaIterator[Array[AnyRef]] = {
+    if (groupingKeys == 0 && groups.isEmpty)
+      group(Array.empty[AnyRef], counters)
+    groups.values().iterator().asScala.map {
+      case (key, counts) => key ++ counts.map(count => java.lang.Long.valueOf(count): AnyRef)
+    }.asJava
+  }
+
+  private def compareWith(a: AnyRef, b: AnyRef)(f: Int => Boolean): java.lang.Boolean =
+    if (a == null || b == null) null
+    else f(compare(a, b)(state))
+
+  private def incomparable(lhs: Any, rhs: Any): Nothing =
+    throw new IncomparableValuesException(textWithType(lhs)(state), textWithType(rhs)(state))
+}
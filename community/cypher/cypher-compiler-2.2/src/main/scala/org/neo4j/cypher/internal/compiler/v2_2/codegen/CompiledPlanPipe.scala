@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.codegen
+
+import java.lang.reflect.InvocationTargetException
+
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.{Pipe, PipeMonitor, QueryState, RonjaPipe}
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.{NoChildren, PlanDescriptionImpl}
+import org.neo4j.cypher.internal.compiler.v2_2.symbols.SymbolTable
+
+/**
+ * Runs a query through the class generated for its plan, making a new instance of it per execution. The pipes that
+ * the plan would otherwise run on are kept for their symbols and effects, which are the same.
+ */
+case class CompiledPlanPipe(compiled: Class[_ <: CompiledPlan],
+                            resources: CompiledPlanResources,
+                            columns: Seq[String],
+                            interpreted: Pipe)
+                           (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
+  extends Pipe with RonjaPipe {
+
+  private val constructor = compiled.getConstructor(classOf[QueryState], classOf[CompiledPlanResources])
+  private val columnNames = columns.toArray
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
+    val plan = try {
+      constructor.newInstance(state, resources)
+    } catch {
+      case e: InvocationTargetException => throw e.getCause
+    }
+    Iterator.continually(plan.nextRow()).takeWhile(_ != null).map {
+      row =>
+        val context = state.newExecutionContext()
+        var i = 0
+        while (i < row.length) {
+          context.update(columnNames(i), row(i))
+          i += 1
+        }
+        context
+    }
+  }
+
+  def exists(predicate: Pipe => Boolean): Boolean = predicate(this)
+
+  def planDescription = new PlanDescriptionImpl(this, "CompiledQuery", NoChildren, Seq.empty, identifiers)
+
+  def symbols: SymbolTable = interpreted.symbols
+
+  override def monitor = pipeMonitor
+
+  def dup(sources: List[Pipe]): Pipe = {
+    require(sources.isEmpty)
+    this
+  }
+
+  def sources: Seq[Pipe] = Seq.empty
+
+  override def localEffects = interpreted.effects
+
+  def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.commands
+
+/**
+ * The values sought by an index range seek. Inequality ranges are open at the ends which have no bound.
+ */
+sealed trait SeekRange[+T] {
+  def map[R](f: T => R): SeekRange[R]
+}
+
+case class Bound[+T](endPoint: T, inclusive: Boolean) {
+  def map[R](f: T => R): Bound[R] = Bound(f(endPoint), inclusive)
+}
+
+case class InequalitySeekRange[+T](lower: Option[Bound[T]], upper: Option[Bound[T]]) extends SeekRange[T] {
+  def map[R](f: T => R): InequalitySeekRange[R] = InequalitySeekRange(lower.map(_.map(f)), upper.map(_.map(f)))
+}
+
+case class PrefixSeekRange[+T](prefix: T) extends SeekRange[T] {
+  def map[R](f: T => R): PrefixSeekRange[R] = PrefixSeekRange(f(prefix))
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.commands.expressions
+
+import org.neo4j.cypher.internal.compiler.v2_2._
+import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
+import pipes.QueryState
+import symbols._
+import org.neo4j.graphdb.{Direction, Node}
+
+/*
+Number of relationships of a node in a direction, optionally of a single type. This is what size((n)-->())
+asks for, answered from the degrees kept by the store instead of by expanding every relationship.
+ */
+case class GetDegree(node: Expression, typ: Option[String], direction: Direction) extends NullInNullOutExpression(node) {
+  def compute(value: Any, m: ExecutionContext)(implicit state: QueryState): Any = value match {
+    case n: Node => typ match {
+      case None => state.query.nodeGetDegree(n.getId, direction)
+      case Some(relType) => state.query.getOptRelTypeId(relType) match {
+        case None => 0
+        case Some(relTypeId) => state.query.nodeGetDegree(n.getId, direction, relTypeId)
+      }
+    }
+    case x => throw new CypherTypeException("Expected `%s` to be a node, but it was `%s`".format(node, x))
+  }
+
+  def rewrite(f: (Expression) => Expression) = f(GetDegree(node.rewrite(f), typ, direction))
+
+  def arguments = Seq(node)
+
+  def calculateType(symbols: SymbolTable): CypherType = {
+    node.evaluateType(CTNode, symbols)
+    CTInteger
+  }
+
+  def symbolTableDependencies = node.symbolTableDependencies
+
+  override def localEffects = Effects.READS_RELATIONSHIPS
+}
@@ -26,8 +26,11 @@ import org.neo4j.cypher.internal.compiler.v2_2.spi.{CSVResources, QueryContext}
 import org.neo4j.cypher.internal.{ExplainMode, ExecutionMode}
 import org.neo4j.graphdb.GraphDatabaseService
 import org.neo4j.graphdb.QueryExecutionType.QueryType
+import org.neo4j.io.fs.FileSystemAbstraction
+import org.neo4j.kernel.GraphDatabaseAPI
 
-case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: List[String]) extends ExecutionResultBuilderFactory {
+case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: List[String], queryMemoryLimit: Long = 0)
+  extends ExecutionResultBuilderFactory {
   def create(): ExecutionResultBuilder =
     ExecutionWorkflowBuilder()
 
@@ -37,6 +40,7 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: Lis
     private var maybeQueryContext: Option[QueryContext] = None
     private var pipeDecorator: PipeDecorator = NullPipeDecorator
     private var exceptionDecorator: CypherException => CypherException = identity
+    private var completionListeners: List[() => Unit] = List.empty
 
     def setQueryContext(context: QueryContext) {
       maybeQueryContext = Some(context)
@@ -56,9 +60,16 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: Lis
       exceptionDecorator = newDecorator
     }
 
+    def addCompletionListener(listener: () => Unit) {
+      completionListeners = completionListeners :+ listener
+    }
+
     def build(graph: GraphDatabaseService, queryId: AnyRef, planType: ExecutionMode, params: Map[String, Any]): InternalExecutionResult = {
       taskCloser.addTask(queryContext.close)
-      val state = new QueryState(graph, queryContext, externalResource, params, pipeDecorator, queryId = queryId)
+      val memory = queryMemory(graph)
+      taskCloser.addTask(_ => memory.close())
+      val state = new QueryState(graph, queryContext, externalResource, params, pipeDecorator, queryId = queryId,
+        slots = pipeInfo.slots, memory = memory)
       try {
         try {
           createResults(state, planType)
@@ -98,8 +109,18 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: Lis
 
     private def queryContext = maybeQueryContext.get
 
+    private def queryMemory(graph: GraphDatabaseService) =
+      if (queryMemoryLimit > 0)
+        new QueryMemory(queryMemoryLimit, graph.asInstanceOf[GraphDatabaseAPI].getDependencyResolver
+          .resolveDependency(classOf[FileSystemAbstraction]), QueryMemory.temporaryDirectory)
+      else
+        QueryMemory.unlimited
+
     private def buildResultIterator(results: Iterator[ExecutionContext], isUpdating: Boolean): ResultIterator = {
       val closingIterator = new ClosingIterator(results, taskCloser, exceptionDecorator)
+      val listeners = completionListeners
+      if (listeners.nonEmpty)
+        taskCloser.addTask(success => if (success && closingIterator.isExhausted) listeners.foreach(_()))
       val resultIterator = if (isUpdating) closingIterator.toEager else closingIterator
       resultIterator
     }
@@ -25,7 +25,8 @@ import org.neo4j.cypher.internal.compiler.v2_2.ast.Statement
 import org.neo4j.cypher.internal.compiler.v2_2.commands._
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.builders._
 import org.neo4j.cypher.internal.compiler.v2_2.pipes._
-import org.neo4j.cypher.internal.compiler.v2_2.planner.CantHandleQueryException
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.{Cardinality, CardinalityFeedback}
+import org.neo4j.cypher.internal.compiler.v2_2.planner.{CantHandleQueryException, QueryGraph}
 import org.neo4j.cypher.internal.compiler.v2_2.profiler.Profiler
 import org.neo4j.cypher.internal.compiler.v2_2.spi._
 import org.neo4j.cypher.internal.compiler.v2_2.symbols.SymbolTable
@@ -36,7 +37,9 @@ case class PipeInfo(pipe: Pipe,
                     updating: Boolean,
                     periodicCommit: Option[PeriodicCommitInfo] = None,
                     fingerprint: Option[PlanFingerprint] = None,
-                    plannerUsed: PlannerName)
+                    plannerUsed: PlannerName,
+                    slots: Option[SlotConfiguration] = None,
+                    solvedGraphs: Map[Pipe, QueryGraph] = Map.empty)
 
 case class PeriodicCommitInfo(size: Option[Long]) {
   def batchRowCount = size.getOrElse(/* defaultSize */ 1000L)
@@ -52,20 +55,22 @@ trait PipeBuilder {
 }
 
 class ExecutionPlanBuilder(graph: GraphDatabaseService, statsDivergenceThreshold: Double, queryPlanTTL: Long,
-                           clock: Clock, pipeBuilder: PipeBuilder) extends PatternGraphBuilder {
+                           clock: Clock, pipeBuilder: PipeBuilder, queryMemoryLimit: Long = 0,
+                           cardinalityFeedback: Option[CardinalityFeedback] = None)
+  extends PatternGraphBuilder {
   def build(planContext: PlanContext, inputQuery: PreparedQuery): ExecutionPlan = {
     val abstractQuery = inputQuery.abstractQuery
 
     val pipeInfo = pipeBuilder.producePlan(inputQuery, planContext)
-    val PipeInfo(pipe, updating, periodicCommitInfo, fp, planner) = pipeInfo
+    val PipeInfo(pipe, updating, periodicCommitInfo, fp, planner, _, solvedGraphs) = pipeInfo
 
     val columns = getQueryResultColumns(abstractQuery, pipe.symbols)
-    val resultBuilderFactory = new DefaultExecutionResultBuilderFactory(pipeInfo, columns)
-    val func = getExecutionPlanFunction(periodicCommitInfo, abstractQuery.getQueryText, updating, resultBuilderFactory)
+    val resultBuilderFactory = new DefaultExecutionResultBuilderFactory(pipeInfo, columns, queryMemoryLimit)
+    val fingerprint = PlanFingerprintReference(clock, queryPlanTTL, statsDivergenceThreshold, fp)
+    val feedback = if (solvedGraphs.isEmpty) None else cardinalityFeedback.map(recordFeedback(_, solvedGraphs, fingerprint))
+    val func = getExecutionPlanFunction(periodicCommitInfo, abstractQuery.getQueryText, updating, resultBuilderFactory, feedback)
 
     new ExecutionPlan {
-      private val fingerprint = PlanFingerprintReference(clock, queryPlanTTL, statsDivergenceThreshold, fp)
-
       def run(queryContext: QueryContext, planType: ExecutionMode, params: Map[String, Any]) =
         func(queryContext, planType, params)
 
@@ -98,10 +103,35 @@ class ExecutionPlanBuilder(graph: GraphDatabaseService, statsDivergenceThreshold
       List.empty
   }
 
+  /*
+  Once a profiled query has been read to the end, the estimated and actual row counts of the operators are fed back to
+  the cardinality model. Plans that were planned with estimates that turned out to be badly off are planned again.
+   */
+  private def recordFeedback(feedback: CardinalityFeedback, solvedGraphs: Map[Pipe, QueryGraph],
+                             fingerprint: PlanFingerprintReference): Profiler => () => Unit = {
+    // Kept with the pipes right after planning, while the corrections are still the ones the estimates were made with
+    val estimates = solvedGraphs.collect {
+      case (pipe: RonjaPipe, graph) if pipe.estimatedCardinality.isDefined =>
+        val estimated = pipe.estimatedCardinality.get
+        (pipe, (graph, estimated, feedback.uncorrected(graph, Cardinality(estimated))))
+    }
+    profiler => () => {
+      val misestimated = estimates.map {
+        case (pipe, (graph, estimated, uncorrected)) if profiler.rowStats.contains(pipe) =>
+          feedback.record(graph, estimated, uncorrected, profiler.rowStats(pipe).count)
+        case _ =>
+          false
+      }
+      if (misestimated.exists(identity))
+        fingerprint.markMisestimated()
+    }
+  }
+
   private def getExecutionPlanFunction(periodicCommit: Option[PeriodicCommitInfo],
                                        queryId: AnyRef,
                                        updating: Boolean,
-                                       resultBuilderFactory: ExecutionResultBuilderFactory):
+                                       resultBuilderFactory: ExecutionResultBuilderFactory,
+                                       feedback: Option[Profiler => () => Unit]):
   (QueryContext, ExecutionMode, Map[String, Any]) => InternalExecutionResult =
     (queryContext: QueryContext, planType: ExecutionMode, params: Map[String, Any]) => {
       val builder = resultBuilderFactory.create()
@@ -116,8 +146,11 @@ class ExecutionPlanBuilder(graph: GraphDatabaseService, statsDivergenceThreshold
         builder.setLoadCsvPeriodicCommitObserver(periodicCommit.get.batchRowCount)
       }
 
-      if (profiling)
-        builder.setPipeDecorator(new Profiler())
+      if (profiling) {
+        val profiler = new Profiler()
+        builder.setPipeDecorator(profiler)
+        feedback.foreach(f => builder.addCompletionListener(f(profiler)))
+      }
 
       builder.build(graph, queryId, planType, params)
     }
@@ -27,8 +27,17 @@ case class PlanFingerprint(creationTimeMillis: Long, txId: Long, snapshot: Graph
 case class PlanFingerprintReference(clock: Clock, ttl: Long, statsDivergenceThreshold : Double,
                                     var fingerprint: Option[PlanFingerprint])
 {
+  @volatile private var misestimated = false
+
+  /**
+   * Makes the plan stale, when executing it has shown that it was planned with estimates that were badly off.
+   */
+  def markMisestimated() {
+    misestimated = true
+  }
+
   def isStale(lastTxId: () => Long, statistics: GraphStatistics): Boolean = {
-    fingerprint.fold(false) { f =>
+    misestimated || fingerprint.fold(false) { f =>
       lazy val currentTimeMillis = clock.currentTimeMillis()
       lazy val currentTxId = lastTxId()
 
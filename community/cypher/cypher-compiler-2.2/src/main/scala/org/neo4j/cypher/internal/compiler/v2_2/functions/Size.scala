@@ -23,7 +23,9 @@ import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.ast.convert.commands.ExpressionConverters
 import ExpressionConverters._
 import commands.{expressions => commandexpressions}
+import org.neo4j.cypher.internal.compiler.v2_2.helpers.UnNamedNameGenerator._
 import symbols._
+import org.neo4j.graphdb.Direction
 
 case object Size extends Function with SimpleTypedFunction {
   def name = "size"
@@ -32,6 +34,42 @@ case object Size extends Function with SimpleTypedFunction {
     Signature(argumentTypes = Vector(CTCollection(CTAny)), outputType = CTInteger)
   )
 
-  def asCommandExpression(invocation: ast.FunctionInvocation) =
-    commandexpressions.LengthFunction(invocation.arguments(0).asCommandExpression)
+  def asCommandExpression(invocation: ast.FunctionInvocation) = invocation.arguments(0) match {
+    case DegreePattern(node, types, direction) =>
+      commandexpressions.GetDegree(node.asCommandExpression, types.headOption.map(_.name), direction)
+    case argument =>
+      commandexpressions.LengthFunction(argument.asCommandExpression)
+  }
+
+  /*
+  Matches pattern expressions like (n)-[:T]->() where the only thing that's asked for is the number of
+  relationships of a bound node, which can be answered by the degree of that node.
+   */
+  object DegreePattern {
+    def unapply(expression: ast.Expression): Option[(ast.Identifier, Seq[ast.RelTypeName], Direction)] = expression match {
+      case ast.PatternExpression(ast.RelationshipsPattern(ast.RelationshipChain(left: ast.NodePattern, rel, right))) if simple(rel) =>
+        (left, right) match {
+          case (BoundNode(node), AnyNode()) => Some((node, rel.types, rel.direction))
+          case (AnyNode(), BoundNode(node)) => Some((node, rel.types, rel.direction.reverse()))
+          case _ => None
+        }
+      case _ => None
+    }
+
+    private def simple(rel: ast.RelationshipPattern) =
+      !rel.identifier.exists(_.name.isNamed) && !rel.optional && rel.types.size <= 1 &&
+        rel.length.isEmpty && rel.properties.isEmpty
+
+    private object BoundNode {
+      def unapply(node: ast.NodePattern): Option[ast.Identifier] = node match {
+        case ast.NodePattern(Some(identifier), Seq(), None, _) if identifier.name.isNamed => Some(identifier)
+        case _ => None
+      }
+    }
+
+    private object AnyNode {
+      def unapply(node: ast.NodePattern): Boolean =
+        !node.identifier.exists(_.name.isNamed) && node.labels.isEmpty && node.properties.isEmpty
+    }
+  }
 }
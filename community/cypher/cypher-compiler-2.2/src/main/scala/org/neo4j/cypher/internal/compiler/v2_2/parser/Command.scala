@@ -35,11 +35,15 @@ trait Command extends Parser
   )
 
   def CreateIndex: Rule1[ast.CreateIndex] = rule {
-    group(keyword("CREATE INDEX ON") ~~ NodeLabel ~~ "(" ~~ PropertyKeyName ~~ ")") ~~>> (ast.CreateIndex(_, _))
+    group(keyword("CREATE INDEX ON") ~~ NodeLabel ~~ IndexProperties) ~~>> (ast.CreateIndex(_, _))
   }
 
   def DropIndex: Rule1[ast.DropIndex] = rule {
-    group(keyword("DROP INDEX ON") ~~ NodeLabel ~~ "(" ~~ PropertyKeyName ~~ ")") ~~>> (ast.DropIndex(_, _))
+    group(keyword("DROP INDEX ON") ~~ NodeLabel ~~ IndexProperties) ~~>> (ast.DropIndex(_, _))
+  }
+
+  private def IndexProperties: Rule1[List[ast.PropertyKeyName]] = rule {
+    "(" ~~ oneOrMore(PropertyKeyName, separator = CommaSep) ~~ ")"
   }
 
   def CreateUniqueConstraint: Rule1[ast.CreateUniqueConstraint] = rule {
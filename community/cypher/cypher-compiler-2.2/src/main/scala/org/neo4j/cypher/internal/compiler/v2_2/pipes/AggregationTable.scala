@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongIterator, PrimitiveLongLongMap, PrimitiveLongObjectMap}
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.{AggregationExpression, Count, CountStar}
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.aggregation.AggregationFunction
+import org.neo4j.graphdb.Node
+
+import scala.collection.mutable.{Map => MutableMap}
+
+/**
+ * The groups of an eager aggregation. Groups keyed on a single node are kept by node id, in a map with primitive
+ * keys, and when the only aggregation is a count, such groups are nothing but a counter in an off heap map from node
+ * id to count. Groups keyed on anything else are kept by their key values. A node never equals a value that is not a
+ * node, so a group cannot end up in two maps.
+ *
+ * The off heap counters are only allocated once the first node is counted. They are freed once the results of the
+ * table have been read to the end, when the table is closed, or at the latest when the query is.
+ */
+class AggregationTable(keyNames: Seq[String], aggregations: Seq[AggregationExpression], state: QueryState)
+  extends AutoCloseable {
+
+  import AggregationTable._
+
+  private val groups = MutableMap[NiceHasher, Seq[AggregationFunction]]()
+  private val nodeKeyed = keyNames.size == 1
+  private val nodeGroups: PrimitiveLongObjectMap[(Node, Seq[AggregationFunction])] =
+    if (nodeKeyed) Primitive.longObjectMap() else null
+  private val counted: Option[ExecutionContext => Boolean] = aggregations match {
+    case Seq(CountStar()) => Some(_ => true)
+    case Seq(Count(inner)) => Some(row => inner(row)(state) != null)
+    case _ => None
+  }
+  private val countsNodes = nodeKeyed && counted.nonEmpty
+  private var nodeCounts: PrimitiveLongLongMap = null
+  private var heapUsage = 0L
+
+  /**
+   * Aggregates the row into its group, unless the group does not exist and may not be created.
+   *
+   * @return false if the row was not aggregated.
+   */
+  def add(row: ExecutionContext, createGroup: Boolean = true): Boolean = {
+    if (nodeKeyed) {
+      row(keyNames.head) match {
+        case node: Node if countsNodes =>
+          if (nodeCounts == null) {
+            if (!createGroup)
+              return false
+            nodeCounts = Primitive.offHeapLongLongMap(InitialCounters)
+            state.memory.closeWithQuery(this)
+          }
+          val count = nodeCounts.get(node.getId)
+          if (count == NoCount && !createGroup)
+            return false
+          if (count == NoCount)
+            heapUsage += MemoryEstimates.PrimitiveEntry
+          if (counted.get(row))
+            nodeCounts.put(node.getId, if (count == NoCount) 1 else count + 1)
+          else if (count == NoCount)
+            nodeCounts.put(node.getId, 0)
+          return true
+
+        case node: Node =>
+          var group = nodeGroups.get(node.getId)
+          if (group == null) {
+            if (!createGroup)
+              return false
+            group = (node, newFunctions())
+            nodeGroups.put(node.getId, group)
+            heapUsage += MemoryEstimates.PrimitiveEntry + GroupSize
+          }
+          group._2.foreach(_(row)(state))
+          return true
+
+        case _ =>
+      }
+    }
+
+    val key = new NiceHasher(keyNames.map(row))
+    val functions = groups.get(key) match {
+      case Some(existing) => existing
+      case None if !createGroup => return false
+      case None =>
+        val created = newFunctions()
+        groups(key) = created
+        heapUsage += GroupSize + MemoryEstimates.key(keyNames.size)
+        created
+    }
+    functions.foreach(_(row)(state))
+    true
+  }
+
+  /**
+   * @return a hash of the key of the row, the same for all rows of a group.
+   */
+  def hash(row: ExecutionContext): Int = if (nodeKeyed) {
+    row(keyNames.head) match {
+      case node: Node => node.getId.##
+      case value => new NiceHasher(Seq(value)).hashCode()
+    }
+  } else {
+    new NiceHasher(keyNames.map(row)).hashCode()
+  }
+
+  def isEmpty: Boolean =
+    groups.isEmpty && (nodeGroups == null || nodeGroups.isEmpty) && (nodeCounts == null || nodeCounts.isEmpty)
+
+  /**
+   * @return the key values and the aggregated values of every group: first the groups of nodes, then the counters of
+   *         nodes, read one at a time from off heap, then all other groups. The counters are freed once they have all
+   *         been read.
+   */
+  def results(): Iterator[(Seq[Any], Seq[Any])] = {
+    val nodeResults =
+      if (nodeGroups == null) Iterator.empty
+      else ids(nodeGroups.iterator()).map { id =>
+        val (node, functions) = nodeGroups.get(id)
+        Seq(node) -> functions.map(_.result)
+      }
+    nodeResults ++ countResults ++ groups.iterator.map {
+      case (key, functions) => key.original -> functions.map(_.result)
+    }
+  }
+
+  private def countResults: Iterator[(Seq[Any], Seq[Any])] = if (nodeCounts == null) Iterator.empty else {
+    val counts = nodeCounts
+    val keys = counts.iterator()
+    new Iterator[(Seq[Any], Seq[Any])] {
+      def hasNext = {
+        val more = keys.hasNext
+        if (!more)
+          close()
+        more
+      }
+
+      def next() = {
+        val id = keys.next()
+        Seq(state.query.nodeOps.proxyById(id)) -> Seq(counts.get(id))
+      }
+    }
+  }
+
+  /**
+   * @return an estimate of the bytes held by the groups, off heap counters included.
+   */
+  def estimatedHeapUsage: Long = heapUsage
+
+  def close() {
+    if (nodeCounts != null) {
+      nodeCounts.close()
+      nodeCounts = null
+    }
+  }
+
+  private def newFunctions() = aggregations.map(_.createAggregationFunction)
+}
+
+object AggregationTable {
+  private def ids(iterator: PrimitiveLongIterator): Iterator[Long] = new Iterator[Long] {
+    def hasNext = iterator.hasNext
+
+    def next() = iterator.next()
+  }
+
+  private val InitialCounters = 1 << 10
+  private val NoCount = -1L
+  private val GroupSize = 4 * MemoryEstimates.ObjectHeader + 4 * MemoryEstimates.Reference
+}
@@ -30,7 +30,7 @@ case class AllNodesScanPipe(ident: String)(val estimatedCardinality: Option[Long
                            (implicit pipeMonitor: PipeMonitor) extends Pipe with RonjaPipe {
 
   protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
-    val baseContext = state.initialContext.getOrElse(ExecutionContext.empty)
+    val baseContext = state.initialContext.getOrElse(state.newExecutionContext())
     state.query.nodeOps.all.map(n => baseContext.newWith1(ident, n))
   }
 
@@ -39,27 +39,47 @@ case class DistinctPipe(source: Pipe, expressions: Map[String, Expression])(val
 
     // Run the return item expressions, and replace the execution context's with their values
     val returnExpressions = input.map(ctx => {
-      val newMap = Eagerly.mutableMapValues(expressions, (expression: Expression) => expression(ctx)(state))
+      val newMap = state.newRow(expressions.size)
+      expressions.foreach {
+        case (name, expression) => newMap.update(name, expression(ctx)(state))
+      }
       ctx.copy(m = newMap)
     })
 
-    /*
-     * The filtering is done by extracting from the context the values of all return expressions, and keeping them
-     * in a set.
-     */
-    var seen = mutable.Set[NiceHasher]()
+    distinct(returnExpressions, 0, state)
+  }
+
+  /*
+   * The filtering is done by extracting from the context the values of all return expressions, and keeping them
+   * in a set. Once the set does not fit in memory, rows with values that are not in it are spilled, spread by their
+   * values, and each spill file is filtered on its own after the other rows.
+   */
+  private def distinct(input: Iterator[ExecutionContext], depth: Int, state: QueryState): Iterator[ExecutionContext] = {
+    val seen = mutable.Set[NiceHasher]()
+    val memory = state.memory.newReservation()
+    var spilled: SpillPartitions = null
 
-    returnExpressions.filter {
+    val unique = input.filter {
        case ctx =>
          val values = new NiceHasher(keyNames.map(ctx).toSeq)
 
          if (seen.contains(values)) {
            false
-         } else {
+         } else if (spilled == null &&
+           (depth >= SpillPartitions.MaxDepth || memory.reserve(MemoryEstimates.key(keyNames.size)))) {
            seen += values
            true
+         } else {
+           if (spilled == null)
+             spilled = new SpillPartitions(state.memory, depth)
+           spilled.write(values.hashCode(), ctx)
+           false
          }
     }
+
+    memory.releasedAfter(unique) ++ (
+      if (spilled == null) Iterator.empty
+      else spilled.partitions.iterator.flatMap(partition => distinct(partition.rows(state), depth + 1, state)))
   }
 
   def planDescription = source.planDescription.andThen(this, "Distinct", identifiers, KeyNames(expressions.keys.toSeq))
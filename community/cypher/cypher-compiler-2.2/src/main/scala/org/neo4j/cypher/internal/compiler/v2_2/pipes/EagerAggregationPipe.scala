@@ -23,12 +23,9 @@ import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.AggregationExpression
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects._
-import org.neo4j.cypher.internal.compiler.v2_2.pipes.aggregation.AggregationFunction
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
 
-import scala.collection.mutable.{Map => MutableMap}
-
 // Eager aggregation means that this pipe will eagerly load the whole resulting sub graphs before starting
 // to emit aggregated results.
 // Cypher is lazy until it can't - this pipe will eagerly load the full match
@@ -48,46 +45,70 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
   }
 
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState) = {
-    // This is the temporary storage used while the aggregation is going on
-    val result = MutableMap[NiceHasher, (ExecutionContext, Seq[AggregationFunction])]()
     val keyNames: Seq[String] = keyExpressions.toSeq
-    val aggregationNames: Seq[String] = aggregations.map(_._1).toSeq
+    val (aggregationNames, aggregationExpressions) = aggregations.toSeq.unzip
     val mapSize = keyNames.size + aggregationNames.size
 
-    def createResults(key: NiceHasher, aggregator: scala.Seq[AggregationFunction], ctx: ExecutionContext): ExecutionContext = {
-      val newMap = MutableMaps.create(mapSize)
+    def createResults(key: Seq[Any], aggregated: Seq[Any]): ExecutionContext = {
+      val newMap = state.newRow(mapSize)
 
       //add key values
-      (keyNames zip key.original).foreach(newMap += _)
+      (keyNames zip key).foreach(newMap += _)
 
       //add aggregated values
-      (aggregationNames zip aggregator.map(_.result)).foreach(newMap += _)
+      (aggregationNames zip aggregated).foreach(newMap += _)
 
-      ctx.newFromMutableMap(newMap)
+      ExecutionContext(newMap)
     }
 
     def createEmptyResult(params: Map[String, Any]): Iterator[ExecutionContext] = {
-      val newMap = MutableMaps.empty
-      val aggregationNamesAndFunctions = aggregationNames zip aggregations.map(_._2.createAggregationFunction.result)
+      val newMap = state.newRow()
+      val aggregationNamesAndFunctions = aggregationNames zip aggregationExpressions.map(_.createAggregationFunction.result)
 
       aggregationNamesAndFunctions.toMap
         .foreach { case (name, zeroValue) => newMap += name -> zeroValue}
       Iterator.single(ExecutionContext(newMap))
     }
 
-    input.foreach(ctx => {
-      val groupValues: NiceHasher = new NiceHasher(keyNames.map(ctx))
-      val aggregateFunctions: Seq[AggregationFunction] = aggregations.map(_._2.createAggregationFunction).toSeq
-      val (_, functions) = result.getOrElseUpdate(groupValues, (ctx, aggregateFunctions))
-      functions.foreach(func => func(ctx)(state))
-    })
+    /*
+     * Once the groups do not fit in memory, rows of groups that are not in memory are spilled, spread by their
+     * grouping keys, and each spill file is aggregated on its own after the groups in memory.
+     */
+    def aggregate(rows: Iterator[ExecutionContext], depth: Int): Iterator[(Seq[Any], Seq[Any])] = {
+      // This is the temporary storage used while the aggregation is going on
+      val table = new AggregationTable(keyNames, aggregationExpressions, state)
+      val memory = state.memory.newReservation()
+      var reserved = 0L
+      var spilled: SpillPartitions = null
+      try {
+        rows.foreach { row =>
+          if (!table.add(row, createGroup = spilled == null)) {
+            spilled.write(table.hash(row), row)
+          } else if (spilled == null && depth < SpillPartitions.MaxDepth) {
+            val grown = table.estimatedHeapUsage - reserved
+            if (memory.reserve(grown))
+              reserved += grown
+            else
+              spilled = new SpillPartitions(state.memory, depth)
+          }
+        }
+      } catch {
+        case e: Throwable =>
+          table.close()
+          throw e
+      }
+
+      memory.releasedAfter(table.results()) ++ (
+        if (spilled == null) Iterator.empty
+        else spilled.partitions.iterator.flatMap(partition => aggregate(partition.rows(state), depth + 1)))
+    }
 
-    if (result.isEmpty && keyNames.isEmpty) {
+    if (input.isEmpty && keyNames.isEmpty) {
       createEmptyResult(state.params)
     } else {
-      result.map {
-        case (key, (ctx, aggregator)) => createResults(key, aggregator, ctx)
-      }.toIterator
+      aggregate(input, 0).map {
+        case (key, aggregated) => createResults(key, aggregated)
+      }
     }
   }
 
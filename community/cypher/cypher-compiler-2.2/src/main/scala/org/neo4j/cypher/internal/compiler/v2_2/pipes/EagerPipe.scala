@@ -23,13 +23,31 @@ import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
 
+import scala.collection.mutable.ArrayBuffer
+
 case class EagerPipe(src: Pipe)(implicit pipeMonitor: PipeMonitor) extends PipeWithSource(src, pipeMonitor) {
   def symbols: SymbolTable = src.symbols
 
   def planDescription = src.planDescription.andThen(this, "Eager", identifiers)
 
-  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
-    input.toList.toIterator
+  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
+    // Rows are kept in memory as long as they fit, and all rows after that go to a spill file, to keep their order
+    val memory = state.memory.newReservation()
+    val rows = ArrayBuffer[ExecutionContext]()
+    var spilled: SpillFile = null
+    input.foreach { row =>
+      if (spilled == null && memory.reserve(MemoryEstimates.row(row))) {
+        rows += row
+      } else {
+        if (spilled == null)
+          spilled = state.memory.newSpillFile()
+        spilled.write(row)
+      }
+    }
+
+    val result = if (spilled == null) rows.iterator else rows.iterator ++ spilled.rows(state)
+    memory.releasedAfter(result)
+  }
 
   override val effects = Effects.NONE
 
@@ -34,11 +34,11 @@ case class IndexOperationPipe(indexOp: IndexOperation)(implicit val monitor: Pip
     indexOp match {
       case CreateIndex(_, propertyKeys, _) =>
         val propertyKeyIds: Seq[Int] = propertyKeys.map( queryContext.getOrCreatePropertyKeyId )
-        queryContext.addIndexRule(labelId, single(propertyKeyIds))
+        queryContext.addIndexRule(labelId, propertyKeyIds: _*)
 
       case DropIndex(_, propertyKeys, _) =>
         val propertyKeyIds: Seq[Int] = propertyKeys.map( queryContext.getOrCreatePropertyKeyId )
-        queryContext.dropIndexRule(labelId, single(propertyKeyIds))
+        queryContext.dropIndexRule(labelId, propertyKeyIds: _*)
 
       case _ =>
         throw new UnsupportedOperationException("Unknown IndexOperation encountered")
@@ -47,12 +47,6 @@ case class IndexOperationPipe(indexOp: IndexOperation)(implicit val monitor: Pip
     Iterator.empty
   }
 
-  private def single[T](s: Seq[T]): T = {
-    if (s.isEmpty || s.tail.nonEmpty)
-      throw new SyntaxException("Cypher support only one property key per index right now")
-    s(0)
-  }
-
   def symbols = new SymbolTable()
 
   def planDescription = PlanDescriptionImpl(this, indexOp.toString, NoChildren, Seq.empty, identifiers)
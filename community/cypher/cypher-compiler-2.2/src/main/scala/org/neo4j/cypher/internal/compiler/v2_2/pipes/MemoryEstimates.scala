@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+
+/**
+ * Rough sizes, in bytes, of what the eager pipes keep on the heap, so that their tables can tell how much memory
+ * they hold. They assume a 64 bit JVM without compressed references, and so rather overestimate.
+ */
+object MemoryEstimates {
+  val ObjectHeader = 16
+  val Reference = 8
+  val Long = 8
+
+  /**
+   * A row is an execution context over a hash map, with an entry per identifier. The values are not counted, since
+   * they are mostly nodes and relationships shared with other rows.
+   */
+  def row(row: ExecutionContext): Long = 3 * ObjectHeader + row.size * (ObjectHeader + 4 * Reference)
+
+  /**
+   * A key of a hash set or map, over a sequence of the given number of values, and the entry it is kept in.
+   */
+  def key(size: Int): Long = 4 * ObjectHeader + (size + 4) * Reference
+
+  /**
+   * An entry of a primitive hash map with long keys is its key, its value and some slack of the hop scotch table.
+   */
+  val PrimitiveEntry = 2 * Long + Reference
+}
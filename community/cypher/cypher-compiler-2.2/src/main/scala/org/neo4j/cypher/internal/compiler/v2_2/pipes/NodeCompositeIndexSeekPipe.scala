@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.compiler.v2_2._
+import org.neo4j.cypher.internal.compiler.v2_2.ast.{LabelToken, PropertyKeyToken}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.Expression
+import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
+import org.neo4j.cypher.internal.compiler.v2_2.mutation.GraphElementPropertyFunctions
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.Index
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.{NoChildren, PlanDescriptionImpl}
+import org.neo4j.cypher.internal.compiler.v2_2.symbols.{CTNode, SymbolTable}
+import org.neo4j.kernel.api.index.{CompositeIndexValue, IndexDescriptor}
+
+case class NodeCompositeIndexSeekPipe(ident: String,
+                                      label: LabelToken,
+                                      propertyKeys: Seq[PropertyKeyToken],
+                                      valueExprs: Seq[Expression])
+                                     (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
+  extends Pipe with RonjaPipe with GraphElementPropertyFunctions {
+
+  val descriptor = new IndexDescriptor(label.nameId.id, propertyKeys.map(_.nameId.id).toArray)
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
+    val values = valueExprs.map(_(ExecutionContext.empty)(state))
+    if (values.contains(null)) {
+      // A node without one of the properties is not in the index
+      Iterator.empty
+    } else {
+      val value = new CompositeIndexValue(values.map(makeValueNeoSafe(_).asInstanceOf[AnyRef]): _*)
+      val baseContext = state.initialContext.getOrElse(state.newExecutionContext())
+      state.query.exactIndexSearch(descriptor, value).map(node => baseContext.newWith1(ident, node))
+    }
+  }
+
+  def exists(predicate: Pipe => Boolean): Boolean = predicate(this)
+
+  def planDescription =
+    new PlanDescriptionImpl(this, "NodeCompositeIndexSeek", NoChildren,
+      Seq(Index(label.name, propertyKeys.map(_.name).mkString(", "))), identifiers)
+
+  def symbols: SymbolTable = new SymbolTable(Map(ident -> CTNode))
+
+  override def monitor = pipeMonitor
+
+  def dup(sources: List[Pipe]): Pipe = {
+    require(sources.isEmpty)
+    this
+  }
+
+  def sources: Seq[Pipe] = Seq.empty
+
+  override def localEffects = Effects.READS_NODES
+
+  def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
+}
@@ -19,14 +19,11 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.pipes
 
-import org.neo4j.cypher.internal.compiler.v2_2.{CypherTypeException, ExecutionContext}
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.KeyNames
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.{InternalPlanDescription, PlanDescriptionImpl, TwoChildren}
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
-import org.neo4j.graphdb.Node
-
-import scala.collection.mutable
 
 case class NodeHashJoinPipe(nodeIdentifiers: Set[String], left: Pipe, right: Pipe)
                            (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
@@ -41,19 +38,50 @@ case class NodeHashJoinPipe(nodeIdentifiers: Set[String], left: Pipe, right: Pip
     if (rhsIterator.isEmpty)
       return Iterator.empty
 
-    val table = buildProbeTable(input)
+    join(input, rhsIterator, 0, state)
+  }
 
-    if (table.isEmpty)
-      return Iterator.empty
+  /*
+   * Once the table does not fit in memory, the rest of the build rows are spilled, spread by their join nodes, and
+   * so are the probe rows that may match them. Each pair of spill files is then joined on its own.
+   */
+  private def join(build: Iterator[ExecutionContext], probe: Iterator[ExecutionContext], depth: Int,
+                   state: QueryState): Iterator[ExecutionContext] = {
+    val table = new NodeJoinTable(cachedIdentifiers)
+    val memory = state.memory.newReservation()
+    var reserved = 0L
+    var spilledBuild: SpillPartitions = null
+    build.foreach { row =>
+      if (spilledBuild != null) {
+        table.hash(row).foreach(spilledBuild.write(_, row))
+      } else if (table.add(row) && depth < SpillPartitions.MaxDepth) {
+        val grown = table.estimatedHeapUsage - reserved
+        if (memory.reserve(grown))
+          reserved += grown
+        else
+          spilledBuild = new SpillPartitions(state.memory, depth)
+      }
+    }
 
-    val result = for {context: ExecutionContext <- rhsIterator
-                      joinKey <- computeKey(context)}
-    yield {
-      val seq = table.getOrElse(joinKey, mutable.MutableList.empty)
-      seq.map(context ++ _)
+    if (spilledBuild == null) {
+      if (table.isEmpty)
+        return Iterator.empty
+
+      return memory.releasedAfter(probe.flatMap(context => table.probe(context).map(context ++ _)))
+    }
+
+    val spilledProbe = new SpillPartitions(state.memory, depth)
+    val joined = probe.flatMap { context =>
+      table.hash(context).filter(spilledBuild.contains).foreach(spilledProbe.write(_, context))
+      table.probe(context).map(context ++ _)
     }
 
-    result.flatten
+    memory.releasedAfter(joined) ++ (0 until SpillPartitions.Count).iterator.flatMap { index =>
+      (spilledBuild.partition(index), spilledProbe.partition(index)) match {
+        case (Some(buildRows), Some(probeRows)) => join(buildRows.rows(state), probeRows.rows(state), depth + 1, state)
+        case _ => Iterator.empty
+      }
+    }
   }
 
   def planDescription: InternalPlanDescription =
@@ -78,30 +106,5 @@ case class NodeHashJoinPipe(nodeIdentifiers: Set[String], left: Pipe, right: Pip
 
   def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
 
-  private def buildProbeTable(input: Iterator[ExecutionContext]): mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]] = {
-    val table = new mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]]
-
-    for {context <- input
-         joinKey <- computeKey(context)} {
-      val seq = table.getOrElseUpdate(joinKey, mutable.MutableList.empty)
-      seq += context
-    }
-
-    table
-  }
-
   private val cachedIdentifiers = nodeIdentifiers.toIndexedSeq
-
-  private def computeKey(context: ExecutionContext): Option[Vector[Long]] = {
-    val key = new Array[Long](cachedIdentifiers.length)
-
-    for (idx <- 0 until cachedIdentifiers.length) {
-      key(idx) = context(cachedIdentifiers(idx)) match {
-        case n: Node => n.getId
-        case null => return None
-        case _ => throw new CypherTypeException("Created a plan that uses non-nodes when expecting a node")
-      }
-    }
-    Some(key.toVector)
-  }
 }
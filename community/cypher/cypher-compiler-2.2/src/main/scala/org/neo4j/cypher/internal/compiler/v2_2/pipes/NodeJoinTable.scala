@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongObjectVisitor}
+import org.neo4j.cypher.internal.compiler.v2_2.{CypherTypeException, ExecutionContext}
+import org.neo4j.graphdb.Node
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The build side of a hash join on nodes. Rows are kept by the id of their first join node, in a map with primitive
+ * long keys, so the table holds no boxed keys and no collection per key. Rows with the same first node but other
+ * differing join nodes share a slot of the map, in separate buckets.
+ */
+class NodeJoinTable(nodeIdentifiers: IndexedSeq[String]) {
+
+  import NodeJoinTable._
+
+  private val buckets = Primitive.longObjectMap[Bucket]()
+  private var heapUsage = 0L
+
+  /**
+   * Adds the row under the ids of its join nodes.
+   *
+   * @return false, without adding the row, if any of its join nodes is null.
+   */
+  def add(row: ExecutionContext): Boolean = {
+    val ids = key(row)
+    if (ids == null)
+      return false
+
+    var bucket = find(ids)
+    if (bucket == null) {
+      bucket = new Bucket(ids, buckets.get(ids(0)))
+      buckets.put(ids(0), bucket)
+      heapUsage += MemoryEstimates.PrimitiveEntry + BucketSize + ids.length * MemoryEstimates.Long
+    }
+    bucket.add(row)
+    heapUsage += 2 * MemoryEstimates.Reference + MemoryEstimates.row(row)
+    true
+  }
+
+  /**
+   * @return the rows added with the same join nodes as the given row, which are thereby marked as matched.
+   */
+  def probe(row: ExecutionContext): Iterator[ExecutionContext] = {
+    val ids = key(row)
+    if (ids == null)
+      return Iterator.empty
+
+    find(ids) match {
+      case null => Iterator.empty
+      case bucket =>
+        bucket.matched = true
+        bucket.rows
+    }
+  }
+
+  /**
+   * @return the rows that no probe has matched so far.
+   */
+  def unmatchedRows: Iterator[ExecutionContext] = {
+    val unmatched = ArrayBuffer[ExecutionContext]()
+    buckets.visitEntries(new PrimitiveLongObjectVisitor[Bucket, RuntimeException] {
+      def visited(key: Long, first: Bucket) = {
+        var bucket = first
+        while (bucket != null) {
+          if (!bucket.matched)
+            unmatched ++= bucket.rows
+          bucket = bucket.next
+        }
+        false
+      }
+    })
+    unmatched.iterator
+  }
+
+  def isEmpty: Boolean = buckets.isEmpty
+
+  /**
+   * @return a hash of the ids of the join nodes of the row, or None if any of them is null.
+   */
+  def hash(row: ExecutionContext): Option[Int] = key(row) match {
+    case null => None
+    case ids => Some(java.util.Arrays.hashCode(ids))
+  }
+
+  /**
+   * @return an estimate of the bytes of heap held by the table and its rows.
+   */
+  def estimatedHeapUsage: Long = heapUsage
+
+  private def find(ids: Array[Long]): Bucket = {
+    var bucket = buckets.get(ids(0))
+    while (bucket != null && !java.util.Arrays.equals(bucket.ids, ids))
+      bucket = bucket.next
+    bucket
+  }
+
+  private def key(row: ExecutionContext): Array[Long] = {
+    val ids = new Array[Long](nodeIdentifiers.length)
+    var i = 0
+    while (i < ids.length) {
+      ids(i) = row(nodeIdentifiers(i)) match {
+        case n: Node => n.getId
+        case null => return null
+        case _ => throw new CypherTypeException("Created a plan that uses non-nodes when expecting a node")
+      }
+      i += 1
+    }
+    ids
+  }
+}
+
+object NodeJoinTable {
+  private val BucketSize = 2 * MemoryEstimates.ObjectHeader + 3 * MemoryEstimates.Reference + 8
+
+  private final class Bucket(val ids: Array[Long], val next: Bucket) {
+    private var values = new Array[ExecutionContext](1)
+    private var size = 0
+    var matched = false
+
+    def add(row: ExecutionContext) {
+      if (size == values.length)
+        values = java.util.Arrays.copyOf(values, size * 2)
+      values(size) = row
+      size += 1
+    }
+
+    def rows: Iterator[ExecutionContext] = values.iterator.take(size)
+  }
+}
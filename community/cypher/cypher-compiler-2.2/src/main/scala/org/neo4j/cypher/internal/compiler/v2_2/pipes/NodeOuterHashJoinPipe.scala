@@ -23,9 +23,7 @@ import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.{InternalPlanDescription, PlanDescriptionImpl, TwoChildren}
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
-import org.neo4j.graphdb.Node
 
-import scala.collection.mutable
 import scala.collection.mutable.ListBuffer
 
 case class NodeOuterHashJoinPipe(nodeIdentifiers: Set[String], source: Pipe, inner: Pipe, nullableIdentifiers: Set[String])
@@ -38,25 +36,16 @@ case class NodeOuterHashJoinPipe(nodeIdentifiers: Set[String], source: Pipe, inn
     if(input.isEmpty)
       return Iterator.empty
 
-    val probeTable = buildProbeTableAndFindNullRows(input)
+    val table = new NodeJoinTable(myIdentifiers)
+    val rowsWithNullAsJoinKey = ListBuffer[ExecutionContext]()
+    input.foreach(context => if (!table.add(context)) rowsWithNullAsJoinKey += context)
 
-    val seenKeys = mutable.Set[Vector[Long]]()
-    val joinedRows = (
-      for {context <- inner.createResults(state)
-           joinKey <- computeKey(context)}
-      yield {
-        val seq = probeTable(joinKey)
-        seenKeys.add(joinKey)
-        seq.map(context ++ _)
-      }).flatten
+    val joinedRows = inner.createResults(state).flatMap(context => table.probe(context).map(context ++ _))
 
-    def rowsWithoutRhsMatch: Iterator[ExecutionContext] = (probeTable.keySet -- seenKeys).iterator.flatMap {
-      x => probeTable(x).map(addNulls)
-    }
+    // Only known once all the rows of the inner side have been probed
+    def rowsWithoutRhsMatch: Iterator[ExecutionContext] = table.unmatchedRows.map(addNulls)
 
-    val rowsWithNullAsJoinKey = probeTable.nullRows.map(addNulls)
-
-    rowsWithNullAsJoinKey ++ joinedRows ++ rowsWithoutRhsMatch
+    rowsWithNullAsJoinKey.iterator.map(addNulls) ++ joinedRows ++ rowsWithoutRhsMatch
   }
 
   private def addNulls(in:ExecutionContext): ExecutionContext = in.newWith(nullColumns)
@@ -82,53 +71,5 @@ case class NodeOuterHashJoinPipe(nodeIdentifiers: Set[String], source: Pipe, inn
 
   def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
 
-  private def buildProbeTableAndFindNullRows(input: Iterator[ExecutionContext]): ProbeTable = {
-    val probeTable = new ProbeTable()
-
-    for (context <- input) {
-      val key = computeKey(context)
-
-      key match {
-        case Some(joinKey) => probeTable.addValue(joinKey, context)
-        case None          => probeTable.addNull(context)
-      }
-    }
-
-    probeTable
-  }
-
   private val myIdentifiers = nodeIdentifiers.toIndexedSeq
-
-  private def computeKey(context: ExecutionContext): Option[Vector[Long]] = {
-    val key = new Array[Long](myIdentifiers.length)
-
-    for (idx <- 0 until myIdentifiers.length) {
-      key(idx) = context(myIdentifiers(idx)) match {
-        case n: Node => n.getId
-        case _ => return None
-      }
-    }
-    Some(key.toVector)
-  }
-}
-
-class ProbeTable() {
-  private val table: mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]] =
-    new mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]]
-
-  private val rowsWithNullInKey: ListBuffer[ExecutionContext] = new ListBuffer[ExecutionContext]()
-
-  def addValue(key: Vector[Long], newValue: ExecutionContext) {
-    val values = table.getOrElseUpdate(key, mutable.MutableList.empty)
-    values += newValue
-  }
-
-  def addNull(context: ExecutionContext) = rowsWithNullInKey += context
-
-  val EMPTY = mutable.MutableList.empty
-  def apply(key: Vector[Long]) = table.getOrElse(key, EMPTY)
-
-  def keySet: collection.Set[Vector[Long]] = table.keySet
-
-  def nullRows = rowsWithNullInKey.iterator
 }
@@ -28,11 +28,11 @@ case class OptionalPipe(nullableIdentifiers: Set[String], source: Pipe)
                        (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
   extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
 
-  val notFoundExecutionContext: ExecutionContext =
-    nullableIdentifiers.foldLeft(ExecutionContext.empty)( (context, identifier) => context += identifier -> null )
+  def notFoundExecutionContext(state: QueryState): ExecutionContext =
+    nullableIdentifiers.foldLeft(state.newExecutionContext())( (context, identifier) => context += identifier -> null )
 
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
-    if (input.isEmpty) Iterator(notFoundExecutionContext) else input
+    if (input.isEmpty) Iterator(notFoundExecutionContext(state)) else input
 
   def planDescription: InternalPlanDescription =
     new PlanDescriptionImpl(
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import java.util.concurrent.{ArrayBlockingQueue, ForkJoinPool, TimeUnit}
+
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
+import org.neo4j.cypher.internal.compiler.v2_2.symbols.SymbolTable
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Runs the pipes of the source on several threads at once. The leaf at the bottom of the source is read on the
+ * calling thread, and its rows are handed out in morsels to the workers, each of which runs its own copy of the pipes
+ * above the leaf over a morsel in a read transaction of its own. The rows that come out are in no particular order,
+ * and so this is only placed below pipes that do not care about the order of their input.
+ *
+ * Each worker has a query state of its own, with a memory of its own for its share of what the query has left, as
+ * the state of a query is not safe to share between threads. Only so many batches of rows may wait to be read, and
+ * workers that get ahead of the reader block until it catches up. Once a worker fails, or the query is closed before
+ * its rows have all been read, the workers that are still running stop at their next batch of rows, blocked or not.
+ *
+ * Profiled queries, and queries whose transaction holds changes that other transactions would not see, run the
+ * source on the calling thread as usual.
+ */
+case class ParallelPipe(source: Pipe, workers: ForkJoinPool)
+                       (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
+  extends Pipe with RonjaPipe {
+
+  import ParallelPipe._
+
+  private val leaf: Pipe = leafOf(source)
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] =
+    if (state.decorator != NullPipeDecorator || !state.query.supportsParallelReads)
+      source.createResults(state)
+    else
+      new ParallelResults(state)
+
+  private class ParallelResults(state: QueryState) extends Iterator[ExecutionContext] with AutoCloseable {
+    private val leafRows = leaf.createResults(state)
+    private val output = new ArrayBlockingQueue[Batch](workers.getParallelism * MorselsPerWorker)
+    private var running = 0
+    private var current: Iterator[ExecutionContext] = Iterator.empty
+    @volatile private var cancelled = false
+    state.memory.closeWithQuery(this)
+
+    def hasNext: Boolean = {
+      while (!current.hasNext) {
+        while (running < workers.getParallelism * MorselsPerWorker && leafRows.hasNext)
+          submit(nextMorsel())
+        if (running == 0)
+          return false
+        output.take() match {
+          case Rows(rows) => current = rows.iterator
+          case Done => running -= 1
+          case Failed(e) =>
+            close()
+            throw e
+        }
+      }
+      true
+    }
+
+    def next(): ExecutionContext =
+      if (hasNext) current.next() else Iterator.empty.next()
+
+    // Stops the workers that are still running, at their next batch of rows, or while they wait to hand one over
+    def close() {
+      cancelled = true
+    }
+
+    private def nextMorsel(): Seq[ExecutionContext] = {
+      val morsel = new ArrayBuffer[ExecutionContext](MorselSize)
+      while (morsel.size < MorselSize && leafRows.hasNext)
+        morsel += leafRows.next()
+      morsel
+    }
+
+    private def submit(morsel: Seq[ExecutionContext]) {
+      running += 1
+      val memory = state.memory.newWorkerMemory(workers.getParallelism)
+      workers.execute(new Runnable {
+        def run() {
+          try {
+            state.query.withReadTransaction { query =>
+              val workerState = state.copy(query = query, memory = memory)
+              val rows = chainOver(morsel).createResults(workerState)
+              while (!cancelled && rows.hasNext) {
+                val batch = new ArrayBuffer[ExecutionContext](BatchSize)
+                while (rows.hasNext && batch.size < BatchSize)
+                  batch += rows.next()
+                deliver(Rows(batch))
+              }
+            }
+            deliver(Done)
+          } catch {
+            case e: Throwable => deliver(Failed(e))
+          } finally {
+            memory.close()
+          }
+        }
+      })
+    }
+
+    // Waits for room in the output, unless the query is cancelled, in which case nobody is going to read the batch
+    private def deliver(batch: Batch) {
+      while (!cancelled && !output.offer(batch, CancellationCheckMillis, TimeUnit.MILLISECONDS)) {}
+    }
+  }
+
+  // A copy of the source that reads the rows of the morsel instead of those of the leaf
+  private def chainOver(morsel: Seq[ExecutionContext]): Pipe = {
+    val morselPipe = MorselPipe(morsel, leaf.symbols)
+    def replaceLeaf(pipe: Pipe): Pipe =
+      if (pipe eq leaf) morselPipe else pipe.dup(pipe.sources.map(replaceLeaf).toList)
+    replaceLeaf(source)
+  }
+
+  def exists(pred: Pipe => Boolean) = pred(this) || source.exists(pred)
+
+  def planDescription = source.planDescription.andThen(this, "Parallel", identifiers)
+
+  def symbols: SymbolTable = source.symbols
+
+  override def monitor = pipeMonitor
+
+  override def localEffects = Effects.NONE
+
+  override def effects = source.effects
+
+  def dup(sources: List[Pipe]): Pipe = {
+    val (source :: Nil) = sources
+    copy(source = source)(estimatedCardinality)
+  }
+
+  def sources: Seq[Pipe] = Seq(source)
+
+  def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
+}
+
+object ParallelPipe {
+  val MorselSize = 1000
+  val BatchSize = 256
+  // How many morsels may be handed out per worker before the rows of earlier ones have been taken
+  val MorselsPerWorker = 2
+  // How often a worker that waits for room in the output checks whether the query has been cancelled
+  val CancellationCheckMillis = 10L
+
+  def leafOf(pipe: Pipe): Pipe = pipe.sources match {
+    case Seq(source) => leafOf(source)
+    case _ => pipe
+  }
+
+  private sealed trait Batch
+  private case class Rows(rows: Seq[ExecutionContext]) extends Batch
+  private case object Done extends Batch
+  private case class Failed(e: Throwable) extends Batch
+}
+
+/**
+ * Produces the rows of a morsel, in place of the leaf that they were read from.
+ */
+case class MorselPipe(rows: Seq[ExecutionContext], symbols: SymbolTable)(implicit pipeMonitor: PipeMonitor)
+  extends Pipe {
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = rows.iterator
+
+  def exists(pred: Pipe => Boolean) = pred(this)
+
+  def planDescription = throw new UnsupportedOperationException("MorselPipe is not part of any plan")
+
+  override def monitor = pipeMonitor
+
+  override def localEffects = Effects.NONE
+
+  def dup(sources: List[Pipe]): Pipe = {
+    require(sources.isEmpty)
+    this
+  }
+
+  def sources: Seq[Pipe] = Seq.empty
+}
@@ -91,7 +91,7 @@ case class SingleRowPipe()(implicit val monitor: PipeMonitor) extends Pipe with
   def symbols: SymbolTable = new SymbolTable()
 
   def internalCreateResults(state: QueryState) =
-      Iterator(ExecutionContext.empty)
+      Iterator(state.newExecutionContext())
 
   def exists(pred: Pipe => Boolean) = pred(this)
 
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongSet}
+import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.ExpandExpression
+import org.neo4j.cypher.internal.compiler.v2_2.spi.RelationshipCursor
+import org.neo4j.cypher.internal.compiler.v2_2.symbols._
+import org.neo4j.cypher.internal.compiler.v2_2.{ExecutionContext, InternalException}
+import org.neo4j.graphdb.{Direction, Node, Relationship}
+import org.neo4j.helpers.collection.PrefetchingIterator
+
+import scala.collection.JavaConverters._
+import scala.reflect.ClassTag
+
+/**
+ * Expands variable length paths like VarLengthExpandPipe, but walks them as relationship and node ids read through a
+ * RelationshipCursor, creating the relationships and the node of a path only when the path is returned.
+ *
+ * @param expandInto whether the node at the other end is already bound, in which case only the paths ending there
+ *                   are returned, and the node is first expanded from in the opposite direction to skip the branches
+ *                   that cannot reach it in time
+ * @param filteringStep the predicates on every relationship of the path, if any, which the relationships are created
+ *                      for
+ */
+case class PrimitiveVarLengthExpandPipe(source: Pipe,
+                                        fromName: String,
+                                        relName: String,
+                                        toName: String,
+                                        dir: Direction,
+                                        projectedDir: Direction,
+                                        types: LazyTypes,
+                                        min: Int,
+                                        max: Option[Int],
+                                        expandInto: Boolean = false,
+                                        filteringStep: Option[(ExecutionContext, QueryState, Relationship) => Boolean] = None)
+                                       (val estimatedCardinality: Option[Long] = None)
+                                       (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
+
+  private val maxLength = max.getOrElse(Int.MaxValue)
+
+  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
+    input.flatMap {
+      row =>
+        val fromNode = getRowNode(row, fromName)
+        val toNode = if (expandInto) getRowNode(row, toName) else null
+        if (fromNode == null || (expandInto && toNode == null))
+          Iterator.empty
+        else if (!expandInto)
+          new PathIterator(row, state, fromNode.getId, None).asScala
+        else {
+          val distances = new DistancesTo(toNode.getId, state.query.relationshipCursor(dir.reverse(), types.types(state.query)))
+          if (distances.mayReach(fromNode.getId, maxLength))
+            new PathIterator(row, state, fromNode.getId, Some(distances)).asScala
+          else {
+            distances.close()
+            Iterator.empty
+          }
+        }
+    }
+
+  private def getRowNode(row: ExecutionContext, col: String): Node =
+    row.getOrElse(col, throw new InternalException(s"Expected to find a node at $col but found nothing")) match {
+      case n: Node => n
+      case null    => null
+      case value   => throw new InternalException(s"Expected to find a node at $col but found $value instead")
+    }
+
+  /*
+  Walks the paths depth first. For each length of the current path, it keeps the relationships and the nodes still to
+  be followed from its last node, as pairs of ids, along with the set of the relationships on the path, which must not
+  be followed again.
+   */
+  private class PathIterator(row: ExecutionContext, state: QueryState, from: Long, distances: Option[DistancesTo])
+    extends PrefetchingIterator[ExecutionContext] {
+
+    private val cursor = state.query.relationshipCursor(dir, types.types(state.query))
+    private val onPath: PrimitiveLongSet = Primitive.longSet()
+    private var path = new Array[Long](8)
+    private var nodes = new Array[Long](9)
+    private var candidates = new Array[Array[Long]](9)
+    private var candidateCounts = new Array[Int](9)
+    private var positions = new Array[Int](9)
+    private var length = 0
+    private var started = false
+
+    nodes(0) = from
+
+    override def fetchNextOrNull(): ExecutionContext = {
+      if (!started) {
+        started = true
+        expandLast()
+        if (returnsCurrent)
+          return current
+      }
+
+      while (true) {
+        if (positions(length) < candidateCounts(length)) {
+          val position = positions(length)
+          positions(length) = position + 2
+          val rel = candidates(length)(position)
+          val node = candidates(length)(position + 1)
+          if (!onPath.contains(rel) && distances.forall(_.mayReach(node, maxLength - length - 1))) {
+            follow(rel, node)
+            if (returnsCurrent)
+              return current
+          }
+        } else if (length == 0) {
+          close()
+          return null
+        } else {
+          length -= 1
+          onPath.remove(path(length))
+        }
+      }
+      null
+    }
+
+    private def follow(rel: Long, node: Long) {
+      if (length == path.length)
+        grow()
+      path(length) = rel
+      onPath.add(rel)
+      length += 1
+      nodes(length) = node
+      expandLast()
+    }
+
+    private def expandLast() {
+      var count = 0
+      if (length < maxLength) {
+        var buffer = candidates(length)
+        if (buffer == null)
+          buffer = new Array[Long](16)
+
+        cursor.expandFrom(nodes(length))
+        while (cursor.next()) {
+          val rel = cursor.relationshipId
+          if (filteringStep.forall(_(row, state, state.query.relationshipOps.getById(rel)))) {
+            if (count == buffer.length)
+              buffer = resize(buffer, count * 2)
+            buffer(count) = rel
+            buffer(count + 1) = cursor.otherNodeId
+            count += 2
+          }
+        }
+        candidates(length) = buffer
+      }
+      candidateCounts(length) = count
+      positions(length) = 0
+    }
+
+    private def returnsCurrent: Boolean =
+      length >= min && distances.forall(_.isTarget(nodes(length)))
+
+    private def current: ExecutionContext = {
+      var rels: List[Relationship] = Nil
+      if (dir == projectedDir) {
+        var i = length
+        while (i > 0) {
+          i -= 1
+          rels = state.query.relationshipOps.getById(path(i)) :: rels
+        }
+      } else {
+        var i = 0
+        while (i < length) {
+          rels = state.query.relationshipOps.getById(path(i)) :: rels
+          i += 1
+        }
+      }
+
+      if (expandInto)
+        row.newWith1(relName, rels)
+      else
+        row.newWith2(relName, rels, toName, state.query.nodeOps.getById(nodes(length)))
+    }
+
+    private def grow() {
+      val size = path.length * 2
+      path = resize(path, size)
+      nodes = resize(nodes, size + 1)
+      candidates = resize(candidates, size + 1)
+      candidateCounts = resize(candidateCounts, size + 1)
+      positions = resize(positions, size + 1)
+    }
+
+    private def resize[T: ClassTag](array: Array[T], size: Int): Array[T] = {
+      val resized = new Array[T](size)
+      Array.copy(array, 0, resized, 0, array.length)
+      resized
+    }
+
+    private def close() {
+      cursor.close()
+      onPath.close()
+      distances.foreach(_.close())
+    }
+  }
+
+  /*
+  The fewest relationships between each node and the node at the other end, found by expanding from that node in the
+  opposite direction, breadth first, to half the maximum length. Nodes that were not reached are further away than that,
+  and nodes that were not reached when the expansion ran out of nodes cannot reach it at all.
+   */
+  private class DistancesTo(to: Long, cursor: RelationshipCursor) {
+    private val distances = Primitive.longIntMap()
+    private val searched = {
+      val limit = max.fold(Int.MaxValue)(m => (m + 1) / 2)
+      var frontier = Primitive.longSet()
+      var depth = 0
+      distances.put(to, 0)
+      frontier.add(to)
+      while (!frontier.isEmpty && depth < limit) {
+        val next = Primitive.longSet()
+        val nodes = frontier.iterator()
+        while (nodes.hasNext) {
+          cursor.expandFrom(nodes.next())
+          while (cursor.next()) {
+            val other = cursor.otherNodeId
+            if (!distances.containsKey(other)) {
+              distances.put(other, depth + 1)
+              next.add(other)
+            }
+          }
+        }
+        frontier.close()
+        frontier = next
+        depth += 1
+      }
+      val exhausted = frontier.isEmpty
+      frontier.close()
+      cursor.close()
+      if (exhausted) Int.MaxValue else depth
+    }
+
+    def isTarget(node: Long): Boolean = node == to
+
+    def mayReach(node: Long, remaining: Int): Boolean =
+      if (distances.containsKey(node))
+        distances.get(node) <= remaining
+      else
+        remaining > searched
+
+    def close() {
+      distances.close()
+    }
+  }
+
+  def planDescription = source.planDescription.
+    andThen(this, "Var length expand", identifiers, ExpandExpression(fromName, relName, types.names, toName, projectedDir, varLength = true))
+
+  def symbols = source.symbols.add(toName, CTNode).add(relName, CTRelationship)
+
+  override def localEffects = Effects.READS_ENTITIES
+
+  def dup(sources: List[Pipe]): Pipe = {
+    val (head :: Nil) = sources
+    copy(head)(estimatedCardinality)
+  }
+
+  def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
+}
@@ -38,10 +38,10 @@ case class ProjectionNewPipe(source: Pipe, expressions: Map[String, Expression])
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState) =
     input.map {
       original =>
-        val m = MutableMaps.create(expressions.size)
+        val m = state.newRow(expressions.size)
         expressions.foreach {
           case (name, expression) =>
-            m.put(name, expression(original)(state))
+            m.update(name, expression(original)(state))
         }
 
         ExecutionContext(m)
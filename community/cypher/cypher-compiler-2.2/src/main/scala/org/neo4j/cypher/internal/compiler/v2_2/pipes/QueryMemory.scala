@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import java.io.File
+import java.util.UUID
+
+import org.neo4j.io.fs.FileSystemAbstraction
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * The heap that the eager pipes of one query may fill between them, and the temporary files they spill rows to once
+ * it is used up. A limit of zero or less means that the pipes may use as much heap as they like, and never spill.
+ *
+ * The file system is only asked for once the first row is spilled.
+ *
+ * Memory is made for one query, and closed with it, since it keeps what the pipes of the query have to free.
+ */
+class QueryMemory(val limit: Long, fileSystem: => FileSystemAbstraction, directory: File) {
+  private var reserved = 0L
+  private val prefix = "cypher-spill-" + UUID.randomUUID()
+  private val files = ArrayBuffer[File]()
+  private val resources = ArrayBuffer[AutoCloseable]()
+
+  def isLimited: Boolean = limit > 0
+
+  /**
+   * @return true if the bytes fit within the limit, and are now reserved, false otherwise.
+   */
+  def reserve(bytes: Long): Boolean =
+    if (!isLimited) {
+      true
+    } else if (reserved + bytes <= limit) {
+      reserved += bytes
+      true
+    } else {
+      false
+    }
+
+  def release(bytes: Long) {
+    if (isLimited)
+      reserved = math.max(0, reserved - bytes)
+  }
+
+  def reservedBytes: Long = reserved
+
+  /**
+   * @return a reservation for one pipe, so that it can give back all it reserved at once.
+   */
+  def newReservation(): QueryMemory.Reservation = new QueryMemory.Reservation(this)
+
+  def newSpillFile(): SpillFile = {
+    val file = new File(directory, s"$prefix-${files.size}")
+    files += file
+    new SpillFile(fileSystem, file)
+  }
+
+  def spillFileCount: Int = files.size
+
+  /**
+   * @return memory for one of the threads that run parts of the query at once, with an even share of what is left
+   *         of the limit, which must be closed when the thread is done.
+   */
+  def newWorkerMemory(workers: Int): QueryMemory =
+    new QueryMemory(if (isLimited) math.max(1, (limit - reserved) / workers) else 0, fileSystem, directory)
+
+  /**
+   * Has the resource closed when the query is, in case a pipe does not read its rows to the end to close it itself.
+   */
+  def closeWithQuery(resource: AutoCloseable) {
+    resources += resource
+  }
+
+  /**
+   * Closes the resources of the query, and deletes its spill files, whether they have been read or not.
+   */
+  def close() {
+    resources.foreach(_.close())
+    resources.clear()
+    if (files.nonEmpty) {
+      val fs = fileSystem
+      files.foreach(fs.deleteFile)
+      files.clear()
+    }
+    reserved = 0
+  }
+}
+
+object QueryMemory {
+  def unlimited = new QueryMemory(0, throw new IllegalStateException("Queries without a memory limit never spill"), null)
+
+  def temporaryDirectory = new File(System.getProperty("java.io.tmpdir"))
+
+  class Reservation(memory: QueryMemory) {
+    private var bytes = 0L
+
+    def reserve(more: Long): Boolean = {
+      val reserved = memory.reserve(more)
+      if (reserved)
+        bytes += more
+      reserved
+    }
+
+    def release() {
+      memory.release(bytes)
+      bytes = 0
+    }
+
+    /**
+     * @return the given rows, releasing the reservation once they have all been read.
+     */
+    def releasedAfter[T](rows: Iterator[T]): Iterator[T] = new Iterator[T] {
+      def hasNext = {
+        val more = rows.hasNext
+        if (!more)
+          release()
+        more
+      }
+
+      def next() = rows.next()
+    }
+  }
+}
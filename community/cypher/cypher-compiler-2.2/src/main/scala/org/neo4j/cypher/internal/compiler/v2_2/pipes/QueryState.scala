@@ -27,6 +27,8 @@ import org.neo4j.cypher.internal.compiler.v2_2.spi.QueryContext
 import org.neo4j.graphdb.GraphDatabaseService
 import org.neo4j.kernel.GraphDatabaseAPI
 
+import scala.collection.mutable.{Map => MutableMap}
+
 case class QueryState(db: GraphDatabaseService,
                       query: QueryContext,
                       resources: ExternalResource,
@@ -34,7 +36,9 @@ case class QueryState(db: GraphDatabaseService,
                       decorator: PipeDecorator,
                       timeReader: TimeReader = new TimeReader,
                       var initialContext: Option[ExecutionContext] = None,
-                      queryId: AnyRef = UUID.randomUUID().toString) {
+                      queryId: AnyRef = UUID.randomUUID().toString,
+                      slots: Option[SlotConfiguration] = None,
+                      memory: QueryMemory = QueryMemory.unlimited) {
 
   private var _pathValueBuilder: PathValueBuilder = null
 
@@ -57,6 +61,16 @@ case class QueryState(db: GraphDatabaseService,
     params.getOrElse(key, throw new ParameterNotFoundException("Expected a parameter named " + key))
 
   def getStatistics = query.getOptStatistics.getOrElse(QueryState.defaultStatistics)
+
+  /**
+   * @return a new, empty row, with slots for the identifiers of the query if the query was planned with them.
+   */
+  def newRow(sizeHint: Int = 16): MutableMap[String, Any] = slots match {
+    case Some(slotConfiguration) => slotConfiguration.newRow()
+    case None                    => MutableMaps.create(sizeHint)
+  }
+
+  def newExecutionContext(): ExecutionContext = ExecutionContext(newRow())
 }
 
 object QueryState {
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.LabelName
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.{NoChildren, PlanDescriptionImpl}
+import org.neo4j.cypher.internal.compiler.v2_2.symbols._
+import org.neo4j.kernel.api.ReadOperations
+
+case class RelationshipCountFromCountStorePipe(ident: String, startLabel: Option[LazyLabel], types: LazyTypes,
+                                               endLabel: Option[LazyLabel])
+                                              (val estimatedCardinality: Option[Long] = None)(implicit pipeMonitor: PipeMonitor)
+  extends Pipe
+  with RonjaPipe {
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
+    val count = (labelId(startLabel, state), labelId(endLabel, state)) match {
+      case (Some(startLabelId), Some(endLabelId)) =>
+        types.types(state.query) match {
+          case None => state.query.relationshipCountByCountStore(startLabelId, ReadOperations.ANY_RELATIONSHIP_TYPE, endLabelId)
+          case Some(typeIds) => typeIds.map(state.query.relationshipCountByCountStore(startLabelId, _, endLabelId)).sum
+        }
+      case _ =>
+        0L
+    }
+    val baseContext = state.initialContext.getOrElse(state.newExecutionContext())
+    Iterator(baseContext.newWith1(ident, count))
+  }
+
+  // The id of the label, ANY_LABEL when there is none, or nothing when no node has ever had the label
+  private def labelId(label: Option[LazyLabel], state: QueryState): Option[Int] = label match {
+    case Some(lazyLabel) => lazyLabel.id(state.query).map(_.id)
+    case None => Some(ReadOperations.ANY_LABEL)
+  }
+
+  def exists(predicate: Pipe => Boolean): Boolean = predicate(this)
+
+  def planDescription = new PlanDescriptionImpl(this, "RelationshipCountFromCountStore", NoChildren,
+    (startLabel ++ endLabel).map(l => LabelName(l.name)).toSeq, identifiers)
+
+  def symbols: SymbolTable = new SymbolTable(Map(ident -> CTInteger))
+
+  override def monitor = pipeMonitor
+
+  def dup(sources: List[Pipe]): Pipe = {
+    require(sources.isEmpty)
+    this
+  }
+
+  def sources: Seq[Pipe] = Seq.empty
+
+  override def localEffects = Effects.READS_RELATIONSHIPS
+
+  def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+/**
+ * The slots of the rows of a query, one for each identifier the query knows of when it is planned. Rows using the
+ * same configuration hold their values in arrays, at the same offset for the same identifier, so that copying and
+ * extending a row copies an array instead of rehashing a map.
+ *
+ * Rows are still accessed by identifier name, so every access looks the offset up. The names are kept in an open
+ * addressing table of their own, probed by the cached hash of the name and compared by reference before equality,
+ * since the names pipes use are mostly the same instances the plan was given.
+ */
+final class SlotConfiguration(val names: IndexedSeq[String]) {
+  private val mask = {
+    var capacity = 4
+    while (capacity < names.size * 2) {
+      capacity <<= 1
+    }
+    capacity - 1
+  }
+  private val keys = new Array[String](mask + 1)
+  private val offsets = new Array[Int](mask + 1)
+  names.zipWithIndex.foreach {
+    case (name, offset) =>
+      var index = name.hashCode & mask
+      while (keys(index) != null) {
+        index = (index + 1) & mask
+      }
+      keys(index) = name
+      offsets(index) = offset
+  }
+
+  def size = names.size
+
+  /**
+   * @return the slot of the identifier, or -1 if it has none.
+   */
+  def offset(name: String): Int = {
+    var index = name.hashCode & mask
+    while (true) {
+      val key = keys(index)
+      if (key == null) {
+        return -1
+      }
+      if ((key eq name) || key.equals(name)) {
+        return offsets(index)
+      }
+      index = (index + 1) & mask
+    }
+    -1
+  }
+
+  def newRow(): SlottedMap = SlottedMap(this)
+
+  override def toString = names.mkString("SlotConfiguration(", ", ", ")")
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import scala.collection.mutable
+
+/**
+ * A row which holds the values of the identifiers of its slot configuration in an array. Identifiers without a slot,
+ * such as those introduced while evaluating nested expressions, are kept in an ordinary map on the side, so that the
+ * row behaves exactly like the map based rows.
+ */
+final class SlottedMap private(val slots: SlotConfiguration,
+                               values: Array[AnyRef],
+                               private var overflow: mutable.Map[String, Any]) extends mutable.Map[String, Any] {
+
+  import SlottedMap.Unset
+
+  def get(key: String): Option[Any] = {
+    val offset = slots.offset(key)
+    if (offset >= 0) {
+      val value = values(offset)
+      if (value eq Unset) None else Some(value)
+    } else if (overflow == null) {
+      None
+    } else {
+      overflow.get(key)
+    }
+  }
+
+  override def apply(key: String): Any = {
+    val offset = slots.offset(key)
+    if (offset >= 0) {
+      val value = values(offset)
+      if (value eq Unset) default(key) else value
+    } else if (overflow == null) {
+      default(key)
+    } else {
+      overflow(key)
+    }
+  }
+
+  override def contains(key: String): Boolean = {
+    val offset = slots.offset(key)
+    if (offset >= 0) !(values(offset) eq Unset) else overflow != null && overflow.contains(key)
+  }
+
+  override def update(key: String, value: Any) {
+    val offset = slots.offset(key)
+    if (offset >= 0) {
+      values(offset) = value.asInstanceOf[AnyRef]
+    } else {
+      if (overflow == null) {
+        overflow = MutableMaps.create(4)
+      }
+      overflow.update(key, value)
+    }
+  }
+
+  def +=(kv: (String, Any)) = {
+    update(kv._1, kv._2)
+    this
+  }
+
+  def -=(key: String) = {
+    val offset = slots.offset(key)
+    if (offset >= 0) {
+      values(offset) = Unset
+    } else if (overflow != null) {
+      overflow -= key
+    }
+    this
+  }
+
+  def iterator: Iterator[(String, Any)] = {
+    val slotted = slots.names.iterator.zip(values.iterator).filterNot(_._2 eq Unset)
+    if (overflow == null) slotted else slotted ++ overflow.iterator
+  }
+
+  override def foreach[U](f: ((String, Any)) => U) {
+    var offset = 0
+    while (offset < values.length) {
+      val value = values(offset)
+      if (!(value eq Unset)) {
+        f((slots.names(offset), value))
+      }
+      offset += 1
+    }
+    if (overflow != null) {
+      overflow.foreach(f)
+    }
+  }
+
+  override def size: Int = {
+    var size = if (overflow == null) 0 else overflow.size
+    var offset = 0
+    while (offset < values.length) {
+      if (!(values(offset) eq Unset)) {
+        size += 1
+      }
+      offset += 1
+    }
+    size
+  }
+
+  override def empty: SlottedMap = SlottedMap(slots)
+
+  override def clone(): SlottedMap =
+    new SlottedMap(slots, values.clone(), if (overflow == null) null else overflow.clone())
+}
+
+object SlottedMap {
+  // Tells a slot which is not set apart from one set to null, like optional matches do
+  private val Unset = new AnyRef
+
+  def apply(slots: SlotConfiguration): SlottedMap = {
+    val values = new Array[AnyRef](slots.size)
+    java.util.Arrays.fill(values, Unset)
+    new SlottedMap(slots, values, null)
+  }
+}
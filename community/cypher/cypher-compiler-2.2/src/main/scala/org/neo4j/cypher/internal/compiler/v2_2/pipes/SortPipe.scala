@@ -23,6 +23,9 @@ import org.neo4j.cypher.internal.compiler.v2_2.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.KeyNames
 import org.neo4j.cypher.internal.compiler.v2_2.{Comparer, ExecutionContext}
 
+import scala.collection.mutable
+import scala.collection.mutable.ArrayBuffer
+
 trait SortDescription {
   def id: String
 }
@@ -32,9 +35,59 @@ case class Descending(id:String) extends SortDescription
 case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
                    (val estimatedCardinality: Option[Long] = None)(implicit monitor: PipeMonitor)
   extends PipeWithSource(source, monitor) with Comparer with RonjaPipe {
-  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
-    input.toList.
-      sortWith((a, b) => compareBy(a, b, orderBy)(state)).iterator
+  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
+    val lessThan = (a: ExecutionContext, b: ExecutionContext) => compareBy(a, b, orderBy)(state)
+
+    // Rows that do not fit in memory are sorted in runs, which are spilled and then merged
+    val memory = state.memory.newReservation()
+    val rows = ArrayBuffer[ExecutionContext]()
+    val runs = ArrayBuffer[SpillFile]()
+    input.foreach { row =>
+      if (!memory.reserve(MemoryEstimates.row(row)) && rows.size >= SortPipe.MinRunSize) {
+        if (runs.size == SortPipe.MaxRuns) {
+          val merged = state.memory.newSpillFile()
+          merge(runs.map(_.rows(state)), lessThan).foreach(merged.write)
+          runs.clear()
+          runs += merged
+        }
+        val run = state.memory.newSpillFile()
+        rows.sortWith(lessThan).foreach(run.write)
+        runs += run
+        rows.clear()
+        memory.release()
+        memory.reserve(MemoryEstimates.row(row))
+      }
+      rows += row
+    }
+
+    val sorted = rows.sortWith(lessThan).iterator
+    memory.releasedAfter(if (runs.isEmpty) sorted else merge(runs.map(_.rows(state)) :+ sorted, lessThan))
+  }
+
+  private def merge(runs: IndexedSeq[Iterator[ExecutionContext]],
+                    lessThan: (ExecutionContext, ExecutionContext) => Boolean): Iterator[ExecutionContext] = {
+    // The queue takes the greatest first, so the least row is the greatest here, and the earliest run on equal rows
+    val ordering = new Ordering[(ExecutionContext, Int)] {
+      def compare(a: (ExecutionContext, Int), b: (ExecutionContext, Int)) =
+        if (lessThan(a._1, b._1)) 1
+        else if (lessThan(b._1, a._1)) -1
+        else b._2 compare a._2
+    }
+    val heads = mutable.PriorityQueue[(ExecutionContext, Int)]()(ordering)
+    for (i <- runs.indices if runs(i).hasNext)
+      heads.enqueue(runs(i).next() -> i)
+
+    new Iterator[ExecutionContext] {
+      def hasNext = heads.nonEmpty
+
+      def next() = {
+        val (row, i) = heads.dequeue()
+        if (runs(i).hasNext)
+          heads.enqueue(runs(i).next() -> i)
+        row
+      }
+    }
+  }
 
   def planDescription = source.planDescription.andThen(this, "Sort", identifiers, KeyNames(orderBy.map(_.id)))
 
@@ -63,3 +116,11 @@ case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
 
   def withEstimatedCardinality(estimated: Long) = copy()(Some(estimated))
 }
+
+object SortPipe {
+  // Rows are not spilled in runs shorter than this, to keep the number of spill files down
+  private val MinRunSize = 1024
+
+  // Runs are merged into one once there are this many of them, so that no more files than this are read at once
+  private val MaxRuns = 64
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import java.io._
+import java.lang.reflect.{Array => JavaArray}
+import java.nio.charset.StandardCharsets.UTF_8
+
+import org.neo4j.cypher.internal.PathImpl
+import org.neo4j.cypher.internal.compiler.v2_2.{CypherTypeException, ExecutionContext, InternalException}
+import org.neo4j.graphdb.{Node, Path, PropertyContainer, Relationship}
+import org.neo4j.io.fs.FileSystemAbstraction
+
+import scala.collection.JavaConverters._
+
+/**
+ * Rows written to a temporary file, to be read back once, in the order they were written. Nodes and relationships
+ * are written as their ids, and read back as proxies of those ids, without being looked up, so that entities deleted
+ * since they were read stay in the rows like they would in memory. Java maps and lists are read back as Java maps and
+ * lists, and Scala collections as Scala collections.
+ */
+class SpillFile(fileSystem: FileSystemAbstraction, file: File) {
+
+  import SpillFile._
+
+  private var out: DataOutputStream = null
+  private var rowCount = 0L
+
+  def write(row: ExecutionContext) {
+    try {
+      if (out == null)
+        out = new DataOutputStream(new BufferedOutputStream(fileSystem.openAsOutputStream(file, false), BufferSize))
+      out.writeInt(row.size)
+      row.foreach {
+        case (key, value) =>
+          writeString(out, key)
+          writeValue(out, value)
+      }
+    } catch {
+      case e: IOException => throw new InternalException(s"Failed to spill rows to $file", e)
+    }
+    rowCount += 1
+  }
+
+  def size: Long = rowCount
+
+  def isEmpty: Boolean = rowCount == 0
+
+  /**
+   * Ends the writing, and reads the rows back. The file is deleted once the last row has been read.
+   */
+  def rows(state: QueryState): Iterator[ExecutionContext] = {
+    try {
+      if (out != null) {
+        out.close()
+        out = null
+      }
+      if (rowCount == 0)
+        return Iterator.empty
+
+      val in = new DataInputStream(new BufferedInputStream(fileSystem.openAsInputStream(file), BufferSize))
+      new Iterator[ExecutionContext] {
+        private var remaining = rowCount
+
+        def hasNext = remaining > 0
+
+        def next() = {
+          if (!hasNext)
+            Iterator.empty.next()
+
+          val row = state.newExecutionContext()
+          try {
+            var columns = in.readInt()
+            while (columns > 0) {
+              row += readString(in) -> readValue(in, state)
+              columns -= 1
+            }
+            remaining -= 1
+            if (remaining == 0) {
+              in.close()
+              fileSystem.deleteFile(file)
+            }
+          } catch {
+            case e: IOException => throw new InternalException(s"Failed to read spilled rows from $file", e)
+          }
+          row
+        }
+      }
+    } catch {
+      case e: IOException => throw new InternalException(s"Failed to read spilled rows from $file", e)
+    }
+  }
+}
+
+object SpillFile {
+  private val BufferSize = 64 * 1024
+
+  private val NullValue = 0
+  private val TrueValue = 1
+  private val FalseValue = 2
+  private val LongValue = 3
+  private val IntValue = 4
+  private val ShortValue = 5
+  private val ByteValue = 6
+  private val DoubleValue = 7
+  private val FloatValue = 8
+  private val CharValue = 9
+  private val StringValue = 10
+  private val NodeValue = 11
+  private val RelationshipValue = 12
+  private val PathValue = 13
+  private val ListValue = 14
+  private val MapValue = 15
+  private val ArrayValue = 16
+  private val JavaListValue = 17
+  private val JavaMapValue = 18
+
+  // The element types of the arrays that properties can hold, by the index they are written as
+  private val ArrayTypes: IndexedSeq[Class[_]] = IndexedSeq(
+    java.lang.Long.TYPE, Integer.TYPE, java.lang.Short.TYPE, java.lang.Byte.TYPE, java.lang.Double.TYPE,
+    java.lang.Float.TYPE, java.lang.Boolean.TYPE, Character.TYPE, classOf[String], classOf[AnyRef])
+
+  private def writeString(out: DataOutputStream, string: String) {
+    val bytes = string.getBytes(UTF_8)
+    out.writeInt(bytes.length)
+    out.write(bytes)
+  }
+
+  private def readString(in: DataInputStream): String = {
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    new String(bytes, UTF_8)
+  }
+
+  private def writeValue(out: DataOutputStream, value: Any): Unit = value match {
+    case null => out.writeByte(NullValue)
+    case b: Boolean => out.writeByte(if (b) TrueValue else FalseValue)
+    case l: Long => out.writeByte(LongValue); out.writeLong(l)
+    case i: Int => out.writeByte(IntValue); out.writeInt(i)
+    case s: Short => out.writeByte(ShortValue); out.writeShort(s)
+    case b: Byte => out.writeByte(ByteValue); out.writeByte(b)
+    case d: Double => out.writeByte(DoubleValue); out.writeDouble(d)
+    case f: Float => out.writeByte(FloatValue); out.writeFloat(f)
+    case c: Char => out.writeByte(CharValue); out.writeChar(c)
+    case s: String => out.writeByte(StringValue); writeString(out, s)
+    case n: Node => out.writeByte(NodeValue); out.writeLong(n.getId)
+    case r: Relationship => out.writeByte(RelationshipValue); out.writeLong(r.getId)
+    case p: Path =>
+      out.writeByte(PathValue)
+      out.writeInt(p.length() * 2 + 1)
+      p.iterator().asScala.foreach(writeValue(out, _))
+    case m: collection.Map[_, _] => writeMap(out, MapValue, m.iterator)
+    case m: java.util.Map[_, _] => writeMap(out, JavaMapValue, m.asScala.iterator)
+    case a: Array[_] =>
+      out.writeByte(ArrayValue)
+      out.writeByte(ArrayTypes.indexOf(a.getClass.getComponentType) match {
+        case -1 => ArrayTypes.size - 1
+        case index => index
+      })
+      out.writeInt(a.length)
+      a.foreach(writeValue(out, _))
+    case t: Traversable[_] => writeList(out, ListValue, t.toSeq)
+    case i: java.lang.Iterable[_] => writeList(out, JavaListValue, i.asScala.toSeq)
+    case _ => throw new CypherTypeException(s"Rows with values of type ${value.getClass.getName} can not be spilled to disk")
+  }
+
+  private def writeMap(out: DataOutputStream, tag: Int, entries: Iterator[(Any, Any)]) {
+    val seq = entries.toIndexedSeq
+    out.writeByte(tag)
+    out.writeInt(seq.size)
+    seq.foreach {
+      case (key, value) =>
+        writeString(out, key.toString)
+        writeValue(out, value)
+    }
+  }
+
+  private def writeList(out: DataOutputStream, tag: Int, values: Seq[Any]) {
+    out.writeByte(tag)
+    out.writeInt(values.size)
+    values.foreach(writeValue(out, _))
+  }
+
+  private def readValue(in: DataInputStream, state: QueryState): Any = in.readByte().toInt match {
+    case NullValue => null
+    case TrueValue => true
+    case FalseValue => false
+    case LongValue => in.readLong()
+    case IntValue => in.readInt()
+    case ShortValue => in.readShort()
+    case ByteValue => in.readByte()
+    case DoubleValue => in.readDouble()
+    case FloatValue => in.readFloat()
+    case CharValue => in.readChar()
+    case StringValue => readString(in)
+    case NodeValue => state.query.nodeOps.proxyById(in.readLong())
+    case RelationshipValue => state.query.relationshipOps.proxyById(in.readLong())
+    case PathValue =>
+      val entities = Seq.fill(in.readInt())(readValue(in, state).asInstanceOf[PropertyContainer])
+      new PathImpl(entities: _*)
+    case ListValue => List.fill(in.readInt())(readValue(in, state))
+    case MapValue => Seq.fill(in.readInt())(readString(in) -> readValue(in, state)).toMap
+    case JavaListValue =>
+      val size = in.readInt()
+      val list = new java.util.ArrayList[Any](size)
+      for (i <- 0 until size)
+        list.add(readValue(in, state))
+      list
+    case JavaMapValue =>
+      val size = in.readInt()
+      val map = new java.util.LinkedHashMap[String, Any]()
+      for (i <- 0 until size)
+        map.put(readString(in), readValue(in, state))
+      map
+    case ArrayValue =>
+      val elementType = ArrayTypes(in.readByte())
+      val array = JavaArray.newInstance(elementType, in.readInt())
+      for (i <- 0 until JavaArray.getLength(array))
+        JavaArray.set(array, i, readValue(in, state).asInstanceOf[AnyRef])
+      array
+    case tag => throw new InternalException(s"Unknown type of spilled value: $tag")
+  }
+}
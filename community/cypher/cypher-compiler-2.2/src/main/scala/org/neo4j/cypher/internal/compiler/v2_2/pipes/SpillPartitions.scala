@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+
+import scala.util.hashing.MurmurHash3
+
+/**
+ * Rows spread over spill files by a hash of their keys, so that a pipe that has run out of memory can go on to
+ * process the rows of each file on its own. Rows with equal keys end up in the same file. Each level of partitioning
+ * hashes differently, so that the rows of one file are spread over all the files of the next level.
+ */
+class SpillPartitions(memory: QueryMemory, depth: Int) {
+
+  import SpillPartitions._
+
+  private val files = new Array[SpillFile](Count)
+
+  def write(hash: Int, row: ExecutionContext) {
+    val index = indexOf(hash)
+    if (files(index) == null)
+      files(index) = memory.newSpillFile()
+    files(index).write(row)
+  }
+
+  /**
+   * @return true if any row with the given hash has been written.
+   */
+  def contains(hash: Int): Boolean = files(indexOf(hash)) != null
+
+  def partition(index: Int): Option[SpillFile] = Option(files(index))
+
+  def partitions: Seq[SpillFile] = files.filter(_ != null)
+
+  private def indexOf(hash: Int) = (MurmurHash3.finalizeHash(MurmurHash3.mix(depth, hash), depth) & Int.MaxValue) % Count
+}
+
+object SpillPartitions {
+  val Count = 16
+
+  /**
+   * Partitions deeper than this are processed in memory regardless of the limit, since their keys are likely too
+   * few to be spread any further.
+   */
+  val MaxDepth = 4
+}
@@ -19,6 +19,8 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.planner
 
+import java.util.concurrent.ForkJoinPool
+
 import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
 import org.neo4j.cypher.internal.compiler.v2_2.ast.conditions.containsNamedPathOnlyForShortestPath
@@ -45,10 +47,13 @@ case class Planner(monitors: Monitors,
                    queryGraphSolver: QueryGraphSolver = new CompositeQueryGraphSolver(
                      new GreedyQueryGraphSolver(expandsOrJoins),
                      new GreedyQueryGraphSolver(expandsOnly)
-                   )) extends PipeBuilder {
+                   ),
+                   slottedRows: Boolean = false,
+                   compiledRuntime: Boolean = false,
+                   parallelWorkers: Option[ForkJoinPool] = None) extends PipeBuilder {
 
-  val executionPlanBuilder: PipeExecutionPlanBuilder =
-    maybeExecutionPlanBuilder.getOrElse(new PipeExecutionPlanBuilder(clock, monitors))
+  val executionPlanBuilder: PipeExecutionPlanBuilder = maybeExecutionPlanBuilder.getOrElse(
+    new PipeExecutionPlanBuilder(clock, monitors, slottedRows, compiledRuntime, parallelWorkers))
 
   def producePlan(inputQuery: PreparedQuery, planContext: PlanContext): PipeInfo = {
     Planner.rewriteStatement(inputQuery.statement, inputQuery.scopeTree, inputQuery.semanticTable) match {
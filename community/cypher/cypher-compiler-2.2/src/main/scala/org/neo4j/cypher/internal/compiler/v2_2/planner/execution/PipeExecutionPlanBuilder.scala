@@ -19,6 +19,9 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.planner.execution
 
+import java.util.concurrent.ForkJoinPool
+
+import org.neo4j.cypher.internal.compiler.v2_2.Foldable._
 import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.ast.convert.commands.ExpressionConverters._
 import org.neo4j.cypher.internal.compiler.v2_2.ast.convert.commands.OtherConverters._
@@ -26,6 +29,7 @@ import org.neo4j.cypher.internal.compiler.v2_2.ast.convert.commands.PatternConve
 import org.neo4j.cypher.internal.compiler.v2_2.ast.convert.commands.StatementConverters
 import org.neo4j.cypher.internal.compiler.v2_2.ast.rewriters.projectNamedPaths
 import org.neo4j.cypher.internal.compiler.v2_2.ast.{Expression, Identifier, NodeStartItem, RelTypeName}
+import org.neo4j.cypher.internal.compiler.v2_2.codegen.CodeGenerator
 import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.{AggregationExpression, Expression => CommandExpression}
 import org.neo4j.cypher.internal.compiler.v2_2.commands.{EntityProducerFactory, True, Predicate => CommandPredicate}
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.builders.prepare.KeyTokenResolver
@@ -34,7 +38,7 @@ import org.neo4j.cypher.internal.compiler.v2_2.pipes.{LazyTypes, _}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.Metrics
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.Metrics.QueryGraphCardinalityInput
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
-import org.neo4j.cypher.internal.compiler.v2_2.planner.{CantHandleQueryException, SemanticTable}
+import org.neo4j.cypher.internal.compiler.v2_2.planner.{CantHandleQueryException, QueryGraph, QueryProjection, SemanticTable}
 import org.neo4j.cypher.internal.compiler.v2_2.spi.{InstrumentedGraphStatistics, PlanContext}
 import org.neo4j.cypher.internal.compiler.v2_2.symbols.SymbolTable
 import org.neo4j.cypher.internal.helpers.Eagerly
@@ -43,15 +47,30 @@ import org.neo4j.helpers.Clock
 
 case class PipeExecutionBuilderContext(cardinality: Metrics.CardinalityModel, semanticTable: SemanticTable)
 
-class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
+/**
+ * @param slottedRows whether the rows of the built pipes should hold the identifiers of the plan in fixed slots of an
+ * array, rather than in a map.
+ * @param compiledRuntime whether to run plans that the [[CodeGenerator]] supports through a class generated for them,
+ * rather than through pipes.
+ * @param parallelWorkers the threads to run the parts of plans that [[parallelize]] finds on, if any.
+ */
+class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors, slottedRows: Boolean = false,
+                               compiledRuntime: Boolean = false, parallelWorkers: Option[ForkJoinPool] = None) {
 
   val entityProducerFactory = new EntityProducerFactory
   val resolver = new KeyTokenResolver
+  val codeGenerator = new CodeGenerator
 
   def build(plan: LogicalPlan)(implicit context: PipeExecutionBuilderContext, planContext: PlanContext): PipeInfo = {
     implicit val table: SemanticTable = context.semanticTable
     val updating = false
 
+    // Profiling can tell how many rows the operators that solve a query graph on their own produced, unless a LIMIT
+    // stops reading from them before they are done
+    val solvedGraphs = Map.newBuilder[Pipe, QueryGraph]
+    val topLevelInput = QueryGraphCardinalityInput.empty
+    val fullyConsumed = !plan.exists { case _: Limit => true }
+
     def buildPipe(plan: LogicalPlan, input: QueryGraphCardinalityInput): Pipe = {
       implicit val monitor = monitors.newMonitor[PipeMonitor]()
       implicit val c = context.cardinality
@@ -75,6 +94,15 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
         case NodeByLabelScan(IdName(id), label, _) =>
           NodeByLabelScanPipe(id, label)()
 
+        case NodeCountFromCountStore(IdName(id), label, _) =>
+          NodeCountFromCountStorePipe(id, label)()
+
+        case RelationshipCountFromCountStore(IdName(id), startLabel, types, endLabel, _) =>
+          RelationshipCountFromCountStorePipe(id, startLabel, LazyTypes(types), endLabel)()
+
+        case NodeByLabelIntersectionScan(IdName(id), labels, _) =>
+          NodeByLabelIntersectionScanPipe(id, labels)()
+
         case NodeByIdSeek(IdName(id), nodeIdExpr, _) =>
           NodeByIdSeekPipe(id, nodeIdExpr.asEntityByIdRhs)()
 
@@ -90,6 +118,12 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
         case NodeIndexUniqueSeek(IdName(id), label, propertyKey, valueExpr, _) =>
           NodeIndexSeekPipe(id, label, propertyKey, valueExpr.map(buildExpression), unique = true)()
 
+        case NodeCompositeIndexSeek(IdName(id), label, propertyKeys, valueExprs, _) =>
+          NodeCompositeIndexSeekPipe(id, label, propertyKeys, valueExprs.map(buildExpression))()
+
+        case NodeIndexSeekByRange(IdName(id), label, propertyKey, range, _) =>
+          NodeIndexSeekByRangePipe(id, label, propertyKey, range.map(buildExpression))()
+
         case Selection(predicates, left) =>
           FilterPipe(buildPipe(left, input), predicates.map(buildPredicate).reduce(_ ++ _))()
 
@@ -121,8 +155,10 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
               result
             }
           }
+          val filteringStep = if (predicates.isEmpty) None else Some(predicate)
 
-          VarLengthExpandPipe(buildPipe(left, input), fromName, relName, toName, dir, projectedDir, LazyTypes(types), min, max, predicate)()
+          PrimitiveVarLengthExpandPipe(buildPipe(left, input), fromName, relName, toName, dir, projectedDir,
+            LazyTypes(types), min, max, expansionMode == ExpandInto, filteringStep)()
 
         case NodeHashJoin(nodes, left, right) =>
           NodeHashJoinPipe(nodes.map(_.name), buildPipe(left, input), buildPipe(right, input))()
@@ -208,7 +244,11 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
       }
 
       val cardinality = context.cardinality(plan, input)
-      result.withEstimatedCardinality(math.round(cardinality.amount))
+      val pipe = result.withEstimatedCardinality(math.round(cardinality.amount))
+      if (fullyConsumed && (input eq topLevelInput) && plan.solved.tail.isEmpty &&
+          plan.solved.horizon == QueryProjection.empty && plan.solved.graph.argumentIds.isEmpty)
+        solvedGraphs += pipe -> plan.solved.graph
+      pipe
     }
 
     object buildPipeExpressions extends Rewriter {
@@ -236,7 +276,23 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
       rewrittenExpr.asCommandPredicate.rewrite(resolver.resolveExpressions(_, planContext)).asInstanceOf[CommandPredicate]
     }
 
-    val topLevelPipe = buildPipe(plan, QueryGraphCardinalityInput.empty)
+    val interpretedPipe = buildPipe(plan, topLevelInput)
+
+    val topLevelPipe = if (compiledRuntime) {
+      implicit val monitor = monitors.newMonitor[PipeMonitor]()
+      val estimatedCardinality = interpretedPipe match {
+        case p: RonjaPipe => p.estimatedCardinality
+        case _ => None
+      }
+      codeGenerator.generate(plan, interpretedPipe, estimatedCardinality, buildExpression).getOrElse(interpretedPipe)
+    } else {
+      interpretedPipe
+    }
+
+    val runnablePipe = parallelWorkers match {
+      case Some(workers) if topLevelPipe eq interpretedPipe => parallelize(topLevelPipe, workers)
+      case _ => topLevelPipe
+    }
 
     val fingerprint = planContext.statistics match {
       case igs: InstrumentedGraphStatistics =>
@@ -245,6 +301,8 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
         None
     }
 
-    PipeInfo(topLevelPipe, updating, None, fingerprint, Cost)
+    val slots = if (slottedRows) Some(slotAllocation(plan)) else None
+
+    PipeInfo(runnablePipe, updating, None, fingerprint, Cost, slots, solvedGraphs.result())
   }
 }
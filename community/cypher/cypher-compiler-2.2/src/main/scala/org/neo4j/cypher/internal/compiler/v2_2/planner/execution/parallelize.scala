@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.execution
+
+import java.util.concurrent.ForkJoinPool
+
+import org.neo4j.cypher.internal.compiler.v2_2.pipes._
+
+/**
+ * Puts a [[ParallelPipe]] below every aggregation, distinct, sort and limit that reads its input from a scan or index
+ * seek through pipes that work on one row at a time, so that those pipes run on the workers. The pipes that it is
+ * put below merge the rows of the workers, which they may do in any order.
+ */
+object parallelize {
+  def apply(pipe: Pipe, workers: ForkJoinPool): Pipe = pipe match {
+    case _: EagerAggregationPipe | _: DistinctPipe | _: SortPipe | _: TopPipe | _: LimitPipe
+      if isParallelizable(pipe.sources.head) =>
+      implicit val monitor = pipe.monitor
+      pipe.dup(List(ParallelPipe(pipe.sources.head, workers)(estimatedCardinality(pipe.sources.head))))
+
+    case _ =>
+      val sources = pipe.sources.map(apply(_, workers))
+      if (sources.corresponds(pipe.sources)(_ eq _)) pipe else pipe.dup(sources.toList)
+  }
+
+  // At least one pipe has to sit on the leaf for there to be any work to share
+  private def isParallelizable(pipe: Pipe): Boolean = isPerRow(pipe) && isReadFromLeaf(pipe.sources.head)
+
+  private def isReadFromLeaf(pipe: Pipe): Boolean = isLeaf(pipe) || (isPerRow(pipe) && isReadFromLeaf(pipe.sources.head))
+
+  private def isPerRow(pipe: Pipe) = pipe match {
+    case _: FilterPipe | _: ProjectionNewPipe | _: ExpandAllPipe | _: ExpandIntoPipe | _: OptionalExpandAllPipe |
+         _: OptionalExpandIntoPipe | _: VarLengthExpandPipe | _: PrimitiveVarLengthExpandPipe | _: UnwindPipe |
+         _: ProjectEndpointsPipe => true
+    case _ => false
+  }
+
+  private def isLeaf(pipe: Pipe) = pipe match {
+    case _: AllNodesScanPipe | _: NodeByLabelScanPipe | _: NodeByLabelIntersectionScanPipe | _: NodeIndexSeekPipe |
+         _: NodeIndexSeekByRangePipe | _: NodeCompositeIndexSeekPipe => true
+    case _ => false
+  }
+
+  private def estimatedCardinality(pipe: Pipe) = pipe match {
+    case p: RonjaPipe => p.estimatedCardinality
+    case _ => None
+  }
+}
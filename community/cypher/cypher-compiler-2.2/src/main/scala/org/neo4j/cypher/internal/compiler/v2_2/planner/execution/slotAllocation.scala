@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.execution
+
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.SlotConfiguration
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.LogicalPlan
+
+import scala.collection.mutable
+
+/**
+ * Gives every identifier a logical plan makes available a slot of its own, in the order the identifiers are
+ * introduced from the leaves up.
+ */
+object slotAllocation {
+  def apply(plan: LogicalPlan): SlotConfiguration = {
+    val names = mutable.LinkedHashSet[String]()
+
+    def allocate(plan: LogicalPlan) {
+      plan.lhs.foreach(allocate)
+      plan.rhs.foreach(allocate)
+      names ++= plan.availableSymbols.toSeq.map(_.name).sorted
+    }
+
+    allocate(plan)
+    new SlotConfiguration(names.toIndexedSeq)
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical
+
+import org.neo4j.cypher.internal.LRUCache
+import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
+
+/**
+ * Learns from profiled queries how far off the cardinality estimates of the query graphs their operators solved were,
+ * and corrects later estimates of the same query graphs by as much.
+ *
+ * @param replanningThreshold how many times too high or too low an estimate must have been for the plan that used it
+ *                            to be planned again
+ */
+class CardinalityFeedback(capacity: Int = 1000, replanningThreshold: Double = 10.0) {
+
+  private val corrections = new LRUCache[QueryGraph, Multiplier](capacity)
+
+  def correct(graph: QueryGraph, estimate: Cardinality): Cardinality =
+    corrections.get(graph).fold(estimate)(estimate * _)
+
+  /**
+   * The estimate of the query graph before [[correct]] applied what has been recorded so far.
+   */
+  def uncorrected(graph: QueryGraph, estimate: Cardinality): Cardinality =
+    corrections.get(graph).fold(estimate)(correction => Cardinality(estimate.amount / correction.coefficient))
+
+  /**
+   * Records how many rows an operator produced for the query graph it solved. The correction is taken against the
+   * estimate as it was before any correction, and replaces the one recorded before rather than compounding with it.
+   *
+   * @param estimated the estimate the operator was planned with
+   * @param uncorrected the estimate of the query graph before it was corrected
+   * @return whether the estimate the operator was planned with was off by more than the replanning threshold.
+   */
+  def record(graph: QueryGraph, estimated: Long, uncorrected: Cardinality, actual: Long): Boolean = {
+    corrections.put(graph, Multiplier((actual + 1.0) / (uncorrected.amount + 1.0)))
+    val error = (actual + 1.0) / (estimated + 1.0)
+    error > replanningThreshold || error * replanningThreshold < 1.0
+  }
+}
@@ -44,6 +44,9 @@ object PlanningStrategyConfiguration {
       // MATCH n WHERE n.prop = {val} RETURN n
       indexSeekLeafPlanner,
 
+      // MATCH n WHERE n.prop1 = {val1} AND n.prop2 = {val2} RETURN n
+      compositeIndexSeekLeafPlanner,
+
       // MATCH (n:Person) RETURN n
       labelScanLeafPlanner,
 
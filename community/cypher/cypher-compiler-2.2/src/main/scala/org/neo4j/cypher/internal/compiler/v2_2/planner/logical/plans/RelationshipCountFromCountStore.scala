@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans
+
+import org.neo4j.cypher.internal.compiler.v2_2.ast.RelTypeName
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.LazyLabel
+import org.neo4j.cypher.internal.compiler.v2_2.planner.PlannerQuery
+
+/**
+ * Produces a single row holding the number of relationships of the types, or of any type, from nodes with the start
+ * label to nodes with the end label, as kept by the counts store. At most one of the labels may be given.
+ */
+case class RelationshipCountFromCountStore(idName: IdName, startLabel: Option[LazyLabel], types: Seq[RelTypeName],
+                                           endLabel: Option[LazyLabel], argumentIds: Set[IdName])
+                                          (val solved: PlannerQuery) extends LogicalLeafPlan {
+  require(startLabel.isEmpty || endLabel.isEmpty, "The counts store only counts relationships by one label")
+
+  def availableSymbols = argumentIds + idName
+}
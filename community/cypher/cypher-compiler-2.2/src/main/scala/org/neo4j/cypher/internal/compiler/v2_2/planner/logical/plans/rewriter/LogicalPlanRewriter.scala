@@ -28,6 +28,7 @@ case object LogicalPlanRewriter extends Rewriter {
     unnestApply,
     simplifyEquality,
     unnestOptional,
+    countFromCountsStore,
     predicateRemovalThroughJoins
   ))
 
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.compiler.v2_2._
+import org.neo4j.cypher.internal.compiler.v2_2.ast._
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.LazyLabel
+import org.neo4j.cypher.internal.compiler.v2_2.planner.PlannerQuery
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
+import org.neo4j.graphdb.Direction
+
+/**
+ * Answers counts of all nodes, of the nodes with a label, and of the relationships of a single pattern like
+ * (:A)-[:T]->() from the counts store, rather than by finding and counting the rows. The counts store takes the
+ * changes of the transaction into account, so the answers are the same.
+ */
+case object countFromCountsStore extends Rewriter {
+
+  def apply(input: AnyRef) = bottomUp(instance).apply(input)
+
+  private val instance: Rewriter = Rewriter.lift {
+    case aggregation@Aggregation(source, grouping, aggregations)
+      if grouping.isEmpty && aggregations.size == 1 && countsRows(aggregations.head._2, source.availableSymbols) =>
+      val countName = IdName(aggregations.head._1)
+      countPlan(source, countName, aggregation.solved).getOrElse(aggregation)
+  }
+
+  // Whether the expression is the number of rows, which it is for identifiers that are never null in a match
+  private def countsRows(expression: Expression, symbols: Set[IdName]) = expression match {
+    case _: CountStar => true
+    case f@FunctionInvocation(_, false, IndexedSeq(Identifier(name))) => f.function == Some(functions.Count) && symbols(IdName(name))
+    case _ => false
+  }
+
+  private def countPlan(source: LogicalPlan, countName: IdName, solved: PlannerQuery): Option[LogicalPlan] = source match {
+    case AllNodesScan(_, arguments) if arguments.isEmpty =>
+      Some(NodeCountFromCountStore(countName, None, Set.empty)(solved))
+
+    case NodeByLabelScan(_, label, arguments) if arguments.isEmpty =>
+      Some(NodeCountFromCountStore(countName, Some(label), Set.empty)(solved))
+
+    case Expand(fromPlan, from, dir, types, to, _, ExpandAll) if dir != Direction.BOTH && from != to =>
+      labelOf(fromPlan, from).map {
+        fromLabel => relationshipCount(countName, dir, fromLabel, types, None, solved)
+      }
+
+    case Selection(Seq(HasLabels(Identifier(toName), Seq(toLabel))), Expand(AllNodesScan(from, arguments), _, dir, types, to, _, ExpandAll))
+      if arguments.isEmpty && dir != Direction.BOTH && from != to && to == IdName(toName) =>
+      Some(relationshipCount(countName, dir, None, types, Some(LazyLabel(toLabel.name)), solved))
+
+    case _ =>
+      None
+  }
+
+  // The label of the node that an expand starts from, if any, when it is found by a scan
+  private def labelOf(plan: LogicalPlan, node: IdName): Option[Option[LazyLabel]] = plan match {
+    case AllNodesScan(`node`, arguments) if arguments.isEmpty => Some(None)
+    case NodeByLabelScan(`node`, label, arguments) if arguments.isEmpty => Some(Some(label))
+    case _ => None
+  }
+
+  private def relationshipCount(countName: IdName, dir: Direction, fromLabel: Option[LazyLabel],
+                                types: Seq[RelTypeName], toLabel: Option[LazyLabel], solved: PlannerQuery) =
+    if (dir == Direction.OUTGOING)
+      RelationshipCountFromCountStore(countName, fromLabel, types, toLabel, Set.empty)(solved)
+    else
+      RelationshipCountFromCountStore(countName, toLabel, types, fromLabel, Set.empty)(solved)
+}
@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
 
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.{ManyQueryExpression, QueryExpression}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{Bound, InequalitySeekRange, ManyQueryExpression, PrefixSeekRange, QueryExpression, SeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
@@ -34,7 +34,7 @@ abstract class IndexLeafPlanner extends LeafPlanner {
     val predicates: Seq[Expression] = qg.selections.flatPredicates
     val labelPredicateMap: Map[IdName, Set[HasLabels]] = qg.selections.labelPredicates
 
-    def producePlanFor(name: String, propertyKeyName: PropertyKeyName, propertyPredicate: Expression, queryExpression: QueryExpression[Expression]) = {
+    def indexesFor(name: String, propertyKeyName: PropertyKeyName) = {
       val idName = IdName(name)
       for (labelPredicate <- labelPredicateMap.getOrElse(idName, Set.empty);
            labelName <- labelPredicate.labels;
@@ -45,19 +45,69 @@ abstract class IndexLeafPlanner extends LeafPlanner {
         val hint = qg.hints.collectFirst {
           case hint @ UsingIndexHint(Identifier(`name`), `labelName`, Identifier(`propertyName`)) => hint
         }
+        (idName, labelPredicate, LabelToken(labelName, labelId), PropertyKeyToken(propertyKeyName, propertyKeyName.id.head), hint)
+      }
+    }
+
+    def producePlanFor(name: String, propertyKeyName: PropertyKeyName, propertyPredicate: Expression, queryExpression: QueryExpression[Expression]) =
+      for ((idName, labelPredicate, label, propertyKey, hint) <- indexesFor(name, propertyKeyName))
+      yield {
         val entryConstructor: (Seq[Expression]) => LogicalPlan =
-          constructPlan(idName, LabelToken(labelName, labelId), PropertyKeyToken(propertyKeyName, propertyKeyName.id.head),
-                        queryExpression, hint, qg.argumentIds)
+          constructPlan(idName, label, propertyKey, queryExpression, hint, qg.argumentIds)
         entryConstructor(Seq(propertyPredicate, labelPredicate))
       }
-    }
 
-    predicates.collect {
+    def produceRangePlanFor(name: String, propertyKeyName: PropertyKeyName, solvedPredicates: Seq[Expression],
+                            range: SeekRange[Expression], filter: Option[Expression] = None) =
+      for ((idName, labelPredicate, label, propertyKey, hint) <- indexesFor(name, propertyKeyName))
+      yield {
+        val seek = planNodeIndexSeekByRange(idName, label, propertyKey, range, solvedPredicates :+ labelPredicate, hint, qg.argumentIds)
+        filter.map(predicate => planSelection(Seq(predicate), seek)).getOrElse(seek)
+      }
+
+    val equalityPlans = predicates.collect {
       case inPredicate@In(Property(identifier@Identifier(name), propertyKeyName), ConstantExpression(valueExpr)) if !qg.argumentIds.contains(IdName(name)) =>
         producePlanFor(name, propertyKeyName, inPredicate, ManyQueryExpression(valueExpr))
     }.flatten
+
+    val inequalityPlans = predicates.flatMap(rangeBound).filterNot {
+      case (name, _, _, _) => qg.argumentIds.contains(IdName(name))
+    }.groupBy {
+      case (name, propertyKeyName, _, _) => (name, propertyKeyName)
+    }.flatMap {
+      case ((name, propertyKeyName), bounds) =>
+        val lower = bounds.collectFirst { case (_, _, predicate, Left(bound)) => (predicate, bound) }
+        val upper = bounds.collectFirst { case (_, _, predicate, Right(bound)) => (predicate, bound) }
+        val range = InequalitySeekRange(lower.map(_._2), upper.map(_._2))
+        produceRangePlanFor(name, propertyKeyName, (lower ++ upper).map(_._1).toSeq, range)
+    }
+
+    val prefixPlans = predicates.collect {
+      case regex@RegexMatch(Property(Identifier(name), propertyKeyName), pattern@StringLiteral(LiteralPrefixPattern(prefix)))
+        if !qg.argumentIds.contains(IdName(name)) =>
+        produceRangePlanFor(name, propertyKeyName, Seq.empty, PrefixSeekRange(StringLiteral(prefix)(pattern.position)), Some(regex))
+    }.flatten
+
+    equalityPlans ++ inequalityPlans ++ prefixPlans
   }
 
+  /**
+   * The bound an inequality between a property and a constant puts on the property, to the left if it is a lower
+   * bound and to the right if it is an upper bound.
+   */
+  private def rangeBound(predicate: Expression): Option[(String, PropertyKeyName, Expression, Either[Bound[Expression], Bound[Expression]])] =
+    predicate match {
+      case LessThan(Property(Identifier(name), key), ConstantExpression(value)) => Some((name, key, predicate, Right(Bound(value, inclusive = false))))
+      case LessThanOrEqual(Property(Identifier(name), key), ConstantExpression(value)) => Some((name, key, predicate, Right(Bound(value, inclusive = true))))
+      case GreaterThan(Property(Identifier(name), key), ConstantExpression(value)) => Some((name, key, predicate, Left(Bound(value, inclusive = false))))
+      case GreaterThanOrEqual(Property(Identifier(name), key), ConstantExpression(value)) => Some((name, key, predicate, Left(Bound(value, inclusive = true))))
+      case LessThan(ConstantExpression(value), Property(Identifier(name), key)) => Some((name, key, predicate, Left(Bound(value, inclusive = false))))
+      case LessThanOrEqual(ConstantExpression(value), Property(Identifier(name), key)) => Some((name, key, predicate, Left(Bound(value, inclusive = true))))
+      case GreaterThan(ConstantExpression(value), Property(Identifier(name), key)) => Some((name, key, predicate, Right(Bound(value, inclusive = false))))
+      case GreaterThanOrEqual(ConstantExpression(value), Property(Identifier(name), key)) => Some((name, key, predicate, Right(Bound(value, inclusive = true))))
+      case _ => None
+    }
+
   protected def constructPlan(idName: IdName,
                               label: LabelToken,
                               propertyKey: PropertyKeyToken,
@@ -110,3 +160,15 @@ object legacyHintLeafPlanner extends LeafPlanner {
     }
   }
 }
+
+/**
+ * Matches regular expressions which only match strings starting with a literal prefix, like 'Tob.*'.
+ */
+object LiteralPrefixPattern {
+  private val prefixPattern = """([^\\.\[\]{}()*+?^$|]+)\.\*""".r
+
+  def unapply(pattern: String): Option[String] = pattern match {
+    case prefixPattern(prefix) => Some(prefix)
+    case _ => None
+  }
+}
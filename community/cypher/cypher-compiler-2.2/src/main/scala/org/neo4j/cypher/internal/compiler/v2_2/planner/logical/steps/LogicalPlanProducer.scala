@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
 
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.QueryExpression
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{QueryExpression, SeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.pipes.{LazyLabel, SortDescription}
 import org.neo4j.cypher.internal.compiler.v2_2.planner._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.{Limit => LimitPlan, Skip => SkipPlan, _}
@@ -145,6 +145,16 @@ object LogicalPlanProducer {
       )
     )
 
+  def planNodeByLabelIntersectionScan(idName: IdName, labels: Seq[LazyLabel], solvedPredicates: Seq[Expression],
+                                      argumentIds: Set[IdName]) =
+    NodeByLabelIntersectionScan(idName, labels, argumentIds)(
+      PlannerQuery(graph = QueryGraph.empty
+        .addPatternNodes(idName)
+        .addPredicates(solvedPredicates: _*)
+        .addArgumentIds(argumentIds.toSeq)
+      )
+    )
+
   def planNodeIndexSeek(idName: IdName,
                         label: ast.LabelToken,
                         propertyKey: ast.PropertyKeyToken,
@@ -161,6 +171,36 @@ object LogicalPlanProducer {
     )
   }
 
+  def planNodeCompositeIndexSeek(idName: IdName,
+                                 label: ast.LabelToken,
+                                 propertyKeys: Seq[ast.PropertyKeyToken],
+                                 valueExprs: Seq[Expression],
+                                 solvedPredicates: Seq[Expression],
+                                 argumentIds: Set[IdName]) =
+    NodeCompositeIndexSeek(idName, label, propertyKeys, valueExprs, argumentIds)(
+      PlannerQuery(graph = QueryGraph.empty
+        .addPatternNodes(idName)
+        .addPredicates(solvedPredicates: _*)
+        .addArgumentIds(argumentIds.toSeq)
+      )
+    )
+
+  def planNodeIndexSeekByRange(idName: IdName,
+                               label: ast.LabelToken,
+                               propertyKey: ast.PropertyKeyToken,
+                               range: SeekRange[Expression],
+                               solvedPredicates: Seq[Expression] = Seq.empty,
+                               solvedHint: Option[UsingIndexHint] = None,
+                               argumentIds: Set[IdName]) =
+    NodeIndexSeekByRange(idName, label, propertyKey, range, argumentIds)(
+      PlannerQuery(graph = QueryGraph.empty
+        .addPatternNodes(idName)
+        .addPredicates(solvedPredicates: _*)
+        .addHints(solvedHint)
+        .addArgumentIds(argumentIds.toSeq)
+      )
+    )
+
   def planLegacyHintSeek(idName: IdName, hint: LegacyIndexHint, argumentIds: Set[IdName]) = {
     LegacyIndexSeek(idName, hint, argumentIds)(
       PlannerQuery(graph = QueryGraph.empty
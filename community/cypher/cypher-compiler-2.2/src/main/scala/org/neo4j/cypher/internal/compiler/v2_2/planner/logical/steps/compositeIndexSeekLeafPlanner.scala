@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
+
+import org.neo4j.cypher.internal.compiler.v2_2.ast._
+import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps.LogicalPlanProducer._
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.{LeafPlanner, LogicalPlanningContext}
+
+/**
+ * Plans a seek in a composite index for every node that has an equality predicate on each of the property keys of
+ * the index, like n.tenantId = {tenant} AND n.externalId = {id} for an index on :Label(tenantId, externalId).
+ */
+object compositeIndexSeekLeafPlanner extends LeafPlanner {
+  def apply(qg: QueryGraph)(implicit context: LogicalPlanningContext) = {
+    implicit val semanticTable = context.semanticTable
+
+    // The equality predicates have been rewritten to single value IN predicates by now
+    val equalities: Map[(String, Int), (Expression, PropertyKeyToken, Expression)] = qg.selections.flatPredicates.collect {
+      case predicate@In(Property(Identifier(name), propertyKeyName), Collection(Seq(ConstantExpression(value))))
+        if propertyKeyName.id.nonEmpty =>
+        val propertyKeyId = propertyKeyName.id.get
+        (name, propertyKeyId.id) -> (predicate, PropertyKeyToken(propertyKeyName, propertyKeyId), value)
+    }.toMap
+
+    for (idName <- qg.patternNodes.toSeq if !qg.argumentIds.contains(idName);
+         labelPredicate <- qg.selections.labelPredicates.getOrElse(idName, Set.empty).toSeq;
+         labelName <- labelPredicate.labels;
+         labelId <- labelName.id.toSeq;
+         descriptor <- context.planContext.getCompositeIndexRules(labelName.name);
+         matches = descriptor.getPropertyKeyIds.toSeq.flatMap(key => equalities.get((idName.name, key)))
+         if matches.size == descriptor.getPropertyKeyIds.length)
+    yield planNodeCompositeIndexSeek(idName, LabelToken(labelName, labelId), matches.map(_._2), matches.map(_._3),
+      matches.map(_._1) :+ labelPredicate, qg.argumentIds)
+  }
+}
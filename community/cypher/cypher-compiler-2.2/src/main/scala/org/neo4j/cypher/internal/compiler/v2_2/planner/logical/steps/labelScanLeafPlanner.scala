@@ -19,7 +19,7 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
 
-import org.neo4j.cypher.internal.compiler.v2_2.ast.{Identifier, UsingScanHint}
+import org.neo4j.cypher.internal.compiler.v2_2.ast.{HasLabels, Identifier, UsingScanHint}
 import org.neo4j.cypher.internal.compiler.v2_2.pipes.LazyLabel
 import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps.LogicalPlanProducer._
@@ -30,7 +30,7 @@ object labelScanLeafPlanner extends LeafPlanner {
     implicit val semanticTable = context.semanticTable
     val labelPredicateMap = qg.selections.labelPredicates
 
-    for (idName <- qg.patternNodes.toSeq if !qg.argumentIds.contains(idName);
+    val labelScans = for (idName <- qg.patternNodes.toSeq if !qg.argumentIds.contains(idName);
       labelPredicate <- labelPredicateMap.getOrElse(idName, Set.empty);
       labelName <- labelPredicate.labels) yield {
       val identName = idName.name
@@ -40,5 +40,18 @@ object labelScanLeafPlanner extends LeafPlanner {
 
       planNodeByLabelScan(idName, LazyLabel(labelName), Seq(labelPredicate), hint, qg.argumentIds)
     }
+
+    // Nodes with several labels can also be found by intersecting the scans of all their labels at once
+    val labelIntersectionScans = qg.patternNodes.toSeq.filterNot(qg.argumentIds.contains).flatMap { idName =>
+      val labelPredicates = labelPredicateMap.getOrElse(idName, Set.empty[HasLabels]).toSeq.sortBy(_.labels.head.name)
+      if (labelPredicates.size > 1) {
+        val labels = labelPredicates.flatMap(_.labels).map(labelName => LazyLabel(labelName))
+        Some(planNodeByLabelIntersectionScan(idName, labels, labelPredicates, qg.argumentIds))
+      } else {
+        None
+      }
+    }
+
+    labelScans ++ labelIntersectionScans
   }
 }
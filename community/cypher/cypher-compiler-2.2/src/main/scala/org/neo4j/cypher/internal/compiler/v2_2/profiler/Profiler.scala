@@ -23,7 +23,7 @@ import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescr
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments
 import org.neo4j.cypher.internal.compiler.v2_2._
 import org.neo4j.cypher.internal.compiler.v2_2.pipes.{SingleRowPipe, Pipe, PipeDecorator, QueryState}
-import org.neo4j.cypher.internal.compiler.v2_2.spi.{DelegatingOperations, DelegatingQueryContext, Operations, QueryContext}
+import org.neo4j.cypher.internal.compiler.v2_2.spi.{DelegatingOperations, DelegatingQueryContext, Operations, QueryContext, RelationshipCursor}
 import org.neo4j.graphdb.{Node, PropertyContainer, Relationship}
 
 import scala.collection.mutable
@@ -102,6 +102,24 @@ final class ProfilingQueryContext(val inner: QueryContext, val p: Pipe, startVal
     }
   }
 
+  override protected def manyDbHits(value: RelationshipCursor): RelationshipCursor = new RelationshipCursor {
+    def expandFrom(node: Long) {
+      increment()
+      value.expandFrom(node)
+    }
+
+    def next(): Boolean = {
+      val hasNext = value.next()
+      if (hasNext)
+        increment()
+      hasNext
+    }
+
+    def relationshipId: Long = value.relationshipId
+    def otherNodeId: Long = value.otherNodeId
+    def close() { value.close() }
+  }
+
   class ProfilerOperations[T <: PropertyContainer](inner: Operations[T]) extends DelegatingOperations[T](inner) {
     override protected def singleDbHit[A](value: A): A = self.singleDbHit(value)
     override protected def manyDbHits[A](value: Iterator[A]): Iterator[A] = self.manyDbHits(value)
@@ -19,6 +19,7 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.spi
 
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.graphdb.{Relationship, PropertyContainer, Direction, Node}
 import org.neo4j.kernel.api.index.IndexDescriptor
 
@@ -26,6 +27,7 @@ class DelegatingQueryContext(inner: QueryContext) extends QueryContext {
 
   protected def singleDbHit[A](value: A): A = value
   protected def manyDbHits[A](value: Iterator[A]): Iterator[A] = value
+  protected def manyDbHits(value: RelationshipCursor): RelationshipCursor = value
 
   def isOpen: Boolean = inner.isOpen
 
@@ -54,6 +56,12 @@ class DelegatingQueryContext(inner: QueryContext) extends QueryContext {
 
   def getRelationshipsForIds(node: Node, dir: Direction, types: Option[Seq[Int]]): Iterator[Relationship] = manyDbHits(inner.getRelationshipsForIds(node, dir, types))
 
+  def relationshipCursor(dir: Direction, types: Option[Seq[Int]]): RelationshipCursor = manyDbHits(inner.relationshipCursor(dir, types))
+
+  def nodeGetDegree(node: Long, dir: Direction): Int = singleDbHit(inner.nodeGetDegree(node, dir))
+
+  def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int = singleDbHit(inner.nodeGetDegree(node, dir, relTypeId))
+
   def nodeOps = inner.nodeOps
 
   def relationshipOps = inner.relationshipOps
@@ -69,14 +77,23 @@ class DelegatingQueryContext(inner: QueryContext) extends QueryContext {
 
   def getOrCreatePropertyKeyId(propertyKey: String) = singleDbHit(inner.getOrCreatePropertyKeyId(propertyKey))
 
-  def addIndexRule(labelId: Int, propertyKeyId: Int) = singleDbHit(inner.addIndexRule(labelId, propertyKeyId))
+  def addIndexRule(labelId: Int, propertyKeyIds: Int*) = singleDbHit(inner.addIndexRule(labelId, propertyKeyIds: _*))
 
-  def dropIndexRule(labelId: Int, propertyKeyId: Int) = singleDbHit(inner.dropIndexRule(labelId, propertyKeyId))
+  def dropIndexRule(labelId: Int, propertyKeyIds: Int*) = singleDbHit(inner.dropIndexRule(labelId, propertyKeyIds: _*))
 
   def exactIndexSearch(index: IndexDescriptor, value: Any): Iterator[Node] = manyDbHits(inner.exactIndexSearch(index, value))
 
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] = manyDbHits(inner.indexSeekByRange(index, range))
+
   def getNodesByLabel(id: Int): Iterator[Node] = manyDbHits(inner.getNodesByLabel(id))
 
+  def getNodesByLabels(ids: Seq[Int]): Iterator[Node] = manyDbHits(inner.getNodesByLabels(ids))
+
+  def nodeCountByCountStore(labelId: Int): Long = singleDbHit(inner.nodeCountByCountStore(labelId))
+
+  def relationshipCountByCountStore(startLabelId: Int, typeId: Int, endLabelId: Int): Long =
+    singleDbHit(inner.relationshipCountByCountStore(startLabelId, typeId, endLabelId))
+
   def upgrade(context: QueryContext): LockingQueryContext = inner.upgrade(context)
 
   def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V = singleDbHit(inner.getOrCreateFromSchemaState(key, creator))
@@ -87,6 +104,10 @@ class DelegatingQueryContext(inner: QueryContext) extends QueryContext {
 
   def withAnyOpenQueryContext[T](work: (QueryContext) => T): T = inner.withAnyOpenQueryContext(work)
 
+  def supportsParallelReads: Boolean = inner.supportsParallelReads
+
+  def withReadTransaction[T](work: (QueryContext) => T): T = inner.withReadTransaction(work)
+
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node] = singleDbHit(inner.exactUniqueIndexSearch(index, value))
 
   override def commitAndRestartTx() {
@@ -118,6 +139,8 @@ class DelegatingOperations[T <: PropertyContainer](protected val inner: Operatio
 
   def getById(id: Long): T = singleDbHit(inner.getById(id))
 
+  def proxyById(id: Long): T = inner.proxyById(id)
+
   def getProperty(obj: Long, propertyKeyId: Int): Any = singleDbHit(inner.getProperty(obj, propertyKeyId))
 
   def hasProperty(obj: Long, propertyKeyId: Int): Boolean = singleDbHit(inner.hasProperty(obj, propertyKeyId))
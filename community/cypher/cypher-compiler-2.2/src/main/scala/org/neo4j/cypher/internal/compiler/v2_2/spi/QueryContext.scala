@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.spi
 
 import org.neo4j.cypher.internal.compiler.v2_2.InternalQueryStatistics
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.graphdb._
 import org.neo4j.kernel.api.constraints.UniquenessConstraint
 import org.neo4j.kernel.api.index.IndexDescriptor
@@ -47,6 +48,16 @@ trait QueryContext extends TokenContext {
 
   def getRelationshipsForIds(node: Node, dir: Direction, types: Option[Seq[Int]]): Iterator[Relationship]
 
+  /**
+   * A cursor over the relationships of the types, or of all types given None, in the direction from the nodes it is
+   * asked to expand from.
+   */
+  def relationshipCursor(dir: Direction, types: Option[Seq[Int]]): RelationshipCursor
+
+  def nodeGetDegree(node: Long, dir: Direction): Int
+
+  def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int
+
   def getOrCreateLabelId(labelName: String): Int
 
   def getLabelsForNode(node: Long): Iterator[Int]
@@ -59,9 +70,10 @@ trait QueryContext extends TokenContext {
 
   def getOrCreatePropertyKeyId(propertyKey: String): Int
 
-  def addIndexRule(labelId: Int, propertyKeyId: Int): IdempotentResult[IndexDescriptor]
+  // Indexes on more than one property key are composite indexes
+  def addIndexRule(labelId: Int, propertyKeyIds: Int*): IdempotentResult[IndexDescriptor]
 
-  def dropIndexRule(labelId: Int, propertyKeyId: Int)
+  def dropIndexRule(labelId: Int, propertyKeyIds: Int*)
 
   def isOpen: Boolean
 
@@ -73,8 +85,32 @@ trait QueryContext extends TokenContext {
 
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node]
 
+  /**
+   * Seeks the nodes with values within the range, which only contains numbers or only strings if any node is to be
+   * found. Values of other types never match.
+   */
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node]
+
   def getNodesByLabel(id: Int): Iterator[Node]
 
+  /**
+   * Finds the nodes which have all of the given labels.
+   */
+  def getNodesByLabels(ids: Seq[Int]): Iterator[Node]
+
+  /**
+   * The number of nodes with the label, or of all nodes given ReadOperations.ANY_LABEL, including the changes of
+   * the transaction.
+   */
+  def nodeCountByCountStore(labelId: Int): Long
+
+  /**
+   * The number of relationships of the type between nodes with the labels, any of which may be
+   * ReadOperations.ANY_LABEL or ReadOperations.ANY_RELATIONSHIP_TYPE, including the changes of the transaction. The
+   * counts store only knows of relationships where at most one of the nodes has a given label.
+   */
+  def relationshipCountByCountStore(startLabelId: Int, typeId: Int, endLabelId: Int): Long
+
   def upgradeToLockingQueryContext: LockingQueryContext = upgrade(this)
 
   def upgrade(context: QueryContext): LockingQueryContext
@@ -94,6 +130,17 @@ trait QueryContext extends TokenContext {
    */
   def withAnyOpenQueryContext[T](work: (QueryContext) => T): T
 
+  /**
+   * Whether other threads may read for this query, each in a transaction of its own, without missing anything that
+   * this transaction would see.
+   */
+  def supportsParallelReads: Boolean
+
+  /**
+   * Runs the work in a new read transaction bound to the calling thread, which is committed when the work is done.
+   */
+  def withReadTransaction[T](work: (QueryContext) => T): T
+
   def commitAndRestartTx()
 
   def relationshipStartNode(rel: Relationship): Node
@@ -120,6 +167,12 @@ trait Operations[T <: PropertyContainer] {
 
   def getById(id: Long): T
 
+  /**
+   * @return the entity of the id without looking it up, so also when it has been deleted, the way rows hold on to
+   *         entities that are deleted after they were read.
+   */
+  def proxyById(id: Long): T
+
   def indexGet(name: String, key: String, value: Any): Iterator[T]
 
   def indexQuery(name: String, query: Any): Iterator[T]
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.spi
+
+/**
+ * Reads the relationships of one node after the other as ids, without creating a Relationship or a Node for each.
+ */
+trait RelationshipCursor {
+  /**
+   * Places the cursor before the first relationship of the node, leaving any relationships of the previous node unread.
+   */
+  def expandFrom(node: Long)
+
+  /**
+   * Moves to the next relationship of the node, returning false when there are no more.
+   */
+  def next(): Boolean
+
+  def relationshipId: Long
+
+  /**
+   * The node at the other end of the current relationship, which is the node expanded from for a loop.
+   */
+  def otherNodeId: Long
+
+  def close()
+}
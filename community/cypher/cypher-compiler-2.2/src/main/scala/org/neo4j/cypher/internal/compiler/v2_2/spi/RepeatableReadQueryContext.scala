@@ -19,6 +19,7 @@
  */
 package org.neo4j.cypher.internal.compiler.v2_2.spi
 
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.graphdb.{PropertyContainer, Relationship, Direction, Node}
 import org.neo4j.kernel.api.index.IndexDescriptor
 
@@ -41,11 +42,26 @@ final class RepeatableReadQueryContext(inner: QueryContext, locker: Locker) exte
     inner.isLabelSetOnNode(label, node)
   }
 
+  override def nodeGetDegree(node: Long, dir: Direction): Int = {
+    lockNode(node)
+    inner.nodeGetDegree(node, dir)
+  }
+
+  override def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int = {
+    lockNode(node)
+    inner.nodeGetDegree(node, dir, relTypeId)
+  }
+
   override def exactIndexSearch(index: IndexDescriptor, value: Any): Iterator[Node] =
     lockAll(inner.exactIndexSearch(index, value))
 
+  override def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] =
+    lockAll(inner.indexSeekByRange(index, range))
+
   override def getNodesByLabel(id: Int): Iterator[Node] = lockAll(inner.getNodesByLabel(id))
 
+  override def getNodesByLabels(ids: Seq[Int]): Iterator[Node] = lockAll(inner.getNodesByLabels(ids))
+
   val nodeOpsValue = new RepeatableReadOperations[Node](inner.nodeOps)
   val relationshipOpsValue = new RepeatableReadOperations[Relationship](inner.relationshipOps)
 
@@ -53,6 +69,9 @@ final class RepeatableReadQueryContext(inner: QueryContext, locker: Locker) exte
 
   override def relationshipOps = relationshipOpsValue
 
+  // The locks are taken in this transaction, which reads on other threads would not be
+  override def supportsParallelReads = false
+
   def releaseLocks() {
     locker.releaseAllLocks()
   }
@@ -79,14 +79,14 @@ class UpdateCountingQueryContext(inner: QueryContext) extends DelegatingQueryCon
     removed
   }
 
-  override def addIndexRule(labelId: Int, propertyKeyId: Int) = {
-    val result = inner.addIndexRule(labelId, propertyKeyId)
+  override def addIndexRule(labelId: Int, propertyKeyIds: Int*) = {
+    val result = inner.addIndexRule(labelId, propertyKeyIds: _*)
     result.ifCreated { indexesAdded.increase() }
     result
   }
 
-  override def dropIndexRule(labelId: Int, propertyKeyId: Int) {
-    inner.dropIndexRule(labelId, propertyKeyId)
+  override def dropIndexRule(labelId: Int, propertyKeyIds: Int*) {
+    inner.dropIndexRule(labelId, propertyKeyIds: _*)
     indexesRemoved.increase()
   }
 
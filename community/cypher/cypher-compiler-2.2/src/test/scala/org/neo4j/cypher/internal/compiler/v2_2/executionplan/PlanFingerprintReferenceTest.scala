@@ -129,6 +129,21 @@ class PlanFingerprintReferenceTest extends CypherFunSuite {
     reference.isStale(->(23), stats) should be(false)
   }
 
+  test("should be stale once marked as misestimated even if life time has not expired") {
+    val snapshot = GraphStatisticsSnapshot(Map(NodesWithLabelCardinality(label(21)) -> 5.0))
+    val ttl = 1000l
+    val threshold = 0.0
+    val clock = new FakeClock
+    val stats = mock[GraphStatistics]
+    when(stats.nodesWithLabelCardinality(label(21))).thenReturn(5.0)
+    val fingerprint = PlanFingerprint(clock.currentTimeMillis(), 17, snapshot)
+
+    val reference = PlanFingerprintReference(clock, ttl, threshold, fingerprint)
+    reference.markMisestimated()
+
+    reference.isStale(->(17), stats) should be(true)
+  }
+
   implicit def liftToOption[T](item: T): Option[T] = Option(item)
   def ->[T](item: T): () => T = () => item
   def label(i: Int): LabelId = LabelId(i)
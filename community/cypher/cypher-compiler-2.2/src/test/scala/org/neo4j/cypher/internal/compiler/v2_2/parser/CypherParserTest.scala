@@ -2584,11 +2584,9 @@ class CypherParserTest extends CypherFunSuite {
   }
 
   test("create index on multiple properties") {
-    evaluating {
-      expectQuery(
-        "create index on :MyLabel(prop1, prop2)",
-        CreateIndex("MyLabel", Seq("prop1", "prop2")))
-    } should produce[SyntaxException]
+    expectQuery(
+      "create index on :MyLabel(prop1, prop2)",
+      CreateIndex("MyLabel", Seq("prop1", "prop2")))
   }
 
   test("match left with single label") {
@@ -2688,6 +2686,13 @@ class CypherParserTest extends CypherFunSuite {
     )
   }
 
+  test("remove index on multiple properties") {
+    expectQuery(
+      "drop index on :MyLabel(prop1, prop2)",
+      DropIndex("MyLabel", Seq("prop1", "prop2"))
+    )
+  }
+
   test("simple query with index hint") {
     expectQuery(
       "match (n:Person)-->() using index n:Person(name) where n.name = 'Andres' return n",
@@ -61,6 +61,20 @@ class DistinctPipeTest extends CypherFunSuite {
     result.toList should equal( List(Map("x" -> 1)))
   }
 
+  test("distinct_input_that_does_not_fit_in_memory") {
+    //GIVEN
+    val pipe = createDistinctPipe((0 until 2000).map(x => Map("x" -> x % 500)).toList)
+    val state = QueryStateHelper.withMemoryLimit(1000)
+
+    //WHEN
+    val result = pipe.createResults(state).toList
+
+    //THEN
+    result should contain theSameElementsAs (0 until 500).map(x => Map("x" -> x))
+    state.memory.spillFileCount should be > 0
+    state.memory.close()
+  }
+
   def createDistinctPipe(input: List[Map[String, Int]], expressions: Map[String, Expression] = Map("x" -> Identifier("x"))) = {
     val source = new FakePipe(input, "x" -> CTNumber)
     new DistinctPipe(source, expressions)()
@@ -23,7 +23,10 @@ import org.neo4j.cypher.internal.commons.CypherFunSuite
 import org.neo4j.cypher.internal.compiler.v2_2.SyntaxException
 import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions._
 import org.neo4j.cypher.internal.compiler.v2_2.commands.values.TokenType.PropertyKey
+import org.neo4j.cypher.internal.compiler.v2_2.spi.{Operations, QueryContext}
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
+import org.neo4j.graphdb.Node
+import org.mockito.Mockito._
 
 class EagerAggregationPipeTest extends CypherFunSuite {
 
@@ -102,6 +105,99 @@ class EagerAggregationPipeTest extends CypherFunSuite {
     getResults(aggregationPipe) should equal(List(Map("count(name)" -> 3)))
   }
 
+  test("should count rows per node") {
+    val node1 = newMockedNode(1)
+    val node2 = newMockedNode(2)
+    val query = mock[QueryContext]
+    val nodeOps = mock[Operations[Node]]
+    when(query.nodeOps).thenReturn(nodeOps)
+    when(nodeOps.proxyById(1)).thenReturn(node1)
+    when(nodeOps.proxyById(2)).thenReturn(node2)
+
+    val source = new FakePipe(List(
+      Map("n" -> node1, "age" -> 36),
+      Map("n" -> node2, "age" -> null),
+      Map("n" -> node1, "age" -> 31),
+      Map("n" -> null, "age" -> 31)), createSymbolTableFor("n"))
+
+    val aggregationPipe = new EagerAggregationPipe(source, Set("n"), Map("count(age)" -> Count(Identifier("age"))))()
+
+    aggregationPipe.createResults(QueryStateHelper.emptyWith(query = query)).map(_.m.toMap).toList should contain theSameElementsAs List(
+      Map("n" -> node1, "count(age)" -> 2),
+      Map("n" -> node2, "count(age)" -> 0),
+      Map("n" -> null, "count(age)" -> 1)
+    )
+  }
+
+  test("should read the counts of nodes one at a time") {
+    val nodes = (0 until 100).map(newMockedNode)
+    val query = mock[QueryContext]
+    val nodeOps = mock[Operations[Node]]
+    when(query.nodeOps).thenReturn(nodeOps)
+    nodes.zipWithIndex.foreach { case (node, id) => when(nodeOps.proxyById(id)).thenReturn(node) }
+
+    val source = new FakePipe(nodes.map(node => Map("n" -> node)), createSymbolTableFor("n"))
+    val aggregationPipe = new EagerAggregationPipe(source, Set("n"), Map("count(*)" -> CountStar()))()
+    val state = QueryStateHelper.emptyWith(query = query)
+
+    val first = aggregationPipe.createResults(state).next()
+
+    first("count(*)") should equal(1)
+    verify(nodeOps, times(1)).proxyById(org.mockito.Matchers.anyLong())
+    state.memory.close()
+  }
+
+  test("should not allocate node counters when counting per value") {
+    val source = new FakePipe(List(
+      Map("name" -> "Andres"),
+      Map("name" -> "Michael"),
+      Map("name" -> "Michael")), createSymbolTableFor("name"))
+    val aggregationPipe = new EagerAggregationPipe(source, Set("name"), Map("count(*)" -> CountStar()))()
+    val memory = spy(QueryMemory.unlimited)
+
+    aggregationPipe.createResults(QueryStateHelper.emptyWith(memory = memory)).map(_.m.toMap).toList should
+      contain theSameElementsAs List(
+      Map("name" -> "Andres", "count(*)" -> 1),
+      Map("name" -> "Michael", "count(*)" -> 2))
+    verify(memory, never()).closeWithQuery(org.mockito.Matchers.any(classOf[AutoCloseable]))
+  }
+
+  test("should aggregate per node") {
+    val node1 = newMockedNode(1)
+    val node2 = newMockedNode(2)
+    val source = new FakePipe(List(
+      Map("n" -> node1, "age" -> 36),
+      Map("n" -> node2, "age" -> 38),
+      Map("n" -> node1, "age" -> 31)), createSymbolTableFor("n"))
+
+    val grouping = Map("count(*)" -> CountStar(), "max(age)" -> Max(Identifier("age")))
+    val aggregationPipe = new EagerAggregationPipe(source, Set("n"), grouping)()
+
+    getResults(aggregationPipe) should contain theSameElementsAs List(
+      Map("n" -> node1, "count(*)" -> 2, "max(age)" -> 36),
+      Map("n" -> node2, "count(*)" -> 1, "max(age)" -> 38)
+    )
+  }
+
+  test("should aggregate groups that do not fit in memory") {
+    val source = new FakePipe((0 until 3000).map(x => Map("name" -> s"name${x % 300}", "age" -> x)), createSymbolTableFor("name"))
+    val grouping = Map("count(*)" -> CountStar(), "min(age)" -> Min(Identifier("age")))
+    val aggregationPipe = new EagerAggregationPipe(source, Set("name"), grouping)()
+    val state = QueryStateHelper.withMemoryLimit(2000)
+
+    val result = aggregationPipe.createResults(state).map(_.m.toMap).toList
+
+    result should contain theSameElementsAs (0 until 300).map(x => Map("name" -> s"name$x", "count(*)" -> 10, "min(age)" -> x))
+    state.memory.spillFileCount should be > 0
+    state.memory.close()
+  }
+
+  private def newMockedNode(id: Int) = {
+    val node = mock[Node]
+    when(node.getId).thenReturn(id)
+    node
+  }
+
   private def createSymbolTableFor(name: String) = name -> CTNode
 
   private def getResults(p: Pipe) = p.createResults(QueryStateHelper.empty).map(_.m.toMap).toList
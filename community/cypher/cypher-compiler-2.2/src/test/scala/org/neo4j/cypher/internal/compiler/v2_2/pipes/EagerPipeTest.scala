@@ -39,4 +39,16 @@ class EagerPipeTest extends CypherFunSuite {
     lazyIterator shouldBe empty
     resultIterator should not be empty
   }
+
+  test("should keep the order of rows that do not fit in memory") {
+    val src = new FakePipe((1 to 1000).map(x => Map("x" -> x)))
+    val eager = new EagerPipe(src)
+    val state = QueryStateHelper.withMemoryLimit(1000)
+
+    val result = eager.createResults(state).map(_("x")).toList
+
+    result should equal((1 to 1000).toList)
+    state.memory.spillFileCount should equal(1)
+    state.memory.close()
+  }
 }
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.LabelId
+import org.neo4j.cypher.internal.compiler.v2_2.ast.LabelName
+import org.neo4j.cypher.internal.compiler.v2_2.planner.SemanticTable
+import org.neo4j.cypher.internal.compiler.v2_2.spi.QueryContext
+import org.neo4j.graphdb.Node
+
+class NodeByLabelIntersectionScanPipeTest extends CypherFunSuite {
+
+  implicit val monitor = mock[PipeMonitor]
+  import org.mockito.Mockito.{never, verify, when}
+  import org.mockito.Matchers.any
+
+  test("should scan nodes with all labels") {
+    // given
+    val nodes = List(mock[Node], mock[Node])
+    val queryState = QueryStateHelper.emptyWith(
+      query = when(mock[QueryContext].getNodesByLabels(Seq(12, 13))).thenReturn(nodes.iterator).getMock[QueryContext]
+    )
+
+    implicit val table = new SemanticTable()
+    table.resolvedLabelIds.put("Foo", LabelId(12))
+    table.resolvedLabelIds.put("Bar", LabelId(13))
+
+    // when
+    val labels = Seq(LazyLabel(LabelName("Foo")(null)), LazyLabel(LabelName("Bar")(null)))
+    val result = NodeByLabelIntersectionScanPipe("a", labels)().createResults(queryState)
+
+    // then
+    result.map(_("a")).toList should equal(nodes)
+  }
+
+  test("should not scan when one of the labels does not exist") {
+    // given
+    val query = mock[QueryContext]
+    when(query.getOptLabelId("Bar")).thenReturn(None)
+    val queryState = QueryStateHelper.emptyWith(query = query)
+
+    implicit val table = new SemanticTable()
+    table.resolvedLabelIds.put("Foo", LabelId(12))
+
+    // when
+    val labels = Seq(LazyLabel(LabelName("Foo")(null)), LazyLabel(LabelName("Bar")(null)))
+    val result = NodeByLabelIntersectionScanPipe("a", labels)().createResults(queryState)
+
+    // then
+    result.toList should be(empty)
+    verify(query, never()).getNodesByLabels(any())
+  }
+}
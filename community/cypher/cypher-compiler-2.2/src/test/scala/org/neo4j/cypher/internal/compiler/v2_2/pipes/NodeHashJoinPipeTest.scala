@@ -22,6 +22,7 @@ package org.neo4j.cypher.internal.compiler.v2_2.pipes
 import org.mockito.Matchers._
 import org.neo4j.cypher.internal.commons.{TestableIterator, CypherFunSuite}
 import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v2_2.spi.{Operations, QueryContext}
 import org.neo4j.cypher.internal.compiler.v2_2.symbols._
 import org.neo4j.graphdb.Node
 
@@ -207,6 +208,33 @@ class NodeHashJoinPipeTest extends CypherFunSuite {
     lhsIterator.fetched should equal(0)
   }
 
+  test("should join rows that do not fit in memory") {
+    // given
+    val nodes = (0 until 200).map(newMockedNode)
+    val query = mock[QueryContext]
+    val nodeOps = mock[Operations[Node]]
+    when(query.nodeOps).thenReturn(nodeOps)
+    for (id <- nodes.indices)
+      when(nodeOps.proxyById(id)).thenReturn(nodes(id))
+    val queryState = QueryStateHelper.withMemoryLimit(2000, query)
+
+    val left = newMockedPipe(SymbolTable(Map("b" -> CTNode)))
+    when(left.createResults(queryState)).thenReturn(nodes.indices.iterator.map(id => row("b" -> nodes(id), "a" -> id)))
+
+    val right = newMockedPipe(SymbolTable(Map("b" -> CTNode)))
+    when(right.createResults(queryState)).thenReturn(
+      nodes.indices.iterator.filter(_ % 2 == 0).map(id => row("b" -> nodes(id), "c" -> id * 10)))
+
+    // when
+    val result = NodeHashJoinPipe(Set("b"), left, right)().createResults(queryState).toList
+
+    // then
+    result should contain theSameElementsAs nodes.indices.filter(_ % 2 == 0).map(id =>
+      Map("a" -> id, "b" -> nodes(id), "c" -> id * 10))
+    queryState.memory.spillFileCount should be > 0
+    queryState.memory.close()
+  }
+
   private def row(values: (String, Any)*) = ExecutionContext.from(values: _*)
 
   private def newMockedNode(id: Int) = {
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.{CypherTypeException, ExecutionContext}
+import org.neo4j.graphdb.Node
+import org.mockito.Mockito._
+
+class NodeJoinTableTest extends CypherFunSuite {
+
+  test("should find rows by all their join nodes") {
+    val node0 = newMockedNode(0)
+    val node1 = newMockedNode(1)
+    val node2 = newMockedNode(2)
+    val table = new NodeJoinTable(IndexedSeq("a", "b"))
+
+    table.add(row("a" -> node0, "b" -> node1, "c" -> 1)) should equal(true)
+    table.add(row("a" -> node0, "b" -> node2, "c" -> 2)) should equal(true)
+    table.add(row("a" -> node0, "b" -> node2, "c" -> 3)) should equal(true)
+    table.add(row("a" -> node1, "b" -> node2, "c" -> 4)) should equal(true)
+
+    table.probe(row("a" -> node0, "b" -> node2)).map(_("c")).toList should equal(List(2, 3))
+    table.probe(row("a" -> node1, "b" -> node2)).map(_("c")).toList should equal(List(4))
+    table.probe(row("a" -> node2, "b" -> node2)).toList shouldBe empty
+    table.probe(row("a" -> null, "b" -> node2)).toList shouldBe empty
+  }
+
+  test("should not add rows with a null join node") {
+    val table = new NodeJoinTable(IndexedSeq("a"))
+
+    table.add(row("a" -> null)) should equal(false)
+
+    table.isEmpty should equal(true)
+    table.estimatedHeapUsage should equal(0)
+  }
+
+  test("should keep the rows that were never matched") {
+    val node0 = newMockedNode(0)
+    val node1 = newMockedNode(1)
+    val table = new NodeJoinTable(IndexedSeq("a"))
+    table.add(row("a" -> node0, "c" -> 1))
+    table.add(row("a" -> node1, "c" -> 2))
+    table.add(row("a" -> node1, "c" -> 3))
+
+    table.probe(row("a" -> node0)).toList
+
+    table.unmatchedRows.map(_("c")).toList should equal(List(2, 3))
+    table.estimatedHeapUsage should be > 0L
+  }
+
+  test("should fail on join values that are not nodes") {
+    val table = new NodeJoinTable(IndexedSeq("a"))
+
+    intercept[CypherTypeException](table.add(row("a" -> 42)))
+  }
+
+  private def row(values: (String, Any)*) = ExecutionContext.from(values: _*)
+
+  private def newMockedNode(id: Int) = {
+    val node = mock[Node]
+    when(node.getId).thenReturn(id)
+    node
+  }
+}
@@ -21,11 +21,16 @@ package org.neo4j.cypher.internal.compiler.v2_2.pipes
 
 import org.neo4j.graphdb.GraphDatabaseService
 import org.neo4j.cypher.internal.compiler.v2_2.spi.QueryContext
+import org.neo4j.io.fs.DefaultFileSystemAbstraction
 
 object QueryStateHelper {
   def empty: QueryState = emptyWith()
 
   def emptyWith(db: GraphDatabaseService = null, query: QueryContext = null, resources: ExternalResource = null,
-                params: Map[String, Any] = Map.empty, decorator: PipeDecorator = NullPipeDecorator) =
-    QueryState(db = db, query = query, resources = resources, params = params, decorator = decorator)
+                params: Map[String, Any] = Map.empty, decorator: PipeDecorator = NullPipeDecorator,
+                memory: QueryMemory = QueryMemory.unlimited) =
+    QueryState(db = db, query = query, resources = resources, params = params, decorator = decorator, memory = memory)
+
+  def withMemoryLimit(limit: Long, query: QueryContext = null) =
+    emptyWith(query = query, memory = new QueryMemory(limit, new DefaultFileSystemAbstraction, QueryMemory.temporaryDirectory))
 }
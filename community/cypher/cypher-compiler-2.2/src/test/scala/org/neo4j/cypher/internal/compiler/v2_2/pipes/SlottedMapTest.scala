@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.ExecutionContext
+
+class SlottedMapTest extends CypherFunSuite {
+
+  val slots = new SlotConfiguration(IndexedSeq("a", "b"))
+
+  test("tells unset slots apart from slots set to null") {
+    val row = slots.newRow()
+    row("a") = null
+
+    row.get("a") should equal(Some(null))
+    row.get("b") should equal(None)
+    row.contains("a") should equal(true)
+    row.contains("b") should equal(false)
+    row.size should equal(1)
+  }
+
+  test("keeps identifiers without a slot on the side") {
+    val row = slots.newRow()
+    row += "a" -> 1
+    row += "x" -> 2
+
+    row.toMap should equal(Map("a" -> 1, "x" -> 2))
+    row -= "x"
+    row.toMap should equal(Map("a" -> 1))
+  }
+
+  test("copies of a row do not share values") {
+    val row = slots.newRow()
+    row += "a" -> 1
+    row += "x" -> 2
+
+    val copy = row.clone()
+    copy += "a" -> 3
+    copy += "x" -> 4
+
+    row.toMap should equal(Map("a" -> 1, "x" -> 2))
+    copy.toMap should equal(Map("a" -> 3, "x" -> 4))
+  }
+
+  test("finds the slots of many identifiers, and no slot for others") {
+    val names = (0 until 100).map("n" + _)
+    val manySlots = new SlotConfiguration(names)
+
+    names.map(name => manySlots.offset(new String(name))) should equal(0 until 100)
+    manySlots.offset("n100") should equal(-1)
+    manySlots.offset("") should equal(-1)
+  }
+
+  test("execution contexts extended from a slotted row stay slotted") {
+    val ctx = ExecutionContext(slots.newRow()).newWith1("a", 1).newWith2("b", 2, "x", 3)
+
+    ctx.m shouldBe a[SlottedMap]
+    ctx should equal(ExecutionContext.from("a" -> 1, "b" -> 2, "x" -> 3))
+  }
+}
@@ -90,4 +90,17 @@ class SortPipeTest extends CypherFunSuite with MockitoSugar {
       MutableMap("y" -> 2),
       MutableMap("y" -> null)), sortPipe.createResults(QueryStateHelper.empty).toList)
   }
+
+  test("should sort rows that do not fit in memory") {
+    val values = scala.util.Random.shuffle((1 to 5000).toList)
+    val source = new FakePipe(values.map(x => MutableMap[String, Any]("x" -> x)), "x" -> CTNumber)
+    val sortPipe = new SortPipe(source, List(Descending("x")))()
+    val state = QueryStateHelper.withMemoryLimit(10000)
+
+    val result = sortPipe.createResults(state).map(_("x")).toList
+
+    assertEquals((1 to 5000).reverse.toList, result)
+    assertTrue(state.memory.spillFileCount > 0)
+    state.memory.close()
+  }
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.mockito.Mockito._
+import org.neo4j.cypher.internal.PathImpl
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.spi.{Operations, QueryContext}
+import org.neo4j.cypher.internal.compiler.v2_2.{CypherTypeException, ExecutionContext}
+import org.neo4j.graphdb.{Node, NotFoundException, Relationship}
+
+class SpillFileTest extends CypherFunSuite {
+
+  test("should read back the rows that were written") {
+    val node = mock[Node]
+    when(node.getId).thenReturn(12L)
+    val other = mock[Node]
+    when(other.getId).thenReturn(13L)
+    val relationship = mock[Relationship]
+    when(relationship.getId).thenReturn(7L)
+    val state = stateWith(Map(12L -> node, 13L -> other), Map(7L -> relationship))
+    val path = new PathImpl(node, relationship, other)
+
+    val rows = Seq(
+      ExecutionContext.from("a" -> 1, "b" -> 2L, "c" -> 1.5, "d" -> "text", "e" -> null, "f" -> true),
+      ExecutionContext.from("n" -> node, "r" -> relationship, "p" -> path),
+      ExecutionContext.from("l" -> List(1, "two", List(3.0)), "m" -> Map("x" -> 'c', "y" -> Map("z" -> false))),
+      ExecutionContext.from("longs" -> Array(1L, 2L), "strings" -> Array("a", "b")),
+      ExecutionContext.empty
+    )
+
+    val file = state.memory.newSpillFile()
+    rows.foreach(file.write)
+    val result = file.rows(state).toList
+
+    result.map(_.m.toMap.mapValues {
+      case a: Array[_] => a.toList
+      case x => x
+    }) should equal(rows.map(_.m.toMap.mapValues {
+      case a: Array[_] => a.toList
+      case x => x
+    }))
+    result(3)("longs").getClass should equal(classOf[Array[Long]])
+    result(3)("strings").getClass should equal(classOf[Array[String]])
+    state.memory.close()
+  }
+
+  test("should read back entities that have been deleted since they were written") {
+    val node = mock[Node]
+    when(node.getId).thenReturn(12L)
+    val relationship = mock[Relationship]
+    when(relationship.getId).thenReturn(7L)
+    val state = stateWith(Map(12L -> node), Map(7L -> relationship))
+    when(state.query.nodeOps.getById(12L)).thenThrow(new NotFoundException("Node 12 not found"))
+    when(state.query.relationshipOps.getById(7L)).thenThrow(new NotFoundException("Relationship 7 not found"))
+
+    val file = state.memory.newSpillFile()
+    file.write(ExecutionContext.from("n" -> node, "r" -> relationship))
+
+    file.rows(state).toList should equal(List(ExecutionContext.from("n" -> node, "r" -> relationship)))
+    state.memory.close()
+  }
+
+  test("should read back java collections as java collections") {
+    val state = stateWith(Map.empty, Map.empty)
+    val list = new java.util.ArrayList[Any]()
+    list.add(1L)
+    list.add("two")
+    val map = new java.util.HashMap[String, Any]()
+    map.put("list", list)
+    map.put("scala", List(3))
+
+    val file = state.memory.newSpillFile()
+    file.write(ExecutionContext.from("m" -> map, "l" -> list))
+    val result = file.rows(state).next()
+
+    result("m") shouldBe a[java.util.Map[_, _]]
+    result("m") should equal(map)
+    result("l") shouldBe a[java.util.List[_]]
+    result("l") should equal(list)
+    result("m").asInstanceOf[java.util.Map[String, Any]].get("scala") should equal(List(3))
+    state.memory.close()
+  }
+
+  test("should not spill values that can not be read back") {
+    val state = stateWith(Map.empty, Map.empty)
+    val file = state.memory.newSpillFile()
+
+    intercept[CypherTypeException](file.write(ExecutionContext.from("x" -> new Object)))
+    state.memory.close()
+  }
+
+  test("should delete its spill files when closed") {
+    val state = stateWith(Map.empty, Map.empty)
+    state.memory.newSpillFile().write(ExecutionContext.from("x" -> 1))
+
+    state.memory.close()
+
+    state.memory.spillFileCount should equal(0)
+  }
+
+  private def stateWith(nodes: Map[Long, Node], relationships: Map[Long, Relationship]) = {
+    val query = mock[QueryContext]
+    val nodeOps = mock[Operations[Node]]
+    val relationshipOps = mock[Operations[Relationship]]
+    when(query.nodeOps).thenReturn(nodeOps)
+    when(query.relationshipOps).thenReturn(relationshipOps)
+    nodes.foreach { case (id, node) => when(nodeOps.proxyById(id)).thenReturn(node) }
+    relationships.foreach { case (id, relationship) => when(relationshipOps.proxyById(id)).thenReturn(relationship) }
+    QueryStateHelper.withMemoryLimit(1, query)
+  }
+}
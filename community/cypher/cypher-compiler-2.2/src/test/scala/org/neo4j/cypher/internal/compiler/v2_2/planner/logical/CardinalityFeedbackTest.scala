@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.IdName
+
+class CardinalityFeedbackTest extends CypherFunSuite {
+
+  val graph = QueryGraph(patternNodes = Set(IdName("a")))
+  val otherGraph = QueryGraph(patternNodes = Set(IdName("b")))
+
+  test("should not correct estimates of query graphs it has no feedback on") {
+    val feedback = new CardinalityFeedback()
+
+    feedback.correct(graph, Cardinality(42)) should equal(Cardinality(42))
+  }
+
+  test("should correct estimates by how far off they were") {
+    val feedback = new CardinalityFeedback()
+
+    feedback.record(graph, estimated = 9, uncorrected = Cardinality(9), actual = 99)
+
+    feedback.correct(graph, Cardinality(10)).amount should be(100.0 +- 0.0001)
+    feedback.correct(otherGraph, Cardinality(10)) should equal(Cardinality(10))
+  }
+
+  test("should tell the estimate before it was corrected") {
+    val feedback = new CardinalityFeedback()
+
+    feedback.record(graph, estimated = 9, uncorrected = Cardinality(9), actual = 99)
+
+    feedback.uncorrected(graph, feedback.correct(graph, Cardinality(10))).amount should be(10.0 +- 0.0001)
+    feedback.uncorrected(otherGraph, Cardinality(10)) should equal(Cardinality(10))
+  }
+
+  test("should not compound corrections of estimates that were already corrected") {
+    val feedback = new CardinalityFeedback()
+
+    feedback.record(graph, estimated = 9, uncorrected = Cardinality(9), actual = 99)
+    feedback.record(graph, estimated = 99, uncorrected = Cardinality(9), actual = 99)
+    feedback.record(graph, estimated = 99, uncorrected = Cardinality(9), actual = 99)
+
+    feedback.correct(graph, Cardinality(10)).amount should be(100.0 +- 0.0001)
+  }
+
+  test("should tell when the estimates plans were made with were off by more than the replanning threshold") {
+    val feedback = new CardinalityFeedback(replanningThreshold = 10.0)
+
+    feedback.record(graph, estimated = 9, uncorrected = Cardinality(9), actual = 19) should be(false)
+    feedback.record(graph, estimated = 9, uncorrected = Cardinality(9), actual = 999) should be(true)
+    feedback.record(graph, estimated = 999, uncorrected = Cardinality(9), actual = 9) should be(true)
+    feedback.record(graph, estimated = 999, uncorrected = Cardinality(9), actual = 999) should be(false)
+  }
+}
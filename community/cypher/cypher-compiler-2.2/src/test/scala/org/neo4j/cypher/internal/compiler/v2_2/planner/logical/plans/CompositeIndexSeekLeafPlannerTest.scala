@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.ast._
+import org.neo4j.cypher.internal.compiler.v2_2.planner.BeLikeMatcher._
+import org.neo4j.cypher.internal.compiler.v2_2.planner._
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps.compositeIndexSeekLeafPlanner
+
+class CompositeIndexSeekLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSupport2 {
+
+  val idName = IdName("n")
+  val hasLabels = HasLabels(ident("n"), Seq(LabelName("Account") _)) _
+  val tenantId = Property(ident("n"), PropertyKeyName("tenantId") _) _
+  val externalId = Property(ident("n"), PropertyKeyName("externalId") _) _
+  val lit42 = SignedDecimalIntegerLiteral("42") _
+  val lit6 = SignedDecimalIntegerLiteral("6") _
+
+  val tenantIs42 = In(tenantId, Collection(Seq(lit42)) _) _
+  val externalIdIs6 = In(externalId, Collection(Seq(lit6)) _) _
+
+  test("plans a composite index seek when there is an equality on every property of the index") {
+    new given {
+      qg = queryGraph(externalIdIs6, tenantIs42, hasLabels)
+
+      compositeIndexOn("Account", "tenantId", "externalId")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = compositeIndexSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(NodeCompositeIndexSeek(`idName`, _, Seq(PropertyKeyToken("tenantId", _), PropertyKeyToken("externalId", _)), Seq(`lit42`, `lit6`), _)) => ()
+        }
+        resultPlans.head.solved.graph.selections.flatPredicates.toSet should equal(Set(tenantIs42, externalIdIs6, hasLabels))
+      }
+    }
+  }
+
+  test("does not plan a composite index seek when a property of the index has no equality") {
+    new given {
+      qg = queryGraph(tenantIs42, hasLabels)
+
+      compositeIndexOn("Account", "tenantId", "externalId")
+
+      withLogicalPlanningContext { (ctx) =>
+        compositeIndexSeekLeafPlanner(qg)(ctx) shouldBe empty
+      }
+    }
+  }
+
+  test("does not plan a composite index seek for a collection of values") {
+    new given {
+      qg = queryGraph(In(tenantId, Collection(Seq(lit42, lit6)) _) _, externalIdIs6, hasLabels)
+
+      compositeIndexOn("Account", "tenantId", "externalId")
+
+      withLogicalPlanningContext { (ctx) =>
+        compositeIndexSeekLeafPlanner(qg)(ctx) shouldBe empty
+      }
+    }
+  }
+
+  private def queryGraph(predicates: Expression*) =
+    QueryGraph(
+      selections = Selections(predicates.map(Predicate(Set(idName), _)).toSet),
+      patternNodes = Set(idName)
+    )
+}
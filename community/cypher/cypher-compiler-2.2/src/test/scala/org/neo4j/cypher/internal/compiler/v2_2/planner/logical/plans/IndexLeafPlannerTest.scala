@@ -21,7 +21,7 @@ package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans
 
 import org.neo4j.cypher.internal.commons.CypherFunSuite
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.ManyQueryExpression
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{Bound, InequalitySeekRange, ManyQueryExpression, PrefixSeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.BeLikeMatcher._
 import org.neo4j.cypher.internal.compiler.v2_2.planner._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.LogicalPlanningContext
@@ -166,6 +166,63 @@ class IndexLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSuppor
     }
   }
 
+  test("index range seek when there are inequalities on the indexed property") {
+    new given {
+      qg = queryGraph(GreaterThan(property, lit6)_, LessThanOrEqual(property, lit42)_, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(NodeIndexSeekByRange(`idName`, _, _,
+            InequalitySeekRange(Some(Bound(SignedDecimalIntegerLiteral("6"), false)),
+                                Some(Bound(SignedDecimalIntegerLiteral("42"), true))), _)) => ()
+        }
+      }
+    }
+  }
+
+  test("index range seek with a filter for regular expressions matching a literal prefix") {
+    val regex: Expression = RegexMatch(property, StringLiteral("Tob.*")_)_
+
+    new given {
+      qg = queryGraph(regex, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(Selection(Seq(`regex`), NodeIndexSeekByRange(`idName`, _, _,
+            PrefixSeekRange(StringLiteral("Tob")), _))) => ()
+        }
+      }
+    }
+  }
+
+  test("does not plan index range seek for regular expressions not matching a literal prefix") {
+    new given {
+      qg = queryGraph(RegexMatch(property, StringLiteral("T.b.*")_)_, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans shouldBe empty
+      }
+    }
+  }
+
   private def queryGraph(predicates: Expression*) =
     QueryGraph(
       selections = Selections(predicates.map(Predicate(Set(idName), _)).toSet),
@@ -102,4 +102,41 @@ class LabelScanLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSu
     resultPlans should equal(
       Seq(planNodeByLabelScan(idName, LazyLabel(LabelName("Awesome")_), Seq(hasLabels), None, Set.empty)))
   }
+
+  test("label intersection scan for a node with several labels") {
+    // given
+    val idName = IdName("n")
+    val hasAwesome = HasLabels(Identifier("n")_, Seq(LabelName("Awesome")_))_
+    val hasBrilliant = HasLabels(Identifier("n")_, Seq(LabelName("Brilliant")_))_
+    val qg = QueryGraph(
+      selections = Selections(Set(Predicate(Set(idName), hasBrilliant), Predicate(Set(idName), hasAwesome))),
+      patternNodes = Set(idName))
+
+    val factory = newMockedMetricsFactory
+    when(factory.newCardinalityEstimator(any())).thenReturn((plan: LogicalPlan, _: QueryGraphCardinalityInput) => plan match {
+      case _: NodeByLabelIntersectionScan => Cardinality(10)
+      case _: NodeByLabelScan             => Cardinality(100)
+      case _                              => Cardinality(Double.MaxValue)
+    })
+
+    implicit val semanticTable = newMockedSemanticTable
+    when(semanticTable.resolvedLabelIds).thenReturn(mutable.Map("Awesome" -> LabelId(12), "Brilliant" -> LabelId(13)))
+
+    implicit val context = newMockedLogicalPlanningContext(
+      semanticTable = semanticTable,
+      planContext = newMockedPlanContext,
+      metrics = factory.newMetrics(statistics, semanticTable)
+    )
+
+    // when
+    val resultPlans = labelScanLeafPlanner(qg)
+
+    // then
+    resultPlans.toSet should equal(Set(
+      planNodeByLabelScan(idName, LazyLabel("Awesome"), Seq(hasAwesome), None, Set.empty),
+      planNodeByLabelScan(idName, LazyLabel("Brilliant"), Seq(hasBrilliant), None, Set.empty),
+      planNodeByLabelIntersectionScan(idName, Seq(LazyLabel("Awesome"), LazyLabel("Brilliant")),
+        Seq(hasAwesome, hasBrilliant), Set.empty)
+    ))
+  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.ast._
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.LazyLabel
+import org.neo4j.cypher.internal.compiler.v2_2.planner.LogicalPlanningTestSupport
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
+import org.neo4j.graphdb.Direction
+
+class CountFromCountsStoreTest extends CypherFunSuite with LogicalPlanningTestSupport {
+  private val countStar = Map("count(*)" -> CountStar()(pos))
+  private val typeT = Seq(RelTypeName("T")(pos))
+
+  test("counts all nodes from the counts store") {
+    val input = Aggregation(AllNodesScan(IdName("n"), Set.empty)(solved), Map.empty, countStar)(solved)
+
+    input.endoRewrite(countFromCountsStore) should equal(
+      NodeCountFromCountStore(IdName("count(*)"), None, Set.empty)(solved))
+  }
+
+  test("counts nodes with a label from the counts store") {
+    val count = Map("count(n)" -> FunctionInvocation(FunctionName("count")(pos), ident("n"))(pos))
+    val input = Aggregation(NodeByLabelScan(IdName("n"), LazyLabel("A"), Set.empty)(solved), Map.empty, count)(solved)
+
+    input.endoRewrite(countFromCountsStore) should equal(
+      NodeCountFromCountStore(IdName("count(n)"), Some(LazyLabel("A")), Set.empty)(solved))
+  }
+
+  test("counts relationships from a labeled node from the counts store") {
+    val scan = NodeByLabelScan(IdName("a"), LazyLabel("A"), Set.empty)(solved)
+    val expand = Expand(scan, IdName("a"), Direction.INCOMING, typeT, IdName("b"), IdName("r"))(solved)
+    val input = Aggregation(expand, Map.empty, countStar)(solved)
+
+    input.endoRewrite(countFromCountsStore) should equal(
+      RelationshipCountFromCountStore(IdName("count(*)"), None, typeT, Some(LazyLabel("A")), Set.empty)(solved))
+  }
+
+  test("counts relationships to a labeled node from the counts store") {
+    val expand = Expand(AllNodesScan(IdName("a"), Set.empty)(solved), IdName("a"), Direction.OUTGOING, typeT, IdName("b"), IdName("r"))(solved)
+    val selection = Selection(Seq(HasLabels(ident("b"), Seq(LabelName("B")(pos)))(pos)), expand)(solved)
+    val input = Aggregation(selection, Map.empty, countStar)(solved)
+
+    input.endoRewrite(countFromCountsStore) should equal(
+      RelationshipCountFromCountStore(IdName("count(*)"), None, typeT, Some(LazyLabel("B")), Set.empty)(solved))
+  }
+
+  test("does not count relationships between two labeled nodes from the counts store") {
+    val scan = NodeByLabelScan(IdName("a"), LazyLabel("A"), Set.empty)(solved)
+    val expand = Expand(scan, IdName("a"), Direction.OUTGOING, typeT, IdName("b"), IdName("r"))(solved)
+    val selection = Selection(Seq(HasLabels(ident("b"), Seq(LabelName("B")(pos)))(pos)), expand)(solved)
+    val input = Aggregation(selection, Map.empty, countStar)(solved)
+
+    input.endoRewrite(countFromCountsStore) should equal(input)
+  }
+
+  test("does not count undirected relationships or grouped counts from the counts store") {
+    val scan = AllNodesScan(IdName("a"), Set.empty)(solved)
+    val expand = Expand(scan, IdName("a"), Direction.BOTH, typeT, IdName("b"), IdName("r"))(solved)
+    val undirected = Aggregation(expand, Map.empty, countStar)(solved)
+    val grouped = Aggregation(scan, Map("a" -> ident("a")), countStar)(solved)
+
+    undirected.endoRewrite(countFromCountsStore) should equal(undirected)
+    grouped.endoRewrite(countFromCountsStore) should equal(grouped)
+  }
+}
@@ -136,6 +136,21 @@ class ExpandTest
     )
   }
 
+  test("variable length relationship between two bound nodes expands into the other node") {
+    implicit val context = newMockedLogicalPlanningContext(
+      planContext = newMockedPlanContext
+    )
+    val aAndB = newMockedLogicalPlan("a", "b")
+    val plan = planTableWith(aAndB)
+
+    val qg = createQuery(rVarRel)
+
+    expand(plan, qg) should equal(Seq(
+      planVarExpand(left = aAndB, from = aNode, dir = Direction.OUTGOING, to = bNode, pattern = rVarRel, mode = ExpandInto, predicates = Seq.empty, allPredicates = Seq.empty),
+      planVarExpand(left = aAndB, from = bNode, dir = Direction.INCOMING, to = aNode, pattern = rVarRel, mode = ExpandInto, predicates = Seq.empty, allPredicates = Seq.empty)
+    ))
+  }
+
   test("unlimited variable length relationship with a predicate on each relationship") {
     implicit val context = newMockedLogicalPlanningContext(
       planContext = newMockedPlanContext
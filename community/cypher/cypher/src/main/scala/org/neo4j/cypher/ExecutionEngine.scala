@@ -139,7 +139,7 @@ class ExecutionEngine(graph: GraphDatabaseService, logger: StringLogger = String
         // fetch plan cache
         val cache: LRUCache[String, (ExecutionPlan, Map[String, Any])] = getOrCreateFromSchemaState(kernelStatement, {
           cacheMonitor.cacheFlushDetected(kernelStatement)
-          new LRUCache[String, (ExecutionPlan, Map[String, Any])](getPlanCacheSize)
+          new LRUCache[String, (ExecutionPlan, Map[String, Any])](getPlanCacheSize, cacheMonitor.cacheEvict)
         })
 
         Iterator.continually {
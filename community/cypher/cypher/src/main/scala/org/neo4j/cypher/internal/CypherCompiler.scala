@@ -19,10 +19,13 @@
  */
 package org.neo4j.cypher.internal
 
+import java.util.concurrent.ForkJoinPool
+
 import org.neo4j.cypher._
 import org.neo4j.cypher.internal.compatibility._
 import org.neo4j.cypher.internal.compiler.v2_2.{Rule, Cost, Conservative, PlannerName}
 import org.neo4j.graphdb.GraphDatabaseService
+import org.neo4j.graphdb.event.{ErrorState, KernelEventHandler}
 import org.neo4j.graphdb.factory.GraphDatabaseSettings
 import org.neo4j.helpers.Clock
 import org.neo4j.kernel.InternalAbstractGraphDatabase
@@ -52,18 +55,22 @@ class CypherCompiler(graph: GraphDatabaseService,
 
   private val queryCacheSize: Int = getQueryCacheSize
   private val queryPlanTTL: Long = getQueryPlanTTL
+  private val slottedRows: Boolean = getRuntime == "SLOTTED"
+  private val compiledRuntime: Boolean = getRuntime == "COMPILED"
+  private val queryMemoryLimit: Long = getQueryMemoryLimit
+  private val parallelWorkers: Option[ForkJoinPool] = newParallelWorkers(getQueryParallelism)
   private val compatibilityFor1_9 = CompatibilityFor1_9(graph, queryCacheSize, kernelMonitors)
   private val compatibilityFor2_0 = CompatibilityFor2_0(graph, queryCacheSize, kernelMonitors)
   private val compatibilityFor2_1 = CompatibilityFor2_1(graph, queryCacheSize, kernelMonitors, kernelAPI)
   private val compatibilityFor2_2Rule =
     CompatibilityFor2_2Rule(graph, queryCacheSize, STATISTICS_DIVERGENCE_THRESHOLD, queryPlanTTL, CLOCK,
-      kernelMonitors, kernelAPI)
+      kernelMonitors, kernelAPI, queryMemoryLimit)
   private val compatibilityFor2_2Cost =
     CompatibilityFor2_2Cost(graph, queryCacheSize, STATISTICS_DIVERGENCE_THRESHOLD, queryPlanTTL, CLOCK,
-      kernelMonitors, kernelAPI, logger)
+      kernelMonitors, kernelAPI, logger, slottedRows, compiledRuntime, queryMemoryLimit, parallelWorkers)
   private val compatibilityFor2_2 =
     CompatibilityFor2_2Conservative(graph, queryCacheSize, STATISTICS_DIVERGENCE_THRESHOLD, queryPlanTTL, CLOCK,
-      kernelMonitors, kernelAPI, logger)
+      kernelMonitors, kernelAPI, logger, slottedRows, compiledRuntime, queryMemoryLimit, parallelWorkers)
 
   @throws(classOf[SyntaxException])
   def preParseQuery(queryText: String): PreParsedQuery = {
@@ -150,6 +157,41 @@ class CypherCompiler(graph: GraphDatabaseService,
       .applyOrElse(graph, (_: GraphDatabaseService) => DEFAULT_QUERY_PLAN_TTL)
   }
 
+  private def getQueryMemoryLimit: Long =
+    optGraphAs[InternalAbstractGraphDatabase]
+      .andThen(_.getConfig.get(GraphDatabaseSettings.query_memory_limit).longValue())
+      .applyOrElse(graph, (_: GraphDatabaseService) => GraphDatabaseSettings.query_memory_limit.getDefaultValue.toLong)
+
+  private def getQueryParallelism: Int =
+    optGraphAs[InternalAbstractGraphDatabase]
+      .andThen(_.getConfig.get(GraphDatabaseSettings.query_parallelism).intValue())
+      .applyOrElse(graph, (_: GraphDatabaseService) => GraphDatabaseSettings.query_parallelism.getDefaultValue.toInt)
+
+  /*
+   * The threads that the parallel parts of plans run on, shared by the planners of the engine. They are shut down
+   * with the database, which outlives the engine.
+   */
+  private def newParallelWorkers(parallelism: Int): Option[ForkJoinPool] = if (parallelism <= 1) None else {
+    val workers = new ForkJoinPool(parallelism)
+    graph.registerKernelEventHandler(new KernelEventHandler {
+      def beforeShutdown() {
+        workers.shutdownNow()
+      }
+
+      def kernelPanic(error: ErrorState) {}
+
+      def getResource: AnyRef = null
+
+      def orderComparedTo(other: KernelEventHandler) = KernelEventHandler.ExecutionOrder.DOESNT_MATTER
+    })
+    Some(workers)
+  }
+
+  private def getRuntime: String =
+    optGraphAs[InternalAbstractGraphDatabase]
+      .andThen(_.getConfig.get(GraphDatabaseSettings.query_runtime))
+      .applyOrElse(graph, (_: GraphDatabaseService) => GraphDatabaseSettings.query_runtime.getDefaultValue)
+
 
   private def optGraphAs[T <: GraphDatabaseService : Manifest]: PartialFunction[GraphDatabaseService, T] = {
     case (db: T) => db
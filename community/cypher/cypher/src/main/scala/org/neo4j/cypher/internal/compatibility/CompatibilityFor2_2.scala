@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compatibility
 
 import java.io.PrintWriter
 import java.util
+import java.util.concurrent.ForkJoinPool
 
 import org.neo4j.cypher.internal._
 import org.neo4j.cypher.internal.compiler.v2_2
@@ -297,9 +298,16 @@ case class CompatibilityFor2_2Conservative(graph: GraphDatabaseService,
                                            clock: Clock,
                                            kernelMonitors: KernelMonitors,
                                            kernelAPI: KernelAPI,
-                                           logger: StringLogger) extends CompatibilityFor2_2 {
+                                           logger: StringLogger,
+                                           slottedRows: Boolean = false,
+                                           compiledRuntime: Boolean = false,
+                                           queryMemoryLimit: Long = 0,
+                                           parallelWorkers: Option[ForkJoinPool] = None)
+  extends CompatibilityFor2_2 {
   protected val compiler = CypherCompilerFactory.conservativeCompiler(
-    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger)
+    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger,
+    slottedRows = slottedRows, compiledRuntime = compiledRuntime, queryMemoryLimit = queryMemoryLimit,
+    parallelWorkers = parallelWorkers)
 }
 
 case class CompatibilityFor2_2Cost(graph: GraphDatabaseService,
@@ -309,9 +317,14 @@ case class CompatibilityFor2_2Cost(graph: GraphDatabaseService,
                                    clock: Clock,
                                    kernelMonitors: KernelMonitors,
                                    kernelAPI: KernelAPI,
-                                   logger: StringLogger) extends CompatibilityFor2_2 {
+                                   logger: StringLogger,
+                                   slottedRows: Boolean = false,
+                                   compiledRuntime: Boolean = false,
+                                   queryMemoryLimit: Long = 0,
+                                   parallelWorkers: Option[ForkJoinPool] = None) extends CompatibilityFor2_2 {
   protected val compiler = CypherCompilerFactory.costBasedCompiler(
-    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger)
+    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger, slottedRows,
+    compiledRuntime, queryMemoryLimit, parallelWorkers)
 }
 
 case class CompatibilityFor2_2Rule(graph: GraphDatabaseService,
@@ -320,7 +333,8 @@ case class CompatibilityFor2_2Rule(graph: GraphDatabaseService,
                                    queryPlanTTL: Long,
                                    clock: Clock,
                                    kernelMonitors: KernelMonitors,
-                                   kernelAPI: KernelAPI) extends CompatibilityFor2_2 {
+                                   kernelAPI: KernelAPI,
+                                   queryMemoryLimit: Long = 0) extends CompatibilityFor2_2 {
   protected val compiler = CypherCompilerFactory.ruleBasedCompiler(
-    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors)
+    graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, queryMemoryLimit)
 }
@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compatibility
 
 import org.neo4j.cypher.CypherExecutionException
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.cypher.internal.compiler.v2_2.spi
 import org.neo4j.cypher.internal.compiler.v2_2.spi._
 import org.neo4j.graphdb.{Direction, Node, PropertyContainer, Relationship}
@@ -44,6 +45,12 @@ class ExceptionTranslatingQueryContext(inner: QueryContext) extends DelegatingQu
   override def getLabelsForNode(node: Long): Iterator[Int] =
     translateException(super.getLabelsForNode(node))
 
+  override def nodeGetDegree(node: Long, dir: Direction): Int =
+    translateException(super.nodeGetDegree(node, dir))
+
+  override def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int =
+    translateException(super.nodeGetDegree(node, dir, relTypeId))
+
   override def getLabelName(id: Int): String =
     translateException(super.getLabelName(id))
 
@@ -77,18 +84,30 @@ class ExceptionTranslatingQueryContext(inner: QueryContext) extends DelegatingQu
   override def getOrCreatePropertyKeyId(propertyKey: String): Int =
     translateException(super.getOrCreatePropertyKeyId(propertyKey))
 
-  override def addIndexRule(labelId: Int, propertyKeyId: Int) =
-    translateException(super.addIndexRule(labelId, propertyKeyId))
+  override def addIndexRule(labelId: Int, propertyKeyIds: Int*) =
+    translateException(super.addIndexRule(labelId, propertyKeyIds: _*))
 
-  override def dropIndexRule(labelId: Int, propertyKeyId: Int) =
-    translateException(super.dropIndexRule(labelId, propertyKeyId))
+  override def dropIndexRule(labelId: Int, propertyKeyIds: Int*) =
+    translateException(super.dropIndexRule(labelId, propertyKeyIds: _*))
 
   override def exactIndexSearch(index: IndexDescriptor, value: Any): Iterator[Node] =
     translateException(super.exactIndexSearch(index, value))
 
+  override def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] =
+    translateException(super.indexSeekByRange(index, range))
+
   override def getNodesByLabel(id: Int): Iterator[Node] =
     translateException(super.getNodesByLabel(id))
 
+  override def getNodesByLabels(ids: Seq[Int]): Iterator[Node] =
+    translateException(super.getNodesByLabels(ids))
+
+  override def nodeCountByCountStore(labelId: Int): Long =
+    translateException(super.nodeCountByCountStore(labelId))
+
+  override def relationshipCountByCountStore(startLabelId: Int, typeId: Int, endLabelId: Int): Long =
+    translateException(super.relationshipCountByCountStore(startLabelId, typeId, endLabelId))
+
   override def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V =
     translateException(super.getOrCreateFromSchemaState(key, creator))
 
@@ -107,6 +126,12 @@ class ExceptionTranslatingQueryContext(inner: QueryContext) extends DelegatingQu
         work(new ExceptionTranslatingQueryContext(qc))
       ))
 
+  override def withReadTransaction[T](work: (QueryContext) => T): T =
+    translateException(
+      super.withReadTransaction(qc =>
+        work(new ExceptionTranslatingQueryContext(qc))
+      ))
+
   override def isLabelSetOnNode(label: Int, node: Long): Boolean =
     translateException(super.isLabelSetOnNode(label, node))
 
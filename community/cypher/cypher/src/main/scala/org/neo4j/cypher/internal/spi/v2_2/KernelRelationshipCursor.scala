@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.spi.v2_2
+
+import org.neo4j.collection.primitive.{PrimitiveLongCollections, PrimitiveLongIterator}
+import org.neo4j.cursor.Cursor
+import org.neo4j.cypher.internal.compiler.v2_2.spi.RelationshipCursor
+import org.neo4j.graphdb.Direction
+import org.neo4j.kernel.api.ReadOperations
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException
+import org.neo4j.kernel.impl.api.RelationshipVisitor
+import org.neo4j.kernel.impl.util.register.NeoRegisters._
+import org.neo4j.register.Registers.newObjectRegister
+
+object KernelRelationshipCursor {
+  def apply(readOperations: ReadOperations, dir: Direction, types: Option[Seq[Int]]): RelationshipCursor = types match {
+    case Some(typeIds) => new ExpandingRelationshipCursor(readOperations, dir, typeIds.toArray)
+    // The expand cursor of the kernel only finds relationships of the types it is given
+    case None          => new IteratingRelationshipCursor(readOperations, dir)
+  }
+}
+
+/**
+ * Reads through the expand cursor of the kernel, whose input cursor moves to the next node once per expandFrom.
+ */
+final class ExpandingRelationshipCursor(readOperations: ReadOperations, dir: Direction, types: Array[Int])
+  extends RelationshipCursor {
+
+  private val node = newNodeRegister()
+  private val relationship = newRelationshipRegister()
+  private val otherNode = newNodeRegister()
+  private var nextNode = -1L
+  private var exhausted = true
+
+  private val input = new Cursor {
+    def next(): Boolean =
+      if (nextNode == -1L) {
+        false
+      } else {
+        node.write(nextNode)
+        nextNode = -1L
+        true
+      }
+
+    def reset() {}
+
+    def close() {}
+  }
+
+  private val expand = readOperations.expand(input, node, newObjectRegister(types), newObjectRegister(dir),
+    relationship, newRelTypeRegister(), newObjectRegister[Direction](), newNodeRegister(), otherNode)
+
+  def expandFrom(nodeId: Long) {
+    while (!exhausted)
+      next()
+    nextNode = nodeId
+    exhausted = false
+  }
+
+  def next(): Boolean = {
+    exhausted = exhausted || !expand.next()
+    !exhausted
+  }
+
+  def relationshipId: Long = relationship.read()
+
+  def otherNodeId: Long = otherNode.read()
+
+  def close() {
+    expand.close()
+  }
+}
+
+final class IteratingRelationshipCursor(readOperations: ReadOperations, dir: Direction) extends RelationshipCursor {
+
+  private var node = -1L
+  private var relationships: PrimitiveLongIterator = PrimitiveLongCollections.emptyIterator()
+  private var relationship = -1L
+  private var otherNode = -1L
+
+  private val visitor = new RelationshipVisitor[RuntimeException] {
+    def visit(relId: Long, typeId: Int, startNode: Long, endNode: Long) {
+      relationship = relId
+      otherNode = if (startNode == node) endNode else startNode
+    }
+  }
+
+  def expandFrom(nodeId: Long) {
+    node = nodeId
+    relationships = try {
+      readOperations.nodeGetRelationships(nodeId, dir)
+    } catch {
+      case _: EntityNotFoundException => PrimitiveLongCollections.emptyIterator()
+    }
+  }
+
+  def next(): Boolean = {
+    while (relationships.hasNext) {
+      if (visit(relationships.next()))
+        return true
+    }
+    false
+  }
+
+  private def visit(relId: Long): Boolean = try {
+    readOperations.relationshipVisit(relId, visitor)
+    true
+  } catch {
+    case _: EntityNotFoundException => false
+  }
+
+  def relationshipId: Long = relationship
+
+  def otherNodeId: Long = otherNode
+
+  def close() {}
+}
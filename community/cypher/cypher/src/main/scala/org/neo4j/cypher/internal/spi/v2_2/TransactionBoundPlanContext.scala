@@ -28,8 +28,11 @@ import org.neo4j.kernel.api.constraints.UniquenessConstraint
 import org.neo4j.kernel.api.exceptions.KernelException
 import org.neo4j.kernel.api.exceptions.schema.SchemaRuleNotFoundException
 import org.neo4j.kernel.api.index.{IndexDescriptor, InternalIndexState}
+import org.neo4j.kernel.impl.api.operations.KeyReadOperations
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore
 
+import scala.collection.JavaConverters._
+
 class TransactionBoundPlanContext(statement: Statement, val gdb: GraphDatabaseService)
   extends TransactionBoundTokenContext(statement) with PlanContext {
 
@@ -48,6 +51,17 @@ class TransactionBoundPlanContext(statement: Statement, val gdb: GraphDatabaseSe
     Some(statement.readOperations().uniqueIndexGetForLabelAndPropertyKey(labelId, propertyKeyId))
   }
 
+  def getCompositeIndexRules(labelName: String): Seq[IndexDescriptor] = {
+    val labelId = statement.readOperations().labelGetForName(labelName)
+    if (labelId == KeyReadOperations.NO_SUCH_LABEL)
+      Seq.empty
+    else
+      statement.readOperations().indexesGetForLabel(labelId).asScala
+        .filter(_.isComposite)
+        .flatMap(getOnlineIndex)
+        .toSeq
+  }
+
   private def evalOrNone[T](f: => Option[T]): Option[T] =
     try { f } catch { case _: SchemaRuleNotFoundException => None }
 
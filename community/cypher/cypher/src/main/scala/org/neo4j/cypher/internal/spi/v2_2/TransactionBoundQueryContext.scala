@@ -20,7 +20,8 @@
 package org.neo4j.cypher.internal.spi.v2_2
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator
-import org.neo4j.cypher.internal.compiler.v2_2.{EntityNotFoundException, FailedIndexException}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{InequalitySeekRange, PrefixSeekRange, SeekRange}
+import org.neo4j.cypher.internal.compiler.v2_2.{EntityNotFoundException, FailedIndexException, IncomparableValuesException}
 import org.neo4j.cypher.internal.compiler.v2_2.spi._
 import org.neo4j.cypher.internal.helpers.JavaConversionSupport
 import org.neo4j.cypher.internal.helpers.JavaConversionSupport._
@@ -33,7 +34,7 @@ import org.neo4j.kernel.api.constraints.UniquenessConstraint
 import org.neo4j.kernel.api.exceptions.schema.{AlreadyConstrainedException, AlreadyIndexedException}
 import org.neo4j.kernel.api.index.{IndexDescriptor, InternalIndexState}
 import org.neo4j.kernel.impl.api.KernelStatement
-import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge
+import org.neo4j.kernel.impl.core.{NodeManager, ThreadToStatementContextBridge}
 import org.neo4j.kernel.{GraphDatabaseAPI, InternalAbstractGraphDatabase}
 import org.neo4j.tooling.GlobalGraphOperations
 
@@ -48,6 +49,7 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
 
   private var open = true
   private val txBridge = graph.getDependencyResolver.resolveDependency(classOf[ThreadToStatementContextBridge])
+  private lazy val entities = graph.getDependencyResolver.resolveDependency(classOf[NodeManager])
 
   def isOpen = open
 
@@ -94,6 +96,29 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
     }
   }
 
+  def supportsParallelReads: Boolean = statement match {
+    case kernel: KernelStatement => !kernel.hasTxStateWithChanges
+    case _ => false
+  }
+
+  def withReadTransaction[T](work: (QueryContext) => T): T = {
+    val tx = graph.beginTx()
+    try {
+      val otherStatement = txBridge.instance()
+      val result = try {
+        work(new TransactionBoundQueryContext(graph, tx, isTopLevelTx = true, otherStatement))
+      }
+      finally {
+        otherStatement.close()
+      }
+      tx.success()
+      result
+    }
+    finally {
+      tx.close()
+    }
+  }
+
   def createNode(): Node =
     graph.createNode()
 
@@ -114,9 +139,51 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
     case Some(typeIds) => JavaConversionSupport.asScala(statement.readOperations().nodeGetRelationships(node.getId, dir, typeIds: _* )).map(relationshipOps.getById)
   }
 
+  def relationshipCursor(dir: Direction, types: Option[Seq[Int]]): RelationshipCursor =
+    KernelRelationshipCursor(statement.readOperations(), dir, types)
+
+  def nodeGetDegree(node: Long, dir: Direction): Int =
+    statement.readOperations().nodeGetDegree(node, dir)
+
+  def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int =
+    statement.readOperations().nodeGetDegree(node, dir, relTypeId)
+
   def exactIndexSearch(index: IndexDescriptor, value: Any) =
     mapToScala(statement.readOperations().nodesGetFromIndexLookup(index, value))(nodeOps.getById)
 
+  /*
+   * Range seeks only find nodes with values of the same type as the bounds, so `n.prop < 'abc'` finds nothing for
+   * nodes with numbers where a filter comparing the values used to fail. Bounds of mixed types can never be satisfied
+   * and still fail, as comparing them did.
+   */
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] = {
+    val readOperations = statement.readOperations()
+    val nodeIds: Option[PrimitiveLongIterator] = range match {
+      case PrefixSeekRange(prefix: String) =>
+        Some(readOperations.nodesGetFromIndexRangeSeekByPrefix(index, prefix))
+
+      case InequalitySeekRange(lower, upper) =>
+        val endPoints = (lower ++ upper).map(_.endPoint)
+        if (endPoints.forall(_.isInstanceOf[Number]))
+          Some(readOperations.nodesGetFromIndexRangeSeekByNumber(index,
+            lower.map(_.endPoint.asInstanceOf[Number]).orNull, lower.exists(_.inclusive),
+            upper.map(_.endPoint.asInstanceOf[Number]).orNull, upper.exists(_.inclusive)))
+        else if (endPoints.forall(_.isInstanceOf[String]))
+          Some(readOperations.nodesGetFromIndexRangeSeekByString(index,
+            lower.map(_.endPoint.asInstanceOf[String]).orNull, lower.exists(_.inclusive),
+            upper.map(_.endPoint.asInstanceOf[String]).orNull, upper.exists(_.inclusive)))
+        else if (endPoints.exists(_.isInstanceOf[Number]) && endPoints.exists(_.isInstanceOf[String]))
+          throw new IncomparableValuesException(lower.get.endPoint.getClass.getSimpleName,
+                                                upper.get.endPoint.getClass.getSimpleName)
+        else
+          None
+
+      case _ =>
+        None
+    }
+    nodeIds.map(ids => mapToScala(ids)(nodeOps.getById)).getOrElse(Iterator.empty)
+  }
+
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node] = {
     val nodeId: Long = statement.readOperations().nodeGetUniqueFromIndexLookup(index, value)
     if (StatementConstants.NO_SUCH_NODE == nodeId) None else Some(nodeOps.getById(nodeId))
@@ -134,6 +201,15 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
   def getNodesByLabel(id: Int): Iterator[Node] =
     mapToScala(statement.readOperations().nodesGetForLabel(id))(nodeOps.getById)
 
+  def getNodesByLabels(ids: Seq[Int]): Iterator[Node] =
+    mapToScala(statement.readOperations().nodesGetForLabels(ids: _*))(nodeOps.getById)
+
+  def nodeCountByCountStore(labelId: Int): Long =
+    statement.readOperations().countsForNode(labelId)
+
+  def relationshipCountByCountStore(startLabelId: Int, typeId: Int, endLabelId: Int): Long =
+    statement.readOperations().countsForRelationship(startLabelId, typeId, endLabelId)
+
   private def kernelStatement: KernelStatement =
     txBridge
       .getKernelTransactionBoundToThisThread(true)
@@ -170,6 +246,8 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
       case e: RuntimeException  => throw e
     }
 
+    def proxyById(id: Long): Node = entities.newNodeProxyById(id)
+
     def all: Iterator[Node] = GlobalGraphOperations.at(graph).getAllNodes.iterator().asScala
 
     def indexGet(name: String, key: String, value: Any): Iterator[Node] =
@@ -206,6 +284,8 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
 
     def getById(id: Long) = graph.getRelationshipById(id)
 
+    def proxyById(id: Long): Relationship = entities.newRelationshipProxyById(id)
+
     def all: Iterator[Relationship] =
       GlobalGraphOperations.at(graph).getAllRelationships.iterator().asScala
 
@@ -250,18 +330,22 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
     statement.readOperations().schemaStateGetOrCreate(key, javaCreator)
   }
 
-  def addIndexRule(labelId: Int, propertyKeyId: Int): IdempotentResult[IndexDescriptor] = try {
-    IdempotentResult(statement.schemaWriteOperations().indexCreate(labelId, propertyKeyId))
+  def addIndexRule(labelId: Int, propertyKeyIds: Int*): IdempotentResult[IndexDescriptor] = try {
+    IdempotentResult(statement.schemaWriteOperations().indexCreate(labelId, propertyKeyIds: _*))
   } catch {
     case _: AlreadyIndexedException =>
-      val indexDescriptor = statement.readOperations().indexesGetForLabelAndPropertyKey(labelId, propertyKeyId)
+      val indexDescriptor =
+        if (propertyKeyIds.size == 1)
+          statement.readOperations().indexesGetForLabelAndPropertyKey(labelId, propertyKeyIds.head)
+        else
+          new IndexDescriptor(labelId, propertyKeyIds.toArray)
       if(statement.readOperations().indexGetState(indexDescriptor) == InternalIndexState.FAILED)
         throw new FailedIndexException(indexDescriptor.userDescription(tokenNameLookup))
      IdempotentResult(indexDescriptor, wasCreated = false)
   }
 
-  def dropIndexRule(labelId: Int, propertyKeyId: Int) =
-    statement.schemaWriteOperations().indexDrop(new IndexDescriptor(labelId, propertyKeyId))
+  def dropIndexRule(labelId: Int, propertyKeyIds: Int*) =
+    statement.schemaWriteOperations().indexDrop(new IndexDescriptor(labelId, propertyKeyIds.toArray))
 
   def createUniqueConstraint(labelId: Int, propertyKeyId: Int): IdempotentResult[UniquenessConstraint] = try {
     IdempotentResult(statement.schemaWriteOperations().uniquenessConstraintCreate(labelId, propertyKeyId))
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
+
+class CompiledRuntimeAcceptanceTest extends ExecutionEngineFunSuite {
+
+  override def databaseConfig() = super.databaseConfig() ++ Map(
+    GraphDatabaseSettings.cypher_parser_version.name -> CypherVersion.v2_2.name,
+    GraphDatabaseSettings.query_runtime.name -> "COMPILED"
+  )
+
+  test("should compile a scan, expand, filter and projection") {
+    val andres = createLabeledNode(Map("name" -> "Andres"), "Person")
+    relate(andres, createNode(Map("name" -> "Jake", "age" -> 25)), "KNOWS")
+    relate(andres, createNode(Map("name" -> "Stefan", "age" -> 40)), "KNOWS")
+    relate(andres, createNode(Map("name" -> "Tobias", "age" -> 35)), "LIKES")
+
+    val result = execute("MATCH (a:Person)-[:KNOWS]->(b) WHERE b.age > 30 RETURN a.name, b.name")
+
+    result.toList should equal(List(Map("a.name" -> "Andres", "b.name" -> "Stefan")))
+    result.executionPlanDescription().toString should include("CompiledQuery")
+  }
+
+  test("should compile counting per group") {
+    val andres = createLabeledNode(Map("name" -> "Andres"), "Person")
+    val stefan = createLabeledNode(Map("name" -> "Stefan"), "Person")
+    relate(andres, createNode(), "KNOWS")
+    relate(andres, createNode(), "KNOWS")
+    relate(stefan, createNode(), "KNOWS")
+
+    val result = execute("MATCH (a:Person)-[:KNOWS]->(b) RETURN a.name, count(*)")
+
+    result.toSet should equal(Set(Map("a.name" -> "Andres", "count(*)" -> 2), Map("a.name" -> "Stefan", "count(*)" -> 1)))
+    result.executionPlanDescription().toString should include("CompiledQuery")
+  }
+
+  test("should count zero rows without grouping keys") {
+    val result = execute("MATCH (a:Person) RETURN count(a)")
+
+    result.toList should equal(List(Map("count(a)" -> 0)))
+  }
+
+  test("should compile a query with parameters") {
+    graph.createIndex("Person", "name")
+    createLabeledNode(Map("name" -> "Andres"), "Person")
+    val stefan = createLabeledNode(Map("name" -> "Stefan"), "Person")
+
+    val result = execute("MATCH (n:Person) WHERE n.name = {name} RETURN n", "name" -> "Stefan")
+
+    result.toList should equal(List(Map("n" -> stefan)))
+    result.executionPlanDescription().toString should include("CompiledQuery")
+  }
+
+  test("should fall back to pipes for plans it cannot compile") {
+    createLabeledNode(Map("name" -> "Stefan"), "Person")
+    createLabeledNode(Map("name" -> "Andres"), "Person")
+
+    val result = execute("MATCH (n:Person) RETURN n.name ORDER BY n.name")
+
+    result.toList should equal(List(Map("n.name" -> "Andres"), Map("n.name" -> "Stefan")))
+    result.executionPlanDescription().toString should not include "CompiledQuery"
+  }
+}
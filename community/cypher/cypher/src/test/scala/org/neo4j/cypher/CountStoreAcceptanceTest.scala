@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+class CountStoreAcceptanceTest extends ExecutionEngineFunSuite {
+
+  test("should count nodes from the counts store") {
+    createLabeledNode("Person")
+    createLabeledNode("Person")
+    createNode()
+
+    val all = executeWithCostPlanner("MATCH (n) RETURN count(n)")
+    val persons = executeWithCostPlanner("MATCH (n:Person) RETURN count(*)")
+
+    all.toList should equal(List(Map("count(n)" -> 3)))
+    all.executionPlanDescription().toString should include("NodeCountFromCountStore")
+    persons.toList should equal(List(Map("count(*)" -> 2)))
+  }
+
+  test("should count relationships from the counts store") {
+    val andres = createLabeledNode("Person")
+    relate(andres, createNode(), "KNOWS")
+    relate(andres, createLabeledNode("Person"), "KNOWS")
+    relate(createNode(), andres, "LIKES")
+
+    val fromPersons = executeWithCostPlanner("MATCH (:Person)-[r:KNOWS]->() RETURN count(r)")
+    val toPersons = executeWithCostPlanner("MATCH ()-[r]->(:Person) RETURN count(r)")
+
+    fromPersons.toList should equal(List(Map("count(r)" -> 2)))
+    fromPersons.executionPlanDescription().toString should include("RelationshipCountFromCountStore")
+    toPersons.toList should equal(List(Map("count(r)" -> 2)))
+  }
+
+  test("should count zero for labels and types that do not exist") {
+    createNode()
+
+    executeWithCostPlanner("MATCH (n:Missing) RETURN count(*)").toList should equal(List(Map("count(*)" -> 0)))
+    executeWithCostPlanner("MATCH ()-[r:MISSING]->() RETURN count(*)").toList should equal(List(Map("count(*)" -> 0)))
+  }
+
+  test("should count the changes of the transaction the query runs in") {
+    val andres = createLabeledNode("Person")
+    val knows = relate(andres, createNode(), "KNOWS")
+
+    graph.inTx {
+      relate(andres, createLabeledNode("Person"), "KNOWS")
+      knows.delete()
+
+      executeWithCostPlanner("MATCH (n:Person) RETURN count(*)").toList should equal(List(Map("count(*)" -> 2)))
+      executeWithCostPlanner("MATCH (:Person)-[r:KNOWS]->() RETURN count(r)").toList should equal(List(Map("count(r)" -> 1)))
+    }
+  }
+
+  private def executeWithCostPlanner(query: String) = execute(s"CYPHER 2.2 PLANNER COST $query")
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings
+
+class ParallelQueryAcceptanceTest extends ExecutionEngineFunSuite {
+
+  override def databaseConfig() = super.databaseConfig() ++ Map(
+    GraphDatabaseSettings.cypher_parser_version.name -> CypherVersion.v2_2.name,
+    GraphDatabaseSettings.query_parallelism.name -> "4"
+  )
+
+  test("should aggregate the rows of several workers") {
+    graph.inTx {
+      (1 to 2500).foreach { i =>
+        val person = createLabeledNode(Map("group" -> i % 3), "Person")
+        relate(person, createNode(), "KNOWS")
+        relate(person, createNode(), "KNOWS")
+      }
+    }
+
+    val result = execute("MATCH (a:Person)-[:KNOWS]->(b) RETURN a.group, count(*)")
+
+    result.toSet should equal(Set(
+      Map("a.group" -> 0, "count(*)" -> 1666),
+      Map("a.group" -> 1, "count(*)" -> 1668),
+      Map("a.group" -> 2, "count(*)" -> 1666)))
+    result.executionPlanDescription().toString should include("Parallel")
+  }
+
+  test("should sort the rows of several workers") {
+    graph.inTx {
+      (1 to 2500).foreach(i => createLabeledNode(Map("number" -> i), "Number"))
+    }
+
+    val result = execute("MATCH (n:Number) WHERE n.number % 2 = 0 RETURN n.number ORDER BY n.number DESC")
+
+    result.columnAs[Int]("n.number").toList should equal((2 to 2500 by 2).reverse.toList)
+  }
+
+  test("should see the changes of the transaction the query runs in") {
+    createLabeledNode("Person")
+
+    graph.inTx {
+      createLabeledNode("Person")
+
+      execute("MATCH (n:Person) WHERE n.name IS NULL RETURN count(*)").toList should equal(List(Map("count(*)" -> 2)))
+    }
+  }
+
+  test("should fail with the errors of the workers") {
+    (1 to 10).foreach(_ => createLabeledNode(Map("zero" -> 0), "Person"))
+
+    intercept[ArithmeticException](execute("MATCH (n:Person) WHERE 1 / n.zero > 0 RETURN count(*)").toList)
+  }
+
+  test("should run queries on the workers after one of them has failed") {
+    graph.inTx {
+      (1 to 5000).foreach(i => createLabeledNode(Map("number" -> i, "zero" -> (if (i == 1) 0 else 1)), "Number"))
+    }
+
+    intercept[ArithmeticException](execute("MATCH (n:Number) WHERE n.number / n.zero > 0 RETURN count(*)").toList)
+
+    execute("MATCH (n:Number) WHERE n.zero = 1 RETURN count(*)").toList should equal(List(Map("count(*)" -> 4999)))
+  }
+}
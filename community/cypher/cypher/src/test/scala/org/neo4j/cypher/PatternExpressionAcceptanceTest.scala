@@ -295,4 +295,32 @@ class PatternExpressionAcceptanceTest extends ExecutionEngineFunSuite with Match
     ))
   }
 
+  test("size of simple pattern expressions should be the degree of the node") {
+    // dense, since it has more relationships than the default dense node threshold
+    val n = createNode()
+    (1 to 60).foreach(_ => relate(n, createNode(), "A"))
+    (1 to 5).foreach(_ => relate(createNode(), n, "B"))
+    relate(n, n, "A")
+
+    val result = executeWithNewPlanner(
+      """MATCH (n) WHERE id(n) = {id}
+        |RETURN size((n)-->()) AS out, size((n)<--()) AS in, size((n)-[:A]-()) AS a,
+        |       size(()-[:B]->(n)) AS b, size((n)-[:C]-()) AS c""".stripMargin, "id" -> n.getId)
+      .toList
+
+    result should equal(List(Map("out" -> 61, "in" -> 6, "a" -> 61, "b" -> 5, "c" -> 0)))
+  }
+
+  test("size of simple pattern expressions should include changes in the transaction") {
+    val n = createNode()
+    relate(n, createNode(), "A")
+
+    val result = execute(
+      """MATCH (n) WHERE id(n) = {id}
+        |CREATE (n)-[:A]->()
+        |RETURN size((n)-[:A]->()) AS a""".stripMargin, "id" -> n.getId)
+      .toList
+
+    result should equal(List(Map("a" -> 2)))
+  }
 }
@@ -24,7 +24,7 @@ import org.neo4j.cypher.internal.compiler.v2_2
 import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.StringHelper.RichString
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.InternalExecutionResult
 import org.neo4j.cypher.internal.compiler.v2_2.planDescription.Argument
-import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.{DbHits, Rows}
+import org.neo4j.cypher.internal.compiler.v2_2.planDescription.InternalPlanDescription.Arguments.{DbHits, EstimatedRows, Rows}
 import org.neo4j.cypher.internal.helpers.TxCounts
 
 class ProfilerAcceptanceTest extends ExecutionEngineFunSuite with CreateTempFileTestSupport with NewPlannerTestSupport {
@@ -249,6 +249,26 @@ class ProfilerAcceptanceTest extends ExecutionEngineFunSuite with CreateTempFile
     a.executionPlanDescription().toString should not include "Eager"
   }
 
+  test("should plan a query again once profiling it has shown that its estimates were badly off") {
+    (1 to 100).foreach(_ => createLabeledNode(Map("age" -> 5), "Person"))
+    var discarded = 0
+    kernelMonitors.addMonitorListener(new StringCacheMonitor {
+      override def cacheDiscard(key: String) {
+        discarded += 1
+      }
+    })
+    val query = "cypher 2.2 planner cost match (n:Person) where n.age > 10 return n.age"
+
+    val first = profile(query)
+    val second = profile(query)
+    val third = profile(query)
+
+    discarded should equal(1)
+    estimatedRows(first)("Filter") should be > 10L
+    estimatedRows(second)("Filter") should be <= 1L
+    estimatedRows(third)("Filter") should equal(estimatedRows(second)("Filter"))
+  }
+
   test("should not show  EstimatedRows in legacy profiling") {
     val result =legacyProfile("create()")
     result.executionPlanDescription().toString should not include("EstimatedRows")
@@ -260,6 +280,9 @@ class ProfilerAcceptanceTest extends ExecutionEngineFunSuite with CreateTempFile
     }
   }
 
+  private def estimatedRows(result: InternalExecutionResult)(name: String): Long =
+    getArgument[EstimatedRows](getPlanDescriptions(result, Seq(name)).head).value
+
   private def assertDbHits(expectedRows: Int)(result: InternalExecutionResult)(names: String*) {
     getPlanDescriptions(result, names).foreach {
       plan => assert(expectedRows === getArgument[DbHits](plan).value, s" wrong db hits for plan: ${plan.name}")
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher
+
+class VarLengthExpandAcceptanceTest extends ExecutionEngineFunSuite {
+
+  test("should expand typed variable length relationships from a bound node") {
+    val (a, b, c, d) = (createNode("a"), createNode("b"), createNode("c"), createNode("d"))
+    relate(a, b, "KNOWS")
+    relate(b, c, "KNOWS")
+    relate(c, d, "KNOWS")
+    relate(a, c, "KNOWS")
+    relate(d, a, "LIKES")
+
+    val result = executeWithCostPlanner("MATCH (a {name: 'a'})-[r:KNOWS*1..3]->(x) RETURN x.name AS x, length(r) AS l")
+
+    result.toSet should equal(Set(
+      Map("x" -> "b", "l" -> 1), Map("x" -> "c", "l" -> 2), Map("x" -> "d", "l" -> 3),
+      Map("x" -> "c", "l" -> 1), Map("x" -> "d", "l" -> 2)))
+  }
+
+  test("should not use the same relationship twice in a path") {
+    val (a, b, c, d) = (createNode("a"), createNode("b"), createNode("c"), createNode("d"))
+    relate(a, b, "KNOWS")
+    relate(b, c, "KNOWS")
+    relate(c, d, "KNOWS")
+    relate(a, c, "KNOWS")
+    relate(d, a, "LIKES")
+
+    val query = "MATCH (a {name: 'a'})-[r*]-(a) RETURN length(r) AS l"
+
+    executeWithCostPlanner(query).columnAs[Number]("l").map(_.intValue).toList.sorted should equal(List(3, 3, 3, 3, 4, 4))
+    executeWithCostPlanner(query).toList.sortBy(_.toString) should equal(executeWithRulePlanner(query).toList.sortBy(_.toString))
+  }
+
+  test("should find the paths between two bound nodes") {
+    val (a, b, c, d) = (createNode("a"), createNode("b"), createNode("c"), createNode("d"))
+    relate(a, b, "KNOWS")
+    relate(b, c, "KNOWS")
+    relate(c, d, "KNOWS")
+    relate(a, c, "KNOWS")
+    relate(d, createNode("e"), "KNOWS")
+
+    val result = executeWithCostPlanner(
+      "MATCH (a {name: 'a'}), (d {name: 'd'}) MATCH (a)-[r:KNOWS*2..]->(d) RETURN length(r) AS l")
+
+    result.columnAs[Number]("l").map(_.intValue).toList.sorted should equal(List(2, 3))
+    executeWithCostPlanner("MATCH (a {name: 'a'}), (d {name: 'd'}) MATCH (d)-[:KNOWS*]->(a) RETURN a").toList should equal(List.empty)
+  }
+
+  test("should only follow relationships matching the predicates") {
+    val (a, b, c) = (createNode("a"), createNode("b"), createNode("c"))
+    relate(a, b, "KNOWS", Map("since" -> 2010))
+    relate(b, c, "KNOWS", Map("since" -> 1990))
+    relate(a, c, "KNOWS", Map("since" -> 2000))
+
+    val query = "MATCH (a {name: 'a'})-[r:KNOWS*]->(x) WHERE ALL(rel IN r WHERE rel.since > 1995) RETURN x.name AS x"
+
+    executeWithCostPlanner(query).columnAs[String]("x").toList.sorted should equal(List("b", "c"))
+  }
+
+  test("should see the changes of the transaction the query runs in") {
+    val (a, b, c) = (createNode("a"), createNode("b"), createNode("c"))
+    val knows = relate(a, b, "KNOWS")
+    relate(b, c, "KNOWS")
+
+    graph.inTx {
+      knows.delete()
+      relate(a, c, "KNOWS")
+      relate(c, b, "LIKES")
+
+      executeWithCostPlanner("MATCH (a {name: 'a'})-[:KNOWS*]->(x) RETURN x.name AS x").columnAs[String]("x").toList should equal(List("c"))
+      executeWithCostPlanner("MATCH (a {name: 'a'})-[*]->(x) RETURN x.name AS x").columnAs[String]("x").toList.sorted should equal(List("b", "c", "c"))
+    }
+  }
+
+  private def executeWithCostPlanner(query: String) = execute(s"CYPHER 2.2 PLANNER COST $query")
+
+  private def executeWithRulePlanner(query: String) = execute(s"CYPHER 2.2 PLANNER RULE $query")
+}
@@ -22,6 +22,7 @@ package org.neo4j.cypher.internal.compiler.v2_2
 import org.neo4j.cypher.GraphDatabaseTestSupport
 import org.neo4j.cypher.internal.NormalMode
 import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.ast.Statement
 import org.neo4j.cypher.internal.compiler.v2_2.executionplan.ExecutionPlan
 import org.neo4j.graphdb.factory.GraphDatabaseSettings
 import org.neo4j.helpers.{FrozenClock, Clock}
@@ -37,26 +38,30 @@ class CypherCompilerAstCacheAcceptanceTest extends CypherFunSuite with GraphData
     CypherCompilerFactory.conservativeCompiler(
       graph, queryCacheSize, statsDivergenceThreshold, queryPlanTTL, clock, kernelMonitors, logger)
 
-  case class CacheCounts(hits: Int = 0, misses: Int = 0, flushes: Int = 0, evicted: Int = 0) {
-    override def toString = s"hits = $hits, misses = $misses, flushes = $flushes, evicted = $evicted"
+  case class CacheCounts(hits: Int = 0, misses: Int = 0, flushes: Int = 0, evicted: Int = 0, overflowed: Int = 0) {
+    override def toString = s"hits = $hits, misses = $misses, flushes = $flushes, evicted = $evicted, overflowed = $overflowed"
   }
 
   class CacheCounter(var counts: CacheCounts = CacheCounts()) extends AstCacheMonitor {
-    override def cacheHit(key: PreparedQuery) {
+    override def cacheHit(key: Statement) {
       counts = counts.copy(hits = counts.hits + 1)
     }
 
-    override def cacheMiss(key: PreparedQuery) {
+    override def cacheMiss(key: Statement) {
       counts = counts.copy(misses = counts.misses + 1)
     }
 
-    override def cacheFlushDetected(justBeforeKey: CacheAccessor[PreparedQuery, ExecutionPlan]) {
+    override def cacheFlushDetected(justBeforeKey: CacheAccessor[Statement, ExecutionPlan]) {
       counts = counts.copy(flushes = counts.flushes + 1)
     }
 
-    override def cacheDiscard(key: PreparedQuery): Unit = {
+    override def cacheDiscard(key: Statement): Unit = {
       counts = counts.copy(evicted = counts.evicted + 1)
     }
+
+    override def cacheEvict(key: Statement): Unit = {
+      counts = counts.copy(overflowed = counts.overflowed + 1)
+    }
   }
 
   override def databaseConfig(): Map[String,String] = Map(GraphDatabaseSettings.query_plan_ttl.name() -> "0")
@@ -82,6 +87,33 @@ class CypherCompilerAstCacheAcceptanceTest extends CypherFunSuite with GraphData
     counter.counts should equal(CacheCounts(hits = 1, misses = 1, flushes = 1))
   }
 
+  test("should share plans between queries that only differ in literals") {
+    val compiler = createCompiler()
+    val counter = new CacheCounter()
+    compiler.monitors.addMonitorListener(counter)
+
+    val (andresPlan, andresParams) =
+      graph.inTx { compiler.planQuery("match (n:Person) where n.name = 'Andres' return n", planContext) }
+    val (stefanPlan, stefanParams) =
+      graph.inTx { compiler.planQuery("match (n:Person) where n.name = 'Stefan' return n", planContext) }
+
+    counter.counts should equal(CacheCounts(hits = 1, misses = 1, flushes = 1))
+    stefanPlan should be theSameInstanceAs andresPlan
+    andresParams.values.toList should equal(List("Andres"))
+    stefanParams.values.toList should equal(List("Stefan"))
+  }
+
+  test("should monitor cache evictions when the cache is full") {
+    val compiler = createCompiler(queryCacheSize = 1)
+    val counter = new CacheCounter()
+    compiler.monitors.addMonitorListener(counter)
+
+    graph.inTx { compiler.planQuery("match (n) return n", planContext) }
+    graph.inTx { compiler.planQuery("match (n)-->(m) return m", planContext) }
+
+    counter.counts should equal(CacheCounts(hits = 0, misses = 2, flushes = 1, overflowed = 1))
+  }
+
   test("should monitor cache flushes") {
     val compiler = createCompiler()
     val counter = new CacheCounter()
@@ -134,4 +166,24 @@ class CypherCompilerAstCacheAcceptanceTest extends CypherFunSuite with GraphData
     // then
     logger.assertExactly(LogCall.info(s"Discarded stale query from the query cache: $query"))
   }
+
+  test("should log the text of the query that found a shared plan stale") {
+    // given
+    val logger: TestLogger = new TestLogger()
+    val clock: Clock = new FrozenClock(1000)
+    val compiler = createCompiler(queryPlanTTL = 0, clock = clock, logger = logger)
+    val firstQuery: String = "match (n:Person:Dog) where n.name = 'Andres' return n"
+    val secondQuery: String = "match (n:Person:Dog) where n.name = 'Stefan' return n"
+
+    createLabeledNode("Dog")
+    (0 until 50).foreach { _ => createLabeledNode("Person") }
+    graph.inTx { compiler.planQuery(firstQuery, planContext) }
+
+    // when
+    (0 until 1000).foreach { _ => createLabeledNode("Dog") }
+    graph.inTx { compiler.planQuery(secondQuery, planContext) }
+
+    // then
+    logger.assertExactly(LogCall.info(s"Discarded stale query from the query cache: $secondQuery"))
+  }
 }
@@ -22,8 +22,8 @@ package org.neo4j.cypher.internal.compiler.v2_2
 import org.neo4j.cypher.GraphDatabaseFunSuite
 import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.Literal
 import org.neo4j.cypher.internal.compiler.v2_2.commands.values.{KeyToken, TokenType}
-import org.neo4j.cypher.internal.compiler.v2_2.commands.{LabelAction, LabelSetOp}
-import org.neo4j.cypher.internal.compiler.v2_2.spi.{IdempotentResult, LockingQueryContext, QueryContext}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{LabelAction, LabelSetOp, SeekRange}
+import org.neo4j.cypher.internal.compiler.v2_2.spi.{IdempotentResult, LockingQueryContext, QueryContext, RelationshipCursor}
 import org.neo4j.graphdb.{Relationship, Direction, Node}
 import org.neo4j.kernel.api.constraints.UniquenessConstraint
 import org.neo4j.kernel.api.index.IndexDescriptor
@@ -96,6 +96,10 @@ class SnitchingQueryContext extends QueryContext {
 
   def getLabelsForNode(node: Long) = ???
 
+  def nodeGetDegree(node: Long, dir: Direction): Int = ???
+
+  def nodeGetDegree(node: Long, dir: Direction, relTypeId: Int): Int = ???
+
   def getRelationshipsFor(node: Node, dir: Direction, types: Seq[String]) = ???
 
   def nodeOps = ???
@@ -112,14 +116,24 @@ class SnitchingQueryContext extends QueryContext {
 
   def getPropertyKeyId(propertyKey: String) = ???
 
-  def addIndexRule(labelId: Int, propertyKeyId: Int): IdempotentResult[IndexDescriptor] = ???
+  def addIndexRule(labelId: Int, propertyKeyIds: Int*): IdempotentResult[IndexDescriptor] = ???
 
-  def dropIndexRule(labelId: Int, propertyKeyId: Int) = ???
+  def dropIndexRule(labelId: Int, propertyKeyIds: Int*) = ???
 
   def exactIndexSearch(index: IndexDescriptor, value: Any): Iterator[Node] = ???
 
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] = ???
+
   def getNodesByLabel(id: Int): Iterator[Node] = ???
 
+  def getNodesByLabels(ids: Seq[Int]): Iterator[Node] = ???
+
+  def relationshipCursor(dir: Direction, types: Option[Seq[Int]]): RelationshipCursor = ???
+
+  def nodeCountByCountStore(labelId: Int): Long = ???
+
+  def relationshipCountByCountStore(startLabelId: Int, typeId: Int, endLabelId: Int): Long = ???
+
   def upgrade(context: QueryContext): LockingQueryContext = ???
 
   def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V = ???
@@ -138,6 +152,10 @@ class SnitchingQueryContext extends QueryContext {
 
   def withAnyOpenQueryContext[T](work: (QueryContext) => T): T = ???
 
+  def supportsParallelReads: Boolean = ???
+
+  def withReadTransaction[T](work: (QueryContext) => T): T = ???
+
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node] = ???
 
   def commitAndRestartTx() { ??? }
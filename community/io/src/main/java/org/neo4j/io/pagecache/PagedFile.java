@@ -64,6 +64,12 @@ public interface PagedFile extends AutoCloseable
      * Do not update page access statistics.
      */
     public static final int PF_TRANSIENT = 1 << 5;
+    /**
+     * Use a cursor of its own, rather than the one kept for the calling thread, so that the thread can use other
+     * cursors while this one is open. This is meant for cursors kept open for a while, and can only be combined
+     * with PF_SHARED_LOCK, since holding more than one exclusive lock at a time is prone to deadlocks.
+     */
+    public static final int PF_DEDICATED_CURSOR = 1 << 6;
 
     /**
      * Initiate an IO interaction with the contents of the paged file.
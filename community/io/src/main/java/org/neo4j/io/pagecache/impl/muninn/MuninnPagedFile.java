@@ -113,7 +113,16 @@ final class MuninnPagedFile implements PagedFile
                     "Cannot specify both PF_EXCLUSIVE_LOCK and PF_SHARED_LOCK" );
         }
         MuninnPageCursor cursor;
-        if ( (pf_flags & PF_SHARED_LOCK) == 0 )
+        if ( (pf_flags & PF_DEDICATED_CURSOR) != 0 )
+        {
+            if ( (pf_flags & PF_SHARED_LOCK) == 0 )
+            {
+                throw new IllegalArgumentException(
+                        "PF_DEDICATED_CURSOR can only be combined with PF_SHARED_LOCK" );
+            }
+            cursor = new MuninnReadPageCursor();
+        }
+        else if ( (pf_flags & PF_SHARED_LOCK) == 0 )
         {
             cursor = cursorPool.takeWriteCursor();
         }
@@ -74,6 +74,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.neo4j.io.pagecache.PagedFile.PF_DEDICATED_CURSOR;
 import static org.neo4j.io.pagecache.PagedFile.PF_EXCLUSIVE_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
@@ -1808,6 +1809,34 @@ public abstract class PageCacheTest<T extends RunnablePageCache>
         }
     }
 
+    @Test
+    public void mustAllowDedicatedCursorWhileHavingOtherCursors() throws Exception
+    {
+        getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+        generateFileWithRecords( file, recordCount, recordSize );
+
+        try ( PagedFile pf = pageCache.map( file, filePageSize );
+              PageCursor dedicated = pf.io( 0, PF_SHARED_LOCK | PF_DEDICATED_CURSOR );
+              PageCursor pooled = pf.io( 1, PF_SHARED_LOCK ) )
+        {
+            assertTrue( dedicated.next() );
+            assertTrue( pooled.next() );
+            verifyRecordsMatchExpected( dedicated );
+            verifyRecordsMatchExpected( pooled );
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void mustThrowWhenCombiningDedicatedCursorWithExclusiveLock() throws Exception
+    {
+        getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+
+        try ( PagedFile pf = pageCache.map( file, filePageSize ) )
+        {
+            pf.io( 0, PF_EXCLUSIVE_LOCK | PF_DEDICATED_CURSOR ); // this must throw
+        }
+    }
+
     @Test( expected = IllegalStateException.class )
     public void mustThrowWhenClaimingWriteCursorWhileHavingReadCursor() throws Exception
     {
@@ -102,12 +102,31 @@ public abstract class GraphDatabaseSettings
             "query.planner.version",
             options( "COST", "RULE"), NO_DEFAULT );
 
+    @Description( "Set this to specify the runtime of queries planned by the cost planner. The SLOTTED runtime keeps " +
+                  "the values of each row in fixed slots of an array, rather than in a map keyed by identifier. The " +
+                  "COMPILED runtime generates and compiles a class for each query whose plan it supports, and runs " +
+                  "other queries like the INTERPRETED runtime." )
+    public static final Setting<String> query_runtime = setting(
+            "query.runtime",
+            options( "INTERPRETED", "SLOTTED", "COMPILED" ), "INTERPRETED" );
+
     @Description( "The number of Cypher query execution plans that are cached." )
     public static Setting<Integer> query_cache_size = setting( "query_cache_size", INTEGER, "100", min( 0 ) );
 
     @Description("The minimum lifetime of a query plan before a query is considered for replanning")
     public static Setting<Long> query_plan_ttl = setting( "query_plan_ttl", DURATION, "1s" );
 
+    @Description( "The amount of heap that the sorting, aggregation, distinct, hash join and eager operators of a single " +
+                  "Cypher query may use between them. Rows beyond it are spilled to temporary files, which makes " +
+                  "large queries slower but keeps them from exhausting the heap. Zero means no limit." )
+    public static final Setting<Long> query_memory_limit = setting( "query.memory_limit", BYTES, "0", min( 0L ) );
+
+    @Description( "The number of threads that a read-only query planned by the cost planner may run on. With more than " +
+                  "one, the rows found by the first operator below an aggregation, sort, distinct or limit are handed " +
+                  "out in batches to a pool of worker threads, each reading in a transaction of its own. Queries in a " +
+                  "transaction that has changes run on the calling thread only." )
+    public static final Setting<Integer> query_parallelism = setting( "query.parallelism", INTEGER, "1", min( 1 ) );
+
     @Description( "Determines if Cypher will allow using file URLs when loading data using `LOAD CSV`. Setting this "
                   + "value to `false` will cause Neo4j to fail `LOAD CSV` clauses that load data from the file system." )
     public static Setting<Boolean> allow_file_urls = setting( "allow_file_urls", BOOLEAN, TRUE );
@@ -162,6 +181,19 @@ public abstract class GraphDatabaseSettings
             "_relationships_ only." )
     public static final Setting<String> relationship_keys_indexable = setting("relationship_keys_indexable", STRING, NO_DEFAULT, illegalValueMessage( "must be a comma-separated list of keys to be indexed", matches( ANY ) ) );
 
+    // Schema indexes
+    @Description("The key of the schema index provider to create new schema indexes with, for example `lucene` or " +
+            "`native-btree`. Existing indexes keep the provider they were created with. By default the provider " +
+            "with the highest priority is used.")
+    public static final Setting<String> default_schema_provider =
+            setting("default_schema_provider", STRING, NO_DEFAULT );
+
+    // Label scan store
+    @Description("The name of the label scan store to use, `lucene` or `native`. A label scan store which has not " +
+            "been used before is built from the node store when the database starts. By default the label scan " +
+            "store with the highest priority is used.")
+    public static final Setting<String> label_scan_store = setting("label_scan_store", STRING, NO_DEFAULT );
+
     // Index sampling
     @Description("Enable or disable background index sampling")
     public static final Setting<Boolean> index_background_sampling_enabled =
@@ -176,10 +208,28 @@ public abstract class GraphDatabaseSettings
     public static final Setting<Integer> index_sampling_update_percentage =
             setting("index_sampling_update_percentage", INTEGER, "5", min( 0 ) );
 
+    @Description("Keep the samples of indexes up to date as they are updated, from a sketch of their distinct values " +
+                 "kept in the counts store, instead of resampling them once the updates pass " +
+                 "index_sampling_update_percentage. Indexes are then only resampled, from the store, once the values " +
+                 "removed or changed pass that percentage.")
+    public static final Setting<Boolean> index_sampling_incremental_enabled =
+            setting("index_sampling_incremental_enabled", BOOLEAN, FALSE );
+
     // Lucene settings
     @Description( "The maximum number of open Lucene index searchers." )
     public static Setting<Integer> lucene_searcher_cache_size = setting("lucene_searcher_cache_size",INTEGER, Integer.toString( Integer.MAX_VALUE ), min( 1 ));
 
+    @Description( "The number of changes committed to a schema index after which the committing transaction reopens " +
+                  "the searcher of the index. Otherwise the searcher is reopened by the first reader after changes " +
+                  "have been committed, and so changes committed in between are covered by the same reopen." )
+    public static final Setting<Integer> lucene_schema_index_refresh_changes =
+            setting( "lucene_schema_index_refresh_changes", INTEGER, "10000", min( 1 ) );
+
+    @Description( "The time after which a transaction committing changes to a schema index reopens the searcher of " +
+                  "the index, if it has not been reopened since, by readers or by lucene_schema_index_refresh_changes." )
+    public static final Setting<Long> lucene_schema_index_refresh_interval =
+            setting( "lucene_schema_index_refresh_interval", DURATION, "1s" );
+
     // NeoStore settings
     @Description("Make Neo4j keep the logical transaction logs for being able to backup the database. " +
             "Can be used for specifying the threshold to prune logical logs after. For example \"10 days\" will " +
@@ -342,6 +392,11 @@ public abstract class GraphDatabaseSettings
     @Description( "Relationship count threshold for considering a node to be dense" )
     public static final Setting<Integer> dense_node_threshold = setting( "dense_node_threshold", INTEGER, "50", min(1) );
 
+    @Description( "Whether node records have room for the first property record of the node, so that the properties " +
+                  "of nodes with a few short properties are read from the same page as the node. Changing this on an " +
+                  "existing store rewrites the node store on the next start, which requires `allow_store_upgrade`." )
+    public static final Setting<Boolean> inline_node_properties = setting( "inline_node_properties", BOOLEAN, FALSE );
+
     @Description("Whether or not transactions are appended to the log in batches")
     public static final Setting<Boolean> batched_writes = setting( "batched_writes", BOOLEAN, Boolean.TRUE.toString() );
 
@@ -129,15 +129,18 @@ import org.neo4j.kernel.impl.coreapi.RelationshipAutoIndexerImpl;
 import org.neo4j.kernel.impl.coreapi.schema.SchemaImpl;
 import org.neo4j.kernel.impl.index.IndexConfigStore;
 import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.locking.LockWaitStatistics;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.locking.ResourceTypes;
 import org.neo4j.kernel.impl.locking.community.CommunityLockManger;
+import org.neo4j.kernel.impl.locking.dreadlocks.DreadlocksLockManager;
 import org.neo4j.kernel.impl.pagecache.LifecycledPageCache;
 import org.neo4j.kernel.impl.query.QueryExecutionKernelException;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.StoreFactory;
 import org.neo4j.kernel.impl.store.StoreId;
 import org.neo4j.kernel.impl.storemigration.ConfigMapUpgradeConfiguration;
+import org.neo4j.kernel.impl.storemigration.NodeRecordFormatMigrator;
 import org.neo4j.kernel.impl.storemigration.StoreMigrator;
 import org.neo4j.kernel.impl.storemigration.StoreUpgrader;
 import org.neo4j.kernel.impl.storemigration.StoreVersionCheck;
@@ -163,6 +166,7 @@ import org.neo4j.kernel.info.JvmChecker;
 import org.neo4j.kernel.info.JvmMetadataRepository;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.kernel.lifecycle.Lifecycle;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.kernel.lifecycle.LifecycleException;
 import org.neo4j.kernel.lifecycle.LifecycleListener;
 import org.neo4j.kernel.lifecycle.LifecycleStatus;
@@ -262,6 +266,7 @@ public abstract class InternalAbstractGraphDatabase
     protected KernelHealth kernelHealth;
     protected FileSystemAbstraction fileSystem;
     protected Locks lockManager;
+    protected LockWaitStatistics lockWaitStatistics;
     protected IdGeneratorFactory idGeneratorFactory;
     protected IndexConfigStore indexStore;
     protected LifecycledPageCache pageCache;
@@ -496,6 +501,14 @@ public abstract class InternalAbstractGraphDatabase
         kernelEventHandlers = new KernelEventHandlers( logging.getMessagesLog( KernelEventHandlers.class ) );
 
         caches = createCaches();
+        life.add( new LifecycleAdapter()
+        {
+            @Override
+            public void shutdown()
+            {
+                caches.close();
+            }
+        } );
         diagnosticsManager = life.add( new DiagnosticsManager( logging.getMessagesLog( DiagnosticsManager.class ) ) );
         monitors.addMonitorListener( new RollingLogMonitor()
         {
@@ -521,6 +534,8 @@ public abstract class InternalAbstractGraphDatabase
 
         guard = config.get( Configuration.execution_guard_enabled ) ? new Guard( msgLog ) : null;
 
+        lockWaitStatistics = new LockWaitStatistics( ResourceTypes.values() );
+        monitors.addMonitorListener( lockWaitStatistics );
         lockManager = createLockManager();
 
         idGeneratorFactory = createIdGeneratorFactory();
@@ -531,6 +546,7 @@ public abstract class InternalAbstractGraphDatabase
         UpgradableDatabase upgradableDatabase = new UpgradableDatabase( new StoreVersionCheck( fileSystem ) );
         storeMigrationProcess.addParticipant( new StoreMigrator(
                 progressMonitor, fileSystem, upgradableDatabase, config, logging ) );
+        storeMigrationProcess.addParticipant( new NodeRecordFormatMigrator( fileSystem, config ) );
 
         propertyKeyTokenHolder = life.add( new PropertyKeyTokenHolder( createPropertyKeyCreator() ) );
         labelTokenHolder = life.add( new LabelTokenHolder( createLabelIdCreator() ) );
@@ -823,30 +839,35 @@ public abstract class InternalAbstractGraphDatabase
     protected Locks createLockManager()
     {
         String key = config.get( Configuration.lock_manager );
+        Locks.Monitor locksMonitor = monitors.newMonitor( Locks.Monitor.class );
         for ( Locks.Factory candidate : Service.load( Locks.Factory.class ) )
         {
             String candidateId = candidate.getKeys().iterator().next();
             if ( candidateId.equals( key ) )
             {
-                return candidate.newInstance( ResourceTypes.values() );
+                return candidate.newInstance( ResourceTypes.values(), locksMonitor );
             }
             else if ( key.equals( "" ) )
             {
                 logging.getMessagesLog( InternalAbstractGraphDatabase.class )
                        .info( "No locking implementation specified, defaulting to '" + candidateId + "'" );
-                return candidate.newInstance( ResourceTypes.values() );
+                return candidate.newInstance( ResourceTypes.values(), locksMonitor );
             }
         }
 
         if ( key.equals( "community" ) )
         {
-            return new CommunityLockManger();
+            return new CommunityLockManger( locksMonitor );
+        }
+        else if ( key.equals( "dreadlocks" ) )
+        {
+            return new DreadlocksLockManager( locksMonitor, ResourceTypes.values() );
         }
         else if ( key.equals( "" ) )
         {
             logging.getMessagesLog( InternalAbstractGraphDatabase.class )
                    .info( "No locking implementation specified, defaulting to 'community'" );
-            return new CommunityLockManger();
+            return new CommunityLockManger( locksMonitor );
         }
 
         throw new IllegalArgumentException( "No lock manager found with the name '" + key + "'." );
@@ -1409,6 +1430,10 @@ public abstract class InternalAbstractGraphDatabase
             {
                 return type.cast( queryExecutor );
             }
+            else if ( LockWaitStatistics.class.isAssignableFrom( type ) && type.isInstance( lockWaitStatistics ) )
+            {
+                return type.cast( lockWaitStatistics );
+            }
             else if ( Locks.class.isAssignableFrom( type ) && type.isInstance( lockManager ) )
             {
                 // Locks used to ensure pessimistic concurrency control between transactions
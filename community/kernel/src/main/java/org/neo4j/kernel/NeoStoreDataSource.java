@@ -23,8 +23,10 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -448,8 +450,10 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
             storeFactory.createNeoStore().close();
         }
 
+        List<SchemaIndexProvider> allIndexProviders = new ArrayList<>();
         indexProvider = dependencyResolver.resolveDependency( SchemaIndexProvider.class,
-                SchemaIndexProvider.HIGHEST_PRIORITIZED_OR_NONE );
+                SchemaIndexProvider.selectByKeyOrHighestPrioritized(
+                        config.get( GraphDatabaseSettings.default_schema_provider ), allIndexProviders ) );
 
         // Monitor listeners
         LoggingLogFileMonitor loggingLogMonitor = new LoggingLogFileMonitor( logging.getMessagesLog( getClass() ) );
@@ -478,7 +482,8 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
             CacheModule cacheModule = buildCaches( neoStoreModule.neoStore(), cacheProvider, nodeManager,
                     labelTokens, relationshipTypeTokens, propertyKeyTokenHolder );
 
-            IndexingModule indexingModule = buildIndexing( config, scheduler, indexProvider, lockService,
+            IndexingModule indexingModule = buildIndexing( config, scheduler, indexProvider, allIndexProviders,
+                    lockService,
                     tokenNameLookup,
                     logging, indexingServiceMonitor, neoStoreModule.neoStore(), cacheModule.updateableSchemaState() );
 
@@ -675,11 +680,12 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
     }
 
     private IndexingModule buildIndexing( Config config, JobScheduler scheduler, SchemaIndexProvider indexProvider,
-            LockService lockService, TokenNameLookup tokenNameLookup,
+            Iterable<SchemaIndexProvider> allIndexProviders, LockService lockService, TokenNameLookup tokenNameLookup,
             Logging logging, IndexingService.Monitor indexingServiceMonitor,
             NeoStore neoStore, UpdateableSchemaState updateableSchemaState )
     {
-        final DefaultSchemaIndexProviderMap providerMap = new DefaultSchemaIndexProviderMap( indexProvider );
+        final DefaultSchemaIndexProviderMap providerMap = new DefaultSchemaIndexProviderMap( indexProvider,
+                allIndexProviders );
 
         final IndexingService indexingService = IndexingService.create(
                 new IndexSamplingConfig( config ), scheduler, providerMap,
@@ -690,7 +696,8 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
 
         // TODO Move to constructor
         final LabelScanStore labelScanStore = dependencyResolver.resolveDependency( LabelScanStoreProvider.class,
-                LabelScanStoreProvider.HIGHEST_PRIORITIZED ).getLabelScanStore();
+                LabelScanStoreProvider.selectByNameOrHighestPrioritized(
+                        config.get( GraphDatabaseSettings.label_scan_store ) ) ).getLabelScanStore();
 
         life.add( indexingService );
         life.add( labelScanStore );
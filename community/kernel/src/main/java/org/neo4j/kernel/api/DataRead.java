@@ -43,6 +43,12 @@ interface DataRead
      */
     PrimitiveLongIterator nodesGetForLabel( int labelId );
 
+    /**
+     * @param labelIds the label ids of the labels that returned nodes are guaranteed to have, all of them
+     * @return ids of all nodes that have all of the given labels
+     */
+    PrimitiveLongIterator nodesGetForLabels( int... labelIds );
+
     /**
      * Returns an iterator with the matched nodes.
      *
@@ -52,6 +58,35 @@ interface DataRead
     PrimitiveLongIterator nodesGetFromIndexLookup( IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException;
 
+    /**
+     * Returns an iterator with the nodes which have a number within the given range, where {@code null} bounds
+     * leave the range open.
+     *
+     * @throws org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException
+     *          if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( IndexDescriptor index, Number lower,
+            boolean includeLower, Number upper, boolean includeUpper ) throws IndexNotFoundKernelException;
+
+    /**
+     * Returns an iterator with the nodes which have a string within the given range, where {@code null} bounds
+     * leave the range open.
+     *
+     * @throws org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException
+     *          if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( IndexDescriptor index, String lower,
+            boolean includeLower, String upper, boolean includeUpper ) throws IndexNotFoundKernelException;
+
+    /**
+     * Returns an iterator with the nodes which have a string starting with the given prefix.
+     *
+     * @throws org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException
+     *          if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByPrefix( IndexDescriptor index, String prefix )
+            throws IndexNotFoundKernelException;
+
     /**
      * @return an iterator over all nodes in the database.
      */
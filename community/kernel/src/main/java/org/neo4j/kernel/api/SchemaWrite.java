@@ -31,10 +31,11 @@ import org.neo4j.kernel.api.index.IndexDescriptor;
 interface SchemaWrite
 {
     /**
-     * Creates an index, indexing properties with the given {@code propertyKeyId} for nodes with the given
-     * {@code labelId}.
+     * Creates an index, indexing properties with the given {@code propertyKeyIds} for nodes with the given
+     * {@code labelId}. An index of more than one property is a composite index, which indexes the nodes that have
+     * all of the properties by a {@link org.neo4j.kernel.api.index.CompositeIndexValue} of their values.
      */
-    IndexDescriptor indexCreate( int labelId, int propertyKeyId )
+    IndexDescriptor indexCreate( int labelId, int... propertyKeyIds )
             throws AddIndexFailureException, AlreadyIndexedException, AlreadyConstrainedException;
 
     /** Drops a {@link IndexDescriptor} from the database */
@@ -19,25 +19,33 @@
  */
 package org.neo4j.kernel.api.exceptions.index;
 
+import java.util.Arrays;
+
 import org.neo4j.kernel.api.exceptions.KernelException;
 import org.neo4j.kernel.api.exceptions.Status;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 
 public class IndexPopulationFailedKernelException extends KernelException
 {
-    private static final String FORMAT_MESSAGE = "Failed to populate index for %s [labelId: %d, propertyKeyId %d]";
+    private static final String FORMAT_MESSAGE = "Failed to populate index for %s [labelId: %d, propertyKeyId %s]";
 
     public IndexPopulationFailedKernelException( IndexDescriptor descriptor, String indexUserDescription,
                                                  Throwable cause )
     {
         super( Status.Schema.IndexCreationFailure, cause, FORMAT_MESSAGE, indexUserDescription,
-                descriptor.getLabelId(), descriptor.getPropertyKeyId() );
+                descriptor.getLabelId(), propertyKeyIdsOf( descriptor ) );
     }
 
     public IndexPopulationFailedKernelException( IndexDescriptor descriptor, String indexUserDescription,
                                                  String message )
     {
         super( Status.Schema.IndexCreationFailure, FORMAT_MESSAGE + ", due to " + message,
-               indexUserDescription, descriptor.getLabelId(), descriptor.getPropertyKeyId() );
+               indexUserDescription, descriptor.getLabelId(), propertyKeyIdsOf( descriptor ) );
+    }
+
+    private static Object propertyKeyIdsOf( IndexDescriptor descriptor )
+    {
+        return descriptor.isComposite() ? Arrays.toString( descriptor.getPropertyKeyIds() )
+                                        : descriptor.getPropertyKeyId();
     }
 }
@@ -30,6 +30,9 @@ public class AlreadyIndexedException extends SchemaKernelException
     private static final String INDEX_CONTEXT_FORMAT = "There already exists an index for label '%s' on property '%s'.";
     private static final String CONSTRAINT_CONTEXT_FORMAT = "There already exists an index for label '%s' on property '%s'. " +
                                                             "A constraint cannot be created until the index has been dropped.";
+    private static final String COMPOSITE_INDEX_CONTEXT_FORMAT = "There already exists an index on %s.";
+    private static final String COMPOSITE_CONSTRAINT_CONTEXT_FORMAT = "There already exists an index on %s. " +
+                                                                      "A constraint cannot be created until the index has been dropped.";
 
     private final IndexDescriptor descriptor;
     private final OperationContext context;
@@ -44,6 +47,10 @@ public class AlreadyIndexedException extends SchemaKernelException
 
     private static String constructUserMessage( OperationContext context, TokenNameLookup tokenNameLookup, IndexDescriptor descriptor )
     {
+        if ( descriptor.isComposite() )
+        {
+            return compositeUserMessage( context, tokenNameLookup, descriptor );
+        }
         switch ( context )
         {
             case INDEX_CREATION:
@@ -57,6 +64,21 @@ public class AlreadyIndexedException extends SchemaKernelException
         }
     }
 
+    private static String compositeUserMessage( OperationContext context, TokenNameLookup tokenNameLookup,
+            IndexDescriptor descriptor )
+    {
+        String index = tokenNameLookup != null ? descriptor.userDescription( tokenNameLookup ) : descriptor.toString();
+        switch ( context )
+        {
+            case INDEX_CREATION:
+                return String.format( COMPOSITE_INDEX_CONTEXT_FORMAT, index );
+            case CONSTRAINT_CREATION:
+                return String.format( COMPOSITE_CONSTRAINT_CONTEXT_FORMAT, index );
+            default:
+                return String.format( NO_CONTEXT_FORMAT, descriptor );
+        }
+    }
+
     @Override
     public String getUserMessage( TokenNameLookup tokenNameLookup )
     {
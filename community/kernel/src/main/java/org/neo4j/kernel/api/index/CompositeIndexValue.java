@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.index;
+
+import java.util.Arrays;
+
+/**
+ * The value of a node in a composite index, which is the values of the properties of the index, in the order of the
+ * {@link IndexDescriptor#getPropertyKeyIds() property keys} of the index. A node is only in a composite index if it
+ * has all of those properties.
+ *
+ * Composite values are only looked up exactly, and are indexed by their {@link #encode() encoded form}, in which
+ * numbers are compared by their value regardless of their type, so that {@code 1} and {@code 1.0} are the same value
+ * but no two different longs are, even where their double values are the same.
+ */
+public final class CompositeIndexValue
+{
+    private final Object[] values;
+
+    public CompositeIndexValue( Object... values )
+    {
+        this.values = values.clone();
+    }
+
+    public int size()
+    {
+        return values.length;
+    }
+
+    public Object get( int index )
+    {
+        return values[index];
+    }
+
+    /**
+     * @return a string which is equal for equal composite values, and different for all others. Each value is
+     * encoded as a tag of its type, the length of its encoded form and that form, so that no two sequences of values
+     * encode to the same string.
+     */
+    public String encode()
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( Object value : values )
+        {
+            char type;
+            String encoded;
+            if ( value instanceof Number )
+            {
+                type = 'N';
+                encoded = encodeNumber( (Number) value );
+            }
+            else if ( value instanceof Boolean )
+            {
+                type = 'Z';
+                encoded = value.toString();
+            }
+            else if ( value.getClass().isArray() )
+            {
+                type = 'A';
+                encoded = ArrayEncoder.encode( value );
+            }
+            else
+            {
+                // Characters are indexed as strings, like they are in single property indexes
+                type = 'L';
+                encoded = value.toString();
+            }
+            builder.append( type ).append( encoded.length() ).append( ':' ).append( encoded );
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Integral numbers, and floating point numbers of an integral value in the range of long, are encoded as that
+     * long, so that longs above 2^53 keep their precision. Other floating point numbers are encoded as their double.
+     */
+    private static String encodeNumber( Number number )
+    {
+        if ( number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte )
+        {
+            return String.valueOf( number.longValue() );
+        }
+        double value = number.doubleValue();
+        if ( value == Math.rint( value ) && value >= Long.MIN_VALUE && value < Long.MAX_VALUE )
+        {
+            return String.valueOf( (long) value );
+        }
+        return String.valueOf( value );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        return this == obj || obj instanceof CompositeIndexValue &&
+                encode().equals( ((CompositeIndexValue) obj).encode() );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return encode().hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.deepToString( values );
+    }
+}
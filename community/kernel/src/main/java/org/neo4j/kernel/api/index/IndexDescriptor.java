@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.api.index;
 
+import java.util.Arrays;
+
 import org.neo4j.kernel.api.TokenNameLookup;
 
 import static java.lang.String.format;
@@ -27,16 +29,28 @@ import static java.lang.String.format;
  * Description of a single index as needed by the {@link org.neo4j.kernel.impl.api.index.IndexProxy} cake
  * <p/>
  * This is a IndexContext cake level representation of {@link org.neo4j.kernel.impl.store.record.IndexRule}
+ * <p/>
+ * A composite index covers more than one property, and indexes the nodes which have all of them, by a
+ * {@link CompositeIndexValue} of their values in the order of the property keys of the index.
  */
 public class IndexDescriptor
 {
     private final int labelId;
-    private final int propertyKeyId;
+    private final int[] propertyKeyIds;
 
     public IndexDescriptor( int labelId, int propertyKeyId )
     {
+        this( labelId, new int[]{propertyKeyId} );
+    }
+
+    public IndexDescriptor( int labelId, int[] propertyKeyIds )
+    {
+        if ( propertyKeyIds.length == 0 )
+        {
+            throw new IllegalArgumentException( "An index must cover at least one property" );
+        }
         this.labelId = labelId;
-        this.propertyKeyId = propertyKeyId;
+        this.propertyKeyIds = propertyKeyIds.clone();
     }
 
     @Override
@@ -50,7 +64,7 @@ public class IndexDescriptor
         {
             IndexDescriptor that = (IndexDescriptor) obj;
             return this.labelId == that.labelId &&
-                    this.propertyKeyId == that.propertyKeyId;
+                    Arrays.equals( this.propertyKeyIds, that.propertyKeyIds );
         }
         return false;
     }
@@ -59,7 +73,7 @@ public class IndexDescriptor
     public int hashCode()
     {
         int result = labelId;
-        result = 31 * result + propertyKeyId;
+        result = 31 * result + Arrays.hashCode( propertyKeyIds );
         return result;
     }
 
@@ -68,20 +82,64 @@ public class IndexDescriptor
         return labelId;
     }
 
+    /**
+     * @return the property key of a single property index.
+     * @throws UnsupportedOperationException if this is a composite index, which has several property keys and
+     * must be handled through {@link #getPropertyKeyIds()}.
+     */
     public int getPropertyKeyId()
     {
-        return propertyKeyId;
+        if ( isComposite() )
+        {
+            throw new UnsupportedOperationException( this + " is a composite index, of more than one property key" );
+        }
+        return propertyKeyIds[0];
+    }
+
+    public int[] getPropertyKeyIds()
+    {
+        return propertyKeyIds.clone();
+    }
+
+    public boolean isComposite()
+    {
+        return propertyKeyIds.length > 1;
+    }
+
+    /**
+     * @return whether or not this index covers the given property.
+     */
+    public boolean covers( int propertyKeyId )
+    {
+        for ( int candidate : propertyKeyIds )
+        {
+            if ( candidate == propertyKeyId )
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public String toString()
     {
-        return format( ":label[%d](property[%d])", labelId, propertyKeyId );
+        StringBuilder properties = new StringBuilder();
+        for ( int propertyKeyId : propertyKeyIds )
+        {
+            properties.append( properties.length() == 0 ? "" : ", " ).append( format( "property[%d]", propertyKeyId ) );
+        }
+        return format( ":label[%d](%s)", labelId, properties );
     }
 
     public String userDescription( TokenNameLookup tokenNameLookup )
     {
-        return format( ":%s(%s)",
-                tokenNameLookup.labelGetName( labelId ), tokenNameLookup.propertyKeyGetName( propertyKeyId ) );
+        StringBuilder properties = new StringBuilder();
+        for ( int propertyKeyId : propertyKeyIds )
+        {
+            properties.append( properties.length() == 0 ? "" : ", " )
+                      .append( tokenNameLookup.propertyKeyGetName( propertyKeyId ) );
+        }
+        return format( ":%s(%s)", tokenNameLookup.labelGetName( labelId ), properties );
     }
 }
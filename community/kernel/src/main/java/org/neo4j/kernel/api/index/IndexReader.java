@@ -43,6 +43,26 @@ public interface IndexReader extends Resource
             return PrimitiveLongCollections.emptyIterator();
         }
 
+        @Override
+        public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                        Number upper, boolean includeUpper )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                        String upper, boolean includeUpper )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
         // Used for checking index correctness
         @Override
         public int getIndexedCount( long nodeId, Object propertyValue )
@@ -63,6 +83,31 @@ public interface IndexReader extends Resource
         }
     };
 
+    /**
+     * Finds the nodes with numbers in a range, where a {@code null} bound leaves that end of the range open.
+     *
+     * Range seeks are only as precise as the index, which may for example keep numbers as doubles, and so may
+     * find nodes with values just outside of the range. Callers have to check the values of the nodes they find.
+     * Indexes which keep their entries ordered return the nodes in the order of their values.
+     * Only nodes with numbers are found; values of other types are never compared with the bounds.
+     */
+    PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower, Number upper, boolean includeUpper );
+
+    /**
+     * Finds the nodes with strings in a range, where a {@code null} bound leaves that end of the range open.
+     * Strings are compared by their UTF-8 bytes, which orders them like their code points.
+     *
+     * @see #rangeSeekByNumber(Number, boolean, Number, boolean) for the precision of range seeks.
+     */
+    PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper, boolean includeUpper );
+
+    /**
+     * Finds the nodes with strings starting with the given prefix.
+     *
+     * @see #rangeSeekByNumber(Number, boolean, Number, boolean) for the precision of range seeks.
+     */
+    PrimitiveLongIterator rangeSeekByPrefix( String prefix );
+
     /**
      * Number of nodes indexed by the given property
      */
@@ -91,6 +136,26 @@ public interface IndexReader extends Resource
             return delegate.lookup( value );
         }
 
+        @Override
+        public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                        Number upper, boolean includeUpper )
+        {
+            return delegate.rangeSeekByNumber( lower, includeLower, upper, includeUpper );
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                        String upper, boolean includeUpper )
+        {
+            return delegate.rangeSeekByString( lower, includeLower, upper, includeUpper );
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+        {
+            return delegate.rangeSeekByPrefix( prefix );
+        }
+
         @Override
         public int getIndexedCount( long nodeId, Object propertyValue )
         {
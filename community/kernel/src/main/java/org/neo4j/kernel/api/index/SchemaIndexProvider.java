@@ -22,6 +22,7 @@ package org.neo4j.kernel.api.index;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -150,6 +151,40 @@ public abstract class SchemaIndexProvider extends LifecycleAdapter
         }
     };
 
+    /**
+     * Selects the provider with the given key as default provider, or the highest prioritized one if no key is
+     * given. All candidates are added to {@code allProviders}, so that indexes created by any of them can be opened.
+     */
+    public static SelectionStrategy selectByKeyOrHighestPrioritized( final String key,
+            final Collection<SchemaIndexProvider> allProviders )
+    {
+        return new SelectionStrategy()
+        {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T select( Class<T> type, Iterable<T> candidates ) throws IllegalArgumentException
+            {
+                T selected = HIGHEST_PRIORITIZED_OR_NONE.select( type, candidates );
+                addToCollection( (Iterable<SchemaIndexProvider>) candidates, allProviders );
+                if ( key == null )
+                {
+                    return selected;
+                }
+                List<Descriptor> available = new ArrayList<>();
+                for ( SchemaIndexProvider candidate : allProviders )
+                {
+                    if ( candidate.getProviderDescriptor().getKey().equals( key ) )
+                    {
+                        return (T) candidate;
+                    }
+                    available.add( candidate.getProviderDescriptor() );
+                }
+                throw new IllegalArgumentException( "No schema index provider with key '" + key + "' found, " +
+                        "available providers are " + available + ". " + servicesClassPathEntryInformation() );
+            }
+        };
+    }
+
     protected final int priority;
     private final Descriptor providerDescriptor;
 
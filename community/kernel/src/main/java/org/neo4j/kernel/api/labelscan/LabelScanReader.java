@@ -30,6 +30,13 @@ public interface LabelScanReader
 {
     PrimitiveLongIterator nodesWithLabel( int labelId );
 
+    /**
+     * @param labelIds one or more label ids.
+     * @return ids of the nodes that have all of the given labels. The label scan store is consulted for all of the
+     * labels together, so that nodes only having some of them can be skipped without being looked at.
+     */
+    PrimitiveLongIterator nodesWithAllLabels( int... labelIds );
+
     Iterator<Long> labelsForNode( long nodeId );
 
     void close();
@@ -42,6 +49,12 @@ public interface LabelScanReader
             return PrimitiveLongCollections.emptyIterator();
         }
 
+        @Override
+        public PrimitiveLongIterator nodesWithAllLabels( int... labelIds )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
         @Override
         public Iterator<Long> labelsForNode( long nodeId )
         {
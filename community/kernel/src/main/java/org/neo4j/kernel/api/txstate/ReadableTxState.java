@@ -24,6 +24,7 @@ import java.util.Iterator;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphdb.Direction;
+import org.neo4j.helpers.Predicate;
 import org.neo4j.kernel.api.constraints.UniquenessConstraint;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.properties.DefinedProperty;
@@ -45,6 +46,12 @@ public interface ReadableTxState
 
     boolean hasChanges();
 
+    /**
+     * The number of times nodes, relationships or labels of nodes have been created or deleted in this tx, for
+     * telling whether what has been computed from them, like the counts of the tx, is still current.
+     */
+    long entityChanges();
+
     // ENTITY RELATED
 
     /** Returns all nodes that, in this tx, have had labelId removed. */
@@ -134,4 +141,10 @@ public interface ReadableTxState
     Long indexCreatedForConstraint( UniquenessConstraint constraint );
 
     ReadableDiffSets<Long> indexUpdates( IndexDescriptor index, Object value );
+
+    /**
+     * The index updates of all values accepted by the given filter, like for a range seek. A node which has changed
+     * from one accepted value to another is only part of the added nodes.
+     */
+    ReadableDiffSets<Long> indexUpdatesByValue( IndexDescriptor index, Predicate<Object> valueFilter );
 }
@@ -22,6 +22,7 @@ package org.neo4j.kernel.api.txstate;
 import java.util.Map;
 
 import org.neo4j.kernel.api.constraints.UniquenessConstraint;
+import org.neo4j.kernel.api.index.CompositeIndexValue;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.properties.DefinedProperty;
 import org.neo4j.kernel.api.properties.Property;
@@ -98,4 +99,11 @@ public interface TransactionState extends ReadableTxState
     // </Legacy index>
 
     void indexDoUpdateProperty( IndexDescriptor descriptor, long nodeId, DefinedProperty before, DefinedProperty after );
+
+    /**
+     * Moves the node between the values of a composite index, where a {@code null} value means that the node is not
+     * in the index, either before or after the change.
+     */
+    void compositeIndexDoUpdate( IndexDescriptor descriptor, long nodeId,
+                                 CompositeIndexValue before, CompositeIndexValue after );
 }
@@ -47,6 +47,13 @@ public interface CountsAccessor extends CountsVisitor.Visitable
      */
     DoubleLongRegister indexSample( int labelId, int propertyKeyId, DoubleLongRegister target );
 
+    /**
+     * @param slot the slot of the distinct value sketch of the index to read
+     * @param target a register to store the read values in
+     * @return the input register for convenience
+     */
+    DoubleLongRegister indexSketch( int labelId, int propertyKeyId, int slot, DoubleLongRegister target );
+
     void incrementNodeCount( int labelId, long delta );
 
     void incrementRelationshipCount( int startLabelId, int typeId, int endLabelId, long delta );
@@ -57,6 +64,8 @@ public interface CountsAccessor extends CountsVisitor.Visitable
 
     void replaceIndexSample( int labelId, int propertyKeyId, long unique, long size );
 
+    void replaceIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second );
+
     final class Initializer implements CountsVisitor
     {
         private final CountsAccessor target;
@@ -89,5 +98,11 @@ public interface CountsAccessor extends CountsVisitor.Visitable
         {
             target.replaceIndexSample( labelId, propertyKeyId, unique, size );
         }
+
+        @Override
+        public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+        {
+            target.replaceIndexSketch( labelId, propertyKeyId, slot, first, second );
+        }
     }
 }
@@ -38,6 +38,7 @@ import static org.neo4j.kernel.impl.store.counts.CountsRecordSerializer.DEFAULT_
 import static org.neo4j.kernel.impl.store.counts.CountsRecordSerializer.DEFAULT_SECOND_VALUE;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexCountsKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSampleKey;
+import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSketchKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.nodeKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relationshipKey;
 
@@ -75,6 +76,13 @@ public class CountsRecordState implements CountsAccessor, RecordState
         return target;
     }
 
+    @Override
+    public DoubleLongRegister indexSketch( int labelId, int propertyKeyId, int slot, DoubleLongRegister target )
+    {
+        counts( indexSketchKey( labelId, propertyKeyId, slot ) ).copyTo( target );
+        return target;
+    }
+
     @Override
     public void incrementRelationshipCount( int startLabelId, int typeId, int endLabelId, long delta )
     {
@@ -107,6 +115,12 @@ public class CountsRecordState implements CountsAccessor, RecordState
         counts( indexSampleKey( labelId, propertyKeyId ) ).write( unique, size );
     }
 
+    @Override
+    public void replaceIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+    {
+        counts( indexSketchKey( labelId, propertyKeyId, slot ) ).write( first, second );
+    }
+
     @Override
     public void accept( CountsVisitor visitor )
     {
@@ -320,6 +334,12 @@ public class CountsRecordState implements CountsAccessor, RecordState
             verify( indexSampleKey( labelId, propertyKeyId ), unique, size );
         }
 
+        @Override
+        public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+        {
+            verify( indexSketchKey( labelId, propertyKeyId, slot ), first, second );
+        }
+
         private void verify( CountsKey key, long actualFirst, long actualSecond )
         {
             DoubleLongRegister expected = counts.remove( key );
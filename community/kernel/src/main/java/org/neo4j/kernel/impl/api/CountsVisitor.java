@@ -34,6 +34,8 @@ public interface CountsVisitor
 
     void visitIndexSample( int labelId, int propertyKeyId, long unique, long size );
 
+    void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second );
+
     public static class Adapter implements CountsVisitor
     {
         @Override
@@ -59,5 +61,11 @@ public interface CountsVisitor
         {
             // override in subclasses
         }
+
+        @Override
+        public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+        {
+            // override in subclasses
+        }
     }
 }
@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.api;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.neo4j.kernel.api.Statement;
@@ -102,11 +103,11 @@ public class DataIntegrityValidatingStatementOperations implements
     }
 
     @Override
-    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int propertyKey )
+    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int... propertyKeys )
             throws AddIndexFailureException, AlreadyIndexedException, AlreadyConstrainedException
     {
-        checkIndexExistence( state, OperationContext.INDEX_CREATION, labelId, propertyKey );
-        return schemaWriteDelegate.indexCreate( state, labelId, propertyKey );
+        checkIndexExistence( state, OperationContext.INDEX_CREATION, labelId, propertyKeys );
+        return schemaWriteDelegate.indexCreate( state, labelId, propertyKeys );
     }
 
     @Override
@@ -163,19 +164,19 @@ public class DataIntegrityValidatingStatementOperations implements
         schemaWriteDelegate.constraintDrop( state, constraint );
     }
 
-    private void checkIndexExistence( KernelStatement state, OperationContext context, int labelId, int propertyKey )
-            throws AlreadyIndexedException, AlreadyConstrainedException
+    private void checkIndexExistence( KernelStatement state, OperationContext context, int labelId,
+                                      int... propertyKeys ) throws AlreadyIndexedException, AlreadyConstrainedException
     {
         for ( IndexDescriptor descriptor : loop( schemaReadDelegate.indexesGetForLabel( state, labelId ) ) )
         {
-            if ( descriptor.getPropertyKeyId() == propertyKey )
+            if ( Arrays.equals( descriptor.getPropertyKeyIds(), propertyKeys ) )
             {
                 throw new AlreadyIndexedException( descriptor, context );
             }
         }
         for ( IndexDescriptor descriptor : loop( schemaReadDelegate.uniqueIndexesGetForLabel( state, labelId ) ) )
         {
-            if ( descriptor.getPropertyKeyId() == propertyKey )
+            if ( Arrays.equals( descriptor.getPropertyKeyIds(), propertyKeys ) )
             {
                 throw new AlreadyConstrainedException(
                         new UniquenessConstraint( descriptor.getLabelId(), descriptor.getPropertyKeyId() ), context );
@@ -199,7 +200,7 @@ public class DataIntegrityValidatingStatementOperations implements
         while ( uniqueIndexes.hasNext() )
         {
             IndexDescriptor uniqueIndex = uniqueIndexes.next();
-            if ( uniqueIndex.getPropertyKeyId() == descriptor.getPropertyKeyId() )
+            if ( Arrays.equals( uniqueIndex.getPropertyKeyIds(), descriptor.getPropertyKeyIds() ) )
             {
                 throw new IndexBelongsToConstraintException( descriptor );
             }
@@ -211,7 +212,7 @@ public class DataIntegrityValidatingStatementOperations implements
     {
         for ( IndexDescriptor existing : loop( indexes ) )
         {
-            if ( existing.getPropertyKeyId() == descriptor.getPropertyKeyId() )
+            if ( Arrays.equals( existing.getPropertyKeyIds(), descriptor.getPropertyKeyIds() ) )
             {
                 return;
             }
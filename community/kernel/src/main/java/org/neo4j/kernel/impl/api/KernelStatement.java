@@ -45,6 +45,8 @@ public class KernelStatement implements TxStateHolder, Statement
     private final KernelTransactionImplementation transaction;
     private final OperationsFacade facade;
     private LabelScanReader labelScanReader;
+    private CountsRecordState txCounts;
+    private long txCountsEntityChanges;
     private int referenceCount;
     private boolean closed;
 
@@ -152,6 +154,21 @@ public class KernelStatement implements TxStateHolder, Statement
         return labelScanReader;
     }
 
+    /**
+     * The counts of the transaction as last computed in this statement, or {@code null} if nodes, relationships or
+     * labels have changed in the transaction since.
+     */
+    CountsRecordState getTxCounts()
+    {
+        return txCounts != null && txCountsEntityChanges == txState().entityChanges() ? txCounts : null;
+    }
+
+    void setTxCounts( CountsRecordState counts )
+    {
+        this.txCounts = counts;
+        this.txCountsEntityChanges = txState().entityChanges();
+    }
+
     final void acquire()
     {
         referenceCount++;
@@ -25,14 +25,11 @@ import java.util.Map;
 import java.util.Set;
 
 import org.neo4j.collection.pool.Pool;
-import org.neo4j.collection.primitive.PrimitiveIntCollections;
-import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.helpers.Clock;
 import org.neo4j.helpers.ThisShouldNotHappenError;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.api.Statement;
 import org.neo4j.kernel.api.constraints.UniquenessConstraint;
-import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
 import org.neo4j.kernel.api.exceptions.InvalidTransactionTypeKernelException;
 import org.neo4j.kernel.api.exceptions.Status;
 import org.neo4j.kernel.api.exceptions.TransactionFailureException;
@@ -66,9 +63,6 @@ import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.state.TransactionRecordState;
 import org.neo4j.kernel.impl.util.collection.ArrayCollection;
 
-import static org.neo4j.kernel.api.ReadOperations.ANY_LABEL;
-import static org.neo4j.kernel.api.ReadOperations.ANY_RELATIONSHIP_TYPE;
-
 /**
  * This class should replace the {@link org.neo4j.kernel.api.KernelTransaction} interface, and take its name, as soon
  * as
@@ -138,6 +132,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
     private final StoreReadLayer storeLayer;
     private final Clock clock;
     private final TransactionToRecordStateVisitor txStateToRecordStateVisitor = new TransactionToRecordStateVisitor();
+    private final TransactionCountingStateVisitor txStateCountingVisitor;
     private final Collection<Command> extractedCommands = new ArrayCollection<>( 32 );
     private TransactionState txState;
     private LegacyIndexTransactionState legacyIndexTransactionState;
@@ -188,6 +183,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         this.transactionMonitor = transactionMonitor;
         this.persistenceCache = persistenceCache;
         this.storeLayer = storeLayer;
+        this.txStateCountingVisitor = new TransactionCountingStateVisitor( storeLayer, this, counts, false );
         this.legacyIndexTransactionState = new CachingLegacyIndexTransactionState( legacyIndexTransactionState );
         this.pool = pool;
         this.clock = clock;
@@ -580,7 +576,6 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
 
     private class TransactionToRecordStateVisitor extends TxStateVisitor.Adapter
     {
-        private final RelationshipDataExtractor relationshipData = new RelationshipDataExtractor();
         private boolean clearState;
 
         void done()
@@ -607,60 +602,14 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         @Override
         public void visitDeletedNode( long id )
         {
-            try
-            {
-                PrimitiveIntIterator labels = storeLayer.nodeGetLabels( id );
-                if ( labels.hasNext() )
-                {
-                    final int[] removed = PrimitiveIntCollections.asArray( labels );
-                    storeLayer.nodeVisitDegrees( id, new DegreeVisitor()
-                    {
-                        @Override
-                        public void visitDegree( int type, int outgoing, int incoming )
-                        {
-                            for ( int label : removed )
-                            {
-                                // untyped
-                                counts.incrementRelationshipCount( label, -1, -1, -outgoing );
-                                counts.incrementRelationshipCount( -1, -1, label, -incoming );
-                                // typed
-                                counts.incrementRelationshipCount( label, type, -1, -outgoing );
-                                counts.incrementRelationshipCount( -1, type, label, -incoming );
-                            }
-                        }
-                    } );
-                }
-            }
-            catch ( EntityNotFoundException e )
-            {
-                // this should not happen, but I guess it means the node we deleted did not exist...?
-            }
+            txStateCountingVisitor.visitDeletedNode( id );
             recordState.nodeDelete( id );
         }
 
         @Override
         public void visitCreatedRelationship( long id, int type, long startNode, long endNode )
         {
-            try
-            {
-                // update counts
-                for ( PrimitiveIntIterator labels = labelsOf( startNode ); labels.hasNext(); )
-                {
-                    int label = labels.next();
-                    counts.incrementRelationshipCount( label, ANY_RELATIONSHIP_TYPE, ANY_LABEL, 1 );
-                    counts.incrementRelationshipCount( label, type, ANY_LABEL, 1 );
-                }
-                for ( PrimitiveIntIterator labels = labelsOf( endNode ); labels.hasNext(); )
-                {
-                    int label = labels.next();
-                    counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, label, 1 );
-                    counts.incrementRelationshipCount( ANY_LABEL, type, label, 1 );
-                }
-            }
-            catch ( EntityNotFoundException e )
-            {
-                throw new IllegalStateException( "Nodes with added relationships should exist.", e );
-            }
+            txStateCountingVisitor.visitCreatedRelationship( id, type, startNode, endNode );
 
             // record the state changes to be made to the store
             recordState.relCreate( id, type, startNode, endNode );
@@ -669,38 +618,12 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         @Override
         public void visitDeletedRelationship( long id )
         {
-            try
-            {
-                // update counts
-                storeLayer.relationshipVisit( id, relationshipData );
-                for ( PrimitiveIntIterator labels = labelsOf( relationshipData.startNode() ); labels.hasNext(); )
-                {
-                    int label = labels.next();
-                    counts.incrementRelationshipCount( label, ANY_RELATIONSHIP_TYPE, ANY_LABEL, -1 );
-                    counts.incrementRelationshipCount( label, relationshipData.type(), ANY_LABEL, -1 );
-                }
-                for ( PrimitiveIntIterator labels = labelsOf( relationshipData.endNode() ); labels.hasNext(); )
-                {
-                    int label = labels.next();
-                    counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, label, -1 );
-                    counts.incrementRelationshipCount( ANY_LABEL, relationshipData.type(), label, -1 );
-                }
-            }
-            catch ( EntityNotFoundException e )
-            {
-                throw new IllegalStateException(
-                        "Relationship being deleted should exist along with its nodes.", e );
-            }
+            txStateCountingVisitor.visitDeletedRelationship( id );
 
             // record the state changes to be made to the store
             recordState.relDelete( id );
         }
 
-        private PrimitiveIntIterator labelsOf( long nodeId ) throws EntityNotFoundException
-        {
-            return StateHandlingStatementOperations.nodeGetLabels( storeLayer, txState, nodeId );
-        }
-
         @Override
         public void visitNodePropertyChanges( long id, Iterator<DefinedProperty> added,
                                               Iterator<DefinedProperty> changed, Iterator<Integer> removed )
@@ -764,37 +687,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         @Override
         public void visitNodeLabelChanges( long id, final Set<Integer> added, final Set<Integer> removed )
         {
-            // update counts
-            if ( !(added.isEmpty() && removed.isEmpty()) )
-            {
-                // get the relationship counts from *before* this transaction,
-                // the relationship changes will compensate for what happens during the transaction
-                storeLayer.nodeVisitDegrees( id, new DegreeVisitor()
-                {
-                    @Override
-                    public void visitDegree( int type, int outgoing, int incoming )
-                    {
-                        for ( Integer label : added )
-                        {
-                            // untyped
-                            counts.incrementRelationshipCount( label, -1, -1, outgoing );
-                            counts.incrementRelationshipCount( -1, -1, label, incoming );
-                            // typed
-                            counts.incrementRelationshipCount( label, type, -1, outgoing );
-                            counts.incrementRelationshipCount( -1, type, label, incoming );
-                        }
-                        for ( Integer label : removed )
-                        {
-                            // untyped
-                            counts.incrementRelationshipCount( label, -1, -1, -outgoing );
-                            counts.incrementRelationshipCount( -1, -1, label, -incoming );
-                            // typed
-                            counts.incrementRelationshipCount( label, type, -1, -outgoing );
-                            counts.incrementRelationshipCount( -1, type, label, -incoming );
-                        }
-                    }
-                } );
-            }
+            txStateCountingVisitor.visitNodeLabelChanges( id, added, removed );
 
             // record the state changes to be made to the store
             for ( Integer label : removed )
@@ -822,7 +715,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             else
             {
                 rule = IndexRule.indexRule( schemaStorage.newRuleId(), element.getLabelId(),
-                        element.getPropertyKeyId(), providerDescriptor );
+                        element.getPropertyKeyIds(), providerDescriptor );
             }
             recordState.createSchemaRule( rule );
         }
@@ -833,7 +726,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             SchemaStorage.IndexRuleKind kind = isConstraintIndex ?
                                                SchemaStorage.IndexRuleKind.CONSTRAINT
                                                                  : SchemaStorage.IndexRuleKind.INDEX;
-            IndexRule rule = schemaStorage.indexRule( element.getLabelId(), element.getPropertyKeyId(), kind );
+            IndexRule rule = schemaStorage.indexRule( element, kind );
             recordState.dropSchemaRule( rule );
         }
 
@@ -106,11 +106,11 @@ public class LockingStatementOperations implements
     }
 
     @Override
-    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int propertyKey )
+    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int... propertyKeys )
             throws AddIndexFailureException, AlreadyIndexedException, AlreadyConstrainedException
     {
         state.locks().acquireExclusive( ResourceTypes.SCHEMA, schemaResource() );
-        return schemaWriteDelegate.indexCreate( state, labelId, propertyKey );
+        return schemaWriteDelegate.indexCreate( state, labelId, propertyKeys );
     }
 
     @Override
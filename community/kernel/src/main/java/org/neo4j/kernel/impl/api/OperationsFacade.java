@@ -164,6 +164,24 @@ public class OperationsFacade implements ReadOperations, DataWriteOperations, Sc
         return dataRead().nodesGetForLabel( statement, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForLabels( int... labelIds )
+    {
+        statement.assertOpen();
+        for ( int labelId : labelIds )
+        {
+            if ( labelId == StatementConstants.NO_SUCH_LABEL )
+            {
+                return PrimitiveLongCollections.emptyIterator();
+            }
+        }
+        if ( labelIds.length == 1 )
+        {
+            return dataRead().nodesGetForLabel( statement, labelIds[0] );
+        }
+        return dataRead().nodesGetForLabels( statement, labelIds );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexLookup( IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException
@@ -172,6 +190,32 @@ public class OperationsFacade implements ReadOperations, DataWriteOperations, Sc
         return dataRead().nodesGetFromIndexLookup( statement, index, value );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( IndexDescriptor index, Number lower,
+            boolean includeLower, Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        statement.assertOpen();
+        return dataRead().nodesGetFromIndexRangeSeekByNumber( statement, index, lower, includeLower, upper,
+                includeUpper );
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( IndexDescriptor index, String lower,
+            boolean includeLower, String upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        statement.assertOpen();
+        return dataRead().nodesGetFromIndexRangeSeekByString( statement, index, lower, includeLower, upper,
+                includeUpper );
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByPrefix( IndexDescriptor index, String prefix )
+            throws IndexNotFoundKernelException
+    {
+        statement.assertOpen();
+        return dataRead().nodesGetFromIndexRangeSeekByPrefix( statement, index, prefix );
+    }
+
     @Override
     public long nodeGetUniqueFromIndexLookup( IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException, IndexBrokenKernelException
@@ -664,11 +708,11 @@ public class OperationsFacade implements ReadOperations, DataWriteOperations, Sc
 
     // <SchemaWrite>
     @Override
-    public IndexDescriptor indexCreate( int labelId, int propertyKeyId )
+    public IndexDescriptor indexCreate( int labelId, int... propertyKeyIds )
             throws AddIndexFailureException, AlreadyIndexedException, AlreadyConstrainedException
     {
         statement.assertOpen();
-        return schemaWrite().indexCreate( statement, labelId, propertyKeyId );
+        return schemaWrite().indexCreate( statement, labelId, propertyKeyIds );
     }
 
     @Override
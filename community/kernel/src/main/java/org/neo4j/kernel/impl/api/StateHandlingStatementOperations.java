@@ -25,10 +25,12 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveIntCollections;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.cursor.Cursor;
 import org.neo4j.function.primitive.PrimitiveLongPredicate;
 import org.neo4j.graphdb.Direction;
@@ -53,6 +55,7 @@ import org.neo4j.kernel.api.exceptions.schema.IllegalTokenNameException;
 import org.neo4j.kernel.api.exceptions.schema.IndexBrokenKernelException;
 import org.neo4j.kernel.api.exceptions.schema.SchemaRuleNotFoundException;
 import org.neo4j.kernel.api.exceptions.schema.TooManyLabelsException;
+import org.neo4j.kernel.api.index.CompositeIndexValue;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.properties.DefinedProperty;
@@ -60,6 +63,7 @@ import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.kernel.api.properties.PropertyKeyIdIterator;
 import org.neo4j.kernel.api.txstate.ReadableTxState;
 import org.neo4j.kernel.api.txstate.TransactionState;
+import org.neo4j.kernel.impl.api.index.IndexSeekRanges;
 import org.neo4j.kernel.impl.api.operations.CountsOperations;
 import org.neo4j.kernel.impl.api.operations.EntityOperations;
 import org.neo4j.kernel.impl.api.operations.KeyReadOperations;
@@ -86,6 +90,7 @@ import static org.neo4j.helpers.collection.IteratorUtil.iterator;
 import static org.neo4j.helpers.collection.IteratorUtil.resourceIterator;
 import static org.neo4j.helpers.collection.IteratorUtil.singleOrNull;
 import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_NODE;
+import static org.neo4j.register.Registers.newDoubleLongRegister;
 
 public class StateHandlingStatementOperations implements
         KeyReadOperations,
@@ -309,6 +314,7 @@ public class StateHandlingStatementOperations implements
             DefinedProperty property = properties.next();
             indexUpdateProperty( state, nodeId, labelId, property.propertyKeyId(), null, property );
         }
+        compositeIndexesUpdateLabel( state, nodeId, labelId, true );
         return true;
     }
 
@@ -327,6 +333,7 @@ public class StateHandlingStatementOperations implements
             DefinedProperty property = properties.next();
             indexUpdateProperty( state, nodeId, labelId, property.propertyKeyId(), property, null );
         }
+        compositeIndexesUpdateLabel( state, nodeId, labelId, false );
         return true;
     }
 
@@ -345,9 +352,80 @@ public class StateHandlingStatementOperations implements
     }
 
     @Override
-    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int propertyKey )
+    public PrimitiveLongIterator nodesGetForLabels( final KernelStatement state, final int... labelIds )
     {
-        IndexDescriptor rule = new IndexDescriptor( labelId, propertyKey );
+        if ( state.hasTxStateWithChanges() )
+        {
+            final ReadableTxState txState = state.txState();
+            // Nodes which got any of the labels in this transaction may now have all of them, so each is checked
+            final PrimitiveLongSet changedNodes = Primitive.longSet();
+            for ( int labelId : labelIds )
+            {
+                for ( Long nodeId : txState.nodesWithLabelChanged( labelId ).getAdded() )
+                {
+                    changedNodes.add( nodeId );
+                }
+            }
+            PrimitiveLongIterator committed = PrimitiveLongCollections.filter(
+                    storeLayer.nodesGetForLabels( state, labelIds ), new PrimitiveLongPredicate()
+                    {
+                        @Override
+                        public boolean accept( long nodeId )
+                        {
+                            return !changedNodes.contains( nodeId ) && !anyLabelRemoved( txState, nodeId, labelIds );
+                        }
+                    } );
+            PrimitiveLongIterator changed = PrimitiveLongCollections.filter( changedNodes.iterator(),
+                    new PrimitiveLongPredicate()
+                    {
+                        @Override
+                        public boolean accept( long nodeId )
+                        {
+                            return hasAllLabels( state, nodeId, labelIds );
+                        }
+                    } );
+            return txState.addedAndRemovedNodes().augmentWithRemovals(
+                    PrimitiveLongCollections.concat( iterator( committed, changed ) ) );
+        }
+
+        return storeLayer.nodesGetForLabels( state, labelIds );
+    }
+
+    private static boolean anyLabelRemoved( ReadableTxState txState, long nodeId, int[] labelIds )
+    {
+        for ( int labelId : labelIds )
+        {
+            if ( txState.nodesWithLabelChanged( labelId ).isRemoved( nodeId ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAllLabels( KernelStatement state, long nodeId, int[] labelIds )
+    {
+        try
+        {
+            for ( int labelId : labelIds )
+            {
+                if ( !nodeHasLabel( state, nodeId, labelId ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch ( EntityNotFoundException e )
+        {
+            return false;
+        }
+    }
+
+    @Override
+    public IndexDescriptor indexCreate( KernelStatement state, int labelId, int... propertyKeys )
+    {
+        IndexDescriptor rule = new IndexDescriptor( labelId, propertyKeys );
         state.txState().indexRuleDoAdd( rule );
         return rule;
     }
@@ -484,7 +562,7 @@ public class StateHandlingStatementOperations implements
             @Override
             public boolean accept( IndexDescriptor item )
             {
-                return item.getPropertyKeyId() == propertyKey;
+                return !item.isComposite() && item.getPropertyKeyId() == propertyKey;
             }
         };
         return filter( predicate, descriptorIterator );
@@ -521,10 +599,10 @@ public class StateHandlingStatementOperations implements
         }
         if ( diffSet.isRemoved( indexRule ) )
         {
-            throw new IndexNotFoundKernelException( String.format( "Index for label id %d on property id %d has been " +
+            throw new IndexNotFoundKernelException( String.format( "Index for label id %d on property id %s has been " +
                             "dropped in this transaction.",
                     indexRule.getLabelId(),
-                    indexRule.getPropertyKeyId() ) );
+                    propertyKeyIdsOf( indexRule ) ) );
         }
         return false;
     }
@@ -597,12 +675,103 @@ public class StateHandlingStatementOperations implements
         return resourceIterator( changeFilteredMatches, committed );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state, IndexDescriptor index,
+            Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        PrimitiveLongResourceIterator committed = storeLayer.nodesGetFromIndexRangeSeekByNumber( state, index,
+                lower, includeLower, upper, includeUpper );
+        return rangeSeekResult( state, index, committed,
+                IndexSeekRanges.numberRange( lower, includeLower, upper, includeUpper ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement state, IndexDescriptor index,
+            String lower, boolean includeLower, String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        PrimitiveLongResourceIterator committed = storeLayer.nodesGetFromIndexRangeSeekByString( state, index,
+                lower, includeLower, upper, includeUpper );
+        return rangeSeekResult( state, index, committed,
+                IndexSeekRanges.stringRange( lower, includeLower, upper, includeUpper ) );
+    }
+
+    private static Object propertyKeyIdsOf( IndexDescriptor index )
+    {
+        return index.isComposite() ? Arrays.toString( index.getPropertyKeyIds() ) : index.getPropertyKeyId();
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state, IndexDescriptor index,
+            String prefix ) throws IndexNotFoundKernelException
+    {
+        PrimitiveLongResourceIterator committed = storeLayer.nodesGetFromIndexRangeSeekByPrefix( state, index,
+                prefix );
+        return rangeSeekResult( state, index, committed, IndexSeekRanges.stringPrefix( prefix ) );
+    }
+
+    /**
+     * Range seeks may be imprecise, f.ex. for long strings, so the nodes are verified against the range after the
+     * changes of this transaction have been applied, which also leaves out nodes deleted in this transaction.
+     */
+    private PrimitiveLongIterator rangeSeekResult( KernelStatement state, IndexDescriptor index,
+            PrimitiveLongResourceIterator committed, Predicate<Object> inRange )
+    {
+        PrimitiveLongIterator nodeIds = committed;
+        if ( state.hasTxStateWithChanges() )
+        {
+            ReadableDiffSets<Long> labelPropertyChanges = state.txState().indexUpdatesByValue( index, inRange );
+            ReadableDiffSets<Long> nodes = state.txState().addedAndRemovedNodes();
+            nodeIds = nodes.augmentWithRemovals( labelPropertyChanges.augment( nodeIds ) );
+        }
+        PrimitiveLongIterator matches = PrimitiveLongCollections.filter( nodeIds,
+                valueMatch( state, index.getPropertyKeyId(), inRange ) );
+        return resourceIterator( matches, committed );
+    }
+
+    private PrimitiveLongPredicate valueMatch( final KernelStatement state, final int propertyKeyId,
+            final Predicate<Object> valueFilter )
+    {
+        return new PrimitiveLongPredicate()
+        {
+            @Override
+            public boolean accept( long nodeId )
+            {
+                try
+                {
+                    Object value = nodeGetProperty( state, nodeId, propertyKeyId ).value( null );
+                    return value != null && valueFilter.accept( value );
+                }
+                catch ( EntityNotFoundException e )
+                {
+                    throw new ThisShouldNotHappenError( "Mattias", "An index claims a node by id " + nodeId +
+                            " is in range. However, it looks like that node does not exist.", e );
+                }
+            }
+        };
+    }
+
     private PrimitiveLongIterator filterExactIndexMatches(
             KernelStatement state,
             IndexDescriptor index,
             Object value,
             PrimitiveLongIterator committed )
     {
+        if ( value instanceof CompositeIndexValue )
+        {
+            CompositeIndexValue composite = (CompositeIndexValue) value;
+            int[] propertyKeyIds = index.getPropertyKeyIds();
+            for ( int i = 0; i < propertyKeyIds.length; i++ )
+            {
+                if ( isNumberOrArray( composite.get( i ) ) )
+                {
+                    committed = PrimitiveLongCollections.filter( committed,
+                            exactMatch( state, propertyKeyIds[i], composite.get( i ) ) );
+                }
+            }
+            return committed;
+        }
         if ( isNumberOrArray( value ) )
         {
             return PrimitiveLongCollections.filter( committed, exactMatch( state, index.getPropertyKeyId(), value ) );
@@ -742,10 +911,77 @@ public class StateHandlingStatementOperations implements
     {
         for ( PrimitiveIntIterator labels = nodeGetLabels( state, nodeId ); labels.hasNext(); )
         {
-            indexUpdateProperty( state, nodeId, labels.next(), propertyKey, before, after );
+            int labelId = labels.next();
+            indexUpdateProperty( state, nodeId, labelId, propertyKey, before, after );
+            compositeIndexesUpdateProperty( state, nodeId, labelId, propertyKey, before );
         }
     }
 
+    /**
+     * Called after the label has been added to or removed from the node, whose properties are unchanged.
+     */
+    private void compositeIndexesUpdateLabel( KernelStatement state, long nodeId, int labelId, boolean added )
+            throws EntityNotFoundException
+    {
+        for ( Iterator<IndexDescriptor> indexes = indexesGetForLabel( state, labelId ); indexes.hasNext(); )
+        {
+            IndexDescriptor descriptor = indexes.next();
+            if ( descriptor.isComposite() )
+            {
+                CompositeIndexValue value = compositeValue( state, nodeId, descriptor, -1, null );
+                if ( value != null )
+                {
+                    state.txState().compositeIndexDoUpdate( descriptor, nodeId,
+                            added ? null : value, added ? value : null );
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after the property has been changed from the given value before, or added if that is {@code null}.
+     */
+    private void compositeIndexesUpdateProperty( KernelStatement state, long nodeId, int labelId, int propertyKey,
+                                                 DefinedProperty before ) throws EntityNotFoundException
+    {
+        for ( Iterator<IndexDescriptor> indexes = indexesGetForLabel( state, labelId ); indexes.hasNext(); )
+        {
+            IndexDescriptor descriptor = indexes.next();
+            if ( descriptor.isComposite() && descriptor.covers( propertyKey ) )
+            {
+                CompositeIndexValue valueBefore = compositeValue( state, nodeId, descriptor, propertyKey, before );
+                CompositeIndexValue valueAfter = compositeValue( state, nodeId, descriptor, -1, null );
+                if ( valueBefore == null ? valueAfter != null : !valueBefore.equals( valueAfter ) )
+                {
+                    state.txState().compositeIndexDoUpdate( descriptor, nodeId, valueBefore, valueAfter );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value of the node in the composite index, with the current value of the given property key
+     * replaced by the given property, or {@code null} if the node lacks any of the properties of the index.
+     */
+    private CompositeIndexValue compositeValue( KernelStatement state, long nodeId, IndexDescriptor descriptor,
+                                                int replacedPropertyKey, DefinedProperty replacement )
+            throws EntityNotFoundException
+    {
+        int[] propertyKeyIds = descriptor.getPropertyKeyIds();
+        Object[] values = new Object[propertyKeyIds.length];
+        for ( int i = 0; i < propertyKeyIds.length; i++ )
+        {
+            Property property = propertyKeyIds[i] == replacedPropertyKey ? replacement :
+                                nodeGetProperty( state, nodeId, propertyKeyIds[i] );
+            if ( property == null || !property.isDefined() )
+            {
+                return null;
+            }
+            values[i] = ((DefinedProperty) property).value();
+        }
+        return new CompositeIndexValue( values );
+    }
+
     private void indexUpdateProperty( KernelStatement state, long nodeId, int labelId, int propertyKey,
                                       DefinedProperty before, DefinedProperty after )
     {
@@ -908,13 +1144,40 @@ public class StateHandlingStatementOperations implements
     @Override
     public long countsForNode( KernelStatement statement, int labelId )
     {
-        return storeLayer.countsForNode( labelId );
+        long count = storeLayer.countsForNode( labelId );
+        if ( statement.hasTxStateWithChanges() )
+        {
+            count += countsOfTransaction( statement ).nodeCount( labelId, newDoubleLongRegister() ).readSecond();
+        }
+        return count;
     }
 
     @Override
     public long countsForRelationship( KernelStatement statement, int startLabelId, int typeId, int endLabelId )
     {
-        return storeLayer.countsForRelationship( startLabelId, typeId, endLabelId );
+        long count = storeLayer.countsForRelationship( startLabelId, typeId, endLabelId );
+        if ( statement.hasTxStateWithChanges() )
+        {
+            count += countsOfTransaction( statement )
+                    .relationshipCount( startLabelId, typeId, endLabelId, newDoubleLongRegister() ).readSecond();
+        }
+        return count;
+    }
+
+    /**
+     * The changes that committing the transaction of the statement would make to the counts, computed again only
+     * when nodes, relationships or labels have changed since the last time in the same statement.
+     */
+    private CountsRecordState countsOfTransaction( KernelStatement statement )
+    {
+        CountsRecordState counts = statement.getTxCounts();
+        if ( counts == null )
+        {
+            counts = new CountsRecordState();
+            statement.txState().accept( new TransactionCountingStateVisitor( storeLayer, statement, counts, true ) );
+            statement.setTxCounts( counts );
+        }
+        return counts;
     }
 
     @Override
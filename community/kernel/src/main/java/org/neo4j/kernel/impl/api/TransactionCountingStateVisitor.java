@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api;
+
+import java.util.Set;
+
+import org.neo4j.collection.primitive.PrimitiveIntCollections;
+import org.neo4j.collection.primitive.PrimitiveIntIterator;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.api.txstate.TxStateHolder;
+import org.neo4j.kernel.api.txstate.TxStateVisitor;
+import org.neo4j.kernel.impl.api.store.StoreReadLayer;
+
+import static org.neo4j.kernel.api.ReadOperations.ANY_LABEL;
+import static org.neo4j.kernel.api.ReadOperations.ANY_RELATIONSHIP_TYPE;
+
+/**
+ * Works out how the changes of a transaction change the counts, from the state of the transaction and from the store
+ * as it was before the transaction.
+ *
+ * At commit the number of nodes, and of relationships regardless of the labels of their nodes, follow from the records
+ * that are written, and so they are only counted here when {@code countRecords} is set, which is what reads that take
+ * the changes of their transaction into account need.
+ */
+class TransactionCountingStateVisitor extends TxStateVisitor.Adapter
+{
+    private final StoreReadLayer storeLayer;
+    private final TxStateHolder txStateHolder;
+    private final CountsAccessor counts;
+    private final boolean countRecords;
+    private final RelationshipDataExtractor relationshipData = new RelationshipDataExtractor();
+
+    TransactionCountingStateVisitor( StoreReadLayer storeLayer, TxStateHolder txStateHolder, CountsAccessor counts,
+                                     boolean countRecords )
+    {
+        this.storeLayer = storeLayer;
+        this.txStateHolder = txStateHolder;
+        this.counts = counts;
+        this.countRecords = countRecords;
+    }
+
+    @Override
+    public void visitCreatedNode( long id )
+    {
+        if ( countRecords )
+        {
+            counts.incrementNodeCount( ANY_LABEL, 1 );
+        }
+    }
+
+    @Override
+    public void visitDeletedNode( long id )
+    {
+        try
+        {
+            PrimitiveIntIterator labels = storeLayer.nodeGetLabels( id );
+            if ( labels.hasNext() )
+            {
+                final int[] removed = PrimitiveIntCollections.asArray( labels );
+                if ( countRecords )
+                {
+                    for ( int label : removed )
+                    {
+                        counts.incrementNodeCount( label, -1 );
+                    }
+                }
+                storeLayer.nodeVisitDegrees( id, new DegreeVisitor()
+                {
+                    @Override
+                    public void visitDegree( int type, int outgoing, int incoming )
+                    {
+                        for ( int label : removed )
+                        {
+                            // untyped
+                            counts.incrementRelationshipCount( label, -1, -1, -outgoing );
+                            counts.incrementRelationshipCount( -1, -1, label, -incoming );
+                            // typed
+                            counts.incrementRelationshipCount( label, type, -1, -outgoing );
+                            counts.incrementRelationshipCount( -1, type, label, -incoming );
+                        }
+                    }
+                } );
+            }
+        }
+        catch ( EntityNotFoundException e )
+        {
+            // this should not happen, but I guess it means the node we deleted did not exist...?
+        }
+        if ( countRecords )
+        {
+            counts.incrementNodeCount( ANY_LABEL, -1 );
+        }
+    }
+
+    @Override
+    public void visitCreatedRelationship( long id, int type, long startNode, long endNode )
+    {
+        try
+        {
+            for ( PrimitiveIntIterator labels = labelsOf( startNode ); labels.hasNext(); )
+            {
+                int label = labels.next();
+                counts.incrementRelationshipCount( label, ANY_RELATIONSHIP_TYPE, ANY_LABEL, 1 );
+                counts.incrementRelationshipCount( label, type, ANY_LABEL, 1 );
+            }
+            for ( PrimitiveIntIterator labels = labelsOf( endNode ); labels.hasNext(); )
+            {
+                int label = labels.next();
+                counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, label, 1 );
+                counts.incrementRelationshipCount( ANY_LABEL, type, label, 1 );
+            }
+        }
+        catch ( EntityNotFoundException e )
+        {
+            throw new IllegalStateException( "Nodes with added relationships should exist.", e );
+        }
+        if ( countRecords )
+        {
+            counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, ANY_LABEL, 1 );
+            counts.incrementRelationshipCount( ANY_LABEL, type, ANY_LABEL, 1 );
+        }
+    }
+
+    @Override
+    public void visitDeletedRelationship( long id )
+    {
+        try
+        {
+            storeLayer.relationshipVisit( id, relationshipData );
+            for ( PrimitiveIntIterator labels = labelsOf( relationshipData.startNode() ); labels.hasNext(); )
+            {
+                int label = labels.next();
+                counts.incrementRelationshipCount( label, ANY_RELATIONSHIP_TYPE, ANY_LABEL, -1 );
+                counts.incrementRelationshipCount( label, relationshipData.type(), ANY_LABEL, -1 );
+            }
+            for ( PrimitiveIntIterator labels = labelsOf( relationshipData.endNode() ); labels.hasNext(); )
+            {
+                int label = labels.next();
+                counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, label, -1 );
+                counts.incrementRelationshipCount( ANY_LABEL, relationshipData.type(), label, -1 );
+            }
+        }
+        catch ( EntityNotFoundException e )
+        {
+            throw new IllegalStateException(
+                    "Relationship being deleted should exist along with its nodes.", e );
+        }
+        if ( countRecords )
+        {
+            counts.incrementRelationshipCount( ANY_LABEL, ANY_RELATIONSHIP_TYPE, ANY_LABEL, -1 );
+            counts.incrementRelationshipCount( ANY_LABEL, relationshipData.type(), ANY_LABEL, -1 );
+        }
+    }
+
+    @Override
+    public void visitNodeLabelChanges( long id, final Set<Integer> added, final Set<Integer> removed )
+    {
+        if ( countRecords )
+        {
+            for ( Integer label : added )
+            {
+                counts.incrementNodeCount( label, 1 );
+            }
+            for ( Integer label : removed )
+            {
+                counts.incrementNodeCount( label, -1 );
+            }
+        }
+        if ( !(added.isEmpty() && removed.isEmpty()) )
+        {
+            // get the relationship counts from *before* this transaction,
+            // the relationship changes will compensate for what happens during the transaction
+            storeLayer.nodeVisitDegrees( id, new DegreeVisitor()
+            {
+                @Override
+                public void visitDegree( int type, int outgoing, int incoming )
+                {
+                    for ( Integer label : added )
+                    {
+                        // untyped
+                        counts.incrementRelationshipCount( label, -1, -1, outgoing );
+                        counts.incrementRelationshipCount( -1, -1, label, incoming );
+                        // typed
+                        counts.incrementRelationshipCount( label, type, -1, outgoing );
+                        counts.incrementRelationshipCount( -1, type, label, incoming );
+                    }
+                    for ( Integer label : removed )
+                    {
+                        // untyped
+                        counts.incrementRelationshipCount( label, -1, -1, -outgoing );
+                        counts.incrementRelationshipCount( -1, -1, label, -incoming );
+                        // typed
+                        counts.incrementRelationshipCount( label, type, -1, -outgoing );
+                        counts.incrementRelationshipCount( -1, type, label, -incoming );
+                    }
+                }
+            } );
+        }
+    }
+
+    private PrimitiveIntIterator labelsOf( long nodeId ) throws EntityNotFoundException
+    {
+        return StateHandlingStatementOperations.nodeGetLabels( storeLayer, txStateHolder.txState(), nodeId );
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import org.neo4j.kernel.api.index.CompositeIndexValue;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+
+/**
+ * Builds the updates of composite indexes, which cannot be derived from the updates of single properties, since
+ * whether a node is in a composite index depends on all the properties of the index together with the label of it.
+ *
+ * The updates are {@link NodePropertyUpdate updates} of the first property key of the index, with
+ * {@link CompositeIndexValue composite values}, and are given straight to the updater of the index.
+ */
+public class CompositeIndexUpdates
+{
+    private CompositeIndexUpdates()
+    {
+    }
+
+    /**
+     * @param valuesBefore the values of the properties of the index before the change, in the order of the property
+     * keys of the index, with {@code null} for the properties the node did not have.
+     * @param valuesAfter the values after the change, likewise.
+     * @return the update of the index for the change, or {@code null} if the index is not affected by it.
+     */
+    public static NodePropertyUpdate update( IndexDescriptor descriptor, long nodeId,
+                                             long[] labelsBefore, Object[] valuesBefore,
+                                             long[] labelsAfter, Object[] valuesAfter )
+    {
+        CompositeIndexValue before = valueOf( descriptor, labelsBefore, valuesBefore );
+        CompositeIndexValue after = valueOf( descriptor, labelsAfter, valuesAfter );
+        // The update of a composite index goes by the first property key of the index
+        int propertyKeyId = descriptor.getPropertyKeyIds()[0];
+        if ( before == null )
+        {
+            return after == null ? null : NodePropertyUpdate.add( nodeId, propertyKeyId, after, labelsAfter );
+        }
+        if ( after == null )
+        {
+            return NodePropertyUpdate.remove( nodeId, propertyKeyId, before, labelsBefore );
+        }
+        return before.equals( after ) ? null :
+               NodePropertyUpdate.change( nodeId, propertyKeyId, before, labelsBefore, after, labelsAfter );
+    }
+
+    /**
+     * @param nodeUpdates the {@link NodePropertyUpdate.UpdateMode#ADDED added} updates of the properties of a node,
+     * as read from the store, all of which have the labels of the node.
+     * @return the update which adds the node to the index, or {@code null} if the node is not in it.
+     */
+    public static NodePropertyUpdate added( IndexDescriptor descriptor, long nodeId,
+                                            Iterable<NodePropertyUpdate> nodeUpdates )
+    {
+        int[] propertyKeyIds = descriptor.getPropertyKeyIds();
+        Object[] values = new Object[propertyKeyIds.length];
+        long[] labels = null;
+        for ( NodePropertyUpdate update : nodeUpdates )
+        {
+            for ( int i = 0; i < propertyKeyIds.length; i++ )
+            {
+                if ( update.getPropertyKeyId() == propertyKeyIds[i] )
+                {
+                    values[i] = update.getValueAfter();
+                    labels = labels == null ? labelsAfter( update ) : labels;
+                }
+            }
+        }
+        return labels == null ? null :
+               update( descriptor, nodeId, NodePropertyUpdate.EMPTY_LONG_ARRAY, values, labels, values );
+    }
+
+    private static CompositeIndexValue valueOf( IndexDescriptor descriptor, long[] labels, Object[] values )
+    {
+        if ( !contains( labels, descriptor.getLabelId() ) )
+        {
+            return null;
+        }
+        for ( Object value : values )
+        {
+            if ( value == null )
+            {
+                return null;
+            }
+        }
+        return new CompositeIndexValue( values );
+    }
+
+    private static boolean contains( long[] labels, long labelId )
+    {
+        for ( long candidate : labels )
+        {
+            if ( candidate == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] labelsAfter( NodePropertyUpdate update )
+    {
+        long[] labels = new long[update.getNumberOfLabelsAfter()];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labels[i] = update.getLabelAfter( i );
+        }
+        return labels;
+    }
+}
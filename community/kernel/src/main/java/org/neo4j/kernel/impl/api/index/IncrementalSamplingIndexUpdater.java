@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.api.index.sampling.IncrementalIndexSampler;
+
+/**
+ * Collects the updates of an online index, to apply them to its {@link IncrementalIndexSampler sample} once they
+ * have all been applied to the index.
+ */
+public class IncrementalSamplingIndexUpdater implements IndexUpdater
+{
+    private final IncrementalIndexSampler sampler;
+    private final IndexUpdater delegate;
+    private final List<NodePropertyUpdate> updates = new ArrayList<>();
+    private long removedNodes;
+
+    public IncrementalSamplingIndexUpdater( IncrementalIndexSampler sampler, IndexUpdater delegate )
+    {
+        this.sampler = sampler;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+    {
+        delegate.process( update );
+        updates.add( update );
+    }
+
+    @Override
+    public void close() throws IOException, IndexEntryConflictException
+    {
+        delegate.close();
+        sampler.apply( updates, removedNodes );
+    }
+
+    @Override
+    public void remove( Collection<Long> nodeIds ) throws IOException
+    {
+        delegate.remove( nodeIds );
+        removedNodes += nodeIds.size();
+    }
+}
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.api.index;
 
 import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.impl.api.index.sampling.IndexValueSketch;
 
 public interface IndexCountsRemover
 {
@@ -38,6 +39,7 @@ public interface IndexCountsRemover
                 public void remove()
                 {
                     storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
+                    IndexValueSketch.remove( storeView, descriptor );
                 }
             };
         }
@@ -20,13 +20,16 @@
 package org.neo4j.kernel.impl.api.index;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
-import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.api.exceptions.index.IndexPopulationFailedKernelException;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.IndexDescriptor;
@@ -36,12 +39,12 @@ import org.neo4j.kernel.api.index.IndexUpdater;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
+import org.neo4j.kernel.impl.api.index.sampling.IndexValueSketch;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.logging.Logging;
 import org.neo4j.register.Registers;
 
 import static java.lang.String.format;
-import static java.lang.Thread.currentThread;
 
 import static org.neo4j.helpers.FutureAdapter.latchGuardedValue;
 import static org.neo4j.helpers.ValueGetter.NO_VALUE;
@@ -50,10 +53,43 @@ import static org.neo4j.register.Register.DoubleLongRegister;
 
 /**
  * Represents one job of initially populating an index over existing data in the database.
- * Scans the store directly.
+ * The data is read by an {@link IndexPopulationScan}, which may populate other indexes from the same scan.
  */
 public class IndexPopulationJob implements Runnable
 {
+    /**
+     * Orders the updates of a batch by value, numbers before strings before anything else, so that they are added
+     * to the populator in sorted order. Updates with equal values, or values of other types, are ordered by node id.
+     */
+    private static final Comparator<NodePropertyUpdate> BY_VALUE = new Comparator<NodePropertyUpdate>()
+    {
+        @Override
+        public int compare( NodePropertyUpdate left, NodePropertyUpdate right )
+        {
+            Object leftValue = left.getValueAfter();
+            Object rightValue = right.getValueAfter();
+            int comparison = Integer.compare( typeOrder( leftValue ), typeOrder( rightValue ) );
+            if ( comparison == 0 )
+            {
+                if ( leftValue instanceof Number )
+                {
+                    comparison = Double.compare( ((Number) leftValue).doubleValue(),
+                            ((Number) rightValue).doubleValue() );
+                }
+                else if ( leftValue instanceof String )
+                {
+                    comparison = IndexSeekRanges.compareStrings( (String) leftValue, (String) rightValue );
+                }
+            }
+            return comparison != 0 ? comparison : Long.compare( left.getNodeId(), right.getNodeId() );
+        }
+
+        private int typeOrder( Object value )
+        {
+            return value instanceof Number ? 0 : value instanceof String ? 1 : 2;
+        }
+    };
+
     // NOTE: unbounded queue expected here
     private final Queue<NodePropertyUpdate> queue = new ConcurrentLinkedQueue<>();
     private final IndexDescriptor descriptor;
@@ -70,9 +106,19 @@ public class IndexPopulationJob implements Runnable
     private final StringLogger log;
     private final IndexCountsRemover indexCountsRemover;
     private final CountDownLatch doneSignal = new CountDownLatch( 1 );
+    private final boolean incrementalSampling;
 
-    private volatile StoreScan<IndexPopulationFailedKernelException> storeScan;
+    /** Updates from the queue to nodes which the scan has read, but which have not yet been added to the populator. */
+    private List<NodePropertyUpdate> deferredUpdates = new ArrayList<>();
+    /** For each range of the scan, the node id below which all nodes read have been added to the populator. */
+    private long[] addedUpTo;
+    private boolean scanCompleted;
+    /** Seeded with all values added to the populator, if the index is to be sampled incrementally once online. */
+    private IndexValueSketch sketch;
+
+    private volatile IndexPopulationScan scan;
     private volatile boolean cancelled;
+    private volatile boolean done;
 
     public IndexPopulationJob(IndexDescriptor descriptor,
                               IndexConfiguration config,
@@ -84,6 +130,22 @@ public class IndexPopulationJob implements Runnable
                               IndexStoreView storeView,
                               UpdateableSchemaState updateableSchemaState,
                               Logging logging)
+    {
+        this( descriptor, config, providerDescriptor, indexUserDescription, failureDelegateFactory, populator, flipper,
+                storeView, updateableSchemaState, logging, false );
+    }
+
+    public IndexPopulationJob(IndexDescriptor descriptor,
+                              IndexConfiguration config,
+                              SchemaIndexProvider.Descriptor providerDescriptor,
+                              String indexUserDescription,
+                              FailedIndexProxyFactory failureDelegateFactory,
+                              IndexPopulator populator,
+                              FlippableIndexProxy flipper,
+                              IndexStoreView storeView,
+                              UpdateableSchemaState updateableSchemaState,
+                              Logging logging,
+                              boolean incrementalSampling)
     {
         this.descriptor = descriptor;
         this.config = config;
@@ -96,139 +158,244 @@ public class IndexPopulationJob implements Runnable
         this.failureDelegate = failureDelegateFactory;
         this.log = logging.getMessagesLog( getClass() );
         this.indexCountsRemover = IndexCountsRemover.Factory.create( storeView, descriptor );
+        this.incrementalSampling = incrementalSampling;
     }
 
+    /**
+     * Populates this index on its own, in the calling thread.
+     */
     @Override
     public void run()
     {
-        String oldThreadName = currentThread().getName();
-        currentThread().setName( format( "Index populator on %s [runs on: %s]", indexUserDescription, oldThreadName ) );
-        boolean success = false;
-        Throwable failureCause = null;
+        IndexPopulationScan ownScan = new IndexPopulationScan( storeView, null, 1 );
+        ownScan.add( this );
+        ownScan.run();
+    }
 
-        try
+    void populateFrom( IndexPopulationScan scan )
+    {
+        if ( this.scan != null )
         {
-            try
-            {
-                log.info( format("Index population started: [%s]", indexUserDescription) );
-                log.flush();
-                populator.create();
-                storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
-
-                indexAllNodes();
-                verifyDeferredConstraints();
-                if ( cancelled )
-                {
-                    storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
-                    // We remain in POPULATING state
-                    return;
-                }
+            throw new IllegalStateException( this + " is already populated by " + this.scan );
+        }
+        this.scan = scan;
+    }
 
-                Callable<Void> duringFlip = new Callable<Void>()
-                {
-                    @Override
-                    public Void call() throws Exception
-                    {
-                        populateFromQueueIfAvailable( Long.MAX_VALUE );
+    IndexDescriptor getDescriptor()
+    {
+        return descriptor;
+    }
 
-                        DoubleLongRegister result = Registers.newDoubleLongRegister();
-                        long indexSize = populator.sampleResult( result );
-                        storeView.replaceIndexCounts( descriptor, result.readFirst(), result.readSecond(),
-                                indexSize );
+    String getIndexUserDescription()
+    {
+        return indexUserDescription;
+    }
 
-                        populator.close( true );
-                        updateableSchemaState.clear();
-                        return null;
-                    }
-                };
+    /**
+     * @return whether or not this job still wants the updates read by the scan.
+     */
+    boolean isPopulating()
+    {
+        return !done && !cancelled;
+    }
+
+    boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * @return whether or not the given update, read by the scan, belongs in this index. The updates of composite
+     * indexes are built by the scan from all the updates of a node, so no single update belongs in them.
+     */
+    boolean indexes( NodePropertyUpdate update )
+    {
+        return !descriptor.isComposite() && update.getPropertyKeyId() == descriptor.getPropertyKeyId() &&
+               update.forLabel( descriptor.getLabelId() );
+    }
 
-                flipper.flip( duringFlip, failureDelegate );
-                success = true;
-                log.info( format("Index population completed. Index is now online: [%s]", indexUserDescription) );
-                log.flush();
+    /**
+     * Prepares the index for population, before the scan starts.
+     */
+    void create() throws IOException
+    {
+        log.info( format("Index population started: [%s]", indexUserDescription) );
+        log.flush();
+        populator.create();
+        storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
+        if ( incrementalSampling )
+        {
+            sketch = new IndexValueSketch( IndexValueSketch.storedGeneration( storeView, descriptor ) + 1 );
+        }
+    }
+
+    /**
+     * Adds a batch of updates, which the scan has read from the nodes in the given range below
+     * {@code scannedUpTo}, and then the updates from transactions to the nodes added so far.
+     */
+    synchronized void add( int range, long scannedUpTo, List<NodePropertyUpdate> updates )
+            throws IndexEntryConflictException, IOException
+    {
+        if ( done )
+        {
+            return;
+        }
+        Collections.sort( updates, BY_VALUE );
+        for ( NodePropertyUpdate update : updates )
+        {
+            populator.add( update.getNodeId(), update.getValueAfter() );
+            if ( sketch != null )
+            {
+                sketch.include( update.getNodeId(), update.getValueAfter() );
             }
-            catch ( Throwable t )
+        }
+        if ( addedUpTo == null )
+        {
+            addedUpTo = new long[scan.numberOfRanges()];
+        }
+        addedUpTo[range] = scannedUpTo;
+        populateFromQueueIfAvailable();
+    }
+
+    /**
+     * Completes the population once the scan has read all nodes, and flips the index online.
+     */
+    void complete()
+    {
+        try
+        {
+            verifyDeferredConstraints();
+            if ( cancelled )
             {
-                // If the cause of index population failure is a conflict in a (unique) index, the conflict is the
-                // failure
-                if ( t instanceof IndexPopulationFailedKernelException )
+                abort();
+                return;
+            }
+
+            Callable<Void> duringFlip = new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception
                 {
-                    Throwable cause = t.getCause();
-                    if ( cause instanceof IndexEntryConflictException )
+                    synchronized ( IndexPopulationJob.this )
                     {
-                        t = cause;
+                        // All nodes have been read and added, so all updates can be applied
+                        scanCompleted = true;
+                        populateFromQueueIfAvailable();
                     }
-                }
 
-                // Index conflicts are expected (for unique indexes) so we don't need to log them.
-                if ( !(t instanceof IndexEntryConflictException) /*TODO: && this is a unique index...*/ )
-                {
-                    log.error( format("Failed to populate index: [%s]", indexUserDescription), t );
-                    log.flush();
+                    DoubleLongRegister result = Registers.newDoubleLongRegister();
+                    long indexSize = populator.sampleResult( result );
+                    storeView.replaceIndexCounts( descriptor, result.readFirst(), result.readSecond(),
+                            indexSize );
+                    if ( sketch != null )
+                    {
+                        sketch.store( storeView, descriptor );
+                    }
+
+                    populator.close( true );
+                    updateableSchemaState.clear();
+                    return null;
                 }
+            };
 
-                // Set failure cause to be stored persistently
-                failureCause = t;
+            flipper.flip( duringFlip, failureDelegate );
+            done = true;
+            log.info( format("Index population completed. Index is now online: [%s]", indexUserDescription) );
+            log.flush();
+        }
+        catch ( Throwable t )
+        {
+            fail( t );
+        }
+    }
+
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
 
-                // The flipper will have already flipped to a failed index context here, but
-                // it will not include the cause of failure, so we do another flip to a failed
-                // context that does.
+    /**
+     * Gives up the population of this index after it has been cancelled, without waiting for the scan to complete.
+     */
+    synchronized void abort()
+    {
+        if ( done )
+        {
+            return;
+        }
+        storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
+        // We remain in POPULATING state
+        closePopulator( null );
+        finish();
+    }
 
-                // The reason for having the flipper transition to the failed index context in the first
-                // place is that we would otherwise introduce a race condition where updates could come
-                // in to the old context, if something failed in the job we send to the flipper.
-                flipper.flipTo( new FailedIndexProxy( descriptor, config, providerDescriptor, indexUserDescription,
-                                                      populator, failure( t ), indexCountsRemover ) );
-            }
-            finally
+    /**
+     * Fails the population of this index, leaving the other indexes of the scan to populate.
+     */
+    synchronized void fail( Throwable t )
+    {
+        if ( done )
+        {
+            return;
+        }
+        done = true;
+
+        // If the cause of index population failure is a conflict in a (unique) index, the conflict is the
+        // failure
+        if ( t instanceof IndexPopulationFailedKernelException )
+        {
+            Throwable cause = t.getCause();
+            if ( cause instanceof IndexEntryConflictException )
             {
-                try
-                {
-                    if ( !success )
-                    {
-                        if ( failureCause != null )
-                        {
-                            populator.markAsFailed( failure( failureCause ).asString() );
-                        }
+                t = cause;
+            }
+        }
 
-                        populator.close( false );
-                    }
-                }
-                catch ( Throwable e )
-                {
-                    log.error( format("Unable to close failed populator for index: [%s]", indexUserDescription), e );
-                    log.flush();
-                }
+        // Index conflicts are expected (for unique indexes) so we don't need to log them.
+        if ( !(t instanceof IndexEntryConflictException) /*TODO: && this is a unique index...*/ )
+        {
+            log.error( format("Failed to populate index: [%s]", indexUserDescription), t );
+            log.flush();
+        }
+
+        // The flipper will have already flipped to a failed index context here, but
+        // it will not include the cause of failure, so we do another flip to a failed
+        // context that does.
+
+        // The reason for having the flipper transition to the failed index context in the first
+        // place is that we would otherwise introduce a race condition where updates could come
+        // in to the old context, if something failed in the job we send to the flipper.
+        flipper.flipTo( new FailedIndexProxy( descriptor, config, providerDescriptor, indexUserDescription,
+                                              populator, failure( t ), indexCountsRemover ) );
+        closePopulator( t );
+    }
+
+    private void closePopulator( Throwable failureCause )
+    {
+        try
+        {
+            if ( failureCause != null )
+            {
+                // Set failure cause to be stored persistently
+                populator.markAsFailed( failure( failureCause ).asString() );
             }
+
+            populator.close( false );
         }
-        finally
+        catch ( Throwable e )
         {
-            doneSignal.countDown();
-            currentThread().setName( oldThreadName );
+            log.error( format("Unable to close failed populator for index: [%s]", indexUserDescription), e );
+            log.flush();
         }
     }
 
-    private void indexAllNodes() throws IndexPopulationFailedKernelException
+    /**
+     * Called by the scan when it is done with this job, successfully or not.
+     */
+    void finish()
     {
-        storeScan = storeView.visitNodesWithPropertyAndLabel( descriptor,
-                new Visitor<NodePropertyUpdate, IndexPopulationFailedKernelException>()
-                {
-                    @Override
-                    public boolean visit( NodePropertyUpdate update ) throws IndexPopulationFailedKernelException
-                    {
-                        try
-                        {
-                            populator.add( update.getNodeId(), update.getValueAfter() );
-                            populateFromQueueIfAvailable( update.getNodeId() );
-                        }
-                        catch ( IndexEntryConflictException | IOException conflict )
-                        {
-                            throw new IndexPopulationFailedKernelException( descriptor, indexUserDescription, conflict );
-                        }
-                        return false;
-                    }
-                } );
-        storeScan.run();
+        done = true;
+        doneSignal.countDown();
     }
 
     private void verifyDeferredConstraints() throws IndexPopulationFailedKernelException
@@ -243,34 +410,58 @@ public class IndexPopulationJob implements Runnable
         }
     }
 
-    private void populateFromQueueIfAvailable( final long currentlyIndexedNodeId )
-        throws IndexEntryConflictException, IOException
+    /**
+     * Applies the queued updates to nodes which have been added to the populator. Updates to nodes which the scan
+     * has yet to read are dropped, since the scan will see their changes, and the rest are deferred until their
+     * nodes have been added. Nodes created after the scan started are never read, so their updates are deferred
+     * until the last range has been added.
+     */
+    private void populateFromQueueIfAvailable() throws IndexEntryConflictException, IOException
     {
-        if ( !queue.isEmpty() )
+        for ( NodePropertyUpdate update; (update = queue.poll()) != null; )
+        {
+            deferredUpdates.add( update );
+        }
+        if ( deferredUpdates.isEmpty() )
+        {
+            return;
+        }
+
+        // The positions of the scan are read after polling the queue, for the dropped updates to have been seen
+        List<NodePropertyUpdate> stillDeferred = new ArrayList<>();
+        try ( IndexUpdater updater = populator.newPopulatingUpdater( storeView ) )
         {
-            try ( IndexUpdater updater = populator.newPopulatingUpdater( storeView ) )
+            for ( NodePropertyUpdate update : deferredUpdates )
             {
-                do
+                long nodeId = update.getNodeId();
+                int range = scanCompleted ? -1 : scan.rangeOf( nodeId );
+                if ( scanCompleted || nodeId < addedUpTo[range] )
                 {
-                    // no need to check for null as nobody else is emptying this queue
-                    NodePropertyUpdate update = queue.poll();
-                    // TODO: We see updates twice here from IndexStatisticsTest
-                    if ( update.getNodeId() <= currentlyIndexedNodeId )
+                    updater.process( update );
+                    if ( sketch != null )
                     {
-                        updater.process( update );
+                        sketch.update( update );
                     }
-                } while ( !queue.isEmpty() );
+                }
+                else if ( !scan.isYetToRead( range, nodeId ) )
+                {
+                    stillDeferred.add( update );
+                }
             }
         }
+        finally
+        {
+            deferredUpdates = stillDeferred;
+        }
     }
 
     public Future<Void> cancel()
     {
         // Stop the population
-        if ( storeScan != null )
+        cancelled = true;
+        if ( scan != null )
         {
-            cancelled = true;
-            storeScan.stop();
+            scan.jobCancelled();
         }
 
         return latchGuardedValue( NO_VALUE, doneSignal, "Index population job cancel" );
@@ -295,5 +486,4 @@ public class IndexPopulationJob implements Runnable
     {
         doneSignal.await();
     }
-
 }
@@ -0,0 +1,459 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntSet;
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.util.JobScheduler;
+
+import static java.lang.String.format;
+import static java.lang.Thread.currentThread;
+
+import static org.neo4j.collection.primitive.PrimitiveIntCollections.asArray;
+import static org.neo4j.kernel.impl.util.JobScheduler.Group.indexPopulation;
+
+/**
+ * Populates a number of indexes from one shared scan of the node store, rather than from one scan per index.
+ *
+ * The node store is split into ranges of node ids, which are scanned by separate threads. Each thread buffers the
+ * updates it reads for all indexes, and adds them to the {@link IndexPopulator populators} in batches, sorted by
+ * value. The populator of an index is never called concurrently, but may be called by any of the threads.
+ *
+ * All {@link IndexPopulationJob jobs} must be {@link #add(IndexPopulationJob) added} before the scan is started.
+ */
+public class IndexPopulationScan implements Runnable
+{
+    /** Number of updates, for all indexes together, that a thread reads before adding them to the populators. */
+    static final int BATCH_SIZE = 10_000;
+    /** Ranges are not made smaller than this many node ids, since small ranges are not worth their own threads. */
+    static final long MIN_NODES_PER_RANGE = 100_000;
+
+    private final IndexStoreView storeView;
+    private final JobScheduler scheduler;
+    private final int maxThreads;
+    private final int batchSize;
+    private final List<IndexPopulationJob> jobs = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile RangeScan[] ranges;
+    private volatile boolean stopped;
+
+    /**
+     * @param scheduler schedules the threads of all ranges but the first, which is scanned by the thread running
+     * this scan. May be {@code null} if {@code maxThreads} is one and the scan is {@link #run() run} directly.
+     * @param maxThreads the highest number of threads to scan the store with.
+     */
+    public IndexPopulationScan( IndexStoreView storeView, JobScheduler scheduler, int maxThreads )
+    {
+        this( storeView, scheduler, maxThreads, BATCH_SIZE );
+    }
+
+    IndexPopulationScan( IndexStoreView storeView, JobScheduler scheduler, int maxThreads, int batchSize )
+    {
+        this.storeView = storeView;
+        this.scheduler = scheduler;
+        this.maxThreads = maxThreads;
+        this.batchSize = batchSize;
+    }
+
+    public void add( IndexPopulationJob job )
+    {
+        if ( started.get() )
+        {
+            throw new IllegalStateException( "Cannot add " + job + " to " + this + ", which has already started" );
+        }
+        job.populateFrom( this );
+        jobs.add( job );
+    }
+
+    /**
+     * Schedules this scan to run, unless it already has been.
+     */
+    public void start()
+    {
+        if ( started.compareAndSet( false, true ) )
+        {
+            scheduler.schedule( indexPopulation, this );
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        started.set( true );
+        String oldThreadName = currentThread().getName();
+        currentThread().setName( format( "Index populator on %s [runs on: %s]", describeIndexes(), oldThreadName ) );
+        try
+        {
+            for ( IndexPopulationJob job : jobs )
+            {
+                try
+                {
+                    job.create();
+                }
+                catch ( Throwable t )
+                {
+                    job.fail( t );
+                }
+            }
+
+            try
+            {
+                scanStore();
+            }
+            catch ( Throwable t )
+            {
+                for ( IndexPopulationJob job : jobs )
+                {
+                    job.fail( t );
+                }
+            }
+
+            for ( IndexPopulationJob job : jobs )
+            {
+                if ( !job.isDone() )
+                {
+                    job.complete();
+                }
+            }
+        }
+        finally
+        {
+            for ( IndexPopulationJob job : jobs )
+            {
+                job.finish();
+            }
+            currentThread().setName( oldThreadName );
+        }
+    }
+
+    private void scanStore() throws Throwable
+    {
+        PrimitiveIntSet labelIds = Primitive.intSet();
+        PrimitiveIntSet propertyKeyIds = Primitive.intSet();
+        for ( IndexPopulationJob job : jobs )
+        {
+            if ( job.isPopulating() )
+            {
+                labelIds.add( job.getDescriptor().getLabelId() );
+                for ( int propertyKeyId : job.getDescriptor().getPropertyKeyIds() )
+                {
+                    propertyKeyIds.add( propertyKeyId );
+                }
+            }
+        }
+        if ( labelIds.isEmpty() )
+        {
+            return;
+        }
+
+        // Nodes created after the scan has started are not read, but populated from the updates of their transactions
+        long highId = storeView.nodeHighId();
+        int numberOfRanges = (int) Math.max( 1, Math.min( maxThreads, highId / MIN_NODES_PER_RANGE ) );
+        CountDownLatch scanned = new CountDownLatch( numberOfRanges );
+        RangeScan[] ranges = new RangeScan[numberOfRanges];
+        for ( int i = 0; i < numberOfRanges; i++ )
+        {
+            long fromNodeId = highId * i / numberOfRanges;
+            long toNodeId = highId * (i + 1) / numberOfRanges;
+            ranges[i] = new RangeScan( i, asArray( labelIds.iterator() ), asArray( propertyKeyIds.iterator() ),
+                    fromNodeId, toNodeId, scanned );
+        }
+        this.ranges = ranges;
+
+        for ( int i = 1; i < numberOfRanges; i++ )
+        {
+            scheduler.schedule( indexPopulation, ranges[i] );
+        }
+        ranges[0].run();
+        awaitUninterruptibly( scanned );
+
+        for ( RangeScan range : ranges )
+        {
+            if ( range.failure != null )
+            {
+                throw range.failure;
+            }
+        }
+    }
+
+    private void awaitUninterruptibly( CountDownLatch latch )
+    {
+        boolean interrupted = false;
+        while ( true )
+        {
+            try
+            {
+                latch.await();
+                break;
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        if ( interrupted )
+        {
+            currentThread().interrupt();
+        }
+    }
+
+    int numberOfRanges()
+    {
+        return ranges.length;
+    }
+
+    /**
+     * @return the range which the node with the given id belongs to.
+     */
+    int rangeOf( long nodeId )
+    {
+        RangeScan[] ranges = this.ranges;
+        int low = 0, high = ranges.length - 1;
+        while ( low < high )
+        {
+            int middle = (low + high + 1) >>> 1;
+            if ( ranges[middle].fromNodeId <= nodeId )
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return whether the given range has yet to read the node with the given id, and so will see all changes
+     * committed to it from now on. Nodes created after the scan started are never read, since the last range ends
+     * at the high id the scan started with.
+     * @see NodeRangeScan#position()
+     */
+    boolean isYetToRead( int range, long nodeId )
+    {
+        RangeScan rangeScan = ranges[range];
+        return nodeId >= rangeScan.scan.position() && nodeId < rangeScan.toNodeId;
+    }
+
+    /**
+     * Stops the scan if none of its jobs are populating any more.
+     */
+    void jobCancelled()
+    {
+        for ( IndexPopulationJob job : jobs )
+        {
+            if ( job.isPopulating() )
+            {
+                return;
+            }
+        }
+        stop();
+    }
+
+    private void stop()
+    {
+        stopped = true;
+        RangeScan[] ranges = this.ranges;
+        if ( ranges != null )
+        {
+            for ( RangeScan range : ranges )
+            {
+                range.scan.stop();
+            }
+        }
+    }
+
+    private String describeIndexes()
+    {
+        StringBuilder description = new StringBuilder();
+        for ( IndexPopulationJob job : jobs )
+        {
+            description.append( description.length() == 0 ? "" : ", " ).append( job.getIndexUserDescription() );
+        }
+        return description.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + describeIndexes() + "]";
+    }
+
+    /**
+     * Scans one range of the node store, routing the updates it reads to the batches of the indexes they belong to.
+     */
+    private class RangeScan implements Runnable, Visitor<NodePropertyUpdate,RuntimeException>
+    {
+        private final int index;
+        private final long fromNodeId;
+        private final long toNodeId;
+        private final NodeRangeScan<RuntimeException> scan;
+        private final CountDownLatch scanned;
+        private final List<List<NodePropertyUpdate>> batches = new ArrayList<>();
+        // The updates of the current node, from which the updates of the composite indexes are built
+        private final List<NodePropertyUpdate> nodeUpdates = new ArrayList<>();
+        private final boolean anyComposite;
+        private int batchedUpdates;
+        private long currentNodeId = -1;
+        private volatile Throwable failure;
+
+        RangeScan( int index, int[] labelIds, int[] propertyKeyIds, long fromNodeId, long toNodeId,
+                   CountDownLatch scanned )
+        {
+            this.index = index;
+            this.fromNodeId = fromNodeId;
+            this.toNodeId = toNodeId;
+            this.scanned = scanned;
+            this.scan = storeView.visitNodes( labelIds, propertyKeyIds, fromNodeId, toNodeId, this );
+            boolean anyComposite = false;
+            for ( int i = 0; i < jobs.size(); i++ )
+            {
+                batches.add( new ArrayList<NodePropertyUpdate>() );
+                anyComposite |= jobs.get( i ).getDescriptor().isComposite();
+            }
+            this.anyComposite = anyComposite;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if ( !stopped )
+                {
+                    scan.run();
+                    if ( !stopped )
+                    {
+                        addCompositeUpdates();
+                        // All nodes above the last range are created after the scan started, and so can be updated
+                        addBatches( index == ranges.length - 1 ? Long.MAX_VALUE : toNodeId );
+                    }
+                }
+            }
+            catch ( Throwable t )
+            {
+                failure = t;
+                stop();
+            }
+            finally
+            {
+                scanned.countDown();
+            }
+        }
+
+        @Override
+        public boolean visit( NodePropertyUpdate update )
+        {
+            long nodeId = update.getNodeId();
+            if ( nodeId != currentNodeId )
+            {
+                addCompositeUpdates();
+                // All updates of the previous nodes have been read, so this is where a batch may end
+                if ( batchedUpdates >= batchSize )
+                {
+                    addBatches( nodeId );
+                }
+                currentNodeId = nodeId;
+            }
+
+            for ( int i = 0; i < jobs.size(); i++ )
+            {
+                IndexPopulationJob job = jobs.get( i );
+                if ( job.isPopulating() && job.indexes( update ) )
+                {
+                    batches.get( i ).add( update );
+                    batchedUpdates++;
+                }
+            }
+            if ( anyComposite )
+            {
+                nodeUpdates.add( update );
+            }
+            return false;
+        }
+
+        private void addCompositeUpdates()
+        {
+            if ( nodeUpdates.isEmpty() )
+            {
+                return;
+            }
+            for ( int i = 0; i < jobs.size(); i++ )
+            {
+                IndexPopulationJob job = jobs.get( i );
+                if ( job.isPopulating() && job.getDescriptor().isComposite() )
+                {
+                    NodePropertyUpdate update = CompositeIndexUpdates.added( job.getDescriptor(), currentNodeId,
+                            nodeUpdates );
+                    if ( update != null )
+                    {
+                        batches.get( i ).add( update );
+                        batchedUpdates++;
+                    }
+                }
+            }
+            nodeUpdates.clear();
+        }
+
+        private void addBatches( long scannedUpTo )
+        {
+            boolean anyPopulating = false;
+            for ( int i = 0; i < jobs.size(); i++ )
+            {
+                IndexPopulationJob job = jobs.get( i );
+                List<NodePropertyUpdate> batch = batches.get( i );
+                if ( job.isPopulating() )
+                {
+                    try
+                    {
+                        job.add( index, scannedUpTo, batch );
+                        anyPopulating = true;
+                    }
+                    catch ( Throwable t )
+                    {
+                        job.fail( t );
+                    }
+                }
+                else if ( job.isCancelled() )
+                {
+                    // Let whoever cancelled the job, by dropping its index, go on without waiting for the others
+                    job.abort();
+                }
+                batch.clear();
+            }
+            batchedUpdates = 0;
+            if ( !anyPopulating )
+            {
+                stop();
+            }
+        }
+    }
+}
@@ -63,11 +63,20 @@ public class IndexProxySetup
         this.logging = logging;
     }
 
+    /**
+     * @return a scan to populate indexes with, all of which should be added to it before it is started.
+     */
+    public IndexPopulationScan newPopulationScan()
+    {
+        return new IndexPopulationScan( storeView, scheduler, Runtime.getRuntime().availableProcessors() );
+    }
+
     public IndexProxy createPopulatingIndexProxy( final long ruleId,
                                                   final IndexDescriptor descriptor,
                                                   final SchemaIndexProvider.Descriptor providerDescriptor,
                                                   final boolean constraint,
-                                                  final IndexingService.Monitor monitor ) throws IOException
+                                                  final IndexingService.Monitor monitor,
+                                                  IndexPopulationScan populationScan ) throws IOException
     {
         final FlippableIndexProxy flipper = new FlippableIndexProxy();
 
@@ -87,8 +96,9 @@ public class IndexProxySetup
         );
 
         PopulatingIndexProxy populatingIndex =
-                new PopulatingIndexProxy( scheduler, descriptor, config, failureDelegateFactory, populator, flipper,
-                        storeView, updateableSchemaState, logging, indexUserDescription, providerDescriptor );
+                new PopulatingIndexProxy( populationScan, descriptor, config, failureDelegateFactory, populator, flipper,
+                        storeView, updateableSchemaState, logging, indexUserDescription, providerDescriptor,
+                        samplingConfig.incrementalSampling() );
         flipper.flipTo( populatingIndex );
 
         // Prepare for flipping to online mode
@@ -102,7 +112,8 @@ public class IndexProxySetup
                     monitor.populationCompleteOn( descriptor );
                     OnlineIndexProxy onlineProxy = new OnlineIndexProxy(
                             descriptor, config, onlineAccessorFromProvider( providerDescriptor, ruleId,
-                            config, samplingConfig ), storeView, providerDescriptor
+                            config, samplingConfig ), storeView, providerDescriptor,
+                            samplingConfig.incrementalSampling()
                     );
                     if ( constraint )
                     {
@@ -143,7 +154,8 @@ public class IndexProxySetup
             IndexAccessor onlineAccessor =
                     onlineAccessorFromProvider( providerDescriptor, ruleId, config, samplingConfig );
             IndexProxy proxy;
-            proxy = new OnlineIndexProxy( descriptor, config, onlineAccessor, storeView, providerDescriptor );
+            proxy = new OnlineIndexProxy( descriptor, config, onlineAccessor, storeView, providerDescriptor,
+                    samplingConfig.incrementalSampling() );
             proxy = new ContractCheckingIndexProxy( proxy, true );
             return proxy;
         }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import org.neo4j.helpers.Predicate;
+
+/**
+ * Predicates matching property values within the ranges of index range seeks. Range seeks are allowed to be
+ * imprecise, so their results are verified against these, as are the values changed in a transaction.
+ *
+ * Numbers are compared by value regardless of their type, and strings by unicode code points, which is the order
+ * of UTF-8 encoded strings.
+ */
+public class IndexSeekRanges
+{
+    private IndexSeekRanges()
+    {
+    }
+
+    public static Predicate<Object> numberRange( final Number lower, final boolean includeLower,
+                                                 final Number upper, final boolean includeUpper )
+    {
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                if ( !(value instanceof Number) )
+                {
+                    return false;
+                }
+                Number number = (Number) value;
+                if ( lower != null )
+                {
+                    int compare = compareNumbers( number, lower );
+                    if ( compare < 0 || (compare == 0 && !includeLower) )
+                    {
+                        return false;
+                    }
+                }
+                if ( upper != null )
+                {
+                    int compare = compareNumbers( number, upper );
+                    if ( compare > 0 || (compare == 0 && !includeUpper) )
+                    {
+                        return false;
+                    }
+                }
+                return !isNaN( number );
+            }
+        };
+    }
+
+    public static Predicate<Object> stringRange( final String lower, final boolean includeLower,
+                                                 final String upper, final boolean includeUpper )
+    {
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                String string = stringOf( value );
+                if ( string == null )
+                {
+                    return false;
+                }
+                if ( lower != null )
+                {
+                    int compare = compareStrings( string, lower );
+                    if ( compare < 0 || (compare == 0 && !includeLower) )
+                    {
+                        return false;
+                    }
+                }
+                if ( upper != null )
+                {
+                    int compare = compareStrings( string, upper );
+                    if ( compare > 0 || (compare == 0 && !includeUpper) )
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    public static Predicate<Object> stringPrefix( final String prefix )
+    {
+        return new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                String string = stringOf( value );
+                return string != null && string.startsWith( prefix );
+            }
+        };
+    }
+
+    /**
+     * Compares integral numbers exactly and any other numbers as doubles.
+     */
+    public static int compareNumbers( Number left, Number right )
+    {
+        if ( isIntegral( left ) && isIntegral( right ) )
+        {
+            return Long.compare( left.longValue(), right.longValue() );
+        }
+        return Double.compare( left.doubleValue(), right.doubleValue() );
+    }
+
+    /**
+     * Compares strings by code points, as opposed to {@link String#compareTo(String)} which compares UTF-16 chars
+     * and so orders supplementary characters before some characters of the basic multilingual plane.
+     */
+    public static int compareStrings( String left, String right )
+    {
+        int length = Math.min( left.length(), right.length() );
+        for ( int i = 0; i < length; i++ )
+        {
+            char leftChar = left.charAt( i );
+            char rightChar = right.charAt( i );
+            if ( leftChar != rightChar )
+            {
+                if ( Character.isSurrogate( leftChar ) || Character.isSurrogate( rightChar ) )
+                {
+                    return Integer.compare( left.codePointAt( i ), right.codePointAt( i ) );
+                }
+                return leftChar - rightChar;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    private static boolean isIntegral( Number number )
+    {
+        return number instanceof Long || number instanceof Integer || number instanceof Short ||
+               number instanceof Byte;
+    }
+
+    private static boolean isNaN( Number number )
+    {
+        return !isIntegral( number ) && Double.isNaN( number.doubleValue() );
+    }
+
+    private static String stringOf( Object value )
+    {
+        if ( value instanceof String )
+        {
+            return (String) value;
+        }
+        return value instanceof Character ? value.toString() : null;
+    }
+}
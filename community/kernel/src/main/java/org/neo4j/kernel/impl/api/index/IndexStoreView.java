@@ -47,6 +47,22 @@ public interface IndexStoreView extends PropertyAccessor
             Visitor<NodePropertyUpdate, FAILURE> propertyUpdateVisitor,
             Visitor<NodeLabelUpdate, FAILURE> labelUpdateVisitor );
 
+    /**
+     * Retrieve all nodes with ids from {@code fromNodeId} (inclusive) to {@code toNodeId} (exclusive) which has got
+     * one or more of the given labels AND one or more of the given property key ids. Nodes are read in the order of
+     * their ids, so a scan of the whole store can be split into scans over consecutive ranges, run by separate
+     * threads. A range which ends at {@link Long#MAX_VALUE} also covers nodes created while it is being scanned.
+     *
+     * @return a {@link NodeRangeScan} to start and to stop the scan, and to follow its progress.
+     */
+    <FAILURE extends Exception> NodeRangeScan<FAILURE> visitNodes( int[] labelIds, int[] propertyKeyIds,
+            long fromNodeId, long toNodeId, Visitor<NodePropertyUpdate, FAILURE> propertyUpdateVisitor );
+
+    /**
+     * @return the high id of the node store, which is above the ids of all nodes currently in the store.
+     */
+    long nodeHighId();
+
     Iterable<NodePropertyUpdate> nodeAsUpdates( long nodeId );
 
     DoubleLongRegister indexUpdatesAndSize( IndexDescriptor descriptor, DoubleLongRegister output );
@@ -55,5 +71,14 @@ public interface IndexStoreView extends PropertyAccessor
 
     void replaceIndexCounts( IndexDescriptor descriptor, long uniqueElements, long maxUniqueElements, long indexSize );
 
+    /**
+     * Replaces the sample and the size of the given index, but keeps its number of updates since the last sampling.
+     */
+    void replaceIndexSample( IndexDescriptor descriptor, long uniqueElements, long maxUniqueElements, long indexSize );
+
+    DoubleLongRegister indexSketch( IndexDescriptor descriptor, int slot, DoubleLongRegister output );
+
+    void replaceIndexSketch( IndexDescriptor descriptor, int slot, long first, long second );
+
     void incrementIndexUpdates( IndexDescriptor descriptor, long updatesDelta );
 }
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.api.index;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -71,6 +72,11 @@ public class IndexUpdaterMap implements AutoCloseable, Iterable<IndexUpdater>
         return updater;
     }
 
+    public Collection<IndexDescriptor> compositeDescriptors()
+    {
+        return indexMap.compositeDescriptors();
+    }
+
     @Override
     public void close() throws UnderlyingStorageException
     {
@@ -21,9 +21,16 @@ package org.neo4j.kernel.impl.api.index;
 
 import java.util.Set;
 
+import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 
 public interface IndexUpdates extends Iterable<NodePropertyUpdate>
 {
     Set<Long> changedNodeIds();
+
+    /**
+     * @return the updates of the given composite index, which are not among the updates of single properties.
+     * @see CompositeIndexUpdates
+     */
+    Iterable<NodePropertyUpdate> compositeUpdates( IndexDescriptor descriptor );
 }
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -197,7 +198,7 @@ public class IndexingService extends LifecycleAdapter
             IndexProxy indexProxy;
 
             long indexId = indexRule.getId();
-            IndexDescriptor descriptor = new IndexDescriptor( indexRule.getLabel(), indexRule.getPropertyKey() );
+            IndexDescriptor descriptor = new IndexDescriptor( indexRule.getLabel(), indexRule.getPropertyKeys() );
             SchemaIndexProvider.Descriptor providerDescriptor = indexRule.getProviderDescriptor();
             SchemaIndexProvider provider = providerMap.apply( providerDescriptor );
             InternalIndexState initialState = provider.getInitialState( indexId );
@@ -267,7 +268,9 @@ public class IndexingService extends LifecycleAdapter
         // Drop placeholder proxies for indexes that need to be rebuilt
         dropRecoveringIndexes( indexMap, rebuildingDescriptors );
 
-        // Rebuild indexes by recreating and repopulating them
+        // Rebuild indexes by recreating and repopulating them, all from the same scan of the store
+        IndexPopulationScan populationScan = proxySetup.newPopulationScan();
+        List<IndexProxy> rebuildingProxies = new ArrayList<>();
         for ( Map.Entry<Long, Pair<IndexDescriptor, SchemaIndexProvider.Descriptor>> entry : rebuildingDescriptors.entrySet() )
         {
             long indexId = entry.getKey();
@@ -282,10 +285,14 @@ public class IndexingService extends LifecycleAdapter
              * they will get dropped as soon as recovery is completed by the constraint system.
              */
             IndexProxy proxy = proxySetup.createPopulatingIndexProxy(
-                    indexId, indexDescriptor, providerDescriptor, false, monitor );
-            proxy.start();
+                    indexId, indexDescriptor, providerDescriptor, false, monitor, populationScan );
+            rebuildingProxies.add( proxy );
             indexMap.putIndexProxy( indexId, proxy );
         }
+        for ( IndexProxy proxy : rebuildingProxies )
+        {
+            proxy.start();
+        }
 
         indexMapRef.setIndexMap( indexMap );
 
@@ -335,38 +342,69 @@ public class IndexingService extends LifecycleAdapter
      * will shut down.
      */
     public void createIndex( IndexRule rule )
+    {
+        createIndexes( rule );
+    }
+
+    /*
+     * Creates a number of indexes, which are populated together from one scan of the store.
+     *
+     * The same rules apply as for #createIndex(IndexRule).
+     */
+    public void createIndexes( IndexRule... rules )
     {
         IndexMap indexMap = indexMapRef.indexMapSnapshot();
 
-        long ruleId = rule.getId();
-        IndexProxy index = indexMap.getIndexProxy( ruleId );
-        if (index != null)
+        IndexPopulationScan populationScan = null;
+        List<IndexProxy> populatingIndexes = new ArrayList<>();
+        for ( IndexRule rule : rules )
         {
-            // We already have this index
-            return;
+            long ruleId = rule.getId();
+            IndexProxy index = indexMap.getIndexProxy( ruleId );
+            if (index != null)
+            {
+                // We already have this index
+                continue;
+            }
+            final IndexDescriptor descriptor = new IndexDescriptor( rule.getLabel(), rule.getPropertyKeys() );
+            SchemaIndexProvider.Descriptor providerDescriptor = rule.getProviderDescriptor();
+            boolean constraint = rule.isConstraintIndex();
+            if ( state == State.RUNNING )
+            {
+                try
+                {
+                    if ( populationScan == null )
+                    {
+                        populationScan = proxySetup.newPopulationScan();
+                    }
+                    index = proxySetup.createPopulatingIndexProxy(
+                            ruleId, descriptor, providerDescriptor, constraint, monitor, populationScan );
+                    populatingIndexes.add( index );
+                }
+                catch ( IOException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+            else
+            {
+                index = proxySetup.createRecoveringIndexProxy( descriptor, providerDescriptor, constraint );
+            }
+
+            indexMap.putIndexProxy( rule.getId(), index );
         }
-        final IndexDescriptor descriptor = new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() );
-        SchemaIndexProvider.Descriptor providerDescriptor = rule.getProviderDescriptor();
-        boolean constraint = rule.isConstraintIndex();
-        if ( state == State.RUNNING )
+
+        try
         {
-            try
+            for ( IndexProxy index : populatingIndexes )
             {
-                index = proxySetup.createPopulatingIndexProxy(
-                        ruleId, descriptor, providerDescriptor, constraint, monitor );
                 index.start();
             }
-            catch ( IOException e )
-            {
-                throw new RuntimeException( e );
-            }
         }
-        else
+        catch ( IOException e )
         {
-            index = proxySetup.createRecoveringIndexProxy( descriptor, providerDescriptor, constraint );
+            throw new RuntimeException( e );
         }
-
-        indexMap.putIndexProxy( rule.getId(), index );
         indexMapRef.setIndexMap( indexMap );
     }
 
@@ -379,6 +417,13 @@ public class IndexingService extends LifecycleAdapter
             try ( IndexUpdaterMap updaterMap = indexMapRef.createIndexUpdaterMap( mode ) )
             {
                 applyUpdates( updates, updaterMap );
+                for ( IndexDescriptor descriptor : updaterMap.compositeDescriptors() )
+                {
+                    for ( NodePropertyUpdate update : updates.compositeUpdates( descriptor ) )
+                    {
+                        processUpdateIfIndexExists( updaterMap, update, descriptor );
+                    }
+                }
             }
         }
         else
@@ -414,6 +459,14 @@ public class IndexingService extends LifecycleAdapter
                 {
                     Iterable<NodePropertyUpdate> updates = storeView.nodeAsUpdates( nodeId );
                     applyUpdates( updates, updaterMap );
+                    for ( IndexDescriptor descriptor : updaterMap.compositeDescriptors() )
+                    {
+                        NodePropertyUpdate update = CompositeIndexUpdates.added( descriptor, nodeId, updates );
+                        if ( update != null )
+                        {
+                            processUpdateIfIndexExists( updaterMap, update, descriptor );
+                        }
+                    }
                     monitor.appliedRecoveredData( updates );
                 }
             }
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+/**
+ * A {@link StoreScan} over a range of node ids, which reads the nodes in the order of their ids.
+ */
+public interface NodeRangeScan<FAILURE extends Exception> extends StoreScan<FAILURE>
+{
+    /**
+     * @return the id of the next node to read, all nodes in the range with lower ids having been read. The position
+     * is moved past a node while the node is still locked for reading, so a change to a node below the position
+     * which is committed after the position was read has not been seen by the scan.
+     */
+    long position();
+}
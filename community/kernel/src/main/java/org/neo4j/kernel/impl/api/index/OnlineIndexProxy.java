@@ -32,6 +32,7 @@ import org.neo4j.kernel.api.index.IndexReader;
 import org.neo4j.kernel.api.index.IndexUpdater;
 import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IncrementalIndexSampler;
 
 import static org.neo4j.helpers.FutureAdapter.VOID;
 
@@ -43,9 +44,17 @@ public class OnlineIndexProxy implements IndexProxy
     private final SchemaIndexProvider.Descriptor providerDescriptor;
     private final IndexConfiguration configuration;
     private final IndexCountsRemover indexCountsRemover;
+    private final IncrementalIndexSampler sampler;
 
     public OnlineIndexProxy( IndexDescriptor descriptor, IndexConfiguration configuration, IndexAccessor accessor,
                              IndexStoreView storeView, SchemaIndexProvider.Descriptor providerDescriptor )
+    {
+        this( descriptor, configuration, accessor, storeView, providerDescriptor, false );
+    }
+
+    public OnlineIndexProxy( IndexDescriptor descriptor, IndexConfiguration configuration, IndexAccessor accessor,
+                             IndexStoreView storeView, SchemaIndexProvider.Descriptor providerDescriptor,
+                             boolean incrementalSampling )
     {
         this.descriptor = descriptor;
         this.storeView = storeView;
@@ -53,6 +62,8 @@ public class OnlineIndexProxy implements IndexProxy
         this.accessor = accessor;
         this.configuration = configuration;
         this.indexCountsRemover = IndexCountsRemover.Factory.create( storeView, descriptor );
+        this.sampler = incrementalSampling
+                       ? new IncrementalIndexSampler( storeView, descriptor, configuration.isUnique() ) : null;
     }
 
     @Override
@@ -68,6 +79,10 @@ public class OnlineIndexProxy implements IndexProxy
 
     private IndexUpdater updateCountingUpdater( final IndexUpdater indexUpdater )
     {
+        if ( sampler != null )
+        {
+            return new IncrementalSamplingIndexUpdater( sampler, indexUpdater );
+        }
         return new UpdateCountingIndexUpdater( storeView, descriptor, indexUpdater );
     }
 
@@ -39,22 +39,20 @@ import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
-import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.kernel.logging.Logging;
 
 import static org.neo4j.helpers.collection.IteratorUtil.emptyIterator;
-import static org.neo4j.kernel.impl.util.JobScheduler.Group.indexPopulation;
 
 
 public class PopulatingIndexProxy implements IndexProxy
 {
-    private final JobScheduler scheduler;
+    private final IndexPopulationScan populationScan;
     private final IndexDescriptor descriptor;
     private final SchemaIndexProvider.Descriptor providerDescriptor;
     private final IndexPopulationJob job;
     private final IndexConfiguration configuration;
 
-    public PopulatingIndexProxy( JobScheduler scheduler,
+    public PopulatingIndexProxy( IndexPopulationScan populationScan,
                                  IndexDescriptor descriptor,
                                  IndexConfiguration configuration,
                                  FailedIndexProxyFactory failureDelegateFactory,
@@ -64,21 +62,24 @@ public class PopulatingIndexProxy implements IndexProxy
                                  UpdateableSchemaState updateableSchemaState,
                                  Logging logging,
                                  String indexUserDescription,
-                                 SchemaIndexProvider.Descriptor providerDescriptor )
+                                 SchemaIndexProvider.Descriptor providerDescriptor,
+                                 boolean incrementalSampling )
     {
-        this.scheduler = scheduler;
+        this.populationScan = populationScan;
         this.descriptor = descriptor;
         this.configuration = configuration;
         this.providerDescriptor = providerDescriptor;
         this.job = new IndexPopulationJob( descriptor, configuration, providerDescriptor,
                 indexUserDescription, failureDelegateFactory, writer, flipper, storeView,
-                updateableSchemaState, logging );
+                updateableSchemaState, logging, incrementalSampling );
+        populationScan.add( job );
     }
 
     @Override
     public void start()
     {
-        scheduler.schedule( indexPopulation, job );
+        // The first index of the scan to start starts the scan, which populates all of them
+        populationScan.start();
     }
 
     @Override
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch, estimating the number of distinct 64 bit hashes added to it in a fixed amount of memory.
+ *
+ * The top {@code precision} bits of a hash select one of the registers, which keeps the highest rank, that is
+ * the position of the first set bit, of the remaining bits of the hashes that selected it. Registers are one byte each,
+ * and are read and written eight to a long, for the sketch to be stored as longs.
+ */
+final class HyperLogLog
+{
+    private final int precision;
+    private final byte[] registers;
+
+    HyperLogLog( int precision )
+    {
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @return whether or not adding the hash changed the register it selected.
+     */
+    boolean add( long hash )
+    {
+        int register = (int) (hash >>> (64 - precision));
+        int rank = Long.numberOfLeadingZeros( (hash << precision) | (1L << (precision - 1)) ) + 1;
+        if ( rank > registers[register] )
+        {
+            registers[register] = (byte) rank;
+            return true;
+        }
+        return false;
+    }
+
+    long estimate()
+    {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for ( byte rank : registers )
+        {
+            sum += 1.0d / (1L << rank);
+            if ( rank == 0 )
+            {
+                zeros++;
+            }
+        }
+        double estimate = alpha( m ) * m * m / sum;
+        if ( estimate <= 2.5 * m && zeros > 0 )
+        {
+            // Linear counting is more accurate while many registers are still empty
+            estimate = m * Math.log( (double) m / zeros );
+        }
+        return Math.round( estimate );
+    }
+
+    private static double alpha( int m )
+    {
+        return 0.7213d / (1 + 1.079d / m);
+    }
+
+    void clear()
+    {
+        Arrays.fill( registers, (byte) 0 );
+    }
+
+    int words()
+    {
+        return registers.length / 8;
+    }
+
+    /**
+     * @return the given word of eight registers, with the first register in the most significant byte.
+     */
+    long word( int word )
+    {
+        long value = 0;
+        for ( int i = word * 8, end = i + 8; i < end; i++ )
+        {
+            value = (value << 8) | (registers[i] & 0xFF);
+        }
+        return value;
+    }
+
+    void word( int word, long value )
+    {
+        for ( int i = word * 8 + 7, start = word * 8; i >= start; i-- )
+        {
+            registers[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import java.util.Collection;
+
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+
+import static org.neo4j.kernel.impl.api.index.UpdateMode.ADDED;
+
+/**
+ * Keeps the sample of an online index up to date as the index is updated, through the {@link IndexValueSketch} of
+ * the index. Since the sketch follows additions exactly, only values that are removed or changed count as updates
+ * towards resampling the index. Indexes without a seeded sketch count all updates, like before, until they are
+ * resampled, which seeds their sketch.
+ *
+ * The sketch is read from the store when first used, and read again whenever it has been reseeded by sampling.
+ */
+public class IncrementalIndexSampler
+{
+    private final IndexStoreView storeView;
+    private final IndexDescriptor descriptor;
+    private final boolean unique;
+    private IndexValueSketch sketch;
+
+    public IncrementalIndexSampler( IndexStoreView storeView, IndexDescriptor descriptor, boolean unique )
+    {
+        this.storeView = storeView;
+        this.descriptor = descriptor;
+        this.unique = unique;
+    }
+
+    /**
+     * Applies updates which have been applied to the index.
+     *
+     * @param removedNodes the number of nodes removed from the index without their values, as in recovery. Since
+     * the sketch cannot tell what was removed, it no longer describes the index and must be reseeded.
+     */
+    public synchronized void apply( Collection<NodePropertyUpdate> updates, long removedNodes )
+    {
+        IndexValueSketch sketch = currentSketch();
+        if ( removedNodes > 0 && sketch.isSeeded() )
+        {
+            sketch.invalidate();
+            sketch.store( storeView, descriptor );
+        }
+        if ( !sketch.isSeeded() )
+        {
+            storeView.incrementIndexUpdates( descriptor, updates.size() + removedNodes );
+            return;
+        }
+
+        long changes = 0;
+        for ( NodePropertyUpdate update : updates )
+        {
+            sketch.update( update );
+            if ( update.getUpdateMode() != ADDED )
+            {
+                changes++;
+            }
+        }
+        sketch.store( storeView, descriptor );
+
+        long entries = Math.max( 0, sketch.entries() );
+        storeView.replaceIndexSample( descriptor, unique ? entries : sketch.uniqueValues(), entries, entries );
+        storeView.incrementIndexUpdates( descriptor, changes );
+    }
+
+    private IndexValueSketch currentSketch()
+    {
+        if ( sketch == null || sketch.generation() != IndexValueSketch.storedGeneration( storeView, descriptor ) )
+        {
+            sketch = IndexValueSketch.load( storeView, descriptor );
+        }
+        return sketch;
+    }
+}
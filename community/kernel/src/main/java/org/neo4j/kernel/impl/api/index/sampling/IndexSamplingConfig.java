@@ -27,12 +27,14 @@ public class IndexSamplingConfig
     private final int bufferSize;
     private final double updateRatio;
     private final boolean backgroundSampling;
+    private final boolean incrementalSampling;
 
     public IndexSamplingConfig( Config config )
     {
         this.bufferSize = config.get( GraphDatabaseSettings.index_sampling_buffer_size ).intValue();
         this.updateRatio = ((double) config.get( GraphDatabaseSettings.index_sampling_update_percentage )) / 100.0d;
         this.backgroundSampling = config.get( GraphDatabaseSettings.index_background_sampling_enabled );
+        this.incrementalSampling = config.get( GraphDatabaseSettings.index_sampling_incremental_enabled );
     }
 
     public int bufferSize()
@@ -54,4 +56,9 @@ public class IndexSamplingConfig
     {
         return backgroundSampling;
     }
+
+    public boolean incrementalSampling()
+    {
+        return incrementalSampling;
+    }
 }
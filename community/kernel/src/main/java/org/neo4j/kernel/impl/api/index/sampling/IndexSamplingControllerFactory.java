@@ -52,8 +52,8 @@ public class IndexSamplingControllerFactory
 
     public IndexSamplingController create( IndexMapSnapshotProvider snapshotProvider )
     {
-        OnlineIndexSamplingJobFactory jobFactory =
-                new OnlineIndexSamplingJobFactory( storeView, tokenNameLookup, logging );
+        OnlineIndexSamplingJobFactory jobFactory = new OnlineIndexSamplingJobFactory(
+                storeView, tokenNameLookup, logging, config.incrementalSampling() );
         Predicate<IndexDescriptor> samplingUpdatePredicate = createSamplingPredicate();
         IndexSamplingJobQueue<IndexDescriptor> jobQueue = new IndexSamplingJobQueue<>( samplingUpdatePredicate );
         IndexSamplingJobTracker jobTracker = new IndexSamplingJobTracker( config, scheduler );
@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.neo4j.kernel.api.index.ArrayEncoder;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.register.Register.DoubleLongRegister;
+
+import static org.neo4j.register.Registers.newDoubleLongRegister;
+
+/**
+ * A running estimate of the number of distinct values in an index, kept in step with the updates of the index so
+ * that it does not have to be resampled by reading the whole index.
+ *
+ * Values are counted by a {@link HyperLogLog}, which cannot forget values that have been removed. To correct for
+ * removals, a reservoir keeps a uniform sample of all entries added to the sketch, in which removed entries are
+ * marked as such. The share of the distinct values of the reservoir which is still alive scales the estimate down.
+ * The more entries that are removed, the fewer live entries there are left in the reservoir to go by, which is why
+ * the sketch should be {@link #IndexValueSketch(long) reseeded} from the store once removals and changes pass the
+ * {@link IndexSamplingConfig#updateRatio() update ratio}.
+ *
+ * The sketch is stored in the counts store, in {@link #SLOTS} slots of two longs each, where the first slot holds
+ * the generation of the sketch and the number of entries in the index. The generation changes whenever the sketch
+ * is reseeded, and is zero for indexes which have no sketch.
+ */
+public class IndexValueSketch
+{
+    static final int PRECISION = 10;
+    static final int RESERVOIR_SIZE = 128;
+
+    private static final int HEADER_SLOT = 0;
+    private static final int COUNTER_SLOT = 1;
+    private static final int FIRST_REGISTER_SLOT = 2;
+    private static final int REGISTERS_PER_SLOT = 16;
+    private static final int FIRST_RESERVOIR_SLOT = FIRST_REGISTER_SLOT + (1 << PRECISION) / REGISTERS_PER_SLOT;
+    public static final int SLOTS = FIRST_RESERVOIR_SLOT + RESERVOIR_SIZE;
+
+    private static final long STRING = 1, ARRAY = 2, TRUE = 3, FALSE = 4;
+
+    private final HyperLogLog values = new HyperLogLog( PRECISION );
+    /** The node ids of the entries in the reservoir, plus one, and negated once removed. Zero for no entry. */
+    private final long[] reservoirNodes = new long[RESERVOIR_SIZE];
+    private final long[] reservoirHashes = new long[RESERVOIR_SIZE];
+    private final BitSet dirty = new BitSet( SLOTS );
+    private long generation;
+    private long entries;
+    private long additions;
+    private long removals;
+
+    /**
+     * Creates an empty sketch of the given generation, which replaces the whole stored sketch when stored.
+     */
+    public IndexValueSketch( long generation )
+    {
+        this.generation = generation;
+        dirty.set( 0, SLOTS );
+    }
+
+    public static IndexValueSketch load( IndexStoreView storeView, IndexDescriptor descriptor )
+    {
+        IndexValueSketch sketch = new IndexValueSketch( 0 );
+        DoubleLongRegister register = newDoubleLongRegister();
+        for ( int slot = 0; slot < SLOTS; slot++ )
+        {
+            storeView.indexSketch( descriptor, slot, register );
+            sketch.read( slot, register.readFirst(), register.readSecond() );
+        }
+        sketch.dirty.clear();
+        return sketch;
+    }
+
+    /**
+     * @return the generation of the sketch stored for the given index, or zero if there is none.
+     */
+    public static long storedGeneration( IndexStoreView storeView, IndexDescriptor descriptor )
+    {
+        return storeView.indexSketch( descriptor, HEADER_SLOT, newDoubleLongRegister() ).readFirst();
+    }
+
+    /**
+     * Removes the stored sketch of the given index, if there is one, clearing only the slots that are in use.
+     */
+    public static void remove( IndexStoreView storeView, IndexDescriptor descriptor )
+    {
+        if ( storedGeneration( storeView, descriptor ) == 0 )
+        {
+            return;
+        }
+        DoubleLongRegister register = newDoubleLongRegister();
+        for ( int slot = 0; slot < SLOTS; slot++ )
+        {
+            if ( !storeView.indexSketch( descriptor, slot, register ).hasValues( 0, 0 ) )
+            {
+                storeView.replaceIndexSketch( descriptor, slot, 0, 0 );
+            }
+        }
+    }
+
+    /**
+     * Writes the slots that have changed since the sketch was loaded or last stored.
+     */
+    public void store( IndexStoreView storeView, IndexDescriptor descriptor )
+    {
+        for ( int slot = dirty.nextSetBit( 0 ); slot >= 0; slot = dirty.nextSetBit( slot + 1 ) )
+        {
+            storeView.replaceIndexSketch( descriptor, slot, first( slot ), second( slot ) );
+        }
+        dirty.clear();
+    }
+
+    public long generation()
+    {
+        return generation;
+    }
+
+    /**
+     * @return whether or not this sketch has been seeded with all entries of its index, and so can be kept up to date.
+     */
+    public boolean isSeeded()
+    {
+        return generation > 0;
+    }
+
+    /**
+     * Marks this sketch as no longer describing its index, as when updates of the index may have been missed.
+     */
+    public void invalidate()
+    {
+        generation = 0;
+        dirty.set( HEADER_SLOT );
+    }
+
+    /**
+     * @return the number of entries in the index.
+     */
+    public long entries()
+    {
+        return entries;
+    }
+
+    public void update( NodePropertyUpdate update )
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            include( update.getNodeId(), update.getValueAfter() );
+            break;
+        case CHANGED:
+            exclude( update.getNodeId(), update.getValueBefore() );
+            include( update.getNodeId(), update.getValueAfter() );
+            break;
+        case REMOVED:
+            exclude( update.getNodeId(), update.getValueBefore() );
+            break;
+        default:
+            throw new IllegalStateException( "Unknown update mode " + update.getUpdateMode() );
+        }
+    }
+
+    public void include( long nodeId, Object value )
+    {
+        long hash = hash( value );
+        entries++;
+        additions++;
+        dirty.set( HEADER_SLOT );
+        dirty.set( COUNTER_SLOT );
+        if ( values.add( hash ) )
+        {
+            dirty.set( FIRST_REGISTER_SLOT + (int) (hash >>> (64 - PRECISION)) / REGISTERS_PER_SLOT );
+        }
+
+        // Every entry added so far has the same chance of being in the reservoir. The position to replace is
+        // drawn from the entry itself, so that a sketch seeded with the same entries always looks the same.
+        long position = additions <= RESERVOIR_SIZE
+                        ? additions - 1 : (mix( nodeId * 0x9e3779b97f4a7c15L + additions ) >>> 1) % additions;
+        if ( position < RESERVOIR_SIZE )
+        {
+            int entry = (int) position;
+            reservoirNodes[entry] = nodeId + 1;
+            reservoirHashes[entry] = hash;
+            dirty.set( FIRST_RESERVOIR_SLOT + entry );
+        }
+    }
+
+    public void exclude( long nodeId, Object value )
+    {
+        long hash = hash( value );
+        entries--;
+        removals++;
+        dirty.set( HEADER_SLOT );
+        dirty.set( COUNTER_SLOT );
+        for ( int entry = 0; entry < RESERVOIR_SIZE; entry++ )
+        {
+            if ( reservoirNodes[entry] == nodeId + 1 && reservoirHashes[entry] == hash )
+            {
+                reservoirNodes[entry] = -(nodeId + 1);
+                dirty.set( FIRST_RESERVOIR_SLOT + entry );
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values in the index, never more than its number of entries.
+     */
+    public long uniqueValues()
+    {
+        if ( entries <= 0 )
+        {
+            return 0;
+        }
+        double estimate = values.estimate();
+        long[] all = new long[RESERVOIR_SIZE];
+        long[] live = new long[RESERVOIR_SIZE];
+        int allCount = 0, liveCount = 0;
+        for ( int entry = 0; entry < RESERVOIR_SIZE; entry++ )
+        {
+            if ( reservoirNodes[entry] != 0 )
+            {
+                all[allCount++] = reservoirHashes[entry];
+                if ( reservoirNodes[entry] > 0 )
+                {
+                    live[liveCount++] = reservoirHashes[entry];
+                }
+            }
+        }
+        int allDistinct = distinct( all, allCount );
+        if ( allDistinct > 0 )
+        {
+            estimate = estimate * distinct( live, liveCount ) / allDistinct;
+        }
+        return Math.max( 1, Math.min( entries, Math.round( estimate ) ) );
+    }
+
+    private static int distinct( long[] hashes, int count )
+    {
+        Arrays.sort( hashes, 0, count );
+        int distinct = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( i == 0 || hashes[i] != hashes[i - 1] )
+            {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    private void read( int slot, long first, long second )
+    {
+        if ( slot == HEADER_SLOT )
+        {
+            generation = first;
+            entries = second;
+        }
+        else if ( slot == COUNTER_SLOT )
+        {
+            additions = first;
+            removals = second;
+        }
+        else if ( slot < FIRST_RESERVOIR_SLOT )
+        {
+            values.word( (slot - FIRST_REGISTER_SLOT) * 2, first );
+            values.word( (slot - FIRST_REGISTER_SLOT) * 2 + 1, second );
+        }
+        else
+        {
+            reservoirNodes[slot - FIRST_RESERVOIR_SLOT] = first;
+            reservoirHashes[slot - FIRST_RESERVOIR_SLOT] = second;
+        }
+    }
+
+    private long first( int slot )
+    {
+        if ( slot == HEADER_SLOT )
+        {
+            return generation;
+        }
+        if ( slot == COUNTER_SLOT )
+        {
+            return additions;
+        }
+        if ( slot < FIRST_RESERVOIR_SLOT )
+        {
+            return values.word( (slot - FIRST_REGISTER_SLOT) * 2 );
+        }
+        return reservoirNodes[slot - FIRST_RESERVOIR_SLOT];
+    }
+
+    private long second( int slot )
+    {
+        if ( slot == HEADER_SLOT )
+        {
+            return entries;
+        }
+        if ( slot == COUNTER_SLOT )
+        {
+            return removals;
+        }
+        if ( slot < FIRST_RESERVOIR_SLOT )
+        {
+            return values.word( (slot - FIRST_REGISTER_SLOT) * 2 + 1 );
+        }
+        return reservoirHashes[slot - FIRST_RESERVOIR_SLOT];
+    }
+
+    /**
+     * Hashes values the way the indexes compare them, so that numbers of different types but with the same value
+     * have the same hash.
+     */
+    static long hash( Object value )
+    {
+        if ( value instanceof Number )
+        {
+            double number = ((Number) value).doubleValue();
+            return mix( Double.doubleToLongBits( number == 0.0d ? 0.0d : number ) );
+        }
+        if ( value instanceof String || value instanceof Character )
+        {
+            return hash( STRING, value.toString() );
+        }
+        if ( value instanceof Boolean )
+        {
+            return mix( (Boolean) value ? TRUE : FALSE );
+        }
+        if ( value != null && value.getClass().isArray() )
+        {
+            return hash( ARRAY, ArrayEncoder.encode( value ) );
+        }
+        throw new IllegalArgumentException( "Unable to index the value " + value );
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters of the string, with a final mix to spread the last characters too.
+     */
+    private static long hash( long type, String string )
+    {
+        long hash = 0xcbf29ce484222325L ^ type;
+        for ( int i = 0; i < string.length(); i++ )
+        {
+            char c = string.charAt( i );
+            hash ^= c & 0xFF;
+            hash *= 0x100000001b3L;
+            hash ^= c >>> 8;
+            hash *= 0x100000001b3L;
+        }
+        return mix( hash );
+    }
+
+    private static long mix( long hash )
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
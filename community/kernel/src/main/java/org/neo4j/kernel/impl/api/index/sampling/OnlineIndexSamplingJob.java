@@ -19,10 +19,12 @@
  */
 package org.neo4j.kernel.impl.api.index.sampling;
 
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.helpers.logging.DurationLogger;
 import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.IndexReader;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.impl.api.index.IndexProxy;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.util.StringLogger;
@@ -40,17 +42,28 @@ class OnlineIndexSamplingJob implements IndexSamplingJob
     private final IndexStoreView storeView;
     private final StringLogger logger;
     private final String indexUserDescription;
+    private final boolean incrementalSampling;
 
     public OnlineIndexSamplingJob( IndexProxy indexProxy,
                                    IndexStoreView storeView,
                                    String indexUserDescription,
                                    Logging logging )
+    {
+        this( indexProxy, storeView, indexUserDescription, logging, false );
+    }
+
+    public OnlineIndexSamplingJob( IndexProxy indexProxy,
+                                   IndexStoreView storeView,
+                                   String indexUserDescription,
+                                   Logging logging,
+                                   boolean incrementalSampling )
     {
         this.indexDescriptor = indexProxy.getDescriptor();
         this.indexProxy = indexProxy;
         this.storeView = storeView;
         this.logger = logging.getMessagesLog( OnlineIndexSamplingJob.class );
         this.indexUserDescription = indexUserDescription;
+        this.incrementalSampling = incrementalSampling;
     }
 
     @Override
@@ -64,6 +77,11 @@ class OnlineIndexSamplingJob implements IndexSamplingJob
     {
         try( DurationLogger durationLogger = new DurationLogger( logger, "Sampling index " + indexUserDescription ) )
         {
+            if ( incrementalSampling )
+            {
+                seedSketch( durationLogger );
+                return;
+            }
             try
             {
                 try ( IndexReader reader = indexProxy.newReader() )
@@ -97,4 +115,40 @@ class OnlineIndexSamplingJob implements IndexSamplingJob
         }
     }
 
+    /**
+     * Seeds a new generation of the {@link IndexValueSketch sketch} of the index from the nodes in the store, which
+     * the index then keeps up to date by itself, and samples the index from it. Updates applied to the index while
+     * the store is read may or may not make it into the new sketch, which is fine for an estimate.
+     */
+    private void seedSketch( DurationLogger durationLogger )
+    {
+        final IndexValueSketch sketch =
+                new IndexValueSketch( IndexValueSketch.storedGeneration( storeView, indexDescriptor ) + 1 );
+        storeView.visitNodesWithPropertyAndLabel( indexDescriptor, new Visitor<NodePropertyUpdate,RuntimeException>()
+        {
+            @Override
+            public boolean visit( NodePropertyUpdate update )
+            {
+                sketch.include( update.getNodeId(), update.getValueAfter() );
+                return false;
+            }
+        } ).run();
+
+        // check again if the index is online before saving the counts in the store
+        if ( indexProxy.getState() == ONLINE )
+        {
+            long size = sketch.entries();
+            long unique = indexProxy.config().isUnique() ? size : sketch.uniqueValues();
+            sketch.store( storeView, indexDescriptor );
+            storeView.replaceIndexCounts( indexDescriptor, unique, size, size );
+            durationLogger.markAsFinished();
+            logger.info( format( "Sampled index %s with %d unique values in %d entries read from the store",
+                    indexUserDescription, unique, size ) );
+        }
+        else
+        {
+            durationLogger.markAsAborted( "Index no longer ONLINE" );
+        }
+    }
+
 }
@@ -29,18 +29,27 @@ public class OnlineIndexSamplingJobFactory implements IndexSamplingJobFactory
     private final IndexStoreView storeView;
     private final Logging logging;
     private final TokenNameLookup nameLookup;
+    private final boolean incrementalSampling;
 
     public OnlineIndexSamplingJobFactory( IndexStoreView storeView, TokenNameLookup nameLookup, Logging logging )
+    {
+        this( storeView, nameLookup, logging, false );
+    }
+
+    public OnlineIndexSamplingJobFactory( IndexStoreView storeView, TokenNameLookup nameLookup, Logging logging,
+                                          boolean incrementalSampling )
     {
         this.storeView = storeView;
         this.logging = logging;
         this.nameLookup = nameLookup;
+        this.incrementalSampling = incrementalSampling;
     }
 
     @Override
     public IndexSamplingJob create( IndexProxy indexProxy )
     {
         final String indexUserDescription = indexProxy.getDescriptor().userDescription( nameLookup );
-        return new OnlineIndexSamplingJob( indexProxy, storeView, indexUserDescription, logging );
+        return new OnlineIndexSamplingJob( indexProxy, storeView, indexUserDescription, logging,
+                incrementalSampling );
     }
 }
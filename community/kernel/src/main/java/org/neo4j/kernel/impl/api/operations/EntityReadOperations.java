@@ -49,6 +49,12 @@ public interface EntityReadOperations
      */
     PrimitiveLongIterator nodesGetForLabel( KernelStatement state, int labelId );
 
+    /**
+     * @param labelIds the label ids of the labels that returned nodes are guaranteed to have, all of them
+     * @return ids of all nodes that have all of the given labels
+     */
+    PrimitiveLongIterator nodesGetForLabels( KernelStatement state, int... labelIds );
+
     /**
      * Returns an iterable with the matched nodes.
      *
@@ -57,6 +63,32 @@ public interface EntityReadOperations
     PrimitiveLongIterator nodesGetFromIndexLookup( KernelStatement state, IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException;
 
+    /**
+     * Returns an iterable with the nodes which have a number within the given range.
+     *
+     * @throws IndexNotFoundKernelException if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state, IndexDescriptor index,
+            Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException;
+
+    /**
+     * Returns an iterable with the nodes which have a string within the given range.
+     *
+     * @throws IndexNotFoundKernelException if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement state, IndexDescriptor index,
+            String lower, boolean includeLower, String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException;
+
+    /**
+     * Returns an iterable with the nodes which have a string starting with the given prefix.
+     *
+     * @throws IndexNotFoundKernelException if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state, IndexDescriptor index,
+            String prefix ) throws IndexNotFoundKernelException;
+
     /**
      * Returns an iterable with the matched node.
      *
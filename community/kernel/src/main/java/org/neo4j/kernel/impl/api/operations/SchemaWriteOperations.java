@@ -32,10 +32,10 @@ import org.neo4j.kernel.api.index.IndexDescriptor;
 public interface SchemaWriteOperations
 {
     /**
-     * Creates an index, indexing properties with the given {@code propertyKeyId} for nodes with the given
-     * {@code labelId}.
+     * Creates an index, indexing properties with the given {@code propertyKeyIds} for nodes with the given
+     * {@code labelId}. An index of more than one property is a composite index.
      */
-    IndexDescriptor indexCreate( KernelStatement state, int labelId, int propertyKeyId )
+    IndexDescriptor indexCreate( KernelStatement state, int labelId, int... propertyKeyIds )
             throws AddIndexFailureException, AlreadyIndexedException, AlreadyConstrainedException;
 
     /** Drops a {@link IndexDescriptor} from the database */
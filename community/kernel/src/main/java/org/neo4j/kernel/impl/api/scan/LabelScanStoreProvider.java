@@ -83,16 +83,60 @@ public class LabelScanStoreProvider extends LifecycleAdapter implements Comparab
         }
     };
 
+    /**
+     * SelectionStrategy for {@link KernelExtensions kernel extensions loading} where the one with the given name is
+     * selected, or if no name is given the one with the highest {@link #priority}.
+     */
+    public static SelectionStrategy selectByNameOrHighestPrioritized( final String name )
+    {
+        return new SelectionStrategy()
+        {
+            @Override
+            public <T> T select( Class<T> type, Iterable<T> candidates ) throws IllegalArgumentException
+            {
+                if ( name == null )
+                {
+                    return HIGHEST_PRIORITIZED.select( type, candidates );
+                }
+                List<String> available = new ArrayList<>();
+                for ( T candidate : candidates )
+                {
+                    String candidateName = ((LabelScanStoreProvider) candidate).getName();
+                    if ( name.equals( candidateName ) )
+                    {
+                        return candidate;
+                    }
+                    available.add( candidateName );
+                }
+                throw new IllegalArgumentException( "No label scan store provider named '" + name + "' found, " +
+                        "available providers are " + available + ". " + servicesClassPathEntryInformation() );
+            }
+        };
+    }
+
+    private final String name;
+
     private final LabelScanStore labelScanStore;
 
     private final int priority;
 
     public LabelScanStoreProvider( LabelScanStore labelScanStore, int priority )
     {
+        this( null, labelScanStore, priority );
+    }
+
+    public LabelScanStoreProvider( String name, LabelScanStore labelScanStore, int priority )
+    {
+        this.name = name;
         this.labelScanStore = labelScanStore;
         this.priority = priority;
     }
 
+    public String getName()
+    {
+        return name;
+    }
+
     public LabelScanStore getLabelScanStore()
     {
         return labelScanStore;
@@ -34,6 +34,7 @@ import org.neo4j.function.Function;
 import org.neo4j.helpers.Predicate;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.kernel.api.constraints.UniquenessConstraint;
+import org.neo4j.kernel.api.index.CompositeIndexValue;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.properties.DefinedProperty;
 import org.neo4j.kernel.api.properties.Property;
@@ -138,8 +139,10 @@ public final class TxState implements TransactionState
     private Map<String, Map<String, String>> createdRelationshipLegacyIndexes;
 
     private PrimitiveIntObjectMap<Map<DefinedProperty, DiffSets<Long>>> indexUpdates;
+    private Map<IndexDescriptor, Map<CompositeIndexValue, DiffSets<Long>>> compositeIndexUpdates;
 
     private boolean hasChanges;
+    private long entityChanges;
 
     @Override
     public void accept( final TxStateVisitor visitor )
@@ -378,6 +381,12 @@ public final class TxState implements TransactionState
         return hasChanges;
     }
 
+    @Override
+    public long entityChanges()
+    {
+        return entityChanges;
+    }
+
     @Override
     public Iterable<NodeState> modifiedNodes()
     {
@@ -450,6 +459,7 @@ public final class TxState implements TransactionState
     public void nodeDoCreate( long id )
     {
         nodes().add( id );
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -475,6 +485,7 @@ public final class TxState implements TransactionState
                 nodeState.clear();
             }
         }
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -495,6 +506,7 @@ public final class TxState implements TransactionState
 
         getOrCreateRelationshipState( id ).setMetaData( startNodeId, endNodeId, relationshipTypeId );
 
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -539,6 +551,7 @@ public final class TxState implements TransactionState
             }
         }
 
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -637,6 +650,7 @@ public final class TxState implements TransactionState
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).add( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).add( labelId );
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -645,6 +659,7 @@ public final class TxState implements TransactionState
     {
         getOrCreateLabelStateNodeDiffSets( labelId ).remove( nodeId );
         getOrCreateNodeStateLabelDiffSets( nodeId ).remove( labelId );
+        entityChanges++;
         hasChanges = true;
     }
 
@@ -999,16 +1014,59 @@ public final class TxState implements TransactionState
     @Override
     public ReadableDiffSets<Long> indexUpdates( IndexDescriptor descriptor, Object value )
     {
+        if ( descriptor.isComposite() )
+        {
+            return ReadableDiffSets.Empty.ifNull(
+                    getCompositeIndexUpdates( descriptor, /*create=*/false, (CompositeIndexValue) value ) );
+        }
         return ReadableDiffSets.Empty.ifNull(
                 getIndexUpdates( descriptor.getLabelId(), /*create=*/false,
                                  property( descriptor.getPropertyKeyId(), value ) ) );
     }
 
+    @Override
+    public ReadableDiffSets<Long> indexUpdatesByValue( IndexDescriptor descriptor, Predicate<Object> valueFilter )
+    {
+        Map<DefinedProperty, DiffSets<Long>> updates =
+                indexUpdates == null ? null : indexUpdates.get( descriptor.getLabelId() );
+        if ( updates == null || descriptor.isComposite() )
+        {
+            return ReadableDiffSets.Empty.instance();
+        }
+        Set<Long> added = new HashSet<>();
+        Set<Long> removed = new HashSet<>();
+        for ( Map.Entry<DefinedProperty, DiffSets<Long>> entry : updates.entrySet() )
+        {
+            DefinedProperty property = entry.getKey();
+            if ( property.propertyKeyId() == descriptor.getPropertyKeyId() &&
+                 valueFilter.accept( property.value() ) )
+            {
+                added.addAll( entry.getValue().getAdded() );
+                removed.addAll( entry.getValue().getRemoved() );
+            }
+        }
+        removed.removeAll( added );
+        return new DiffSets<>( added, removed );
+    }
+
     @Override
     public void indexDoUpdateProperty( IndexDescriptor descriptor, long nodeId,
                                        DefinedProperty propertyBefore, DefinedProperty propertyAfter )
     {
-        DiffSets<Long> before = getIndexUpdates( descriptor.getLabelId(), true, propertyBefore );
+        indexDoUpdate( nodeId, getIndexUpdates( descriptor.getLabelId(), true, propertyBefore ),
+                getIndexUpdates( descriptor.getLabelId(), true, propertyAfter ) );
+    }
+
+    @Override
+    public void compositeIndexDoUpdate( IndexDescriptor descriptor, long nodeId,
+                                        CompositeIndexValue valueBefore, CompositeIndexValue valueAfter )
+    {
+        indexDoUpdate( nodeId, getCompositeIndexUpdates( descriptor, true, valueBefore ),
+                getCompositeIndexUpdates( descriptor, true, valueAfter ) );
+    }
+
+    private void indexDoUpdate( long nodeId, DiffSets<Long> before, DiffSets<Long> after )
+    {
         if ( before != null )
         {
             before.remove( nodeId );
@@ -1022,7 +1080,6 @@ public final class TxState implements TransactionState
             }
         }
 
-        DiffSets<Long> after = getIndexUpdates( descriptor.getLabelId(), true, propertyAfter );
         if ( after != null )
         {
             after.add( nodeId );
@@ -1037,6 +1094,38 @@ public final class TxState implements TransactionState
         }
     }
 
+    private DiffSets<Long> getCompositeIndexUpdates( IndexDescriptor descriptor, boolean create,
+                                                     CompositeIndexValue value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        if ( compositeIndexUpdates == null )
+        {
+            if ( !create )
+            {
+                return null;
+            }
+            compositeIndexUpdates = new HashMap<>();
+        }
+        Map<CompositeIndexValue, DiffSets<Long>> updates = compositeIndexUpdates.get( descriptor );
+        if ( updates == null )
+        {
+            if ( !create )
+            {
+                return null;
+            }
+            compositeIndexUpdates.put( descriptor, updates = new HashMap<>() );
+        }
+        DiffSets<Long> diffs = updates.get( value );
+        if ( diffs == null && create )
+        {
+            updates.put( value, diffs = new DiffSets<>() );
+        }
+        return diffs;
+    }
+
     private DiffSets<Long> getIndexUpdates( int label, boolean create, DefinedProperty property )
     {
         if ( property == null )
@@ -38,6 +38,7 @@
  */
 package org.neo4j.kernel.impl.api.store;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
@@ -95,7 +96,7 @@ public class CacheLayer implements StoreReadLayer
         {
             IndexRule rule = (IndexRule) from;
             // We know that we only have int range of property key ids.
-            return new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() );
+            return new IndexDescriptor( rule.getLabel(), rule.getPropertyKeys() );
         }
     };
 
@@ -241,7 +242,8 @@ public class CacheLayer implements StoreReadLayer
             if ( rule instanceof IndexRule )
             {
                 IndexRule indexRule = (IndexRule) rule;
-                if ( kind.isOfKind( indexRule ) && indexRule.getPropertyKey() == index.getPropertyKeyId() )
+                if ( kind.isOfKind( indexRule ) &&
+                     Arrays.equals( indexRule.getPropertyKeys(), index.getPropertyKeyIds() ) )
                 {
                     return indexRule;
                 }
@@ -342,6 +344,12 @@ public class CacheLayer implements StoreReadLayer
         return diskLayer.nodesGetForLabel( state, labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForLabels( KernelStatement state, int... labelIds )
+    {
+        return diskLayer.nodesGetForLabels( state, labelIds );
+    }
+
     @Override
     public PrimitiveLongResourceIterator nodesGetFromIndexLookup( KernelStatement state, IndexDescriptor index, Object value )
             throws IndexNotFoundKernelException
@@ -349,6 +357,31 @@ public class CacheLayer implements StoreReadLayer
         return diskLayer.nodesGetFromIndexLookup( state, schemaCache.indexId( index ), value );
     }
 
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state,
+            IndexDescriptor index, Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        return diskLayer.nodesGetFromIndexRangeSeekByNumber( state, schemaCache.indexId( index ), lower,
+                includeLower, upper, includeUpper );
+    }
+
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByString( KernelStatement state,
+            IndexDescriptor index, String lower, boolean includeLower, String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        return diskLayer.nodesGetFromIndexRangeSeekByString( state, schemaCache.indexId( index ), lower,
+                includeLower, upper, includeUpper );
+    }
+
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state,
+            IndexDescriptor index, String prefix ) throws IndexNotFoundKernelException
+    {
+        return diskLayer.nodesGetFromIndexRangeSeekByPrefix( state, schemaCache.indexId( index ), prefix );
+    }
+
     @Override
     public IndexDescriptor indexesGetForLabelAndPropertyKey( int labelId, int propertyKey )
     {
@@ -293,6 +293,12 @@ public class DiskLayer implements StoreReadLayer
         return state.getLabelScanReader().nodesWithLabel( labelId );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetForLabels( KernelStatement state, int... labelIds )
+    {
+        return state.getLabelScanReader().nodesWithAllLabels( labelIds );
+    }
+
     @Override
     public PrimitiveLongResourceIterator nodesGetFromIndexLookup( KernelStatement state, IndexDescriptor index, Object value
     ) throws IndexNotFoundKernelException
@@ -300,6 +306,29 @@ public class DiskLayer implements StoreReadLayer
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state,
+            IndexDescriptor index, Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByString( KernelStatement state,
+            IndexDescriptor index, String lower, boolean includeLower, String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state,
+            IndexDescriptor index, String prefix ) throws IndexNotFoundKernelException
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public IndexDescriptor indexesGetForLabelAndPropertyKey( int labelId, int propertyKey )
     {
@@ -308,7 +337,7 @@ public class DiskLayer implements StoreReadLayer
 
     private static IndexDescriptor descriptor( IndexRule ruleRecord )
     {
-        return new IndexDescriptor( ruleRecord.getLabel(), ruleRecord.getPropertyKey() );
+        return new IndexDescriptor( ruleRecord.getLabel(), ruleRecord.getPropertyKeys() );
     }
 
     @Override
@@ -410,7 +439,7 @@ public class DiskLayer implements StoreReadLayer
     public Long indexGetOwningUniquenessConstraintId( IndexDescriptor index )
             throws SchemaRuleNotFoundException
     {
-        return schemaStorage.indexRule( index.getLabelId(), index.getPropertyKeyId() ).getOwningConstraint();
+        return schemaStorage.indexRule( index, SchemaStorage.IndexRuleKind.ALL ).getOwningConstraint();
     }
 
     @Override
@@ -423,7 +452,7 @@ public class DiskLayer implements StoreReadLayer
     public long indexGetCommittedId( IndexDescriptor index, SchemaStorage.IndexRuleKind kind )
             throws SchemaRuleNotFoundException
     {
-        return schemaStorage.indexRule( index.getLabelId(), index.getPropertyKeyId() ).getId();
+        return schemaStorage.indexRule( index, SchemaStorage.IndexRuleKind.ALL ).getId();
     }
 
     @Override
@@ -447,7 +476,7 @@ public class DiskLayer implements StoreReadLayer
 
     private long indexId( IndexDescriptor descriptor )
     {
-        return schemaStorage.indexRule( descriptor.getLabelId(), descriptor.getPropertyKeyId() ).getId();
+        return schemaStorage.indexRule( descriptor, SchemaStorage.IndexRuleKind.ALL ).getId();
     }
 
     @Override
@@ -541,7 +570,8 @@ public class DiskLayer implements StoreReadLayer
     {
         try
         {
-            return loadAllPropertiesOf( nodeStore.getRecord( nodeId ) );
+            NodeRecord node = nodeStore.getRecord( nodeId );
+            return propertiesOf( nodeStore.getPropertyRecordChain( node, propertyStore ) );
         }
         catch ( InvalidRecordException e )
         {
@@ -601,9 +631,36 @@ public class DiskLayer implements StoreReadLayer
         return resourceIterator( reader.lookup( value ), reader );
     }
 
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state, long index,
+            Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        IndexReader reader = state.getIndexReader( index );
+        return resourceIterator( reader.rangeSeekByNumber( lower, includeLower, upper, includeUpper ), reader );
+    }
+
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByString( KernelStatement state, long index,
+            String lower, boolean includeLower, String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        IndexReader reader = state.getIndexReader( index );
+        return resourceIterator( reader.rangeSeekByString( lower, includeLower, upper, includeUpper ), reader );
+    }
+
+    public PrimitiveLongResourceIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state, long index,
+            String prefix ) throws IndexNotFoundKernelException
+    {
+        IndexReader reader = state.getIndexReader( index );
+        return resourceIterator( reader.rangeSeekByPrefix( prefix ), reader );
+    }
+
     private Iterator<DefinedProperty> loadAllPropertiesOf( PrimitiveRecord primitiveRecord )
     {
-        Collection<PropertyRecord> records = propertyStore.getPropertyRecordChain( primitiveRecord.getNextProp() );
+        return propertiesOf( propertyStore.getPropertyRecordChain( primitiveRecord.getNextProp() ) );
+    }
+
+    private Iterator<DefinedProperty> propertiesOf( Collection<PropertyRecord> records )
+    {
         if ( null == records )
         {
             return IteratorUtil.emptyIterator();
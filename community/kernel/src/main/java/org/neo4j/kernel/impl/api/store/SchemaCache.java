@@ -55,7 +55,7 @@ public class SchemaCache
     private final Map<Long, SchemaRule> rulesByIdMap = new HashMap<>();
 
     private final Collection<UniquenessConstraint> constraints = new HashSet<>();
-    private final Map<Integer, Map<Integer, CommittedIndexDescriptor>> indexDescriptors = new HashMap<>();
+    private final Map<IndexDescriptor, CommittedIndexDescriptor> indexDescriptors = new HashMap<>();
 
     public SchemaCache( Iterable<SchemaRule> initialRules )
     {
@@ -143,13 +143,9 @@ public class SchemaCache
         else if( rule instanceof IndexRule )
         {
             IndexRule indexRule = (IndexRule) rule;
-            Map<Integer, CommittedIndexDescriptor> byLabel = indexDescriptors.get( indexRule.getLabel() );
-            if ( byLabel == null )
-            {
-                indexDescriptors.put( indexRule.getLabel(), byLabel = new HashMap<>() );
-            }
-            byLabel.put( indexRule.getPropertyKey(), new CommittedIndexDescriptor( indexRule.getLabel(),
-                    indexRule.getPropertyKey(), indexRule.getId() ) );
+            CommittedIndexDescriptor committed = new CommittedIndexDescriptor( indexRule.getLabel(),
+                    indexRule.getPropertyKeys(), indexRule.getId() );
+            indexDescriptors.put( committed.getDescriptor(), committed );
         }
     }
 
@@ -180,9 +176,9 @@ public class SchemaCache
         private final IndexDescriptor descriptor;
         private final long id;
 
-        public CommittedIndexDescriptor( int labelId, int propertyKey, long id )
+        public CommittedIndexDescriptor( int labelId, int[] propertyKeys, long id )
         {
-            this.descriptor = new IndexDescriptor( labelId, propertyKey );
+            this.descriptor = new IndexDescriptor( labelId, propertyKeys );
             this.id = id;
         }
 
@@ -219,25 +215,16 @@ public class SchemaCache
         else if( rule instanceof IndexRule )
         {
             IndexRule indexRule = (IndexRule) rule;
-            Map<Integer, CommittedIndexDescriptor> byLabel = indexDescriptors.get( indexRule.getLabel() );
-            byLabel.remove( indexRule.getPropertyKey() );
-            if ( byLabel.isEmpty() )
-            {
-                indexDescriptors.remove( indexRule.getLabel() );
-            }
+            indexDescriptors.remove( new IndexDescriptor( indexRule.getLabel(), indexRule.getPropertyKeys() ) );
         }
     }
 
     public long indexId( IndexDescriptor index ) throws IndexNotFoundKernelException
     {
-        Map<Integer, CommittedIndexDescriptor> byLabel = indexDescriptors.get( index.getLabelId() );
-        if ( byLabel != null )
+        CommittedIndexDescriptor committed = indexDescriptors.get( index );
+        if ( committed != null )
         {
-            CommittedIndexDescriptor committed = byLabel.get( index.getPropertyKeyId() );
-            if ( committed != null )
-            {
-                return committed.getId();
-            }
+            return committed.getId();
         }
 
         throw new IndexNotFoundKernelException(
@@ -252,16 +239,8 @@ public class SchemaCache
 
     public IndexDescriptor indexDescriptor( int labelId, int propertyKey )
     {
-        Map<Integer, CommittedIndexDescriptor> byLabel = indexDescriptors.get( labelId );
-        if ( byLabel != null )
-        {
-            CommittedIndexDescriptor committed = byLabel.get( propertyKey );
-            if ( committed != null )
-            {
-                return committed.getDescriptor();
-            }
-        }
-        return null;
+        CommittedIndexDescriptor committed = indexDescriptors.get( new IndexDescriptor( labelId, propertyKey ) );
+        return committed != null ? committed.getDescriptor() : null;
     }
 
     public IndexDescriptor indexDescriptor( long indexId )
@@ -269,7 +248,9 @@ public class SchemaCache
         SchemaRule rule = rulesByIdMap.get( indexId );
         if ( rule instanceof IndexRule )
         {
-            return indexDescriptor( rule.getLabel(), ((IndexRule) rule).getPropertyKey() );
+            CommittedIndexDescriptor committed = indexDescriptors.get(
+                    new IndexDescriptor( rule.getLabel(), ((IndexRule) rule).getPropertyKeys() ) );
+            return committed != null ? committed.getDescriptor() : null;
         }
         return null;
     }
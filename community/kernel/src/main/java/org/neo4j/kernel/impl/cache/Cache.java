@@ -85,6 +85,11 @@ public interface Cache<E extends EntityWithSizeObject>
     void updateSize( E entity, int newSize );
 
     void printStatistics();
+
+    /**
+     * Releases resources held by the cache, such as background threads.
+     */
+    void close();
     
     public static abstract class Adapter<E extends EntityWithSizeObject> implements Cache<E>
     {
@@ -93,5 +98,10 @@ public interface Cache<E extends EntityWithSizeObject>
         {
             return put( value, false );
         }
+
+        @Override
+        public void close()
+        {
+        }
     }
 }
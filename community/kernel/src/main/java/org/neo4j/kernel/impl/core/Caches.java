@@ -43,4 +43,9 @@ public interface Caches
     void clear();
 
     CacheProvider getProvider();
+
+    /**
+     * Closes the caches, which won't be used after this.
+     */
+    void close();
 }
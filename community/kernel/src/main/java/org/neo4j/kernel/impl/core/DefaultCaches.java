@@ -90,4 +90,17 @@ public class DefaultCaches implements Caches
     {
         return provider;
     }
+
+    @Override
+    public void close()
+    {
+        if ( nodeCache != null )
+        {
+            nodeCache.close();
+        }
+        if ( relCache != null )
+        {
+            relCache.close();
+        }
+    }
 }
@@ -30,14 +30,35 @@ import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
 import org.neo4j.kernel.impl.util.RelationshipFilter;
 
 import static org.neo4j.helpers.collection.IteratorUtil.iterator;
+import static org.neo4j.kernel.impl.cache.SizeOfs.REFERENCE_SIZE;
 
 public class DenseNodeImpl extends NodeImpl
 {
+    /*
+     * Degrees of this node as they were in the store when they were loaded. Cleared by committers changing
+     * relationships of this node, and the version makes sure that a reader racing with such a committer
+     * doesn't cache degrees loaded before the change was written to the store.
+     */
+    private volatile RelationshipGroupDegrees degrees;
+    private int degreesVersion;
+
     public DenseNodeImpl( long id )
     {
         super( id );
     }
 
+    @Override
+    public int sizeOfObjectInBytesIncludingOverhead()
+    {
+        int size = super.sizeOfObjectInBytesIncludingOverhead() + REFERENCE_SIZE/*degrees*/ + 4/*degreesVersion*/;
+        RelationshipGroupDegrees degrees = this.degrees;
+        if ( degrees != null )
+        {
+            size += degrees.sizeOfObjectInBytesIncludingOverhead();
+        }
+        return size;
+    }
+
     @Override
     public int getDegree( RelationshipLoader relationshipLoader, int type,
             CacheUpdateListener cacheUpdateListener )
@@ -45,33 +66,71 @@ public class DenseNodeImpl extends NodeImpl
         return getDegree( relationshipLoader, type, Direction.BOTH, cacheUpdateListener );
     }
 
+    @Override
+    public int getDegree( RelationshipLoader relationshipLoader )
+    {
+        return degrees( relationshipLoader, CacheUpdateListener.NO_UPDATES ).degree( -1, DirectionWrapper.BOTH );
+    }
+
     @Override
     public int getDegree( RelationshipLoader relationshipLoader, Direction direction,
             CacheUpdateListener cacheUpdateListener )
     {
-        return relationshipLoader.getRelationshipCount( getId(), -1, RelIdArray.wrap( direction ) );
+        return degrees( relationshipLoader, cacheUpdateListener ).degree( -1, RelIdArray.wrap( direction ) );
     }
 
     @Override
     public int getDegree( RelationshipLoader relationshipLoader, int type, Direction direction,
             CacheUpdateListener cacheUpdateListener )
     {
-        return relationshipLoader.getRelationshipCount( getId(), type, RelIdArray.wrap( direction ) );
+        return degrees( relationshipLoader, cacheUpdateListener ).degree( type, RelIdArray.wrap( direction ) );
     }
 
     @Override
-    public Iterator<Integer> getRelationshipTypes( RelationshipLoader relationshipLoader,
+    public void visitDegrees( RelationshipLoader relationshipLoader, DegreeVisitor visitor,
+                              CacheUpdateListener cacheUpdateListener )
+    {
+        degrees( relationshipLoader, cacheUpdateListener ).accept( visitor );
+    }
+
+    private RelationshipGroupDegrees degrees( RelationshipLoader relationshipLoader,
             CacheUpdateListener cacheUpdateListener )
     {
-        return hasMoreRelationshipsToLoad() ? iterator( relationshipLoader.getRelationshipTypes( getId() ) ) :
-            super.getRelationshipTypes( relationshipLoader, cacheUpdateListener );
+        RelationshipGroupDegrees result = degrees;
+        if ( result == null )
+        {
+            int version;
+            synchronized ( this )
+            {
+                version = degreesVersion;
+            }
+            result = relationshipLoader.getRelationshipGroupDegrees( getId() );
+            synchronized ( this )
+            {
+                if ( version != degreesVersion )
+                {   // Relationships changed while loading, use what we got but don't keep it
+                    return result;
+                }
+                degrees = result;
+            }
+            cacheUpdateListener.newSize( this, sizeOfObjectInBytesIncludingOverhead() );
+        }
+        return result;
     }
 
     @Override
-    public void visitDegrees( RelationshipLoader relationshipLoader, DegreeVisitor visitor,
-                              CacheUpdateListener cacheUpdateListener )
+    protected synchronized void relationshipsChanged()
     {
-        relationshipLoader.visitRelationshipCounts( getId(), visitor );
+        degreesVersion++;
+        degrees = null;
+    }
+
+    @Override
+    public Iterator<Integer> getRelationshipTypes( RelationshipLoader relationshipLoader,
+            CacheUpdateListener cacheUpdateListener )
+    {
+        return hasMoreRelationshipsToLoad() ? iterator( relationshipLoader.getRelationshipTypes( getId() ) ) :
+            super.getRelationshipTypes( relationshipLoader, cacheUpdateListener );
     }
 
     @Override
@@ -556,6 +556,7 @@ public class NodeImpl extends ArrayBasedPrimitive
             PrimitiveIntObjectMap<PrimitiveLongSet> removeMap,
             FirstRelationshipIds firstRelationshipIds, boolean dense )
     {
+        relationshipsChanged();
         if ( dense != isDense() )
         {
             return true;
@@ -609,6 +610,14 @@ public class NodeImpl extends ArrayBasedPrimitive
         return false;
     }
 
+    /**
+     * Called when a committed transaction has changed the relationships of this node, after the changes
+     * have been written to the store but before any cached relationships are updated.
+     */
+    protected void relationshipsChanged()
+    {
+    }
+
     /**
      * Instantiates a filter which relationships that committers apply to this cached node must pass
      * before being added. This filter is needed since there is no synchronization between committers and
@@ -695,6 +704,7 @@ public class NodeImpl extends ArrayBasedPrimitive
 
     public void updateRelationshipChainPosition( DirectionWrapper direction, int type, long relIdDeleted, long nextRelId )
     {
+        relationshipsChanged();
         if ( relChainPosition != null )
         {
             if ( relChainPosition.atPosition( direction, type, relIdDeleted ) )
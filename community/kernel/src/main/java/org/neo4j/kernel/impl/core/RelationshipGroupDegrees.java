@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.util.Arrays;
+
+import org.neo4j.kernel.impl.api.DegreeVisitor;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+
+import static org.neo4j.kernel.impl.cache.SizeOfs.REFERENCE_SIZE;
+import static org.neo4j.kernel.impl.cache.SizeOfs.sizeOfArray;
+import static org.neo4j.kernel.impl.cache.SizeOfs.withObjectOverhead;
+
+/**
+ * Immutable snapshot of the degrees of a dense node, i.e. the number of outgoing, incoming and loop
+ * relationships of each of its relationship groups. The counts are those kept in the first record of
+ * each relationship chain, so a snapshot costs one pass over the relationship groups to build and
+ * after that answers any degree question without touching the store.
+ */
+public class RelationshipGroupDegrees
+{
+    private static final int OUT = 0, IN = 1, LOOP = 2, COUNTS_PER_TYPE = 3;
+
+    private final int[] types;
+    private final int[] counts;
+
+    private RelationshipGroupDegrees( int[] types, int[] counts )
+    {
+        this.types = types;
+        this.counts = counts;
+    }
+
+    /**
+     * @param type relationship type to get the degree for, or {@code -1} for all types.
+     * @param direction direction to get the degree for, where loops count as both outgoing and incoming.
+     * @return number of relationships of the given type and direction.
+     */
+    public int degree( int type, DirectionWrapper direction )
+    {
+        if ( type == -1 )
+        {
+            int degree = 0;
+            for ( int i = 0; i < types.length; i++ )
+            {
+                degree += degreeAt( i, direction );
+            }
+            return degree;
+        }
+
+        for ( int i = 0; i < types.length; i++ )
+        {
+            if ( types[i] == type )
+            {
+                return degreeAt( i, direction );
+            }
+        }
+        return 0;
+    }
+
+    private int degreeAt( int index, DirectionWrapper direction )
+    {
+        int offset = index * COUNTS_PER_TYPE;
+        int loops = counts[offset + LOOP];
+        switch ( direction )
+        {
+        case OUTGOING:
+            return counts[offset + OUT] + loops;
+        case INCOMING:
+            return counts[offset + IN] + loops;
+        default:
+            return counts[offset + OUT] + counts[offset + IN] + loops;
+        }
+    }
+
+    public void accept( DegreeVisitor visitor )
+    {
+        for ( int i = 0; i < types.length; i++ )
+        {
+            int offset = i * COUNTS_PER_TYPE;
+            int loops = counts[offset + LOOP];
+            visitor.visitDegree( types[i], counts[offset + OUT] + loops, counts[offset + IN] + loops );
+        }
+    }
+
+    public int sizeOfObjectInBytesIncludingOverhead()
+    {
+        return withObjectOverhead( REFERENCE_SIZE + sizeOfArray( types ) + REFERENCE_SIZE + sizeOfArray( counts ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[types:" + Arrays.toString( types ) +
+                ", out/in/loop:" + Arrays.toString( counts ) + "]";
+    }
+
+    public static class Builder
+    {
+        private int[] types = new int[4];
+        private int[] counts = new int[types.length * COUNTS_PER_TYPE];
+        private int size;
+
+        public Builder add( int type, int outgoing, int incoming, int loops )
+        {
+            if ( size == types.length )
+            {
+                types = Arrays.copyOf( types, size * 2 );
+                counts = Arrays.copyOf( counts, types.length * COUNTS_PER_TYPE );
+            }
+            int offset = size * COUNTS_PER_TYPE;
+            types[size] = type;
+            counts[offset + OUT] = outgoing;
+            counts[offset + IN] = incoming;
+            counts[offset + LOOP] = loops;
+            size++;
+            return this;
+        }
+
+        public RelationshipGroupDegrees build()
+        {
+            return new RelationshipGroupDegrees( Arrays.copyOf( types, size ),
+                    Arrays.copyOf( counts, size * COUNTS_PER_TYPE ) );
+        }
+    }
+}
@@ -26,7 +26,6 @@ import java.util.Map;
 
 import org.neo4j.helpers.Pair;
 import org.neo4j.helpers.Triplet;
-import org.neo4j.kernel.impl.api.DegreeVisitor;
 import org.neo4j.kernel.impl.cache.Cache;
 import org.neo4j.kernel.impl.locking.Lock;
 import org.neo4j.kernel.impl.locking.LockService;
@@ -144,9 +143,9 @@ public class RelationshipLoader
         return chainLoader.getRelationshipCount( id, i, direction );
     }
 
-    public void visitRelationshipCounts( long nodeId, DegreeVisitor visitor )
+    public RelationshipGroupDegrees getRelationshipGroupDegrees( long nodeId )
     {
-        chainLoader.visitRelationshipCounts( nodeId, visitor );
+        return chainLoader.getRelationshipGroupDegrees( nodeId );
     }
 
     public Integer[] getRelationshipTypes( long id )
@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.impl.coreapi.schema;
 
+import java.util.Arrays;
+
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.schema.IndexDefinition;
 
@@ -29,15 +31,21 @@ public class IndexDefinitionImpl implements IndexDefinition
     private final InternalSchemaActions actions;
 
     private final Label label;
-    private final String propertyKey;
+    private final String[] propertyKeys;
     private final boolean constraintIndex;
 
     public IndexDefinitionImpl( InternalSchemaActions actions, Label label, String propertyKey,
                                 boolean constraintIndex )
+    {
+        this( actions, label, new String[]{propertyKey}, constraintIndex );
+    }
+
+    public IndexDefinitionImpl( InternalSchemaActions actions, Label label, String[] propertyKeys,
+                                boolean constraintIndex )
     {
         this.actions = actions;
         this.label = label;
-        this.propertyKey = propertyKey;
+        this.propertyKeys = propertyKeys;
         this.constraintIndex = constraintIndex;
 
         assertInUnterminatedTransaction();
@@ -54,7 +62,7 @@ public class IndexDefinitionImpl implements IndexDefinition
     public Iterable<String> getPropertyKeys()
     {
         assertInUnterminatedTransaction();
-        return asList( propertyKey );
+        return asList( propertyKeys );
     }
 
     @Override
@@ -67,7 +75,7 @@ public class IndexDefinitionImpl implements IndexDefinition
                                              "instead drop the owning uniqueness constraint." );
         }
 
-        actions.dropIndexDefinitions( label, propertyKey );
+        actions.dropIndexDefinitions( label, propertyKeys );
     }
 
     @Override
@@ -83,7 +91,7 @@ public class IndexDefinitionImpl implements IndexDefinition
         final int prime = 31;
         int result = 1;
         result = prime * result + label.name().hashCode();
-        result = prime * result + propertyKey.hashCode();
+        result = prime * result + Arrays.hashCode( propertyKeys );
         return result;
     }
 
@@ -103,13 +111,18 @@ public class IndexDefinitionImpl implements IndexDefinition
             return false;
         }
         IndexDefinitionImpl other = (IndexDefinitionImpl) obj;
-        return label.name().equals( other.label.name() ) && propertyKey.equals( other.propertyKey );
+        return label.name().equals( other.label.name() ) && Arrays.equals( propertyKeys, other.propertyKeys );
     }
 
     @Override
     public String toString()
     {
-        return "IndexDefinition[label:" + label + ", on:" + propertyKey + "]";
+        StringBuilder on = new StringBuilder();
+        for ( String propertyKey : propertyKeys )
+        {
+            on.append( on.length() == 0 ? "" : "," ).append( propertyKey );
+        }
+        return "IndexDefinition[label:" + label + ", on:" + on + "]";
     }
 
     protected void assertInUnterminatedTransaction()
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.coreapi.schema;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -67,7 +68,6 @@ import static org.neo4j.graphdb.schema.Schema.IndexState.POPULATING;
 import static org.neo4j.helpers.collection.Iterables.map;
 import static org.neo4j.helpers.collection.IteratorUtil.addToCollection;
 import static org.neo4j.helpers.collection.IteratorUtil.asCollection;
-import static org.neo4j.helpers.collection.IteratorUtil.single;
 
 public class SchemaImpl implements Schema
 {
@@ -132,8 +132,13 @@ public class SchemaImpl implements Schema
                 try
                 {
                     Label label = label( statement.labelGetName( rule.getLabelId() ) );
-                    String propertyKey = statement.propertyKeyGetName( rule.getPropertyKeyId() );
-                    return new IndexDefinitionImpl( actions, label, propertyKey, constraintIndex );
+                    int[] propertyKeyIds = rule.getPropertyKeyIds();
+                    String[] propertyKeys = new String[propertyKeyIds.length];
+                    for ( int i = 0; i < propertyKeys.length; i++ )
+                    {
+                        propertyKeys[i] = statement.propertyKeyGetName( propertyKeyIds[i] );
+                    }
+                    return new IndexDefinitionImpl( actions, label, propertyKeys, constraintIndex );
                 }
                 catch ( LabelNotFoundKernelException | PropertyKeyIdNotFoundKernelException e )
                 {
@@ -203,23 +208,9 @@ public class SchemaImpl implements Schema
     {
         assertInUnterminatedTransaction();
 
-        String propertyKey = single( index.getPropertyKeys() );
         try ( Statement statement = statementContextProvider.instance() )
         {
-            int labelId = statement.readOperations().labelGetForName( index.getLabel().name() );
-            int propertyKeyId = statement.readOperations().propertyKeyGetForName( propertyKey );
-
-            if ( labelId == KeyReadOperations.NO_SUCH_LABEL )
-            {
-                throw new NotFoundException( format( "Label %s not found", index.getLabel().name() ) );
-            }
-
-            if ( propertyKeyId == KeyReadOperations.NO_SUCH_PROPERTY_KEY )
-            {
-                throw new NotFoundException( format( "Property key %s not found", propertyKey ) );
-            }
-
-            IndexDescriptor descriptor = statement.readOperations().indexesGetForLabelAndPropertyKey( labelId, propertyKeyId );
+            IndexDescriptor descriptor = indexDescriptor( statement.readOperations(), index );
             InternalIndexState indexState = statement.readOperations().indexGetState( descriptor );
             switch ( indexState )
             {
@@ -236,7 +227,7 @@ public class SchemaImpl implements Schema
         catch ( SchemaRuleNotFoundException | IndexNotFoundKernelException e )
         {
             throw new NotFoundException( format( "No index for label %s on property %s",
-                    index.getLabel().name(), propertyKey ) );
+                    index.getLabel().name(), propertyKeysOf( index ) ) );
         }
     }
 
@@ -245,30 +236,61 @@ public class SchemaImpl implements Schema
     {
         assertInUnterminatedTransaction();
 
-        String propertyKey = single( index.getPropertyKeys() );
         try ( Statement statement = statementContextProvider.instance() )
         {
-            int labelId = statement.readOperations().labelGetForName( index.getLabel().name() );
-            int propertyKeyId = statement.readOperations().propertyKeyGetForName( propertyKey );
+            IndexDescriptor descriptor = indexDescriptor( statement.readOperations(), index );
+            return statement.readOperations().indexGetFailure( descriptor );
+        }
+        catch ( SchemaRuleNotFoundException | IndexNotFoundKernelException e )
+        {
+            throw new NotFoundException( format( "No index for label %s on property %s",
+                    index.getLabel().name(), propertyKeysOf( index ) ) );
+        }
+    }
 
-            if ( labelId == KeyReadOperations.NO_SUCH_LABEL )
+    private static IndexDescriptor indexDescriptor( ReadOperations readOperations, IndexDefinition index )
+            throws SchemaRuleNotFoundException
+    {
+        int labelId = readOperations.labelGetForName( index.getLabel().name() );
+        if ( labelId == KeyReadOperations.NO_SUCH_LABEL )
+        {
+            throw new NotFoundException( format( "Label %s not found", index.getLabel().name() ) );
+        }
+
+        List<String> propertyKeys = addToCollection( index.getPropertyKeys(), new ArrayList<String>() );
+        int[] propertyKeyIds = new int[propertyKeys.size()];
+        for ( int i = 0; i < propertyKeyIds.length; i++ )
+        {
+            propertyKeyIds[i] = readOperations.propertyKeyGetForName( propertyKeys.get( i ) );
+            if ( propertyKeyIds[i] == KeyReadOperations.NO_SUCH_PROPERTY_KEY )
             {
-                throw new NotFoundException( format( "Label %s not found", index.getLabel().name() ) );
+                throw new NotFoundException( format( "Property key %s not found", propertyKeys.get( i ) ) );
             }
+        }
 
-            if ( propertyKeyId == KeyReadOperations.NO_SUCH_PROPERTY_KEY )
+        if ( propertyKeyIds.length == 1 )
+        {
+            return readOperations.indexesGetForLabelAndPropertyKey( labelId, propertyKeyIds[0] );
+        }
+        IndexDescriptor composite = new IndexDescriptor( labelId, propertyKeyIds );
+        for ( Iterator<IndexDescriptor> indexes = readOperations.indexesGetForLabel( labelId ); indexes.hasNext(); )
+        {
+            if ( indexes.next().equals( composite ) )
             {
-                throw new NotFoundException( format( "Property key %s not found", propertyKey ) );
+                return composite;
             }
-
-            IndexDescriptor indexId = statement.readOperations().indexesGetForLabelAndPropertyKey( labelId, propertyKeyId );
-            return statement.readOperations().indexGetFailure( indexId );
         }
-        catch ( SchemaRuleNotFoundException | IndexNotFoundKernelException e )
+        throw new SchemaRuleNotFoundException( labelId, propertyKeyIds[0], "composite index not found" );
+    }
+
+    private static String propertyKeysOf( IndexDefinition index )
+    {
+        StringBuilder builder = new StringBuilder();
+        for ( String propertyKey : index.getPropertyKeys() )
         {
-            throw new NotFoundException( format( "No index for label %s on property %s",
-                    index.getLabel().name(), propertyKey ) );
+            builder.append( builder.length() == 0 ? "" : ", " ).append( propertyKey );
         }
+        return builder.toString();
     }
 
     @Override
@@ -352,16 +374,21 @@ public class SchemaImpl implements Schema
         }
 
         @Override
-        public IndexDefinition createIndexDefinition( Label label, String propertyKey )
+        public IndexDefinition createIndexDefinition( Label label, String... propertyKeys )
         {
             try ( Statement statement = ctxProvider.instance() )
             {
                 try
                 {
                     int labelId = statement.schemaWriteOperations().labelGetOrCreateForName( label.name() );
-                    int propertyKeyId = statement.schemaWriteOperations().propertyKeyGetOrCreateForName( propertyKey );
-                    statement.schemaWriteOperations().indexCreate( labelId, propertyKeyId );
-                    return new IndexDefinitionImpl( this, label, propertyKey, false );
+                    int[] propertyKeyIds = new int[propertyKeys.length];
+                    for ( int i = 0; i < propertyKeys.length; i++ )
+                    {
+                        propertyKeyIds[i] =
+                                statement.schemaWriteOperations().propertyKeyGetOrCreateForName( propertyKeys[i] );
+                    }
+                    statement.schemaWriteOperations().indexCreate( labelId, propertyKeyIds );
+                    return new IndexDefinitionImpl( this, label, propertyKeys, false );
                 }
                 catch ( AlreadyIndexedException e )
                 {
@@ -394,23 +421,33 @@ public class SchemaImpl implements Schema
         }
 
         @Override
-        public void dropIndexDefinitions( Label label, String propertyKey )
+        public void dropIndexDefinitions( Label label, String... propertyKeys )
         {
             try ( Statement statement = ctxProvider.instance() )
             {
                 int labelId = statement.readOperations().labelGetForName( label.name() );
-                int propertyKeyId = statement.readOperations().propertyKeyGetForName( propertyKey );
+                int[] propertyKeyIds = new int[propertyKeys.length];
+                for ( int i = 0; i < propertyKeys.length; i++ )
+                {
+                    propertyKeyIds[i] = statement.readOperations().propertyKeyGetForName( propertyKeys[i] );
+                    if ( propertyKeyIds[i] == KeyReadOperations.NO_SUCH_PROPERTY_KEY )
+                    {
+                        return;
+                    }
+                }
 
-                if ( labelId != KeyReadOperations.NO_SUCH_LABEL && propertyKeyId != KeyReadOperations
-                        .NO_SUCH_PROPERTY_KEY )
+                if ( labelId != KeyReadOperations.NO_SUCH_LABEL )
                 {
-                    statement.schemaWriteOperations().indexDrop( statement.readOperations().indexesGetForLabelAndPropertyKey( labelId, propertyKeyId ) );
+                    IndexDescriptor descriptor = propertyKeyIds.length == 1 ?
+                            statement.readOperations().indexesGetForLabelAndPropertyKey( labelId, propertyKeyIds[0] ) :
+                            new IndexDescriptor( labelId, propertyKeyIds );
+                    statement.schemaWriteOperations().indexDrop( descriptor );
                 }
             }
             catch ( SchemaRuleNotFoundException | DropIndexFailureException e )
             {
-                throw new ConstraintViolationException( String.format(
-                        "Unable to drop index on label `%s` for property %s.", label.name(), propertyKey ), e );
+                throw new ConstraintViolationException( String.format( "Unable to drop index on label `%s` for " +
+                        "property %s.", label.name(), Arrays.toString( propertyKeys ) ), e );
             }
             catch ( InvalidTransactionTypeKernelException e )
             {
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+
+import org.neo4j.kernel.impl.index.schema.BTree;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanKeys.prefix;
+
+/**
+ * Walks the chunks which one label has nodes in, in a snapshot of the label scan store, in order.
+ */
+class LabelChunkCursor
+{
+    /**
+     * Chunks further ahead than this are found by seeking from the root again, rather than by going through the
+     * chunks in between.
+     */
+    private static final int RESEEK_DISTANCE = 16;
+
+    private final BTree.Snapshot snapshot;
+    private final LabelScanKeys keys;
+    private final int labelId;
+    private final byte[] end;
+    private BTree.Seeker seeker;
+    private long chunk = -1;
+    private boolean exhausted;
+
+    LabelChunkCursor( BTree.Snapshot snapshot, LabelScanKeys keys, int labelId )
+    {
+        this.snapshot = snapshot;
+        this.keys = keys;
+        this.labelId = labelId;
+        this.end = labelId == Integer.MAX_VALUE ? null : prefix( labelId + 1, 0 );
+    }
+
+    int labelId()
+    {
+        return labelId;
+    }
+
+    /**
+     * @return the chunk the cursor is at, which is only valid after {@link #next()} or {@link #seek(long)} has
+     * returned {@code true}.
+     */
+    long chunk()
+    {
+        return chunk;
+    }
+
+    /**
+     * Moves to the next chunk of the label.
+     *
+     * @return whether there was another chunk.
+     */
+    boolean next() throws IOException
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+        if ( seeker == null )
+        {
+            seeker = snapshot.seek( prefix( labelId, 0 ), end );
+        }
+        if ( !seeker.next() )
+        {
+            exhausted = true;
+            return false;
+        }
+        chunk = LabelScanKeys.chunk( seeker.keyBytes(), seeker.keyOffset() );
+        return true;
+    }
+
+    /**
+     * Moves to the first chunk of the label at or after the given chunk, staying where it is if already there.
+     *
+     * @return whether there was such a chunk.
+     */
+    boolean seek( long target ) throws IOException
+    {
+        if ( exhausted )
+        {
+            return false;
+        }
+        if ( seeker != null && chunk >= target )
+        {
+            return true;
+        }
+        if ( seeker == null || target - chunk > RESEEK_DISTANCE )
+        {
+            seeker = snapshot.seek( prefix( labelId, target ), end );
+        }
+        while ( next() )
+        {
+            if ( chunk >= target )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the nodes of the label in the current chunk into the given words.
+     */
+    void read( long[] words )
+    {
+        keys.read( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength(), words );
+    }
+}
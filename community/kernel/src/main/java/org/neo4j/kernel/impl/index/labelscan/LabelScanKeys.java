@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.neo4j.kernel.impl.index.schema.BTree;
+
+import static java.lang.Long.numberOfTrailingZeros;
+
+/**
+ * The keys of the label scan store tree. Each key holds the nodes of one label in one chunk of the node id space,
+ * as a container in the fashion of roaring bitmaps: a sorted array of the offsets of the nodes within the chunk for
+ * chunks with few nodes, and a bitmap of the whole chunk otherwise, whichever is the smaller. The keys are ordered
+ * by label and then chunk, so the chunks of a label come in node id order, and the container is a payload which
+ * takes no part in the order.
+ *
+ * <pre>
+ * [label id: 4 bytes][chunk: 8 bytes][container type: 1 byte][offsets, 2 bytes each | bitmap]
+ * </pre>
+ *
+ * The chunk size is the largest power of two whose bitmap fits in a key, and is decided when the store is created.
+ */
+class LabelScanKeys implements BTree.PrefixKeyComparator
+{
+    static final int PREFIX_SIZE = 12;
+    private static final int HEADER_SIZE = PREFIX_SIZE + 1;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final int MIN_CHUNK_BITS = 6;
+    private static final int MAX_CHUNK_BITS = 13;
+
+    private final int chunkBits;
+    private final int wordsPerChunk;
+    private final int bitmapSize;
+
+    LabelScanKeys( int chunkBits )
+    {
+        if ( chunkBits < MIN_CHUNK_BITS || chunkBits > MAX_CHUNK_BITS )
+        {
+            throw new IllegalArgumentException( "Unsupported chunk size of 2^" + chunkBits + " nodes" );
+        }
+        this.chunkBits = chunkBits;
+        this.wordsPerChunk = (1 << chunkBits) / Long.SIZE;
+        this.bitmapSize = wordsPerChunk * 8;
+    }
+
+    /**
+     * @return the number of bits of the largest chunk whose bitmap fits in a key of the given size.
+     */
+    static int chunkBits( int maxKeySize )
+    {
+        int chunkBits = MAX_CHUNK_BITS;
+        while ( chunkBits > MIN_CHUNK_BITS && HEADER_SIZE + (1 << chunkBits) / 8 > maxKeySize )
+        {
+            chunkBits--;
+        }
+        return chunkBits;
+    }
+
+    int chunkBits()
+    {
+        return chunkBits;
+    }
+
+    long chunkOf( long nodeId )
+    {
+        return nodeId >>> chunkBits;
+    }
+
+    int offsetOf( long nodeId )
+    {
+        return (int) (nodeId & ((1 << chunkBits) - 1));
+    }
+
+    long nodeId( long chunk, int offset )
+    {
+        return (chunk << chunkBits) | offset;
+    }
+
+    long[] newWords()
+    {
+        return new long[wordsPerChunk];
+    }
+
+    /**
+     * @return a key which is equal to the key of the given label and chunk, whatever its container, and so can be
+     * used to find or remove it.
+     */
+    static byte[] prefix( int labelId, long chunk )
+    {
+        byte[] key = new byte[PREFIX_SIZE];
+        putInt( key, 0, labelId );
+        putLong( key, 4, chunk );
+        return key;
+    }
+
+    static int labelId( byte[] key, int offset )
+    {
+        return getInt( key, offset );
+    }
+
+    static long chunk( byte[] key, int offset )
+    {
+        return getLong( key, offset + 4 );
+    }
+
+    /**
+     * @return a key holding the nodes set in the given words, or {@code null} if there are none.
+     */
+    byte[] key( int labelId, long chunk, long[] words )
+    {
+        int count = 0;
+        for ( long word : words )
+        {
+            count += Long.bitCount( word );
+        }
+        if ( count == 0 )
+        {
+            return null;
+        }
+
+        boolean array = count * 2 < bitmapSize;
+        byte[] key = new byte[HEADER_SIZE + (array ? count * 2 : bitmapSize)];
+        putInt( key, 0, labelId );
+        putLong( key, 4, chunk );
+        key[PREFIX_SIZE] = array ? ARRAY : BITMAP;
+        int position = HEADER_SIZE;
+        for ( int i = 0; i < words.length; i++ )
+        {
+            if ( array )
+            {
+                for ( long word = words[i]; word != 0; word &= word - 1 )
+                {
+                    int offset = i * Long.SIZE + numberOfTrailingZeros( word );
+                    key[position++] = (byte) (offset >>> 8);
+                    key[position++] = (byte) offset;
+                }
+            }
+            else
+            {
+                putLong( key, position, words[i] );
+                position += 8;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Reads the nodes of the key into the given words, replacing what they held.
+     */
+    void read( byte[] key, int offset, int length, long[] words )
+    {
+        int position = offset + HEADER_SIZE;
+        int end = offset + length;
+        if ( key[offset + PREFIX_SIZE] == BITMAP )
+        {
+            for ( int i = 0; i < words.length; i++, position += 8 )
+            {
+                words[i] = getLong( key, position );
+            }
+        }
+        else
+        {
+            for ( int i = 0; i < words.length; i++ )
+            {
+                words[i] = 0;
+            }
+            for ( ; position < end; position += 2 )
+            {
+                int nodeOffset = ((key[position] & 0xFF) << 8) | (key[position + 1] & 0xFF);
+                words[nodeOffset >>> 6] |= 1L << nodeOffset;
+            }
+        }
+    }
+
+    /**
+     * @return whether the key holds the node at the given offset within its chunk.
+     */
+    boolean contains( byte[] key, int offset, int length, int nodeOffset )
+    {
+        int position = offset + HEADER_SIZE;
+        if ( key[offset + PREFIX_SIZE] == BITMAP )
+        {
+            long word = getLong( key, position + (nodeOffset >>> 6) * 8 );
+            return (word & (1L << nodeOffset)) != 0;
+        }
+        for ( int end = offset + length; position < end; position += 2 )
+        {
+            int candidate = ((key[position] & 0xFF) << 8) | (key[position + 1] & 0xFF);
+            if ( candidate >= nodeOffset )
+            {
+                return candidate == nodeOffset;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int compare( byte[] left, int leftOffset, int leftLength, byte[] right, int rightOffset, int rightLength )
+    {
+        int result = Integer.compare( getInt( left, leftOffset ), getInt( right, rightOffset ) );
+        return result != 0 ? result : Long.compare( getLong( left, leftOffset + 4 ), getLong( right, rightOffset + 4 ) );
+    }
+
+    @Override
+    public int orderedLength( byte[] key )
+    {
+        return PREFIX_SIZE;
+    }
+
+    private static void putInt( byte[] bytes, int offset, int value )
+    {
+        for ( int i = 3; i >= 0; i--, value >>>= 8 )
+        {
+            bytes[offset + i] = (byte) value;
+        }
+    }
+
+    private static int getInt( byte[] bytes, int offset )
+    {
+        int value = 0;
+        for ( int i = 0; i < 4; i++ )
+        {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void putLong( byte[] bytes, int offset, long value )
+    {
+        for ( int i = 7; i >= 0; i--, value >>>= 8 )
+        {
+            bytes[offset + i] = (byte) value;
+        }
+    }
+
+    private static long getLong( byte[] bytes, int offset )
+    {
+        long value = 0;
+        for ( int i = 0; i < 8; i++ )
+        {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
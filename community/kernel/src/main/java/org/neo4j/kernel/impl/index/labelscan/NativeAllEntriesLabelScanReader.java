@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.kernel.api.direct.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.direct.NodeLabelRange;
+import org.neo4j.kernel.impl.index.schema.BTree;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+
+import static java.lang.Long.numberOfTrailingZeros;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanKeys.prefix;
+
+/**
+ * Goes through the label scan store one chunk at a time, with the nodes of all labels in it, by walking the chunks
+ * of all labels side by side.
+ */
+class NativeAllEntriesLabelScanReader implements AllEntriesLabelScanReader
+{
+    private final BTree.Snapshot snapshot;
+    private final LabelScanKeys keys;
+    private final long maxCount;
+
+    NativeAllEntriesLabelScanReader( BTree.Snapshot snapshot, LabelScanKeys keys, long maxCount )
+    {
+        this.snapshot = snapshot;
+        this.keys = keys;
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * @return the number of label chunks in the store, which is at least the number of ranges there are.
+     */
+    @Override
+    public long maxCount()
+    {
+        return maxCount;
+    }
+
+    @Override
+    public Iterator<NodeLabelRange> iterator()
+    {
+        final List<LabelChunkCursor> cursors = new ArrayList<>();
+        try
+        {
+            for ( int labelId : labelIds() )
+            {
+                LabelChunkCursor cursor = new LabelChunkCursor( snapshot, keys, labelId );
+                if ( cursor.next() )
+                {
+                    cursors.add( cursor );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+
+        return new PrefetchingIterator<NodeLabelRange>()
+        {
+            @Override
+            protected NodeLabelRange fetchNextOrNull()
+            {
+                if ( cursors.isEmpty() )
+                {
+                    return null;
+                }
+                long chunk = Long.MAX_VALUE;
+                for ( LabelChunkCursor cursor : cursors )
+                {
+                    chunk = Math.min( chunk, cursor.chunk() );
+                }
+
+                List<Integer> labelIds = new ArrayList<>();
+                List<long[]> labelWords = new ArrayList<>();
+                try
+                {
+                    for ( Iterator<LabelChunkCursor> iterator = cursors.iterator(); iterator.hasNext(); )
+                    {
+                        LabelChunkCursor cursor = iterator.next();
+                        if ( cursor.chunk() == chunk )
+                        {
+                            long[] words = keys.newWords();
+                            cursor.read( words );
+                            labelIds.add( cursor.labelId() );
+                            labelWords.add( words );
+                            if ( !cursor.next() )
+                            {
+                                iterator.remove();
+                            }
+                        }
+                    }
+                }
+                catch ( IOException e )
+                {
+                    throw new UnderlyingStorageException( e );
+                }
+                return new ChunkRange( chunk, labelIds, labelWords );
+            }
+        };
+    }
+
+    /**
+     * @return the labels there are nodes of in the store, found by jumping from one label to the next.
+     */
+    private List<Integer> labelIds() throws IOException
+    {
+        List<Integer> labelIds = new ArrayList<>();
+        byte[] from = null;
+        while ( true )
+        {
+            BTree.Seeker seeker = snapshot.seek( from, null );
+            if ( !seeker.next() )
+            {
+                return labelIds;
+            }
+            int labelId = LabelScanKeys.labelId( seeker.keyBytes(), seeker.keyOffset() );
+            labelIds.add( labelId );
+            if ( labelId == Integer.MAX_VALUE )
+            {
+                return labelIds;
+            }
+            from = prefix( labelId + 1, 0 );
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        snapshot.close();
+    }
+
+    private class ChunkRange implements NodeLabelRange
+    {
+        private final long chunk;
+        private final List<Integer> labelIds;
+        private final List<long[]> labelWords;
+
+        ChunkRange( long chunk, List<Integer> labelIds, List<long[]> labelWords )
+        {
+            this.chunk = chunk;
+            this.labelIds = labelIds;
+            this.labelWords = labelWords;
+        }
+
+        @Override
+        public int id()
+        {
+            return (int) chunk;
+        }
+
+        @Override
+        public long[] nodes()
+        {
+            long[] union = keys.newWords();
+            int count = 0;
+            for ( int i = 0; i < union.length; i++ )
+            {
+                for ( long[] words : labelWords )
+                {
+                    union[i] |= words[i];
+                }
+                count += Long.bitCount( union[i] );
+            }
+            long[] nodes = new long[count];
+            count = 0;
+            for ( int i = 0; i < union.length; i++ )
+            {
+                for ( long word = union[i]; word != 0; word &= word - 1 )
+                {
+                    nodes[count++] = keys.nodeId( chunk, i * Long.SIZE + numberOfTrailingZeros( word ) );
+                }
+            }
+            return nodes;
+        }
+
+        @Override
+        public long[] labels( long nodeId )
+        {
+            int offset = keys.offsetOf( nodeId );
+            long[] labels = new long[labelIds.size()];
+            int count = 0;
+            for ( int i = 0; i < labelIds.size(); i++ )
+            {
+                if ( (labelWords.get( i )[offset >>> 6] & (1L << offset)) != 0 )
+                {
+                    labels[count++] = labelIds.get( i );
+                }
+            }
+            return Arrays.copyOf( labels, count );
+        }
+    }
+}
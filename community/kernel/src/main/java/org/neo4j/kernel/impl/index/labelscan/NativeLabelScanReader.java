@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.api.labelscan.LabelScanReader;
+import org.neo4j.kernel.impl.index.schema.BTree;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+
+import static java.lang.Long.numberOfTrailingZeros;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanKeys.prefix;
+
+/**
+ * Reads the label scan store as it was when the reader was created, until it is closed.
+ */
+public class NativeLabelScanReader implements LabelScanReader
+{
+    private final BTree.Snapshot snapshot;
+    private final LabelScanKeys keys;
+
+    NativeLabelScanReader( BTree.Snapshot snapshot, LabelScanKeys keys )
+    {
+        this.snapshot = snapshot;
+        this.keys = keys;
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesWithLabel( int labelId )
+    {
+        return nodesWithAllLabels( labelId );
+    }
+
+    /**
+     * Intersects the bitmaps of the given labels chunk by chunk. Only chunks which all of the labels have nodes in
+     * are read, and the chunks in between are skipped over.
+     *
+     * @return the nodes which have all the given labels, in node id order.
+     */
+    @Override
+    public PrimitiveLongIterator nodesWithAllLabels( int... labelIds )
+    {
+        final LabelChunkCursor[] cursors = new LabelChunkCursor[labelIds.length];
+        for ( int i = 0; i < labelIds.length; i++ )
+        {
+            cursors[i] = new LabelChunkCursor( snapshot, keys, labelIds[i] );
+        }
+        return new PrimitiveLongBaseIterator()
+        {
+            private final long[] words = keys.newWords();
+            private final long[] otherWords = keys.newWords();
+            private long chunk = -1;
+            private int wordIndex = words.length;
+            private long word;
+
+            @Override
+            protected boolean fetchNext()
+            {
+                while ( word == 0 )
+                {
+                    if ( wordIndex + 1 < words.length )
+                    {
+                        word = words[++wordIndex];
+                    }
+                    else if ( nextChunk() )
+                    {
+                        wordIndex = -1;
+                    }
+                    else
+                    {
+                        return false;
+                    }
+                }
+                int offset = wordIndex * Long.SIZE + numberOfTrailingZeros( word );
+                word &= word - 1;
+                return next( keys.nodeId( chunk, offset ) );
+            }
+
+            private boolean nextChunk()
+            {
+                if ( cursors.length == 0 )
+                {
+                    return false;
+                }
+                try
+                {
+                    long target = chunk + 1;
+                    for ( int i = 0; i < cursors.length; )
+                    {
+                        if ( !cursors[i].seek( target ) )
+                        {
+                            return false;
+                        }
+                        if ( cursors[i].chunk() > target )
+                        {
+                            // Start over from this chunk, which none of the labels before this one may skip past
+                            target = cursors[i].chunk();
+                            i = i == 0 ? 1 : 0;
+                            continue;
+                        }
+                        i++;
+                    }
+
+                    chunk = target;
+                    cursors[0].read( words );
+                    for ( int i = 1; i < cursors.length; i++ )
+                    {
+                        cursors[i].read( otherWords );
+                        for ( int w = 0; w < words.length; w++ )
+                        {
+                            words[w] &= otherWords[w];
+                        }
+                    }
+                    return true;
+                }
+                catch ( IOException e )
+                {
+                    throw new UnderlyingStorageException( e );
+                }
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Long> labelsForNode( long nodeId )
+    {
+        long chunk = keys.chunkOf( nodeId );
+        int offset = keys.offsetOf( nodeId );
+        List<Long> labels = new ArrayList<>();
+        try
+        {
+            // Finds the chunk of the node for every label there is, jumping from one label to the next
+            int labelId = 0;
+            while ( true )
+            {
+                BTree.Seeker seeker = snapshot.seek( prefix( labelId, chunk ), null );
+                if ( !seeker.next() )
+                {
+                    break;
+                }
+                byte[] key = seeker.keyBytes();
+                int keyOffset = seeker.keyOffset();
+                int foundLabelId = LabelScanKeys.labelId( key, keyOffset );
+                long foundChunk = LabelScanKeys.chunk( key, keyOffset );
+                if ( foundChunk < chunk )
+                {
+                    // A later label, which has nodes in chunks before that of the node
+                    labelId = foundLabelId;
+                    continue;
+                }
+                if ( foundChunk == chunk && keys.contains( key, keyOffset, seeker.keyLength(), offset ) )
+                {
+                    labels.add( (long) foundLabelId );
+                }
+                if ( foundLabelId == Integer.MAX_VALUE )
+                {
+                    break;
+                }
+                labelId = foundLabelId + 1;
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+        return labels.iterator();
+    }
+
+    @Override
+    public void close()
+    {
+        snapshot.close();
+    }
+}
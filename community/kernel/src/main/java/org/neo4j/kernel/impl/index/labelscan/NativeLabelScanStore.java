@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.direct.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.impl.index.schema.BTree;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.kernel.impl.util.StringLogger;
+import org.neo4j.kernel.logging.Logging;
+import org.neo4j.unsafe.batchinsert.LabelScanWriter;
+
+import static org.neo4j.helpers.collection.IteratorUtil.iterator;
+import static org.neo4j.helpers.collection.IteratorUtil.resourceIterator;
+
+/**
+ * A {@link LabelScanStore} which keeps a compressed bitmap of the nodes of each label, split into chunks of the node
+ * id space, as the keys of a {@link BTree} in the page cache. See {@link LabelScanKeys} for how the chunks are stored.
+ *
+ * Finding the nodes of a label is a walk through its chunks in order, and intersecting several labels only reads
+ * the chunks they all have nodes in. Label changes are written chunk by chunk, replacing only the chunks they
+ * change, and become visible when the writer is closed. Readers work on snapshots of the tree and are never blocked
+ * by writers.
+ *
+ * What is on disk is the tree as it was at its last checkpoint, made on {@link #force()} and on shutdown. The
+ * changes made after that are recovered from the transaction log, which is safe to do more than once.
+ */
+public class NativeLabelScanStore implements LabelScanStore
+{
+    static final String FILE_NAME = "labelscan";
+    /** Set in the user data of the tree once it has been built from the node store. */
+    private static final long POPULATED = 1L << 32;
+    private static final long CHUNK_BITS_MASK = 0xFF;
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File directory;
+    private final File file;
+    // We get in a full store stream here in case we need to fully rebuild the store if it's missing.
+    private final FullStoreChangeStream fullStoreStream;
+    private final Monitor monitor;
+    private BTree tree;
+    private LabelScanKeys keys;
+    private boolean needsRebuild;
+
+    public interface Monitor
+    {
+        void init();
+
+        void noIndex();
+
+        void corruptIndex( IOException e );
+
+        void rebuilding();
+
+        void rebuilt( long roughNodeCount );
+    }
+
+    public static Monitor loggerMonitor( Logging logging )
+    {
+        final StringLogger logger = logging.getMessagesLog( NativeLabelScanStore.class );
+        return new Monitor()
+        {
+            @Override
+            public void init()
+            {   // Don't log anything here
+            }
+
+            @Override
+            public void noIndex()
+            {
+                logger.info( "No complete native label scan store found, this might just be first use. " +
+                             "Preparing to rebuild." );
+            }
+
+            @Override
+            public void corruptIndex( IOException corruptionException )
+            {
+                logger.warn( "Native label scan store could not be read.", corruptionException );
+            }
+
+            @Override
+            public void rebuilding()
+            {
+                logger.info( "Rebuilding native label scan store, this may take a while" );
+            }
+
+            @Override
+            public void rebuilt( long highNodeId )
+            {
+                logger.info( "Native label scan store rebuilt (roughly " + highNodeId + " nodes)" );
+            }
+        };
+    }
+
+    public NativeLabelScanStore( PageCache pageCache, FileSystemAbstraction fs, File directory,
+                                 FullStoreChangeStream fullStoreStream, Monitor monitor )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.directory = directory;
+        this.file = new File( directory, FILE_NAME );
+        this.fullStoreStream = fullStoreStream;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public NativeLabelScanReader newReader()
+    {
+        return new NativeLabelScanReader( tree.snapshot(), keys );
+    }
+
+    @Override
+    public LabelScanWriter newWriter()
+    {
+        return new NativeLabelScanWriter( tree, keys );
+    }
+
+    @Override
+    public void recover( Iterator<NodeLabelUpdate> updates ) throws IOException
+    {
+        // Writing an update sets and clears the bits of the labels it names, which is the same however many times
+        // it is done, so recovery can just write the updates again.
+        write( updates );
+    }
+
+    @Override
+    public void force() throws UnderlyingStorageException
+    {
+        try
+        {
+            tree.checkpoint();
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    @Override
+    public AllEntriesLabelScanReader newAllEntriesReader()
+    {
+        return new NativeAllEntriesLabelScanReader( tree.snapshot(), keys, tree.entryCount() );
+    }
+
+    /**
+     * The file is kept as it was at a checkpoint until the snapshot is closed.
+     */
+    @Override
+    public ResourceIterator<File> snapshotStoreFiles() throws IOException
+    {
+        return resourceIterator( iterator( file ), tree.pinCheckpoint() );
+    }
+
+    @Override
+    public void init() throws IOException
+    {
+        monitor.init();
+        if ( !fs.fileExists( file ) )
+        {   // This is the first time we start up this scan store, prepare to rebuild from scratch later.
+            monitor.noIndex();
+            prepareRebuild();
+            return;
+        }
+
+        long userData;
+        try
+        {
+            userData = BTree.readUserData( pageCache, file );
+        }
+        catch ( IOException e )
+        {
+            monitor.corruptIndex( e );
+            throw new IOException( "Label scan store could not be read, and needs to be rebuilt. " +
+                    "To trigger a rebuild, ensure the database is stopped, delete the files in '" +
+                    directory.getAbsolutePath() + "', and then start the database again." );
+        }
+        if ( (userData & POPULATED) == 0 )
+        {   // The last rebuild never completed
+            monitor.noIndex();
+            prepareRebuild();
+            return;
+        }
+        keys = new LabelScanKeys( (int) (userData & CHUNK_BITS_MASK) );
+        tree = BTree.open( pageCache, file, keys );
+    }
+
+    private void prepareRebuild() throws IOException
+    {
+        fs.mkdirs( directory );
+        if ( fs.fileExists( file ) )
+        {
+            fs.deleteFile( file );
+        }
+        keys = new LabelScanKeys( LabelScanKeys.chunkBits( BTree.maxKeySize( pageCache ) ) );
+        tree = BTree.create( pageCache, file, keys, keys.chunkBits() );
+        needsRebuild = true;
+    }
+
+    @Override
+    public void start() throws IOException
+    {
+        if ( needsRebuild )
+        {   // we saw in init() that we need to rebuild the store, so do it here after the
+            // neostore has been properly started.
+            monitor.rebuilding();
+            write( fullStoreStream.iterator() );
+            tree.setUserData( keys.chunkBits() | POPULATED );
+            tree.checkpoint();
+            monitor.rebuilt( fullStoreStream.highestNodeId() );
+            needsRebuild = false;
+        }
+    }
+
+    private void write( Iterator<NodeLabelUpdate> updates ) throws IOException
+    {
+        try ( LabelScanWriter writer = newWriter() )
+        {
+            while ( updates.hasNext() )
+            {
+                writer.write( updates.next() );
+            }
+        }
+    }
+
+    @Override
+    public void stop()
+    {   // Not needed
+    }
+
+    @Override
+    public void shutdown() throws IOException
+    {
+        tree.close();
+        tree = null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + file + "]";
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Service;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreProvider;
+import org.neo4j.kernel.logging.Logging;
+
+import static org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.fullStoreLabelUpdateStream;
+import static org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore.loggerMonitor;
+
+/**
+ * Provides the {@link NativeLabelScanStore}, with a lower priority than the Lucene label scan store, and so is only
+ * used when selected by {@link GraphDatabaseSettings#label_scan_store}.
+ */
+@Service.Implementation(KernelExtensionFactory.class)
+public class NativeLabelScanStoreExtension extends KernelExtensionFactory<NativeLabelScanStoreExtension.Dependencies>
+{
+    public static final String NAME = "native";
+
+    private final int priority;
+    private final NativeLabelScanStore.Monitor monitor;
+
+    public interface Dependencies
+    {
+        Config getConfig();
+
+        FileSystemAbstraction getFileSystem();
+
+        PageCache getPageCache();
+
+        NeoStoreProvider getNeoStoreProvider();
+
+        Logging getLogging();
+    }
+
+    public NativeLabelScanStoreExtension()
+    {
+        this( 1, null );
+    }
+
+    NativeLabelScanStoreExtension( int priority, NativeLabelScanStore.Monitor monitor )
+    {
+        super( "native-scan-store" );
+        this.priority = priority;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public LabelScanStoreProvider newKernelExtension( Dependencies dependencies ) throws Throwable
+    {
+        File storeDir = dependencies.getConfig().get( GraphDatabaseSettings.store_dir );
+        NativeLabelScanStore scanStore = new NativeLabelScanStore(
+                dependencies.getPageCache(), dependencies.getFileSystem(),
+
+                // <db>/schema/label/native
+                new File( new File( new File( storeDir, "schema" ), "label" ), NAME ),
+
+                fullStoreLabelUpdateStream( dependencies.getNeoStoreProvider() ),
+                monitor != null ? monitor : loggerMonitor( dependencies.getLogging() ) );
+
+        return new LabelScanStoreProvider( NAME, scanStore, priority );
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.index.schema.BTree;
+import org.neo4j.unsafe.batchinsert.LabelScanWriter;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanKeys.prefix;
+
+/**
+ * Writes label changes into the label scan store one chunk at a time, as one batch of the tree which becomes visible
+ * to readers when the writer is closed. Only one writer can be open at a time.
+ *
+ * Since the updates come in node id order, every chunk is written once per writer at the most, and so the current
+ * nodes of a chunk can be read from a snapshot of the tree as it was before the writer was opened.
+ */
+class NativeLabelScanWriter implements LabelScanWriter
+{
+    private final BTree.Writer writer;
+    private final BTree.Snapshot snapshot;
+    private final LabelScanKeys keys;
+    // The changes to the current chunk, per label, with a bit set for each node added or removed
+    private final Map<Integer,long[]> added = new TreeMap<>();
+    private final Map<Integer,long[]> removed = new TreeMap<>();
+    private final long[] words;
+    private long currentChunk = -1;
+
+    NativeLabelScanWriter( BTree tree, LabelScanKeys keys )
+    {
+        this.writer = tree.writer();
+        this.snapshot = tree.snapshot();
+        this.keys = keys;
+        this.words = keys.newWords();
+    }
+
+    /**
+     * Sets the node in the bitmaps of the labels it has after the update, and clears it from the bitmaps of the
+     * labels it had before it. Writing the same update twice makes no difference, which makes recovery simple.
+     */
+    @Override
+    public void write( NodeLabelUpdate update ) throws IOException
+    {
+        long nodeId = update.getNodeId();
+        long chunk = keys.chunkOf( nodeId );
+        if ( chunk != currentChunk )
+        {
+            if ( chunk < currentChunk )
+            {
+                throw new IllegalArgumentException( "NodeLabelUpdates must be supplied in order of ascending node id" );
+            }
+            flush();
+            currentChunk = chunk;
+        }
+
+        int offset = keys.offsetOf( nodeId );
+        long[] labelsAfter = update.getLabelsAfter();
+        long[] labelsBefore = update.getLabelsBefore();
+        if ( labelsBefore != null )
+        {
+            for ( long labelId : labelsBefore )
+            {
+                if ( !contains( labelsAfter, labelId ) )
+                {
+                    change( removed, added, (int) labelId, offset );
+                }
+            }
+        }
+        for ( long labelId : labelsAfter )
+        {
+            change( added, removed, (int) labelId, offset );
+        }
+    }
+
+    private void change( Map<Integer,long[]> to, Map<Integer,long[]> from, int labelId, int offset )
+    {
+        long[] changed = to.get( labelId );
+        if ( changed == null )
+        {
+            to.put( labelId, changed = keys.newWords() );
+        }
+        changed[offset >>> 6] |= 1L << offset;
+
+        // A later update of the same node overrides an earlier one
+        long[] overridden = from.get( labelId );
+        if ( overridden != null )
+        {
+            overridden[offset >>> 6] &= ~(1L << offset);
+        }
+    }
+
+    private static boolean contains( long[] labelIds, long labelId )
+    {
+        for ( long candidate : labelIds )
+        {
+            if ( candidate == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush() throws IOException
+    {
+        for ( Map.Entry<Integer,long[]> entry : added.entrySet() )
+        {
+            flush( entry.getKey(), entry.getValue(), removed.remove( entry.getKey() ) );
+        }
+        for ( Map.Entry<Integer,long[]> entry : removed.entrySet() )
+        {
+            flush( entry.getKey(), null, entry.getValue() );
+        }
+        added.clear();
+        removed.clear();
+    }
+
+    private void flush( int labelId, long[] addedNodes, long[] removedNodes ) throws IOException
+    {
+        byte[] prefix = prefix( labelId, currentChunk );
+        BTree.Seeker seeker = snapshot.seek( prefix, prefix( labelId, currentChunk + 1 ) );
+        boolean existed = seeker.next();
+        if ( existed )
+        {
+            keys.read( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength(), words );
+        }
+        else if ( addedNodes == null )
+        {
+            return;
+        }
+        else
+        {
+            Arrays.fill( words, 0 );
+        }
+
+        boolean changed = false;
+        for ( int i = 0; i < words.length; i++ )
+        {
+            long word = words[i];
+            if ( addedNodes != null )
+            {
+                word |= addedNodes[i];
+            }
+            if ( removedNodes != null )
+            {
+                word &= ~removedNodes[i];
+            }
+            changed |= word != words[i];
+            words[i] = word;
+        }
+        if ( !changed )
+        {
+            return;
+        }
+
+        if ( existed )
+        {
+            writer.remove( prefix );
+        }
+        byte[] key = keys.key( labelId, currentChunk, words );
+        if ( key != null )
+        {
+            writer.insert( key );
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            try
+            {
+                writer.close();
+            }
+            finally
+            {
+                snapshot.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,1427 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.neo4j.graphdb.Resource;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static java.lang.String.format;
+import static org.neo4j.io.pagecache.PagedFile.PF_EXCLUSIVE_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
+
+/**
+ * A B+tree of variable sized byte[] keys, ordered by a {@link KeyComparator} and kept in a file accessed through the
+ * {@link PageCache}. There are no values, whatever needs to be found by a key has to be part of the key itself.
+ *
+ * Changes are made copy-on-write in batches, by one {@link Writer} at a time. Each batch is a generation: a tree node
+ * from an older generation is never changed in place, it is copied into a new page which the parent then points to,
+ * all the way up to a new root. Closing the writer publishes the new root, which makes the whole batch visible at
+ * once. Readers never lock, they take a {@link Snapshot} of the latest published root and see that version of the
+ * tree until they close it, however many batches are written meanwhile. The pages of older versions are reused only
+ * once no open snapshot and no {@link #checkpoint() checkpoint} can reach them anymore.
+ *
+ * Pages 0 and 1 are meta pages which take turns in recording checkpoints, so that a crash in the middle of writing
+ * one still leaves the previous one intact. A checkpointed tree is never changed, since all its pages stay in place
+ * until the next checkpoint, which is why the tree of the last checkpoint is what an opened file contains, and every
+ * page not in that tree is free.
+ *
+ * The tree does not merge nodes that become sparse, it removes nodes that become empty.
+ */
+public class BTree implements AutoCloseable
+{
+    public interface KeyComparator
+    {
+        int compare( byte[] left, int leftOffset, int leftLength, byte[] right, int rightOffset, int rightLength );
+    }
+
+    /**
+     * A comparator which orders keys by a leading part of them only, in which case the separator keys of internal
+     * nodes are cut down to that part, leaving room for more children.
+     */
+    public interface PrefixKeyComparator extends KeyComparator
+    {
+        /**
+         * @return the number of leading bytes of the given key which decide its order.
+         */
+        int orderedLength( byte[] key );
+    }
+
+    private static final long MAGIC = 0x4E656F4254726565L;
+    private static final int VERSION = 1;
+    private static final int MAX_PAGE_SIZE = 8192;
+    private static final int MIN_KEY_SIZE = 64;
+    private static final int MAX_DEPTH = 64;
+    private static final long FIRST_NODE_PAGE = 2;
+    /** Checkpoint when this many pages wait for a checkpoint to become free. */
+    private static final int MAX_PAGES_PENDING_CHECKPOINT = 1024;
+
+    static final byte LEAF = 1;
+    static final byte INTERNAL = 2;
+    private static final int TYPE_OFFSET = 0;
+    private static final int KEY_COUNT_OFFSET = 2;
+    private static final int KEY_SPACE_OFFSET = 4;
+    private static final int DEAD_SPACE_OFFSET = 6;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 2;
+    private static final int CHILD_SIZE = 8;
+    private static final int KEY_LENGTH_SIZE = 2;
+
+    private final File file;
+    private final PagedFile pagedFile;
+    private final int pageSize;
+    private final int maxKeySize;
+    private final KeyComparator comparator;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Writer writer;
+    private final FreeList freeList = new FreeList();
+    // Guarded by writeLock
+    private long root;
+    private long writeGeneration;
+    private long checkpointGeneration;
+    private long checkpointCount;
+    private long lastPageId;
+    private long entryCount;
+    private int pagesPendingCheckpoint;
+    private int checkpointPins;
+    private volatile long userData;
+
+    // Guarded by this
+    private long publishedRoot;
+    private long publishedGeneration;
+    private final TreeMap<Long,Integer> snapshotGenerations = new TreeMap<>();
+
+    private BTree( File file, PagedFile pagedFile, KeyComparator comparator )
+    {
+        this.file = file;
+        this.pagedFile = pagedFile;
+        this.pageSize = pagedFile.pageSize();
+        this.maxKeySize = maxKeySize( pageSize );
+        this.comparator = comparator;
+        this.writer = new Writer();
+        if ( maxKeySize < MIN_KEY_SIZE )
+        {
+            throw new IllegalArgumentException( format( "Pages of %d bytes are too small for a tree", pageSize ) );
+        }
+    }
+
+    /**
+     * Creates a new empty tree in a file which must not exist, or be empty.
+     */
+    public static BTree create( PageCache pageCache, File file, KeyComparator comparator, long userData )
+            throws IOException
+    {
+        PagedFile pagedFile = pageCache.map( file, pageSize( pageCache ) );
+        try
+        {
+            BTree tree = new BTree( file, pagedFile, comparator );
+            tree.initialize( userData );
+            return tree;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            pagedFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the tree as it was at its last checkpoint.
+     */
+    public static BTree open( PageCache pageCache, File file, KeyComparator comparator ) throws IOException
+    {
+        PagedFile pagedFile = pageCache.map( file, pageSize( pageCache ) );
+        try
+        {
+            BTree tree = new BTree( file, pagedFile, comparator );
+            tree.load();
+            return tree;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            pagedFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the user data of the last checkpoint of the tree in the given file.
+     * @throws IOException if the file has no valid checkpoint.
+     */
+    public static long readUserData( PageCache pageCache, File file ) throws IOException
+    {
+        try ( PagedFile pagedFile = pageCache.map( file, pageSize( pageCache ) ) )
+        {
+            return new Meta().readLatest( file, pagedFile ).userData;
+        }
+    }
+
+    /**
+     * @return the largest key the tree can hold when it uses the pages of the given page cache.
+     */
+    public static int maxKeySize( PageCache pageCache )
+    {
+        return maxKeySize( pageSize( pageCache ) );
+    }
+
+    private static int pageSize( PageCache pageCache )
+    {
+        return Math.min( pageCache.pageSize(), MAX_PAGE_SIZE );
+    }
+
+    /**
+     * A node must fit at least four keys, so that both halves of a split node have room for a key to be inserted.
+     */
+    private static int maxKeySize( int pageSize )
+    {
+        return (pageSize - HEADER_SIZE - CHILD_SIZE) / 4 - SLOT_SIZE - KEY_LENGTH_SIZE - CHILD_SIZE;
+    }
+
+    public int maxKeySize()
+    {
+        return maxKeySize;
+    }
+
+    /**
+     * @return the number of keys in the tree, as of the last batch that was written.
+     */
+    public long entryCount()
+    {
+        writeLock.lock();
+        try
+        {
+            return entryCount;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return a small piece of data stored with each checkpoint, for the user of the tree to use as it sees fit.
+     */
+    public long userData()
+    {
+        return userData;
+    }
+
+    /**
+     * Sets the user data, which is made durable by the next checkpoint.
+     */
+    public void setUserData( long userData )
+    {
+        this.userData = userData;
+    }
+
+    /**
+     * Starts a batch of changes, waiting for any other ongoing batch to finish first. The changes become visible to
+     * new snapshots when the writer is closed.
+     */
+    public Writer writer()
+    {
+        writeLock.lock();
+        writer.open();
+        return writer;
+    }
+
+    /**
+     * @return a snapshot of the tree as of the last published batch, which must be closed to let the pages of that
+     * version of the tree be reused.
+     */
+    public synchronized Snapshot snapshot()
+    {
+        Snapshot snapshot = new Snapshot( publishedRoot, publishedGeneration );
+        pinGeneration( publishedGeneration );
+        return snapshot;
+    }
+
+    /**
+     * Makes all published changes durable.
+     */
+    public void checkpoint() throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            if ( checkpointPins == 0 )
+            {
+                writeCheckpoint();
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checkpoints and then keeps the file as it is on disk in a consistent state for as long as the returned
+     * resource is open, which lets the file be copied while the tree is in use. Changes can still be made, but
+     * further checkpoints are held off.
+     */
+    public Resource pinCheckpoint() throws IOException
+    {
+        writeLock.lock();
+        final long generation;
+        try
+        {
+            if ( checkpointPins == 0 )
+            {
+                writeCheckpoint();
+            }
+            checkpointPins++;
+            generation = checkpointGeneration;
+            synchronized ( this )
+            {
+                pinGeneration( generation );
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+        return new Resource()
+        {
+            private boolean closed;
+
+            @Override
+            public void close()
+            {
+                writeLock.lock();
+                try
+                {
+                    if ( !closed )
+                    {
+                        closed = true;
+                        checkpointPins--;
+                        unpinGeneration( generation );
+                    }
+                }
+                finally
+                {
+                    writeLock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Checkpoints and closes the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            writeCheckpoint();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+        pagedFile.close();
+    }
+
+    public File file()
+    {
+        return file;
+    }
+
+    private void initialize( long userData ) throws IOException
+    {
+        byte[] page = new byte[pageSize];
+        initializeNode( page, LEAF, 0 );
+        writePage( FIRST_NODE_PAGE, page );
+        root = publishedRoot = FIRST_NODE_PAGE;
+        lastPageId = FIRST_NODE_PAGE;
+        writeGeneration = 1;
+        this.userData = userData;
+        writeCheckpoint();
+    }
+
+    private void load() throws IOException
+    {
+        Meta meta = new Meta().readLatest( file, pagedFile );
+        if ( meta.pageSize != pageSize )
+        {
+            throw new IOException( format( "%s was written with pages of %d bytes, but pages are now %d bytes",
+                    file, meta.pageSize, pageSize ) );
+        }
+        checkpointCount = meta.checkpointCount;
+        root = publishedRoot = meta.root;
+        publishedGeneration = checkpointGeneration = meta.generation;
+        writeGeneration = meta.generation + 1;
+        entryCount = meta.entryCount;
+        userData = meta.userData;
+        lastPageId = Math.max( pagedFile.getLastPageId(), FIRST_NODE_PAGE );
+
+        // Anything outside of the checkpointed tree may have been written after the checkpoint, and is free
+        byte[] page = new byte[pageSize];
+        int height = 0;
+        for ( long pageId = root; ; height++ )
+        {
+            readPage( pageId, page );
+            if ( type( page ) == LEAF )
+            {
+                break;
+            }
+            pageId = child( page, 0 );
+        }
+        boolean[] used = new boolean[(int) (lastPageId + 1)];
+        used[(int) root] = true;
+        markUsedChildren( root, height, page, used );
+        for ( long pageId = FIRST_NODE_PAGE; pageId <= lastPageId; pageId++ )
+        {
+            if ( !used[(int) pageId] )
+            {
+                freeList.add( pageId, 0 );
+            }
+        }
+    }
+
+    /**
+     * Marks the pages of the subtree of an internal node as used, without reading the leaves.
+     */
+    private void markUsedChildren( long pageId, int height, byte[] page, boolean[] used ) throws IOException
+    {
+        if ( height == 0 )
+        {
+            return;
+        }
+        readPage( pageId, page );
+        long[] children = new long[keyCount( page ) + 1];
+        for ( int i = 0; i < children.length; i++ )
+        {
+            children[i] = child( page, i );
+            if ( children[i] < FIRST_NODE_PAGE || children[i] >= used.length || used[(int) children[i]] )
+            {
+                throw new IOException( format( "Page %d of %s has an invalid child %d", pageId, file, children[i] ) );
+            }
+            used[(int) children[i]] = true;
+        }
+        for ( long child : children )
+        {
+            markUsedChildren( child, height - 1, page, used );
+        }
+    }
+
+    private void writeCheckpoint() throws IOException
+    {
+        long generation, root;
+        synchronized ( this )
+        {
+            generation = publishedGeneration;
+            root = publishedRoot;
+        }
+        pagedFile.flush();
+        Meta meta = new Meta();
+        meta.pageSize = pageSize;
+        meta.checkpointCount = checkpointCount + 1;
+        meta.generation = generation;
+        meta.root = root;
+        meta.entryCount = entryCount;
+        meta.userData = userData;
+        meta.write( pagedFile );
+        pagedFile.flush();
+        checkpointCount++;
+        checkpointGeneration = generation;
+        pagesPendingCheckpoint = 0;
+    }
+
+    // Snapshot bookkeeping, the callers synchronize on this tree
+
+    private void pinGeneration( long generation )
+    {
+        Integer count = snapshotGenerations.get( generation );
+        snapshotGenerations.put( generation, count == null ? 1 : count + 1 );
+    }
+
+    private synchronized void unpinGeneration( long generation )
+    {
+        Integer count = snapshotGenerations.get( generation );
+        if ( count == 1 )
+        {
+            snapshotGenerations.remove( generation );
+        }
+        else
+        {
+            snapshotGenerations.put( generation, count - 1 );
+        }
+    }
+
+    /**
+     * @return the newest generation where freed pages can be reused, since no snapshot nor checkpoint can reach them.
+     */
+    private long reusableGeneration()
+    {
+        long generation = checkpointGeneration;
+        synchronized ( this )
+        {
+            Map.Entry<Long,Integer> oldest = snapshotGenerations.firstEntry();
+            if ( oldest != null )
+            {
+                generation = Math.min( generation, oldest.getKey() );
+            }
+        }
+        return generation;
+    }
+
+    // Page access
+
+    private void readPage( long pageId, byte[] page ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_LOCK ) )
+        {
+            if ( !cursor.next() )
+            {
+                throw new IOException( format( "Page %d is beyond the end of %s", pageId, file ) );
+            }
+            do
+            {
+                cursor.setOffset( 0 );
+                cursor.getBytes( page );
+            }
+            while ( cursor.shouldRetry() );
+        }
+        byte type = type( page );
+        if ( (type != LEAF && type != INTERNAL) ||
+             HEADER_SIZE + keyCount( page ) * (SLOT_SIZE + (type == INTERNAL ? CHILD_SIZE : 0)) > pageSize )
+        {
+            throw new IOException( format( "Page %d of %s is not a tree node", pageId, file ) );
+        }
+    }
+
+    private void writePage( long pageId, byte[] page ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( pageId, PF_EXCLUSIVE_LOCK ) )
+        {
+            if ( !cursor.next() )
+            {
+                throw new IOException( format( "Could not write page %d of %s", pageId, file ) );
+            }
+            do
+            {
+                cursor.setOffset( 0 );
+                cursor.putBytes( page );
+            }
+            while ( cursor.shouldRetry() );
+        }
+    }
+
+    // Node layout: a header, an array of slots with the offsets of the keys, the child page ids of internal nodes,
+    // and then free space up to the keys, which are stored from the end of the page as a length and the key bytes.
+
+    private void initializeNode( byte[] page, byte type, long generation )
+    {
+        Arrays.fill( page, 0, HEADER_SIZE, (byte) 0 );
+        page[TYPE_OFFSET] = type;
+        putShort( page, KEY_SPACE_OFFSET, pageSize );
+        putLong( page, GENERATION_OFFSET, generation );
+    }
+
+    private static byte type( byte[] page )
+    {
+        return page[TYPE_OFFSET];
+    }
+
+    private static int keyCount( byte[] page )
+    {
+        return getShort( page, KEY_COUNT_OFFSET );
+    }
+
+    private static long generation( byte[] page )
+    {
+        return getLong( page, GENERATION_OFFSET );
+    }
+
+    private static int keyOffset( byte[] page, int index )
+    {
+        return getShort( page, HEADER_SIZE + index * SLOT_SIZE ) + KEY_LENGTH_SIZE;
+    }
+
+    private static int keyLength( byte[] page, int index )
+    {
+        return getShort( page, getShort( page, HEADER_SIZE + index * SLOT_SIZE ) );
+    }
+
+    private static int childrenOffset( byte[] page )
+    {
+        return HEADER_SIZE + keyCount( page ) * SLOT_SIZE;
+    }
+
+    private static long child( byte[] page, int index )
+    {
+        return getLong( page, childrenOffset( page ) + index * CHILD_SIZE );
+    }
+
+    private static void setChild( byte[] page, int index, long child )
+    {
+        putLong( page, childrenOffset( page ) + index * CHILD_SIZE, child );
+    }
+
+    private static int freeSpace( byte[] page )
+    {
+        int keyCount = keyCount( page );
+        int used = HEADER_SIZE + keyCount * SLOT_SIZE + (type( page ) == INTERNAL ? (keyCount + 1) * CHILD_SIZE : 0);
+        return getShort( page, KEY_SPACE_OFFSET ) - used;
+    }
+
+    private static int spaceNeeded( byte[] page, byte[] key )
+    {
+        return SLOT_SIZE + KEY_LENGTH_SIZE + key.length + (type( page ) == INTERNAL ? CHILD_SIZE : 0);
+    }
+
+    /**
+     * @return the index of the key, or {@code -(insertionPoint + 1)} if it is not in the node.
+     */
+    private int search( byte[] page, byte[] key )
+    {
+        int low = 0;
+        int high = keyCount( page ) - 1;
+        while ( low <= high )
+        {
+            int mid = (low + high) >>> 1;
+            int compare = comparator.compare(
+                    page, keyOffset( page, mid ), keyLength( page, mid ), key, 0, key.length );
+            if ( compare < 0 )
+            {
+                low = mid + 1;
+            }
+            else if ( compare > 0 )
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * A separator key is the first key of the subtree to its right, so keys equal to it go right.
+     *
+     * @return the index of the child of an internal node whose subtree would hold the given key.
+     */
+    private int childIndex( byte[] page, byte[] key )
+    {
+        int index = search( page, key );
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Inserts a key, and for internal nodes the child to the right of it, given that there is room for it.
+     */
+    private void insertKey( byte[] page, int index, byte[] key, long rightChild )
+    {
+        if ( freeSpace( page ) < spaceNeeded( page, key ) )
+        {
+            compact( page );
+        }
+        boolean internal = type( page ) == INTERNAL;
+        int keyCount = keyCount( page );
+        if ( internal )
+        {
+            // Make room for one more slot by moving the children, and then for the new child among them
+            int childrenOffset = childrenOffset( page );
+            int newChildrenOffset = childrenOffset + SLOT_SIZE;
+            System.arraycopy( page, childrenOffset + (index + 1) * CHILD_SIZE,
+                    page, newChildrenOffset + (index + 2) * CHILD_SIZE, (keyCount - index) * CHILD_SIZE );
+            System.arraycopy( page, childrenOffset, page, newChildrenOffset, (index + 1) * CHILD_SIZE );
+            putLong( page, newChildrenOffset + (index + 1) * CHILD_SIZE, rightChild );
+        }
+        int slotOffset = HEADER_SIZE + index * SLOT_SIZE;
+        System.arraycopy( page, slotOffset, page, slotOffset + SLOT_SIZE, (keyCount - index) * SLOT_SIZE );
+        int keyStart = getShort( page, KEY_SPACE_OFFSET ) - KEY_LENGTH_SIZE - key.length;
+        putShort( page, keyStart, key.length );
+        System.arraycopy( key, 0, page, keyStart + KEY_LENGTH_SIZE, key.length );
+        putShort( page, slotOffset, keyStart );
+        putShort( page, KEY_SPACE_OFFSET, keyStart );
+        putShort( page, KEY_COUNT_OFFSET, keyCount + 1 );
+    }
+
+    /**
+     * Removes a key from a leaf.
+     */
+    private void removeKey( byte[] page, int index )
+    {
+        int keyCount = keyCount( page );
+        int slotOffset = HEADER_SIZE + index * SLOT_SIZE;
+        addDeadSpace( page, KEY_LENGTH_SIZE + keyLength( page, index ) );
+        System.arraycopy( page, slotOffset + SLOT_SIZE, page, slotOffset, (keyCount - index - 1) * SLOT_SIZE );
+        putShort( page, KEY_COUNT_OFFSET, keyCount - 1 );
+    }
+
+    /**
+     * Removes a child from an internal node, along with the separator key to the left of it, or if it is the first
+     * child the separator to the right of it.
+     */
+    private void removeChild( byte[] page, int childIndex )
+    {
+        int keyCount = keyCount( page );
+        int keyIndex = childIndex == 0 ? 0 : childIndex - 1;
+        int childrenOffset = childrenOffset( page );
+        int newChildrenOffset = childrenOffset - SLOT_SIZE;
+        int slotOffset = HEADER_SIZE + keyIndex * SLOT_SIZE;
+        addDeadSpace( page, KEY_LENGTH_SIZE + keyLength( page, keyIndex ) );
+        System.arraycopy( page, slotOffset + SLOT_SIZE, page, slotOffset, (keyCount - keyIndex - 1) * SLOT_SIZE );
+        System.arraycopy( page, childrenOffset, page, newChildrenOffset, childIndex * CHILD_SIZE );
+        System.arraycopy( page, childrenOffset + (childIndex + 1) * CHILD_SIZE,
+                page, newChildrenOffset + childIndex * CHILD_SIZE, (keyCount - childIndex) * CHILD_SIZE );
+        putShort( page, KEY_COUNT_OFFSET, keyCount - 1 );
+    }
+
+    private static void addDeadSpace( byte[] page, int bytes )
+    {
+        putShort( page, DEAD_SPACE_OFFSET, getShort( page, DEAD_SPACE_OFFSET ) + bytes );
+    }
+
+    /**
+     * Moves the keys together at the end of the page, reclaiming the space of removed keys.
+     */
+    private void compact( byte[] page )
+    {
+        byte[] copy = page.clone();
+        int keyCount = keyCount( page );
+        int keyStart = pageSize;
+        for ( int i = 0; i < keyCount; i++ )
+        {
+            int length = keyLength( copy, i );
+            keyStart -= KEY_LENGTH_SIZE + length;
+            System.arraycopy( copy, keyOffset( copy, i ) - KEY_LENGTH_SIZE, page, keyStart, KEY_LENGTH_SIZE + length );
+            putShort( page, HEADER_SIZE + i * SLOT_SIZE, keyStart );
+        }
+        putShort( page, KEY_SPACE_OFFSET, keyStart );
+        putShort( page, DEAD_SPACE_OFFSET, 0 );
+    }
+
+    private static byte[] key( byte[] page, int index )
+    {
+        int offset = keyOffset( page, index );
+        return Arrays.copyOfRange( page, offset, offset + keyLength( page, index ) );
+    }
+
+    private void writeNode( byte[] page, byte type, long generation, byte[][] keys, int from, int to,
+            long[] children )
+    {
+        initializeNode( page, type, generation );
+        putShort( page, KEY_COUNT_OFFSET, to - from );
+        int keyStart = pageSize;
+        for ( int i = from; i < to; i++ )
+        {
+            keyStart -= KEY_LENGTH_SIZE + keys[i].length;
+            putShort( page, keyStart, keys[i].length );
+            System.arraycopy( keys[i], 0, page, keyStart + KEY_LENGTH_SIZE, keys[i].length );
+            putShort( page, HEADER_SIZE + (i - from) * SLOT_SIZE, keyStart );
+        }
+        putShort( page, KEY_SPACE_OFFSET, keyStart );
+        if ( type == INTERNAL )
+        {
+            for ( int i = from; i <= to; i++ )
+            {
+                setChild( page, i - from, children[i] );
+            }
+        }
+    }
+
+    private static int getShort( byte[] page, int offset )
+    {
+        return ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+    }
+
+    private static void putShort( byte[] page, int offset, int value )
+    {
+        page[offset] = (byte) (value >>> 8);
+        page[offset + 1] = (byte) value;
+    }
+
+    private static long getLong( byte[] page, int offset )
+    {
+        long value = 0;
+        for ( int i = 0; i < 8; i++ )
+        {
+            value = (value << 8) | (page[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void putLong( byte[] page, int offset, long value )
+    {
+        for ( int i = 7; i >= 0; i-- )
+        {
+            page[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * The one batch of changes that can be written at a time. Keeps the nodes on the path to the last key it touched,
+     * since batches tend to touch keys close to each other.
+     */
+    public class Writer implements AutoCloseable
+    {
+        private final long[] pathIds = new long[MAX_DEPTH];
+        private final int[] pathChildren = new int[MAX_DEPTH];
+        private final byte[][] pathPages = new byte[MAX_DEPTH][];
+        private final byte[] spare = new byte[pageSize];
+        private final boolean[] dirty = new boolean[MAX_DEPTH];
+        private int depth;
+        private boolean pathValid;
+        private boolean changed;
+
+        private void open()
+        {
+            pathValid = false;
+            changed = false;
+        }
+
+        /**
+         * @return {@code true} if the key was inserted, or {@code false} if it was in the tree already.
+         */
+        public boolean insert( byte[] key ) throws IOException
+        {
+            if ( key.length > maxKeySize )
+            {
+                throw new IllegalArgumentException(
+                        format( "Key of %d bytes is larger than the max key size %d", key.length, maxKeySize ) );
+            }
+            findLeaf( key );
+            int index = search( pathPages[depth], key );
+            if ( index >= 0 )
+            {
+                return false;
+            }
+            insert( depth, -index - 1, key, -1 );
+            entryCount++;
+            changed = true;
+            return true;
+        }
+
+        /**
+         * @return {@code true} if the key was removed, or {@code false} if it was not in the tree.
+         */
+        public boolean remove( byte[] key ) throws IOException
+        {
+            findLeaf( key );
+            int index = search( pathPages[depth], key );
+            if ( index < 0 )
+            {
+                return false;
+            }
+            remove( depth, index );
+            entryCount--;
+            changed = true;
+            return true;
+        }
+
+        /**
+         * Seeks the tree as changed so far by this writer, which must not change it while seeking.
+         */
+        public Seeker seek( byte[] fromInclusive, byte[] toExclusive ) throws IOException
+        {
+            flushAll();
+            return new Seeker( root, fromInclusive, toExclusive );
+        }
+
+        /**
+         * Publishes the changes.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                flushAll();
+                if ( changed )
+                {
+                    synchronized ( BTree.this )
+                    {
+                        publishedRoot = root;
+                        publishedGeneration = writeGeneration;
+                    }
+                    writeGeneration++;
+                    if ( pagesPendingCheckpoint > MAX_PAGES_PENDING_CHECKPOINT && checkpointPins == 0 )
+                    {
+                        writeCheckpoint();
+                    }
+                }
+            }
+            finally
+            {
+                writeLock.unlock();
+            }
+        }
+
+        private void findLeaf( byte[] key ) throws IOException
+        {
+            long pageId = root;
+            for ( int level = 0; ; level++ )
+            {
+                if ( level == MAX_DEPTH )
+                {
+                    throw new IOException( format( "%s is deeper than %d levels", file, MAX_DEPTH ) );
+                }
+                if ( !pathValid || level > depth || pathIds[level] != pageId )
+                {
+                    // Not the node kept from before, so this and everything below it has to be read
+                    pathValid = false;
+                    if ( pathPages[level] == null )
+                    {
+                        pathPages[level] = new byte[pageSize];
+                    }
+                    flush( level );
+                    readPage( pageId, pathPages[level] );
+                    pathIds[level] = pageId;
+                }
+                byte[] page = pathPages[level];
+                if ( type( page ) == LEAF )
+                {
+                    depth = level;
+                    pathValid = true;
+                    return;
+                }
+                pathChildren[level] = childIndex( page, key );
+                pageId = child( page, pathChildren[level] );
+            }
+        }
+
+        /**
+         * Inserts a key into the node at the given level of the path, splitting it if it does not fit, in which case
+         * the separator of the split halves is inserted into the parent, and so on.
+         */
+        private void insert( int level, int index, byte[] key, long rightChild ) throws IOException
+        {
+            while ( true )
+            {
+                byte[] page = pathPages[level];
+                boolean moved = makeWritable( level );
+                if ( freeSpace( page ) + getShort( page, DEAD_SPACE_OFFSET ) >= spaceNeeded( page, key ) )
+                {
+                    insertKey( page, index, key, rightChild );
+                    markDirty( level );
+                    if ( moved )
+                    {
+                        updateParents( level );
+                    }
+                    return;
+                }
+
+                // Split the node by size, with all keys and children including the new ones laid out in order
+                boolean internal = type( page ) == INTERNAL;
+                int keyCount = keyCount( page );
+                byte[][] keys = new byte[keyCount + 1][];
+                long[] children = internal ? new long[keyCount + 2] : null;
+                int overhead = spaceNeeded( page, key ) - key.length;
+                int totalSize = 0;
+                for ( int i = 0, source = 0; i <= keyCount; i++ )
+                {
+                    keys[i] = i == index ? key : key( page, source++ );
+                    totalSize += keys[i].length + overhead;
+                }
+                if ( internal )
+                {
+                    for ( int i = 0, source = 0; i <= keyCount + 1; i++ )
+                    {
+                        children[i] = i == index + 1 ? rightChild : child( page, source++ );
+                    }
+                }
+                int split = 1;
+                int leftSize = keys[0].length + overhead;
+                for ( ; split < keyCount && leftSize * 2 < totalSize; split++ )
+                {
+                    leftSize += keys[split].length + overhead;
+                }
+                if ( internal )
+                {
+                    split = Math.min( split, keyCount - 1 );
+                }
+
+                long generation = writeGeneration;
+                long rightId = allocate();
+                byte[] separator = internal ? keys[split] : separator( keys[split] );
+                if ( internal )
+                {
+                    // The separator moves up, and is in neither half
+                    writeNode( page, INTERNAL, generation, keys, 0, split, children );
+                    writeNode( spare, INTERNAL, generation, keys, split + 1, keys.length, children );
+                }
+                else
+                {
+                    writeNode( page, LEAF, generation, keys, 0, split, null );
+                    writeNode( spare, LEAF, generation, keys, split, keys.length, null );
+                }
+                markDirty( level );
+                writePage( rightId, spare );
+
+                if ( level == 0 )
+                {
+                    long newRoot = allocate();
+                    writeNode( spare, INTERNAL, generation, new byte[][]{separator}, 0, 1,
+                            new long[]{pathIds[0], rightId} );
+                    writePage( newRoot, spare );
+                    root = newRoot;
+                    pathValid = false;
+                    return;
+                }
+                setChild( pathPages[level - 1], pathChildren[level - 1], pathIds[level] );
+                index = pathChildren[level - 1];
+                key = separator;
+                rightChild = rightId;
+                level--;
+            }
+        }
+
+        /**
+         * @return the key to separate a split leaf by, which is the first key of the right half, or the part of it
+         * which decides its order.
+         */
+        private byte[] separator( byte[] firstKeyOfRightLeaf )
+        {
+            if ( comparator instanceof PrefixKeyComparator )
+            {
+                int length = ((PrefixKeyComparator) comparator).orderedLength( firstKeyOfRightLeaf );
+                if ( length < firstKeyOfRightLeaf.length )
+                {
+                    return Arrays.copyOf( firstKeyOfRightLeaf, length );
+                }
+            }
+            return firstKeyOfRightLeaf;
+        }
+
+        /**
+         * Removes a key from the leaf at the given level, or if it is the only key the leaf itself from its parent,
+         * and so on for parents that become empty.
+         */
+        private void remove( int level, int index ) throws IOException
+        {
+            while ( level > 0 && keyCount( pathPages[level] ) == (level == depth ? 1 : 0) )
+            {
+                free( pathIds[level] );
+                pathValid = false;
+                level--;
+                index = pathChildren[level];
+            }
+
+            byte[] page = pathPages[level];
+            boolean moved = makeWritable( level );
+            if ( level == depth )
+            {
+                removeKey( page, index );
+            }
+            else
+            {
+                removeChild( page, index );
+            }
+            markDirty( level );
+            if ( moved )
+            {
+                updateParents( level );
+            }
+
+            // A root with a single child is replaced by that child
+            if ( level == 0 )
+            {
+                while ( type( page ) == INTERNAL && keyCount( page ) == 0 )
+                {
+                    free( root );
+                    root = child( page, 0 );
+                    flush( 0 );
+                    readPage( root, page );
+                    pathValid = false;
+                }
+            }
+        }
+
+        /**
+         * Points the parents to the node at the given level, which has moved, copying the parents as needed.
+         */
+        private void updateParents( int level ) throws IOException
+        {
+            for ( ; level > 0; level-- )
+            {
+                byte[] parent = pathPages[level - 1];
+                setChild( parent, pathChildren[level - 1], pathIds[level] );
+                boolean moved = makeWritable( level - 1 );
+                markDirty( level - 1 );
+                if ( !moved )
+                {
+                    return;
+                }
+            }
+            root = pathIds[0];
+        }
+
+        /**
+         * Copies the node at the given level of the path into a new page, unless it was created by this generation
+         * already, in which case it is not part of any published tree and can be changed in place.
+         *
+         * @return whether the node moved to a new page.
+         */
+        /**
+         * Changed nodes of the path are written to their pages when they leave the path, or the batch ends.
+         */
+        private void markDirty( int level )
+        {
+            dirty[level] = true;
+        }
+
+        private void flush( int level ) throws IOException
+        {
+            if ( dirty[level] )
+            {
+                dirty[level] = false;
+                writePage( pathIds[level], pathPages[level] );
+            }
+        }
+
+        private void flushAll() throws IOException
+        {
+            for ( int level = 0; level < MAX_DEPTH; level++ )
+            {
+                flush( level );
+            }
+        }
+
+        private boolean makeWritable( int level ) throws IOException
+        {
+            byte[] page = pathPages[level];
+            if ( generation( page ) == writeGeneration )
+            {
+                return false;
+            }
+            free( pathIds[level] );
+            pathIds[level] = allocate();
+            putLong( page, GENERATION_OFFSET, writeGeneration );
+            return true;
+        }
+
+        private long allocate() throws IOException
+        {
+            long pageId = freeList.poll( reusableGeneration() );
+            return pageId != -1 ? pageId : ++lastPageId;
+        }
+
+        private void free( long pageId )
+        {
+            freeList.add( pageId, writeGeneration );
+            pagesPendingCheckpoint++;
+        }
+    }
+
+    /**
+     * A version of the tree which stays the same until the snapshot is closed.
+     */
+    public class Snapshot implements Resource
+    {
+        private final long root;
+        private final long generation;
+        private boolean closed;
+
+        private Snapshot( long root, long generation )
+        {
+            this.root = root;
+            this.generation = generation;
+        }
+
+        /**
+         * @param fromInclusive the lowest key to find, or {@code null} for the lowest key in the tree.
+         * @param toExclusive the key to stop at, or {@code null} to find all keys from {@code fromInclusive} and on.
+         */
+        public Seeker seek( byte[] fromInclusive, byte[] toExclusive ) throws IOException
+        {
+            if ( closed )
+            {
+                throw new IllegalStateException( "Snapshot is closed" );
+            }
+            return new Seeker( root, fromInclusive, toExclusive );
+        }
+
+        @Override
+        public void close()
+        {
+            if ( !closed )
+            {
+                closed = true;
+                unpinGeneration( generation );
+            }
+        }
+    }
+
+    /**
+     * Finds the keys of a range in order. The current key is exposed as a region of a page sized buffer, which is
+     * only valid until the next call to {@link #next()}.
+     */
+    public class Seeker
+    {
+        private final byte[] toExclusive;
+        private final byte[] page = new byte[pageSize];
+        private final long[] pathIds = new long[MAX_DEPTH];
+        private final int[] pathChildren = new int[MAX_DEPTH];
+        private int depth;
+        private int index;
+        private int keyOffset;
+        private int keyLength;
+        private boolean done;
+
+        private Seeker( long root, byte[] fromInclusive, byte[] toExclusive ) throws IOException
+        {
+            this.toExclusive = toExclusive;
+            long pageId = root;
+            for ( depth = 0; ; depth++ )
+            {
+                readPage( pageId, page );
+                pathIds[depth] = pageId;
+                if ( type( page ) == LEAF )
+                {
+                    break;
+                }
+                pathChildren[depth] = fromInclusive == null ? 0 : childIndex( page, fromInclusive );
+                pageId = child( page, pathChildren[depth] );
+            }
+            if ( fromInclusive != null )
+            {
+                index = search( page, fromInclusive );
+                index = index >= 0 ? index : -index - 1;
+            }
+        }
+
+        /**
+         * @return whether there was another key in the range.
+         */
+        public boolean next() throws IOException
+        {
+            while ( !done )
+            {
+                if ( index < keyCount( page ) )
+                {
+                    keyOffset = BTree.keyOffset( page, index );
+                    keyLength = BTree.keyLength( page, index );
+                    index++;
+                    if ( toExclusive != null &&
+                         comparator.compare( page, keyOffset, keyLength, toExclusive, 0, toExclusive.length ) >= 0 )
+                    {
+                        done = true;
+                        return false;
+                    }
+                    return true;
+                }
+                nextLeaf();
+            }
+            return false;
+        }
+
+        private void nextLeaf() throws IOException
+        {
+            // Go up to the first parent with another child to the right, and then down its leftmost path
+            int level = depth - 1;
+            for ( ; level >= 0; level-- )
+            {
+                readPage( pathIds[level], page );
+                if ( pathChildren[level] < keyCount( page ) )
+                {
+                    break;
+                }
+            }
+            if ( level < 0 )
+            {
+                done = true;
+                return;
+            }
+            pathChildren[level]++;
+            for ( ; level < depth; level++ )
+            {
+                long pageId = child( page, pathChildren[level] );
+                readPage( pageId, page );
+                pathIds[level + 1] = pageId;
+                if ( level + 1 < depth )
+                {
+                    pathChildren[level + 1] = 0;
+                }
+            }
+            index = 0;
+        }
+
+        public byte[] keyBytes()
+        {
+            return page;
+        }
+
+        public int keyOffset()
+        {
+            return keyOffset;
+        }
+
+        public int keyLength()
+        {
+            return keyLength;
+        }
+    }
+
+    /**
+     * The pages freed by the writer, in the order they were freed, which is also the order of their generations.
+     */
+    private static class FreeList
+    {
+        private long[] pageIds = new long[64];
+        private long[] generations = new long[64];
+        private int head;
+        private int tail;
+
+        void add( long pageId, long generation )
+        {
+            if ( tail == pageIds.length )
+            {
+                int size = tail - head;
+                int capacity = size * 2 > pageIds.length ? pageIds.length * 2 : pageIds.length;
+                long[] newPageIds = new long[capacity];
+                long[] newGenerations = new long[capacity];
+                System.arraycopy( pageIds, head, newPageIds, 0, size );
+                System.arraycopy( generations, head, newGenerations, 0, size );
+                pageIds = newPageIds;
+                generations = newGenerations;
+                head = 0;
+                tail = size;
+            }
+            pageIds[tail] = pageId;
+            generations[tail++] = generation;
+        }
+
+        /**
+         * @return a page freed in the given generation or earlier, or {@code -1} if there is none.
+         */
+        long poll( long reusableGeneration )
+        {
+            if ( head == tail || generations[head] > reusableGeneration )
+            {
+                return -1;
+            }
+            return pageIds[head++];
+        }
+    }
+
+    /**
+     * The contents of a meta page, which records a checkpoint.
+     */
+    private static class Meta
+    {
+        int pageSize;
+        long checkpointCount;
+        long generation;
+        long root;
+        long entryCount;
+        long userData;
+
+        Meta readLatest( File file, PagedFile pagedFile ) throws IOException
+        {
+            Meta other = new Meta();
+            boolean valid = read( pagedFile, 0 );
+            boolean otherValid = other.read( pagedFile, 1 );
+            if ( otherValid && (!valid || other.checkpointCount > checkpointCount) )
+            {
+                return other;
+            }
+            if ( !valid )
+            {
+                throw new IOException( format( "%s has no valid checkpoint", file ) );
+            }
+            return this;
+        }
+
+        boolean read( PagedFile pagedFile, long pageId ) throws IOException
+        {
+            if ( pagedFile.getLastPageId() < pageId )
+            {
+                return false;
+            }
+            long magic, checksum;
+            int version;
+            try ( PageCursor cursor = pagedFile.io( pageId, PF_SHARED_LOCK ) )
+            {
+                if ( !cursor.next() )
+                {
+                    return false;
+                }
+                do
+                {
+                    cursor.setOffset( 0 );
+                    magic = cursor.getLong();
+                    version = cursor.getInt();
+                    pageSize = cursor.getInt();
+                    checkpointCount = cursor.getLong();
+                    generation = cursor.getLong();
+                    root = cursor.getLong();
+                    entryCount = cursor.getLong();
+                    userData = cursor.getLong();
+                    checksum = cursor.getLong();
+                }
+                while ( cursor.shouldRetry() );
+            }
+            return magic == MAGIC && version == VERSION && checksum == checksum();
+        }
+
+        void write( PagedFile pagedFile ) throws IOException
+        {
+            try ( PageCursor cursor = pagedFile.io( checkpointCount & 1, PF_EXCLUSIVE_LOCK ) )
+            {
+                if ( !cursor.next() )
+                {
+                    throw new IOException( "Could not write meta page" );
+                }
+                do
+                {
+                    cursor.setOffset( 0 );
+                    cursor.putLong( MAGIC );
+                    cursor.putInt( VERSION );
+                    cursor.putInt( pageSize );
+                    cursor.putLong( checkpointCount );
+                    cursor.putLong( generation );
+                    cursor.putLong( root );
+                    cursor.putLong( entryCount );
+                    cursor.putLong( userData );
+                    cursor.putLong( checksum() );
+                }
+                while ( cursor.shouldRetry() );
+            }
+        }
+
+        private long checksum()
+        {
+            long checksum = MAGIC;
+            for ( long field : new long[]{VERSION, pageSize, checkpointCount, generation, root, entryCount, userData} )
+            {
+                checksum = checksum * 31 + field;
+            }
+            return checksum;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.graphdb.Resource;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.TaskControl;
+import org.neo4j.helpers.TaskCoordinator;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.direct.BoundedIterable;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexReader;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+
+import static org.neo4j.helpers.collection.IteratorUtil.iterator;
+import static org.neo4j.helpers.collection.IteratorUtil.resourceIterator;
+
+/**
+ * An online native schema index. Updates are applied when their updater is closed, all in one batch, which is also
+ * when they become visible to new readers.
+ */
+class NativeSchemaIndexAccessor implements IndexAccessor
+{
+    private final BTree tree;
+    private final SchemaIndexKeys keys;
+    private final FileSystemAbstraction fs;
+    private final File directory;
+    private final TaskCoordinator taskCoordinator = new TaskCoordinator( 10, TimeUnit.MILLISECONDS );
+
+    NativeSchemaIndexAccessor( BTree tree, SchemaIndexKeys keys, FileSystemAbstraction fs, File directory )
+    {
+        this.tree = tree;
+        this.keys = keys;
+        this.fs = fs;
+        this.directory = directory;
+    }
+
+    @Override
+    public IndexUpdater newUpdater( IndexUpdateMode mode )
+    {
+        // Updates of keys are idempotent, so recovery needs nothing special
+        return new NativeSchemaIndexUpdater();
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        taskCoordinator.cancel();
+        tree.close();
+        try
+        {
+            taskCoordinator.awaitCompletion();
+        }
+        catch ( InterruptedException e )
+        {
+            throw new IOException( "Interrupted while waiting for concurrent tasks to complete.", e );
+        }
+        fs.deleteRecursively( directory );
+    }
+
+    @Override
+    public void force() throws IOException
+    {
+        tree.checkpoint();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        tree.close();
+    }
+
+    @Override
+    public IndexReader newReader()
+    {
+        final TaskControl token = taskCoordinator.newInstance();
+        return new NativeSchemaIndexReader( tree.snapshot(), keys, token, new Resource()
+        {
+            @Override
+            public void close()
+            {
+                token.close();
+            }
+        } );
+    }
+
+    @Override
+    public BoundedIterable<Long> newAllEntriesReader()
+    {
+        final long entryCount = tree.entryCount();
+        final BTree.Snapshot snapshot = tree.snapshot();
+        return new BoundedIterable<Long>()
+        {
+            @Override
+            public long maxCount()
+            {
+                return entryCount;
+            }
+
+            @Override
+            public Iterator<Long> iterator()
+            {
+                final BTree.Seeker seeker;
+                try
+                {
+                    seeker = snapshot.seek( null, null );
+                }
+                catch ( IOException e )
+                {
+                    throw new UnderlyingStorageException( e );
+                }
+                return new PrefetchingIterator<Long>()
+                {
+                    @Override
+                    protected Long fetchNextOrNull()
+                    {
+                        try
+                        {
+                            return seeker.next()
+                                   ? SchemaIndexKeys.nodeId( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength() )
+                                   : null;
+                        }
+                        catch ( IOException e )
+                        {
+                            throw new UnderlyingStorageException( e );
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public void close()
+            {
+                snapshot.close();
+            }
+        };
+    }
+
+    /**
+     * The file is kept as it was at a checkpoint until the snapshot is closed.
+     */
+    @Override
+    public ResourceIterator<File> snapshotFiles() throws IOException
+    {
+        return resourceIterator( iterator( tree.file() ), tree.pinCheckpoint() );
+    }
+
+    private class NativeSchemaIndexUpdater implements IndexUpdater
+    {
+        private final NativeSchemaIndexBatch batch = new NativeSchemaIndexBatch( keys );
+
+        @Override
+        public void process( NodePropertyUpdate update )
+        {
+            batch.process( update );
+        }
+
+        @Override
+        public void close() throws IOException, IndexEntryConflictException
+        {
+            batch.apply( tree, false );
+        }
+
+        @Override
+        public void remove( Collection<Long> nodeIds ) throws IOException
+        {
+            NativeSchemaIndexBatch.removeNodes( tree, nodeIds );
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
+
+/**
+ * Changes to a native schema index, which are applied to its tree in one batch, sorted by key so that changes to
+ * nearby keys are made to the same tree nodes. Changes to different keys can be made in any order, and sorting is
+ * stable, so the changes of each key are made in the order they were given.
+ */
+class NativeSchemaIndexBatch
+{
+    private final SchemaIndexKeys keys;
+    private final List<Change> changes = new ArrayList<>();
+
+    NativeSchemaIndexBatch( SchemaIndexKeys keys )
+    {
+        this.keys = keys;
+    }
+
+    void add( long nodeId, Object value )
+    {
+        changes.add( new Change( keys.key( value, nodeId ), true, nodeId, value ) );
+    }
+
+    void remove( long nodeId, Object value )
+    {
+        changes.add( new Change( keys.key( value, nodeId ), false, nodeId, value ) );
+    }
+
+    void process( NodePropertyUpdate update )
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case CHANGED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            add( update.getNodeId(), update.getValueAfter() );
+            break;
+        case REMOVED:
+            remove( update.getNodeId(), update.getValueBefore() );
+            break;
+        default:
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    int size()
+    {
+        return changes.size();
+    }
+
+    /**
+     * Applies and then forgets the changes.
+     *
+     * @param verifyUniqueness whether to fail if an added value is afterwards indexed for more than one node.
+     */
+    void apply( BTree tree, boolean verifyUniqueness ) throws IOException, IndexEntryConflictException
+    {
+        if ( changes.isEmpty() )
+        {
+            return;
+        }
+        Collections.sort( changes, new Comparator<Change>()
+        {
+            @Override
+            public int compare( Change left, Change right )
+            {
+                return keys.compare( left.key, 0, left.key.length, right.key, 0, right.key.length );
+            }
+        } );
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( Change change : changes )
+            {
+                if ( change.add )
+                {
+                    writer.insert( change.key );
+                }
+                else
+                {
+                    writer.remove( change.key );
+                }
+            }
+            if ( verifyUniqueness )
+            {
+                verifyUniqueness( writer );
+            }
+        }
+        finally
+        {
+            changes.clear();
+        }
+    }
+
+    private void verifyUniqueness( BTree.Writer writer ) throws IOException, IndexEntryConflictException
+    {
+        for ( Change change : changes )
+        {
+            if ( change.add )
+            {
+                BTree.Seeker seeker = writer.seek(
+                        keys.key( change.value, Long.MIN_VALUE ), keys.key( change.value, Long.MAX_VALUE ) );
+                while ( seeker.next() )
+                {
+                    long nodeId = SchemaIndexKeys.nodeId( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength() );
+                    if ( nodeId != change.nodeId )
+                    {
+                        // Population adds nodes in the order of their ids, so the lower id is the one indexed first
+                        throw new PreexistingIndexEntryConflictException( change.value,
+                                Math.min( nodeId, change.nodeId ), Math.max( nodeId, change.nodeId ) );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of the given nodes, which means going through all entries, since they are ordered by value.
+     */
+    static void removeNodes( BTree tree, Collection<Long> nodeIds ) throws IOException
+    {
+        PrimitiveLongSet nodes = Primitive.longSet( nodeIds.size() );
+        for ( long nodeId : nodeIds )
+        {
+            nodes.add( nodeId );
+        }
+        List<byte[]> found = new ArrayList<>();
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            BTree.Seeker seeker = snapshot.seek( null, null );
+            while ( seeker.next() )
+            {
+                byte[] page = seeker.keyBytes();
+                int offset = seeker.keyOffset();
+                int length = seeker.keyLength();
+                if ( nodes.contains( SchemaIndexKeys.nodeId( page, offset, length ) ) )
+                {
+                    found.add( Arrays.copyOfRange( page, offset, offset + length ) );
+                }
+            }
+        }
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( byte[] key : found )
+            {
+                writer.remove( key );
+            }
+        }
+    }
+
+    private static class Change
+    {
+        final byte[] key;
+        final boolean add;
+        final long nodeId;
+        final Object value;
+
+        Change( byte[] key, boolean add, long nodeId, Object value )
+        {
+            this.key = key;
+            this.add = add;
+            this.nodeId = nodeId;
+            this.value = value;
+        }
+    }
+}
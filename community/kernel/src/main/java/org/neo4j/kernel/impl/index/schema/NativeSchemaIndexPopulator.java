@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.neo4j.graphdb.Resource;
+import org.neo4j.helpers.CancellationRequest;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+
+import static org.neo4j.register.Register.DoubleLong;
+
+/**
+ * Populates a native schema index, collecting entries and updates in batches which are written to the tree in key
+ * order. Uniqueness is verified as each batch is written, since the tree has all entries of a value next to each
+ * other, so there is only the last batch left to verify when population is done.
+ */
+class NativeSchemaIndexPopulator implements IndexPopulator
+{
+    static final int BATCH_SIZE = 10_000;
+
+    private final long indexId;
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File directory;
+    private final File treeFile;
+    private final SchemaIndexKeys keys;
+    private final boolean unique;
+    private final NativeSchemaIndexProvider provider;
+    private final NativeSchemaIndexBatch batch;
+    private BTree tree;
+
+    NativeSchemaIndexPopulator( long indexId, PageCache pageCache, FileSystemAbstraction fs, File directory,
+                                File treeFile, SchemaIndexKeys keys, boolean unique,
+                                NativeSchemaIndexProvider provider )
+    {
+        this.indexId = indexId;
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.directory = directory;
+        this.treeFile = treeFile;
+        this.keys = keys;
+        this.unique = unique;
+        this.provider = provider;
+        this.batch = new NativeSchemaIndexBatch( keys );
+    }
+
+    @Override
+    public synchronized void create() throws IOException
+    {
+        fs.deleteRecursively( directory );
+        fs.mkdirs( directory );
+        tree = BTree.create( pageCache, treeFile, keys, NativeSchemaIndexProvider.POPULATING );
+    }
+
+    @Override
+    public synchronized void drop() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+        fs.deleteRecursively( directory );
+    }
+
+    @Override
+    public synchronized void add( long nodeId, Object propertyValue ) throws IndexEntryConflictException, IOException
+    {
+        batch.add( nodeId, propertyValue );
+        if ( batch.size() >= BATCH_SIZE )
+        {
+            batch.apply( tree, unique );
+        }
+    }
+
+    @Override
+    public synchronized void verifyDeferredConstraints( PropertyAccessor accessor ) throws Exception
+    {
+        // The previous batches have been verified as they were written, so only the last one is left
+        batch.apply( tree, unique );
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        return new IndexUpdater()
+        {
+            @Override
+            public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+            {
+                synchronized ( NativeSchemaIndexPopulator.this )
+                {
+                    batch.process( update );
+                    if ( batch.size() >= BATCH_SIZE )
+                    {
+                        batch.apply( tree, unique );
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException, IndexEntryConflictException
+            {
+                // Written with the next batch
+            }
+
+            @Override
+            public void remove( Collection<Long> nodeIds ) throws IOException
+            {
+                synchronized ( NativeSchemaIndexPopulator.this )
+                {
+                    try
+                    {
+                        batch.apply( tree, unique );
+                    }
+                    catch ( IndexEntryConflictException e )
+                    {
+                        throw new IllegalStateException( e );
+                    }
+                    NativeSchemaIndexBatch.removeNodes( tree, nodeIds );
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        if ( tree == null )
+        {
+            return;
+        }
+        try
+        {
+            if ( populationCompletedSuccessfully )
+            {
+                applyBatch();
+                tree.setUserData( NativeSchemaIndexProvider.ONLINE );
+            }
+        }
+        finally
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    @Override
+    public void markAsFailed( String failure ) throws IOException
+    {
+        provider.storeFailure( indexId, failure );
+    }
+
+    @Override
+    public synchronized long sampleResult( DoubleLong.Out result )
+    {
+        try
+        {
+            applyBatch();
+            try ( NativeSchemaIndexReader reader = new NativeSchemaIndexReader(
+                    tree.snapshot(), keys, CancellationRequest.NEVER_CANCELLED, Resource.EMPTY ) )
+            {
+                return reader.sampleIndex( result );
+            }
+        }
+        catch ( IOException | IndexNotFoundKernelException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Writes what is left after the constraints have been verified, which is no longer verified, like with any
+     * other updates of an online index.
+     */
+    private void applyBatch() throws IOException
+    {
+        try
+        {
+            batch.apply( tree, false );
+        }
+        catch ( IndexEntryConflictException e )
+        {
+            throw new IllegalStateException( "Uniqueness is not verified", e );
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+
+/**
+ * Schema indexes kept in a {@link BTree} each, in the page cache together with the store files. As opposed to
+ * Lucene indexes they keep their entries ordered by value, which they are found in by range seeks too, and they
+ * find exact values without having to consult the store for numbers.
+ *
+ * The provider has a lower priority than the Lucene provider, and so is only used for new indexes when selected by
+ * {@link org.neo4j.graphdb.factory.GraphDatabaseSettings#default_schema_provider}.
+ */
+public class NativeSchemaIndexProvider extends SchemaIndexProvider
+{
+    static final long POPULATING = 0;
+    static final long ONLINE = 1;
+    private static final String TREE_FILE = "index";
+    private static final String FAILURE_FILE = "failure-message";
+    private static final String UTF_8 = "UTF-8";
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File rootDirectory;
+    private final Map<Long,String> failures = new ConcurrentHashMap<>();
+
+    public NativeSchemaIndexProvider( PageCache pageCache, FileSystemAbstraction fs, Config config )
+    {
+        super( NativeSchemaIndexProviderFactory.PROVIDER_DESCRIPTOR, -1 );
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.rootDirectory = getRootDirectory( config, NativeSchemaIndexProviderFactory.KEY );
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+                                        IndexSamplingConfig samplingConfig )
+    {
+        return new NativeSchemaIndexPopulator( indexId, pageCache, fs, directory( indexId ), treeFile( indexId ),
+                newKeys(), config.isUnique(), this );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+                                            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        SchemaIndexKeys keys = newKeys();
+        return new NativeSchemaIndexAccessor( BTree.open( pageCache, treeFile( indexId ), keys ), keys, fs,
+                directory( indexId ) );
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        String failure = loadFailure( indexId );
+        if ( failure == null )
+        {
+            failure = failures.get( indexId );
+        }
+        if ( failure == null )
+        {
+            throw new IllegalStateException( "Index " + indexId + " isn't failed" );
+        }
+        return failure;
+    }
+
+    /**
+     * An index without a valid checkpoint is populated again, which is also what happens if the page size has
+     * changed since the index was created.
+     */
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        String failure = loadFailure( indexId );
+        if ( failure != null )
+        {
+            failures.put( indexId, failure );
+            return InternalIndexState.FAILED;
+        }
+        File treeFile = treeFile( indexId );
+        if ( !fs.fileExists( treeFile ) )
+        {
+            return InternalIndexState.POPULATING;
+        }
+        try
+        {
+            return BTree.readUserData( pageCache, treeFile ) == ONLINE
+                   ? InternalIndexState.ONLINE : InternalIndexState.POPULATING;
+        }
+        catch ( IOException e )
+        {
+            return InternalIndexState.POPULATING;
+        }
+    }
+
+    void storeFailure( long indexId, String failure ) throws IOException
+    {
+        File directory = directory( indexId );
+        fs.mkdirs( directory );
+        try ( Writer writer = fs.openAsWriter( new File( directory, FAILURE_FILE ), UTF_8, false ) )
+        {
+            writer.write( failure );
+        }
+    }
+
+    private String loadFailure( long indexId )
+    {
+        File file = new File( directory( indexId ), FAILURE_FILE );
+        if ( !fs.fileExists( file ) )
+        {
+            return null;
+        }
+        StringBuilder failure = new StringBuilder();
+        try ( Reader reader = fs.openAsReader( file, UTF_8 ) )
+        {
+            char[] buffer = new char[1024];
+            for ( int read; (read = reader.read( buffer )) != -1; )
+            {
+                failure.append( buffer, 0, read );
+            }
+        }
+        catch ( IOException e )
+        {
+            return "Unable to read failure message: " + e.getMessage();
+        }
+        return failure.toString();
+    }
+
+    private SchemaIndexKeys newKeys()
+    {
+        return new SchemaIndexKeys( BTree.maxKeySize( pageCache ) );
+    }
+
+    private File directory( long indexId )
+    {
+        return new File( rootDirectory, String.valueOf( indexId ) );
+    }
+
+    private File treeFile( long indexId )
+    {
+        return new File( directory( indexId ), TREE_FILE );
+    }
+}
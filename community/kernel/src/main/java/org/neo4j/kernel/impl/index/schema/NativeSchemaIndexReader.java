@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections.PrimitiveLongBaseIterator;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.Resource;
+import org.neo4j.helpers.CancellationRequest;
+import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
+import org.neo4j.kernel.api.index.IndexReader;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+
+import static org.neo4j.kernel.impl.index.schema.SchemaIndexKeys.NUMBER;
+import static org.neo4j.kernel.impl.index.schema.SchemaIndexKeys.STRING;
+import static org.neo4j.kernel.impl.index.schema.SchemaIndexKeys.first;
+import static org.neo4j.kernel.impl.index.schema.SchemaIndexKeys.last;
+import static org.neo4j.register.Register.DoubleLong;
+
+/**
+ * Reads a snapshot of a native schema index, so that all lookups see the index as it was when the reader was
+ * created. Lookups and range seeks return nodes in the order of their values, and then of their ids.
+ */
+class NativeSchemaIndexReader implements IndexReader
+{
+    private final BTree.Snapshot snapshot;
+    private final SchemaIndexKeys keys;
+    private final CancellationRequest cancellation;
+    private final Resource onClose;
+
+    NativeSchemaIndexReader( BTree.Snapshot snapshot, SchemaIndexKeys keys, CancellationRequest cancellation,
+                             Resource onClose )
+    {
+        this.snapshot = snapshot;
+        this.keys = keys;
+        this.cancellation = cancellation;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public PrimitiveLongIterator lookup( Object value )
+    {
+        return seek( keys.key( value, Long.MIN_VALUE ), keys.key( value, Long.MAX_VALUE ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                    Number upper, boolean includeUpper )
+    {
+        return seek( lower == null ? first( NUMBER ) : keys.numberBound( lower, includeLower, true ),
+                upper == null ? last( NUMBER ) : keys.numberBound( upper, includeUpper, false ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                    String upper, boolean includeUpper )
+    {
+        return seek( lower == null ? first( STRING ) : keys.stringBound( lower, includeLower, true ),
+                upper == null ? last( STRING ) : keys.stringBound( upper, includeUpper, false ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        return seek( keys.fromPrefix( prefix ), keys.afterPrefix( prefix ) );
+    }
+
+    @Override
+    public int getIndexedCount( long nodeId, Object propertyValue )
+    {
+        byte[] key = keys.key( propertyValue, nodeId );
+        try
+        {
+            BTree.Seeker seeker = snapshot.seek( key, null );
+            return seeker.next() &&
+                   keys.compare( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength(), key, 0, key.length ) == 0
+                   ? 1 : 0;
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    /**
+     * Samples by going through all entries, which are ordered by value, so that each new value is seen once.
+     */
+    @Override
+    public long sampleIndex( DoubleLong.Out result ) throws IndexNotFoundKernelException
+    {
+        long size = 0;
+        long uniqueValues = 0;
+        byte[] previous = new byte[0];
+        try
+        {
+            BTree.Seeker seeker = snapshot.seek( null, null );
+            while ( seeker.next() )
+            {
+                byte[] page = seeker.keyBytes();
+                int offset = seeker.keyOffset();
+                int length = seeker.keyLength();
+                if ( previous.length == 0 || previous[0] != page[offset] ||
+                     keys.compareValues( previous, 0, previous.length, page, offset, length ) != 0 )
+                {
+                    uniqueValues++;
+                    if ( previous.length != length )
+                    {
+                        previous = new byte[length];
+                    }
+                    System.arraycopy( page, offset, previous, 0, length );
+                }
+                if ( ++size % 10_000 == 0 && cancellation.cancellationRequested() )
+                {
+                    throw new IndexNotFoundKernelException( "Index dropped while sampling." );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+        result.write( uniqueValues, size );
+        return size;
+    }
+
+    @Override
+    public void close()
+    {
+        snapshot.close();
+        onClose.close();
+    }
+
+    private PrimitiveLongIterator seek( byte[] fromInclusive, byte[] toExclusive )
+    {
+        final BTree.Seeker seeker;
+        try
+        {
+            seeker = snapshot.seek( fromInclusive, toExclusive );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+        return new PrimitiveLongBaseIterator()
+        {
+            @Override
+            protected boolean fetchNext()
+            {
+                try
+                {
+                    return seeker.next() &&
+                           next( SchemaIndexKeys.nodeId( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength() ) );
+                }
+                catch ( IOException e )
+                {
+                    throw new UnderlyingStorageException( e );
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.util.Arrays;
+
+import org.neo4j.helpers.UTF8;
+import org.neo4j.kernel.api.index.ArrayEncoder;
+import org.neo4j.kernel.api.index.CompositeIndexValue;
+
+/**
+ * The keys of a native schema index, which are an encoded property value followed by the id of the node that has it.
+ * Keys are ordered by the type of their value, then by value and then by node id, so that all entries of a value,
+ * and all values of a type, are next to each other. Each key starts with a tag of the type of its value:
+ *
+ * <ul>
+ *     <li>Numbers are either longs or doubles, where any integral value which fits in a long is a long, so that
+ *     equal numbers are equal keys whatever their type. Longs and doubles are compared exactly.</li>
+ *     <li>Strings, and characters which are indexed as strings, are stored as their UTF-8 bytes and ordered by
+ *     them, which is also the order of their code points.</li>
+ *     <li>Booleans are a single byte, {@code false} before {@code true}.</li>
+ *     <li>Arrays are stored as strings, encoded by the {@link ArrayEncoder}, and only support exact lookups.</li>
+ *     <li>The values of composite indexes are stored as their {@link CompositeIndexValue#encode() encoded form},
+ *     and likewise only support exact lookups.</li>
+ * </ul>
+ *
+ * Strings and arrays too long to fit in a key are cut off, and end with a hash of the full value in place of the
+ * rest of it. Exact lookups still work, but these values are only ordered by the part that was kept, so range seeks
+ * treat bounds that long as if they were cut off too, which may find more nodes than what is in range.
+ */
+class SchemaIndexKeys implements BTree.KeyComparator
+{
+    static final byte NUMBER = 1;
+    static final byte STRING = 2;
+    static final byte BOOLEAN = 3;
+    static final byte ARRAY = 4;
+    static final byte COMPOSITE = 5;
+
+    private static final byte LONG = 0;
+    private static final byte DOUBLE = 1;
+    private static final int TAG_SIZE = 1;
+    private static final int NODE_ID_SIZE = 8;
+    private static final int HASH_SIZE = 8;
+    private static final double TWO_POW_63 = 0x1p63;
+
+    /** The longest value a key can hold, which is the length of all cut off values. */
+    private final int maxValueSize;
+
+    SchemaIndexKeys( int maxKeySize )
+    {
+        this.maxValueSize = maxKeySize - TAG_SIZE - NODE_ID_SIZE;
+    }
+
+    /**
+     * @return the key of the given value and node. Keys with the node ids {@link Long#MIN_VALUE} and
+     * {@link Long#MAX_VALUE} are before and after all entries with the value.
+     */
+    byte[] key( Object value, long nodeId )
+    {
+        if ( value instanceof Number )
+        {
+            return numberKey( (Number) value, nodeId );
+        }
+        if ( value instanceof CompositeIndexValue )
+        {
+            return bytesKey( COMPOSITE, UTF8.encode( ((CompositeIndexValue) value).encode() ), nodeId );
+        }
+        if ( value instanceof String )
+        {
+            return bytesKey( STRING, UTF8.encode( (String) value ), nodeId );
+        }
+        if ( value instanceof Character )
+        {
+            return bytesKey( STRING, UTF8.encode( value.toString() ), nodeId );
+        }
+        if ( value instanceof Boolean )
+        {
+            byte[] key = new byte[TAG_SIZE + 1 + NODE_ID_SIZE];
+            key[0] = BOOLEAN;
+            key[1] = (byte) ((Boolean) value ? 1 : 0);
+            putLong( key, 2, nodeId );
+            return key;
+        }
+        if ( value != null && value.getClass().isArray() )
+        {
+            return bytesKey( ARRAY, UTF8.encode( ArrayEncoder.encode( value ) ), nodeId );
+        }
+        throw new IllegalArgumentException( "Unable to index the value " + value );
+    }
+
+    /**
+     * @return a key which is before all keys of the given type.
+     */
+    static byte[] first( byte type )
+    {
+        return new byte[]{type};
+    }
+
+    /**
+     * @return a key which is after all keys of the given type.
+     */
+    static byte[] last( byte type )
+    {
+        return new byte[]{(byte) (type + 1)};
+    }
+
+    /**
+     * @return a key to seek from, or to, for a bound of a range of numbers.
+     */
+    byte[] numberBound( Number value, boolean inclusive, boolean lower )
+    {
+        return key( value, lower == inclusive ? Long.MIN_VALUE : Long.MAX_VALUE );
+    }
+
+    /**
+     * @return a key to seek from, or to, for a string bound of a range. Bounds too long to be compared to keys are
+     * cut off, and include all strings that start like them.
+     */
+    byte[] stringBound( String value, boolean inclusive, boolean lower )
+    {
+        byte[] bytes = UTF8.encode( value );
+        if ( bytes.length > maxValueSize - HASH_SIZE )
+        {
+            return lower ? fromPrefix( bytes ) : afterPrefix( bytes );
+        }
+        return bytesKey( STRING, bytes, lower == inclusive ? Long.MIN_VALUE : Long.MAX_VALUE );
+    }
+
+    /**
+     * @return a key to seek from for strings starting with the given prefix.
+     */
+    byte[] fromPrefix( String prefix )
+    {
+        return fromPrefix( UTF8.encode( prefix ) );
+    }
+
+    /**
+     * @return a key which is after all strings that start with the given prefix.
+     */
+    byte[] afterPrefix( String prefix )
+    {
+        return afterPrefix( UTF8.encode( prefix ) );
+    }
+
+    private byte[] fromPrefix( byte[] prefix )
+    {
+        return bytesKey( STRING, cutOff( prefix ), Long.MIN_VALUE );
+    }
+
+    private byte[] afterPrefix( byte[] prefix )
+    {
+        byte[] bytes = cutOff( prefix );
+        for ( int i = bytes.length - 1; i >= 0; i-- )
+        {
+            if ( bytes[i] != (byte) 0xFF )
+            {
+                byte[] successor = Arrays.copyOf( bytes, i + 1 );
+                successor[i]++;
+                return bytesKey( STRING, successor, Long.MIN_VALUE );
+            }
+        }
+        return last( STRING );
+    }
+
+    /**
+     * Prefixes are compared to the part of long strings that keys keep.
+     */
+    private byte[] cutOff( byte[] bytes )
+    {
+        return bytes.length > maxValueSize - HASH_SIZE ? Arrays.copyOf( bytes, maxValueSize - HASH_SIZE ) : bytes;
+    }
+
+    static long nodeId( byte[] key, int offset, int length )
+    {
+        return getLong( key, offset + length - NODE_ID_SIZE );
+    }
+
+    @Override
+    public int compare( byte[] left, int leftOffset, int leftLength, byte[] right, int rightOffset, int rightLength )
+    {
+        int compare = (left[leftOffset] & 0xFF) - (right[rightOffset] & 0xFF);
+        if ( compare != 0 )
+        {
+            return compare;
+        }
+        if ( leftLength == TAG_SIZE || rightLength == TAG_SIZE )
+        {
+            // Keys of only a tag are before all keys of that type
+            return leftLength - rightLength;
+        }
+        compare = compareValues( left, leftOffset, leftLength, right, rightOffset, rightLength );
+        if ( compare != 0 )
+        {
+            return compare;
+        }
+        return Long.compare( nodeId( left, leftOffset, leftLength ), nodeId( right, rightOffset, rightLength ) );
+    }
+
+    /**
+     * Compares the values of two keys of the same type, ignoring their nodes.
+     */
+    int compareValues( byte[] left, int leftOffset, int leftLength, byte[] right, int rightOffset, int rightLength )
+    {
+        switch ( left[leftOffset] )
+        {
+        case NUMBER:
+            return compareNumbers( left[leftOffset + 1], getLong( left, leftOffset + 2 ),
+                    right[rightOffset + 1], getLong( right, rightOffset + 2 ) );
+        case BOOLEAN:
+            return left[leftOffset + 1] - right[rightOffset + 1];
+        default:
+            int leftEnd = leftOffset + leftLength - NODE_ID_SIZE;
+            int rightEnd = rightOffset + rightLength - NODE_ID_SIZE;
+            for ( int l = leftOffset + 1, r = rightOffset + 1; l < leftEnd && r < rightEnd; l++, r++ )
+            {
+                int compare = (left[l] & 0xFF) - (right[r] & 0xFF);
+                if ( compare != 0 )
+                {
+                    return compare;
+                }
+            }
+            return (leftEnd - leftOffset) - (rightEnd - rightOffset);
+        }
+    }
+
+    private byte[] numberKey( Number value, long nodeId )
+    {
+        byte kind;
+        long bits;
+        if ( value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte )
+        {
+            kind = LONG;
+            bits = value.longValue();
+        }
+        else
+        {
+            double doubleValue = value.doubleValue();
+            if ( doubleValue == Math.rint( doubleValue ) && doubleValue >= -TWO_POW_63 && doubleValue < TWO_POW_63 )
+            {
+                // Also turns -0.0 into 0
+                kind = LONG;
+                bits = (long) doubleValue;
+            }
+            else
+            {
+                kind = DOUBLE;
+                bits = Double.doubleToLongBits( doubleValue );
+            }
+        }
+        byte[] key = new byte[TAG_SIZE + 1 + 8 + NODE_ID_SIZE];
+        key[0] = NUMBER;
+        key[1] = kind;
+        putLong( key, 2, bits );
+        putLong( key, 10, nodeId );
+        return key;
+    }
+
+    private static int compareNumbers( byte leftKind, long left, byte rightKind, long right )
+    {
+        if ( leftKind == LONG && rightKind == LONG )
+        {
+            return Long.compare( left, right );
+        }
+        if ( leftKind == DOUBLE && rightKind == DOUBLE )
+        {
+            return Double.compare( Double.longBitsToDouble( left ), Double.longBitsToDouble( right ) );
+        }
+        if ( leftKind == LONG )
+        {
+            return compareLongToDouble( left, Double.longBitsToDouble( right ) );
+        }
+        return -compareLongToDouble( right, Double.longBitsToDouble( left ) );
+    }
+
+    /**
+     * Doubles in keys are never integral values within the range of longs, so they are never equal to a long.
+     */
+    private static int compareLongToDouble( long value, double other )
+    {
+        if ( Double.isNaN( other ) || other >= TWO_POW_63 )
+        {
+            return -1;
+        }
+        if ( other < -TWO_POW_63 )
+        {
+            return 1;
+        }
+        return value <= (long) Math.floor( other ) ? -1 : 1;
+    }
+
+    private byte[] bytesKey( byte type, byte[] bytes, long nodeId )
+    {
+        int length = bytes.length;
+        boolean cutOff = length > maxValueSize - HASH_SIZE;
+        if ( cutOff )
+        {
+            length = maxValueSize;
+        }
+        byte[] key = new byte[TAG_SIZE + length + NODE_ID_SIZE];
+        key[0] = type;
+        if ( cutOff )
+        {
+            System.arraycopy( bytes, 0, key, TAG_SIZE, maxValueSize - HASH_SIZE );
+            putLong( key, TAG_SIZE + maxValueSize - HASH_SIZE, hash( bytes ) );
+        }
+        else
+        {
+            System.arraycopy( bytes, 0, key, TAG_SIZE, length );
+        }
+        putLong( key, TAG_SIZE + length, nodeId );
+        return key;
+    }
+
+    /**
+     * 64 bit FNV-1a, with a final mix to spread the last bytes too.
+     */
+    private static long hash( byte[] bytes )
+    {
+        long hash = 0xcbf29ce484222325L;
+        for ( byte b : bytes )
+        {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long getLong( byte[] bytes, int offset )
+    {
+        long value = 0;
+        for ( int i = 0; i < 8; i++ )
+        {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void putLong( byte[] bytes, int offset, long value )
+    {
+        for ( int i = 7; i >= 0; i-- )
+        {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps statistics about lock contention, as reported to it through {@link Locks.Monitor}:
+ *
+ * <ul>
+ *     <li>A histogram of wait times per resource type, with buckets of powers of two nanoseconds.</li>
+ *     <li>The most contended resources, in a sketch of bounded size.</li>
+ *     <li>The number of deadlocks detected per resource type.</li>
+ * </ul>
+ *
+ * The histograms and deadlock counts are plain atomic counters. The sketch uses the "space saving" algorithm: it tracks
+ * a fixed number of resources, and when a resource which isn't tracked is waited for, it takes over the slot of the
+ * resource with the fewest waits, inheriting its count. The counts of the sketch may thereby overestimate, but never
+ * underestimate. So that waits for different resources don't all queue up on one monitor, larger sketches are split
+ * into stripes by resource, each a sketch of its own. Any resource which accounts for more than 1/capacity of the waits
+ * in its stripe is certain to be in it, where the capacity is that of the stripe.
+ *
+ * None of this allocates any memory, so that it is fine for lock managers to report waits while holding on to locks.
+ */
+public class LockWaitStatistics implements Locks.Monitor
+{
+    /**
+     * Bucket 0 counts waits of 0ns and bucket b > 0 counts waits of [2^(b-1), 2^b) ns, except the last bucket which
+     * counts all longer waits too.
+     */
+    public static final int BUCKETS = 40;
+    public static final int DEFAULT_SKETCH_CAPACITY = 64;
+    private static final int MIN_STRIPE_CAPACITY = 8;
+    private static final int MAX_STRIPES = 16;
+
+    private final Locks.ResourceType[] resourceTypes;
+    private final AtomicLongArray waitTimeHistograms;
+    private final AtomicLongArray totalWaitNanos;
+    /** The longest wait in the last bucket, which has no upper bound of its own. */
+    private final AtomicLongArray longestWaitNanos;
+    private final AtomicLongArray deadlocks;
+    private final ContentionSketch[] sketches;
+
+    public LockWaitStatistics( Locks.ResourceType... resourceTypes )
+    {
+        this( DEFAULT_SKETCH_CAPACITY, resourceTypes );
+    }
+
+    public LockWaitStatistics( int sketchCapacity, Locks.ResourceType... resourceTypes )
+    {
+        int maxTypeId = 0;
+        for ( Locks.ResourceType type : resourceTypes )
+        {
+            maxTypeId = Math.max( type.typeId(), maxTypeId );
+        }
+        this.resourceTypes = new Locks.ResourceType[maxTypeId + 1];
+        for ( Locks.ResourceType type : resourceTypes )
+        {
+            this.resourceTypes[type.typeId()] = type;
+        }
+        this.waitTimeHistograms = new AtomicLongArray( this.resourceTypes.length * BUCKETS );
+        this.totalWaitNanos = new AtomicLongArray( this.resourceTypes.length );
+        this.longestWaitNanos = new AtomicLongArray( this.resourceTypes.length );
+        this.deadlocks = new AtomicLongArray( this.resourceTypes.length );
+        int stripes = Math.min( MAX_STRIPES, Math.max( 1, Integer.highestOneBit( sketchCapacity / MIN_STRIPE_CAPACITY ) ) );
+        this.sketches = new ContentionSketch[stripes];
+        for ( int i = 0; i < stripes; i++ )
+        {
+            sketches[i] = new ContentionSketch( sketchCapacity / stripes );
+        }
+    }
+
+    @Override
+    public void lockWaited( Locks.ResourceType resourceType, long resourceId, long waitNanos )
+    {
+        int typeId = resourceType.typeId();
+        int bucket = bucket( waitNanos );
+        waitTimeHistograms.incrementAndGet( typeId * BUCKETS + bucket );
+        totalWaitNanos.addAndGet( typeId, waitNanos );
+        if ( bucket == BUCKETS - 1 )
+        {
+            long longest;
+            while ( (longest = longestWaitNanos.get( typeId )) < waitNanos &&
+                    !longestWaitNanos.compareAndSet( typeId, longest, waitNanos ) )
+            {
+                // Someone else got there first, see if ours is still the longest
+            }
+        }
+        sketches[stripe( typeId, resourceId )].waited( typeId, resourceId, waitNanos );
+    }
+
+    @Override
+    public void deadlockDetected( Locks.ResourceType resourceType, long resourceId )
+    {
+        deadlocks.incrementAndGet( resourceType.typeId() );
+    }
+
+    /** @return the resource types these statistics are kept for. */
+    public List<Locks.ResourceType> resourceTypes()
+    {
+        List<Locks.ResourceType> types = new ArrayList<>();
+        for ( Locks.ResourceType type : resourceTypes )
+        {
+            if ( type != null )
+            {
+                types.add( type );
+            }
+        }
+        return types;
+    }
+
+    public long waits( Locks.ResourceType resourceType )
+    {
+        long waits = 0;
+        for ( long count : waitTimeHistogram( resourceType ) )
+        {
+            waits += count;
+        }
+        return waits;
+    }
+
+    public long totalWaitNanos( Locks.ResourceType resourceType )
+    {
+        return totalWaitNanos.get( resourceType.typeId() );
+    }
+
+    /** @return the number of waits per bucket, see {@link #BUCKETS}. */
+    public long[] waitTimeHistogram( Locks.ResourceType resourceType )
+    {
+        long[] histogram = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            histogram[i] = waitTimeHistograms.get( resourceType.typeId() * BUCKETS + i );
+        }
+        return histogram;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the upper bound, in nanoseconds, of the wait times of the given percentile of waits, or 0 if there
+     * have been no waits. For the last bucket, which has no upper bound, this is the longest wait seen.
+     */
+    public long waitNanosPercentile( Locks.ResourceType resourceType, double percentile )
+    {
+        long[] histogram = waitTimeHistogram( resourceType );
+        long waits = 0;
+        for ( long count : histogram )
+        {
+            waits += count;
+        }
+        if ( waits == 0 )
+        {
+            return 0;
+        }
+
+        long rank = Math.max( 1, (long) Math.ceil( waits * percentile / 100 ) );
+        int bucket = 0;
+        for ( long seen = histogram[0]; seen < rank; seen += histogram[bucket] )
+        {
+            bucket++;
+        }
+        return bucket == BUCKETS - 1 ? longestWaitNanos.get( resourceType.typeId() ) : bucketUpperBound( bucket );
+    }
+
+    public long deadlocks( Locks.ResourceType resourceType )
+    {
+        return deadlocks.get( resourceType.typeId() );
+    }
+
+    public long deadlocks()
+    {
+        long total = 0;
+        for ( int i = 0; i < deadlocks.length(); i++ )
+        {
+            total += deadlocks.get( i );
+        }
+        return total;
+    }
+
+    /**
+     * @return up to the given number of the most contended resources, those with the most waits first.
+     */
+    public List<ContendedResource> mostContendedResources( int maxResources )
+    {
+        List<ContendedResource> resources = new ArrayList<>();
+        for ( ContentionSketch sketch : sketches )
+        {
+            sketch.snapshotInto( resources );
+        }
+        Collections.sort( resources, new Comparator<ContendedResource>()
+        {
+            @Override
+            public int compare( ContendedResource o1, ContendedResource o2 )
+            {
+                return Long.compare( o2.waits(), o1.waits() );
+            }
+        } );
+        return resources.size() > maxResources ? resources.subList( 0, maxResources ) : resources;
+    }
+
+    static int bucket( long waitNanos )
+    {
+        return Math.min( BUCKETS - 1, 64 - Long.numberOfLeadingZeros( waitNanos ) );
+    }
+
+    static long bucketUpperBound( int bucket )
+    {
+        return (1L << bucket) - 1;
+    }
+
+    private int stripe( int typeId, long resourceId )
+    {
+        long hash = (resourceId * 31 + typeId) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (sketches.length - 1);
+    }
+
+    /** A resource in the contention sketch. */
+    public class ContendedResource
+    {
+        private final int typeId;
+        private final long resourceId;
+        private final long waits;
+        private final long waitNanos;
+
+        ContendedResource( int typeId, long resourceId, long waits, long waitNanos )
+        {
+            this.typeId = typeId;
+            this.resourceId = resourceId;
+            this.waits = waits;
+            this.waitNanos = waitNanos;
+        }
+
+        public Locks.ResourceType resourceType()
+        {
+            return resourceTypes[typeId];
+        }
+
+        public long resourceId()
+        {
+            return resourceId;
+        }
+
+        /** @return the number of waits for this resource, which may be overestimated by the sketch. */
+        public long waits()
+        {
+            return waits;
+        }
+
+        /** @return the time waited for this resource since it was last taken into the sketch. */
+        public long waitNanos()
+        {
+            return waitNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format( "%s(%d): waits=%d, waited=%dus", resourceType(), resourceId, waits,
+                    waitNanos / 1_000 );
+        }
+    }
+
+    private class ContentionSketch
+    {
+        private final int[] typeIds;
+        private final long[] resourceIds;
+        private final long[] waits;
+        private final long[] waitNanos;
+        private int size;
+
+        ContentionSketch( int capacity )
+        {
+            this.typeIds = new int[capacity];
+            this.resourceIds = new long[capacity];
+            this.waits = new long[capacity];
+            this.waitNanos = new long[capacity];
+        }
+
+        synchronized void waited( int typeId, long resourceId, long nanos )
+        {
+            int min = 0;
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( resourceIds[i] == resourceId && typeIds[i] == typeId )
+                {
+                    waits[i]++;
+                    waitNanos[i] += nanos;
+                    return;
+                }
+                if ( waits[i] < waits[min] )
+                {
+                    min = i;
+                }
+            }
+
+            if ( size < typeIds.length )
+            {
+                min = size++;
+            }
+            typeIds[min] = typeId;
+            resourceIds[min] = resourceId;
+            waits[min]++;
+            waitNanos[min] = nanos;
+        }
+
+        synchronized void snapshotInto( List<ContendedResource> resources )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                resources.add( new ContendedResource( typeIds[i], resourceIds[i], waits[i], waitNanos[i] ) );
+            }
+        }
+    }
+}
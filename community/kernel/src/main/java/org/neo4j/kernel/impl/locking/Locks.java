@@ -52,6 +52,43 @@ public interface Locks extends Lifecycle
         }
 
         public abstract Locks newInstance( ResourceType[] resourceTypes );
+
+        /**
+         * Creates a lock manager which tells the given monitor about contention. Implementations which do not report
+         * contention can leave this alone, in which case the monitor is never called.
+         */
+        public Locks newInstance( ResourceType[] resourceTypes, Monitor monitor )
+        {
+            return newInstance( resourceTypes );
+        }
+    }
+
+    /**
+     * Notified about contention. Implementations only call this once a client has actually had to wait, so that taking
+     * a free lock never pays for the monitoring.
+     */
+    public interface Monitor
+    {
+        /** A client waited for a lock, whether it then got the lock or gave up, e.g. on a deadlock. */
+        void lockWaited( ResourceType resourceType, long resourceId, long waitNanos );
+
+        /** A client was denied a lock, since waiting for it would have deadlocked. */
+        void deadlockDetected( ResourceType resourceType, long resourceId );
+
+        public class Adapter implements Monitor
+        {
+            @Override
+            public void lockWaited( ResourceType resourceType, long resourceId, long waitNanos )
+            {
+            }
+
+            @Override
+            public void deadlockDetected( ResourceType resourceType, long resourceId )
+            {
+            }
+        }
+
+        public static final Monitor NONE = new Adapter();
     }
 
     /** For introspection and debugging. */
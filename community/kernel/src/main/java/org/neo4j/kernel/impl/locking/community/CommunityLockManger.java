@@ -24,7 +24,17 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
 public class CommunityLockManger extends LifecycleAdapter implements Locks
 {
-    private final LockManagerImpl manager = new LockManagerImpl( new RagManager() );
+    private final LockManagerImpl manager;
+
+    public CommunityLockManger()
+    {
+        this( Monitor.NONE );
+    }
+
+    public CommunityLockManger( Monitor monitor )
+    {
+        this.manager = new LockManagerImpl( new RagManager(), monitor );
+    }
 
     @Override
     public Client newClient()
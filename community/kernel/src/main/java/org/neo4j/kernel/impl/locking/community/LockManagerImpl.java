@@ -25,6 +25,7 @@ import java.util.Map;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.DeadlockDetectedException;
 import org.neo4j.kernel.impl.locking.LockManager;
+import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.transaction.IllegalResourceException;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.logging.Logging;
@@ -33,10 +34,17 @@ public class LockManagerImpl implements LockManager
 {
     private final Map<Object,RWLock> resourceLockMap = new HashMap<>();
     private final RagManager ragManager;
+    private final Locks.Monitor monitor;
 
     public LockManagerImpl( RagManager ragManager )
+    {
+        this( ragManager, Locks.Monitor.NONE );
+    }
+
+    public LockManagerImpl( RagManager ragManager, Locks.Monitor monitor )
     {
         this.ragManager = ragManager;
+        this.monitor = monitor;
     }
 
     @Override
@@ -141,7 +149,7 @@ public class LockManagerImpl implements LockManager
             RWLock lock = resourceLockMap.get( resource );
             if ( lock == null )
             {
-                lock = new RWLock( resource, ragManager );
+                lock = new RWLock( resource, ragManager, monitor );
                 resourceLockMap.put( resource, lock );
             }
             lock.mark();
@@ -26,6 +26,7 @@ import java.util.ListIterator;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.DeadlockDetectedException;
 import org.neo4j.kernel.impl.locking.LockType;
+import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.ArrayMap;
 import org.neo4j.kernel.impl.util.StringLogger.LineLogger;
 
@@ -67,6 +68,7 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
     private final LinkedList<WaitElement> waitingThreadList = new LinkedList<>();
     private final ArrayMap<Object,TxLockElement> txLockElementMap = new ArrayMap<>( (byte)5, false, true );
     private final RagManager ragManager;
+    private final Locks.Monitor monitor;
 
     // access to these is guarded by synchronized blocks
     private int totalReadCount;
@@ -74,9 +76,15 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
     private int marked; // synch helper in LockManager
 
     RWLock( Object resource, RagManager ragManager )
+    {
+        this( resource, ragManager, Locks.Monitor.NONE );
+    }
+
+    RWLock( Object resource, RagManager ragManager, Locks.Monitor monitor )
     {
         this.resource = resource;
         this.ragManager = ragManager;
+        this.monitor = monitor;
     }
 
     // keeps track of a transactions read and write lock count on this RWLock
@@ -146,6 +154,8 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
     synchronized void acquireReadLock( Object tx ) throws DeadlockDetectedException
     {
         TxLockElement tle = getOrCreateLockElement( tx );
+        boolean waited = false;
+        long waitStartNanos = 0;
 
         try
         {
@@ -156,6 +166,11 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
 
             while ( totalWriteCount > tle.writeCount )
             {
+                if ( !waited )
+                {
+                    waited = true;
+                    waitStartNanos = System.nanoTime();
+                }
                 ragManager.checkWaitOn( this, tx );
 
                 if (shouldAddWait)
@@ -179,11 +194,38 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
 
             registerReadLockAcquired( tx, tle );
         }
+        catch ( DeadlockDetectedException e )
+        {
+            deadlockDetected();
+            throw e;
+        }
         finally
         {
             // if deadlocked, remove marking so lock is removed when empty
             tle.movedOn = true;
             marked--;
+            if ( waited )
+            {
+                lockWaited( waitStartNanos );
+            }
+        }
+    }
+
+    private void lockWaited( long waitStartNanos )
+    {
+        if ( resource instanceof LockResource )
+        {
+            LockResource lockResource = (LockResource) resource;
+            monitor.lockWaited( lockResource.type(), lockResource.resourceId(), System.nanoTime() - waitStartNanos );
+        }
+    }
+
+    private void deadlockDetected()
+    {
+        if ( resource instanceof LockResource )
+        {
+            LockResource lockResource = (LockResource) resource;
+            monitor.deadlockDetected( lockResource.type(), lockResource.resourceId() );
         }
     }
 
@@ -331,6 +373,8 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
     synchronized void acquireWriteLock( Object tx ) throws DeadlockDetectedException
     {
         TxLockElement tle = getOrCreateLockElement( tx );
+        boolean waited = false;
+        long waitStartNanos = 0;
 
         try
         {
@@ -341,6 +385,11 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
 
             while ( totalWriteCount > tle.writeCount || totalReadCount > tle.readCount )
             {
+                if ( !waited )
+                {
+                    waited = true;
+                    waitStartNanos = System.nanoTime();
+                }
                 ragManager.checkWaitOn( this, tx );
 
                 if (shouldAddWait)
@@ -364,11 +413,20 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
 
             registerWriteLockAcquired( tx, tle );
         }
+        catch ( DeadlockDetectedException e )
+        {
+            deadlockDetected();
+            throw e;
+        }
         finally
         {
             // if deadlocked, remove marking so lock is removed when empty
             tle.movedOn = true;
             marked--;
+            if ( waited )
+            {
+                lockWaited( waitStartNanos );
+            }
         }
     }
 
@@ -0,0 +1,634 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking.dreadlocks;
+
+import java.util.Arrays;
+
+import org.neo4j.collection.pool.Pool;
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.collection.primitive.PrimitiveLongVisitor;
+import org.neo4j.kernel.DeadlockDetectedException;
+import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.util.collection.StripedLongObjectMap;
+import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
+
+import static java.lang.String.format;
+
+/**
+ * Takes and releases locks in the global lock maps of a {@link DreadlocksLockManager} on behalf of one transaction.
+ *
+ * Like the Forseti client in enterprise, this client counts re-entrant locks locally, and only goes to the global
+ * {@link ResourceLock} the first time a lock is taken and the last time it is released. A shared lock taken while
+ * holding the exclusive lock on the same resource is also registered globally, which means that releasing either of
+ * them never has to re-instate the other.
+ *
+ * <h2>Deadlock detection</h2>
+ *
+ * Deadlocks are detected with the "dreadlocks" scheme: while waiting, a client publishes a digest, the set of ids of
+ * itself and of all clients that it waits for, directly or transitively. It builds it from its own id and the digests
+ * of the clients holding the lock it waits for, and a client not waiting for anything publishes only its own id.
+ * Finding its own id in the digest of a client it waits for is then an O(1) bit check, and means that the two wait
+ * for each other. Since digests are copied from one client to another they may be stale, so the deadlock is only
+ * reported once the same holder has gone another round of waiting and its digest still contains this client. The
+ * digest is built anew every round of waiting, but only published as a new array when it differs from the one already
+ * published, and the rounds are counted apart from it.
+ */
+public class DreadlocksClient implements Locks.Client
+{
+    /**
+     * Capacity of the maps of locally held locks. Kept small, since most transactions only take a few locks of each
+     * resource type, and visiting or clearing one of these maps costs as much as its capacity.
+     */
+    private static final int LOCAL_LOCKS_CAPACITY = 32;
+
+    private final int myId;
+
+    /** resourceType -> global lock map, shared by all clients. */
+    private final StripedLongObjectMap<ResourceLock>[] lockMaps;
+
+    /** resourceType -> wait strategy */
+    private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+
+    /** Handle to return this client to the pool when closed. */
+    private final Pool<DreadlocksClient> clientPool;
+
+    /** Told about waits and deadlocks, never called on the uncontended path. */
+    private final Locks.Monitor monitor;
+
+    /** resourceType -> ( resourceId -> number of times this client holds the lock ) */
+    private final PrimitiveLongIntMap[] sharedLockCounts;
+
+    /** @see #sharedLockCounts */
+    private final PrimitiveLongIntMap[] exclusiveLockCounts;
+
+    /** The digest of a client which isn't waiting for anyone. */
+    private final long[] ownDigest;
+
+    /** Read by other clients while they wait for locks held by this client, never modified once published. */
+    private volatile long[] waitDigest;
+
+    /** Number of rounds this client has waited for locks, counted up after publishing the digest of each round. */
+    private volatile int waitRounds;
+
+    /** Builds the next digest of this client from those of the holders it waits for. */
+    private final DigestBuilder digestBuilder = new DigestBuilder();
+
+    /** A holder whose digest contained this client, and the round of waiting of the holder it was seen in. */
+    private DreadlocksClient deadlockSuspect;
+    private int deadlockSuspectRound;
+
+    /** When this client started waiting for the lock it is currently waiting for. */
+    private long waitStartNanos;
+
+    public DreadlocksClient( int id, StripedLongObjectMap<ResourceLock>[] lockMaps,
+            WaitStrategy<AcquireLockTimeoutException>[] waitStrategies, Pool<DreadlocksClient> clientPool,
+            Locks.Monitor monitor )
+    {
+        this.myId = id;
+        this.lockMaps = lockMaps;
+        this.waitStrategies = waitStrategies;
+        this.clientPool = clientPool;
+        this.monitor = monitor;
+        this.sharedLockCounts = new PrimitiveLongIntMap[lockMaps.length];
+        this.exclusiveLockCounts = new PrimitiveLongIntMap[lockMaps.length];
+        for ( int i = 0; i < lockMaps.length; i++ )
+        {
+            sharedLockCounts[i] = Primitive.longIntMap( LOCAL_LOCKS_CAPACITY );
+            exclusiveLockCounts[i] = Primitive.longIntMap( LOCAL_LOCKS_CAPACITY );
+        }
+        this.ownDigest = new long[(id >>> 6) + 1];
+        this.ownDigest[id >>> 6] = 1L << id;
+        this.waitDigest = ownDigest;
+    }
+
+    @Override
+    public void acquireShared( Locks.ResourceType resourceType, long... resourceIds )
+            throws AcquireLockTimeoutException
+    {
+        StripedLongObjectMap<ResourceLock> lockMap = lockMaps[resourceType.typeId()];
+        PrimitiveLongIntMap heldLocks = sharedLockCounts[resourceType.typeId()];
+
+        for ( long resourceId : resourceIds )
+        {
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                heldLocks.put( resourceId, heldCount + 1 );
+                continue;
+            }
+
+            ResourceLock myLock = null;
+            int tries = 0;
+            try
+            {
+                while ( true )
+                {
+                    ResourceLock lock = lockMap.get( resourceId );
+                    if ( lock == null )
+                    {
+                        if ( myLock == null )
+                        {
+                            myLock = ResourceLock.sharedBy( this );
+                        }
+                        if ( (lock = lockMap.putIfAbsent( resourceId, myLock )) == null )
+                        {
+                            break;
+                        }
+                    }
+
+                    ResourceLock.Outcome outcome = lock.acquireShared( this );
+                    if ( outcome == ResourceLock.Outcome.ACQUIRED )
+                    {
+                        break;
+                    }
+                    awaitRelease( outcome == ResourceLock.Outcome.DEAD ? null : lock, false, resourceType, resourceId,
+                            tries++ );
+                }
+            }
+            finally
+            {
+                stopWaiting( resourceType, resourceId, tries );
+            }
+            heldLocks.put( resourceId, 1 );
+        }
+    }
+
+    @Override
+    public void acquireExclusive( Locks.ResourceType resourceType, long... resourceIds )
+            throws AcquireLockTimeoutException
+    {
+        StripedLongObjectMap<ResourceLock> lockMap = lockMaps[resourceType.typeId()];
+        PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
+
+        for ( long resourceId : resourceIds )
+        {
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                heldLocks.put( resourceId, heldCount + 1 );
+                continue;
+            }
+
+            ResourceLock myLock = null;
+            int tries = 0;
+            try
+            {
+                // First become the owner of the lock, which keeps any new clients from sharing it
+                ResourceLock lock;
+                while ( true )
+                {
+                    lock = lockMap.get( resourceId );
+                    if ( lock == null )
+                    {
+                        if ( myLock == null )
+                        {
+                            myLock = ResourceLock.ownedBy( this );
+                        }
+                        if ( (lock = lockMap.putIfAbsent( resourceId, myLock )) == null )
+                        {
+                            lock = myLock;
+                            break;
+                        }
+                    }
+
+                    ResourceLock.Outcome outcome = lock.acquireOwnership( this );
+                    if ( outcome == ResourceLock.Outcome.ACQUIRED )
+                    {
+                        break;
+                    }
+                    awaitRelease( outcome == ResourceLock.Outcome.DEAD ? null : lock, true, resourceType, resourceId,
+                            tries++ );
+                }
+
+                // Then wait for the clients already sharing it to let go of it
+                try
+                {
+                    boolean sharing = sharedLockCounts[resourceType.typeId()].get( resourceId ) != -1;
+                    while ( lock.isSharedByOtherThan( this, sharing ) )
+                    {
+                        awaitRelease( lock, true, resourceType, resourceId, tries++ );
+                    }
+                }
+                catch ( RuntimeException e )
+                {
+                    releaseGlobalLock( lockMap, resourceId, true, false );
+                    throw e;
+                }
+            }
+            finally
+            {
+                stopWaiting( resourceType, resourceId, tries );
+            }
+            heldLocks.put( resourceId, 1 );
+        }
+    }
+
+    @Override
+    public boolean tryExclusiveLock( Locks.ResourceType resourceType, long... resourceIds )
+    {
+        StripedLongObjectMap<ResourceLock> lockMap = lockMaps[resourceType.typeId()];
+        PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
+
+        for ( long resourceId : resourceIds )
+        {
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                heldLocks.put( resourceId, heldCount + 1 );
+                continue;
+            }
+
+            // A dead lock is about to be removed from the map, so keep looking until there is a live one, or none
+            boolean sharing = sharedLockCounts[resourceType.typeId()].get( resourceId ) != -1;
+            ResourceLock.Outcome outcome = ResourceLock.Outcome.DEAD;
+            while ( outcome == ResourceLock.Outcome.DEAD )
+            {
+                ResourceLock lock = lockMap.get( resourceId );
+                if ( lock == null )
+                {
+                    outcome = lockMap.putIfAbsent( resourceId, ResourceLock.ownedBy( this ) ) == null
+                              ? ResourceLock.Outcome.ACQUIRED : ResourceLock.Outcome.DEAD;
+                }
+                else
+                {
+                    outcome = lock.tryAcquireExclusive( this, sharing );
+                }
+            }
+            if ( outcome != ResourceLock.Outcome.ACQUIRED )
+            {
+                return false;
+            }
+            heldLocks.put( resourceId, 1 );
+        }
+        return true;
+    }
+
+    @Override
+    public boolean trySharedLock( Locks.ResourceType resourceType, long... resourceIds )
+    {
+        StripedLongObjectMap<ResourceLock> lockMap = lockMaps[resourceType.typeId()];
+        PrimitiveLongIntMap heldLocks = sharedLockCounts[resourceType.typeId()];
+
+        for ( long resourceId : resourceIds )
+        {
+            int heldCount = heldLocks.get( resourceId );
+            if ( heldCount != -1 )
+            {
+                heldLocks.put( resourceId, heldCount + 1 );
+                continue;
+            }
+
+            ResourceLock.Outcome outcome = ResourceLock.Outcome.DEAD;
+            while ( outcome == ResourceLock.Outcome.DEAD )
+            {
+                ResourceLock lock = lockMap.get( resourceId );
+                if ( lock == null )
+                {
+                    outcome = lockMap.putIfAbsent( resourceId, ResourceLock.sharedBy( this ) ) == null
+                              ? ResourceLock.Outcome.ACQUIRED : ResourceLock.Outcome.DEAD;
+                }
+                else
+                {
+                    outcome = lock.acquireShared( this );
+                }
+            }
+            if ( outcome != ResourceLock.Outcome.ACQUIRED )
+            {
+                return false;
+            }
+            heldLocks.put( resourceId, 1 );
+        }
+        return true;
+    }
+
+    @Override
+    public void releaseShared( Locks.ResourceType resourceType, long... resourceIds )
+    {
+        for ( long resourceId : resourceIds )
+        {
+            if ( !releaseLocalLock( resourceType, resourceId, sharedLockCounts[resourceType.typeId()] ) )
+            {
+                releaseGlobalLock( lockMaps[resourceType.typeId()], resourceId, false, true );
+            }
+        }
+    }
+
+    @Override
+    public void releaseExclusive( Locks.ResourceType resourceType, long... resourceIds )
+    {
+        for ( long resourceId : resourceIds )
+        {
+            if ( !releaseLocalLock( resourceType, resourceId, exclusiveLockCounts[resourceType.typeId()] ) )
+            {
+                releaseGlobalLock( lockMaps[resourceType.typeId()], resourceId, true, false );
+            }
+        }
+    }
+
+    @Override
+    public void releaseAllShared()
+    {
+        for ( int i = 0; i < sharedLockCounts.length; i++ )
+        {
+            sharedLockCounts[i] = releaseGlobalLocks( sharedLockCounts[i], lockMaps[i], false, null );
+        }
+    }
+
+    @Override
+    public void releaseAllExclusive()
+    {
+        for ( int i = 0; i < exclusiveLockCounts.length; i++ )
+        {
+            exclusiveLockCounts[i] = releaseGlobalLocks( exclusiveLockCounts[i], lockMaps[i], true, null );
+        }
+    }
+
+    @Override
+    public void releaseAll()
+    {
+        for ( int i = 0; i < exclusiveLockCounts.length; i++ )
+        {
+            // Resources held both ways are released in one go, and then dropped from the shared locks
+            exclusiveLockCounts[i] = releaseGlobalLocks( exclusiveLockCounts[i], lockMaps[i], true,
+                    sharedLockCounts[i] );
+            sharedLockCounts[i] = releaseGlobalLocks( sharedLockCounts[i], lockMaps[i], false, null );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        releaseAll();
+        clientPool.release( this );
+    }
+
+    @Override
+    public int getLockSessionId()
+    {
+        return myId;
+    }
+
+    public int id()
+    {
+        return myId;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "DreadlocksClient[%d]", myId );
+    }
+
+    /**
+     * Waits one round, per the wait strategy of the resource type, for the holders of the given lock, after first
+     * publishing the digest of this client and checking it for deadlocks.
+     *
+     * @param lock the lock waited for, or {@code null} if it was dead and is to be looked up again.
+     * @param includeSharers whether this client waits for all holders of the lock, or only for its owner.
+     */
+    private void awaitRelease( ResourceLock lock, boolean includeSharers, Locks.ResourceType resourceType,
+            long resourceId, int tries ) throws AcquireLockTimeoutException
+    {
+        if ( tries == 0 )
+        {
+            waitStartNanos = System.nanoTime();
+        }
+        if ( lock != null )
+        {
+            lock.visitHoldersOtherThan( this, includeSharers,
+                    digestBuilder.initialize( lock, resourceType, resourceId ) );
+            if ( !digestBuilder.suspectSeen )
+            {
+                deadlockSuspect = null;
+            }
+            digestBuilder.publish();
+        }
+        waitStrategies[resourceType.typeId()].apply( tries );
+    }
+
+    /**
+     * Suspects the holder of a deadlock if its digest contains this client, unless another holder is already suspected.
+     * Throws {@link DeadlockDetectedException} if the holder was suspected in an earlier round of its own already.
+     *
+     * @return whether the holder is the one suspected, so that a suspect which no longer holds the lock, or whose
+     * digest no longer contains this client, is let go of after the round and another holder can be suspected.
+     */
+    private boolean checkForDeadlock( DreadlocksClient holder, int holderRound, long[] holderDigest,
+            ResourceLock blocking, Locks.ResourceType resourceType, long resourceId )
+    {
+        if ( !contains( holderDigest, myId ) )
+        {
+            return false;
+        }
+        if ( holder == deadlockSuspect )
+        {
+            if ( holderRound != deadlockSuspectRound )
+            {
+                monitor.deadlockDetected( resourceType, resourceId );
+                throw new DeadlockDetectedException( format(
+                        "%s can't acquire lock on %s(%d), because %s holding %s is waiting for %s.",
+                        this, resourceType, resourceId, holder, blocking, this ) );
+            }
+        }
+        else if ( deadlockSuspect == null )
+        {
+            deadlockSuspect = holder;
+            deadlockSuspectRound = holderRound;
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    /** Stops waiting for a lock, whether it was taken or not, after waiting the given number of rounds. */
+    private void stopWaiting( Locks.ResourceType resourceType, long resourceId, int tries )
+    {
+        if ( tries > 0 )
+        {
+            waitDigest = ownDigest;
+            deadlockSuspect = null;
+            monitor.lockWaited( resourceType, resourceId, System.nanoTime() - waitStartNanos );
+        }
+    }
+
+    private static boolean contains( long[] digest, int clientId )
+    {
+        int word = clientId >>> 6;
+        return word < digest.length && (digest[word] & (1L << clientId)) != 0;
+    }
+
+
+    /** @return {@code true} if this client still holds the lock after releasing it once. */
+    private boolean releaseLocalLock( Locks.ResourceType type, long resourceId, PrimitiveLongIntMap localLocks )
+    {
+        int lockCount = localLocks.remove( resourceId );
+        if ( lockCount == -1 )
+        {
+            throw new IllegalStateException( this + " cannot release lock that it does not hold: " +
+                    type + "[" + resourceId + "]." );
+        }
+        if ( lockCount > 1 )
+        {
+            localLocks.put( resourceId, lockCount - 1 );
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseGlobalLock( StripedLongObjectMap<ResourceLock> lockMap, long resourceId,
+            boolean exclusive, boolean shared )
+    {
+        if ( lockMap.get( resourceId ).release( this, exclusive, shared ) )
+        {
+            lockMap.remove( resourceId );
+        }
+    }
+
+    /**
+     * Releases all the given locks globally.
+     *
+     * @return the emptied map of local locks to use from now on.
+     */
+    private PrimitiveLongIntMap releaseGlobalLocks( PrimitiveLongIntMap localLocks,
+            StripedLongObjectMap<ResourceLock> lockMap, boolean exclusive, PrimitiveLongIntMap alsoShared )
+    {
+        // Most transactions only lock a few of the resource types
+        int size = localLocks.size();
+        if ( size == 0 )
+        {
+            return localLocks;
+        }
+        localLocks.visitKeys( releaser.initialize( lockMap, exclusive, alsoShared ) );
+
+        // Maps that have grown are replaced, so that clients don't hold on to giant maps over time
+        if ( size <= LOCAL_LOCKS_CAPACITY / 2 )
+        {
+            localLocks.clear();
+            return localLocks;
+        }
+        return Primitive.longIntMap( LOCAL_LOCKS_CAPACITY );
+    }
+
+    private final GlobalLockReleaser releaser = new GlobalLockReleaser();
+
+    /**
+     * Adds up the digests of the holders of a lock, and those of this client, into a buffer which is re-used from one
+     * round of waiting to the next.
+     */
+    private class DigestBuilder implements ResourceLock.HolderVisitor
+    {
+        private long[] digest = new long[0];
+        private int length;
+        private ResourceLock lock;
+        private Locks.ResourceType resourceType;
+        private long resourceId;
+        private boolean suspectSeen;
+
+        private DigestBuilder initialize( ResourceLock lock, Locks.ResourceType resourceType, long resourceId )
+        {
+            this.lock = lock;
+            this.resourceType = resourceType;
+            this.resourceId = resourceId;
+            this.suspectSeen = false;
+            if ( ownDigest.length > digest.length )
+            {
+                digest = new long[ownDigest.length];
+            }
+            Arrays.fill( digest, 0 );
+            System.arraycopy( ownDigest, 0, digest, 0, ownDigest.length );
+            length = ownDigest.length;
+            return this;
+        }
+
+        @Override
+        public void visit( DreadlocksClient holder )
+        {
+            // The round is read first, so that the digest is at least as recent as the round
+            int holderRound = holder.waitRounds;
+            long[] holderDigest = holder.waitDigest;
+            if ( holderDigest.length > digest.length )
+            {
+                digest = Arrays.copyOf( digest, holderDigest.length );
+            }
+            for ( int i = 0; i < holderDigest.length; i++ )
+            {
+                digest[i] |= holderDigest[i];
+            }
+            length = Math.max( length, holderDigest.length );
+            suspectSeen |= checkForDeadlock( holder, holderRound, holderDigest, lock, resourceType, resourceId );
+        }
+
+        /** Publishes the digest built, unless the one already published is the same, and counts the round. */
+        private void publish()
+        {
+            long[] published = waitDigest;
+            if ( published.length != length || !equalPrefix( published, digest, length ) )
+            {
+                waitDigest = Arrays.copyOf( digest, length );
+            }
+            waitRounds++;
+            lock = null;
+        }
+
+        private boolean equalPrefix( long[] first, long[] second, int length )
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                if ( first[i] != second[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class GlobalLockReleaser implements PrimitiveLongVisitor<RuntimeException>
+    {
+        private StripedLongObjectMap<ResourceLock> lockMap;
+        private boolean exclusive;
+        private PrimitiveLongIntMap alsoShared;
+
+        /**
+         * @param alsoShared if not {@code null}, releases the shared locks in it for any exclusive locks released, and
+         * drops them from it.
+         */
+        private GlobalLockReleaser initialize( StripedLongObjectMap<ResourceLock> lockMap, boolean exclusive,
+                PrimitiveLongIntMap alsoShared )
+        {
+            this.lockMap = lockMap;
+            this.exclusive = exclusive;
+            this.alsoShared = alsoShared;
+            return this;
+        }
+
+        @Override
+        public boolean visited( long resourceId )
+        {
+            boolean shared = !exclusive || (alsoShared != null && alsoShared.remove( resourceId ) != -1);
+            releaseGlobalLock( lockMap, resourceId, exclusive, shared );
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking.dreadlocks;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.collection.pool.LinkedQueuePool;
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.util.collection.StripedLongObjectMap;
+import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+/**
+ * A lock manager which takes and releases locks without any monitors or other blocking synchronization, as an
+ * alternative to the community lock manager, where all clients synchronize on one global lock map. It is only used
+ * when configured with {@code lock_manager=dreadlocks}; the community lock manager stays the default.
+ *
+ * Every resource type has its own {@link StripedLongObjectMap} from resource id to a {@link ResourceLock}, which
+ * is only there for as long as someone holds the lock. Clients take and release the locks by compare-and-set on the
+ * state of the lock, see {@link ResourceLock}, and wait for each other per the {@link WaitStrategy} of the resource
+ * type. Deadlocks are detected with wait digests, see {@link DreadlocksClient}.
+ *
+ * Clients are pooled, and their ids are re-used, since the ids are bits in the wait digests.
+ */
+public class DreadlocksLockManager extends LifecycleAdapter implements Locks
+{
+    /** resourceType -> lock map */
+    private final StripedLongObjectMap<ResourceLock>[] lockMaps;
+
+    /** Reverse lookup of resource types by id, used for introspection. */
+    private final ResourceType[] resourceTypes;
+
+    private final DreadlocksClientPool clientPool;
+
+    public DreadlocksLockManager( ResourceType... resourceTypes )
+    {
+        this( Monitor.NONE, resourceTypes );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public DreadlocksLockManager( Monitor monitor, ResourceType... resourceTypes )
+    {
+        int maxTypeId = 0;
+        for ( ResourceType type : resourceTypes )
+        {
+            maxTypeId = Math.max( type.typeId(), maxTypeId );
+        }
+        this.lockMaps = new StripedLongObjectMap[maxTypeId + 1];
+        this.resourceTypes = new ResourceType[maxTypeId + 1];
+        WaitStrategy<AcquireLockTimeoutException>[] waitStrategies = new WaitStrategy[maxTypeId + 1];
+        for ( ResourceType type : resourceTypes )
+        {
+            this.lockMaps[type.typeId()] = new StripedLongObjectMap<>();
+            this.resourceTypes[type.typeId()] = type;
+            waitStrategies[type.typeId()] = type.waitStrategy();
+        }
+        this.clientPool = new DreadlocksClientPool( lockMaps, waitStrategies, monitor );
+    }
+
+    @Override
+    public Client newClient()
+    {
+        return clientPool.acquire();
+    }
+
+    @Override
+    public void accept( final Visitor visitor )
+    {
+        for ( int i = 0; i < lockMaps.length; i++ )
+        {
+            if ( lockMaps[i] != null )
+            {
+                final ResourceType type = resourceTypes[i];
+                lockMaps[i].visitEntries( new PrimitiveLongObjectVisitor<ResourceLock,RuntimeException>()
+                {
+                    @Override
+                    public boolean visited( long resourceId, ResourceLock lock )
+                    {
+                        visitor.visit( type, resourceId, lock.toString(), 0 );
+                        return false;
+                    }
+                } );
+            }
+        }
+    }
+
+    private static class DreadlocksClientPool extends LinkedQueuePool<DreadlocksClient>
+    {
+        private final AtomicInteger clientIds = new AtomicInteger();
+
+        /** Ids of disposed clients, re-used to keep the wait digests small. */
+        private final Queue<Integer> unusedIds = new ConcurrentLinkedQueue<>();
+        private final StripedLongObjectMap<ResourceLock>[] lockMaps;
+        private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+        private final Locks.Monitor monitor;
+
+        DreadlocksClientPool( StripedLongObjectMap<ResourceLock>[] lockMaps,
+                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies, Locks.Monitor monitor )
+        {
+            super( 128, null );
+            this.lockMaps = lockMaps;
+            this.waitStrategies = waitStrategies;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected DreadlocksClient create()
+        {
+            Integer id = unusedIds.poll();
+            return new DreadlocksClient( id != null ? id : clientIds.getAndIncrement(), lockMaps, waitStrategies,
+                    this, monitor );
+        }
+
+        @Override
+        protected void dispose( DreadlocksClient client )
+        {
+            super.dispose( client );
+            unusedIds.offer( client.id() );
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking.dreadlocks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The global lock on one resource, shared by all clients of a {@link DreadlocksLockManager}.
+ *
+ * Who holds the lock is counted in one long, which is updated with a compare-and-set, so that no client ever blocks
+ * on a monitor to take or release a lock. It holds the id of the exclusive owner, if any, and the number of clients
+ * sharing the lock. A client may both own and share the same lock, which only the client itself keeps track of.
+ *
+ * Taking an exclusive lock happens in two steps: first the client makes itself the owner, which keeps new clients from
+ * sharing the lock, and then it waits until it is the only one left sharing it, if anyone. This way a steady stream of
+ * clients sharing the lock cannot starve one that wants it exclusively.
+ *
+ * The clients sharing the lock are only needed by clients waiting for them, to detect deadlocks, so they are kept
+ * apart from the count, the same way as in the shared locks of Forseti: in small arrays of slots to begin with, and
+ * once those fill up, in an array with one slot per client id, so that taking and releasing a lock which is shared by
+ * many, like the schema lock, costs the same as any other lock and only touches the slot of the client itself.
+ *
+ * When the last holder lets go of the lock, the lock is marked dead, after which it can never be taken again, and the
+ * releasing client removes it from the lock map. Clients that come across a dead lock must simply look it up again,
+ * until there is a live one in its place.
+ */
+class ResourceLock
+{
+    /** What came of an attempt to take a lock. */
+    enum Outcome
+    {
+        ACQUIRED,
+        /** Some other client holds the lock, so that it could not be taken. */
+        BLOCKED,
+        /** The lock was let go of by all its holders, and must be looked up again. */
+        DEAD
+    }
+
+    /** Visits the holders of a lock. */
+    interface HolderVisitor
+    {
+        void visit( DreadlocksClient holder );
+    }
+
+    private static final long DEAD = -1;
+    private static final int OWNER_SHIFT = 32;
+    private static final long SHARERS_MASK = (1L << OWNER_SHIFT) - 1;
+
+    /** Number of slots in the thin sharer arrays, which grow by this factor, one array after the other. */
+    private static final int THIN_SHARERS = 8;
+
+    /**
+     * Number of slots in the fat sharer array, which is indexed by client id. Matches the client ids that the lock
+     * manager re-uses, so that clients practically always fit.
+     */
+    private static final int FAT_SHARERS = 1024;
+
+    /** Index of the fat sharer array in {@link #sharers}, after the thin sharer arrays. */
+    private static final int FAT = 4;
+
+    /** The id of the owner plus one in the high bits, zero if none, and the number of sharers in the low bits. */
+    private final AtomicLong state;
+
+    /** The client whose id is in {@link #state}, set right after it becomes the owner and cleared right before. */
+    private volatile DreadlocksClient owner;
+
+    /** Clients sharing this lock, in thin arrays of 8, 64, 512 and 4096 slots, and then one with a slot per id. */
+    private final AtomicReferenceArray<DreadlocksClient>[] sharers = new AtomicReferenceArray[FAT + 1];
+
+    private ResourceLock( long initialState )
+    {
+        this.state = new AtomicLong( initialState );
+    }
+
+    static ResourceLock ownedBy( DreadlocksClient client )
+    {
+        ResourceLock lock = new ResourceLock( ownerBits( client ) );
+        lock.owner = client;
+        return lock;
+    }
+
+    static ResourceLock sharedBy( DreadlocksClient client )
+    {
+        ResourceLock lock = new ResourceLock( 1 );
+        lock.addSharer( client );
+        return lock;
+    }
+
+    /**
+     * Adds the client to the clients sharing this lock, unless another client owns it.
+     */
+    Outcome acquireShared( DreadlocksClient client )
+    {
+        long ownBits = ownerBits( client );
+        while ( true )
+        {
+            long current = state.get();
+            if ( current == DEAD )
+            {
+                return Outcome.DEAD;
+            }
+            long ownerBits = current & ~SHARERS_MASK;
+            if ( ownerBits != 0 && ownerBits != ownBits )
+            {
+                return Outcome.BLOCKED;
+            }
+            if ( state.compareAndSet( current, current + 1 ) )
+            {
+                addSharer( client );
+                return Outcome.ACQUIRED;
+            }
+        }
+    }
+
+    /**
+     * Makes the client the owner of this lock, unless another client owns it. The client must then wait for
+     * {@link #isSharedByOtherThan(DreadlocksClient, boolean)} to become {@code false} before it holds the lock
+     * exclusively.
+     */
+    Outcome acquireOwnership( DreadlocksClient client )
+    {
+        while ( true )
+        {
+            long current = state.get();
+            if ( current == DEAD )
+            {
+                return Outcome.DEAD;
+            }
+            if ( (current & ~SHARERS_MASK) != 0 )
+            {
+                return Outcome.BLOCKED;
+            }
+            if ( state.compareAndSet( current, current | ownerBits( client ) ) )
+            {
+                owner = client;
+                return Outcome.ACQUIRED;
+            }
+        }
+    }
+
+    /**
+     * Makes the client the owner of this lock, but only if nobody else holds it in any way.
+     *
+     * @param sharing whether the client itself shares this lock.
+     */
+    Outcome tryAcquireExclusive( DreadlocksClient client, boolean sharing )
+    {
+        long expected = sharing ? 1 : 0;
+        while ( true )
+        {
+            long current = state.get();
+            if ( current == DEAD )
+            {
+                return Outcome.DEAD;
+            }
+            if ( current != expected )
+            {
+                return Outcome.BLOCKED;
+            }
+            if ( state.compareAndSet( current, current | ownerBits( client ) ) )
+            {
+                owner = client;
+                return Outcome.ACQUIRED;
+            }
+        }
+    }
+
+    /**
+     * @param sharing whether the given owner of this lock also shares it.
+     * @return whether other clients than the given owner still share this lock.
+     */
+    boolean isSharedByOtherThan( DreadlocksClient owner, boolean sharing )
+    {
+        return (state.get() & SHARERS_MASK) > (sharing ? 1 : 0);
+    }
+
+    /**
+     * Visits the owner of this lock, unless it is the given client, and if asked to, also the clients sharing it. The
+     * holders are those at the time of visiting each of them, and holders may come and go while visiting.
+     */
+    void visitHoldersOtherThan( DreadlocksClient client, boolean includeSharers, HolderVisitor visitor )
+    {
+        DreadlocksClient currentOwner = owner;
+        if ( currentOwner != null && currentOwner != client )
+        {
+            visitor.visit( currentOwner );
+        }
+        if ( includeSharers )
+        {
+            for ( AtomicReferenceArray<DreadlocksClient> slots : sharers )
+            {
+                for ( int i = 0; slots != null && i < slots.length(); i++ )
+                {
+                    DreadlocksClient sharer = slots.get( i );
+                    if ( sharer != null && sharer != client )
+                    {
+                        visitor.visit( sharer );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets go of the ownership and/or share of this lock held by the given client.
+     *
+     * @return {@code true} if that was the last hold on this lock, which is now dead and must be removed from the lock
+     * map by the caller.
+     */
+    boolean release( DreadlocksClient client, boolean exclusive, boolean shared )
+    {
+        long ownBits = ownerBits( client );
+        if ( exclusive )
+        {
+            if ( (state.get() & ~SHARERS_MASK) != ownBits )
+            {
+                throw new IllegalStateException( client + " cannot release exclusive lock it does not own: " + this );
+            }
+            owner = null;
+        }
+        if ( shared )
+        {
+            removeSharer( client );
+        }
+        while ( true )
+        {
+            long current = state.get();
+            long next = current - (shared ? 1 : 0);
+            if ( exclusive )
+            {
+                next &= SHARERS_MASK;
+            }
+            if ( next == 0 )
+            {
+                next = DEAD;
+            }
+            if ( state.compareAndSet( current, next ) )
+            {
+                return next == DEAD;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        long current = state.get();
+        if ( current == DEAD )
+        {
+            return "ResourceLock[DEAD]";
+        }
+        final StringBuilder sharerList = new StringBuilder();
+        visitHoldersOtherThan( null, true, new HolderVisitor()
+        {
+            @Override
+            public void visit( DreadlocksClient holder )
+            {
+                sharerList.append( sharerList.length() == 0 ? "" : ", " ).append( holder );
+            }
+        } );
+        return "ResourceLock[owner=" + owner + ", sharerCount=" + (current & SHARERS_MASK) +
+               ", holders=[" + sharerList + "]]";
+    }
+
+    private static long ownerBits( DreadlocksClient client )
+    {
+        return (client.id() + 1L) << OWNER_SHIFT;
+    }
+
+    private void addSharer( DreadlocksClient client )
+    {
+        boolean fitsInFatSharers = client.id() < FAT_SHARERS;
+        while ( true )
+        {
+            AtomicReferenceArray<DreadlocksClient> fatSharers = sharers[FAT];
+            if ( fatSharers != null && fitsInFatSharers )
+            {
+                // No other client ever writes to our slot, so there's nothing to compete for
+                fatSharers.set( fatSlot( client ), client );
+                return;
+            }
+
+            for ( int i = 0; i < FAT; i++ )
+            {
+                AtomicReferenceArray<DreadlocksClient> slots = sharers[i];
+                if ( slots == null )
+                {
+                    slots = addThinSharers( i );
+                }
+                for ( int j = 0; j < slots.length(); j++ )
+                {
+                    if ( slots.get( j ) == null && slots.compareAndSet( j, null, client ) )
+                    {
+                        return;
+                    }
+                }
+                if ( i == 0 && fitsInFatSharers )
+                {
+                    // The first thin array is full, so inflate rather than looking for slots in the larger arrays
+                    addFatSharers().set( fatSlot( client ), client );
+                    return;
+                }
+            }
+        }
+    }
+
+    private void removeSharer( DreadlocksClient client )
+    {
+        AtomicReferenceArray<DreadlocksClient> fatSharers = sharers[FAT];
+        if ( fatSharers != null && client.id() < FAT_SHARERS &&
+             fatSharers.compareAndSet( fatSlot( client ), client, null ) )
+        {
+            return;
+        }
+        for ( int i = 0; i < FAT; i++ )
+        {
+            AtomicReferenceArray<DreadlocksClient> slots = sharers[i];
+            for ( int j = 0; slots != null && j < slots.length(); j++ )
+            {
+                if ( slots.get( j ) == client )
+                {
+                    slots.set( j, null );
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException( client + " cannot release shared lock it does not hold: " + this );
+    }
+
+    private synchronized AtomicReferenceArray<DreadlocksClient> addThinSharers( int index )
+    {
+        if ( sharers[index] == null )
+        {
+            sharers[index] = new AtomicReferenceArray<>( THIN_SHARERS << (3 * index) );
+        }
+        return sharers[index];
+    }
+
+    private synchronized AtomicReferenceArray<DreadlocksClient> addFatSharers()
+    {
+        if ( sharers[FAT] == null )
+        {
+            sharers[FAT] = new AtomicReferenceArray<>( FAT_SHARERS );
+        }
+        return sharers[FAT];
+    }
+
+    /**
+     * Slot of a client in the fat sharer array. Clients with consecutive ids would share cache lines if they were
+     * stored in id order, so the bits of the id are reversed to spread them out over the array.
+     */
+    private static int fatSlot( DreadlocksClient client )
+    {
+        return Integer.reverse( client.id() ) >>> (Integer.SIZE - Integer.numberOfTrailingZeros( FAT_SHARERS ));
+    }
+}
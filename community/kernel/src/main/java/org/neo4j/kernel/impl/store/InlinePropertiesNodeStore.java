@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.kernel.IdGeneratorFactory;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.store.record.Record;
+import org.neo4j.kernel.impl.util.StringLogger;
+import org.neo4j.kernel.monitoring.Monitors;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_EXCLUSIVE_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
+
+/**
+ * Node store where each node record also has room for the first property record of the node, in the same
+ * layout as in the {@link PropertyStore}. Properties of nodes with only a few short properties are then read
+ * from the page holding the node record, instead of from a page in the property store.
+ * <p>
+ * The property store still has the whole chain. The inlined record is a copy of the first record in it, written
+ * whenever that record is written, see {@link #updateInlinedPropertyRecord(PropertyRecord)}, and forgotten
+ * whenever the node stops pointing to it.
+ */
+public class InlinePropertiesNodeStore extends NodeStore
+{
+    public static final String TYPE_DESCRIPTOR = "InlinePropertiesNodeStore";
+
+    public static final long RECORD_FORMAT = 1;
+
+    // node record+inlined_prop_id(5)+inlined property record
+    public static final int RECORD_SIZE = NodeStore.RECORD_SIZE + 5 + PropertyStore.RECORD_SIZE;
+
+    public InlinePropertiesNodeStore(
+            File fileName,
+            Config config,
+            IdGeneratorFactory idGeneratorFactory,
+            PageCache pageCache,
+            FileSystemAbstraction fileSystemAbstraction,
+            StringLogger stringLogger,
+            DynamicArrayStore dynamicLabelStore,
+            StoreVersionMismatchHandler versionMismatchHandler,
+            Monitors monitors )
+    {
+        super( fileName, config, idGeneratorFactory, pageCache, fileSystemAbstraction, stringLogger,
+                dynamicLabelStore, versionMismatchHandler, monitors );
+    }
+
+    @Override
+    public String getTypeDescriptor()
+    {
+        return TYPE_DESCRIPTOR;
+    }
+
+    @Override
+    public int getRecordSize()
+    {
+        return RECORD_SIZE;
+    }
+
+    @Override
+    protected void writeRecord( PageCursor cursor, NodeRecord record, boolean force )
+    {
+        super.writeRecord( cursor, record, force );
+
+        int offset = offsetForId( record.getId() ) + NodeStore.RECORD_SIZE;
+        cursor.setOffset( offset );
+        long inlinedId = getInlinedId( cursor );
+        if ( inlinedId != Record.NO_NEXT_PROPERTY.intValue() &&
+             (!record.inUse() || inlinedId != record.getNextProp()) )
+        {
+            cursor.setOffset( offset );
+            putInlinedId( cursor, Record.NO_NEXT_PROPERTY.intValue() );
+        }
+    }
+
+    @Override
+    public void updateInlinedPropertyRecord( PropertyRecord record )
+    {
+        if ( !record.isNodeSet() )
+        {
+            return;
+        }
+
+        long nodeId = record.getNodeId();
+        boolean first = record.inUse() && record.getPrevProp() == Record.NO_PREVIOUS_PROPERTY.intValue();
+        try ( PageCursor cursor = storeFile.io( pageIdForRecord( nodeId ), PF_EXCLUSIVE_LOCK ) )
+        {
+            if ( cursor.next() )
+            {
+                int offset = offsetForId( nodeId ) + NodeStore.RECORD_SIZE;
+                do
+                {
+                    cursor.setOffset( offset );
+                    if ( first )
+                    {
+                        putInlinedId( cursor, record.getId() );
+                        PropertyStore.writeRecordToBuffer( record, cursor );
+                    }
+                    else if ( getInlinedId( cursor ) == record.getId() )
+                    {
+                        cursor.setOffset( offset );
+                        putInlinedId( cursor, Record.NO_NEXT_PROPERTY.intValue() );
+                    }
+                } while ( cursor.shouldRetry() );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    @Override
+    public Collection<PropertyRecord> getPropertyRecordChain( NodeRecord node, PropertyStore propertyStore )
+    {
+        PropertyRecord first = getInlinedPropertyRecord( node );
+        if ( first == null )
+        {
+            return super.getPropertyRecordChain( node, propertyStore );
+        }
+
+        List<PropertyRecord> chain = new ArrayList<>();
+        chain.add( first );
+        chain.addAll( propertyStore.getPropertyRecordChain( first.getNextProp() ) );
+        return chain;
+    }
+
+    /**
+     * @return the copy of the first property record of the given node kept in its node record, or {@code null}
+     * if there's no copy of the record the node points to.
+     */
+    public PropertyRecord getInlinedPropertyRecord( NodeRecord node )
+    {
+        long firstProp = node.getNextProp();
+        if ( firstProp == Record.NO_NEXT_PROPERTY.intValue() )
+        {
+            return null;
+        }
+
+        try ( PageCursor cursor = storeFile.io( pageIdForRecord( node.getId() ), PF_SHARED_LOCK ) )
+        {
+            PropertyRecord record = null;
+            if ( cursor.next() )
+            {
+                int offset = offsetForId( node.getId() ) + NodeStore.RECORD_SIZE;
+                do
+                {
+                    cursor.setOffset( offset );
+                    record = getInlinedId( cursor ) == firstProp
+                            ? PropertyStore.getRecordFromBuffer( firstProp, cursor )
+                            : null;
+                } while ( cursor.shouldRetry() );
+            }
+
+            if ( record == null || !record.inUse() )
+            {
+                return null;
+            }
+            record.setNodeId( node.getId() );
+            return record;
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    // The id is stored plus one, so that the zeros of a newly allocated record read as no inlined record.
+    private static long getInlinedId( PageCursor cursor )
+    {
+        long lsb = cursor.getUnsignedInt();
+        long msb = cursor.getByte() & 0xFF;
+        return (lsb | (msb << 32)) - 1;
+    }
+
+    private static void putInlinedId( PageCursor cursor, long id )
+    {
+        long stored = id + 1;
+        cursor.putInt( (int) stored );
+        cursor.putByte( (byte) (stored >>> 32) );
+    }
+}
@@ -94,7 +94,8 @@ public class NeoStore extends AbstractStore implements TransactionIdStore, LogVe
         UPGRADE_TRANSACTION_ID( 7, "Transaction id most recent upgrade was performed at" ),
         UPGRADE_TIME( 8, "Time of last upgrade" ),
         LAST_TRANSACTION_CHECKSUM( 9, "Checksum of last committed transaction" ),
-        UPGRADE_TRANSACTION_CHECKSUM( 10, "Checksum of transaction id the most recent upgrade was performed at" );
+        UPGRADE_TRANSACTION_CHECKSUM( 10, "Checksum of transaction id the most recent upgrade was performed at" ),
+        NODE_RECORD_FORMAT( 11, "Format of the node records, 1 if they have room for the first property record" );
 
         private final int id;
         private final String description;
@@ -403,6 +404,45 @@ public class NeoStore extends AbstractStore implements TransactionIdStore, LogVe
         }
     }
 
+    /**
+     * Reads a record from a neostore file, like {@link #getRecord(FileSystemAbstraction, File, Position)}, but
+     * for records that stores created before the record was introduced don't have.
+     *
+     * @param fs {@link FileSystemAbstraction} the {@code neoStore} file lives in.
+     * @param neoStore {@link File} pointing to the neostore.
+     * @param recordPosition record {@link Position}.
+     * @param defaultValue value to return if the record isn't there.
+     * @return the read record value specified by {@link Position}, or {@code defaultValue}.
+     */
+    public static long getRecord( FileSystemAbstraction fs, File neoStore, Position recordPosition,
+            long defaultValue )
+    {
+        if ( !fs.fileExists( neoStore ) )
+        {
+            return defaultValue;
+        }
+        try ( StoreChannel channel = fs.open( neoStore, "r" ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( RECORD_SIZE );
+            channel.position( RECORD_SIZE * recordPosition.id );
+            while ( buffer.hasRemaining() && channel.read( buffer ) > 0 )
+            {
+                // keep reading
+            }
+            buffer.flip();
+            // A cleanly shut down store without the record has its trailer there, which never starts with IN_USE
+            if ( buffer.remaining() < RECORD_SIZE || buffer.get() != Record.IN_USE.byteValue() )
+            {
+                return defaultValue;
+            }
+            return buffer.getLong();
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
     public StoreId getStoreId()
     {
         return new StoreId( getCreationTime(), getRandomNumber(), getUpgradeTime(), upgradeTxIdField );
@@ -536,6 +576,11 @@ public class NeoStore extends AbstractStore implements TransactionIdStore, LogVe
         latestConstraintIntroducingTxField = latestConstraintIntroducingTx;
     }
 
+    public void setNodeRecordFormat( long format )
+    {
+        setRecord( Position.NODE_RECORD_FORMAT, format );
+    }
+
     private void readAllFields( PageCursor cursor ) throws IOException
     {
         do
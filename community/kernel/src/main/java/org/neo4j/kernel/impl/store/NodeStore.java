@@ -37,6 +37,7 @@ import org.neo4j.kernel.IdType;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.store.record.DynamicRecord;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
 import org.neo4j.kernel.impl.store.record.Record;
 import org.neo4j.kernel.impl.util.Bits;
 import org.neo4j.kernel.impl.util.StringLogger;
@@ -78,6 +79,9 @@ public class NodeStore extends AbstractRecordStore<NodeRecord> implements Store
     // in_use(byte)+next_rel_id(int)+next_prop_id(int)+labels(5)+extra(byte)
     public static final int RECORD_SIZE = 15;
 
+    // value of the NeoStore.Position.NODE_RECORD_FORMAT record for stores with records of this size
+    public static final long RECORD_FORMAT = 0;
+
     private DynamicArrayStore dynamicLabelStore;
 
     public NodeStore(
@@ -258,7 +262,7 @@ public class NodeStore extends AbstractRecordStore<NodeRecord> implements Store
         }
     }
 
-    private void writeRecord( PageCursor cursor, NodeRecord record, boolean force )
+    protected void writeRecord( PageCursor cursor, NodeRecord record, boolean force )
     {
         int offset = offsetForId( record.getId() );
         cursor.setOffset( offset );
@@ -295,6 +299,23 @@ public class NodeStore extends AbstractRecordStore<NodeRecord> implements Store
         }
     }
 
+    /**
+     * Reads the property records of the given node. Nodes in this store keep no properties of their own,
+     * so this is the chain in the property store.
+     */
+    public Collection<PropertyRecord> getPropertyRecordChain( NodeRecord node, PropertyStore propertyStore )
+    {
+        return propertyStore.getPropertyRecordChain( node.getNextProp() );
+    }
+
+    /**
+     * Called with every property record written to the property store. Records of this store have no room
+     * for properties, see {@link InlinePropertiesNodeStore} for a store that has.
+     */
+    public void updateInlinedPropertyRecord( PropertyRecord record )
+    {
+    }
+
     public boolean inUse( long id )
     {
         long pageId = pageIdForRecord( id );
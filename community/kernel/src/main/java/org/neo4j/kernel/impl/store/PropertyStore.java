@@ -197,35 +197,7 @@ public class PropertyStore extends AbstractRecordStore<PropertyRecord> implement
         cursor.setOffset( (int) (id * RECORD_SIZE % storeFile.pageSize()) );
         if ( record.inUse() )
         {
-            // Set up the record header
-            short prevModifier = record.getPrevProp() == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0
-                    : (short) ( ( record.getPrevProp() & 0xF00000000L ) >> 28 );
-            short nextModifier = record.getNextProp() == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0
-                    : (short) ( ( record.getNextProp() & 0xF00000000L ) >> 32 );
-            byte modifiers = (byte) ( prevModifier | nextModifier );
-            /*
-             * [pppp,nnnn] previous, next high bits
-             */
-            cursor.putByte( modifiers );
-            cursor.putInt( (int) record.getPrevProp() );
-            cursor.putInt( (int) record.getNextProp() );
-
-            // Then go through the blocks
-            int longsAppended = 0; // For marking the end of blocks
-            for ( PropertyBlock block : record.getPropertyBlocks() )
-            {
-                long[] propBlockValues = block.getValueBlocks();
-                for ( long propBlockValue : propBlockValues )
-                {
-                    cursor.putLong( propBlockValue );
-                }
-
-                longsAppended += propBlockValues.length;
-            }
-            if ( longsAppended < PropertyType.getPayloadSizeLongs() )
-            {
-                cursor.putLong( 0 );
-            }
+            writeRecordToBuffer( record, cursor );
         }
         else
         {
@@ -236,6 +208,43 @@ public class PropertyStore extends AbstractRecordStore<PropertyRecord> implement
         }
     }
 
+    /**
+     * Writes an in use record, in the layout of this store, at the current offset of the cursor.
+     * {@link InlinePropertiesNodeStore} uses the same layout for the property record it keeps in node records.
+     */
+    static void writeRecordToBuffer( PropertyRecord record, PageCursor cursor )
+    {
+        // Set up the record header
+        short prevModifier = record.getPrevProp() == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0
+                : (short) ( ( record.getPrevProp() & 0xF00000000L ) >> 28 );
+        short nextModifier = record.getNextProp() == Record.NO_NEXT_RELATIONSHIP.intValue() ? 0
+                : (short) ( ( record.getNextProp() & 0xF00000000L ) >> 32 );
+        byte modifiers = (byte) ( prevModifier | nextModifier );
+        /*
+         * [pppp,nnnn] previous, next high bits
+         */
+        cursor.putByte( modifiers );
+        cursor.putInt( (int) record.getPrevProp() );
+        cursor.putInt( (int) record.getNextProp() );
+
+        // Then go through the blocks
+        int longsAppended = 0; // For marking the end of blocks
+        for ( PropertyBlock block : record.getPropertyBlocks() )
+        {
+            long[] propBlockValues = block.getValueBlocks();
+            for ( long propBlockValue : propBlockValues )
+            {
+                cursor.putLong( propBlockValue );
+            }
+
+            longsAppended += propBlockValues.length;
+        }
+        if ( longsAppended < PropertyType.getPayloadSizeLongs() )
+        {
+            cursor.putLong( 0 );
+        }
+    }
+
     private void updatePropertyBlocks( PropertyRecord record )
     {
         if ( record.inUse() )
@@ -380,7 +389,10 @@ public class PropertyStore extends AbstractRecordStore<PropertyRecord> implement
         return forceGetRecord( id );
     }
 
-    private PropertyRecord getRecordFromBuffer( long id, PageCursor cursor )
+    /**
+     * Reads a record, in the layout of this store, from the current offset of the cursor.
+     */
+    static PropertyRecord getRecordFromBuffer( long id, PageCursor cursor )
     {
         int offsetAtBeginning = cursor.getOffset();
         PropertyRecord record = new PropertyRecord( id );
@@ -425,7 +437,7 @@ public class PropertyStore extends AbstractRecordStore<PropertyRecord> implement
      * result is returned, that has inUse() return false. Also, the argument is not
      * touched.
      */
-    private PropertyBlock getPropertyBlock( PageCursor cursor )
+    private static PropertyBlock getPropertyBlock( PageCursor cursor )
     {
         long header = cursor.getLong();
         PropertyType type = PropertyType.getPropertyType( header, true );
@@ -652,17 +664,49 @@ public class PropertyStore extends AbstractRecordStore<PropertyRecord> implement
         return super.toString() + "[blocksPerRecord:" + PropertyType.getPayloadSizeLongs() + "]";
     }
 
+    /**
+     * Reads a whole property record chain using a single page cursor. Records in the chain that live in the
+     * same page as the previous record are read without moving the cursor, so a chain that has been written
+     * in one go, and therefore is co-located in one page, only costs one page pin.
+     */
     public Collection<PropertyRecord> getPropertyRecordChain( long firstRecordId )
     {
         long nextProp = firstRecordId;
         List<PropertyRecord> toReturn = new LinkedList<>();
-        while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+        if ( nextProp == Record.NO_NEXT_PROPERTY.intValue() )
         {
-            PropertyRecord propRecord = getLightRecord( nextProp );
-            toReturn.add(propRecord);
-            nextProp = propRecord.getNextProp();
+            return toReturn;
+        }
+
+        try ( PageCursor cursor = storeFile.io( pageIdForRecord( nextProp ), PF_SHARED_LOCK ) )
+        {
+            while ( nextProp != Record.NO_NEXT_PROPERTY.intValue() )
+            {
+                long pageId = pageIdForRecord( nextProp );
+                if ( pageId != cursor.getCurrentPageId() && !cursor.next( pageId ) )
+                {
+                    throw new InvalidRecordException( "PropertyRecord[" + nextProp + "] not in use" );
+                }
+
+                PropertyRecord propRecord;
+                do
+                {
+                    propRecord = getRecord( nextProp, cursor );
+                } while ( cursor.shouldRetry() );
+
+                if ( !propRecord.inUse() )
+                {
+                    throw new InvalidRecordException( "PropertyRecord[" + nextProp + "] not in use" );
+                }
+                toReturn.add( propRecord );
+                nextProp = propRecord.getNextProp();
+            }
+            return toReturn;
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
         }
-        return toReturn;
     }
 
     public void toLogicalUpdates( Collection<NodePropertyUpdate> target,
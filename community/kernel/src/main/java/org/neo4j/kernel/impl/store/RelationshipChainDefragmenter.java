@@ -0,0 +1,467 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.index.IndexConfigStore;
+import org.neo4j.kernel.impl.pagecache.StandalonePageCache;
+import org.neo4j.kernel.impl.store.NeoStore.Position;
+import org.neo4j.kernel.impl.store.id.IdGeneratorImpl;
+import org.neo4j.kernel.impl.store.record.NeoStoreUtil;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.RecordLoad;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.impl.storemigration.LogFiles;
+import org.neo4j.kernel.impl.storemigration.StoreFile;
+import org.neo4j.kernel.impl.storemigration.StoreFileType;
+import org.neo4j.kernel.logging.Logging;
+import org.neo4j.kernel.logging.SystemOutLogging;
+import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds;
+import org.neo4j.unsafe.impl.batchimport.BatchImporter;
+import org.neo4j.unsafe.impl.batchimport.Configuration;
+import org.neo4j.unsafe.impl.batchimport.ParallelBatchImporter;
+import org.neo4j.unsafe.impl.batchimport.cache.AvailableMemoryCalculator;
+import org.neo4j.unsafe.impl.batchimport.cache.LongArray;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappers;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+import org.neo4j.unsafe.impl.batchimport.input.Inputs;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitor;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitors;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStore;
+
+import static org.neo4j.helpers.collection.Iterables.iterable;
+import static org.neo4j.kernel.impl.pagecache.StandalonePageCacheFactory.createPageCache;
+import static org.neo4j.kernel.impl.store.NeoStore.DEFAULT_NAME;
+import static org.neo4j.kernel.impl.storemigration.FileOperation.COPY;
+import static org.neo4j.kernel.impl.storemigration.FileOperation.DELETE;
+import static org.neo4j.kernel.impl.storemigration.FileOperation.MOVE;
+import static org.neo4j.kernel.impl.util.StringLogger.DEV_NULL;
+import static org.neo4j.unsafe.impl.batchimport.WriterFactories.parallel;
+
+/**
+ * Offline tool which rewrites the relationship and relationship group stores of a database so that the
+ * outgoing relationships of each node are stored next to each other, ordered by type. Over time, as relationships
+ * gets created and deleted, relationship chains end up scattered all over the relationship store and every
+ * expand costs many random reads.
+ * <p/>
+ * Relationships are ordered by their start node, so it's only the outgoing chains, and for dense nodes the outgoing
+ * part of each relationship group, that become contiguous. A relationship belongs to two chains and can
+ * only be co-located with one of them, so incoming chains stay as scattered as they were. New relationship ids are assigned according to that order,
+ * after which the {@link ParallelBatchImporter} is used to write new node, relationship and relationship group
+ * stores, just like the {@link org.neo4j.kernel.impl.storemigration.StoreMigrator} does.
+ * Node ids and property records are left untouched.
+ * <p/>
+ * Since relationship ids change the database must have been cleanly shut down and it must not have any legacy
+ * relationship indexes. Transaction logs from before the defragmentation refer to the old relationship ids and
+ * must never be applied to it, so they are moved out of the store directory, into {@value #OLD_LOGS_DIRECTORY_NAME},
+ * and the last committed transaction is recorded as the upgrade transaction, just like after a store migration.
+ * In a cluster, other instances need to be seeded from the defragmented store.
+ */
+public class RelationshipChainDefragmenter
+{
+    // Relationship ids are at most 35 bits, which leaves room for the relationship type id above it
+    private static final int TYPE_SHIFT = 35;
+    private static final long ID_MASK = (1L << TYPE_SHIFT) - 1;
+    private static final Object[] NO_PROPERTIES = new Object[0];
+    private static final String[] NO_LABELS = new String[0];
+    private static final String WORKING_DIRECTORY_NAME = "defragment";
+    static final String OLD_LOGS_DIRECTORY_NAME = "logs-before-defragmentation";
+
+    private final FileSystemAbstraction fileSystem;
+    private final Config config;
+    private final Logging logging;
+    private final ExecutionMonitor executionMonitor;
+    private final NumberArrayFactory cacheFactory;
+
+    public static void main( String[] args ) throws IOException
+    {
+        if ( args == null || args.length != 1 )
+        {
+            System.err.println( "Usage: RelationshipChainDefragmenter <store directory>" );
+            System.exit( 1 );
+        }
+
+        File storeDir = new File( args[0] );
+        FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+        Config config = StoreFactory.configForStoreDir( new Config(), storeDir );
+        try ( StandalonePageCache pageCache = createPageCache( fs, config, "defragmenter" ) )
+        {
+            new RelationshipChainDefragmenter( fs, config, new SystemOutLogging(),
+                    ExecutionMonitors.defaultVisible(), NumberArrayFactory.AUTO ).defragment( storeDir, pageCache );
+        }
+    }
+
+    public RelationshipChainDefragmenter( FileSystemAbstraction fileSystem, Config config, Logging logging,
+            ExecutionMonitor executionMonitor, NumberArrayFactory cacheFactory )
+    {
+        this.fileSystem = fileSystem;
+        this.config = config;
+        this.logging = logging;
+        this.executionMonitor = executionMonitor;
+        this.cacheFactory = cacheFactory;
+    }
+
+    public void defragment( File storeDir, PageCache pageCache ) throws IOException
+    {
+        ensureNoLegacyRelationshipIndexes( storeDir );
+
+        File workingDir = new File( storeDir, WORKING_DIRECTORY_NAME );
+        fileSystem.deleteRecursively( workingDir );
+        fileSystem.mkdirs( workingDir );
+        try
+        {
+            StoreFactory storeFactory = new StoreFactory( fileSystem, storeDir, pageCache, DEV_NULL, new Monitors() );
+            try ( NodeStore nodeStore = storeFactory.newNodeStore();
+                  RelationshipStore relationshipStore = storeFactory.newRelationshipStore() )
+            {
+                if ( !nodeStore.getStoreOk() || !relationshipStore.getStoreOk() )
+                {
+                    throw new IllegalStateException( "Database in " + storeDir + " was not cleanly shut down. " +
+                            "Start and shut down the database before defragmenting it" );
+                }
+
+                try ( ChainOrder order = chainOrder( nodeStore, relationshipStore ) )
+                {
+                    prepareWorkingDirectory( storeDir, workingDir );
+                    BatchImporter importer = new ParallelBatchImporter( workingDir.getAbsolutePath(), fileSystem,
+                            new Configuration.OverrideFromConfig( config ), logging, executionMonitor,
+                            parallel(), readAdditionalIds( storeDir ), AvailableMemoryCalculator.RUNTIME );
+                    importer.doImport( Inputs.input( nodesAsInput( nodeStore ),
+                            relationshipsAsInput( relationshipStore, order ),
+                            IdMappers.actual(), IdGenerators.fromInput() ) );
+                }
+            }
+            moveDefragmentedFiles( workingDir, storeDir );
+            moveAwayOldLogs( storeDir );
+        }
+        finally
+        {
+            fileSystem.deleteRecursively( workingDir );
+        }
+    }
+
+    private void ensureNoLegacyRelationshipIndexes( File storeDir )
+    {
+        IndexConfigStore indexConfig = new IndexConfigStore( storeDir, fileSystem );
+        indexConfig.init();
+        String[] relationshipIndexes = indexConfig.getNames( Relationship.class );
+        if ( relationshipIndexes.length > 0 )
+        {
+            throw new IllegalStateException( "Defragmenting relationship chains changes relationship ids, " +
+                    "which would invalidate the legacy relationship indexes " + Arrays.toString( relationshipIndexes ) );
+        }
+    }
+
+    /**
+     * Decides the new position of every relationship in use, by counting relationships per start node and
+     * then placing each relationship within the range of its start node. Each such range is then sorted by
+     * relationship type, keeping the original order of relationships of the same type.
+     */
+    private ChainOrder chainOrder( NodeStore nodeStore, RelationshipStore relationshipStore )
+    {
+        long highNodeId = nodeStore.getHighId();
+        long highRelationshipId = relationshipStore.getHighId();
+        RelationshipRecord record = new RelationshipRecord( -1 );
+
+        // Count relationships per start node and turn those counts into the first position of each node
+        long relationshipCount = 0;
+        try ( LongArray positions = cacheFactory.newLongArray( highNodeId, 0 ) )
+        {
+            for ( long id = 0; id < highRelationshipId; id++ )
+            {
+                if ( relationshipStore.fillRecord( id, record, RecordLoad.CHECK ) )
+                {
+                    long nodeId = record.getFirstNode();
+                    positions.set( nodeId, positions.get( nodeId ) + 1 );
+                    relationshipCount++;
+                }
+            }
+            long position = 0;
+            for ( long nodeId = 0; nodeId < highNodeId; nodeId++ )
+            {
+                long count = positions.get( nodeId );
+                positions.set( nodeId, position );
+                position += count;
+            }
+
+            // Place the relationships, with their type in the high bits so that sorting orders by type
+            LongArray order = cacheFactory.newLongArray( relationshipCount, -1 );
+            boolean success = false;
+            try
+            {
+                for ( long id = 0; id < highRelationshipId; id++ )
+                {
+                    if ( relationshipStore.fillRecord( id, record, RecordLoad.CHECK ) )
+                    {
+                        long nodeId = record.getFirstNode();
+                        long newId = positions.get( nodeId );
+                        positions.set( nodeId, newId + 1 );
+                        order.set( newId, (((long) record.getType()) << TYPE_SHIFT) | id );
+                    }
+                }
+
+                // Now each position points to the end of the range of its node
+                long start = 0;
+                for ( long nodeId = 0; nodeId < highNodeId; nodeId++ )
+                {
+                    long end = positions.get( nodeId );
+                    sortRange( order, start, end );
+                    start = end;
+                }
+                ChainOrder chainOrder = new ChainOrder( order, relationshipCount );
+                success = true;
+                return chainOrder;
+            }
+            finally
+            {
+                if ( !success )
+                {
+                    order.close();
+                }
+            }
+        }
+    }
+
+    private static void sortRange( LongArray order, long start, long end )
+    {
+        boolean sorted = true;
+        for ( long i = start + 1; i < end && sorted; i++ )
+        {
+            sorted = order.get( i - 1 ) <= order.get( i );
+        }
+        if ( sorted )
+        {
+            return;
+        }
+
+        long[] range = new long[(int) (end - start)];
+        for ( int i = 0; i < range.length; i++ )
+        {
+            range[i] = order.get( start + i );
+        }
+        Arrays.sort( range );
+        for ( int i = 0; i < range.length; i++ )
+        {
+            order.set( start + i, range[i] );
+        }
+    }
+
+    private void prepareWorkingDirectory( File storeDir, File workingDir ) throws IOException
+    {
+        // The batch importer needs all labels, also those in dynamic records, to populate the counts store.
+        // That store file is only read, never rewritten, so a copy of it goes into the working directory.
+        BatchingNeoStore.createStore( fileSystem, workingDir.getPath() );
+        Iterable<StoreFile> storeFiles = iterable( StoreFile.NODE_LABEL_STORE );
+        StoreFile.fileOperation( COPY, fileSystem, storeDir, workingDir, storeFiles, true, true,
+                StoreFileType.values() );
+        StoreFile.ensureStoreVersion( fileSystem, workingDir, storeFiles );
+    }
+
+    private void moveDefragmentedFiles( File workingDir, File storeDir ) throws IOException
+    {
+        // Node ids are kept as they were, so keep the existing node id file which knows about free node ids.
+        // Relationships and relationship groups are compacted, so their new id files are the right ones.
+        StoreFile.fileOperation( DELETE, fileSystem, workingDir, null, iterable( StoreFile.NODE_STORE ),
+                true, false, StoreFileType.ID );
+        StoreFile.fileOperation( MOVE, fileSystem, workingDir, storeDir, iterable(
+                StoreFile.NODE_STORE,
+                StoreFile.RELATIONSHIP_STORE,
+                StoreFile.RELATIONSHIP_GROUP_STORE ), true, true, StoreFileType.values() );
+
+        // The batch importer writes node records without inlined properties
+        NeoStore.setRecord( fileSystem, new File( storeDir, DEFAULT_NAME ), Position.NODE_RECORD_FORMAT,
+                NodeStore.RECORD_FORMAT );
+    }
+
+    private void moveAwayOldLogs( File storeDir ) throws IOException
+    {
+        // The logs refer to relationships by their old ids, so they must neither be recovered from nor be served
+        // to other instances. Like after a store migration the last transaction is marked as the upgrade
+        // transaction, so that its checksum can still be looked up without the logs.
+        File oldLogsDir = new File( storeDir, OLD_LOGS_DIRECTORY_NAME );
+        fileSystem.mkdirs( oldLogsDir );
+        LogFiles.move( fileSystem, storeDir, oldLogsDir );
+
+        File neoStore = new File( storeDir, DEFAULT_NAME );
+        long lastTxId = NeoStore.getRecord( fileSystem, neoStore, Position.LAST_TRANSACTION_ID );
+        long lastTxChecksum = NeoStore.getRecord( fileSystem, neoStore, Position.LAST_TRANSACTION_CHECKSUM );
+        NeoStore.setRecord( fileSystem, neoStore, Position.UPGRADE_TRANSACTION_ID, lastTxId );
+        NeoStore.setRecord( fileSystem, neoStore, Position.UPGRADE_TRANSACTION_CHECKSUM, lastTxChecksum );
+        NeoStore.setRecord( fileSystem, neoStore, Position.UPGRADE_TIME, System.currentTimeMillis() );
+        logging.getMessagesLog( getClass() ).info( "Moved the transaction logs from before the defragmentation " +
+                "to " + oldLogsDir + ". They must not be applied to the defragmented store." );
+    }
+
+    private AdditionalInitialIds readAdditionalIds( File storeDir ) throws IOException
+    {
+        NeoStoreUtil neoStore = new NeoStoreUtil( storeDir, fileSystem );
+        final long lastTxId = neoStore.getLastCommittedTx();
+        final long lastTxChecksum = neoStore.getLastCommittedTxChecksum();
+        final int propertyKeyTokenHighId = readHighId( storeDir, StoreFactory.PROPERTY_KEY_TOKEN_STORE_NAME );
+        final int labelTokenHighId = readHighId( storeDir, StoreFactory.LABEL_TOKEN_STORE_NAME );
+        final int relationshipTypeTokenHighId = readHighId( storeDir, StoreFactory.RELATIONSHIP_TYPE_TOKEN_STORE_NAME );
+        return new AdditionalInitialIds()
+        {
+            @Override
+            public int highRelationshipTypeTokenId()
+            {
+                return relationshipTypeTokenHighId;
+            }
+
+            @Override
+            public int highPropertyKeyTokenId()
+            {
+                return propertyKeyTokenHighId;
+            }
+
+            @Override
+            public int highLabelTokenId()
+            {
+                return labelTokenHighId;
+            }
+
+            @Override
+            public long lastCommittedTransactionId()
+            {
+                return lastTxId;
+            }
+
+            @Override
+            public long lastCommittedTransactionChecksum()
+            {
+                return lastTxChecksum;
+            }
+        };
+    }
+
+    private int readHighId( File storeDir, String storeName ) throws IOException
+    {
+        String file = StoreFileType.ID.augment( new File( storeDir, DEFAULT_NAME + storeName ).getPath() );
+        try
+        {
+            return (int) IdGeneratorImpl.readHighId( fileSystem, new File( file ) );
+        }
+        catch ( FileNotFoundException e )
+        {
+            return 0;
+        }
+    }
+
+    private Iterable<InputNode> nodesAsInput( final NodeStore nodeStore )
+    {
+        final long highId = nodeStore.getHighId();
+        return new Iterable<InputNode>()
+        {
+            @Override
+            public Iterator<InputNode> iterator()
+            {
+                return new PrefetchingIterator<InputNode>()
+                {
+                    private final NodeRecord record = new NodeRecord( -1 );
+                    private long id;
+
+                    @Override
+                    protected InputNode fetchNextOrNull()
+                    {
+                        while ( id < highId )
+                        {
+                            if ( nodeStore.loadRecord( id++, record ) != null )
+                            {
+                                return new InputNode( record.getId(), NO_PROPERTIES, record.getNextProp(),
+                                        NO_LABELS, record.getLabelField() );
+                            }
+                        }
+                        return null;
+                    }
+                };
+            }
+        };
+    }
+
+    private Iterable<InputRelationship> relationshipsAsInput( final RelationshipStore relationshipStore,
+            final ChainOrder order )
+    {
+        return new Iterable<InputRelationship>()
+        {
+            @Override
+            public Iterator<InputRelationship> iterator()
+            {
+                return new PrefetchingIterator<InputRelationship>()
+                {
+                    private final RelationshipRecord record = new RelationshipRecord( -1 );
+                    private long newId;
+
+                    @Override
+                    protected InputRelationship fetchNextOrNull()
+                    {
+                        if ( newId >= order.relationshipCount )
+                        {
+                            return null;
+                        }
+                        relationshipStore.fillRecord( order.oldRelationshipId( newId ), record, RecordLoad.NORMAL );
+                        return new InputRelationship( newId++, NO_PROPERTIES, record.getNextProp(),
+                                record.getFirstNode(), record.getSecondNode(), null, record.getType() );
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Maps new relationship ids to the ids the relationships had before the defragmentation.
+     */
+    private static class ChainOrder implements AutoCloseable
+    {
+        private final LongArray order;
+        private final long relationshipCount;
+
+        ChainOrder( LongArray order, long relationshipCount )
+        {
+            this.order = order;
+            this.relationshipCount = relationshipCount;
+        }
+
+        long oldRelationshipId( long newRelationshipId )
+        {
+            return order.get( newRelationshipId ) & ID_MASK;
+        }
+
+        @Override
+        public void close()
+        {
+            order.close();
+        }
+    }
+}
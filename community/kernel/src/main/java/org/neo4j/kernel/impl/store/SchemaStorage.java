@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.store;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -29,6 +30,7 @@ import org.neo4j.helpers.ThisShouldNotHappenError;
 import org.neo4j.helpers.collection.PrefetchingIterator;
 import org.neo4j.kernel.api.exceptions.schema.MalformedSchemaRuleException;
 import org.neo4j.kernel.api.exceptions.schema.SchemaRuleNotFoundException;
+import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.impl.store.record.DynamicRecord;
 import org.neo4j.kernel.impl.store.record.IndexRule;
 import org.neo4j.kernel.impl.store.record.SchemaRule;
@@ -90,16 +92,27 @@ public class SchemaStorage implements SchemaRuleAccess
      *
      * Otherwise throw if there are not exactly one matching candidate rule.
      */
-    public IndexRule indexRule( int labelId, final int propertyKeyId, IndexRuleKind kind )
+    public IndexRule indexRule( int labelId, int propertyKeyId, IndexRuleKind kind )
     {
+        return indexRule( new IndexDescriptor( labelId, propertyKeyId ), kind );
+    }
+
+    /**
+     * Find and IndexRule of the given kind, for the given index, which may be a composite index.
+     *
+     * Otherwise throw if there are not exactly one matching candidate rule.
+     */
+    public IndexRule indexRule( IndexDescriptor descriptor, IndexRuleKind kind )
+    {
+        final int[] propertyKeyIds = descriptor.getPropertyKeyIds();
         Iterator<IndexRule> rules = schemaRules(
-                IndexRule.class, labelId,
+                IndexRule.class, descriptor.getLabelId(),
                 new Predicate<IndexRule>()
                 {
                     @Override
                     public boolean accept( IndexRule item )
                     {
-                        return item.getPropertyKey() == propertyKeyId;
+                        return Arrays.equals( item.getPropertyKeys(), propertyKeyIds );
                     }
                 } );
 
@@ -330,10 +330,54 @@ public class StoreFactory
         DynamicArrayStore dynamicLabelStore = new DynamicArrayStore( labelStore,
                 config, IdType.NODE_LABELS, idGeneratorFactory, pageCache, fileSystemAbstraction, stringLogger,
                 versionMismatchHandler, monitors );
+        if ( nodeStoreInlinesProperties( fileSystemAbstraction, nodeStore, neoStoreFileName ) )
+        {
+            return new InlinePropertiesNodeStore( nodeStore, config, idGeneratorFactory, pageCache,
+                    fileSystemAbstraction, stringLogger, dynamicLabelStore, versionMismatchHandler, monitors );
+        }
         return new NodeStore( nodeStore, config, idGeneratorFactory, pageCache,
                 fileSystemAbstraction, stringLogger, dynamicLabelStore, versionMismatchHandler, monitors );
     }
 
+    /**
+     * Tells the format of the records in the given node store file by its trailer. The trailer is missing while
+     * the store is open, and after a crash, in which case the format recorded in neostore is used instead.
+     */
+    public static boolean nodeStoreInlinesProperties( FileSystemAbstraction fileSystem, File nodeStore,
+            File neoStore )
+    {
+        if ( !fileSystem.fileExists( nodeStore ) )
+        {
+            return false;
+        }
+        String inlineTrailer = buildTypeDescriptorAndVersion( InlinePropertiesNodeStore.TYPE_DESCRIPTOR );
+        int trailerLength = UTF8.encode( inlineTrailer ).length;
+        try ( StoreChannel channel = fileSystem.open( nodeStore, "r" ) )
+        {
+            if ( channel.size() >= trailerLength )
+            {
+                ByteBuffer buffer = ByteBuffer.allocate( trailerLength );
+                channel.position( channel.size() - trailerLength );
+                channel.read( buffer );
+                String trailer = UTF8.decode( buffer.array() );
+                if ( trailer.contains( InlinePropertiesNodeStore.TYPE_DESCRIPTOR + " " ) )
+                {
+                    return true;
+                }
+                if ( trailer.contains( NodeStore.TYPE_DESCRIPTOR + " " ) )
+                {
+                    return false;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( "Unable to read trailer of " + nodeStore, e );
+        }
+        return NeoStore.getRecord( fileSystem, neoStore, NeoStore.Position.NODE_RECORD_FORMAT,
+                NodeStore.RECORD_FORMAT ) == InlinePropertiesNodeStore.RECORD_FORMAT;
+    }
+
     public CountsTracker newCountsStore()
     {
         return new CountsTracker( stringLogger, fileSystemAbstraction, pageCache, storeFileName( COUNTS_STORE ) );
@@ -389,6 +433,9 @@ public class StoreFactory
         neoStore.setStoreVersion( NeoStore.versionStringToLong( CommonAbstractStore.ALL_STORES_VERSION ) );
         neoStore.setGraphNextProp( -1 );
         neoStore.setLatestConstraintIntroducingTx( 0 );
+        neoStore.setNodeRecordFormat( neoStore.getNodeStore() instanceof InlinePropertiesNodeStore
+                ? InlinePropertiesNodeStore.RECORD_FORMAT
+                : NodeStore.RECORD_FORMAT );
 
         neoStore.flush();
 
@@ -403,8 +450,10 @@ public class StoreFactory
     public void createNodeStore()
     {
         createNodeLabelsStore();
-        createEmptyStore( storeFileName( NODE_STORE_NAME ), buildTypeDescriptorAndVersion( NodeStore.TYPE_DESCRIPTOR
-        ) );
+        createEmptyStore( storeFileName( NODE_STORE_NAME ), buildTypeDescriptorAndVersion(
+                config.get( Configuration.inline_node_properties )
+                ? InlinePropertiesNodeStore.TYPE_DESCRIPTOR
+                : NodeStore.TYPE_DESCRIPTOR ) );
     }
 
     @SuppressWarnings( "deprecation" )
@@ -645,5 +694,6 @@ public class StoreFactory
         public static final Setting<Integer> array_block_size = GraphDatabaseSettings.array_block_size;
         public static final Setting<Integer> label_block_size = GraphDatabaseSettings.label_block_size;
         public static final Setting<Integer> dense_node_threshold = GraphDatabaseSettings.dense_node_threshold;
+        public static final Setting<Boolean> inline_node_properties = GraphDatabaseSettings.inline_node_properties;
     }
 }
@@ -28,12 +28,23 @@ import static java.lang.String.format;
 public class StoreIdIterator implements PrimitiveLongIterator
 {
     private final RecordStore<?> store;
+    private final long toId;
     private long highId, id;
 
     public StoreIdIterator( RecordStore<?> store )
+    {
+        this( store, 0, Long.MAX_VALUE );
+    }
+
+    /**
+     * Iterates over the ids from {@code fromId} (inclusive) to {@code toId} (exclusive), or up to the high id of
+     * the store if that is lower.
+     */
+    public StoreIdIterator( RecordStore<?> store, long fromId, long toId )
     {
         this.store = store;
-        this.id = store.getNumberOfReservedLowIds();
+        this.toId = toId;
+        this.id = Math.max( fromId, store.getNumberOfReservedLowIds() );
     }
 
     @Override
@@ -49,7 +60,7 @@ public class StoreIdIterator implements PrimitiveLongIterator
         {
             return true;
         }
-        highId = store.getHighId();
+        highId = Math.min( store.getHighId(), toId );
         return id < highId;
     }
 
@@ -32,6 +32,7 @@ import org.neo4j.function.Function2;
 import org.neo4j.kernel.impl.store.counts.keys.CountsKey;
 import org.neo4j.kernel.impl.store.counts.keys.IndexCountsKey;
 import org.neo4j.kernel.impl.store.counts.keys.IndexSampleKey;
+import org.neo4j.kernel.impl.store.counts.keys.IndexSketchKey;
 import org.neo4j.kernel.impl.store.counts.keys.NodeKey;
 import org.neo4j.kernel.impl.store.counts.keys.RelationshipKey;
 import org.neo4j.kernel.impl.store.kvstore.KeyValueRecordVisitor;
@@ -148,6 +149,23 @@ class ConcurrentCountsTrackerState implements CountsTrackerState
         writeRegister( key ).write( unique, size );
     }
 
+    @Override
+    public DoubleLongRegister indexSketch( IndexSketchKey key, DoubleLongRegister target )
+    {
+        return readIntoRegister( key, target );
+    }
+
+    @Override
+    public void replaceIndexSketch( IndexSketchKey key, long first, long second )
+    {
+        if ( first == 0 && second == 0 && readIntoRegister( key, newDoubleLongRegister() ).hasValues( 0, 0 ) )
+        {
+            // there is nothing to clear, so this avoids keeping a zeroed change for the key until the next rotation
+            return;
+        }
+        writeRegister( key ).write( first, second );
+    }
+
     private DoubleLongRegister readIntoRegister( CountsKey key, DoubleLongRegister target )
     {
         CopyableDoubleLongRegister sample = changes.get( key );
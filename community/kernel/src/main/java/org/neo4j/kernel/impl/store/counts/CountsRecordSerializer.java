@@ -31,6 +31,7 @@ import org.neo4j.register.Register.CopyableDoubleLongRegister;
 
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexCountsKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSampleKey;
+import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSketchKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.nodeKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relationshipKey;
 
@@ -63,6 +64,16 @@ import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relations
  *  type id          id        id
  * <p/>
  *
+ * Index Sketch Key:
+ *  0 1 2 3 4 5 6 7 8 9 A B C D E F
+ * [x, ,x,x,x,x, ,x,x,x,x, ,x,x,x,x]
+ *  _   _ _ _ _   _ _ _ _   _ _ _ _
+ *  |      |         |         |
+ *  entry  slot  property key  label
+ *  type             id        id
+ *  id
+ * <p/>
+ *
  * Count value:
  *  0 1 2 3 4 5 6 7 8 9 A B C D E F
  * [ , , , , , , , ,x,x,x,x,x,x,x,x]
@@ -87,6 +98,14 @@ import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relations
  *  unique count    sample size
  * <p/>
  *
+ * Index sketch:
+ *  0 1 2 3 4 5 6 7 8 9 A B C D E F
+ * [x,x,x,x,x,x,x,x,x,x,x,x,x,x,x,x]
+ *  _ _ _ _ _ _ _ _ _ _ _ _ _ _ _ _
+ *  |               |
+ *  first value     second value, of the slot, see IndexValueSketch
+ * <p/>
+ *
  * 'entry type' - see {@link org.neo4j.kernel.impl.store.counts.keys.CountsKeyType}
  */
 public final class CountsRecordSerializer implements KeyValueRecordSerializer<CountsKey, CopyableDoubleLongRegister>
@@ -154,6 +173,10 @@ public final class CountsRecordSerializer implements KeyValueRecordSerializer<Co
                 key = indexSampleKey( three /* label id */, two /* pk id */ );
                 break;
 
+            case INDEX_SKETCH:
+                key = indexSketchKey( three /* label id */, two /* pk id */, one /* slot */ );
+                break;
+
             default:
                 throw new IllegalStateException( "Unknown counts key type: " + type );
         }
@@ -216,6 +239,10 @@ public final class CountsRecordSerializer implements KeyValueRecordSerializer<Co
                 key = indexSampleKey( three /* label id */, two /* pk id */ );
                 break;
 
+            case INDEX_SKETCH:
+                key = indexSketchKey( three /* label id */, two /* pk id */, one /* slot */ );
+                break;
+
             default:
                 throw new IllegalStateException( "Unknown counts key type: " + type );
         }
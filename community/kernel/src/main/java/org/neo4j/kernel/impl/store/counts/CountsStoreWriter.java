@@ -44,6 +44,7 @@ import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyType.ENTITY_NODE;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyType.ENTITY_RELATIONSHIP;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyType.INDEX_COUNTS;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyType.INDEX_SAMPLE;
+import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyType.INDEX_SKETCH;
 import static org.neo4j.register.Register.DoubleLongRegister;
 
 public class CountsStoreWriter implements Writer<CountsKey, CopyableDoubleLongRegister>, CountsVisitor
@@ -158,6 +159,12 @@ public class CountsStoreWriter implements Writer<CountsKey, CopyableDoubleLongRe
         write( INDEX_SAMPLE, 0, propertyKeyId, labelId, unique, size );
     }
 
+    @Override
+    public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+    {
+        write( INDEX_SKETCH, slot, propertyKeyId, labelId, first, second );
+    }
+
 
     // See CountsRecordSerializer for format
     private void write( CountsKeyType keyType, int firstId, int secondId, int thirdId, long first, long second )
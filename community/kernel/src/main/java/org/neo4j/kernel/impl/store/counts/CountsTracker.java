@@ -41,6 +41,7 @@ import org.neo4j.register.Registers;
 import static org.neo4j.kernel.impl.store.counts.CountsStore.RECORD_SIZE;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexCountsKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSampleKey;
+import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSketchKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.nodeKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relationshipKey;
 import static org.neo4j.kernel.impl.store.kvstore.SortedKeyValueStoreHeader.BASE_MINOR_VERSION;
@@ -56,11 +57,17 @@ import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_I
 public class CountsTracker implements CountsVisitor.Visitable, AutoCloseable, CountsAccessor
 {
     public static final String STORE_DESCRIPTOR = SortedKeyValueStore.class.getSimpleName();
+    /**
+     * Appended to the format version of new counts stores, which may hold index sketches. Older versions cannot read
+     * the sketch records, so sketches are neither read from nor written to counts stores made before them.
+     */
+    public static final String INDEX_SKETCH_FORMAT = "+sketch";
 
     public static final String ALPHA = ".a", BETA = ".b";
     private final File alphaFile, betaFile;
     private final ReadWriteLock updateLock = new ReentrantReadWriteLock( /*fair=*/true );
     private final StringLogger logger;
+    private final boolean indexSketches;
     private volatile CountsTrackerState state;
 
     public CountsTracker( StringLogger logger, FileSystemAbstraction fs, PageCache pageCache, File storeFileBase )
@@ -69,6 +76,8 @@ public class CountsTracker implements CountsVisitor.Visitable, AutoCloseable, Co
         this.alphaFile = storeFile( storeFileBase, ALPHA );
         this.betaFile = storeFile( storeFileBase, BETA );
         CountsStore store = openStore( logger, fs, pageCache, this.alphaFile, this.betaFile );
+        // Rotation keeps the format version of the store, so this holds for the life of the tracker
+        this.indexSketches = store.storeFormatVersion().endsWith( INDEX_SKETCH_FORMAT );
         this.state = new ConcurrentCountsTrackerState( store );
     }
 
@@ -184,13 +193,14 @@ public class CountsTracker implements CountsVisitor.Visitable, AutoCloseable, Co
         // create both files initially to avoid problems with unflushed metadata
         // increase alpha minor version by 1 to ensure that we use alpha after creating the store
 
+        String formatVersion = storeVersion + INDEX_SKETCH_FORMAT;
         File alpha = storeFile( file, ALPHA );
         CountsStore.createEmpty( pageCache, alpha,
-                with( RECORD_SIZE, storeVersion, BASE_TX_ID, BASE_MINOR_VERSION + 1 ) );
+                with( RECORD_SIZE, formatVersion, BASE_TX_ID, BASE_MINOR_VERSION + 1 ) );
 
         File beta = storeFile( file, BETA );
         CountsStore.createEmpty( pageCache, beta,
-                with( RECORD_SIZE, storeVersion, BASE_TX_ID, BASE_MINOR_VERSION ) );
+                with( RECORD_SIZE, formatVersion, BASE_TX_ID, BASE_MINOR_VERSION ) );
     }
 
     public boolean acceptTx( long txId )
@@ -241,6 +251,17 @@ public class CountsTracker implements CountsVisitor.Visitable, AutoCloseable, Co
         return state.indexSample( indexSampleKey( labelId, propertyKeyId ), target );
     }
 
+    @Override
+    public DoubleLongRegister indexSketch( int labelId, int propertyKeyId, int slot, DoubleLongRegister target )
+    {
+        if ( !indexSketches )
+        {
+            target.write( 0, 0 );
+            return target;
+        }
+        return state.indexSketch( indexSketchKey( labelId, propertyKeyId, slot ), target );
+    }
+
     @Override
     public void replaceIndexUpdateAndSize( int labelId, int propertyKeyId, long updates, long size )
     {
@@ -268,6 +289,19 @@ public class CountsTracker implements CountsVisitor.Visitable, AutoCloseable, Co
         }
     }
 
+    @Override
+    public void replaceIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+    {
+        if ( !indexSketches )
+        {
+            return;
+        }
+        try ( @SuppressWarnings( "UnusedDeclaration" ) LockWrapper _ = new LockWrapper( updateLock.readLock() ) )
+        {
+            state.replaceIndexSketch( indexSketchKey( labelId, propertyKeyId, slot ), first, second );
+        }
+    }
+
     @Override
     public void accept( final CountsVisitor visitor )
     {
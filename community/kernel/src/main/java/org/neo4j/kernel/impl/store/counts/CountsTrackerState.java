@@ -26,6 +26,7 @@ import java.io.IOException;
 import org.neo4j.kernel.impl.store.counts.keys.CountsKey;
 import org.neo4j.kernel.impl.store.counts.keys.IndexCountsKey;
 import org.neo4j.kernel.impl.store.counts.keys.IndexSampleKey;
+import org.neo4j.kernel.impl.store.counts.keys.IndexSketchKey;
 import org.neo4j.kernel.impl.store.counts.keys.NodeKey;
 import org.neo4j.kernel.impl.store.counts.keys.RelationshipKey;
 import org.neo4j.kernel.impl.store.kvstore.KeyValueRecordVisitor;
@@ -63,6 +64,12 @@ interface CountsTrackerState extends Closeable
      */
     DoubleLongRegister indexSample( IndexSampleKey indexSampleKey, DoubleLongRegister target );
 
+    /**
+     * @param target a register to store the read values in
+     * @return the input register for convenience
+     */
+    DoubleLongRegister indexSketch( IndexSketchKey indexSketchKey, DoubleLongRegister target );
+
     void incrementNodeCount( NodeKey nodeKey, long delta );
 
     void incrementRelationshipCount( RelationshipKey relationshipKey, long delta );
@@ -73,6 +80,8 @@ interface CountsTrackerState extends Closeable
 
     void replaceIndexSample( IndexSampleKey indexSampleKey, long unique, long size );
 
+    void replaceIndexSketch( IndexSketchKey indexSketchKey, long first, long second );
+
     File storeFile();
 
     SortedKeyValueStore.Writer<CountsKey, CopyableDoubleLongRegister> newWriter( File file, long lastCommittedTxId )
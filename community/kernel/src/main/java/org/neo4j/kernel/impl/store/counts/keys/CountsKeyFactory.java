@@ -40,4 +40,9 @@ public class CountsKeyFactory
     {
         return new IndexSampleKey( labelId, propertyKeyId );
     }
+
+    public static IndexSketchKey indexSketchKey( int labelId, int propertyKeyId, int slot )
+    {
+        return new IndexSketchKey( labelId, propertyKeyId, slot );
+    }
 }
@@ -21,7 +21,7 @@ package org.neo4j.kernel.impl.store.counts.keys;
 
 public enum CountsKeyType
 {
-    EMPTY( 0 ), ENTITY_NODE( 2 ), ENTITY_RELATIONSHIP( 3 ), INDEX_COUNTS( 4 ), INDEX_SAMPLE( 5 );
+    EMPTY( 0 ), ENTITY_NODE( 2 ), ENTITY_RELATIONSHIP( 3 ), INDEX_COUNTS( 4 ), INDEX_SAMPLE( 5 ), INDEX_SKETCH( 6 );
 
     public final byte code;
 
@@ -39,6 +39,7 @@ public enum CountsKeyType
             case 3: return ENTITY_RELATIONSHIP;
             case 4: return INDEX_COUNTS;
             case 5: return INDEX_SAMPLE;
+            case 6: return INDEX_SKETCH;
 
             default:
                 throw new IllegalArgumentException( "Invalid counts record type code: " + code );
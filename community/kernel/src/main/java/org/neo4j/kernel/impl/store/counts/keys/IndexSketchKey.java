@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.counts.keys;
+
+import org.neo4j.kernel.impl.api.CountsVisitor;
+
+import static org.neo4j.kernel.impl.util.IdPrettyPrinter.label;
+import static org.neo4j.kernel.impl.util.IdPrettyPrinter.propertyKey;
+
+/**
+ * The value sketch of an index is too large for one record, and is split into a number of slots, one record each.
+ */
+public final class IndexSketchKey extends IndexKey
+{
+    private final int slot;
+
+    IndexSketchKey( int labelId, int propertyKeyId, int slot )
+    {
+        super( labelId, propertyKeyId, CountsKeyType.INDEX_SKETCH );
+        this.slot = slot;
+    }
+
+    public int slot()
+    {
+        return slot;
+    }
+
+    @Override
+    public void accept( CountsVisitor visitor, long first, long second )
+    {
+        visitor.visitIndexSketch( labelId(), propertyKeyId(), slot, first, second );
+    }
+
+    @Override
+    public int compareTo( CountsKey other )
+    {
+        if ( other instanceof IndexSketchKey )
+        {
+            IndexSketchKey that = (IndexSketchKey) other;
+            int cmp = this.labelId() - that.labelId();
+            if ( cmp == 0 )
+            {
+                cmp = this.propertyKeyId() - that.propertyKeyId();
+            }
+            if ( cmp == 0 )
+            {
+                cmp = this.slot - that.slot;
+            }
+            return cmp;
+        }
+        else
+        {
+            return recordType().ordinal() - other.recordType().ordinal();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "IndexKey[%s (%s {%s}) slot %d]", recordType().name(), label( labelId() ),
+                propertyKey( propertyKeyId() ), slot );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * super.hashCode() + slot;
+    }
+
+    @Override
+    public boolean equals( Object other )
+    {
+        return super.equals( other ) && slot == ((IndexSketchKey) other).slot;
+    }
+}
@@ -147,6 +147,11 @@ public abstract class SortedKeyValueStore<K extends Comparable<K>, VR> implement
         return header.minorVersion();
     }
 
+    public String storeFormatVersion()
+    {
+        return header.storeFormatVersion();
+    }
+
     public long totalRecordsStored()
     {
         return header.dataRecords();
@@ -20,6 +20,7 @@
 package org.neo4j.kernel.impl.store.record;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.neo4j.graphdb.Label;
 import org.neo4j.helpers.UTF8;
@@ -35,7 +36,7 @@ public class IndexRule extends AbstractSchemaRule
 {
     private static final long NO_OWNING_CONSTRAINT = -1;
     private final SchemaIndexProvider.Descriptor providerDescriptor;
-    private final int propertyKey;
+    private final int[] propertyKeys;
     /**
      * Non-null for constraint indexes, equal to {@link #NO_OWNING_CONSTRAINT} for
      * constraint indexes with no owning constraint record.
@@ -45,15 +46,15 @@ public class IndexRule extends AbstractSchemaRule
     static IndexRule readIndexRule( long id, boolean constraintIndex, int label, ByteBuffer serialized )
     {
         SchemaIndexProvider.Descriptor providerDescriptor = readProviderDescriptor( serialized );
-        int propertyKeyId = readPropertyKey( serialized );
+        int[] propertyKeyIds = readPropertyKeys( serialized );
         if ( constraintIndex )
         {
             long owningConstraint = readOwningConstraint( serialized );
-            return constraintIndexRule( id, label, propertyKeyId, providerDescriptor, owningConstraint );
+            return constraintIndexRule( id, label, propertyKeyIds[0], providerDescriptor, owningConstraint );
         }
         else
         {
-            return indexRule( id, label, propertyKeyId, providerDescriptor );
+            return indexRule( id, label, propertyKeyIds, providerDescriptor );
         }
     }
 
@@ -63,6 +64,15 @@ public class IndexRule extends AbstractSchemaRule
         return new IndexRule( id, label, propertyKeyId, providerDescriptor, null );
     }
 
+    /**
+     * @return the rule of a composite index, over all the given properties.
+     */
+    public static IndexRule indexRule( long id, int label, int[] propertyKeyIds,
+                                       SchemaIndexProvider.Descriptor providerDescriptor )
+    {
+        return new IndexRule( id, label, propertyKeyIds, providerDescriptor, null );
+    }
+
     public static IndexRule constraintIndexRule( long id, int label, int propertyKeyId,
                                                  SchemaIndexProvider.Descriptor providerDescriptor,
                                                  Long owningConstraint )
@@ -73,6 +83,12 @@ public class IndexRule extends AbstractSchemaRule
 
     public IndexRule( long id, int label, int propertyKey, SchemaIndexProvider.Descriptor providerDescriptor,
                        Long owningConstraint )
+    {
+        this( id, label, new int[]{propertyKey}, providerDescriptor, owningConstraint );
+    }
+
+    private IndexRule( long id, int label, int[] propertyKeys, SchemaIndexProvider.Descriptor providerDescriptor,
+                       Long owningConstraint )
     {
         super( id, label, indexKind( owningConstraint ) );
         this.owningConstraint = owningConstraint;
@@ -83,7 +99,7 @@ public class IndexRule extends AbstractSchemaRule
         }
 
         this.providerDescriptor = providerDescriptor;
-        this.propertyKey = propertyKey;
+        this.propertyKeys = propertyKeys.clone();
     }
 
     private static Kind indexKind( Long owningConstraint )
@@ -98,14 +114,16 @@ public class IndexRule extends AbstractSchemaRule
         return new SchemaIndexProvider.Descriptor( providerKey, providerVersion );
     }
 
-    private static int readPropertyKey( ByteBuffer serialized )
+    private static int[] readPropertyKeys( ByteBuffer serialized )
     {
-        // Currently only one key is supported although the data format supports multiple
-        int count = serialized.getShort();
-        assert count == 1;
-
-        // Changed from being a long to an int 2013-09-10, but keeps reading a long to not change the store format.
-        return safeCastLongToInt( serialized.getLong() );
+        // One key, unless this is the rule of a composite index
+        int[] propertyKeys = new int[serialized.getShort()];
+        for ( int i = 0; i < propertyKeys.length; i++ )
+        {
+            // Changed from being a long to an int 2013-09-10, but keeps reading a long to not change the store format.
+            propertyKeys[i] = safeCastLongToInt( serialized.getLong() );
+        }
+        return propertyKeys;
     }
 
     private static long readOwningConstraint( ByteBuffer serialized )
@@ -118,9 +136,27 @@ public class IndexRule extends AbstractSchemaRule
         return providerDescriptor;
     }
 
+    /**
+     * @return the property key of a single property index.
+     * @throws UnsupportedOperationException if this is a composite index, see {@link #getPropertyKeys()}.
+     */
     public int getPropertyKey()
     {
-        return propertyKey;
+        if ( isComposite() )
+        {
+            throw new UnsupportedOperationException( this + " is a composite index, of more than one property key" );
+        }
+        return propertyKeys[0];
+    }
+
+    public int[] getPropertyKeys()
+    {
+        return propertyKeys.clone();
+    }
+
+    public boolean isComposite()
+    {
+        return propertyKeys.length > 1;
     }
 
     public boolean isConstraintIndex()
@@ -147,8 +183,8 @@ public class IndexRule extends AbstractSchemaRule
         return super.length()
                + UTF8.computeRequiredByteBufferSize( providerDescriptor.getKey() )
                + UTF8.computeRequiredByteBufferSize( providerDescriptor.getVersion() )
-               + 2 * 1                              /* number of property keys, for now always 1 */
-               + 8                                  /* the property keys */
+               + 2                                  /* number of property keys */
+               + 8 * propertyKeys.length            /* the property keys */
                + (isConstraintIndex() ? 8 : 0)      /* constraint indexes have an owner field */;
     }
 
@@ -158,8 +194,11 @@ public class IndexRule extends AbstractSchemaRule
         super.serialize( target );
         UTF8.putEncodedStringInto( providerDescriptor.getKey(), target );
         UTF8.putEncodedStringInto( providerDescriptor.getVersion(), target );
-        target.putShort( (short) 1 /*propertyKeys.length*/ );
-        target.putLong( propertyKey );
+        target.putShort( (short) propertyKeys.length );
+        for ( int propertyKey : propertyKeys )
+        {
+            target.putLong( propertyKey );
+        }
         if ( isConstraintIndex() )
         {
             target.putLong( owningConstraint );
@@ -170,7 +209,7 @@ public class IndexRule extends AbstractSchemaRule
     public int hashCode()
     {
         // TODO: Think if this needs to be extended with providerDescriptor
-        return 31 * super.hashCode() + propertyKey;
+        return 31 * super.hashCode() + Arrays.hashCode( propertyKeys );
     }
 
     @Override
@@ -189,14 +228,14 @@ public class IndexRule extends AbstractSchemaRule
             return false;
         }
         IndexRule other = (IndexRule) obj;
-        return propertyKey == other.propertyKey;
+        return Arrays.equals( propertyKeys, other.propertyKeys );
     }
 
     @Override
     protected String innerToString()
     {
         StringBuilder result = new StringBuilder( ", provider=" ).append( providerDescriptor ).append( ", properties=" )
-                                                                 .append( propertyKey );
+                                                                 .append( propertyKeysToString() );
         if ( owningConstraint != null )
         {
             result.append( ", owner=" );
@@ -212,6 +251,15 @@ public class IndexRule extends AbstractSchemaRule
         return result.toString();
     }
 
+    private String propertyKeysToString()
+    {
+        if ( propertyKeys.length == 1 )
+        {
+            return String.valueOf( propertyKeys[0] );
+        }
+        return Arrays.toString( propertyKeys );
+    }
+
     public IndexRule withOwningConstraint( long constraintId )
     {
         if ( !isConstraintIndex() )
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.storemigration;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.DefaultIdGeneratorFactory;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.store.CommonAbstractStore;
+import org.neo4j.kernel.impl.store.InlinePropertiesNodeStore;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.NeoStore.Position;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.StoreFactory;
+import org.neo4j.kernel.impl.store.record.NeoStoreUtil;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.store.record.Record;
+import org.neo4j.kernel.monitoring.Monitors;
+
+import static org.neo4j.helpers.collection.Iterables.iterable;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+import static org.neo4j.kernel.impl.store.NeoStore.DEFAULT_NAME;
+import static org.neo4j.kernel.impl.storemigration.FileOperation.MOVE;
+import static org.neo4j.kernel.impl.util.StringLogger.DEV_NULL;
+
+/**
+ * Rewrites the node store when its records aren't in the format asked for by
+ * {@link StoreFactory.Configuration#inline_node_properties}, i.e. copies the first property record of every node
+ * into its node record when going to the {@link InlinePropertiesNodeStore} format, or leaves them out when going
+ * back.
+ * <p/>
+ * Stores of an older version are first upgraded by {@link StoreMigrator}, to the standard format, and have their
+ * node records rewritten the next time the database starts.
+ */
+public class NodeRecordFormatMigrator implements StoreMigrationParticipant
+{
+    private final FileSystemAbstraction fileSystem;
+    private final Config config;
+
+    public NodeRecordFormatMigrator( FileSystemAbstraction fileSystem, Config config )
+    {
+        this.fileSystem = fileSystem;
+        this.config = config;
+    }
+
+    @Override
+    public boolean needsMigration( File storeDir ) throws IOException
+    {
+        NeoStoreUtil neoStoreUtil = new NeoStoreUtil( storeDir, fileSystem );
+        String versionAsString = NeoStore.versionLongToString( neoStoreUtil.getStoreVersion() );
+        if ( !CommonAbstractStore.ALL_STORES_VERSION.equals( versionAsString ) )
+        {
+            return false;
+        }
+        File nodeStore = new File( storeDir, DEFAULT_NAME + StoreFactory.NODE_STORE_NAME );
+        File neoStore = new File( storeDir, DEFAULT_NAME );
+        return StoreFactory.nodeStoreInlinesProperties( fileSystem, nodeStore, neoStore ) != inlineProperties();
+    }
+
+    @Override
+    public void migrate( File storeDir, File migrationDir, SchemaIndexProvider schemaIndexProvider,
+                         PageCache pageCache ) throws IOException
+    {
+        boolean inlineProperties = inlineProperties();
+        StoreFactory sourceFactory = storeFactory( storeDir, pageCache );
+        StoreFactory targetFactory = storeFactory( migrationDir, pageCache );
+        targetFactory.createNodeStore();
+        try ( NodeStore source = sourceFactory.newNodeStore();
+              PropertyStore propertyStore = sourceFactory.newPropertyStore();
+              NodeStore target = targetFactory.newNodeStore() )
+        {
+            long highId = source.getHighId();
+            target.setHighId( highId );
+            for ( long id = 0; id < highId; id++ )
+            {
+                NodeRecord record = source.forceGetRecord( id );
+                if ( !record.inUse() )
+                {
+                    continue;
+                }
+                target.updateRecord( record );
+                if ( inlineProperties && record.getNextProp() != Record.NO_NEXT_PROPERTY.intValue() )
+                {
+                    PropertyRecord first = propertyStore.getRecord( record.getNextProp() );
+                    first.setNodeId( id );
+                    target.updateInlinedPropertyRecord( first );
+                }
+            }
+        }
+    }
+
+    @Override
+    public void moveMigratedFiles( File migrationDir, File storeDir ) throws IOException
+    {
+        // Record the format first. Until the node store is moved its trailer still tells its actual format.
+        NeoStore.setRecord( fileSystem, new File( storeDir, DEFAULT_NAME ), Position.NODE_RECORD_FORMAT,
+                inlineProperties() ? InlinePropertiesNodeStore.RECORD_FORMAT : NodeStore.RECORD_FORMAT );
+
+        // Node ids are the same, so keep the existing id file
+        StoreFile.fileOperation( MOVE, fileSystem, migrationDir, storeDir, iterable( StoreFile.NODE_STORE ),
+                true, // allow to skip non existent source files
+                true, // allow to overwrite target files
+                StoreFileType.STORE );
+    }
+
+    @Override
+    public void cleanup( File migrationDir ) throws IOException
+    {
+        fileSystem.deleteRecursively( migrationDir );
+    }
+
+    @Override
+    public void close()
+    { // nothing to do
+    }
+
+    private boolean inlineProperties()
+    {
+        return config.get( StoreFactory.Configuration.inline_node_properties );
+    }
+
+    private StoreFactory storeFactory( File storeDir, PageCache pageCache )
+    {
+        Config storeConfig = new Config( stringMap( StoreFactory.Configuration.inline_node_properties.name(),
+                String.valueOf( inlineProperties() ) ) );
+        return new StoreFactory( StoreFactory.configForStoreDir( storeConfig, storeDir ),
+                new DefaultIdGeneratorFactory(), pageCache, fileSystem, DEV_NULL, new Monitors() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Kernel node record format migrator";
+    }
+}
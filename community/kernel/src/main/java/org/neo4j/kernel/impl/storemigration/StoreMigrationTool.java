@@ -76,6 +76,7 @@ public class StoreMigrationTool
             migrationProcess.addParticipant( new StoreMigrator(
                     new VisibleMigrationProgressMonitor( logging.getMessagesLog( StoreMigrationTool.class ), System.out ),
                     fs, new UpgradableDatabase( new StoreVersionCheck( fs ) ), config, logging ) );
+            migrationProcess.addParticipant( new NodeRecordFormatMigrator( fs, config ) );
             migrationProcess.addParticipant( schemaIndexProvider.storeMigrationParticipant() );
         }
         catch ( IllegalArgumentException e )
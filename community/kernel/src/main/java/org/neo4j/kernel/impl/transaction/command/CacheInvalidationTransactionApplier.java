@@ -28,6 +28,7 @@ import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.PropertyKeyTokenStore;
 import org.neo4j.kernel.impl.store.RelationshipStore;
 import org.neo4j.kernel.impl.store.RelationshipTypeTokenStore;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
 import org.neo4j.kernel.impl.store.record.RelationshipRecord;
 import org.neo4j.kernel.impl.transaction.command.Command.LabelTokenCommand;
 import org.neo4j.kernel.impl.transaction.command.Command.NeoStoreCommand;
@@ -127,7 +128,16 @@ public class CacheInvalidationTransactionApplier extends NeoCommandHandler.Adapt
     @Override
     public boolean visitRelationshipGroupCommand( RelationshipGroupCommand command ) throws IOException
     {
-        return delegate.visitRelationshipGroupCommand( command );
+        delegate.visitRelationshipGroupCommand( command );
+
+        // A changed group means that the relationships, and with them the degrees, of its dense node changed
+        RelationshipGroupRecord record = command.getRecord();
+        if ( record.inUse() )
+        {
+            cacheAccess.removeNodeFromCache( record.getOwningNode() );
+        }
+
+        return false;
     }
 
     @Override
@@ -69,6 +69,7 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
     private final Map<Long,NodeCommand> nodeCommands = new HashMap<>();
     private final Map<Long,List<PropertyCommand>> propertyCommands = new HashMap<>();
     private final List<NodeLabelUpdate> labelUpdates = new ArrayList<>();
+    private final List<IndexRule> createdIndexes = new ArrayList<>();
 
     private final IndexingService indexingService;
     private final NodeStore nodeStore;
@@ -96,6 +97,12 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
     @Override
     public void apply()
     {
+        if ( !createdIndexes.isEmpty() )
+        {
+            // Indexes created together are populated together, from one scan of the store
+            indexingService.createIndexes( createdIndexes.toArray( new IndexRule[createdIndexes.size()] ) );
+        }
+
         if ( !labelUpdates.isEmpty() )
         {
             updateLabelScanStore();
@@ -209,7 +216,7 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
                 }
                 break;
             case CREATE:
-                indexingService.createIndex( (IndexRule) command.getSchemaRule() );
+                createdIndexes.add( (IndexRule) command.getSchemaRule() );
                 break;
             case DELETE:
                 indexingService.dropIndex( (IndexRule) command.getSchemaRule() );
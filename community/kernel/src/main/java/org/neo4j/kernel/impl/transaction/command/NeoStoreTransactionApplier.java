@@ -118,6 +118,7 @@ public class NeoStoreTransactionApplier extends NeoCommandHandler.Adapter
         // track the dynamic value record high ids
         // update store
         neoStore.getPropertyStore().updateRecord( command.getAfter() );
+        neoStore.getNodeStore().updateInlinedPropertyRecord( command.getAfter() );
         return false;
     }
 
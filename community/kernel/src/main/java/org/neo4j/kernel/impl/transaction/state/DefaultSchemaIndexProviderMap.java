@@ -19,16 +19,37 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 
+import static java.util.Collections.singletonList;
+
 public class DefaultSchemaIndexProviderMap implements SchemaIndexProviderMap
 {
     private final SchemaIndexProvider indexProvider;
+    private final Map<String,SchemaIndexProvider> indexProviders = new HashMap<>();
 
     public DefaultSchemaIndexProviderMap( SchemaIndexProvider indexProvider )
+    {
+        this( indexProvider, singletonList( indexProvider ) );
+    }
+
+    /**
+     * @param indexProvider the provider of new indexes.
+     * @param additionalProviders other providers, which existing indexes may have been created by.
+     */
+    public DefaultSchemaIndexProviderMap( SchemaIndexProvider indexProvider,
+                                          Iterable<SchemaIndexProvider> additionalProviders )
     {
         this.indexProvider = indexProvider;
+        for ( SchemaIndexProvider provider : additionalProviders )
+        {
+            indexProviders.put( provider.getProviderDescriptor().getKey(), provider );
+        }
+        indexProviders.put( indexProvider.getProviderDescriptor().getKey(), indexProvider );
     }
 
     @Override
@@ -40,11 +61,15 @@ public class DefaultSchemaIndexProviderMap implements SchemaIndexProviderMap
     @Override
     public SchemaIndexProvider apply( SchemaIndexProvider.Descriptor descriptor )
     {
-        if ( indexProvider.getProviderDescriptor().getKey().equals( descriptor.getKey() ) )
-            return indexProvider;
+        SchemaIndexProvider provider = indexProviders.get( descriptor.getKey() );
+        if ( provider != null )
+        {
+            return provider;
+        }
 
         throw new IllegalArgumentException( "Tried to get index provider for an existing index with provider " +
-                descriptor + " whereas the default and only supported provider in this session is " +
-                indexProvider.getProviderDescriptor() );
+                descriptor + " whereas the default provider in this session is " +
+                indexProvider.getProviderDescriptor() + " and the supported providers are " +
+                indexProviders.keySet() );
     }
 }
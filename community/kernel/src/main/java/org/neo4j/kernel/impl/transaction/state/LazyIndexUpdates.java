@@ -23,6 +23,7 @@ import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.remove;
 import static org.neo4j.kernel.impl.store.NodeLabelsField.parseLabelsField;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,8 +34,10 @@ import java.util.Set;
 
 import org.neo4j.helpers.Pair;
 import org.neo4j.helpers.collection.Iterables;
+import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.properties.DefinedProperty;
+import org.neo4j.kernel.impl.api.index.CompositeIndexUpdates;
 import org.neo4j.kernel.impl.api.index.IndexUpdates;
 import org.neo4j.kernel.impl.api.index.UpdateMode;
 import org.neo4j.kernel.impl.core.IteratingPropertyReceiver;
@@ -52,6 +55,8 @@ public class LazyIndexUpdates implements IndexUpdates
     private final Map<Long, List<PropertyCommand>> propCommands;
     private final Map<Long, NodeCommand> nodeCommands;
     private Collection<NodePropertyUpdate> updates;
+    // The updates from the property commands, by node and property key, for looking up the values before and after
+    private Map<Pair<Long, Integer>, NodePropertyUpdate> propertyChanges;
     private final PropertyLoader propertyLoader;
 
     public LazyIndexUpdates( NodeStore nodeStore,
@@ -77,6 +82,103 @@ public class LazyIndexUpdates implements IndexUpdates
         return updates.iterator();
     }
 
+    @Override
+    public Iterable<NodePropertyUpdate> compositeUpdates( IndexDescriptor descriptor )
+    {
+        if ( updates == null )
+        {
+            updates = gatherPropertyAndLabelUpdates();
+        }
+
+        int[] propertyKeyIds = descriptor.getPropertyKeyIds();
+        Collection<NodePropertyUpdate> compositeUpdates = new ArrayList<>();
+        for ( long nodeId : changedNodeIds() )
+        {
+            boolean propertiesChanged = false;
+            for ( int propertyKeyId : propertyKeyIds )
+            {
+                propertiesChanged |= propertyChanges.containsKey( Pair.of( nodeId, propertyKeyId ) );
+            }
+            NodeCommand nodeCommand = nodeCommands.get( nodeId );
+            if ( nodeCommand == null && !propertiesChanged )
+            {
+                continue;
+            }
+
+            long[] labelsBefore, labelsAfter;
+            if ( nodeCommand != null )
+            {
+                labelsBefore = parseLabelsField( nodeCommand.getBefore() ).get( nodeStore );
+                labelsAfter = nodeCommand.getMode() == Mode.DELETE ? NodePropertyUpdate.EMPTY_LONG_ARRAY :
+                              parseLabelsField( nodeCommand.getAfter() ).get( nodeStore );
+            }
+            else
+            {
+                // See gatherUpdatesFromPropertyCommands for why the node may have been deleted by now
+                NodeRecord nodeRecord = nodeStore.forceGetRecord( nodeId );
+                if ( !nodeRecord.inUse() )
+                {
+                    continue;
+                }
+                labelsBefore = labelsAfter = parseLabelsField( nodeRecord ).get( nodeStore );
+            }
+            boolean labelledBefore = contains( labelsBefore, descriptor.getLabelId() );
+            boolean labelledAfter = contains( labelsAfter, descriptor.getLabelId() );
+            if ( !(propertiesChanged ? labelledBefore || labelledAfter : labelledBefore != labelledAfter) )
+            {
+                continue;
+            }
+
+            Object[] valuesBefore = new Object[propertyKeyIds.length];
+            Object[] valuesAfter = new Object[propertyKeyIds.length];
+            Map<Integer, Object> unchangedValues = null;
+            for ( int i = 0; i < propertyKeyIds.length; i++ )
+            {
+                NodePropertyUpdate change = propertyChanges.get( Pair.of( nodeId, propertyKeyIds[i] ) );
+                if ( change != null )
+                {
+                    valuesBefore[i] = change.getUpdateMode() == UpdateMode.ADDED ? null : change.getValueBefore();
+                    valuesAfter[i] = change.getUpdateMode() == UpdateMode.REMOVED ? null : change.getValueAfter();
+                }
+                else
+                {
+                    // Properties of deleted nodes are all removed by their property commands, so the node exists
+                    if ( unchangedValues == null )
+                    {
+                        unchangedValues = new HashMap<>();
+                        Iterator<DefinedProperty> properties = nodeFullyLoadProperties( nodeId );
+                        while ( properties.hasNext() )
+                        {
+                            DefinedProperty property = properties.next();
+                            unchangedValues.put( property.propertyKeyId(), property.value() );
+                        }
+                    }
+                    valuesBefore[i] = valuesAfter[i] = unchangedValues.get( propertyKeyIds[i] );
+                }
+            }
+
+            NodePropertyUpdate update = CompositeIndexUpdates.update( descriptor, nodeId,
+                    labelsBefore, valuesBefore, labelsAfter, valuesAfter );
+            if ( update != null )
+            {
+                compositeUpdates.add( update );
+            }
+        }
+        return compositeUpdates;
+    }
+
+    private static boolean contains( long[] labels, long labelId )
+    {
+        for ( long candidate : labels )
+        {
+            if ( candidate == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Set<Long> changedNodeIds()
     {
@@ -88,7 +190,7 @@ public class LazyIndexUpdates implements IndexUpdates
     private Collection<NodePropertyUpdate> gatherPropertyAndLabelUpdates()
     {
         Collection<NodePropertyUpdate> propertyUpdates = new HashSet<>();
-        Map<Pair<Long, Integer>, NodePropertyUpdate> propertyChanges = new HashMap<>();
+        propertyChanges = new HashMap<>();
         gatherUpdatesFromPropertyCommands( propertyUpdates, propertyChanges );
         gatherUpdatesFromNodeCommands( propertyUpdates, propertyChanges );
         return propertyUpdates;
@@ -135,10 +237,7 @@ public class LazyIndexUpdates implements IndexUpdates
 
         for ( NodePropertyUpdate update : updates )
         {
-            if ( update.getUpdateMode() == UpdateMode.CHANGED )
-            {
-                propertyLookup.put( Pair.of( update.getNodeId(), update.getPropertyKeyId() ), update );
-            }
+            propertyLookup.put( Pair.of( update.getNodeId(), update.getPropertyKeyId() ), update );
         }
     }
 
@@ -172,7 +271,8 @@ public class LazyIndexUpdates implements IndexUpdates
                 if ( summary.hasRemovedLabels() )
                 {
                     NodePropertyUpdate propertyChange = propertyLookup.get( Pair.of( nodeId, propertyKeyId ) );
-                    Object value = propertyChange == null ? property.value() : propertyChange.getValueBefore();
+                    Object value = propertyChange == null || propertyChange.getUpdateMode() != UpdateMode.CHANGED ?
+                                   property.value() : propertyChange.getValueBefore();
                     propertyUpdates.add( remove( nodeId, propertyKeyId, value, summary.getRemovedLabels() ) );
                 }
             }
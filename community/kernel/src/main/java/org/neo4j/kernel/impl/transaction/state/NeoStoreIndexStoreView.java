@@ -22,6 +22,8 @@ package org.neo4j.kernel.impl.transaction.state;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.helpers.collection.Iterables;
@@ -35,15 +37,19 @@ import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.impl.api.index.CompositeIndexUpdates;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.kernel.impl.api.index.NodeRangeScan;
 import org.neo4j.kernel.impl.api.index.StoreScan;
 import org.neo4j.kernel.impl.locking.Lock;
 import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.SchemaStorage;
 import org.neo4j.kernel.impl.store.StoreIdIterator;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
+import org.neo4j.kernel.impl.store.record.IndexRule;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.store.record.PropertyBlock;
 import org.neo4j.kernel.impl.store.record.PropertyRecord;
@@ -54,33 +60,52 @@ import org.neo4j.register.Register.DoubleLongRegister;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.EMPTY_LONG_ARRAY;
 import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
 import static org.neo4j.kernel.impl.store.NodeLabelsField.parseLabelsField;
+import static org.neo4j.kernel.impl.store.SchemaStorage.IndexRuleKind.ALL;
+import static org.neo4j.register.Registers.newDoubleLongRegister;
 
 public class NeoStoreIndexStoreView implements IndexStoreView
 {
+    /** The counts key of a composite index whose rule could not be found, which no rule id maps to. */
+    private static final int UNKNOWN_COMPOSITE_COUNTS_KEY = Integer.MIN_VALUE;
+
     private final PropertyStore propertyStore;
     private final NodeStore nodeStore;
     private final LockService locks;
     private final CountsTracker counts;
     private final TransactionIdStore txIdStore;
+    private final SchemaStorage schemaStorage;
+    private final ConcurrentMap<IndexDescriptor,Integer> compositeCountsKeys = new ConcurrentHashMap<>();
 
     public NeoStoreIndexStoreView( LockService locks, NeoStore neoStore )
     {
-        this( locks, neoStore.getNodeStore(), neoStore.getPropertyStore(), neoStore.getCounts(), neoStore  );
+        this( locks, neoStore.getNodeStore(), neoStore.getPropertyStore(), neoStore.getCounts(), neoStore,
+                new SchemaStorage( neoStore.getSchemaStore() ) );
     }
 
     public NeoStoreIndexStoreView( LockService locks, NodeStore nodeStore, PropertyStore propertyStore, CountsTracker counts, TransactionIdStore txIdStore )
+    {
+        this( locks, nodeStore, propertyStore, counts, txIdStore, null );
+    }
+
+    /**
+     * @param schemaStorage to look up the rules of composite indexes with, which may be {@code null} when there are
+     * no composite indexes.
+     */
+    public NeoStoreIndexStoreView( LockService locks, NodeStore nodeStore, PropertyStore propertyStore,
+                                   CountsTracker counts, TransactionIdStore txIdStore, SchemaStorage schemaStorage )
     {
         this.locks = locks;
         this.propertyStore = propertyStore;
         this.nodeStore = nodeStore;
         this.counts = counts;
         this.txIdStore = txIdStore;
+        this.schemaStorage = schemaStorage;
     }
 
     @Override
     public DoubleLongRegister indexUpdatesAndSize( IndexDescriptor descriptor, DoubleLongRegister output )
     {
-        return counts.indexUpdatesAndSize( descriptor.getLabelId(), descriptor.getPropertyKeyId(), output );
+        return counts.indexUpdatesAndSize( descriptor.getLabelId(), countsKeyOf( descriptor ), output );
     }
 
     @Override
@@ -88,29 +113,85 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                                     long uniqueElements, long maxUniqueElements, long indexSize )
     {
         int labelId = descriptor.getLabelId();
-        int propertyKeyId = descriptor.getPropertyKeyId();
+        int propertyKeyId = countsKeyOf( descriptor );
         counts.replaceIndexSample( labelId, propertyKeyId, uniqueElements, maxUniqueElements );
         counts.replaceIndexUpdateAndSize( labelId, propertyKeyId, 0l, indexSize );
     }
 
+    @Override
+    public void replaceIndexSample( IndexDescriptor descriptor,
+                                    long uniqueElements, long maxUniqueElements, long indexSize )
+    {
+        int labelId = descriptor.getLabelId();
+        int propertyKeyId = countsKeyOf( descriptor );
+        long updates = counts.indexUpdatesAndSize( labelId, propertyKeyId, newDoubleLongRegister() ).readFirst();
+        counts.replaceIndexSample( labelId, propertyKeyId, uniqueElements, maxUniqueElements );
+        counts.replaceIndexUpdateAndSize( labelId, propertyKeyId, updates, indexSize );
+    }
+
+    @Override
+    public DoubleLongRegister indexSketch( IndexDescriptor descriptor, int slot, DoubleLongRegister output )
+    {
+        return counts.indexSketch( descriptor.getLabelId(), countsKeyOf( descriptor ), slot, output );
+    }
+
+    @Override
+    public void replaceIndexSketch( IndexDescriptor descriptor, int slot, long first, long second )
+    {
+        counts.replaceIndexSketch( descriptor.getLabelId(), countsKeyOf( descriptor ), slot, first, second );
+    }
+
     @Override
     public void incrementIndexUpdates( IndexDescriptor descriptor, long updatesDelta )
     {
-        counts.incrementIndexUpdates( descriptor.getLabelId(), descriptor.getPropertyKeyId(), updatesDelta );
+        counts.incrementIndexUpdates( descriptor.getLabelId(), countsKeyOf( descriptor ), updatesDelta );
     }
 
     @Override
     public DoubleLongRegister indexSample( IndexDescriptor descriptor, DoubleLongRegister output )
     {
-        return counts.indexSample( descriptor.getLabelId(), descriptor.getPropertyKeyId(), output );
+        return counts.indexSample( descriptor.getLabelId(), countsKeyOf( descriptor ), output );
+    }
+
+    /**
+     * The counts of an index are keyed by its label and property key. Composite indexes are keyed by the negated id
+     * of their rule instead, minus one, which no other index shares and which never is a property key.
+     *
+     * The rule is looked up the first time the counts of a composite index are used, when the index is populated
+     * or when its sample is checked on startup, and the key is kept, since the rule has already been deleted from
+     * the schema store when the index is dropped.
+     */
+    private int countsKeyOf( IndexDescriptor descriptor )
+    {
+        if ( !descriptor.isComposite() )
+        {
+            return descriptor.getPropertyKeyId();
+        }
+        Integer key = compositeCountsKeys.get( descriptor );
+        if ( key == null )
+        {
+            IndexRule rule = schemaStorage == null ? null : schemaStorage.indexRule( descriptor, ALL );
+            if ( rule == null )
+            {
+                return UNKNOWN_COMPOSITE_COUNTS_KEY;
+            }
+            if ( rule.getId() >= Integer.MAX_VALUE )
+            {
+                throw new IllegalStateException( "Rule id " + rule.getId() + " of " + descriptor +
+                                                 " is too high for a counts key" );
+            }
+            key = (int) (-1 - rule.getId());
+            compositeCountsKeys.put( descriptor, key );
+        }
+        return key;
     }
 
     @Override
     public <FAILURE extends Exception> StoreScan<FAILURE> visitNodesWithPropertyAndLabel(
-            IndexDescriptor descriptor, final Visitor<NodePropertyUpdate, FAILURE> visitor )
+            final IndexDescriptor descriptor, final Visitor<NodePropertyUpdate, FAILURE> visitor )
     {
         final int soughtLabelId = descriptor.getLabelId();
-        final int soughtPropertyKeyId = descriptor.getPropertyKeyId();
+        final int[] soughtPropertyKeyIds = descriptor.getPropertyKeyIds();
         return new NodeStoreScan<NodePropertyUpdate, FAILURE>()
         {
             @Override
@@ -121,10 +202,16 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                 {
                     return null;
                 }
+                if ( descriptor.isComposite() )
+                {
+                    List<NodePropertyUpdate> updates = new ArrayList<>();
+                    readPropertyUpdates( node, labels, soughtPropertyKeyIds, updates );
+                    return CompositeIndexUpdates.added( descriptor, node.getId(), updates );
+                }
                 for ( PropertyBlock property : properties( node ) )
                 {
                     int propertyKeyId = property.getKeyIndexId();
-                    if ( soughtPropertyKeyId == propertyKeyId )
+                    if ( soughtPropertyKeyIds[0] == propertyKeyId )
                     {
                         return NodePropertyUpdate.add( node.getId(), propertyKeyId, valueOf( property ), labels );
                     }
@@ -153,22 +240,9 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             {
                 long[] labels = parseLabelsField( node ).get( nodeStore );
                 Update update = new Update( node.getId(), labels );
-                if ( !containsAnyLabel( labelIds, labels ) )
-                {
-                    return update;
-                }
-                properties: for ( PropertyBlock property : properties( node ) )
+                if ( containsAnyLabel( labelIds, labels ) )
                 {
-                    int propertyKeyId = property.getKeyIndexId();
-                    for ( int sought : propertyKeyIds )
-                    {
-                        if ( propertyKeyId == sought )
-                        {
-                            update.add( NodePropertyUpdate
-                                                .add( node.getId(), propertyKeyId, valueOf( property ), labels ) );
-                            continue properties;
-                        }
-                    }
+                    readPropertyUpdates( node, labels, propertyKeyIds, update.propertyUpdates );
                 }
                 return update;
             }
@@ -185,6 +259,60 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         };
     }
 
+    @Override
+    public <FAILURE extends Exception> NodeRangeScan<FAILURE> visitNodes(
+            final int[] labelIds, final int[] propertyKeyIds, long fromNodeId, long toNodeId,
+            final Visitor<NodePropertyUpdate, FAILURE> propertyUpdateVisitor )
+    {
+        return new NodeStoreScan<List<NodePropertyUpdate>, FAILURE>( fromNodeId, toNodeId )
+        {
+            @Override
+            protected List<NodePropertyUpdate> read( NodeRecord node )
+            {
+                long[] labels = parseLabelsField( node ).get( nodeStore );
+                if ( !containsAnyLabel( labelIds, labels ) )
+                {
+                    return null;
+                }
+                List<NodePropertyUpdate> updates = new ArrayList<>();
+                readPropertyUpdates( node, labels, propertyKeyIds, updates );
+                return updates.isEmpty() ? null : updates;
+            }
+
+            @Override
+            protected void process( List<NodePropertyUpdate> updates ) throws FAILURE
+            {
+                for ( NodePropertyUpdate update : updates )
+                {
+                    propertyUpdateVisitor.visit( update );
+                }
+            }
+        };
+    }
+
+    @Override
+    public long nodeHighId()
+    {
+        return nodeStore.getHighId();
+    }
+
+    private void readPropertyUpdates( NodeRecord node, long[] labels, int[] propertyKeyIds,
+                                      List<NodePropertyUpdate> target )
+    {
+        properties: for ( PropertyBlock property : properties( node ) )
+        {
+            int propertyKeyId = property.getKeyIndexId();
+            for ( int sought : propertyKeyIds )
+            {
+                if ( propertyKeyId == sought )
+                {
+                    target.add( NodePropertyUpdate.add( node.getId(), propertyKeyId, valueOf( property ), labels ) );
+                    continue properties;
+                }
+            }
+        }
+    }
+
     @Override
     public Iterable<NodePropertyUpdate> nodeAsUpdates( long nodeId )
     {
@@ -292,11 +420,6 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             this.labels = labelChanges( nodeId, EMPTY_LONG_ARRAY, labels );
         }
 
-        void add( NodePropertyUpdate update )
-        {
-            propertyUpdates.add( update );
-        }
-
         @Override
         public Iterator<NodePropertyUpdate> iterator()
         {
@@ -340,9 +463,24 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         }
     }
 
-    private abstract class NodeStoreScan<RESULT, FAILURE extends Exception> implements StoreScan<FAILURE>
+    private abstract class NodeStoreScan<RESULT, FAILURE extends Exception> implements NodeRangeScan<FAILURE>
     {
+        private final long fromNodeId;
+        private final long toNodeId;
         private volatile boolean continueScanning;
+        private volatile long position;
+
+        NodeStoreScan()
+        {
+            this( 0, Long.MAX_VALUE );
+        }
+
+        NodeStoreScan( long fromNodeId, long toNodeId )
+        {
+            this.fromNodeId = fromNodeId;
+            this.toNodeId = toNodeId;
+            this.position = fromNodeId;
+        }
 
         protected abstract RESULT read( NodeRecord node );
 
@@ -351,7 +489,7 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         @Override
         public void run() throws FAILURE
         {
-            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore );
+            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore, fromNodeId, toNodeId );
             continueScanning = true;
             while ( continueScanning && nodeIds.hasNext() )
             {
@@ -364,6 +502,7 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                     {
                         result = read( record );
                     }
+                    position = id + 1;
                 }
                 if ( result != null )
                 {
@@ -372,6 +511,12 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             }
         }
 
+        @Override
+        public long position()
+        {
+            return position;
+        }
+
         @Override
         public void stop()
         {
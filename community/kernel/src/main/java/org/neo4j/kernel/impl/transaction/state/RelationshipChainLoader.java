@@ -26,8 +26,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.neo4j.helpers.Pair;
-import org.neo4j.kernel.impl.api.DegreeVisitor;
 import org.neo4j.kernel.impl.core.DenseNodeChainPosition;
+import org.neo4j.kernel.impl.core.RelationshipGroupDegrees;
 import org.neo4j.kernel.impl.core.RelationshipLoadingPosition;
 import org.neo4j.kernel.impl.core.SingleChainPosition;
 import org.neo4j.kernel.impl.store.InvalidRecordException;
@@ -79,67 +79,72 @@ public class RelationshipChainLoader
         long position = loadPosition.position( direction, types );
         RelationshipRecord relRecord = null;
         boolean allocateNewRecord = true;
-        for ( int i = 0; i < relationshipGrabSize && position != Record.NO_NEXT_RELATIONSHIP.intValue(); i++ )
+        // Read the whole batch through one cursor, so that records of this chain that live in the same page
+        // are read without pinning that page again
+        try ( RelationshipStore.ChainCursor chainCursor = relationshipStore.newChainCursor() )
         {
-            if ( allocateNewRecord )
+            for ( int i = 0; i < relationshipGrabSize && position != Record.NO_NEXT_RELATIONSHIP.intValue(); i++ )
             {
-                relRecord = new RelationshipRecord( -1 );
-                allocateNewRecord = false;
-            }
+                if ( allocateNewRecord )
+                {
+                    relRecord = new RelationshipRecord( -1 );
+                    allocateNewRecord = false;
+                }
 
-            if ( !relationshipStore.fillChainRecord( position, relRecord ) )
-            {
-                // return what we got so far
-                return Pair.of( result, loadPosition );
-            }
-            long firstNode = relRecord.getFirstNode();
-            long secondNode = relRecord.getSecondNode();
-            if ( relRecord.inUse() )
-            {
-                if ( firstNode == secondNode )
+                if ( !chainCursor.read( position, relRecord ) )
+                {
+                    // return what we got so far
+                    return Pair.of( result, loadPosition );
+                }
+                long firstNode = relRecord.getFirstNode();
+                long secondNode = relRecord.getSecondNode();
+                if ( relRecord.inUse() )
                 {
-                    if ( loop == null )
+                    if ( firstNode == secondNode )
+                    {
+                        if ( loop == null )
+                        {
+                            // This is done lazily because loops are probably quite
+                            // rarely encountered
+                            loop = new ArrayList<>();
+                            result.put( DirectionWrapper.BOTH, loop );
+                        }
+                        loop.add( relRecord );
+                        allocateNewRecord = true;
+                    }
+                    else if ( firstNode == nodeId )
                     {
-                        // This is done lazily because loops are probably quite
-                        // rarely encountered
-                        loop = new ArrayList<>();
-                        result.put( DirectionWrapper.BOTH, loop );
+                        out.add( relRecord );
+                        allocateNewRecord = true;
                     }
-                    loop.add( relRecord );
-                    allocateNewRecord = true;
+                    else if ( secondNode == nodeId )
+                    {
+                        in.add( relRecord );
+                        allocateNewRecord = true;
+                    }
+                }
+                else
+                {
+                    i--;
                 }
-                else if ( firstNode == nodeId )
+                long next = 0;
+                if ( firstNode == nodeId )
                 {
-                    out.add( relRecord );
-                    allocateNewRecord = true;
+                    next = relRecord.getFirstNextRel();
                 }
                 else if ( secondNode == nodeId )
                 {
-                    in.add( relRecord );
-                    allocateNewRecord = true;
+                    next = relRecord.getSecondNextRel();
                 }
+                else
+                {
+                    throw new InvalidRecordException( "While loading relationships for Node[" + nodeId +
+                            "] a Relationship[" + relRecord.getId() + "] was encountered that had startNode: " + firstNode +
+                            " and endNode: " + secondNode + ", i.e. which had neither start nor end node as the node we're " +
+                            "loading relationships for" );
+                }
+                position = loadPosition.nextPosition( next, direction, types );
             }
-            else
-            {
-                i--;
-            }
-            long next = 0;
-            if ( firstNode == nodeId )
-            {
-                next = relRecord.getFirstNextRel();
-            }
-            else if ( secondNode == nodeId )
-            {
-                next = relRecord.getSecondNextRel();
-            }
-            else
-            {
-                throw new InvalidRecordException( "While loading relationships for Node[" + nodeId +
-                        "] a Relationship[" + relRecord.getId() + "] was encountered that had startNode: " + firstNode +
-                        " and endNode: " + secondNode + ", i.e. which had neither start nor end node as the node we're " +
-                        "loading relationships for" );
-            }
-            position = loadPosition.nextPosition( next, direction, types );
         }
         return Pair.of( result, loadPosition );
     }
@@ -206,28 +211,26 @@ public class RelationshipChainLoader
         }
     }
 
-    public void visitRelationshipCounts( long nodeId, DegreeVisitor visitor )
+    public RelationshipGroupDegrees getRelationshipGroupDegrees( long nodeId )
     {
         NodeRecord node = nodeStore.getRecord( nodeId );
         long nextRecord = node.getNextRel();
-        if ( Record.NO_NEXT_RELATIONSHIP.is( nextRecord ) )
-        {
-            return;
-        }
-        if ( !node.isDense() )
+        if ( !node.isDense() && !Record.NO_NEXT_RELATIONSHIP.is( nextRecord ) )
         {
             throw new UnsupportedOperationException( "non-dense nodes should be handled by the cache layer" );
         }
-        // visit the counts of this dense node
+        // gather the counts of all groups of this dense node
+        RelationshipGroupDegrees.Builder degrees = new RelationshipGroupDegrees.Builder();
         while ( !Record.NO_NEXT_RELATIONSHIP.is( nextRecord ) )
         {
             RelationshipGroupRecord group = relationshipGroupStore.getRecord( nextRecord );
             nextRecord = group.getNext();
-            int outgoing = getRelationshipCount( node, group.getFirstOut() );
-            int incoming = getRelationshipCount( node, group.getFirstIn() );
-            int loops = getRelationshipCount( node, group.getFirstLoop() );
-            visitor.visitDegree( group.getType(), outgoing + loops, incoming + loops );
+            degrees.add( group.getType(),
+                    getRelationshipCount( node, group.getFirstOut() ),
+                    getRelationshipCount( node, group.getFirstIn() ),
+                    getRelationshipCount( node, group.getFirstLoop() ) );
         }
+        return degrees.build();
     }
 
     private int getRelationshipCount( NodeRecord node, RelationshipGroupRecord group, DirectionWrapper direction )
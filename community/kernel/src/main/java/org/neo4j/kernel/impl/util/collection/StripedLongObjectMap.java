@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+
+import static org.neo4j.collection.primitive.hopscotch.HopScotchHashingAlgorithm.DEFAULT_HASHING;
+
+/**
+ * Concurrent map from long keys to objects, which never boxes its keys. Made for the lock maps of lock managers,
+ * where entries come and go at a high rate and reads are much more common than writes.
+ *
+ * The map is split into a power-of-two number of stripes, selected by the hash of the key. Each stripe is an
+ * open addressing table with linear probing, where:
+ *
+ * <ul>
+ *     <li>Reads never lock. They observe a table through a volatile read of its reference and then volatile
+ *     reads of its value slots, and read again from the new table if the stripe rehashed meanwhile, since a write
+ *     made after the rehash is not seen in the old table.</li>
+ *     <li>Writes synchronize on their stripe, so writers of different stripes never contend.</li>
+ * </ul>
+ *
+ * To keep lock-free reads safe, a slot is never given to another key once a key has claimed it in a table. Removing
+ * an entry leaves the slot claimed by its key, marked as {@link #REMOVED}, and a later put of that same key reuses
+ * the slot. Claimed slots are only reclaimed when a stripe rehashes into a new table, which also shrinks stripes that
+ * have grown large during a burst of puts.
+ *
+ * Null values are not supported.
+ */
+public class StripedLongObjectMap<VALUE>
+{
+    private static final int DEFAULT_STRIPES = 128;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final Object REMOVED = new Object();
+
+    private final Stripe[] stripes;
+
+    public StripedLongObjectMap()
+    {
+        this( DEFAULT_STRIPES );
+    }
+
+    public StripedLongObjectMap( int stripeCount )
+    {
+        if ( Integer.bitCount( stripeCount ) != 1 )
+        {
+            throw new IllegalArgumentException( "Number of stripes must be a power of two, was " + stripeCount );
+        }
+        int stripeBits = Integer.numberOfTrailingZeros( stripeCount );
+        this.stripes = new Stripe[stripeCount];
+        for ( int i = 0; i < stripeCount; i++ )
+        {
+            stripes[i] = new Stripe( stripeBits );
+        }
+    }
+
+    public VALUE get( long key )
+    {
+        return cast( stripeOf( key ).get( key ) );
+    }
+
+    /**
+     * @return the value already mapped to the key, or {@code null} if the given value was put in place.
+     */
+    public VALUE putIfAbsent( long key, VALUE value )
+    {
+        return cast( stripeOf( key ).put( key, value, true ) );
+    }
+
+    /**
+     * @return the value previously mapped to the key, or {@code null} if there was none.
+     */
+    public VALUE put( long key, VALUE value )
+    {
+        return cast( stripeOf( key ).put( key, value, false ) );
+    }
+
+    /**
+     * @return the value that was removed, or {@code null} if there was none.
+     */
+    public VALUE remove( long key )
+    {
+        return cast( stripeOf( key ).remove( key ) );
+    }
+
+    private Stripe stripeOf( long key )
+    {
+        return stripes[DEFAULT_HASHING.hash( key ) & (stripes.length - 1)];
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <VALUE> VALUE cast( Object value )
+    {
+        return (VALUE) value;
+    }
+
+    /**
+     * Visits all entries in the map. Like the iterators of {@link java.util.concurrent.ConcurrentHashMap} this is
+     * weakly consistent, and may or may not see changes made concurrently with the visit.
+     */
+    public <E extends Exception> void visitEntries( PrimitiveLongObjectVisitor<VALUE,E> visitor ) throws E
+    {
+        for ( Stripe stripe : stripes )
+        {
+            Table table = stripe.table;
+            for ( int slot = 0; slot < table.keys.length; slot++ )
+            {
+                Object value = table.valueAt( slot );
+                if ( value != null && visitor.visited( table.keys[slot], StripedLongObjectMap.<VALUE>cast( value ) ) )
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for ( Stripe stripe : stripes )
+        {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static class Stripe
+    {
+        private final int stripeBits;
+        private volatile Table table = new Table( INITIAL_CAPACITY );
+        private int size;
+        private int claimed;
+
+        Stripe( int stripeBits )
+        {
+            this.stripeBits = stripeBits;
+        }
+
+        private int hash( long key )
+        {
+            return DEFAULT_HASHING.hash( key ) >>> stripeBits;
+        }
+
+        Object get( long key )
+        {
+            int hash = hash( key );
+            Table table = this.table;
+            while ( true )
+            {
+                int slot = table.find( key, hash );
+                Object value = slot == -1 ? null : table.valueAt( slot );
+                Table current = this.table;
+                if ( current == table )
+                {
+                    return value;
+                }
+                // Rehashed while reading, so the value may have been changed in the new table
+                table = current;
+            }
+        }
+
+        synchronized Object put( long key, Object value, boolean onlyIfAbsent )
+        {
+            int hash = hash( key );
+            int slot = table.find( key, hash );
+            if ( slot != -1 )
+            {
+                Object existing = table.valueAt( slot );
+                if ( existing == null )
+                {
+                    size++;
+                    table.values.set( slot, value );
+                }
+                else if ( !onlyIfAbsent )
+                {
+                    table.values.set( slot, value );
+                }
+                return existing;
+            }
+
+            if ( claimed + 1 > table.maxClaimed() )
+            {
+                rehash();
+            }
+            table.claim( key, hash, value );
+            claimed++;
+            size++;
+            return null;
+        }
+
+        synchronized Object remove( long key )
+        {
+            int slot = table.find( key, hash( key ) );
+            if ( slot == -1 )
+            {
+                return null;
+            }
+            Object existing = table.valueAt( slot );
+            if ( existing != null )
+            {
+                size--;
+                table.values.set( slot, REMOVED );
+            }
+            return existing;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        /** Copies the live entries into a new table sized after them, dropping all removed slots. */
+        private void rehash()
+        {
+            int capacity = INITIAL_CAPACITY;
+            while ( (size + 1) * 2 > Table.maxClaimed( capacity ) )
+            {
+                capacity <<= 1;
+            }
+
+            Table current = table;
+            Table rehashed = new Table( capacity );
+            for ( int i = 0; i < current.keys.length; i++ )
+            {
+                Object value = current.valueAt( i );
+                if ( value != null )
+                {
+                    rehashed.claim( current.keys[i], hash( current.keys[i] ), value );
+                }
+            }
+            // Publishing the new table through the volatile write makes all of its contents visible to readers
+            claimed = size;
+            table = rehashed;
+        }
+    }
+
+    private static class Table
+    {
+        /**
+         * Only written before the corresponding value slot, which is read before the key by readers, so the volatile
+         * semantics of the value slots also guard the keys.
+         */
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+
+        Table( int capacity )
+        {
+            this.keys = new long[capacity];
+            this.values = new AtomicReferenceArray<>( capacity );
+            this.mask = capacity - 1;
+        }
+
+        static int maxClaimed( int capacity )
+        {
+            return capacity - (capacity >>> 2);
+        }
+
+        int maxClaimed()
+        {
+            return maxClaimed( keys.length );
+        }
+
+        /**
+         * @return the slot claimed by the given key, or {@code -1} if it has no slot in this table.
+         */
+        int find( long key, int hash )
+        {
+            for ( int slot = hash & mask; ; slot = (slot + 1) & mask )
+            {
+                if ( values.get( slot ) == null )
+                {
+                    return -1;
+                }
+                if ( keys[slot] == key )
+                {
+                    return slot;
+                }
+            }
+        }
+
+        /** Claims a free slot for a key known to have none in this table. */
+        void claim( long key, int hash, Object value )
+        {
+            int slot = hash & mask;
+            while ( values.get( slot ) != null )
+            {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values.set( slot, value );
+        }
+
+        /**
+         * @return the value in the slot, or {@code null} if it is free or its entry has been removed.
+         */
+        Object valueAt( int slot )
+        {
+            Object value = values.get( slot );
+            return value == REMOVED ? null : value;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.info;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * How much transactions have waited for locks of one resource type, since the database was started.
+ */
+public final class LockWaitInfo
+{
+    private final String resourceType;
+    private final long waits;
+    private final long totalWaitMicros;
+    private final long medianWaitMicros;
+    private final long percentile99WaitMicros;
+    private final long deadlocks;
+
+    @ConstructorProperties( { "resourceType", "waits", "totalWaitMicros", "medianWaitMicros",
+            "percentile99WaitMicros", "deadlocks" } )
+    public LockWaitInfo( String resourceType, long waits, long totalWaitMicros, long medianWaitMicros,
+            long percentile99WaitMicros, long deadlocks )
+    {
+        this.resourceType = resourceType;
+        this.waits = waits;
+        this.totalWaitMicros = totalWaitMicros;
+        this.medianWaitMicros = medianWaitMicros;
+        this.percentile99WaitMicros = percentile99WaitMicros;
+        this.deadlocks = deadlocks;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "%s: waits=%d, total=%dus, p50=%dus, p99=%dus, deadlocks=%d", resourceType, waits,
+                totalWaitMicros, medianWaitMicros, percentile99WaitMicros, deadlocks );
+    }
+
+    public String getResourceType()
+    {
+        return resourceType;
+    }
+
+    public long getWaits()
+    {
+        return waits;
+    }
+
+    public long getTotalWaitMicros()
+    {
+        return totalWaitMicros;
+    }
+
+    public long getMedianWaitMicros()
+    {
+        return medianWaitMicros;
+    }
+
+    public long getPercentile99WaitMicros()
+    {
+        return percentile99WaitMicros;
+    }
+
+    public long getDeadlocks()
+    {
+        return deadlocks;
+    }
+}
@@ -22,6 +22,7 @@ package org.neo4j.unsafe.batchinsert;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveIntSet;
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.function.primitive.FunctionFromPrimitiveLong;
 import org.neo4j.graphdb.ConstraintViolationException;
@@ -48,6 +51,7 @@ import org.neo4j.helpers.collection.IteratorWrapper;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
 import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
@@ -74,6 +78,7 @@ import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.extension.KernelExtensions;
 import org.neo4j.kernel.extension.UnsatisfiedDependencyStrategies;
 import org.neo4j.kernel.impl.api.CountsAccessor;
+import org.neo4j.kernel.impl.api.index.CompositeIndexUpdates;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 import org.neo4j.kernel.impl.api.index.StoreScan;
@@ -134,6 +139,7 @@ import org.neo4j.kernel.logging.SingleLoggingService;
 import org.neo4j.kernel.monitoring.Monitors;
 
 import static java.lang.Boolean.parseBoolean;
+import static org.neo4j.collection.primitive.PrimitiveIntCollections.asArray;
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.map;
 import static org.neo4j.graphdb.DynamicLabel.label;
 import static org.neo4j.helpers.collection.Iterables.map;
@@ -181,6 +187,7 @@ public class BatchInserterImpl implements BatchInserter
     private final StringLogger msgLog;
     private final Logging logging;
     private final FileSystemAbstraction fileSystem;
+    private final PageCache pageCache;
     private final SchemaCache schemaCache;
     private final Config config;
     private final BatchInserterImpl.BatchSchemaActions actions;
@@ -230,7 +237,7 @@ public class BatchInserterImpl implements BatchInserter
         this.storeDir = new File( FileUtils.fixSeparatorsInPath( storeDir ) );
         Neo4jJobScheduler jobScheduler = life.add( new Neo4jJobScheduler() );
         PageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory( fileSystem );
-        LifecycledPageCache pageCache = life.add( new LifecycledPageCache(
+        pageCache = life.add( new LifecycledPageCache(
                 swapperFactory, jobScheduler, config, PageCacheMonitor.NULL ) );
 
         msgLog = StringLogger.loggerDirectory( fileSystem, this.storeDir );
@@ -273,11 +280,14 @@ public class BatchInserterImpl implements BatchInserter
                 .add( new KernelExtensions( kernelExtensions, config, new DependencyResolverImpl(),
                                             UnsatisfiedDependencyStrategies.ignore() ) );
 
+        List<SchemaIndexProvider> allProviders = new ArrayList<>();
         SchemaIndexProvider provider = extensions.resolveDependency( SchemaIndexProvider.class,
-                SchemaIndexProvider.HIGHEST_PRIORITIZED_OR_NONE );
-        schemaIndexProviders = new DefaultSchemaIndexProviderMap( provider );
+                SchemaIndexProvider.selectByKeyOrHighestPrioritized(
+                        config.get( GraphDatabaseSettings.default_schema_provider ), allProviders ) );
+        schemaIndexProviders = new DefaultSchemaIndexProviderMap( provider, allProviders );
         labelScanStore = life.add( extensions.resolveDependency( LabelScanStoreProvider.class,
-                LabelScanStoreProvider.HIGHEST_PRIORITIZED ).getLabelScanStore() );
+                LabelScanStoreProvider.selectByNameOrHighestPrioritized(
+                        config.get( GraphDatabaseSettings.label_scan_store ) ) ).getLabelScanStore() );
         actions = new BatchSchemaActions();
 
         // Record access
@@ -349,26 +359,26 @@ public class BatchInserterImpl implements BatchInserter
         return new IndexCreatorImpl( actions, label );
     }
 
-    private void checkSchemaCreationConstraints( int labelId, int propertyKeyId )
+    private void checkSchemaCreationConstraints( int labelId, int... propertyKeyIds )
     {
         for ( SchemaRule rule : schemaCache.schemaRulesForLabel( labelId ) )
         {
-            int otherPropertyKeyId;
+            int[] otherPropertyKeyIds;
 
             switch ( rule.getKind() )
             {
                 case INDEX_RULE:
                 case CONSTRAINT_INDEX_RULE:
-                    otherPropertyKeyId = ((IndexRule) rule).getPropertyKey();
+                    otherPropertyKeyIds = ((IndexRule) rule).getPropertyKeys();
                     break;
                 case UNIQUENESS_CONSTRAINT:
-                    otherPropertyKeyId = ((UniquenessConstraintRule) rule).getPropertyKey();
+                    otherPropertyKeyIds = new int[]{((UniquenessConstraintRule) rule).getPropertyKey()};
                     break;
                 default:
                     throw new IllegalStateException( "Case not handled.");
             }
 
-            if ( otherPropertyKeyId == propertyKeyId )
+            if ( Arrays.equals( otherPropertyKeyIds, propertyKeyIds ) )
             {
                 throw new ConstraintViolationException(
                         "It is not allowed to create schema constraints and indexes on the same {label;property}." );
@@ -376,10 +386,10 @@ public class BatchInserterImpl implements BatchInserter
         }
     }
 
-    private void createIndexRule( int labelId, int propertyKeyId )
+    private void createIndexRule( int labelId, int... propertyKeyIds )
     {
         SchemaStore schemaStore = getSchemaStore();
-        IndexRule schemaRule = IndexRule.indexRule( schemaStore.nextId(), labelId, propertyKeyId,
+        IndexRule schemaRule = IndexRule.indexRule( schemaStore.nextId(), labelId, propertyKeyIds,
                                                     this.schemaIndexProviders.getDefaultProvider()
                                                                              .getProviderDescriptor() );
         for ( DynamicRecord record : schemaStore.allocateFrom( schemaRule ) )
@@ -405,17 +415,19 @@ public class BatchInserterImpl implements BatchInserter
         IndexStoreView storeView = new NeoStoreIndexStoreView( locks, neoStore );
 
         final int[] labelIds = new int[rules.length];
-        final int[] propertyKeyIds = new int[rules.length];
+        PrimitiveIntSet propertyKeyIds = Primitive.intSet();
 
         for ( int i = 0; i < labelIds.length; i++ )
         {
             IndexRule rule = rules[i];
             int labelId = rule.getLabel();
-            int propertyKeyId = rule.getPropertyKey();
             labelIds[i] = labelId;
-            propertyKeyIds[i] = propertyKeyId;
+            for ( int propertyKeyId : rule.getPropertyKeys() )
+            {
+                propertyKeyIds.add( propertyKeyId );
+            }
 
-            IndexDescriptor descriptor = new IndexDescriptor( labelId, propertyKeyId );
+            IndexDescriptor descriptor = new IndexDescriptor( labelId, rule.getPropertyKeys() );
             boolean isConstraint = rule.isConstraintIndex();
             populators[i] = schemaIndexProviders.apply( rule.getProviderDescriptor() )
                                                 .getPopulator( rule.getId(),
@@ -425,38 +437,12 @@ public class BatchInserterImpl implements BatchInserter
             populators[i].create();
         }
 
-        Visitor<NodePropertyUpdate, IOException> propertyUpdateVisitor = new Visitor<NodePropertyUpdate, IOException>()
-        {
-            @Override
-            public boolean visit( NodePropertyUpdate update ) throws IOException
-            {
-                // Do a lookup from which property has changed to a list of indexes worried about that property.
-                int propertyKeyInQuestion = update.getPropertyKeyId();
-                for ( int i = 0; i < propertyKeyIds.length; i++ )
-                {
-                    if ( propertyKeyIds[i] == propertyKeyInQuestion )
-                    {
-                        if ( update.forLabel( labelIds[i] ) )
-                        {
-                            try
-                            {
-                                populators[i].add( update.getNodeId(), update.getValueAfter() );
-                            }
-                            catch ( IndexEntryConflictException conflict )
-                            {
-                                throw conflict.notAllowed( rules[i].getLabel(), rules[i].getPropertyKey() );
-                            }
-                        }
-                    }
-                }
-                return true;
-            }
-        };
-
+        InitialIndexPopulationVisitor propertyUpdateVisitor = new InitialIndexPopulationVisitor( rules, populators );
         InitialNodeLabelCreationVisitor labelUpdateVisitor = new InitialNodeLabelCreationVisitor();
-        StoreScan<IOException> storeScan = storeView.visitNodes( labelIds, propertyKeyIds,
+        StoreScan<IOException> storeScan = storeView.visitNodes( labelIds, asArray( propertyKeyIds.iterator() ),
                 propertyUpdateVisitor, labelUpdateVisitor );
         storeScan.run();
+        propertyUpdateVisitor.close();
 
         for ( IndexPopulator populator : populators )
         {
@@ -470,6 +456,85 @@ public class BatchInserterImpl implements BatchInserter
         CountsComputer.computeCounts( neoStore ).accept( new CountsAccessor.Initializer( neoStore.getCounts() ) );
     }
 
+    /**
+     * Adds the properties read by the store scan to the populators of the indexes they belong to. The values of
+     * composite indexes are built from all the properties of a node, once the scan has moved on to the next node.
+     */
+    private static class InitialIndexPopulationVisitor implements Visitor<NodePropertyUpdate, IOException>
+    {
+        private final IndexRule[] rules;
+        private final IndexPopulator[] populators;
+        private final List<NodePropertyUpdate> nodeUpdates = new ArrayList<>();
+        private long currentNodeId = -1;
+
+        InitialIndexPopulationVisitor( IndexRule[] rules, IndexPopulator[] populators )
+        {
+            this.rules = rules;
+            this.populators = populators;
+        }
+
+        @Override
+        public boolean visit( NodePropertyUpdate update ) throws IOException
+        {
+            if ( update.getNodeId() != currentNodeId )
+            {
+                addCompositeUpdates();
+                currentNodeId = update.getNodeId();
+            }
+            nodeUpdates.add( update );
+
+            // Do a lookup from which property has changed to a list of indexes worried about that property.
+            int propertyKeyInQuestion = update.getPropertyKeyId();
+            for ( int i = 0; i < rules.length; i++ )
+            {
+                if ( !rules[i].isComposite() && rules[i].getPropertyKey() == propertyKeyInQuestion &&
+                     update.forLabel( rules[i].getLabel() ) )
+                {
+                    add( i, update );
+                }
+            }
+            return true;
+        }
+
+        private void addCompositeUpdates() throws IOException
+        {
+            if ( nodeUpdates.isEmpty() )
+            {
+                return;
+            }
+            for ( int i = 0; i < rules.length; i++ )
+            {
+                if ( rules[i].isComposite() )
+                {
+                    IndexDescriptor descriptor = new IndexDescriptor( rules[i].getLabel(), rules[i].getPropertyKeys() );
+                    NodePropertyUpdate update = CompositeIndexUpdates.added( descriptor, currentNodeId, nodeUpdates );
+                    if ( update != null )
+                    {
+                        add( i, update );
+                    }
+                }
+            }
+            nodeUpdates.clear();
+        }
+
+        private void add( int index, NodePropertyUpdate update ) throws IOException
+        {
+            try
+            {
+                populators[index].add( update.getNodeId(), update.getValueAfter() );
+            }
+            catch ( IndexEntryConflictException conflict )
+            {
+                throw conflict.notAllowed( rules[index].getLabel(), rules[index].getPropertyKey() );
+            }
+        }
+
+        public void close() throws IOException
+        {
+            addCompositeUpdates();
+        }
+    }
+
     private class InitialNodeLabelCreationVisitor implements Visitor<NodeLabelUpdate, IOException>
     {
         LabelScanWriter writer = labelScanStore.newWriter();
@@ -1021,19 +1086,23 @@ public class BatchInserterImpl implements BatchInserter
     private class BatchSchemaActions implements InternalSchemaActions
     {
         @Override
-        public IndexDefinition createIndexDefinition( Label label, String propertyKey )
+        public IndexDefinition createIndexDefinition( Label label, String... propertyKeys )
         {
             int labelId = getOrCreateLabelId( label.name() );
-            int propertyKeyId = getOrCreatePropertyKeyId( propertyKey );
+            int[] propertyKeyIds = new int[propertyKeys.length];
+            for ( int i = 0; i < propertyKeys.length; i++ )
+            {
+                propertyKeyIds[i] = getOrCreatePropertyKeyId( propertyKeys[i] );
+            }
 
-            checkSchemaCreationConstraints( labelId, propertyKeyId );
+            checkSchemaCreationConstraints( labelId, propertyKeyIds );
 
-            createIndexRule( labelId, propertyKeyId );
-            return new IndexDefinitionImpl( this, label, propertyKey, false );
+            createIndexRule( labelId, propertyKeyIds );
+            return new IndexDefinitionImpl( this, label, propertyKeys, false );
         }
 
         @Override
-        public void dropIndexDefinitions( Label label, String propertyKey )
+        public void dropIndexDefinitions( Label label, String... propertyKeys )
         {
             throw unsupportedException();
         }
@@ -1091,6 +1160,10 @@ public class BatchInserterImpl implements BatchInserter
             {
                 return type.cast( logging );
             }
+            if ( type.isInstance( pageCache ) )
+            {
+                return type.cast( pageCache );
+            }
             if ( NeoStoreProvider.class.isAssignableFrom( type ) )
             {
                 return type.cast( new NeoStoreProvider()
@@ -22,6 +22,7 @@ package org.neo4j.unsafe.batchinsert;
 import java.util.Collection;
 
 import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.record.DynamicRecord;
 import org.neo4j.kernel.impl.store.record.LabelTokenRecord;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
@@ -34,6 +35,7 @@ import org.neo4j.kernel.impl.store.record.RelationshipTypeTokenRecord;
 import org.neo4j.kernel.impl.store.record.SchemaRule;
 import org.neo4j.kernel.impl.transaction.state.Loaders;
 import org.neo4j.kernel.impl.transaction.state.RecordAccess;
+import org.neo4j.kernel.impl.transaction.state.RecordAccess.RecordProxy;
 import org.neo4j.kernel.impl.transaction.state.RecordAccessSet;
 
 public class DirectRecordAccessSet implements RecordAccessSet
@@ -46,9 +48,11 @@ public class DirectRecordAccessSet implements RecordAccessSet
     private final DirectRecordAccess<Integer, RelationshipTypeTokenRecord, Void> relationshipTypeTokenRecords;
     private final DirectRecordAccess<Integer, LabelTokenRecord, Void> labelTokenRecords;
 //    private final DirectRecordAccess<Long, Collection<DynamicRecord>, SchemaRule> schemaRecords; // TODO
+    private final NodeStore nodeStore;
 
     public DirectRecordAccessSet( NeoStore neoStore )
     {
+        this.nodeStore = neoStore.getNodeStore();
         nodeRecords = new DirectRecordAccess<>( neoStore.getNodeStore(), Loaders.nodeLoader( neoStore.getNodeStore() ) );
         propertyRecords = new DirectRecordAccess<>( neoStore.getPropertyStore(), Loaders.propertyLoader( neoStore.getPropertyStore() ) );
         relationshipRecords = new DirectRecordAccess<>( neoStore.getRelationshipStore(), Loaders.relationshipLoader( neoStore.getRelationshipStore() ) );
@@ -124,6 +128,13 @@ public class DirectRecordAccessSet implements RecordAccessSet
     public void commit()
     {
         nodeRecords.commit();
+        for ( RecordProxy<Long, PropertyRecord, PrimitiveRecord> change : propertyRecords.changes() )
+        {
+            if ( change.isChanged() )
+            {
+                nodeStore.updateInlinedPropertyRecord( change.forReadingLinkage() );
+            }
+        }
         propertyRecords.commit();
         relationshipGroupRecords.commit();
         relationshipRecords.commit();
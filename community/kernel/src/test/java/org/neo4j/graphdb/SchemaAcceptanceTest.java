@@ -31,6 +31,7 @@ import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.test.ImpermanentDatabaseRule;
 
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -46,6 +47,7 @@ import static org.neo4j.graphdb.Neo4jMatchers.getIndexes;
 import static org.neo4j.graphdb.Neo4jMatchers.isEmpty;
 import static org.neo4j.graphdb.Neo4jMatchers.waitForIndex;
 import static org.neo4j.helpers.collection.Iterables.count;
+import static org.neo4j.helpers.collection.Iterables.toList;
 import static org.neo4j.helpers.collection.IteratorUtil.asSet;
 
 public class SchemaAcceptanceTest
@@ -165,26 +167,37 @@ public class SchemaAcceptanceTest
     }
 
     @Test
-    public void shouldThrowConstraintViolationIfAskedToCreateCompoundIndex() throws Exception
+    public void shouldCreateCompositeIndex() throws Exception
     {
         // WHEN
-        Transaction tx = db.beginTx();
-        try
+        IndexDefinition index;
+        try ( Transaction tx = db.beginTx() )
         {
-            Schema schema = db.schema();
-            schema.indexFor( label )
+            index = db.schema().indexFor( label )
                     .on( "my_property_key" )
                     .on( "other_property" ).create();
             tx.success();
-            fail( "Should not be able to create index on multiple propertyKey keys" );
         }
-        catch ( UnsupportedOperationException e )
+
+        // THEN
+        assertEquals( asList( "my_property_key", "other_property" ), toList( index.getPropertyKeys() ) );
+        assertThat( getIndexes( db, label ), containsOnly( index ) );
+    }
+
+    @Test
+    public void shouldThrowIfAskedToIndexSamePropertyTwiceInCompositeIndex() throws Exception
+    {
+        // WHEN
+        try ( Transaction tx = db.beginTx() )
         {
-            assertThat( e.getMessage(), containsString( "Compound indexes" ) );
+            db.schema().indexFor( label )
+                    .on( "my_property_key" )
+                    .on( "my_property_key" ).create();
+            fail( "Should not be able to index the same property twice" );
         }
-        finally
+        catch ( IllegalArgumentException e )
         {
-            tx.finish();
+            // THEN good
         }
     }
 
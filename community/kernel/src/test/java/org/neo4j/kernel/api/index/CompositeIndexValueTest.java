@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.index;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class CompositeIndexValueTest
+{
+    @Test
+    public void shouldEncodeEqualNumbersOfDifferentTypesTheSame() throws Exception
+    {
+        assertEquals( new CompositeIndexValue( 1, "a" ), new CompositeIndexValue( 1.0d, "a" ) );
+        assertEquals( new CompositeIndexValue( (byte) 7, 2.5f ), new CompositeIndexValue( 7L, 2.5d ) );
+        assertEquals( new CompositeIndexValue( -0.0d ), new CompositeIndexValue( 0 ) );
+    }
+
+    @Test
+    public void shouldKeepThePrecisionOfLongsAboveTheLargestExactDouble() throws Exception
+    {
+        long large = (1L << 53) + 1;
+        assertEquals( (double) large, (double) (large - 1), 0.0 );
+
+        assertNotEquals( new CompositeIndexValue( large, "a" ), new CompositeIndexValue( large - 1, "a" ) );
+        assertNotEquals( new CompositeIndexValue( Long.MAX_VALUE ), new CompositeIndexValue( Long.MAX_VALUE - 1 ) );
+        assertEquals( new CompositeIndexValue( large ), new CompositeIndexValue( large ) );
+    }
+
+    @Test
+    public void shouldNotEncodeDifferentSequencesOfValuesTheSame() throws Exception
+    {
+        assertNotEquals( new CompositeIndexValue( 1.5d ), new CompositeIndexValue( 15 ) );
+        assertNotEquals( new CompositeIndexValue( 1, 2 ), new CompositeIndexValue( 12 ) );
+        assertNotEquals( new CompositeIndexValue( "1" ), new CompositeIndexValue( 1 ) );
+        assertNotEquals( new CompositeIndexValue( "ab", "c" ), new CompositeIndexValue( "a", "bc" ) );
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
 @RunWith(ParameterizedSuiteRunner.class)
 @Suite.SuiteClasses({
         NonUniqueIndexPopulatorCompatibility.class,
+        IndexRangeSeekCompatibility.class,
         UniqueIndexPopulatorCompatibility.class,
         UniqueIndexAccessorCompatibility.class,
         UniqueConstraintCompatibility.class
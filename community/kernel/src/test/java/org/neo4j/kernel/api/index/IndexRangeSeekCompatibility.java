@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Set;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.neo4j.helpers.collection.IteratorUtil.asSet;
+
+@Ignore( "Not a test. This is a compatibility suite that provides test cases for verifying" +
+        " SchemaIndexProvider implementations. Each index provider that is to be tested by this suite" +
+        " must create their own test class extending IndexProviderCompatibilityTestSuite." +
+        " The @Ignore annotation doesn't prevent these tests to run, it rather removes some annoying" +
+        " errors or warnings in some IDEs about test classes needing a public zero-arg constructor." )
+public class IndexRangeSeekCompatibility extends IndexProviderCompatibilityTestSuite.Compatibility
+{
+    private IndexAccessor accessor;
+    private IndexReader reader;
+
+    public IndexRangeSeekCompatibility( IndexProviderCompatibilityTestSuite testSuite )
+    {
+        super( testSuite );
+    }
+
+    @Before
+    public void populateIndex() throws Exception
+    {
+        IndexConfiguration config = new IndexConfiguration( false );
+        IndexSamplingConfig indexSamplingConfig = new IndexSamplingConfig( new Config() );
+        IndexPopulator populator = indexProvider.getPopulator( 17, descriptor, config, indexSamplingConfig );
+        populator.create();
+        populator.add( 1, 1 );
+        populator.add( 2, 2.5d );
+        populator.add( 3, 10L );
+        populator.add( 4, -7 );
+        populator.add( 5, "apa" );
+        populator.add( 6, "apple" );
+        populator.add( 7, "banana" );
+        populator.add( 8, "Apple" );
+        populator.add( 9, true );
+        populator.add( 10, new int[]{1, 2} );
+        populator.add( 11, 'b' );
+        populator.close( true );
+
+        accessor = indexProvider.getOnlineAccessor( 17, config, indexSamplingConfig );
+        reader = accessor.newReader();
+    }
+
+    @After
+    public void closeIndex() throws Exception
+    {
+        reader.close();
+        accessor.close();
+    }
+
+    @Test
+    public void shouldSeekNumbersWithinBounds() throws Exception
+    {
+        assertEquals( asSet( 1l, 2l ), nodes( reader.rangeSeekByNumber( 1, true, 10, false ) ) );
+        assertEquals( asSet( 2l, 3l ), nodes( reader.rangeSeekByNumber( 1, false, 10, true ) ) );
+        assertEquals( asSet( 2l ), nodes( reader.rangeSeekByNumber( 2.5f, true, 2.5d, true ) ) );
+        assertEquals( asSet(), nodes( reader.rangeSeekByNumber( 2.5, false, 2.5, false ) ) );
+    }
+
+    @Test
+    public void shouldSeekNumbersInRangesOpenAtEitherEnd() throws Exception
+    {
+        assertEquals( asSet( 4l, 1l ), nodes( reader.rangeSeekByNumber( null, false, 2.5, false ) ) );
+        assertEquals( asSet( 2l, 3l ), nodes( reader.rangeSeekByNumber( 1.5, true, null, false ) ) );
+        assertEquals( asSet( 1l, 2l, 3l, 4l ), nodes( reader.rangeSeekByNumber( null, true, null, true ) ) );
+    }
+
+    @Test
+    public void shouldSeekStringsWithinBounds() throws Exception
+    {
+        assertEquals( asSet( 5l, 6l ), nodes( reader.rangeSeekByString( "apa", true, "b", false ) ) );
+        assertEquals( asSet( 6l, 11l, 7l ), nodes( reader.rangeSeekByString( "apa", false, "banana", true ) ) );
+        assertEquals( asSet( 8l ), nodes( reader.rangeSeekByString( "A", true, "a", false ) ) );
+    }
+
+    @Test
+    public void shouldSeekStringsInRangesOpenAtEitherEnd() throws Exception
+    {
+        assertEquals( asSet( 8l, 5l ), nodes( reader.rangeSeekByString( null, false, "apple", false ) ) );
+        assertEquals( asSet( 11l, 7l ), nodes( reader.rangeSeekByString( "apple", false, null, false ) ) );
+        assertEquals( asSet( 5l, 6l, 7l, 8l, 11l ), nodes( reader.rangeSeekByString( null, true, null, true ) ) );
+    }
+
+    @Test
+    public void shouldSeekStringsByPrefix() throws Exception
+    {
+        assertEquals( asSet( 5l, 6l ), nodes( reader.rangeSeekByPrefix( "ap" ) ) );
+        assertEquals( asSet( 6l ), nodes( reader.rangeSeekByPrefix( "apple" ) ) );
+        assertEquals( asSet( 8l ), nodes( reader.rangeSeekByPrefix( "A" ) ) );
+        assertEquals( asSet(), nodes( reader.rangeSeekByPrefix( "apples" ) ) );
+    }
+
+    private static Set<Long> nodes( PrimitiveLongIterator iterator )
+    {
+        return asSet( iterator );
+    }
+}
@@ -22,7 +22,6 @@ package org.neo4j.kernel.counts;
 import java.util.concurrent.Future;
 
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -101,7 +100,6 @@ public class NodeCountsTest
     }
 
     @Test
-    @Ignore("TODO: reenable this test when we can etract proper counts form TxState")
     public void shouldIncludeNumberOfNodesAddedInTransaction() throws Exception
     {
         // given
@@ -127,7 +125,6 @@ public class NodeCountsTest
     }
 
     @Test
-    @Ignore("TODO: reenable this test when we can etract proper counts form TxState")
     public void shouldIncludeNumberOfNodesDeletedInTransaction() throws Exception
     {
         // given
@@ -153,6 +150,41 @@ public class NodeCountsTest
         }
     }
 
+    @Test
+    public void shouldFollowTheChangesOfTheTransactionWithinOneStatement() throws Exception
+    {
+        // given
+        GraphDatabaseService graphDb = db.getGraphDatabaseService();
+        Node one;
+        try ( Transaction tx = graphDb.beginTx() )
+        {
+            one = graphDb.createNode();
+            tx.success();
+        }
+
+        try ( Transaction tx = graphDb.beginTx();
+              Statement statement = statementProvider.instance() )
+        {
+            ReadOperations read = statement.readOperations();
+
+            // when
+            graphDb.createNode();
+            long afterCreate = read.countsForNode( ReadOperations.ANY_LABEL );
+            long again = read.countsForNode( ReadOperations.ANY_LABEL );
+            graphDb.createNode();
+            long afterSecondCreate = read.countsForNode( ReadOperations.ANY_LABEL );
+            one.delete();
+            long afterDelete = read.countsForNode( ReadOperations.ANY_LABEL );
+
+            // then
+            assertEquals( 2, afterCreate );
+            assertEquals( 2, again );
+            assertEquals( 3, afterSecondCreate );
+            assertEquals( 2, afterDelete );
+            tx.success();
+        }
+    }
+
     @Test
     public void shouldNotSeeNodeCountsOfOtherTransaction() throws Exception
     {
@@ -187,7 +219,7 @@ public class NodeCountsTest
         // then
         assertEquals( 0, before );
         assertEquals( 0, nodes );
-        assertEquals( before, during );
+        assertEquals( 2, during );
         assertEquals( 2, after );
     }
 
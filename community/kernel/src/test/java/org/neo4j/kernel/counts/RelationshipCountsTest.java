@@ -20,7 +20,6 @@
 package org.neo4j.kernel.counts;
 
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -83,12 +82,11 @@ public class RelationshipCountsTest
 
         // then
         assertEquals( 0, before );
-        assertEquals( 0, during );
+        assertEquals( 3, during );
         assertEquals( 3, after );
     }
 
     @Test
-    @Ignore("TODO: re-enable this test when we can extract proper counts form TxState")
     public void shouldAccountForDeletedRelationships() throws Exception
     {
         // given
@@ -156,7 +154,7 @@ public class RelationshipCountsTest
         assertEquals( 0, before );
         assertEquals( 0, concurrently );
         assertEquals( 2, after );
-        assertEquals( before, during );
+        assertEquals( after, during );
     }
 
     @Test
@@ -203,7 +201,7 @@ public class RelationshipCountsTest
         assertEquals( 3, before );
         assertEquals( 3, concurrently );
         assertEquals( 2, after );
-        assertEquals( before, during );
+        assertEquals( after, during );
     }
 
     @Test
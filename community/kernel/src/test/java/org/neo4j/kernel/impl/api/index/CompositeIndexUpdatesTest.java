@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.api.index.CompositeIndexValue;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.change;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.remove;
+import static org.neo4j.kernel.impl.api.index.CompositeIndexUpdates.added;
+import static org.neo4j.kernel.impl.api.index.CompositeIndexUpdates.update;
+
+public class CompositeIndexUpdatesTest
+{
+    private static final int LABEL = 1, TENANT = 10, EXTERNAL_ID = 11, OTHER = 12;
+    private static final long NODE = 42;
+
+    private final IndexDescriptor descriptor = new IndexDescriptor( LABEL, new int[]{TENANT, EXTERNAL_ID} );
+    private final long[] labelled = {LABEL}, unlabelled = {};
+
+    @Test
+    public void shouldAddNodeWhenLastPropertyOfIndexIsSet() throws Exception
+    {
+        assertEquals( add( NODE, TENANT, value( "acme", 7 ), labelled ),
+                update( descriptor, NODE, labelled, values( "acme", null ), labelled, values( "acme", 7 ) ) );
+    }
+
+    @Test
+    public void shouldAddNodeWhenLabelIsAdded() throws Exception
+    {
+        assertEquals( add( NODE, TENANT, value( "acme", 7 ), labelled ),
+                update( descriptor, NODE, unlabelled, values( "acme", 7 ), labelled, values( "acme", 7 ) ) );
+    }
+
+    @Test
+    public void shouldChangeNodeWhenAnyPropertyOfIndexChanges() throws Exception
+    {
+        assertEquals( change( NODE, TENANT, value( "acme", 7 ), labelled, value( "acme", 8 ), labelled ),
+                update( descriptor, NODE, labelled, values( "acme", 7 ), labelled, values( "acme", 8 ) ) );
+    }
+
+    @Test
+    public void shouldRemoveNodeWhenPropertyOfIndexIsRemoved() throws Exception
+    {
+        assertEquals( remove( NODE, TENANT, value( "acme", 7 ), labelled ),
+                update( descriptor, NODE, labelled, values( "acme", 7 ), labelled, values( null, 7 ) ) );
+    }
+
+    @Test
+    public void shouldIgnoreChangesWhichLeaveNodeOutOfIndex() throws Exception
+    {
+        assertNull( update( descriptor, NODE, unlabelled, values( "acme", 7 ), unlabelled, values( "acme", 8 ) ) );
+        assertNull( update( descriptor, NODE, labelled, values( "acme", null ), labelled, values( "other", null ) ) );
+    }
+
+    @Test
+    public void shouldIgnoreChangesWhichLeaveValueTheSame() throws Exception
+    {
+        assertNull( update( descriptor, NODE, labelled, values( "acme", 7 ), labelled, values( "acme", 7.0 ) ) );
+    }
+
+    @Test
+    public void shouldAddNodeFromPropertiesReadFromStore() throws Exception
+    {
+        assertEquals( add( NODE, TENANT, value( "acme", 7 ), labelled ), added( descriptor, NODE, asList(
+                add( NODE, EXTERNAL_ID, 7, labelled ),
+                add( NODE, OTHER, "ignored", labelled ),
+                add( NODE, TENANT, "acme", labelled ) ) ) );
+        assertNull( added( descriptor, NODE, asList( add( NODE, TENANT, "acme", labelled ) ) ) );
+    }
+
+    private static Object[] values( Object... values )
+    {
+        return values;
+    }
+
+    private static CompositeIndexValue value( Object... values )
+    {
+        return new CompositeIndexValue( values );
+    }
+}
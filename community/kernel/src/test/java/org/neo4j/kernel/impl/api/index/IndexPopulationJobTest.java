@@ -247,7 +247,7 @@ public class IndexPopulationJobTest
         FlippableIndexProxy index = mock( FlippableIndexProxy.class );
         IndexStoreView storeView = mock( IndexStoreView.class );
         ControlledStoreScan storeScan = new ControlledStoreScan();
-        when( storeView.visitNodesWithPropertyAndLabel( any( IndexDescriptor.class ),
+        when( storeView.visitNodes( any( int[].class ), any( int[].class ), anyLong(), anyLong(),
                 Matchers.<Visitor<NodePropertyUpdate, RuntimeException>>any() ) ).thenReturn( storeScan );
 
         final IndexPopulationJob job = newIndexPopulationJob( FIRST, name, populator, index, storeView,
@@ -401,7 +401,7 @@ public class IndexPopulationJobTest
         assertDoubleLongEquals( 0, 0, indexSample( FIRST, name ) );
     }
 
-    private static class ControlledStoreScan implements StoreScan<RuntimeException>
+    private static class ControlledStoreScan implements NodeRangeScan<RuntimeException>
     {
         private final DoubleLatch latch = new DoubleLatch();
 
@@ -416,6 +416,12 @@ public class IndexPopulationJobTest
         {
             latch.finish();
         }
+
+        @Override
+        public long position()
+        {
+            return 0;
+        }
     }
 
     private class NodeChangingWriter extends IndexPopulator.Adapter
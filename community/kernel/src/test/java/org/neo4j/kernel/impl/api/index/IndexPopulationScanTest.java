@@ -0,0 +1,392 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.impl.api.UpdateableSchemaState;
+import org.neo4j.kernel.impl.util.Neo4jJobScheduler;
+import org.neo4j.kernel.lifecycle.LifeRule;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.change;
+import static org.neo4j.kernel.impl.api.index.IndexPopulationScan.MIN_NODES_PER_RANGE;
+import static org.neo4j.kernel.impl.api.index.TestSchemaIndexProviderDescriptor.PROVIDER_DESCRIPTOR;
+import static org.neo4j.kernel.logging.DevNullLoggingService.DEV_NULL;
+
+public class IndexPopulationScanTest
+{
+    @Rule
+    public final LifeRule life = new LifeRule();
+
+    private final IndexStoreView storeView = mock( IndexStoreView.class );
+
+    @Test
+    public void shouldPopulateSeveralIndexesFromOneScanOfTheStore() throws Exception
+    {
+        // GIVEN
+        StoreOfUpdates store = new StoreOfUpdates(
+                add( 1, 10, "b", labels( 1 ) ),
+                add( 2, 10, "a", labels( 1, 2 ) ),
+                add( 2, 11, 5, labels( 1, 2 ) ),
+                add( 3, 10, "c", labels( 2 ) ) );
+        CollectingPopulator first = new CollectingPopulator(), second = new CollectingPopulator(),
+                third = new CollectingPopulator();
+        IndexPopulationScan scan = new IndexPopulationScan( storeView, null, 1 );
+        scan.add( newJob( 1, 10, first ) );
+        scan.add( newJob( 1, 11, second ) );
+        scan.add( newJob( 2, 10, third ) );
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertEquals( 1, store.scans.size() );
+        assertEquals( asList( "2=a", "1=b" ), first.added );
+        assertEquals( asList( "2=5" ), second.added );
+        assertEquals( asList( "2=a", "3=c" ), third.added );
+        assertTrue( first.completed && second.completed && third.completed );
+    }
+
+    @Test
+    public void shouldSplitTheScanIntoRangesScannedByParallelThreads() throws Exception
+    {
+        // GIVEN
+        Neo4jJobScheduler scheduler = life.add( new Neo4jJobScheduler() );
+        life.start();
+        long rangeSize = MIN_NODES_PER_RANGE;
+        StoreOfUpdates store = new StoreOfUpdates(
+                add( 1, 10, 1, labels( 1 ) ),
+                add( rangeSize + 1, 10, 2, labels( 1 ) ),
+                add( rangeSize * 2 + 1, 10, 3, labels( 1 ) ),
+                add( rangeSize * 3 - 1, 10, 4, labels( 1 ) ) );
+        when( storeView.nodeHighId() ).thenReturn( rangeSize * 3 );
+        CollectingPopulator populator = new CollectingPopulator();
+        IndexPopulationScan scan = new IndexPopulationScan( storeView, scheduler, 3 );
+        scan.add( newJob( 1, 10, populator ) );
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertEquals( 3, store.scans.size() );
+        verify( storeView ).visitNodes( any( int[].class ), any( int[].class ), eq( 0L ), eq( rangeSize ),
+                any( Visitor.class ) );
+        verify( storeView ).visitNodes( any( int[].class ), any( int[].class ), eq( rangeSize ), eq( rangeSize * 2 ),
+                any( Visitor.class ) );
+        verify( storeView ).visitNodes( any( int[].class ), any( int[].class ), eq( rangeSize * 2 ),
+                eq( rangeSize * 3 ), any( Visitor.class ) );
+        List<String> added = new ArrayList<>( populator.added );
+        assertEquals( 4, added.size() );
+        assertTrue( added.containsAll( asList( "1=1", (rangeSize + 1) + "=2", (rangeSize * 2 + 1) + "=3",
+                (rangeSize * 3 - 1) + "=4" ) ) );
+        assertTrue( populator.completed );
+    }
+
+    @Test
+    public void shouldKeepPopulatingTheOtherIndexesWhenOneFails() throws Exception
+    {
+        // GIVEN
+        new StoreOfUpdates(
+                add( 1, 10, "a", labels( 1 ) ),
+                add( 1, 11, "b", labels( 1 ) ) );
+        CollectingPopulator failing = new CollectingPopulator()
+        {
+            @Override
+            public void add( long nodeId, Object propertyValue )
+            {
+                throw new IllegalStateException( "Failing on purpose" );
+            }
+        };
+        CollectingPopulator working = new CollectingPopulator();
+        FlippableIndexProxy failingFlipper = new FlippableIndexProxy();
+        IndexPopulationScan scan = new IndexPopulationScan( storeView, null, 1 );
+        scan.add( newJob( 1, 10, failing, failingFlipper ) );
+        scan.add( newJob( 1, 11, working ) );
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertTrue( failing.failure.contains( "Failing on purpose" ) );
+        assertFalse( failing.completed );
+        assertEquals( asList( "1=b" ), working.added );
+        assertTrue( working.completed );
+    }
+
+    @Test
+    public void shouldApplyConcurrentUpdatesToNodesAddedAndLeaveUpdatesToNodesYetToBeReadToTheScan() throws Exception
+    {
+        // GIVEN
+        final CollectingPopulator populator = new CollectingPopulator();
+        final IndexPopulationJob job = newJob( 1, 10, populator );
+        new StoreOfUpdates(
+                add( 1, 10, "a", labels( 1 ) ),
+                add( 2, 10, "b", labels( 1 ) ),
+                add( 3, 10, "d", labels( 1 ) ) )
+        {
+            @Override
+            void reading( NodePropertyUpdate update )
+            {
+                if ( update.getNodeId() == 2 )
+                {
+                    // node 1 has been read and node 3 has not, whose change the scan will see when it gets there
+                    job.update( change( 1, 10, "a", labels( 1 ), "A", labels( 1 ) ) );
+                    job.update( change( 3, 10, "c", labels( 1 ), "d", labels( 1 ) ) );
+                }
+            }
+        };
+        // adding each node as a batch of its own
+        IndexPopulationScan scan = new IndexPopulationScan( storeView, null, 1, 1 );
+        scan.add( job );
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        assertEquals( asList( "1=a", "1=A", "2=b", "3=d" ), populator.added );
+        assertTrue( populator.completed );
+    }
+
+    @Test
+    public void shouldApplyUpdatesToNodesCreatedDuringAScanOfSeveralRanges() throws Exception
+    {
+        // GIVEN
+        Neo4jJobScheduler scheduler = life.add( new Neo4jJobScheduler() );
+        life.start();
+        final long rangeSize = MIN_NODES_PER_RANGE;
+        final CollectingPopulator populator = new CollectingPopulator();
+        final IndexPopulationJob job = newJob( 1, 10, populator );
+        final CountDownLatch createdNodeSeen = new CountDownLatch( 1 );
+        new StoreOfUpdates(
+                add( 1, 10, "a", labels( 1 ) ),
+                add( 2, 10, "b", labels( 1 ) ),
+                add( 3, 10, "c", labels( 1 ) ),
+                add( rangeSize + 1, 10, "d", labels( 1 ) ),
+                add( rangeSize * 2 + 1, 10, "e", labels( 1 ) ) )
+        {
+            @Override
+            void reading( NodePropertyUpdate update )
+            {
+                if ( update.getNodeId() == 1 )
+                {
+                    // a node is created above the high id the scan started with, while the last range is scanning
+                    job.update( add( rangeSize * 3 + 5, 10, "created", labels( 1 ) ) );
+                }
+                else if ( update.getNodeId() == 3 )
+                {
+                    // the first range has added node 1, and with it taken the update to the created node
+                    createdNodeSeen.countDown();
+                }
+                else if ( update.getNodeId() == rangeSize * 2 + 1 )
+                {
+                    awaitUninterruptibly( createdNodeSeen );
+                }
+            }
+        };
+        when( storeView.nodeHighId() ).thenReturn( rangeSize * 3 );
+        // adding each node as a batch of its own
+        IndexPopulationScan scan = new IndexPopulationScan( storeView, scheduler, 3, 1 );
+        scan.add( job );
+
+        // WHEN
+        scan.run();
+
+        // THEN
+        List<String> added = new ArrayList<>( populator.added );
+        assertEquals( 6, added.size() );
+        assertTrue( added.containsAll( asList( "1=a", "2=b", "3=c", (rangeSize + 1) + "=d",
+                (rangeSize * 2 + 1) + "=e", (rangeSize * 3 + 5) + "=created" ) ) );
+        assertTrue( populator.completed );
+    }
+
+    private static void awaitUninterruptibly( CountDownLatch latch )
+    {
+        try
+        {
+            assertTrue( latch.await( 10, SECONDS ) );
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private IndexPopulationJob newJob( int labelId, int propertyKeyId, IndexPopulator populator )
+    {
+        return newJob( labelId, propertyKeyId, populator, new FlippableIndexProxy() );
+    }
+
+    private IndexPopulationJob newJob( int labelId, int propertyKeyId, IndexPopulator populator,
+                                       FlippableIndexProxy flipper )
+    {
+        flipper.setFlipTarget( mock( IndexProxyFactory.class ) );
+        String description = ":label[" + labelId + "](property[" + propertyKeyId + "])";
+        return new IndexPopulationJob( new IndexDescriptor( labelId, propertyKeyId ), new IndexConfiguration( false ),
+                PROVIDER_DESCRIPTOR, description, mock( FailedIndexProxyFactory.class ), populator, flipper,
+                storeView, mock( UpdateableSchemaState.class ), DEV_NULL );
+    }
+
+    private static long[] labels( long... labels )
+    {
+        return labels;
+    }
+
+    /**
+     * Answers scans of the store view with the given updates, which are ordered by node id. The high id of the store
+     * is the one after the last node, unless stubbed otherwise.
+     */
+    private class StoreOfUpdates implements Answer<NodeRangeScan<RuntimeException>>
+    {
+        private final List<NodePropertyUpdate> updates;
+        private final List<NodeRangeScan<RuntimeException>> scans = new ArrayList<>();
+
+        @SuppressWarnings( "unchecked" )
+        StoreOfUpdates( NodePropertyUpdate... updates )
+        {
+            this.updates = Arrays.asList( updates );
+            when( storeView.nodeHighId() ).thenReturn( updates[updates.length - 1].getNodeId() + 1 );
+            when( storeView.visitNodes( any( int[].class ), any( int[].class ), anyLong(), anyLong(),
+                    any( Visitor.class ) ) ).thenAnswer( this );
+        }
+
+        void reading( NodePropertyUpdate update )
+        {
+        }
+
+        @Override
+        public synchronized NodeRangeScan<RuntimeException> answer( InvocationOnMock invocation ) throws Throwable
+        {
+            final long fromNodeId = (Long) invocation.getArguments()[2];
+            final long toNodeId = (Long) invocation.getArguments()[3];
+            @SuppressWarnings( "unchecked" )
+            final Visitor<NodePropertyUpdate,RuntimeException> visitor =
+                    (Visitor<NodePropertyUpdate,RuntimeException>) invocation.getArguments()[4];
+            NodeRangeScan<RuntimeException> scan = new NodeRangeScan<RuntimeException>()
+            {
+                private volatile long position = fromNodeId;
+
+                @Override
+                public void run()
+                {
+                    for ( NodePropertyUpdate update : updates )
+                    {
+                        if ( update.getNodeId() >= fromNodeId && update.getNodeId() < toNodeId )
+                        {
+                            reading( update );
+                            position = update.getNodeId() + 1;
+                            visitor.visit( update );
+                        }
+                    }
+                }
+
+                @Override
+                public void stop()
+                {
+                }
+
+                @Override
+                public long position()
+                {
+                    return position;
+                }
+            };
+            scans.add( scan );
+            return scan;
+        }
+    }
+
+    private static class CollectingPopulator extends IndexPopulator.Adapter
+    {
+        private final List<String> added = new ArrayList<>();
+        private boolean completed;
+        private String failure;
+
+        @Override
+        public synchronized void add( long nodeId, Object propertyValue )
+        {
+            added.add( nodeId + "=" + propertyValue );
+        }
+
+        @Override
+        public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor )
+        {
+            return new CollectingIndexUpdater()
+            {
+                @Override
+                public void close() throws IOException, IndexEntryConflictException
+                {
+                    for ( NodePropertyUpdate update : updates )
+                    {
+                        CollectingPopulator.this.add( update.getNodeId(), update.getValueAfter() );
+                    }
+                }
+
+                @Override
+                public void remove( Collection<Long> nodeIds )
+                {
+                    throw new UnsupportedOperationException( "not expected" );
+                }
+            };
+        }
+
+        @Override
+        public void close( boolean populationCompletedSuccessfully )
+        {
+            completed = populationCompletedSuccessfully;
+        }
+
+        @Override
+        public void markAsFailed( String failure )
+        {
+            this.failure = failure;
+        }
+    }
+}
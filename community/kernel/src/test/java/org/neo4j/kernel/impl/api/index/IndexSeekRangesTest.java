@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index;
+
+import org.junit.Test;
+
+import org.neo4j.helpers.Predicate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.api.index.IndexSeekRanges.compareNumbers;
+import static org.neo4j.kernel.impl.api.index.IndexSeekRanges.compareStrings;
+import static org.neo4j.kernel.impl.api.index.IndexSeekRanges.numberRange;
+import static org.neo4j.kernel.impl.api.index.IndexSeekRanges.stringPrefix;
+import static org.neo4j.kernel.impl.api.index.IndexSeekRanges.stringRange;
+
+public class IndexSeekRangesTest
+{
+    @Test
+    public void shouldIncludeOrExcludeNumberBounds() throws Exception
+    {
+        Predicate<Object> inclusive = numberRange( 10, true, 20, true );
+        Predicate<Object> exclusive = numberRange( 10, false, 20, false );
+
+        assertTrue( inclusive.accept( 10 ) );
+        assertTrue( inclusive.accept( 20 ) );
+        assertFalse( exclusive.accept( 10 ) );
+        assertFalse( exclusive.accept( 20 ) );
+        assertTrue( exclusive.accept( 15 ) );
+        assertFalse( inclusive.accept( 9 ) );
+        assertFalse( inclusive.accept( 21 ) );
+    }
+
+    @Test
+    public void shouldLeaveNumberRangeOpenAtNullBounds() throws Exception
+    {
+        assertTrue( numberRange( null, false, 0, false ).accept( Long.MIN_VALUE ) );
+        assertFalse( numberRange( null, false, 0, false ).accept( 0 ) );
+        assertTrue( numberRange( 0, true, null, false ).accept( Double.POSITIVE_INFINITY ) );
+        assertTrue( numberRange( null, false, null, false ).accept( 42 ) );
+    }
+
+    @Test
+    public void shouldCompareNumbersOfDifferentTypesByValue() throws Exception
+    {
+        Predicate<Object> range = numberRange( 1, true, 2.5, false );
+
+        assertTrue( range.accept( 1.0 ) );
+        assertTrue( range.accept( (byte) 2 ) );
+        assertTrue( range.accept( 2.4f ) );
+        assertFalse( range.accept( 2.5f ) );
+        assertFalse( range.accept( 0.999 ) );
+    }
+
+    @Test
+    public void shouldCompareLongsBeyondDoublePrecisionExactly() throws Exception
+    {
+        long big = (1L << 53) + 1;
+        Predicate<Object> range = numberRange( big, false, null, false );
+
+        assertFalse( range.accept( big ) );
+        assertTrue( range.accept( big + 1 ) );
+        assertTrue( compareNumbers( big, big - 1 ) > 0 );
+    }
+
+    @Test
+    public void shouldNotMatchNaNOrValuesOfOtherTypesInNumberRange() throws Exception
+    {
+        Predicate<Object> open = numberRange( null, false, null, false );
+
+        assertFalse( open.accept( Double.NaN ) );
+        assertFalse( open.accept( Float.NaN ) );
+        assertFalse( open.accept( "10" ) );
+        assertFalse( open.accept( true ) );
+        assertFalse( open.accept( new int[]{10} ) );
+    }
+
+    @Test
+    public void shouldIncludeOrExcludeStringBounds() throws Exception
+    {
+        Predicate<Object> inclusive = stringRange( "b", true, "d", true );
+        Predicate<Object> exclusive = stringRange( "b", false, "d", false );
+
+        assertTrue( inclusive.accept( "b" ) );
+        assertTrue( inclusive.accept( "d" ) );
+        assertFalse( exclusive.accept( "b" ) );
+        assertFalse( exclusive.accept( "d" ) );
+        assertTrue( exclusive.accept( "ba" ) );
+        assertFalse( exclusive.accept( "da" ) );
+        assertFalse( inclusive.accept( "a" ) );
+    }
+
+    @Test
+    public void shouldMatchCharactersAsStringsButNotOtherTypesInStringRange() throws Exception
+    {
+        Predicate<Object> open = stringRange( null, false, null, false );
+
+        assertTrue( open.accept( "" ) );
+        assertTrue( open.accept( 'x' ) );
+        assertTrue( stringRange( "a", true, "c", false ).accept( 'b' ) );
+        assertFalse( open.accept( 10 ) );
+        assertFalse( open.accept( new String[]{"a"} ) );
+    }
+
+    @Test
+    public void shouldOrderStringsByCodePoints() throws Exception
+    {
+        String bmp = "\uFFFD";
+        String supplementary = new String( Character.toChars( 0x1F600 ) );
+
+        // String.compareTo puts the surrogate pair first, code points don't
+        assertTrue( supplementary.compareTo( bmp ) < 0 );
+        assertTrue( compareStrings( supplementary, bmp ) > 0 );
+        assertTrue( stringRange( bmp, false, null, false ).accept( supplementary ) );
+        assertTrue( compareStrings( "ab", "abc" ) < 0 );
+        assertTrue( compareStrings( "abc", "abc" ) == 0 );
+    }
+
+    @Test
+    public void shouldMatchStringsWithPrefix() throws Exception
+    {
+        Predicate<Object> prefix = stringPrefix( "Tob" );
+
+        assertTrue( prefix.accept( "Tob" ) );
+        assertTrue( prefix.accept( "Tobias" ) );
+        assertFalse( prefix.accept( "Tom" ) );
+        assertFalse( prefix.accept( "To" ) );
+        assertFalse( prefix.accept( 42 ) );
+        assertTrue( stringPrefix( "" ).accept( "anything" ) );
+    }
+}
@@ -542,7 +542,7 @@ public class IndexingServiceTest
         return new DataUpdates( updates );
     }
 
-    private static class DataUpdates implements Answer<StoreScan<RuntimeException>>, Iterable<NodePropertyUpdate>
+    private static class DataUpdates implements Answer<NodeRangeScan<RuntimeException>>, Iterable<NodePropertyUpdate>
     {
         private final NodePropertyUpdate[] updates;
 
@@ -553,21 +553,24 @@ public class IndexingServiceTest
 
         void getsProcessedByStoreScanFrom( IndexStoreView mock )
         {
-            when( mock.visitNodesWithPropertyAndLabel( any( IndexDescriptor.class ), visitor( any( Visitor.class ) ) ) )
-                    .thenAnswer( this );
+            when( mock.visitNodes( any( int[].class ), any( int[].class ), anyLong(), anyLong(),
+                    visitor( any( Visitor.class ) ) ) ).thenAnswer( this );
         }
 
         @Override
-        public StoreScan<RuntimeException> answer( InvocationOnMock invocation ) throws Throwable
+        public NodeRangeScan<RuntimeException> answer( InvocationOnMock invocation ) throws Throwable
         {
-            final Visitor<NodePropertyUpdate, RuntimeException> visitor = visitor( invocation.getArguments()[1] );
-            return new StoreScan<RuntimeException>()
+            final Visitor<NodePropertyUpdate, RuntimeException> visitor = visitor( invocation.getArguments()[4] );
+            return new NodeRangeScan<RuntimeException>()
             {
+                private volatile long position;
+
                 @Override
                 public void run()
                 {
                     for ( NodePropertyUpdate update : updates )
                     {
+                        position = update.getNodeId() + 1;
                         visitor.visit( update );
                     }
                 }
@@ -577,6 +580,12 @@ public class IndexingServiceTest
                 {
                     // throw new UnsupportedOperationException( "not implemented" );
                 }
+
+                @Override
+                public long position()
+                {
+                    return position;
+                }
             };
         }
 
@@ -27,8 +27,12 @@ import org.neo4j.kernel.api.index.IndexAccessor;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexValueSketch;
 
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -52,6 +56,8 @@ public class OnlineIndexProxyTest
         // then
         verify( accessor ).drop();
         verify( storeView ).replaceIndexCounts( descriptor, 0l, 0l, 0l );
+        verify( storeView, times( IndexValueSketch.SLOTS ) ).replaceIndexSketch( eq( descriptor ), anyInt(), eq( 0l ),
+                eq( 0l ) );
         verifyNoMoreInteractions( accessor, storeView );
     }
 }
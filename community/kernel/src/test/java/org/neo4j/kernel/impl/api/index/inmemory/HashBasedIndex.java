@@ -71,6 +71,65 @@ class HashBasedIndex extends InMemoryIndexImplementation
         return nodes == null ? PrimitiveLongCollections.emptyIterator() : toPrimitiveIterator( nodes.iterator() );
     }
 
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                    Number upper, boolean includeUpper )
+    {
+        Set<Long> nodeIds = new HashSet<>();
+        for ( Map.Entry<Object,Set<Long>> entry : data().entrySet() )
+        {
+            if ( entry.getKey() instanceof Number )
+            {
+                double value = ((Number) entry.getKey()).doubleValue();
+                if ( (lower == null || inRange( Double.compare( value, lower.doubleValue() ), includeLower )) &&
+                     (upper == null || inRange( -Double.compare( value, upper.doubleValue() ), includeUpper )) )
+                {
+                    nodeIds.addAll( entry.getValue() );
+                }
+            }
+        }
+        return toPrimitiveIterator( nodeIds.iterator() );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                    String upper, boolean includeUpper )
+    {
+        Set<Long> nodeIds = new HashSet<>();
+        for ( Map.Entry<Object,Set<Long>> entry : data().entrySet() )
+        {
+            if ( entry.getKey() instanceof String )
+            {
+                String value = (String) entry.getKey();
+                if ( (lower == null || inRange( value.compareTo( lower ), includeLower )) &&
+                     (upper == null || inRange( -value.compareTo( upper ), includeUpper )) )
+                {
+                    nodeIds.addAll( entry.getValue() );
+                }
+            }
+        }
+        return toPrimitiveIterator( nodeIds.iterator() );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        Set<Long> nodeIds = new HashSet<>();
+        for ( Map.Entry<Object,Set<Long>> entry : data().entrySet() )
+        {
+            if ( entry.getKey() instanceof String && ((String) entry.getKey()).startsWith( prefix ) )
+            {
+                nodeIds.addAll( entry.getValue() );
+            }
+        }
+        return toPrimitiveIterator( nodeIds.iterator() );
+    }
+
+    private static boolean inRange( int comparedToBound, boolean inclusive )
+    {
+        return comparedToBound > 0 || (inclusive && comparedToBound == 0);
+    }
+
     @Override
     boolean doAdd( Object propertyValue, long nodeId, boolean applyIdempotently )
     {
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.api.CountsRecordState;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.register.Register.DoubleLongRegister;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.change;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.remove;
+
+public class IncrementalIndexSamplerTest
+{
+    @Test
+    public void shouldCountAllUpdatesOfAnIndexWithoutASketch()
+    {
+        // given
+        IncrementalIndexSampler sampler = new IncrementalIndexSampler( storeView, descriptor, false );
+
+        // when
+        sampler.apply( asList( add( 1, propertyKeyId, "a", labels ), add( 2, propertyKeyId, "b", labels ) ), 0 );
+
+        // then
+        verify( storeView ).incrementIndexUpdates( descriptor, 2 );
+        verify( storeView, never() ).replaceIndexSample( any( IndexDescriptor.class ), anyLong(), anyLong(),
+                anyLong() );
+    }
+
+    @Test
+    public void shouldSampleFromTheSketchAndOnlyCountRemovalsAndChanges()
+    {
+        // given
+        seedSketch( "a", "b", "b" );
+        IncrementalIndexSampler sampler = new IncrementalIndexSampler( storeView, descriptor, false );
+
+        // when
+        sampler.apply( asList(
+                add( 10, propertyKeyId, "c", labels ),
+                change( 0, propertyKeyId, "a", labels, "b", labels ),
+                remove( 1, propertyKeyId, "b", labels ) ), 0 );
+
+        // then
+        verify( storeView ).replaceIndexSample( descriptor, 2, 3, 3 );
+        verify( storeView ).incrementIndexUpdates( descriptor, 2 );
+    }
+
+    @Test
+    public void shouldSampleUniqueIndexesFromTheirNumberOfEntries()
+    {
+        // given
+        seedSketch( "a", "b" );
+        IncrementalIndexSampler sampler = new IncrementalIndexSampler( storeView, descriptor, true );
+
+        // when
+        sampler.apply( asList( add( 10, propertyKeyId, "c", labels ) ), 0 );
+
+        // then
+        verify( storeView ).replaceIndexSample( descriptor, 3, 3, 3 );
+        verify( storeView ).incrementIndexUpdates( descriptor, 0 );
+    }
+
+    @Test
+    public void shouldInvalidateTheSketchWhenNodesAreRemovedWithoutTheirValues()
+    {
+        // given
+        seedSketch( "a", "b" );
+        IncrementalIndexSampler sampler = new IncrementalIndexSampler( storeView, descriptor, false );
+
+        // when
+        sampler.apply( Collections.<NodePropertyUpdate>emptyList(), 2 );
+
+        // then
+        assertEquals( 0, IndexValueSketch.storedGeneration( storeView, descriptor ) );
+        verify( storeView ).incrementIndexUpdates( descriptor, 2 );
+        verify( storeView, never() ).replaceIndexSample( any( IndexDescriptor.class ), anyLong(), anyLong(),
+                anyLong() );
+    }
+
+    @Test
+    public void shouldReloadTheSketchOnceItHasBeenReseeded()
+    {
+        // given
+        seedSketch( "a", "b" );
+        IncrementalIndexSampler sampler = new IncrementalIndexSampler( storeView, descriptor, false );
+        sampler.apply( asList( add( 10, propertyKeyId, "c", labels ) ), 0 );
+
+        // when
+        IndexValueSketch reseeded = new IndexValueSketch( 2 );
+        reseeded.include( 0, "a" );
+        reseeded.store( storeView, descriptor );
+        sampler.apply( asList( add( 11, propertyKeyId, "a", labels ) ), 0 );
+
+        // then
+        verify( storeView ).replaceIndexSample( descriptor, 1, 2, 2 );
+        assertEquals( 2, IndexValueSketch.load( storeView, descriptor ).generation() );
+    }
+
+    private void seedSketch( Object... values )
+    {
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        for ( int node = 0; node < values.length; node++ )
+        {
+            sketch.include( node, values[node] );
+        }
+        sketch.store( storeView, descriptor );
+    }
+
+    private final int propertyKeyId = 5;
+    private final long[] labels = new long[]{4};
+    private final IndexDescriptor descriptor = new IndexDescriptor( 4, propertyKeyId );
+    private final CountsRecordState counts = new CountsRecordState();
+    private final IndexStoreView storeView = mock( IndexStoreView.class );
+
+    @Before
+    public void stubStoreView()
+    {
+        doAnswer( new Answer<DoubleLongRegister>()
+        {
+            @Override
+            public DoubleLongRegister answer( InvocationOnMock invocation ) throws Throwable
+            {
+                Object[] arguments = invocation.getArguments();
+                return counts.indexSketch( descriptor.getLabelId(), descriptor.getPropertyKeyId(),
+                        (Integer) arguments[1], (DoubleLongRegister) arguments[2] );
+            }
+        } ).when( storeView ).indexSketch( any( IndexDescriptor.class ), anyInt(), any( DoubleLongRegister.class ) );
+        doAnswer( new Answer<Void>()
+        {
+            @Override
+            public Void answer( InvocationOnMock invocation ) throws Throwable
+            {
+                Object[] arguments = invocation.getArguments();
+                counts.replaceIndexSketch( descriptor.getLabelId(), descriptor.getPropertyKeyId(),
+                        (Integer) arguments[1], (Long) arguments[2], (Long) arguments[3] );
+                return null;
+            }
+        } ).when( storeView ).replaceIndexSketch( any( IndexDescriptor.class ), anyInt(), anyLong(), anyLong() );
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.impl.api.CountsRecordState;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.register.Register.DoubleLongRegister;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IndexValueSketchTest
+{
+    @Test
+    public void shouldEstimateTheDistinctValuesOfManyEntries()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+
+        // when
+        for ( int node = 0; node < 100_000; node++ )
+        {
+            sketch.include( node, "value" + (node % 10_000) );
+        }
+
+        // then
+        assertEquals( 100_000, sketch.entries() );
+        assertEstimate( 10_000, sketch.uniqueValues(), 0.05 );
+    }
+
+    @Test
+    public void shouldCountFewDistinctValuesExactly()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+
+        // when
+        for ( int node = 0; node < 1_000; node++ )
+        {
+            sketch.include( node, node % 3 == 0 ? "foo" : node % 3 == 1 ? (Object) true : 'c' );
+        }
+
+        // then
+        assertEquals( 3, sketch.uniqueValues() );
+    }
+
+    @Test
+    public void shouldCountNumbersOfDifferentTypesWithTheSameValueAsOneValue()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+
+        // when
+        sketch.include( 0, 42 );
+        sketch.include( 1, 42L );
+        sketch.include( 2, 42.0d );
+        sketch.include( 3, (byte) 42 );
+
+        // then
+        assertEquals( 1, sketch.uniqueValues() );
+    }
+
+    @Test
+    public void shouldScaleTheEstimateDownAsValuesAreRemoved()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        for ( int node = 0; node < 20_000; node++ )
+        {
+            sketch.include( node, node );
+        }
+
+        // when
+        for ( int node = 0; node < 20_000; node += 2 )
+        {
+            sketch.exclude( node, node );
+        }
+
+        // then
+        assertEquals( 10_000, sketch.entries() );
+        assertEstimate( 10_000, sketch.uniqueValues(), 0.25 );
+    }
+
+    @Test
+    public void shouldNotScaleTheEstimateDownWhenRemovingDuplicateValues()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        for ( int node = 0; node < 20_000; node++ )
+        {
+            sketch.include( node, "value" + (node % 10) );
+        }
+
+        // when
+        for ( int node = 0; node < 15_000; node++ )
+        {
+            sketch.exclude( node, "value" + (node % 10) );
+        }
+
+        // then
+        assertEquals( 10, sketch.uniqueValues() );
+    }
+
+    @Test
+    public void shouldNeverEstimateMoreValuesThanEntries()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        for ( int node = 0; node < 10; node++ )
+        {
+            sketch.include( node, node );
+        }
+
+        // when
+        for ( int node = 0; node < 8; node++ )
+        {
+            sketch.exclude( node, node );
+        }
+
+        // then
+        assertEquals( 2, sketch.entries() );
+        assertTrue( sketch.uniqueValues() <= 2 );
+    }
+
+    @Test
+    public void shouldStoreAndLoadTheSketch()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 3 );
+        for ( int node = 0; node < 5_000; node++ )
+        {
+            sketch.include( node, node % 1_000 );
+        }
+        sketch.exclude( 7, 7 );
+
+        // when
+        sketch.store( storeView, descriptor );
+        IndexValueSketch loaded = IndexValueSketch.load( storeView, descriptor );
+
+        // then
+        assertEquals( 3, IndexValueSketch.storedGeneration( storeView, descriptor ) );
+        assertEquals( 3, loaded.generation() );
+        assertEquals( sketch.entries(), loaded.entries() );
+        assertEquals( sketch.uniqueValues(), loaded.uniqueValues() );
+    }
+
+    @Test
+    public void shouldOnlyStoreTheSlotsThatHaveChanged()
+    {
+        // given
+        new IndexValueSketch( 1 ).store( storeView, descriptor );
+        IndexValueSketch sketch = IndexValueSketch.load( storeView, descriptor );
+        reset( storeView );
+        stubStoreView();
+
+        // when
+        sketch.store( storeView, descriptor );
+
+        // then
+        verify( storeView, never() ).replaceIndexSketch( any( IndexDescriptor.class ), anyInt(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void shouldRemoveTheStoredSketch()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        sketch.include( 1, "value" );
+        sketch.store( storeView, descriptor );
+
+        // when
+        IndexValueSketch.remove( storeView, descriptor );
+
+        // then
+        IndexValueSketch loaded = IndexValueSketch.load( storeView, descriptor );
+        assertFalse( loaded.isSeeded() );
+        assertEquals( 0, loaded.entries() );
+        assertEquals( 0, loaded.uniqueValues() );
+    }
+
+    @Test
+    public void shouldNotWriteAnythingWhenRemovingASketchThatDoesNotExist()
+    {
+        // when
+        IndexValueSketch.remove( storeView, descriptor );
+
+        // then
+        verify( storeView, never() ).replaceIndexSketch( any( IndexDescriptor.class ), anyInt(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void shouldOnlyClearTheSlotsInUseWhenRemovingTheStoredSketch()
+    {
+        // given
+        IndexValueSketch sketch = new IndexValueSketch( 1 );
+        sketch.include( 1, "value" );
+        sketch.store( storeView, descriptor );
+        reset( storeView );
+        stubStoreView();
+
+        // when
+        IndexValueSketch.remove( storeView, descriptor );
+
+        // then header, counter, one register slot and one reservoir slot
+        verify( storeView, times( 4 ) ).replaceIndexSketch( any( IndexDescriptor.class ), anyInt(), anyLong(),
+                anyLong() );
+    }
+
+    private static void assertEstimate( long expected, long actual, double error )
+    {
+        assertTrue( "Expected about " + expected + " but was " + actual,
+                Math.abs( actual - expected ) <= expected * error );
+    }
+
+    private final IndexDescriptor descriptor = new IndexDescriptor( 4, 5 );
+    private final CountsRecordState counts = new CountsRecordState();
+    private final IndexStoreView storeView = mock( IndexStoreView.class );
+
+    @Before
+    public void stubStoreView()
+    {
+        doAnswer( new Answer<DoubleLongRegister>()
+        {
+            @Override
+            public DoubleLongRegister answer( InvocationOnMock invocation ) throws Throwable
+            {
+                Object[] arguments = invocation.getArguments();
+                return counts.indexSketch( descriptor.getLabelId(), descriptor.getPropertyKeyId(),
+                        (Integer) arguments[1], (DoubleLongRegister) arguments[2] );
+            }
+        } ).when( storeView ).indexSketch( any( IndexDescriptor.class ), anyInt(), any( DoubleLongRegister.class ) );
+        doAnswer( new Answer<Void>()
+        {
+            @Override
+            public Void answer( InvocationOnMock invocation ) throws Throwable
+            {
+                Object[] arguments = invocation.getArguments();
+                counts.replaceIndexSketch( descriptor.getLabelId(), descriptor.getPropertyKeyId(),
+                        (Integer) arguments[1], (Long) arguments[2], (Long) arguments[3] );
+                return null;
+            }
+        } ).when( storeView ).replaceIndexSketch( any( IndexDescriptor.class ), anyInt(), anyLong(), anyLong() );
+    }
+}
@@ -109,6 +109,17 @@ public class InMemoryLabelScanStore implements LabelScanStore
                 };
             }
 
+            @Override
+            public PrimitiveLongIterator nodesWithAllLabels( int... labelIds )
+            {
+                Set<Long> nodes = new HashSet<>( nodeSetForRemoving( labelIds[0] ) );
+                for ( int i = 1; i < labelIds.length; i++ )
+                {
+                    nodes.retainAll( nodeSetForRemoving( labelIds[i] ) );
+                }
+                return PrimitiveLongCollections.toPrimitiveIterator( nodes.iterator() );
+            }
+
             @Override
             public void close()
             {   // Nothing to close
@@ -58,6 +58,7 @@ import static org.neo4j.helpers.collection.IteratorUtil.asSet;
 import static org.neo4j.helpers.collection.IteratorUtil.iterator;
 import static org.neo4j.helpers.collection.IteratorUtil.resourceIterator;
 import static org.neo4j.kernel.api.StatementConstants.NO_SUCH_NODE;
+import static org.neo4j.kernel.api.properties.Property.intProperty;
 import static org.neo4j.kernel.api.properties.Property.noNodeProperty;
 import static org.neo4j.kernel.api.properties.Property.stringProperty;
 
@@ -299,6 +300,112 @@ public class IndexQueryTransactionStateTest
         assertNoSuchNode( result );
     }
 
+    @Test
+    public void shouldIncludeNodesWithValuesChangedIntoRangeInRangeSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor, 10, true, 20, true ) )
+                .thenReturn( asPrimitiveResourceIterator( 2l, 3l ) );
+        when( store.nodeGetAllProperties( 2l ) ).thenReturn( iterator( intProperty( propertyKeyId, 12 ) ) );
+        when( store.nodeGetAllProperties( 3l ) ).thenReturn( iterator( intProperty( propertyKeyId, 20 ) ) );
+        when( store.nodeGetProperty( 1l, propertyKeyId ) ).thenReturn( noNodeProperty( 1l, propertyKeyId ) );
+        when( store.nodeGetAllProperties( 1l ) ).thenReturn( IteratorUtil.<DefinedProperty>emptyIterator() );
+        when( store.nodeHasLabel( 1l, labelId ) ).thenReturn( false );
+
+        state.txState().nodeDoReplaceProperty( 1l, noNodeProperty( 1l, propertyKeyId ),
+                intProperty( propertyKeyId, 11 ) );
+        txContext.nodeAddLabel( state, 1l, labelId );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor,
+                10, true, 20, true );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l, 2l, 3l ) ) );
+    }
+
+    @Test
+    public void shouldExcludeNodesWithValuesChangedOutOfRangeFromRangeSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor, 10, true, 20, false ) )
+                .thenReturn( asPrimitiveResourceIterator( 1l, 2l ) );
+        when( store.nodeGetAllProperties( 1l ) ).thenReturn( iterator( intProperty( propertyKeyId, 12 ) ) );
+        when( store.nodeGetAllProperties( 2l ) ).thenReturn( iterator( intProperty( propertyKeyId, 15 ) ) );
+
+        state.txState().nodeDoReplaceProperty( 1l, intProperty( propertyKeyId, 12 ),
+                intProperty( propertyKeyId, 20 ) );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor,
+                10, true, 20, false );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 2l ) ) );
+    }
+
+    @Test
+    public void shouldExcludeRemovedNodesFromRangeSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByString( state, indexDescriptor, "A", true, null, false ) )
+                .thenReturn( asPrimitiveResourceIterator( 1l, 2l, 3l ) );
+        when( store.nodeGetAllProperties( anyLong() ) ).thenReturn( iterator( stringProperty( propertyKeyId, "B" ) ),
+                iterator( stringProperty( propertyKeyId, "C" ) ) );
+
+        txContext.nodeDelete( state, 2l );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByString( state, indexDescriptor,
+                "A", true, null, false );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l, 3l ) ) );
+    }
+
+    @Test
+    public void shouldVerifyCommittedNodesFoundByRangeSeekAgainstTheirValues() throws Exception
+    {
+        // Given an index which, like one with cut off keys, finds more than what has the prefix
+        when( store.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "Tob" ) )
+                .thenReturn( asPrimitiveResourceIterator( 1l, 2l, 3l ) );
+        when( store.nodeGetProperty( 1l, propertyKeyId ) ).thenReturn( stringProperty( propertyKeyId, "Tobias" ) );
+        when( store.nodeGetProperty( 2l, propertyKeyId ) ).thenReturn( stringProperty( propertyKeyId, "Tom" ) );
+        when( store.nodeGetProperty( 3l, propertyKeyId ) ).thenReturn( intProperty( propertyKeyId, 42 ) );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "Tob" );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l ) ) );
+    }
+
+    @Test
+    public void shouldIncludeCreatedNodesWithPrefixInPrefixSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "Tob" ) )
+                .thenReturn( asPrimitiveResourceIterator() );
+        when( store.nodeGetProperty( anyLong(), eq( propertyKeyId ) ) ).thenReturn(
+                noNodeProperty( 1, propertyKeyId ) );
+        when( store.nodeGetAllProperties( anyLong() ) ).thenReturn( IteratorUtil
+                .<DefinedProperty>emptyIterator() );
+        when( store.nodeHasLabel( anyLong(), eq( labelId ) ) ).thenReturn( false );
+
+        state.txState().nodeDoReplaceProperty( 1l, noNodeProperty( 1l, propertyKeyId ),
+                stringProperty( propertyKeyId, "Tobias" ) );
+        txContext.nodeAddLabel( state, 1l, labelId );
+        state.txState().nodeDoReplaceProperty( 2l, noNodeProperty( 2l, propertyKeyId ),
+                stringProperty( propertyKeyId, "Tom" ) );
+        txContext.nodeAddLabel( state, 2l, labelId );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "Tob" );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l ) ) );
+    }
+
     // exists
     int labelId = 2;
     int propertyKeyId = 3;
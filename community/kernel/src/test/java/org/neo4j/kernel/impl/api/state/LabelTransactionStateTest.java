@@ -167,6 +167,28 @@ public class LabelTransactionStateTest
         assertEquals( asSet( 0L ), asSet( txContext.nodesGetForLabel( state, 2 ) ) );
     }
 
+    @Test
+    public void addedAndRemovedLabelsShouldBeReflectedWhenGettingNodesForLabels() throws Exception
+    {
+        // GIVEN
+        commitLabels(
+                labels( 0, 1, 2 ),
+                labels( 1, 2, 3 ),
+                labels( 2, 1, 3 ),
+                labels( 3, 1, 2 ) );
+        when( store.nodesGetForLabels( state, 1, 2 ) )
+                .then( answerAsPrimitiveLongIteratorFrom( Arrays.asList( 0L, 3L ) ) );
+
+        // WHEN
+        txContext.nodeAddLabel( state, 1, 1 );
+        txContext.nodeAddLabel( state, 2, 2 );
+        txContext.nodeAddLabel( state, 3, 3 );
+        txContext.nodeRemoveLabel( state, 0, 1 );
+
+        // THEN
+        assertEquals( asSet( 1L, 2L, 3L ), asSet( txContext.nodesGetForLabels( state, 1, 2 ) ) );
+    }
+
     @Test
     public void addingNewLabelToNodeShouldRespondTrue() throws Exception
     {
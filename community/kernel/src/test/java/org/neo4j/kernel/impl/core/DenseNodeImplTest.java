@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.kernel.impl.api.DegreeVisitor;
+import org.neo4j.kernel.impl.api.store.CacheUpdateListener;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.neo4j.kernel.impl.api.store.CacheUpdateListener.NO_UPDATES;
+
+public class DenseNodeImplTest
+{
+    private static final int TYPE_A = 0, TYPE_B = 3;
+    private static final long NODE_ID = 42;
+
+    private final RelationshipLoader loader = mock( RelationshipLoader.class );
+    private final DenseNodeImpl node = new DenseNodeImpl( NODE_ID );
+
+    @Test
+    public void shouldAnswerAllDegreesFromOneLoadOfTheGroups() throws Exception
+    {
+        // GIVEN
+        when( loader.getRelationshipGroupDegrees( NODE_ID ) ).thenReturn( degrees() );
+
+        // WHEN/THEN
+        assertEquals( 5 + 7 + 2 + 1 + 4, node.getDegree( loader, Direction.BOTH, NO_UPDATES ) );
+        assertEquals( 5 + 2 + 1, node.getDegree( loader, Direction.OUTGOING, NO_UPDATES ) );
+        assertEquals( 7 + 2 + 4, node.getDegree( loader, Direction.INCOMING, NO_UPDATES ) );
+        assertEquals( 5 + 7 + 2, node.getDegree( loader, TYPE_A, NO_UPDATES ) );
+        assertEquals( 5 + 2, node.getDegree( loader, TYPE_A, Direction.OUTGOING, NO_UPDATES ) );
+        assertEquals( 4, node.getDegree( loader, TYPE_B, Direction.INCOMING, NO_UPDATES ) );
+        assertEquals( 0, node.getDegree( loader, 7, Direction.BOTH, NO_UPDATES ) );
+        DegreeVisitor visitor = mock( DegreeVisitor.class );
+        node.visitDegrees( loader, visitor, NO_UPDATES );
+        verify( visitor ).visitDegree( TYPE_A, 5 + 2, 7 + 2 );
+        verify( visitor ).visitDegree( TYPE_B, 1, 4 );
+        verifyNoMoreInteractions( visitor );
+
+        verify( loader, times( 1 ) ).getRelationshipGroupDegrees( NODE_ID );
+    }
+
+    @Test
+    public void shouldReloadDegreesAfterRelationshipsChanged() throws Exception
+    {
+        // GIVEN
+        when( loader.getRelationshipGroupDegrees( NODE_ID ) ).thenReturn( degrees(),
+                new RelationshipGroupDegrees.Builder().add( TYPE_A, 6, 7, 2 ).build() );
+        assertEquals( 5, node.getDegree( loader, TYPE_B, Direction.BOTH, NO_UPDATES ) );
+
+        // WHEN
+        node.updateRelationshipChainPosition( DirectionWrapper.OUTGOING, TYPE_B, 10, 11 );
+
+        // THEN
+        assertEquals( 0, node.getDegree( loader, TYPE_B, Direction.BOTH, NO_UPDATES ) );
+        assertEquals( 6 + 2, node.getDegree( loader, TYPE_A, Direction.OUTGOING, NO_UPDATES ) );
+        verify( loader, times( 2 ) ).getRelationshipGroupDegrees( NODE_ID );
+    }
+
+    @Test
+    public void shouldNotKeepDegreesLoadedConcurrentlyWithChangingRelationships() throws Exception
+    {
+        // GIVEN a committer which changes relationships while degrees are being loaded
+        when( loader.getRelationshipGroupDegrees( NODE_ID ) ).thenAnswer( new Answer<RelationshipGroupDegrees>()
+        {
+            private boolean first = true;
+
+            @Override
+            public RelationshipGroupDegrees answer( InvocationOnMock invocation ) throws Throwable
+            {
+                if ( first )
+                {
+                    first = false;
+                    node.commitRelationshipMaps( null, null, null, true );
+                }
+                return degrees();
+            }
+        } );
+
+        // WHEN
+        node.getDegree( loader, Direction.BOTH, NO_UPDATES );
+        node.getDegree( loader, Direction.BOTH, NO_UPDATES );
+
+        // THEN the degrees from the first load must not have been kept
+        verify( loader, times( 2 ) ).getRelationshipGroupDegrees( NODE_ID );
+    }
+
+    @Test
+    public void shouldReportNewSizeWhenDegreesAreCached() throws Exception
+    {
+        // GIVEN
+        when( loader.getRelationshipGroupDegrees( NODE_ID ) ).thenReturn( degrees() );
+        CacheUpdateListener listener = mock( CacheUpdateListener.class );
+        int sizeBefore = node.sizeOfObjectInBytesIncludingOverhead();
+
+        // WHEN
+        node.getDegree( loader, Direction.OUTGOING, listener );
+
+        // THEN
+        int sizeAfter = node.sizeOfObjectInBytesIncludingOverhead();
+        verify( listener ).newSize( node, sizeAfter );
+        assertEquals( sizeBefore + degrees().sizeOfObjectInBytesIncludingOverhead(), sizeAfter );
+    }
+
+    private RelationshipGroupDegrees degrees()
+    {
+        return new RelationshipGroupDegrees.Builder()
+                .add( TYPE_A, 5, 7, 2 )
+                .add( TYPE_B, 1, 4, 0 )
+                .build();
+    }
+}
@@ -0,0 +1,483 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.direct.NodeLabelRange;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.impl.index.schema.BTree;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.kernel.lifecycle.LifecycleException;
+import org.neo4j.test.PageCacheRule;
+import org.neo4j.unsafe.batchinsert.LabelScanWriter;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.helpers.collection.IteratorUtil.asSet;
+import static org.neo4j.helpers.collection.IteratorUtil.iterator;
+import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
+
+public class NativeLabelScanStoreTest
+{
+    @ClassRule
+    public static PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private static final long[] NO_LABELS = new long[0];
+
+    private final EphemeralFileSystemAbstraction fs = new EphemeralFileSystemAbstraction();
+    private final File dir = new File( "labelscan" );
+    private PageCache pageCache;
+    private LifeSupport life;
+    private TrackingMonitor monitor;
+    private NativeLabelScanStore store;
+
+    @Test
+    public void shouldUpdateStoreOnAddedAndRemovedLabels() throws Exception
+    {
+        // GIVEN
+        start();
+        write( labelChanges( 10, NO_LABELS, new long[]{1, 2} ) );
+        assertNodesForLabel( 1, 10 );
+        assertNodesForLabel( 2, 10 );
+
+        // WHEN
+        write( labelChanges( 10, new long[]{1, 2}, new long[]{2, 3} ) );
+
+        // THEN
+        assertNodesForLabel( 1 );
+        assertNodesForLabel( 2, 10 );
+        assertNodesForLabel( 3, 10 );
+    }
+
+    @Test
+    public void shouldDeleteFromStoreWhenDeletedNode() throws Exception
+    {
+        // GIVEN
+        start();
+        write( labelChanges( 10, NO_LABELS, new long[]{1} ), labelChanges( 11, NO_LABELS, new long[]{1} ) );
+
+        // WHEN
+        write( labelChanges( 10, new long[]{1}, NO_LABELS ) );
+
+        // THEN
+        assertNodesForLabel( 1, 11 );
+    }
+
+    @Test
+    public void shouldRefuseUpdatesOfEarlierChunks() throws Exception
+    {
+        // GIVEN
+        start();
+
+        // WHEN
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            writer.write( labelChanges( chunkSize() * 2, NO_LABELS, new long[]{1} ) );
+            writer.write( labelChanges( 9, NO_LABELS, new long[]{1} ) );
+            fail( "Should have refused update of a lower node" );
+        }
+        catch ( IllegalArgumentException e )
+        {   // THEN good
+        }
+    }
+
+    @Test
+    public void shouldFindNodesOfLabelsInSparseAndDenseChunks() throws Exception
+    {
+        // GIVEN every third node across many chunks, and all nodes of a couple of chunks
+        start();
+        int chunkSize = chunkSize();
+        long dense = chunkSize * 3;
+        List<NodeLabelUpdate> updates = new ArrayList<>();
+        Set<Long> expected = new TreeSet<>();
+        for ( long nodeId = 0; nodeId < chunkSize * 10; nodeId++ )
+        {
+            if ( nodeId % 3 == 0 || (nodeId >= dense && nodeId < dense + chunkSize * 2) )
+            {
+                updates.add( labelChanges( nodeId, NO_LABELS, new long[]{7} ) );
+                expected.add( nodeId );
+            }
+        }
+
+        // WHEN
+        write( updates.toArray( new NodeLabelUpdate[updates.size()] ) );
+
+        // THEN
+        assertEquals( expected, nodesWithLabel( 7 ) );
+        assertEquals( Collections.<Long>emptySet(), nodesWithLabel( 6 ) );
+        assertEquals( Collections.<Long>emptySet(), nodesWithLabel( 8 ) );
+    }
+
+    @Test
+    public void shouldIntersectLabels() throws Exception
+    {
+        // GIVEN three labels on overlapping sets of nodes, spread over many chunks
+        start();
+        Random random = new Random( 1234 );
+        int chunkSize = chunkSize();
+        List<NodeLabelUpdate> updates = new ArrayList<>();
+        Set<Long> expected = new TreeSet<>();
+        for ( long nodeId = 0; nodeId < chunkSize * 50; nodeId++ )
+        {
+            long[] labels = new long[3];
+            int count = 0;
+            for ( int labelId = 1; labelId <= 3; labelId++ )
+            {
+                // Label 3 is only on the nodes of a few chunks, which is what lets the intersection skip
+                if ( labelId == 3 ? (nodeId / chunkSize) % 10 == 5 : random.nextInt( 4 ) != 0 )
+                {
+                    labels[count++] = labelId;
+                }
+            }
+            if ( count > 0 )
+            {
+                updates.add( labelChanges( nodeId, NO_LABELS, Arrays.copyOf( labels, count ) ) );
+            }
+            if ( count == 3 )
+            {
+                expected.add( nodeId );
+            }
+        }
+        write( updates.toArray( new NodeLabelUpdate[updates.size()] ) );
+
+        // WHEN
+        Set<Long> found = new TreeSet<>();
+        NativeLabelScanReader reader = store.newReader();
+        try
+        {
+            PrimitiveLongIterator nodes = reader.nodesWithAllLabels( 2, 3, 1 );
+            long previous = -1;
+            while ( nodes.hasNext() )
+            {
+                long nodeId = nodes.next();
+                assertTrue( "Nodes should come in ascending order", nodeId > previous );
+                found.add( nodeId );
+                previous = nodeId;
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        // THEN
+        assertFalse( expected.isEmpty() );
+        assertEquals( expected, found );
+    }
+
+    @Test
+    public void shouldFindAllLabelsForGivenNode() throws Exception
+    {
+        // GIVEN
+        start();
+        write( labelChanges( 41, NO_LABELS, new long[]{87, 2} ), labelChanges( 42, NO_LABELS, new long[]{1, 2} ) );
+
+        // WHEN/THEN
+        NativeLabelScanReader reader = store.newReader();
+        try
+        {
+            assertEquals( asSet( 1L, 2L ), asSet( reader.labelsForNode( 42 ) ) );
+            assertEquals( asSet( 2L, 87L ), asSet( reader.labelsForNode( 41 ) ) );
+            assertEquals( Collections.<Long>emptySet(), asSet( reader.labelsForNode( 43 ) ) );
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void shouldScanAllEntriesInRanges() throws Exception
+    {
+        // GIVEN
+        long nodeId1 = 10, nodeId2 = 11, nodeId3 = chunkSize() * 5 + 3;
+        start( asList(
+                labelChanges( nodeId1, NO_LABELS, new long[]{1} ),
+                labelChanges( nodeId2, NO_LABELS, new long[]{1, 2} ),
+                labelChanges( nodeId3, NO_LABELS, new long[]{2} ) ) );
+
+        // WHEN
+        Iterator<NodeLabelRange> ranges = store.newAllEntriesReader().iterator();
+        NodeLabelRange range1 = ranges.next();
+        NodeLabelRange range2 = ranges.next();
+
+        // THEN
+        assertFalse( ranges.hasNext() );
+        assertArrayEquals( new long[]{nodeId1, nodeId2}, range1.nodes() );
+        assertArrayEquals( new long[]{1}, sorted( range1.labels( nodeId1 ) ) );
+        assertArrayEquals( new long[]{1, 2}, sorted( range1.labels( nodeId2 ) ) );
+        assertArrayEquals( new long[]{nodeId3}, range2.nodes() );
+        assertArrayEquals( new long[]{2}, sorted( range2.labels( nodeId3 ) ) );
+    }
+
+    @Test
+    public void shouldRebuildFromScratchIfStoreMissing() throws Exception
+    {
+        // GIVEN a start of the store with existing data in it
+        start( asList(
+                labelChanges( 1, NO_LABELS, new long[]{1} ),
+                labelChanges( 2, NO_LABELS, new long[]{1, 2} ) ) );
+
+        // THEN
+        assertTrue( "Didn't rebuild the store on startup",
+                monitor.noIndexCalled & monitor.rebuildingCalled & monitor.rebuiltCalled );
+        assertNodesForLabel( 1, 1, 2 );
+        assertNodesForLabel( 2, 2 );
+    }
+
+    @Test
+    public void shouldKeepForcedUpdatesOverRestart() throws Exception
+    {
+        // GIVEN
+        start();
+        write( labelChanges( 5, NO_LABELS, new long[]{1} ), labelChanges( 500_000, NO_LABELS, new long[]{1} ) );
+        store.force();
+
+        // WHEN
+        life.shutdown();
+        start();
+
+        // THEN
+        assertFalse( "Should not have rebuilt the store", monitor.rebuildingCalled );
+        assertNodesForLabel( 1, 5, 500_000 );
+    }
+
+    @Test
+    public void shouldRecoverByWritingUpdatesAgain() throws Exception
+    {
+        // GIVEN
+        start();
+        write( labelChanges( 5, NO_LABELS, new long[]{1, 2} ), labelChanges( 6, NO_LABELS, new long[]{1} ) );
+        write( labelChanges( 5, new long[]{1, 2}, new long[]{2} ) );
+
+        // WHEN
+        store.recover( iterator(
+                labelChanges( 5, NO_LABELS, new long[]{1, 2} ),
+                labelChanges( 6, NO_LABELS, new long[]{1} ) ) );
+        store.recover( iterator( labelChanges( 5, new long[]{1, 2}, new long[]{2} ) ) );
+
+        // THEN
+        assertNodesForLabel( 1, 6 );
+        assertNodesForLabel( 2, 5 );
+    }
+
+    @Test
+    public void shouldRefuseStartIfStoreCorrupted() throws Exception
+    {
+        // GIVEN
+        List<NodeLabelUpdate> data = asList( labelChanges( 1, NO_LABELS, new long[]{1} ) );
+        start( data );
+        life.shutdown();
+
+        // WHEN
+        scrambleFile( new File( dir, NativeLabelScanStore.FILE_NAME ) );
+        try
+        {
+            start( data );
+            fail( "Should not have been able to start." );
+        }
+        catch ( LifecycleException e )
+        {
+            // THEN
+            assertTrue( e.getCause() instanceof IOException );
+            assertEquals( "Label scan store could not be read, and needs to be rebuilt. To trigger a rebuild, " +
+                    "ensure the database is stopped, delete the files in '" + dir.getAbsolutePath() + "', and " +
+                    "then start the database again.", e.getCause().getMessage() );
+            assertTrue( monitor.corruptIndexCalled );
+        }
+    }
+
+    @After
+    public void shutdown()
+    {
+        if ( life != null )
+        {
+            life.shutdown();
+        }
+    }
+
+    private void start()
+    {
+        start( Collections.<NodeLabelUpdate>emptyList() );
+    }
+
+    private void start( List<NodeLabelUpdate> existingData )
+    {
+        life = new LifeSupport();
+        monitor = new TrackingMonitor();
+        store = life.add( new NativeLabelScanStore( pageCache(), fs, dir,
+                asStream( existingData ), monitor ) );
+        life.start();
+        assertTrue( monitor.initCalled );
+    }
+
+    private PageCache pageCache()
+    {
+        if ( pageCache == null )
+        {
+            pageCache = pageCacheRule.getPageCache( fs );
+        }
+        return pageCache;
+    }
+
+    private int chunkSize()
+    {
+        return 1 << LabelScanKeys.chunkBits( BTree.maxKeySize( pageCache() ) );
+    }
+
+    private void write( NodeLabelUpdate... updates ) throws IOException
+    {
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            for ( NodeLabelUpdate update : updates )
+            {
+                writer.write( update );
+            }
+        }
+    }
+
+    private Set<Long> nodesWithLabel( int labelId )
+    {
+        NativeLabelScanReader reader = store.newReader();
+        try
+        {
+            Set<Long> nodes = new TreeSet<>();
+            PrimitiveLongIterator iterator = reader.nodesWithLabel( labelId );
+            while ( iterator.hasNext() )
+            {
+                nodes.add( iterator.next() );
+            }
+            return nodes;
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private void assertNodesForLabel( int labelId, long... expectedNodeIds )
+    {
+        Set<Long> expected = new TreeSet<>();
+        for ( long nodeId : expectedNodeIds )
+        {
+            expected.add( nodeId );
+        }
+        assertEquals( expected, nodesWithLabel( labelId ) );
+    }
+
+    private long[] sorted( long[] input )
+    {
+        Arrays.sort( input );
+        return input;
+    }
+
+    private void scrambleFile( File file ) throws IOException
+    {
+        byte[] bytes = new byte[(int) fs.getFileSize( file )];
+        new Random().nextBytes( bytes );
+        try ( OutputStream out = fs.openAsOutputStream( file, false ) )
+        {
+            out.write( bytes );
+        }
+    }
+
+    private FullStoreChangeStream asStream( final List<NodeLabelUpdate> existingData )
+    {
+        return new FullStoreChangeStream()
+        {
+            @Override
+            public Iterator<NodeLabelUpdate> iterator()
+            {
+                return existingData.iterator();
+            }
+
+            @Override
+            public long highestNodeId()
+            {
+                return existingData.size();
+            }
+
+            @Override
+            public PrimitiveLongIterator labelIds()
+            {
+                return PrimitiveLongCollections.emptyIterator();
+            }
+        };
+    }
+
+    private static class TrackingMonitor implements NativeLabelScanStore.Monitor
+    {
+        boolean initCalled, noIndexCalled, corruptIndexCalled, rebuildingCalled, rebuiltCalled;
+
+        @Override
+        public void init()
+        {
+            initCalled = true;
+        }
+
+        @Override
+        public void noIndex()
+        {
+            noIndexCalled = true;
+        }
+
+        @Override
+        public void corruptIndex( IOException corruptionException )
+        {
+            corruptIndexCalled = true;
+        }
+
+        @Override
+        public void rebuilding()
+        {
+            rebuildingCalled = true;
+        }
+
+        @Override
+        public void rebuilt( long highNodeId )
+        {
+            rebuiltCalled = true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.test.PageCacheRule;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BTreeTest
+{
+    @ClassRule
+    public static PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private static final BTree.KeyComparator LONGS = new BTree.KeyComparator()
+    {
+        @Override
+        public int compare( byte[] left, int leftOffset, int leftLength, byte[] right, int rightOffset,
+                            int rightLength )
+        {
+            return Long.compare( ByteBuffer.wrap( left, leftOffset, leftLength ).getLong(),
+                    ByteBuffer.wrap( right, rightOffset, rightLength ).getLong() );
+        }
+    };
+
+    private final EphemeralFileSystemAbstraction fs = new EphemeralFileSystemAbstraction();
+    private final File file = new File( "index" );
+    private BTree tree;
+
+    @Test
+    public void shouldSeekInsertedKeysInOrderAcrossManyPages() throws Exception
+    {
+        // GIVEN keys inserted in an order other than their own
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        tree = BTree.create( pageCache, file, LONGS, 0 );
+        int count = 100_000;
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( long i = 0; i < count; i++ )
+            {
+                assertTrue( writer.insert( key( (i * 7919) % count ) ) );
+            }
+            assertFalse( writer.insert( key( 42 ) ) );
+        }
+
+        // WHEN/THEN
+        assertEquals( count, tree.entryCount() );
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            assertEquals( range( 0, count ), keys( snapshot.seek( null, null ) ) );
+            assertEquals( range( 1000, 1010 ), keys( snapshot.seek( key( 1000 ), key( 1010 ) ) ) );
+        }
+    }
+
+    @Test
+    public void shouldRemoveKeys() throws Exception
+    {
+        // GIVEN
+        tree = BTree.create( pageCacheRule.getPageCache( fs ), file, LONGS, 0 );
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( long i = 0; i < 10_000; i++ )
+            {
+                writer.insert( key( i ) );
+            }
+        }
+
+        // WHEN
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( long i = 0; i < 10_000; i++ )
+            {
+                if ( i % 100 != 0 )
+                {
+                    assertTrue( writer.remove( key( i ) ) );
+                }
+            }
+            assertFalse( writer.remove( key( 1 ) ) );
+        }
+
+        // THEN
+        List<Long> expected = new ArrayList<>();
+        for ( long i = 0; i < 10_000; i += 100 )
+        {
+            expected.add( i );
+        }
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            assertEquals( expected, keys( snapshot.seek( null, null ) ) );
+        }
+        assertEquals( expected.size(), tree.entryCount() );
+    }
+
+    @Test
+    public void snapshotShouldNotSeeChangesMadeAfterItWasTaken() throws Exception
+    {
+        // GIVEN
+        tree = BTree.create( pageCacheRule.getPageCache( fs ), file, LONGS, 0 );
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            writer.insert( key( 1 ) );
+            writer.insert( key( 2 ) );
+        }
+
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            // WHEN
+            try ( BTree.Writer writer = tree.writer() )
+            {
+                writer.remove( key( 1 ) );
+                writer.insert( key( 3 ) );
+            }
+            tree.checkpoint();
+
+            // THEN
+            assertEquals( asList( 1L, 2L ), keys( snapshot.seek( null, null ) ) );
+        }
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            assertEquals( asList( 2L, 3L ), keys( snapshot.seek( null, null ) ) );
+        }
+    }
+
+    @Test
+    public void shouldKeepKeysAndUserDataAcrossCloseAndOpen() throws Exception
+    {
+        // GIVEN
+        PageCache pageCache = pageCacheRule.getPageCache( fs );
+        tree = BTree.create( pageCache, file, LONGS, 0 );
+        try ( BTree.Writer writer = tree.writer() )
+        {
+            for ( long i = 0; i < 5_000; i++ )
+            {
+                writer.insert( key( i ) );
+            }
+        }
+        tree.setUserData( 7 );
+        tree.close();
+
+        // WHEN
+        assertEquals( 7, BTree.readUserData( pageCache, file ) );
+        tree = BTree.open( pageCache, file, LONGS );
+
+        // THEN
+        assertEquals( 7, tree.userData() );
+        assertEquals( 5_000, tree.entryCount() );
+        try ( BTree.Snapshot snapshot = tree.snapshot() )
+        {
+            assertEquals( range( 0, 5_000 ), keys( snapshot.seek( null, null ) ) );
+        }
+    }
+
+    @After
+    public void closeTree() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    private static byte[] key( long value )
+    {
+        return ByteBuffer.allocate( 8 ).putLong( value ).array();
+    }
+
+    private static List<Long> range( long from, long to )
+    {
+        List<Long> values = new ArrayList<>();
+        for ( long i = from; i < to; i++ )
+        {
+            values.add( i );
+        }
+        return values;
+    }
+
+    private static List<Long> keys( BTree.Seeker seeker ) throws IOException
+    {
+        List<Long> keys = new ArrayList<>();
+        while ( seeker.next() )
+        {
+            keys.add( ByteBuffer.wrap( seeker.keyBytes(), seeker.keyOffset(), seeker.keyLength() ).getLong() );
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaIndexKeysTest
+{
+    private final SchemaIndexKeys keys = new SchemaIndexKeys( 64 );
+
+    @Test
+    public void shouldOrderNumbersBeforeStringsBeforeBooleansBeforeArrays() throws Exception
+    {
+        assertOrdered(
+                key( Double.POSITIVE_INFINITY ),
+                key( "" ),
+                key( 'a' ),
+                key( false ),
+                key( true ),
+                key( new int[]{1} ) );
+    }
+
+    @Test
+    public void shouldKeepTypeBoundsAroundAllKeysOfTheType() throws Exception
+    {
+        assertOrdered(
+                SchemaIndexKeys.first( SchemaIndexKeys.NUMBER ),
+                key( Double.NEGATIVE_INFINITY ),
+                key( Long.MAX_VALUE ),
+                key( Double.NaN ),
+                SchemaIndexKeys.last( SchemaIndexKeys.NUMBER ),
+                key( "" ),
+                key( "zzz" ),
+                SchemaIndexKeys.last( SchemaIndexKeys.STRING ) );
+        assertOrdered( SchemaIndexKeys.first( SchemaIndexKeys.STRING ), key( "" ) );
+    }
+
+    @Test
+    public void shouldOrderNumbersOfAllTypesByValue() throws Exception
+    {
+        assertOrdered(
+                key( Double.NEGATIVE_INFINITY ),
+                key( -1e300 ),
+                key( Long.MIN_VALUE ),
+                key( -2.5f ),
+                key( (short) -2 ),
+                key( -0.5 ),
+                key( (byte) 0 ),
+                key( 0.5f ),
+                key( 1 ),
+                key( 1.5 ),
+                key( 2L ),
+                key( Long.MAX_VALUE ),
+                key( 1e19 ),
+                key( Double.POSITIVE_INFINITY ),
+                key( Double.NaN ) );
+    }
+
+    @Test
+    public void shouldMakeEqualNumbersOfDifferentTypesEqualValues() throws Exception
+    {
+        assertSameValue( key( 1 ), key( 1.0 ) );
+        assertSameValue( key( (byte) 7 ), key( 7.0f ) );
+        assertSameValue( key( 0 ), key( -0.0 ) );
+        assertSameValue( key( 1L << 62 ), key( (double) (1L << 62) ) );
+    }
+
+    @Test
+    public void shouldKeepLongsBeyondDoublePrecisionApart() throws Exception
+    {
+        long big = (1L << 53) + 1;
+
+        assertOrdered( key( big - 1 ), key( big ), key( big + 1 ) );
+        assertOrdered( key( Long.MAX_VALUE - 1 ), key( Long.MAX_VALUE ) );
+    }
+
+    @Test
+    public void shouldOrderStringsByCodePoints() throws Exception
+    {
+        String supplementary = new String( Character.toChars( 0x1F600 ) );
+
+        assertOrdered(
+                key( "" ),
+                key( "A" ),
+                key( "a" ),
+                key( "ab" ),
+                key( "\u00E5" ),
+                key( "\uFFFD" ),
+                key( supplementary ) );
+    }
+
+    @Test
+    public void shouldOrderEntriesOfTheSameValueByNodeId() throws Exception
+    {
+        assertOrdered(
+                keys.key( "a", Long.MIN_VALUE ),
+                keys.key( "a", 1 ),
+                keys.key( "a", 2 ),
+                keys.key( "a", Long.MAX_VALUE ),
+                keys.key( "a\u0000", Long.MIN_VALUE ) );
+    }
+
+    @Test
+    public void shouldPlaceNumberBoundsAroundEntriesOfTheBoundValue() throws Exception
+    {
+        byte[] entry = keys.key( 10, 5 );
+
+        assertOrdered( keys.numberBound( 10, true, true ), entry, keys.numberBound( 10, false, true ) );
+        assertOrdered( keys.numberBound( 10, false, false ), entry, keys.numberBound( 10, true, false ) );
+        assertOrdered( keys.numberBound( 9.5, true, true ), entry );
+        assertOrdered( entry, keys.numberBound( 10.5, true, false ) );
+    }
+
+    @Test
+    public void shouldPlaceStringBoundsAroundEntriesOfTheBoundValue() throws Exception
+    {
+        byte[] entry = keys.key( "b", 5 );
+
+        assertOrdered( keys.stringBound( "b", true, true ), entry, keys.stringBound( "b", false, true ) );
+        assertOrdered( keys.stringBound( "b", false, false ), entry, keys.stringBound( "b", true, false ) );
+    }
+
+    @Test
+    public void shouldPlacePrefixBoundsAroundAllStringsWithThePrefix() throws Exception
+    {
+        assertOrdered(
+                keys.key( "Toa", Long.MAX_VALUE ),
+                keys.fromPrefix( "Tob" ),
+                keys.key( "Tob", 1 ),
+                keys.key( "Tobias", 1 ),
+                keys.key( "Tob\uFFFD", 1 ),
+                keys.afterPrefix( "Tob" ),
+                keys.key( "Toc", 1 ) );
+    }
+
+    @Test
+    public void shouldKeepLongStringsWithTheSamePrefixApartAndWithinPrefixBounds() throws Exception
+    {
+        // GIVEN two strings longer than what fits in a key, which only differ at the end
+        String prefix = repeat( 'x', 100 );
+        byte[] one = keys.key( prefix + "a", 1 );
+        byte[] other = keys.key( prefix + "b", 1 );
+
+        // THEN they are different values, yet both within bounds cut off like them
+        assertTrue( keys.compareValues( one, 0, one.length, other, 0, other.length ) != 0 );
+        assertEquals( one.length, other.length );
+        for ( byte[] key : new byte[][]{one, other} )
+        {
+            assertOrdered( keys.fromPrefix( prefix ), key, keys.afterPrefix( prefix ) );
+            assertOrdered( keys.stringBound( prefix + "z", true, true ), key,
+                    keys.stringBound( prefix + "0", true, false ) );
+        }
+    }
+
+    private byte[] key( Object value )
+    {
+        return keys.key( value, 0 );
+    }
+
+    private void assertOrdered( byte[]... ordered )
+    {
+        for ( int i = 1; i < ordered.length; i++ )
+        {
+            byte[] left = ordered[i - 1];
+            byte[] right = ordered[i];
+            assertTrue( "key " + (i - 1) + " should be before key " + i,
+                    keys.compare( left, 0, left.length, right, 0, right.length ) < 0 );
+            assertTrue( "key " + i + " should be after key " + (i - 1),
+                    keys.compare( right, 0, right.length, left, 0, left.length ) > 0 );
+        }
+    }
+
+    private void assertSameValue( byte[] left, byte[] right )
+    {
+        assertEquals( 0, keys.compare( left, 0, left.length, right, 0, right.length ) );
+    }
+
+    private static String repeat( char c, int times )
+    {
+        StringBuilder builder = new StringBuilder( times );
+        for ( int i = 0; i < times; i++ )
+        {
+            builder.append( c );
+        }
+        return builder.toString();
+    }
+}
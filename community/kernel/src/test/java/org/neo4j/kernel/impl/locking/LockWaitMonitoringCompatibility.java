@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.neo4j.kernel.DeadlockDetectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.NODE;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.RELATIONSHIP;
+
+/** Tests that lock managers tell their {@link Locks.Monitor} about waits and deadlocks, and only about those. */
+@Ignore("Not a test. This is a compatibility suite, run from LockingCompatibilityTestSuite.")
+public class LockWaitMonitoringCompatibility extends LockingCompatibilityTestSuite.Compatibility
+{
+    public LockWaitMonitoringCompatibility( LockingCompatibilityTestSuite suite )
+    {
+        super( suite );
+    }
+
+    @After
+    public void shutdown()
+    {
+        threadA.interrupt();
+        threadB.interrupt();
+        threadC.interrupt();
+    }
+
+    @Test
+    public void shouldNotReportLocksTakenWithoutWaiting() throws Exception
+    {
+        // When
+        clientA.acquireExclusive( NODE, 1l );
+        clientA.acquireShared( NODE, 2l );
+        clientB.acquireShared( NODE, 2l );
+        clientA.releaseExclusive( NODE, 1l );
+        clientB.acquireExclusive( NODE, 1l );
+
+        // Then
+        assertEquals( 0, lockWaits.waits( NODE ) );
+        assertEquals( 0, lockWaits.deadlocks() );
+    }
+
+    @Test
+    public void shouldReportWaitForExclusiveLock() throws Exception
+    {
+        // Given
+        clientA.acquireExclusive( NODE, 1l );
+        Future<Object> clientBLock = acquireExclusive( clientB, NODE, 1l ).callAndAssertWaiting();
+
+        // When
+        clientA.releaseExclusive( NODE, 1l );
+        assertNotWaiting( clientB, clientBLock );
+
+        // Then
+        assertEquals( 1, lockWaits.waits( NODE ) );
+        assertTrue( lockWaits.totalWaitNanos( NODE ) > 0 );
+        assertEquals( 1, lockWaits.mostContendedResources( 10 ).size() );
+        assertEquals( 1, lockWaits.mostContendedResources( 10 ).get( 0 ).resourceId() );
+        assertEquals( 0, lockWaits.waits( RELATIONSHIP ) );
+    }
+
+    @Test
+    public void shouldReportWaitForSharedLock() throws Exception
+    {
+        // Given
+        clientA.acquireExclusive( NODE, 1l );
+        Future<Object> clientBLock = acquireShared( clientB, NODE, 1l ).callAndAssertWaiting();
+
+        // When
+        clientA.releaseExclusive( NODE, 1l );
+        assertNotWaiting( clientB, clientBLock );
+
+        // Then
+        assertEquals( 1, lockWaits.waits( NODE ) );
+    }
+
+    @Test
+    public void shouldReportWaitForExclusiveLockOnSharedLock() throws Exception
+    {
+        // Given
+        clientA.acquireShared( NODE, 1l );
+        Future<Object> clientBLock = acquireExclusive( clientB, NODE, 1l ).callAndAssertWaiting();
+
+        // When
+        clientA.releaseShared( NODE, 1l );
+        assertNotWaiting( clientB, clientBLock );
+
+        // Then
+        assertEquals( 1, lockWaits.waits( NODE ) );
+    }
+
+    @Test
+    public void shouldReportDeadlocks() throws Exception
+    {
+        // Given
+        clientA.acquireExclusive( NODE, 1l );
+        clientB.acquireExclusive( NODE, 2l );
+        Future<Object> clientBLock = acquireExclusive( clientB, NODE, 1l ).callAndAssertWaiting();
+
+        // When
+        Future<Object> clientALock = acquireExclusive( clientA, NODE, 2l ).call();
+
+        // Then
+        awaitDeadlock( clientALock, clientBLock );
+        assertTrue( lockWaits.deadlocks( NODE ) >= 1 );
+        assertTrue( lockWaits.waits( NODE ) >= 1 );
+    }
+
+    private void awaitDeadlock( Future<Object> oneLock, Future<Object> otherLock ) throws Exception
+    {
+        List<Future<Object>> locks = Arrays.asList( oneLock, otherLock );
+        long timeout = System.currentTimeMillis() + (1000 * 10);
+        while ( System.currentTimeMillis() < timeout )
+        {
+            for ( Future<Object> lock : locks )
+            {
+                try
+                {
+                    lock.get( 1, TimeUnit.MILLISECONDS );
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( e.getCause() instanceof DeadlockDetectedException )
+                    {
+                        return;
+                    }
+                    throw e;
+                }
+                catch ( TimeoutException e )
+                {
+                    // Still waiting, as it should, until the deadlock is detected
+                }
+            }
+        }
+        fail( "Deadlock was not detected." );
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.NODE;
+import static org.neo4j.kernel.impl.locking.ResourceTypes.RELATIONSHIP;
+
+public class LockWaitStatisticsTest
+{
+    @Test
+    public void shouldCountWaitsInPowerOfTwoBuckets() throws Exception
+    {
+        // GIVEN
+        LockWaitStatistics statistics = new LockWaitStatistics( ResourceTypes.values() );
+
+        // WHEN
+        statistics.lockWaited( NODE, 1, 0 );
+        statistics.lockWaited( NODE, 1, 1 );
+        statistics.lockWaited( NODE, 2, 5 );
+        statistics.lockWaited( NODE, 2, 7 );
+        statistics.lockWaited( RELATIONSHIP, 2, 1_000 );
+
+        // THEN
+        long[] histogram = statistics.waitTimeHistogram( NODE );
+        assertEquals( 1, histogram[0] );
+        assertEquals( 1, histogram[1] );
+        assertEquals( 2, histogram[3] );
+        assertEquals( 4, statistics.waits( NODE ) );
+        assertEquals( 13, statistics.totalWaitNanos( NODE ) );
+        assertEquals( 1, statistics.waits( RELATIONSHIP ) );
+        assertEquals( 0, statistics.waits( ResourceTypes.SCHEMA ) );
+    }
+
+    @Test
+    public void shouldPutVeryLongWaitsInTheLastBucket() throws Exception
+    {
+        // GIVEN
+        LockWaitStatistics statistics = new LockWaitStatistics( ResourceTypes.values() );
+
+        // WHEN
+        statistics.lockWaited( NODE, 1, Long.MAX_VALUE );
+
+        // THEN
+        assertEquals( 1, statistics.waitTimeHistogram( NODE )[LockWaitStatistics.BUCKETS - 1] );
+    }
+
+    @Test
+    public void shouldReportLongestWaitAsPercentileInTheLastBucket() throws Exception
+    {
+        // GIVEN
+        LockWaitStatistics statistics = new LockWaitStatistics( ResourceTypes.values() );
+        long hour = TimeUnit.HOURS.toNanos( 1 );
+
+        // WHEN
+        statistics.lockWaited( NODE, 1, 100 );
+        statistics.lockWaited( NODE, 1, 2 * hour );
+        statistics.lockWaited( NODE, 1, 3 * hour );
+        statistics.lockWaited( NODE, 1, hour );
+
+        // THEN
+        assertEquals( 3, statistics.waitTimeHistogram( NODE )[LockWaitStatistics.BUCKETS - 1] );
+        assertEquals( 3 * hour, statistics.waitNanosPercentile( NODE, 50 ) );
+        assertEquals( 3 * hour, statistics.waitNanosPercentile( NODE, 99 ) );
+        assertEquals( 127, statistics.waitNanosPercentile( NODE, 25 ) );
+    }
+
+    @Test
+    public void shouldReportUpperBoundOfBucketOfPercentile() throws Exception
+    {
+        // GIVEN 98 short waits and 2 long ones
+        LockWaitStatistics statistics = new LockWaitStatistics( ResourceTypes.values() );
+        for ( int i = 0; i < 98; i++ )
+        {
+            statistics.lockWaited( NODE, i, 100 );
+        }
+        statistics.lockWaited( NODE, 98, 1_000_000 );
+        statistics.lockWaited( NODE, 99, 1_000_000 );
+
+        // THEN
+        assertEquals( 127, statistics.waitNanosPercentile( NODE, 50 ) );
+        assertEquals( 127, statistics.waitNanosPercentile( NODE, 98 ) );
+        assertEquals( (1 << 20) - 1, statistics.waitNanosPercentile( NODE, 99 ) );
+        assertEquals( 0, statistics.waitNanosPercentile( RELATIONSHIP, 99 ) );
+    }
+
+    @Test
+    public void shouldKeepMostContendedResourcesInSketch() throws Exception
+    {
+        // GIVEN a sketch with room for two resources
+        LockWaitStatistics statistics = new LockWaitStatistics( 2, ResourceTypes.values() );
+
+        // WHEN one resource is waited for a lot and many others only once
+        statistics.lockWaited( NODE, 42, 1_000 );
+        statistics.lockWaited( NODE, 42, 1_000 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            statistics.lockWaited( NODE, 42, 1_000 );
+            statistics.lockWaited( NODE, 100 + i, 1_000 );
+        }
+        statistics.lockWaited( RELATIONSHIP, 42, 1_000 );
+
+        // THEN the hot resource is on top, with its count intact
+        List<LockWaitStatistics.ContendedResource> resources = statistics.mostContendedResources( 10 );
+        assertEquals( 2, resources.size() );
+        assertEquals( NODE, resources.get( 0 ).resourceType() );
+        assertEquals( 42, resources.get( 0 ).resourceId() );
+        assertEquals( 12, resources.get( 0 ).waits() );
+        assertEquals( 12_000, resources.get( 0 ).waitNanos() );
+
+        // and the other slot went to the last resource, inheriting the count of the one it evicted
+        assertEquals( RELATIONSHIP, resources.get( 1 ).resourceType() );
+        assertEquals( 42, resources.get( 1 ).resourceId() );
+        assertEquals( 11, resources.get( 1 ).waits() );
+    }
+
+    @Test
+    public void shouldKeepMostContendedResourcesAcrossStripesOfALargerSketch() throws Exception
+    {
+        // GIVEN a sketch large enough to be split into stripes
+        LockWaitStatistics statistics = new LockWaitStatistics( 64, ResourceTypes.values() );
+
+        // WHEN a few resources are waited for a lot, among many waited for once
+        for ( int i = 0; i < 1_000; i++ )
+        {
+            statistics.lockWaited( NODE, i, 1_000 );
+            statistics.lockWaited( NODE, 7, 1_000 );
+            if ( i % 2 == 0 )
+            {
+                statistics.lockWaited( RELATIONSHIP, 7, 1_000 );
+            }
+        }
+
+        // THEN
+        List<LockWaitStatistics.ContendedResource> resources = statistics.mostContendedResources( 2 );
+        assertEquals( 2, resources.size() );
+        assertEquals( NODE, resources.get( 0 ).resourceType() );
+        assertEquals( 7, resources.get( 0 ).resourceId() );
+        assertTrue( resources.get( 0 ).waits() >= 1_001 );
+        assertEquals( RELATIONSHIP, resources.get( 1 ).resourceType() );
+        assertEquals( 7, resources.get( 1 ).resourceId() );
+        assertTrue( resources.get( 1 ).waits() >= 500 );
+        assertTrue( statistics.mostContendedResources( 100 ).size() <= 64 );
+    }
+
+    @Test
+    public void shouldCountDeadlocksPerResourceType() throws Exception
+    {
+        // GIVEN
+        LockWaitStatistics statistics = new LockWaitStatistics( ResourceTypes.values() );
+
+        // WHEN
+        statistics.deadlockDetected( NODE, 1 );
+        statistics.deadlockDetected( NODE, 2 );
+        statistics.deadlockDetected( RELATIONSHIP, 1 );
+
+        // THEN
+        assertEquals( 2, statistics.deadlocks( NODE ) );
+        assertEquals( 1, statistics.deadlocks( RELATIONSHIP ) );
+        assertEquals( 3, statistics.deadlocks() );
+        assertTrue( statistics.resourceTypes().contains( ResourceTypes.SCHEMA ) );
+    }
+}
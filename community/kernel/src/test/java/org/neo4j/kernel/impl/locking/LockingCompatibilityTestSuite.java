@@ -44,11 +44,12 @@ import org.neo4j.test.OtherThreadRule;
         AcquireAndReleaseLocksCompatibility.class,
         DeadlockCompatibility.class,
         LockReentrancyCompatibility.class,
+        LockWaitMonitoringCompatibility.class,
         RWLockCompatibility.class
 })
 public abstract class LockingCompatibilityTestSuite
 {
-    protected abstract Locks createLockManager();
+    protected abstract Locks createLockManager( Locks.Monitor monitor );
 
     public static abstract class Compatibility
     {
@@ -61,6 +62,7 @@ public abstract class LockingCompatibilityTestSuite
         @Rule
         public OtherThreadRule<Void> threadC = new OtherThreadRule<>();
 
+        protected final LockWaitStatistics lockWaits = new LockWaitStatistics( ResourceTypes.values() );
         protected final Locks locks;
         protected final Locks.Client clientA;
         protected final Locks.Client clientB;
@@ -70,7 +72,7 @@ public abstract class LockingCompatibilityTestSuite
 
         public Compatibility( LockingCompatibilityTestSuite suite )
         {
-            this.locks = suite.createLockManager();
+            this.locks = suite.createLockManager( lockWaits );
             clientA = this.locks.newClient();
             clientB = this.locks.newClient();
             clientC = this.locks.newClient();
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.kernel.DeadlockDetectedException;
+import org.neo4j.kernel.impl.locking.community.CommunityLockManger;
+import org.neo4j.kernel.impl.locking.dreadlocks.DreadlocksLockManager;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+
+/**
+ * Measures lock managers under contention, the way transactions use them, run like:
+ *
+ * <pre>
+ * java -DBenchmark=SCHEMA_AND_NODE_LOCKS -DImplementation=COMMUNITY ... LocksMicroBenchmark
+ * java -DBenchmark=SCHEMA_AND_NODE_LOCKS -DImplementation=DREADLOCKS ... LocksMicroBenchmark
+ * java -DBenchmark=HOT_NODES -DImplementation=DREADLOCKS -DhotNodes=16 ... LocksMicroBenchmark
+ * </pre>
+ */
+public class LocksMicroBenchmark
+{
+    public static void main( String... args ) throws Exception
+    {
+        get( Benchmark.class ).execute( get( Implementation.class ) );
+    }
+
+    enum Benchmark
+    {
+        /**
+         * Each thread grabs a shared schema lock and an exclusive lock on a node of its own, like transactions
+         * updating different nodes. Only the schema lock is shared between the threads.
+         */
+        SCHEMA_AND_NODE_LOCKS
+                {
+                    @Override
+                    TransactionThread newThread( Locks.Client client, int threadIndex, int threadCount )
+                    {
+                        return new TransactionThread( client, threadIndex, threadCount );
+                    }
+                },
+        /**
+         * Each thread grabs a shared schema lock and exclusive locks on two of a small set of hot nodes, so that
+         * threads wait for each other and sometimes deadlock.
+         */
+        HOT_NODES
+                {
+                    @Override
+                    TransactionThread newThread( Locks.Client client, int threadIndex, int threadCount )
+                    {
+                        return new HotNodesThread( client, threadIndex, Integer.getInteger( "hotNodes", 16 ) );
+                    }
+                };
+
+        abstract TransactionThread newThread( Locks.Client client, int threadIndex, int threadCount );
+
+        void execute( Implementation impl ) throws InterruptedException
+        {
+            int minThreads = Integer.getInteger( "minThreads", 1 );
+            int maxThreads = Integer.getInteger( "maxThreads", cores() * 2 );
+            int iterations = Integer.getInteger( "iterations", 10 );
+            int operations = Integer.getInteger( "operations", 100_000 );
+            for ( int threads = minThreads; threads <= maxThreads; threads *= 2 )
+            {
+                System.out.printf( "=== %s / %s - %s threads ===%n", this, impl, threads );
+                for ( int i = 0; i < iterations; i++ )
+                {
+                    Locks locks = impl.create();
+                    TransactionThread[] transactionThreads = new TransactionThread[threads];
+                    for ( int t = 0; t < threads; t++ )
+                    {
+                        transactionThreads[t] = newThread( locks.newClient(), t, threads );
+                    }
+                    run( transactionThreads, operations );
+                }
+            }
+        }
+    }
+
+    enum Implementation
+    {
+        COMMUNITY
+                {
+                    @Override
+                    Locks create()
+                    {
+                        return new CommunityLockManger();
+                    }
+                },
+        DREADLOCKS
+                {
+                    @Override
+                    Locks create()
+                    {
+                        return new DreadlocksLockManager( ResourceTypes.values() );
+                    }
+                };
+
+        abstract Locks create();
+    }
+
+    static class TransactionThread extends Thread
+    {
+        final Locks.Client client;
+        private final int threadCount;
+        private long nodeId;
+        int operations;
+        int deadlocks;
+        CountDownLatch start;
+        long minTime = Long.MAX_VALUE, maxTime, totalTime;
+
+        TransactionThread( Locks.Client client, int threadIndex, int threadCount )
+        {
+            this.client = client;
+            this.threadCount = threadCount;
+            this.nodeId = threadIndex;
+        }
+
+        @Override
+        public final void run()
+        {
+            try
+            {
+                start.await();
+            }
+            catch ( InterruptedException e )
+            {
+                throw new RuntimeException( e );
+            }
+            for ( int i = 0; i < operations; i++ )
+            {
+                long time = nanoTime();
+                try
+                {
+                    lock();
+                }
+                catch ( DeadlockDetectedException e )
+                {
+                    deadlocks++;
+                }
+                finally
+                {
+                    client.releaseAll();
+                }
+                time = nanoTime() - time;
+                minTime = min( minTime, time );
+                maxTime = max( maxTime, time );
+                totalTime += time;
+            }
+            client.close();
+        }
+
+        void lock()
+        {
+            client.acquireShared( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() );
+            client.acquireExclusive( ResourceTypes.NODE, nodeId );
+            nodeId += threadCount;
+        }
+    }
+
+    static class HotNodesThread extends TransactionThread
+    {
+        private final int hotNodes;
+        private long seed;
+
+        HotNodesThread( Locks.Client client, int threadIndex, int hotNodes )
+        {
+            super( client, threadIndex, 1 );
+            this.hotNodes = hotNodes;
+            this.seed = threadIndex + 1;
+        }
+
+        @Override
+        void lock()
+        {
+            client.acquireShared( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() );
+            client.acquireExclusive( ResourceTypes.NODE, nextNode() );
+            client.acquireExclusive( ResourceTypes.NODE, nextNode() );
+        }
+
+        private long nextNode()
+        {
+            // XorShift, to not have the threads contend on a shared random
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            return (seed & Long.MAX_VALUE) % hotNodes;
+        }
+    }
+
+    private static void run( TransactionThread[] threads, int operations ) throws InterruptedException
+    {
+        CountDownLatch start = new CountDownLatch( 1 );
+        for ( TransactionThread thread : threads )
+        {
+            thread.operations = operations;
+            thread.start = start;
+            thread.start();
+        }
+        long startTime = nanoTime();
+        start.countDown();
+        for ( TransactionThread thread : threads )
+        {
+            thread.join();
+        }
+        long wallTime = nanoTime() - startTime;
+
+        long minTime = Long.MAX_VALUE, maxTime = 0, totalTime = 0;
+        double count = 0.0;
+        int deadlocks = 0;
+        for ( TransactionThread thread : threads )
+        {
+            minTime = min( minTime, thread.minTime );
+            maxTime = max( maxTime, thread.maxTime );
+            totalTime += thread.totalTime;
+            count += thread.operations;
+            deadlocks += thread.deadlocks;
+        }
+        System.out.printf( "min=%dns; max=%.3fus; avg=%.3fns; throughput=%.0f tx/s; deadlocks=%d%n",
+                minTime, maxTime / 1_000.0, totalTime / count, count / (wallTime / 1_000_000_000.0), deadlocks );
+    }
+
+    static <E extends Enum<E>> E get( Class<E> type )
+    {
+        try
+        {
+            return Enum.valueOf( type, System.getProperty( type.getSimpleName() ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IllegalArgumentException(
+                    "No such " + type.getSimpleName() + ": " + System.getProperty( type.getSimpleName() ) );
+        }
+        catch ( NullPointerException e )
+        {
+            throw new IllegalArgumentException( type.getSimpleName() + " not specified." );
+        }
+    }
+
+    private static int cores()
+    {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
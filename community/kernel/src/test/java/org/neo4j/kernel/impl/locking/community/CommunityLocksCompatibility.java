@@ -25,8 +25,8 @@ import org.neo4j.kernel.impl.locking.Locks;
 public class CommunityLocksCompatibility extends LockingCompatibilityTestSuite
 {
     @Override
-    protected Locks createLockManager()
+    protected Locks createLockManager( Locks.Monitor monitor )
     {
-        return new CommunityLockManger();
+        return new CommunityLockManger( monitor );
     }
 }
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking.dreadlocks;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceLockTest
+{
+    private final DreadlocksLockManager locks = new DreadlocksLockManager( ResourceTypes.values() );
+    private final List<Locks.Client> clients = new ArrayList<>();
+
+    @Test
+    public void shouldKeepTrackOfHundredsOfSharersAcrossInflation() throws Exception
+    {
+        // GIVEN
+        List<DreadlocksClient> sharers = newClients( 300 );
+        ResourceLock lock = ResourceLock.sharedBy( sharers.get( 0 ) );
+
+        // WHEN
+        for ( int i = 1; i < sharers.size(); i++ )
+        {
+            assertEquals( ResourceLock.Outcome.ACQUIRED, lock.acquireShared( sharers.get( i ) ) );
+        }
+
+        // THEN
+        assertEquals( new HashSet<>( sharers ), holdersOf( lock ) );
+
+        // and WHEN releasing in another order than acquired
+        for ( int i = sharers.size() - 1; i > 0; i-- )
+        {
+            assertFalse( lock.release( sharers.get( i ), false, true ) );
+        }
+
+        // THEN the last sharer is the one to drop the lock
+        assertFalse( lock.isSharedByOtherThan( sharers.get( 0 ), true ) );
+        assertTrue( lock.release( sharers.get( 0 ), false, true ) );
+        assertEquals( ResourceLock.Outcome.DEAD, lock.acquireShared( sharers.get( 1 ) ) );
+    }
+
+    @Test
+    public void shouldKeepTrackOfSharersWithIdsBeyondTheFatSharers() throws Exception
+    {
+        // GIVEN an inflated lock, and clients with ids that have no slot of their own in it
+        List<DreadlocksClient> all = newClients( 1100 );
+        List<DreadlocksClient> sharers = new ArrayList<>( all.subList( 0, 20 ) );
+        sharers.addAll( all.subList( 1080, 1100 ) );
+        ResourceLock lock = ResourceLock.sharedBy( sharers.get( 0 ) );
+
+        // WHEN the sharers come and go
+        for ( int round = 0; round < 3; round++ )
+        {
+            for ( int i = 1; i < sharers.size(); i++ )
+            {
+                assertEquals( ResourceLock.Outcome.ACQUIRED, lock.acquireShared( sharers.get( i ) ) );
+            }
+            for ( int i = 1; i < sharers.size(); i++ )
+            {
+                assertFalse( lock.release( sharers.get( i ), false, true ) );
+            }
+        }
+        for ( int i = 1; i < sharers.size(); i++ )
+        {
+            lock.acquireShared( sharers.get( i ) );
+        }
+
+        // THEN
+        assertEquals( new HashSet<>( sharers ), holdersOf( lock ) );
+    }
+
+    @Test
+    public void shouldKeepOthersFromTakingAnOwnedLockUntilReleased() throws Exception
+    {
+        // GIVEN
+        List<DreadlocksClient> clients = newClients( 2 );
+        DreadlocksClient owner = clients.get( 0 );
+        DreadlocksClient other = clients.get( 1 );
+        ResourceLock lock = ResourceLock.ownedBy( owner );
+
+        // WHEN/THEN
+        assertEquals( ResourceLock.Outcome.BLOCKED, lock.acquireShared( other ) );
+        assertEquals( ResourceLock.Outcome.BLOCKED, lock.acquireOwnership( other ) );
+        assertEquals( ResourceLock.Outcome.ACQUIRED, lock.acquireShared( owner ) );
+        assertFalse( lock.release( owner, true, false ) );
+        assertEquals( ResourceLock.Outcome.ACQUIRED, lock.acquireShared( other ) );
+        assertEquals( ResourceLock.Outcome.BLOCKED, lock.tryAcquireExclusive( owner, true ) );
+        assertFalse( lock.release( other, false, true ) );
+        assertEquals( ResourceLock.Outcome.ACQUIRED, lock.tryAcquireExclusive( owner, true ) );
+        assertTrue( lock.release( owner, true, true ) );
+    }
+
+    @After
+    public void closeClients()
+    {
+        for ( Locks.Client client : clients )
+        {
+            client.close();
+        }
+    }
+
+    private Set<DreadlocksClient> holdersOf( ResourceLock lock )
+    {
+        final Set<DreadlocksClient> holders = new HashSet<>();
+        lock.visitHoldersOtherThan( null, true, new ResourceLock.HolderVisitor()
+        {
+            @Override
+            public void visit( DreadlocksClient holder )
+            {
+                assertTrue( "Visited " + holder + " twice", holders.add( holder ) );
+            }
+        } );
+        return holders;
+    }
+
+    private List<DreadlocksClient> newClients( int count )
+    {
+        List<DreadlocksClient> result = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            DreadlocksClient client = (DreadlocksClient) locks.newClient();
+            clients.add( client );
+            result.add( client );
+        }
+        return result;
+    }
+}
@@ -120,6 +120,16 @@ public class CountsOracle
                         assertEquals( "Should be able to read visited state.", output.readSecond(), size );
                         verifier.visitIndexSample( labelId, propertyKeyId, unique, size );
                     }
+
+                    @Override
+                    public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first, long second )
+                    {
+                        DoubleLongRegister output =
+                            tracker.indexSketch( labelId, propertyKeyId, slot, newDoubleLongRegister() );
+                        assertEquals( "Should be able to read visited state.", output.readFirst(), first );
+                        assertEquals( "Should be able to read visited state.", output.readSecond(), second );
+                        verifier.visitIndexSketch( labelId, propertyKeyId, slot, first, second );
+                    }
                 } );
             }
         } );
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreProvider;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.cache_type;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.inline_node_properties;
+
+public class InlinePropertiesNodeStoreTest
+{
+    private GraphDatabaseService db;
+    private InlinePropertiesNodeStore nodeStore;
+
+    @Before
+    public void startDb()
+    {
+        db = new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig( inline_node_properties, "true" )
+                .setConfig( cache_type, "none" )
+                .newGraphDatabase();
+        NodeStore store = ((GraphDatabaseAPI) db).getDependencyResolver()
+                .resolveDependency( NeoStoreProvider.class ).evaluate().getNodeStore();
+        assertTrue( store instanceof InlinePropertiesNodeStore );
+        nodeStore = (InlinePropertiesNodeStore) store;
+    }
+
+    @After
+    public void stopDb()
+    {
+        db.shutdown();
+    }
+
+    @Test
+    public void shouldKeepCopyOfTheFirstPropertyRecordInTheNodeRecord() throws Exception
+    {
+        // GIVEN
+        Map<String,Object> properties = new HashMap<>();
+        properties.put( "name", "Alistair" );
+        properties.put( "age", 42 );
+
+        // WHEN
+        long nodeId = createNode( properties );
+
+        // THEN
+        NodeRecord node = nodeStore.getRecord( nodeId );
+        PropertyRecord inlined = nodeStore.getInlinedPropertyRecord( node );
+        assertNotNull( inlined );
+        assertEquals( node.getNextProp(), inlined.getId() );
+        assertEquals( nodeId, inlined.getNodeId() );
+        assertEquals( 2, inlined.getPropertyBlocks().size() );
+        assertEquals( properties, propertiesOf( nodeId ) );
+    }
+
+    @Test
+    public void shouldFollowChangesToTheFirstPropertyRecord() throws Exception
+    {
+        // GIVEN
+        Map<String,Object> properties = new HashMap<>();
+        properties.put( "name", "Alistair" );
+        long nodeId = createNode( properties );
+
+        // WHEN changing a value in the inlined record
+        properties.put( "name", "Jim" );
+        setProperties( nodeId, properties );
+
+        // THEN
+        assertEquals( properties, propertiesOf( nodeId ) );
+
+        // and WHEN adding enough properties for the node to get a new first property record
+        for ( int i = 0; i < 20; i++ )
+        {
+            properties.put( "key" + i, (long) i );
+        }
+        setProperties( nodeId, properties );
+
+        // THEN
+        NodeRecord node = nodeStore.getRecord( nodeId );
+        assertEquals( node.getNextProp(), nodeStore.getInlinedPropertyRecord( node ).getId() );
+        assertEquals( properties, propertiesOf( nodeId ) );
+    }
+
+    @Test
+    public void shouldForgetTheCopyWhenThePropertiesOrTheNodeGoAway() throws Exception
+    {
+        // GIVEN
+        long nodeId = createNode( Collections.<String,Object>singletonMap( "name", "Alistair" ) );
+        long firstProp = nodeStore.getRecord( nodeId ).getNextProp();
+
+        // WHEN
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.getNodeById( nodeId ).removeProperty( "name" );
+            tx.success();
+        }
+
+        // THEN
+        assertTrue( propertiesOf( nodeId ).isEmpty() );
+        assertNull( nodeStore.getInlinedPropertyRecord( new NodeRecord( nodeId, false, -1, firstProp ) ) );
+
+        // and GIVEN
+        nodeId = createNode( Collections.<String,Object>singletonMap( "name", "Jim" ) );
+        firstProp = nodeStore.getRecord( nodeId ).getNextProp();
+
+        // WHEN
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.getNodeById( nodeId ).delete();
+            tx.success();
+        }
+
+        // THEN
+        assertNull( nodeStore.getInlinedPropertyRecord( new NodeRecord( nodeId, false, -1, firstProp ) ) );
+    }
+
+    private long createNode( Map<String,Object> properties )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node node = db.createNode();
+            for ( Map.Entry<String,Object> property : properties.entrySet() )
+            {
+                node.setProperty( property.getKey(), property.getValue() );
+            }
+            tx.success();
+            return node.getId();
+        }
+    }
+
+    private void setProperties( long nodeId, Map<String,Object> properties )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node node = db.getNodeById( nodeId );
+            for ( Map.Entry<String,Object> property : properties.entrySet() )
+            {
+                node.setProperty( property.getKey(), property.getValue() );
+            }
+            tx.success();
+        }
+    }
+
+    private Map<String,Object> propertiesOf( long nodeId )
+    {
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node node = db.getNodeById( nodeId );
+            Map<String,Object> properties = new HashMap<>();
+            for ( String key : node.getPropertyKeys() )
+            {
+                properties.put( key, node.getProperty( key ) );
+            }
+            tx.success();
+            return properties;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.kernel.DefaultIdGeneratorFactory;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.store.record.Record;
+import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.test.PageCacheRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.impl.util.StringLogger.DEV_NULL;
+
+public class PropertyStoreTest
+{
+    @ClassRule
+    public static PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private PropertyStore propertyStore;
+
+    @Test
+    public void shouldReadPropertyRecordChainInSameAndOtherPages() throws Exception
+    {
+        // GIVEN a chain which jumps back and forth between three pages
+        PropertyStore store = newPropertyStore( new EphemeralFileSystemAbstraction() );
+        int recordsPerPage = store.recordsPerPage();
+        long[] chain = {0, 1, recordsPerPage * 2L, 2, recordsPerPage + 1L, recordsPerPage * 2L + 1, 3};
+        store.setHighId( recordsPerPage * 3L );
+        for ( int i = 0; i < chain.length; i++ )
+        {
+            store.updateRecord( propertyRecord( store, chain[i], i == 0 ? -1 : chain[i - 1],
+                    i + 1 < chain.length ? chain[i + 1] : -1, i ) );
+        }
+
+        // WHEN
+        List<PropertyRecord> records = new ArrayList<>( store.getPropertyRecordChain( chain[0] ) );
+
+        // THEN
+        assertEquals( chain.length, records.size() );
+        for ( int i = 0; i < chain.length; i++ )
+        {
+            PropertyRecord record = records.get( i );
+            assertEquals( chain[i], record.getId() );
+            assertEquals( store.getRecord( chain[i] ).toString(), record.toString() );
+            assertEquals( i, record.getPropertyBlock( i ).getSingleValueInt() );
+        }
+    }
+
+    @Test
+    public void shouldReadEmptyPropertyRecordChain() throws Exception
+    {
+        // GIVEN
+        PropertyStore store = newPropertyStore( new EphemeralFileSystemAbstraction() );
+
+        // WHEN/THEN
+        assertTrue( store.getPropertyRecordChain( Record.NO_NEXT_PROPERTY.intValue() ).isEmpty() );
+    }
+
+    @Test
+    public void shouldFailReadingPropertyRecordChainLeadingToRecordNotInUse() throws Exception
+    {
+        // GIVEN
+        PropertyStore store = newPropertyStore( new EphemeralFileSystemAbstraction() );
+        store.setHighId( 2 );
+        store.updateRecord( propertyRecord( store, 0, -1, 1, 0 ) );
+        PropertyRecord unused = new PropertyRecord( 1 );
+        unused.setInUse( false );
+        store.updateRecord( unused );
+
+        // WHEN
+        try
+        {
+            store.getPropertyRecordChain( 0 );
+            fail( "Should have failed" );
+        }
+        catch ( InvalidRecordException e )
+        {   // THEN good
+        }
+    }
+
+    private static PropertyRecord propertyRecord( PropertyStore store, long id, long prev, long next, int value )
+    {
+        PropertyRecord record = new PropertyRecord( id );
+        record.setInUse( true );
+        record.setPrevProp( prev );
+        record.setNextProp( next );
+        PropertyBlock block = new PropertyBlock();
+        store.encodeValue( block, value, value );
+        record.addPropertyBlock( block );
+        return record;
+    }
+
+    private PropertyStore newPropertyStore( EphemeralFileSystemAbstraction fs )
+    {
+        File storeDir = new File( "dir" );
+        fs.mkdirs( storeDir );
+        Config config = StoreFactory.configForStoreDir( new Config(), storeDir );
+        StoreFactory factory = new StoreFactory( config, new DefaultIdGeneratorFactory(),
+                pageCacheRule.getPageCache( fs ), fs, DEV_NULL, new Monitors() );
+        factory.createPropertyStore();
+        propertyStore = factory.newPropertyStore();
+        return propertyStore;
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( propertyStore != null )
+        {
+            propertyStore.close();
+            propertyStore = null;
+        }
+    }
+}
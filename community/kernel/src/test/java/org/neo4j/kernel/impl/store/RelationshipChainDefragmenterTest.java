@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.kernel.impl.store.NeoStore.Position;
+import org.neo4j.kernel.impl.storemigration.LogFiles;
+import org.neo4j.test.PageCacheRule;
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.graphdb.DynamicLabel.label;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+import static org.neo4j.kernel.logging.DevNullLoggingService.DEV_NULL;
+import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitors.invisible;
+
+public class RelationshipChainDefragmenterTest
+{
+    private static final String NAME = "name";
+
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+    @Rule
+    public final TargetDirectory.TestDirectory directory = TargetDirectory.testDirForTest( getClass() );
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+    private File storeDir;
+
+    @Before
+    public void setUp()
+    {
+        storeDir = directory.graphDbDir();
+    }
+
+    @Test
+    public void shouldMakeOutgoingRelationshipChainsContiguousAndKeepTheGraphIntact() throws Exception
+    {
+        // GIVEN relationships of a handful of nodes created in an interleaved fashion, some nodes being dense
+        Map<String,Set<String>> outgoingBefore = createInterleavedGraph( 5, 60 );
+
+        // WHEN
+        defragment();
+
+        // THEN
+        GraphDatabaseService db = newDb();
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( outgoingBefore, outgoingRelationshipNames( db ) );
+            for ( Node node : db.getAllNodes() )
+            {
+                assertTrue( node.hasLabel( label( "Person" ) ) );
+                assertOutgoingRelationshipsContiguous( node );
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldAllowCreatingRelationshipsAfterDefragmentation() throws Exception
+    {
+        // GIVEN
+        createInterleavedGraph( 3, 10 );
+        defragment();
+
+        // WHEN
+        GraphDatabaseService db = newDb();
+        try
+        {
+            long relationshipId;
+            try ( Transaction tx = db.beginTx() )
+            {
+                relationshipId = db.createNode().createRelationshipTo( db.createNode(), MyRelTypes.TEST ).getId();
+                tx.success();
+            }
+
+            // THEN
+            try ( Transaction tx = db.beginTx() )
+            {
+                assertEquals( 3 * 10, relationshipId );
+                tx.success();
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldMoveTransactionLogsOutOfTheStoreDirectory() throws Exception
+    {
+        // GIVEN
+        createInterleavedGraph( 3, 10 );
+        File neoStore = new File( storeDir, NeoStore.DEFAULT_NAME );
+        long lastTxId = NeoStore.getRecord( fs, neoStore, Position.LAST_TRANSACTION_ID );
+        assertTrue( fs.listFiles( storeDir, LogFiles.FILENAME_FILTER ).length > 0 );
+
+        // WHEN
+        defragment();
+
+        // THEN
+        assertEquals( 0, fs.listFiles( storeDir, LogFiles.FILENAME_FILTER ).length );
+        File oldLogsDir = new File( storeDir, RelationshipChainDefragmenter.OLD_LOGS_DIRECTORY_NAME );
+        assertTrue( fs.listFiles( oldLogsDir, LogFiles.FILENAME_FILTER ).length > 0 );
+        assertEquals( lastTxId, NeoStore.getRecord( fs, neoStore, Position.UPGRADE_TRANSACTION_ID ) );
+        assertEquals( NeoStore.getRecord( fs, neoStore, Position.LAST_TRANSACTION_CHECKSUM ),
+                NeoStore.getRecord( fs, neoStore, Position.UPGRADE_TRANSACTION_CHECKSUM ) );
+    }
+
+    @Test
+    public void shouldRefuseToDefragmentStoreWithLegacyRelationshipIndex() throws Exception
+    {
+        // GIVEN
+        GraphDatabaseService db = newDb();
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.index().forRelationships( "friends" );
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+
+        // WHEN
+        try
+        {
+            defragment();
+            fail( "Should have refused to defragment" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // THEN good
+        }
+    }
+
+    private Map<String,Set<String>> createInterleavedGraph( int nodeCount, int relationshipsPerNode )
+    {
+        GraphDatabaseService db = newDb();
+        try
+        {
+            Node[] nodes = new Node[nodeCount];
+            try ( Transaction tx = db.beginTx() )
+            {
+                for ( int i = 0; i < nodeCount; i++ )
+                {
+                    nodes[i] = db.createNode( label( "Person" ) );
+                    nodes[i].setProperty( NAME, "n" + i );
+                }
+                tx.success();
+            }
+
+            RelationshipType[] types = {MyRelTypes.TEST, MyRelTypes.TEST2, MyRelTypes.TEST_TRAVERSAL};
+            for ( int r = 0; r < relationshipsPerNode; r++ )
+            {
+                try ( Transaction tx = db.beginTx() )
+                {
+                    for ( int i = 0; i < nodeCount; i++ )
+                    {
+                        Relationship relationship = nodes[i].createRelationshipTo(
+                                nodes[(i + r + 1) % nodeCount], types[r % types.length] );
+                        relationship.setProperty( NAME, "n" + i + "-" + r );
+                    }
+                    tx.success();
+                }
+            }
+
+            try ( Transaction tx = db.beginTx() )
+            {
+                Map<String,Set<String>> outgoing = outgoingRelationshipNames( db );
+                tx.success();
+                return outgoing;
+            }
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private Map<String,Set<String>> outgoingRelationshipNames( GraphDatabaseService db )
+    {
+        Map<String,Set<String>> result = new HashMap<>();
+        for ( Node node : db.getAllNodes() )
+        {
+            Set<String> names = new HashSet<>();
+            for ( Relationship relationship : node.getRelationships( Direction.OUTGOING ) )
+            {
+                names.add( relationship.getProperty( NAME ) + "->" + relationship.getEndNode().getProperty( NAME ) );
+            }
+            result.put( (String) node.getProperty( NAME ), names );
+        }
+        return result;
+    }
+
+    private void assertOutgoingRelationshipsContiguous( Node node )
+    {
+        List<Long> ids = new ArrayList<>();
+        for ( Relationship relationship : node.getRelationships( Direction.OUTGOING ) )
+        {
+            ids.add( relationship.getId() );
+        }
+        Collections.sort( ids );
+        for ( int i = 1; i < ids.size(); i++ )
+        {
+            assertEquals( "Relationships of " + node + " not contiguous " + ids,
+                    ids.get( i - 1 ) + 1, ids.get( i ).longValue() );
+        }
+    }
+
+    private void defragment() throws Exception
+    {
+        Config config = StoreFactory.configForStoreDir( new Config(), storeDir );
+        new RelationshipChainDefragmenter( fs, config, DEV_NULL, invisible(), NumberArrayFactory.HEAP )
+                .defragment( storeDir, pageCacheRule.getPageCache( fs ) );
+    }
+
+    private GraphDatabaseService newDb()
+    {
+        return new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder( storeDir.getPath() )
+                .setConfig( stringMap( "dense_node_threshold", "10" ) )
+                .newGraphDatabase();
+    }
+}
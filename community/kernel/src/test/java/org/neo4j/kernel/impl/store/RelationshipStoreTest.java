@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store;
+
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.kernel.DefaultIdGeneratorFactory;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.store.record.RelationshipRecord;
+import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.test.PageCacheRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.kernel.impl.util.StringLogger.DEV_NULL;
+
+public class RelationshipStoreTest
+{
+    @ClassRule
+    public static PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private RelationshipStore relationshipStore;
+
+    @Test
+    public void chainCursorShouldReadRecordsInSameAndOtherPages() throws Exception
+    {
+        // GIVEN a chain which jumps back and forth between three pages
+        RelationshipStore store = newRelationshipStore( new EphemeralFileSystemAbstraction() );
+        int recordsPerPage = store.recordsPerPage();
+        long[] chain = {0, 1, recordsPerPage * 2L, 2, recordsPerPage + 1L, recordsPerPage * 2L + 1, 3};
+        store.setHighId( recordsPerPage * 3L );
+        for ( int i = 0; i < chain.length; i++ )
+        {
+            long next = i + 1 < chain.length ? chain[i + 1] : -1;
+            long prev = i == 0 ? chain.length : chain[i - 1];
+            store.updateRecord( new RelationshipRecord( chain[i], true, 10, 11 + i, 5, prev, next, 1, -1, i == 0, true ) );
+        }
+
+        // WHEN
+        RelationshipRecord[] records = new RelationshipRecord[chain.length];
+        try ( RelationshipStore.ChainCursor cursor = store.newChainCursor() )
+        {
+            for ( int i = 0; i < chain.length; i++ )
+            {
+                records[i] = new RelationshipRecord( -1 );
+                assertTrue( cursor.read( chain[i], records[i] ) );
+            }
+        }
+
+        // THEN
+        for ( int i = 0; i < chain.length; i++ )
+        {
+            assertEquals( store.getRecord( chain[i] ).toString(), records[i].toString() );
+        }
+    }
+
+    @Test
+    public void chainCursorShouldNotReadRecordsNotInUse() throws Exception
+    {
+        // GIVEN
+        RelationshipStore store = newRelationshipStore( new EphemeralFileSystemAbstraction() );
+        store.setHighId( 2 );
+        store.updateRecord( new RelationshipRecord( 0, true, 1, 2, 3, 1, -1, 1, -1, true, true ) );
+        RelationshipRecord unused = new RelationshipRecord( 1 );
+        unused.setInUse( false );
+        store.updateRecord( unused );
+
+        // WHEN/THEN
+        try ( RelationshipStore.ChainCursor cursor = store.newChainCursor() )
+        {
+            RelationshipRecord record = new RelationshipRecord( -1 );
+            assertFalse( cursor.read( 1, record ) );
+            assertFalse( cursor.read( store.recordsPerPage() * 10L, record ) );
+            assertTrue( cursor.read( 0, record ) );
+            assertEquals( 2, record.getSecondNode() );
+        }
+    }
+
+    @Test
+    public void chainCursorShouldAllowOtherReadsByTheSameThreadWhileOpen() throws Exception
+    {
+        // GIVEN
+        RelationshipStore store = newRelationshipStore( new EphemeralFileSystemAbstraction() );
+        store.setHighId( 2 );
+        store.updateRecord( new RelationshipRecord( 0, true, 1, 2, 3, 1, -1, 1, -1, true, true ) );
+        store.updateRecord( new RelationshipRecord( 1, true, 1, 4, 3, 1, 0, 2, -1, false, true ) );
+
+        // WHEN
+        try ( RelationshipStore.ChainCursor cursor = store.newChainCursor() )
+        {
+            RelationshipRecord record = new RelationshipRecord( -1 );
+            assertTrue( cursor.read( 0, record ) );
+
+            // THEN
+            assertEquals( 4, store.getRecord( 1 ).getSecondNode() );
+            assertTrue( cursor.read( 1, record ) );
+            assertEquals( 4, record.getSecondNode() );
+        }
+    }
+
+    private RelationshipStore newRelationshipStore( EphemeralFileSystemAbstraction fs )
+    {
+        File storeDir = new File( "dir" );
+        fs.mkdirs( storeDir );
+        Config config = StoreFactory.configForStoreDir( new Config(), storeDir );
+        StoreFactory factory = new StoreFactory( config, new DefaultIdGeneratorFactory(),
+                pageCacheRule.getPageCache( fs ), fs, DEV_NULL, new Monitors() );
+        factory.createRelationshipStore();
+        relationshipStore = factory.newRelationshipStore();
+        return relationshipStore;
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( relationshipStore != null )
+        {
+            relationshipStore.close();
+            relationshipStore = null;
+        }
+    }
+}
@@ -91,46 +91,50 @@ public class SchemaStoreTest
         assertEquals( rules, readRules );
     }
 
-//    ENABLE WHEN MULTIPLE PROPERTY KEYS PER INDEX RULE IS SUPPORTED
-//    @Test
-//    public void storeAndLoadSingleLongRule() throws Exception
-//    {
-//        // GIVEN
-//
-//        Collection<SchemaRule> rules = Arrays.<SchemaRule>asList( createLongIndexRule( 0, 50 ) );
-//        for ( SchemaRule rule : rules )
-//            storeRule( rule );
-//
-//        // WHEN
-//        Collection<SchemaRule> readRules = asCollection( store.loadAll() );
-//
-//        // THEN
-//        assertEquals( rules, readRules );
-//    }
-//
-//    @Test
-//    public void storeAndLoadAllLongRules() throws Exception
-//    {
-//        // GIVEN
-//        Collection<SchemaRule> rules = Arrays.<SchemaRule>asList(
-//                createLongIndexRule( 0, 100 ), createLongIndexRule( 1, 6 ), createLongIndexRule( 2, 50 ) );
-//        for ( SchemaRule rule : rules )
-//            storeRule( rule );
-//
-//        // WHEN
-//        Collection<SchemaRule> readRules = asCollection( store.loadAll() );
-//
-//        // THEN
-//        assertEquals( rules, readRules );
-//    }
-//
-//    private IndexRule createLongIndexRule( long label, int numberOfPropertyKeys )
-//    {
-//        long[] propertyKeys = new long[numberOfPropertyKeys];
-//        for ( int i = 0; i < propertyKeys.length; i++ )
-//            propertyKeys[i] = i;
-//        return new IndexRule( store.nextId(), label, POPULATING, propertyKeys );
-//    }
+    @Test
+    public void storeAndLoadSingleLongRule() throws Exception
+    {
+        // GIVEN
+        Collection<SchemaRule> rules = Arrays.<SchemaRule>asList( createLongIndexRule( 0, 50 ) );
+        for ( SchemaRule rule : rules )
+        {
+            storeRule( rule );
+        }
+
+        // WHEN
+        Collection<SchemaRule> readRules = asCollection( store.loadAllSchemaRules() );
+
+        // THEN
+        assertEquals( rules, readRules );
+    }
+
+    @Test
+    public void storeAndLoadAllLongRules() throws Exception
+    {
+        // GIVEN
+        Collection<SchemaRule> rules = Arrays.<SchemaRule>asList(
+                createLongIndexRule( 0, 100 ), createLongIndexRule( 1, 6 ), createLongIndexRule( 2, 50 ) );
+        for ( SchemaRule rule : rules )
+        {
+            storeRule( rule );
+        }
+
+        // WHEN
+        Collection<SchemaRule> readRules = asCollection( store.loadAllSchemaRules() );
+
+        // THEN
+        assertEquals( rules, readRules );
+    }
+
+    private IndexRule createLongIndexRule( int label, int numberOfPropertyKeys )
+    {
+        int[] propertyKeys = new int[numberOfPropertyKeys];
+        for ( int i = 0; i < propertyKeys.length; i++ )
+        {
+            propertyKeys[i] = i;
+        }
+        return IndexRule.indexRule( store.nextId(), label, propertyKeys, PROVIDER_DESCRIPTOR );
+    }
 
     private long storeRule( SchemaRule rule )
     {
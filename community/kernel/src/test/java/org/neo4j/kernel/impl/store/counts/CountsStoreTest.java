@@ -180,6 +180,13 @@ public class CountsStoreTest
                             assertEquals( 24, unique );
                             assertEquals( 84, size );
                         }
+
+                        @Override
+                        public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first,
+                                                      long second )
+                        {
+                            fail( "no index sketch was written" );
+                        }
                     }, target.readFirst(), target.readSecond() );
                 }
             }, Registers.newDoubleLongRegister() );
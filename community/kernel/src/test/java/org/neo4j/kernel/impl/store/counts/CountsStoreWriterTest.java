@@ -42,6 +42,7 @@ import static org.neo4j.kernel.impl.store.CommonAbstractStore.ALL_STORES_VERSION
 import static org.neo4j.kernel.impl.store.counts.CountsStore.RECORD_SIZE;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexCountsKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSampleKey;
+import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.indexSketchKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.nodeKey;
 import static org.neo4j.kernel.impl.store.counts.keys.CountsKeyFactory.relationshipKey;
 import static org.neo4j.kernel.impl.store.kvstore.SortedKeyValueStoreHeader.BASE_MINOR_VERSION;
@@ -67,13 +68,17 @@ public class CountsStoreWriterTest
         writer.visit( indexCountsKey( 4, 5 ), valueRegister );
         valueRegister.write( 24, 84 );
         writer.visit( indexSampleKey( 4, 5 ), valueRegister );
+        valueRegister.write( -7, 13 );
+        writer.visit( indexSketchKey( 4, 5, 6 ), valueRegister );
+        valueRegister.write( 0, 0 );
+        writer.visit( indexSketchKey( 4, 5, 7 ), valueRegister );
         writer.close();
 
         // then
         try ( SortedKeyValueStore counts = writer.openForReading() )
         {
             assertEquals( lastTxId, counts.lastTxId() );
-            assertEquals( 4, counts.totalRecordsStored() );
+            assertEquals( 5, counts.totalRecordsStored() );
             assertEquals( file, counts.file() );
             counts.accept( new KeyValueRecordVisitor<CountsKey, DoubleLongRegister>()
             {
@@ -116,6 +121,17 @@ public class CountsStoreWriterTest
                             assertEquals( 24, unique );
                             assertEquals( 84, size );
                         }
+
+                        @Override
+                        public void visitIndexSketch( int labelId, int propertyKeyId, int slot, long first,
+                                                      long second )
+                        {
+                            assertEquals( 4, labelId );
+                            assertEquals( 5, propertyKeyId );
+                            assertEquals( 6, slot );
+                            assertEquals( -7, first );
+                            assertEquals( 13, second );
+                        }
                     }, valueRegister.readFirst(), valueRegister.readSecond() );
                 }
             }, Registers.newDoubleLongRegister() );
@@ -38,6 +38,8 @@ import org.neo4j.kernel.impl.store.kvstore.SortedKeyValueStore;
 import org.neo4j.kernel.impl.store.kvstore.SortedKeyValueStoreHeader;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.register.Register.CopyableDoubleLongRegister;
+import org.neo4j.register.Register.DoubleLongRegister;
+import org.neo4j.register.Registers;
 import org.neo4j.test.Barrier;
 import org.neo4j.test.EphemeralFileSystemRule;
 import org.neo4j.test.PageCacheRule;
@@ -89,6 +91,51 @@ public class CountsTrackerTest
         }
     }
 
+    @Test
+    public void shouldStoreIndexSketchesInStoresOfTheSketchFormat() throws Exception
+    {
+        // given
+        CountsTracker.createEmptyCountsStore( pageCache(), storeFile(), VERSION );
+
+        // when
+        try ( CountsTracker tracker = new CountsTracker( StringLogger.DEV_NULL, fs.get(), pageCache(), storeFile() ) )
+        {
+            tracker.replaceIndexSketch( 1, 2, 3, -7, 13 );
+            tracker.rotate( 1 );
+        }
+
+        // then
+        try ( CountsTracker tracker = new CountsTracker( StringLogger.DEV_NULL, fs.get(), pageCache(), storeFile() ) )
+        {
+            DoubleLongRegister sketch = tracker.indexSketch( 1, 2, 3, Registers.newDoubleLongRegister() );
+            assertEquals( -7, sketch.readFirst() );
+            assertEquals( 13, sketch.readSecond() );
+        }
+    }
+
+    @Test
+    public void shouldNotStoreIndexSketchesInStoresMadeBeforeTheSketchFormat() throws Exception
+    {
+        // given
+        EphemeralFileSystemAbstraction fs = this.fs.get();
+        PageCache pageCache = pageCache();
+        createStoreFile( fs, pageCache, alphaStoreFile(), BASE_TX_ID + 1 );
+        createStoreFile( fs, pageCache, betaStoreFile(), BASE_TX_ID );
+
+        // when
+        try ( CountsTracker tracker = new CountsTracker( StringLogger.DEV_NULL, fs, pageCache, storeFile() ) )
+        {
+            tracker.replaceIndexSketch( 1, 2, 3, -7, 13 );
+            tracker.rotate( BASE_TX_ID + 2 );
+        }
+
+        // then
+        try ( CountsStore store = CountsStore.open( fs, pageCache, betaStoreFile() ) )
+        {
+            assertEquals( 0, store.totalRecordsStored() );
+        }
+    }
+
     @Test
     public void shouldUpdateCountsOnExistingStore() throws Exception
     {
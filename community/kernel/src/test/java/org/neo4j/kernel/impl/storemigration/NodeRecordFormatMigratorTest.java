@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.storemigration;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.UTF8;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.kernel.impl.store.InlinePropertiesNodeStore;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.StoreFactory;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreProvider;
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.allow_store_upgrade;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.cache_type;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.inline_node_properties;
+
+public class NodeRecordFormatMigratorTest
+{
+    @Rule
+    public final TargetDirectory.TestDirectory directory = TargetDirectory.testDirForTest( getClass() );
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+
+    @Test
+    public void shouldInlineFirstPropertyRecordsOfExistingNodesAndLeaveThemOutAgain() throws Exception
+    {
+        // GIVEN a store with the standard node record format
+        Map<Long,Map<String,Object>> properties = createNodes( false );
+
+        // WHEN
+        GraphDatabaseService db = newDb( true );
+        try
+        {
+            // THEN
+            NodeStore nodeStore = nodeStore( db );
+            assertTrue( nodeStore instanceof InlinePropertiesNodeStore );
+            for ( long nodeId : properties.keySet() )
+            {
+                NodeRecord node = nodeStore.getRecord( nodeId );
+                assertNotNull( ((InlinePropertiesNodeStore) nodeStore).getInlinedPropertyRecord( node ) );
+            }
+            assertEquals( properties, propertiesOf( db, properties ) );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+
+        // and WHEN
+        db = newDb( false );
+        try
+        {
+            // THEN
+            assertFalse( nodeStore( db ) instanceof InlinePropertiesNodeStore );
+            assertEquals( properties, propertiesOf( db, properties ) );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldKeepInlinedFormatOfNewStoreAcrossRestarts() throws Exception
+    {
+        // GIVEN
+        Map<Long,Map<String,Object>> properties = createNodes( true );
+
+        // WHEN
+        GraphDatabaseService db = new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder( directory.absolutePath() )
+                .setConfig( inline_node_properties, "true" )
+                .newGraphDatabase();
+        try
+        {
+            // THEN no migration, which isn't allowed, was needed
+            assertTrue( nodeStore( db ) instanceof InlinePropertiesNodeStore );
+            assertEquals( properties, propertiesOf( db, properties ) );
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldTellInlinedFormatFromNeoStoreWhenNodeStoreHasNoTrailer() throws Exception
+    {
+        // GIVEN a store with inlined properties whose node store trailer is gone, as after a crash
+        createNodes( true );
+        File nodeStore = new File( directory.directory(), NeoStore.DEFAULT_NAME + StoreFactory.NODE_STORE_NAME );
+        File neoStore = new File( directory.directory(), NeoStore.DEFAULT_NAME );
+        try ( StoreChannel channel = fs.open( nodeStore, "rw" ) )
+        {
+            String trailer = StoreFactory.buildTypeDescriptorAndVersion(
+                    InlinePropertiesNodeStore.TYPE_DESCRIPTOR );
+            channel.truncate( channel.size() - UTF8.encode( trailer ).length );
+        }
+
+        // WHEN/THEN
+        assertTrue( StoreFactory.nodeStoreInlinesProperties( fs, nodeStore, neoStore ) );
+    }
+
+    private Map<Long,Map<String,Object>> createNodes( boolean inlineProperties )
+    {
+        Map<Long,Map<String,Object>> result = new HashMap<>();
+        GraphDatabaseService db = newDb( inlineProperties );
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                Node node = db.createNode();
+                Map<String,Object> properties = new HashMap<>();
+                for ( int p = 0; p <= i; p++ )
+                {
+                    properties.put( "key" + p, "value" + i + "-" + p );
+                    node.setProperty( "key" + p, "value" + i + "-" + p );
+                }
+                result.put( node.getId(), properties );
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+        return result;
+    }
+
+    private Map<Long,Map<String,Object>> propertiesOf( GraphDatabaseService db, Map<Long,Map<String,Object>> nodes )
+    {
+        Map<Long,Map<String,Object>> result = new HashMap<>();
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( long nodeId : nodes.keySet() )
+            {
+                Node node = db.getNodeById( nodeId );
+                Map<String,Object> properties = new HashMap<>();
+                for ( String key : node.getPropertyKeys() )
+                {
+                    properties.put( key, node.getProperty( key ) );
+                }
+                result.put( nodeId, properties );
+            }
+            tx.success();
+        }
+        return result;
+    }
+
+    private NodeStore nodeStore( GraphDatabaseService db )
+    {
+        return ((GraphDatabaseAPI) db).getDependencyResolver()
+                .resolveDependency( NeoStoreProvider.class ).evaluate().getNodeStore();
+    }
+
+    private GraphDatabaseService newDb( boolean inlineProperties )
+    {
+        return new TestGraphDatabaseFactory().newEmbeddedDatabaseBuilder( directory.absolutePath() )
+                .setConfig( inline_node_properties, String.valueOf( inlineProperties ) )
+                .setConfig( allow_store_upgrade, "true" )
+                .setConfig( cache_type, "none" )
+                .newGraphDatabase();
+    }
+}
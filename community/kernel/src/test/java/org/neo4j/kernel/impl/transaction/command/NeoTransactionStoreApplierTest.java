@@ -439,6 +439,27 @@ public class NeoTransactionStoreApplierTest
         verify( relationshipGroupStore, times( 1 ) ).updateRecord( record );
     }
 
+    @Test
+    public void shouldInvalidateTheOwningNodeOfAChangedRelationshipGroupInRecovery() throws IOException
+    {
+        // given
+        final NeoCommandHandler applier = newApplier( true );
+        final RelationshipGroupRecord record = new RelationshipGroupRecord( 42, 1 );
+        record.setInUse( true );
+        record.setOwningNode( 7 );
+
+        // when
+        final boolean result = applier.visitRelationshipGroupCommand(
+                new Command.RelationshipGroupCommand().init( record ) );
+        applyAndClose( applier );
+
+        // then
+        assertFalse( result );
+
+        verify( relationshipGroupStore, times( 1 ) ).updateRecord( record );
+        verify( cacheAccess, times( 1 ) ).removeNodeFromCache( 7 );
+    }
+
     // RELATIONSHIP TYPE TOKEN COMMAND
 
     @Test
@@ -583,12 +604,13 @@ public class NeoTransactionStoreApplierTest
         // when
         final boolean result =
                 applier.visitSchemaRuleCommand( command ) & indexApplier.visitSchemaRuleCommand( command );
+        applyAndClose( applier, indexApplier );
 
         // then
         assertFalse( result );
 
         verify( schemaStore, times( 1 ) ).updateRecord( record );
-        verify( indexingService, times( 1 ) ).createIndex( rule );
+        verify( indexingService, times( 1 ) ).createIndexes( rule );
         verify( cacheAccess, times( 1 ) ).addSchemaRule( rule );
     }
 
@@ -615,7 +637,7 @@ public class NeoTransactionStoreApplierTest
 
         verify( schemaStore, times( 1 ) ).setHighestPossibleIdInUse( record.getId() );
         verify( schemaStore, times( 1 ) ).updateRecord( record );
-        verify( indexingService, times( 1 ) ).createIndex( rule );
+        verify( indexingService, times( 1 ) ).createIndexes( rule );
         verify( cacheAccess, times( 1 ) ).addSchemaRule( rule );
     }
 
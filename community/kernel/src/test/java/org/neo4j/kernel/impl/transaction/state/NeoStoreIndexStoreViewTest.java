@@ -26,11 +26,14 @@ import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.neo4j.helpers.collection.IteratorUtil.asSet;
 import static org.neo4j.helpers.collection.IteratorUtil.emptySetOf;
+import static org.neo4j.register.Registers.newDoubleLongRegister;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -44,6 +47,7 @@ import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.api.Statement;
@@ -155,6 +159,32 @@ public class NeoStoreIndexStoreViewTest
         assertTrue( property.valueEquals( "Alistair" ) );
     }
 
+    @Test
+    public void shouldKeepTheCountsOfCompositeIndexesWithCollidingPropertyKeyHashesApart() throws Exception
+    {
+        // given two composite indexes, of property keys whose array hash codes are the same
+        int[] keys = new int[32];
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            keys[i] = getOrCreatePropertyKey( "key" + i );
+        }
+        IndexDescriptor first = new IndexDescriptor( labelId, new int[]{keys[0], keys[31]} );
+        IndexDescriptor second = new IndexDescriptor( labelId, new int[]{keys[1], keys[0]} );
+        assertEquals( Arrays.hashCode( first.getPropertyKeyIds() ), Arrays.hashCode( second.getPropertyKeyIds() ) );
+        createCompositeIndex( "key0", "key31" );
+        createCompositeIndex( "key1", "key0" );
+
+        // when
+        storeView.replaceIndexCounts( first, 1, 2, 3 );
+        storeView.replaceIndexCounts( second, 4, 5, 6 );
+
+        // then
+        assertEquals( 3, storeView.indexUpdatesAndSize( first, newDoubleLongRegister() ).readSecond() );
+        assertEquals( 6, storeView.indexUpdatesAndSize( second, newDoubleLongRegister() ).readSecond() );
+        assertEquals( 1, storeView.indexSample( first, newDoubleLongRegister() ).readFirst() );
+        assertEquals( 4, storeView.indexSample( second, newDoubleLongRegister() ).readFirst() );
+    }
+
     Map<Long, Lock> lockMocks = new HashMap<>();
 
     @Before
@@ -230,6 +260,38 @@ public class NeoStoreIndexStoreViewTest
         }
     }
 
+    private int getOrCreatePropertyKey( String name ) throws KernelException
+    {
+        try ( Transaction tx = graphDb.beginTx() )
+        {
+            ThreadToStatementContextBridge bridge =
+                    graphDb.getDependencyResolver().resolveDependency( ThreadToStatementContextBridge.class );
+
+            int propertyKey;
+            try ( Statement statement = bridge.instance() )
+            {
+                propertyKey = statement.dataWriteOperations().propertyKeyGetOrCreateForName( name );
+            }
+            tx.success();
+            return propertyKey;
+        }
+    }
+
+    private void createCompositeIndex( String firstKey, String secondKey )
+    {
+        IndexDefinition index;
+        try ( Transaction tx = graphDb.beginTx() )
+        {
+            index = graphDb.schema().indexFor( label ).on( firstKey ).on( secondKey ).create();
+            tx.success();
+        }
+        try ( Transaction tx = graphDb.beginTx() )
+        {
+            graphDb.schema().awaitIndexOnline( index, 10, TimeUnit.SECONDS );
+            tx.success();
+        }
+    }
+
     class NodeUpdateCollectingVisitor implements Visitor<NodePropertyUpdate, Exception>
     {
         private final Set<NodePropertyUpdate> updates = new HashSet<>();
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.util.collection;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StripedLongObjectMapTest
+{
+    private final StripedLongObjectMap<Object> map = new StripedLongObjectMap<>( 4 );
+
+    @Test
+    public void shouldPutGetAndRemoveEntries() throws Exception
+    {
+        // GIVEN
+        Object first = value(), second = value();
+
+        // WHEN/THEN
+        assertNull( map.putIfAbsent( 10, first ) );
+        assertSame( first, map.putIfAbsent( 10, second ) );
+        assertSame( first, map.get( 10 ) );
+        assertSame( first, map.put( 10, second ) );
+        assertSame( second, map.get( 10 ) );
+        assertSame( second, map.remove( 10 ) );
+        assertNull( map.get( 10 ) );
+        assertNull( map.remove( 10 ) );
+        assertNull( map.putIfAbsent( 10, first ) );
+        assertSame( first, map.get( 10 ) );
+        assertEquals( 1, map.size() );
+    }
+
+    @Test
+    public void shouldHandleAnyResourceId() throws Exception
+    {
+        // GIVEN resource ids like those of index entries, which are hashes and can be negative
+        long[] resourceIds = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, -(1L << 32)};
+        Object[] locks = new Object[resourceIds.length];
+
+        // WHEN
+        for ( int i = 0; i < resourceIds.length; i++ )
+        {
+            locks[i] = value();
+            assertNull( map.putIfAbsent( resourceIds[i], locks[i] ) );
+        }
+
+        // THEN
+        for ( int i = 0; i < resourceIds.length; i++ )
+        {
+            assertSame( locks[i], map.get( resourceIds[i] ) );
+        }
+    }
+
+    @Test
+    public void shouldKeepEntriesThroughManyRehashes() throws Exception
+    {
+        // GIVEN
+        Random random = new Random( 1234 );
+        Map<Long,Object> expected = new HashMap<>();
+
+        // WHEN locking and unlocking lots of resources, so that stripes both grow and are cleaned of removed slots
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            long resourceId = random.nextInt( 2_000 );
+            if ( random.nextBoolean() )
+            {
+                Object lock = value();
+                Object existing = map.putIfAbsent( resourceId, lock );
+                assertSame( expected.get( resourceId ), existing );
+                if ( existing == null )
+                {
+                    expected.put( resourceId, lock );
+                }
+            }
+            else
+            {
+                assertSame( expected.remove( resourceId ), map.remove( resourceId ) );
+            }
+        }
+
+        // THEN
+        final Map<Long,Object> visited = new HashMap<>();
+        map.visitEntries( new PrimitiveLongObjectVisitor<Object,RuntimeException>()
+        {
+            @Override
+            public boolean visited( long resourceId, Object lock )
+            {
+                visited.put( resourceId, lock );
+                return false;
+            }
+        } );
+        assertEquals( expected, visited );
+        assertEquals( expected.size(), map.size() );
+    }
+
+    @Test
+    public void shouldSeeEntriesOfOtherThreadsWhileTheyPutAndRemoveConcurrently() throws Exception
+    {
+        // GIVEN one lock which stays in place while other threads lock and unlock resources around it
+        final long stableResource = 1_000_000;
+        final Object stableLock = value();
+        map.put( stableResource, stableLock );
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        try
+        {
+            // WHEN
+            Future<?>[] futures = new Future[threads];
+            for ( int t = 0; t < threads; t++ )
+            {
+                final int offset = t;
+                futures[t] = executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        Object myLock = value();
+                        for ( int i = 0; i < 20_000; i++ )
+                        {
+                            long resourceId = i * 4L + offset;
+                            assertNull( map.putIfAbsent( resourceId, myLock ) );
+                            assertSame( myLock, map.get( resourceId ) );
+                            assertSame( stableLock, map.get( stableResource ) );
+                            assertSame( myLock, map.remove( resourceId ) );
+                        }
+                        return null;
+                    }
+                } );
+            }
+
+            // THEN
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+            assertEquals( 1, map.size() );
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+    }
+
+    @Test
+    public void shouldNeverReadValueOlderThanOneAlreadyPutAcrossRehashes() throws Exception
+    {
+        // GIVEN a single stripe, which a writer keeps rehashing while it updates one key
+        final StripedLongObjectMap<Long> map = new StripedLongObjectMap<>( 1 );
+        final long key = -1;
+        final int updates = 100_000;
+        final AtomicLong published = new AtomicLong();
+        map.put( key, 0L );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            Future<?> writer = executor.submit( new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception
+                {
+                    for ( long i = 1; i <= updates; i++ )
+                    {
+                        map.put( i, i );
+                        map.put( key, i );
+                        published.set( i );
+                        map.remove( i );
+                    }
+                    return null;
+                }
+            } );
+
+            // WHEN/THEN
+            while ( published.get() < updates )
+            {
+                long before = published.get();
+                long read = map.get( key );
+                assertTrue( "Read " + read + " after " + before + " had been put", read >= before );
+            }
+            writer.get();
+        }
+        finally
+        {
+            executor.shutdown();
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+    }
+
+    private static Object value()
+    {
+        return new Object();
+    }
+}
@@ -25,6 +25,8 @@ import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.document.NumericField;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 
@@ -93,6 +95,23 @@ public enum BitmapDocumentFormat
         return new TermQuery( new Term( LABEL, Long.toString( labelId ) ) );
     }
 
+    /**
+     * @return a query matching the documents of the ranges in which all of the given labels have nodes.
+     */
+    public Query labelsQuery( int... labelIds )
+    {
+        if ( labelIds.length == 1 )
+        {
+            return labelQuery( labelIds[0] );
+        }
+        BooleanQuery query = new BooleanQuery();
+        for ( int labelId : labelIds )
+        {
+            query.add( labelQuery( labelId ), BooleanClause.Occur.MUST );
+        }
+        return query;
+    }
+
     public Query rangeQuery( long range )
     {
         return new TermQuery( new Term( RANGE, Long.toString( range) ) );
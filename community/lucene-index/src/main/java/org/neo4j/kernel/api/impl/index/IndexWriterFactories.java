@@ -21,9 +21,11 @@ package org.neo4j.kernel.api.impl.index;
 
 import java.io.IOException;
 
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Version;
 import org.neo4j.index.impl.lucene.LuceneDataSource;
@@ -54,4 +56,37 @@ public class IndexWriterFactories
             }
         };
     }
+
+    /**
+     * Writers of indexes which are read, through {@link LuceneSearcherManager near-real-time searchers}, while being
+     * written to. Rather than merging small segments as soon as there are two of them, segments of similar size are
+     * merged ten at a time, in the background, so that a steady load of small commits doesn't keep merging the same
+     * data over and over. The readers of segments are pooled, so reopening a searcher only opens the new segments.
+     */
+    public static LuceneIndexWriterFactory nearRealTime()
+    {
+        return new LuceneIndexWriterFactory()
+        {
+            @Override
+            public IndexWriter create( Directory directory ) throws IOException
+            {
+                IndexWriterConfig writerConfig = new IndexWriterConfig( Version.LUCENE_36, LuceneDataSource.KEYWORD_ANALYZER );
+                writerConfig.setMaxBufferedDocs( 100000 );
+                writerConfig.setIndexDeletionPolicy( new MultipleBackupDeletionPolicy() );
+                writerConfig.setTermIndexInterval( 14 );
+                writerConfig.setReaderPooling( true );
+                writerConfig.setMergeScheduler( new ConcurrentMergeScheduler() );
+
+                TieredMergePolicy mergePolicy = new TieredMergePolicy();
+                mergePolicy.setUseCompoundFile( true );
+                mergePolicy.setNoCFSRatio( 1.0 );
+                mergePolicy.setFloorSegmentMB( 0.1 );
+                mergePolicy.setSegmentsPerTier( 10 );
+                mergePolicy.setMaxMergeAtOnce( 10 );
+                writerConfig.setMergePolicy( mergePolicy );
+
+                return new IndexWriter( directory, writerConfig );
+            }
+        };
+    }
 }
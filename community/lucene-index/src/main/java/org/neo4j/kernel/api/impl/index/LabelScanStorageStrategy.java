@@ -35,6 +35,8 @@ public interface LabelScanStorageStrategy
 {
     PrimitiveLongIterator nodesWithLabel( IndexSearcher searcher, int labelId );
 
+    PrimitiveLongIterator nodesWithAllLabels( IndexSearcher searcher, int... labelIds );
+
     AllEntriesLabelScanReader newNodeLabelReader( SearcherManager searcher );
 
     Iterator<Long> labelsForNode( IndexSearcher searcher, long nodeId );
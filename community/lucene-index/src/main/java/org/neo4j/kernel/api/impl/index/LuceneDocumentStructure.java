@@ -24,11 +24,14 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.NumericUtils;
 
 import org.neo4j.kernel.api.index.ArrayEncoder;
+import org.neo4j.kernel.api.index.CompositeIndexValue;
 
 import static java.lang.String.format;
 
@@ -49,6 +52,32 @@ public class LuceneDocumentStructure
 
     enum ValueEncoding
     {
+        Composite
+        {
+            @Override
+            String key()
+            {
+                return "composite";
+            }
+
+            @Override
+            boolean canEncode( Object value )
+            {
+                return value instanceof CompositeIndexValue;
+            }
+
+            @Override
+            Fieldable encodeField( Object value )
+            {
+                return field( key(), ((CompositeIndexValue) value).encode() );
+            }
+
+            @Override
+            Query encodeQuery( Object value )
+            {
+                return new TermQuery( new Term( key(), ((CompositeIndexValue) value).encode() ) );
+            }
+        },
         Number
         {
             @Override
@@ -209,6 +238,29 @@ public class LuceneDocumentStructure
         throw new IllegalArgumentException( format( "Unable to create newQuery for %s", value ) );
     }
 
+    /**
+     * Numbers are indexed as prefix coded doubles, which sort like the numbers they encode. A {@code null} bound
+     * leaves that end of the range open.
+     */
+    public Query newRangeSeekByNumberQuery( Number lower, boolean includeLower, Number upper, boolean includeUpper )
+    {
+        return new TermRangeQuery( ValueEncoding.Number.key(),
+                lower == null ? null : NumericUtils.doubleToPrefixCoded( lower.doubleValue() ),
+                upper == null ? null : NumericUtils.doubleToPrefixCoded( upper.doubleValue() ),
+                lower != null && includeLower, upper != null && includeUpper );
+    }
+
+    public Query newRangeSeekByStringQuery( String lower, boolean includeLower, String upper, boolean includeUpper )
+    {
+        return new TermRangeQuery( ValueEncoding.String.key(), lower, upper,
+                lower != null && includeLower, upper != null && includeUpper );
+    }
+
+    public Query newRangeSeekByPrefixQuery( String prefix )
+    {
+        return new PrefixQuery( new Term( ValueEncoding.String.key(), prefix ) );
+    }
+
     public Term newQueryForChangeOrRemove( long nodeId )
     {
         return new Term( NODE_ID_KEY, "" + nodeId );
@@ -22,8 +22,6 @@ package org.neo4j.kernel.api.impl.index;
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.SearcherFactory;
-import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
@@ -52,7 +50,7 @@ import static org.neo4j.kernel.api.impl.index.DirectorySupport.deleteDirectoryCo
 abstract class LuceneIndexAccessor implements IndexAccessor
 {
     protected final LuceneDocumentStructure documentStructure;
-    protected final SearcherManager searcherManager;
+    protected final LuceneSearcherManager searcherManager;
     protected final IndexWriter writer;
 
     private final IndexWriterStatus writerStatus;
@@ -63,7 +61,7 @@ abstract class LuceneIndexAccessor implements IndexAccessor
 
     LuceneIndexAccessor( LuceneDocumentStructure documentStructure, LuceneIndexWriterFactory indexWriterFactory,
                          IndexWriterStatus writerStatus, DirectoryFactory dirFactory, File dirFile,
-                         int bufferSizeLimit ) throws IOException
+                         int bufferSizeLimit, int refreshChanges, long refreshInterval ) throws IOException
     {
         this.documentStructure = documentStructure;
         this.dirFile = dirFile;
@@ -71,7 +69,7 @@ abstract class LuceneIndexAccessor implements IndexAccessor
         this.dir = dirFactory.open( dirFile );
         this.writer = indexWriterFactory.create( dir );
         this.writerStatus = writerStatus;
-        this.searcherManager = new SearcherManager( writer, true, new SearcherFactory() );
+        this.searcherManager = new LuceneSearcherManager( writer, refreshChanges, refreshInterval );
     }
 
     @Override
@@ -128,7 +126,15 @@ abstract class LuceneIndexAccessor implements IndexAccessor
     @Override
     public IndexReader newReader()
     {
-        final IndexSearcher searcher = searcherManager.acquire();
+        final IndexSearcher searcher;
+        try
+        {
+            searcher = searcherManager.acquire();
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
         final TaskControl token = taskCoordinator.newInstance();
         final Closeable closeable = new Closeable()
         {
@@ -150,7 +156,15 @@ abstract class LuceneIndexAccessor implements IndexAccessor
     @Override
     public BoundedIterable<Long> newAllEntriesReader()
     {
-        return new LuceneAllEntriesIndexAccessorReader( new LuceneAllDocumentsReader( searcherManager ), documentStructure );
+        try
+        {
+            return new LuceneAllEntriesIndexAccessorReader(
+                    new LuceneAllDocumentsReader( searcherManager.searchers() ), documentStructure );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
     }
 
     @Override
@@ -203,6 +217,7 @@ abstract class LuceneIndexAccessor implements IndexAccessor
     private class LuceneIndexUpdater implements IndexUpdater
     {
         private final boolean inRecovery;
+        private int changes;
 
         private LuceneIndexUpdater( boolean inRecovery )
         {
@@ -212,6 +227,7 @@ abstract class LuceneIndexAccessor implements IndexAccessor
         @Override
         public void process( NodePropertyUpdate update ) throws IOException
         {
+            changes++;
             switch ( update.getUpdateMode() )
             {
                 case ADDED:
@@ -236,11 +252,11 @@ abstract class LuceneIndexAccessor implements IndexAccessor
         }
 
         @Override
-        public synchronized void close() throws IOException, IndexEntryConflictException
+        public void close() throws IOException, IndexEntryConflictException
         {
-            // This method should be synchronized because we need every thread to perform actual refresh
-            // and not just skip it because some other refresh is in progress
-            searcherManager.maybeRefresh();
+            // The searcher is not necessarily reopened here, but readers acquired from now on will see the changes
+            searcherManager.committed( changes );
+            changes = 0;
         }
 
         @Override
@@ -249,6 +265,7 @@ abstract class LuceneIndexAccessor implements IndexAccessor
             for ( long nodeId : nodeIds )
             {
                 LuceneIndexAccessor.this.remove( nodeId );
+                changes++;
             }
         }
     }
@@ -80,6 +80,6 @@ public class LuceneLabelScanStoreExtension extends KernelExtensionFactory<Lucene
                 fullStoreLabelUpdateStream( dependencies.getNeoStoreProvider() ),
                 monitor != null ? monitor : loggerMonitor( dependencies.getLogging() ) );
 
-        return new LabelScanStoreProvider( scanStore, priority );
+        return new LabelScanStoreProvider( "lucene", scanStore, priority );
     }
 }
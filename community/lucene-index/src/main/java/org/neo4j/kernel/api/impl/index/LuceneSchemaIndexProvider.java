@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.api.index.IndexAccessor;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.IndexDescriptor;
@@ -40,6 +41,7 @@ import org.neo4j.kernel.api.index.util.FolderLayout;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
 
+import static org.neo4j.kernel.api.impl.index.IndexWriterFactories.nearRealTime;
 import static org.neo4j.kernel.api.impl.index.IndexWriterFactories.standard;
 
 public class LuceneSchemaIndexProvider extends SchemaIndexProvider
@@ -51,6 +53,8 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
     private final FailureStorage failureStorage;
     private final FolderLayout folderLayout;
     private final Map<Long, String> failures = new HashMap<>();
+    private final int refreshChanges;
+    private final long refreshInterval;
 
     public LuceneSchemaIndexProvider( DirectoryFactory directoryFactory, Config config )
     {
@@ -59,6 +63,8 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
         this.rootDirectory = getRootDirectory( config, LuceneSchemaIndexProviderFactory.KEY );
         this.folderLayout = new FolderLayout( rootDirectory );
         this.failureStorage = new FailureStorage( folderLayout );
+        this.refreshChanges = config.get( GraphDatabaseSettings.lucene_schema_index_refresh_changes );
+        this.refreshInterval = config.get( GraphDatabaseSettings.lucene_schema_index_refresh_interval );
     }
 
     @Override
@@ -86,13 +92,14 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
     {
         if ( config.isUnique() )
         {
-            return new UniqueLuceneIndexAccessor( documentStructure, standard(), writerStatus, directoryFactory,
-                    folderLayout.getFolder( indexId ) );
+            return new UniqueLuceneIndexAccessor( documentStructure, nearRealTime(), writerStatus, directoryFactory,
+                    folderLayout.getFolder( indexId ), refreshChanges, refreshInterval );
         }
         else
         {
-            return new NonUniqueLuceneIndexAccessor( documentStructure, standard(), writerStatus, directoryFactory,
-                    folderLayout.getFolder( indexId ), samplingConfig.bufferSize() );
+            return new NonUniqueLuceneIndexAccessor( documentStructure, nearRealTime(), writerStatus,
+                    directoryFactory, folderLayout.getFolder( indexId ), samplingConfig.bufferSize(), refreshChanges,
+                    refreshInterval );
         }
     }
 
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.index;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.helpers.Clock;
+
+/**
+ * Hands out near-real-time {@link IndexSearcher searchers} of an index which is written to while it is being read,
+ * all readers sharing the same searcher for as long as the index has not changed.
+ *
+ * Reopening the searcher gets more expensive the more segments the index has, so rather than reopening it every
+ * time changes are committed, it is reopened when it is acquired after changes have been committed, or by the
+ * committer once enough changes, or changes over a long enough time, have been committed since it was last reopened.
+ * One reopen thereby covers all changes committed in between, while every searcher acquired still sees all changes
+ * committed before it.
+ */
+class LuceneSearcherManager implements Closeable
+{
+    private final SearcherManager searcherManager;
+    private final int refreshChanges;
+    private final long refreshInterval;
+    private final Clock clock;
+    private final AtomicLong committedChanges = new AtomicLong();
+    private volatile long refreshedChanges;
+    private volatile long refreshedTime;
+
+    /**
+     * @param refreshChanges the number of committed changes after which the committer reopens the searcher.
+     * @param refreshInterval the time in milliseconds after which the committer reopens the searcher.
+     */
+    LuceneSearcherManager( IndexWriter writer, int refreshChanges, long refreshInterval ) throws IOException
+    {
+        this( writer, refreshChanges, refreshInterval, Clock.SYSTEM_CLOCK, new SearcherFactory() );
+    }
+
+    LuceneSearcherManager( IndexWriter writer, int refreshChanges, long refreshInterval, Clock clock,
+                           SearcherFactory searcherFactory ) throws IOException
+    {
+        this.searcherManager = new SearcherManager( writer, true, searcherFactory );
+        this.refreshChanges = refreshChanges;
+        this.refreshInterval = refreshInterval;
+        this.clock = clock;
+        this.refreshedTime = clock.currentTimeMillis();
+    }
+
+    /**
+     * Records that the given number of changes have been committed to the writer, reopening the searcher if enough
+     * changes, or changes over a long enough time, have been committed since it was last reopened.
+     */
+    void committed( int changes ) throws IOException
+    {
+        if ( changes == 0 )
+        {
+            return;
+        }
+        long pendingChanges = committedChanges.addAndGet( changes ) - refreshedChanges;
+        if ( pendingChanges >= refreshChanges || clock.currentTimeMillis() - refreshedTime >= refreshInterval )
+        {
+            refresh();
+        }
+    }
+
+    /**
+     * @return a searcher which sees all changes committed so far, to be {@link #release(IndexSearcher) released}
+     * when done with.
+     */
+    IndexSearcher acquire() throws IOException
+    {
+        refreshIfChanged();
+        return searcherManager.acquire();
+    }
+
+    void release( IndexSearcher searcher ) throws IOException
+    {
+        searcherManager.release( searcher );
+    }
+
+    /**
+     * @return the underlying searchers, which see all changes committed so far, for readers which acquire and
+     * release their searchers themselves.
+     */
+    ReferenceManager<IndexSearcher> searchers() throws IOException
+    {
+        refreshIfChanged();
+        return searcherManager;
+    }
+
+    private void refreshIfChanged() throws IOException
+    {
+        if ( refreshedChanges < committedChanges.get() )
+        {
+            refresh();
+        }
+    }
+
+    private synchronized void refresh() throws IOException
+    {
+        long changes = committedChanges.get();
+        if ( refreshedChanges < changes )
+        {
+            // Synchronized, so that the searcher is actually reopened, rather than skipped because another thread is
+            // reopening it, and a refresh which already covers the changes of the caller is not repeated
+            searcherManager.maybeRefresh();
+            refreshedChanges = changes;
+            refreshedTime = clock.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        searcherManager.close();
+    }
+}
@@ -88,6 +88,16 @@ public class NodeRangeDocumentLabelScanStorageStrategy implements LabelScanStora
                 new PageOfRangesIterator( format, searcher, RANGES_PER_PAGE, format.labelQuery( labelId ), labelId ) );
     }
 
+    /**
+     * Only the documents of ranges where all of the labels are present are read, and their bitmaps are intersected.
+     */
+    @Override
+    public PrimitiveLongIterator nodesWithAllLabels( IndexSearcher searcher, int... labelIds )
+    {
+        return concat( new PageOfRangesIterator( format, searcher, RANGES_PER_PAGE, format.labelsQuery( labelIds ),
+                labelIds ) );
+    }
+
     @Override
     public AllEntriesLabelScanReader newNodeLabelReader( SearcherManager searcherManager )
     {
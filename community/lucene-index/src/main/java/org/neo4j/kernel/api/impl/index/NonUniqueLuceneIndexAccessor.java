@@ -26,9 +26,11 @@ class NonUniqueLuceneIndexAccessor extends LuceneIndexAccessor
 {
     NonUniqueLuceneIndexAccessor( LuceneDocumentStructure documentStructure,
                                   LuceneIndexWriterFactory indexWriterFactory, IndexWriterStatus writerStatus,
-                                  DirectoryFactory dirFactory, File dirFile, int bufferSizeLimit ) throws IOException
+                                  DirectoryFactory dirFactory, File dirFile, int bufferSizeLimit, int refreshChanges,
+                                  long refreshInterval ) throws IOException
     {
-        super( documentStructure, indexWriterFactory, writerStatus, dirFactory, dirFile, bufferSizeLimit );
+        super( documentStructure, indexWriterFactory, writerStatus, dirFactory, dirFile, bufferSizeLimit,
+                refreshChanges, refreshInterval );
     }
 
 }
@@ -38,9 +38,11 @@ class UniqueLuceneIndexAccessor extends LuceneIndexAccessor
 {
     public UniqueLuceneIndexAccessor( LuceneDocumentStructure documentStructure,
                                       LuceneIndexWriterFactory indexWriterFactory, IndexWriterStatus writerStatus,
-                                      DirectoryFactory dirFactory, File dirFile ) throws IOException
+                                      DirectoryFactory dirFactory, File dirFile, int refreshChanges,
+                                      long refreshInterval ) throws IOException
     {
-        super( documentStructure, indexWriterFactory, writerStatus, dirFactory, dirFile, -1 /* unused */ );
+        super( documentStructure, indexWriterFactory, writerStatus, dirFactory, dirFile, -1 /* unused */,
+                refreshChanges, refreshInterval );
     }
 
     @Override
@@ -20,6 +20,9 @@
 package org.neo4j.kernel.api.impl.index;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
 import static org.neo4j.kernel.api.impl.index.LuceneDocumentStructure.NODE_ID_KEY;
 import static org.neo4j.kernel.api.impl.index.LuceneDocumentStructure.ValueEncoding.Array;
 import static org.neo4j.kernel.api.impl.index.LuceneDocumentStructure.ValueEncoding.Bool;
@@ -28,7 +31,9 @@ import static org.neo4j.kernel.api.impl.index.LuceneDocumentStructure.ValueEncod
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.NumericUtils;
 import org.junit.Test;
 
@@ -124,4 +129,56 @@ public class LuceneDocumentStructureTest
         // then
         assertEquals( "D1.0|2.0|3.0|", query.getTerm().text() );
     }
+
+    @Test
+    public void shouldBuildRangeSeekByNumberQueryForStrictBounds() throws Exception
+    {
+        // given
+        TermRangeQuery query = (TermRangeQuery) documentStructure.newRangeSeekByNumberQuery( 12, false, 23.5, true );
+
+        // then
+        assertEquals( Number.key(), query.getField() );
+        assertEquals( NumericUtils.doubleToPrefixCoded( 12.0 ), query.getLowerTerm() );
+        assertEquals( NumericUtils.doubleToPrefixCoded( 23.5 ), query.getUpperTerm() );
+        assertFalse( query.includesLower() );
+        assertTrue( query.includesUpper() );
+    }
+
+    @Test
+    public void shouldBuildRangeSeekByNumberQueryWithOpenEnds() throws Exception
+    {
+        // given
+        TermRangeQuery query = (TermRangeQuery) documentStructure.newRangeSeekByNumberQuery( null, true, 7L, true );
+
+        // then
+        assertNull( query.getLowerTerm() );
+        assertFalse( query.includesLower() );
+        assertEquals( NumericUtils.doubleToPrefixCoded( 7.0 ), query.getUpperTerm() );
+        assertTrue( query.includesUpper() );
+    }
+
+    @Test
+    public void shouldBuildRangeSeekByStringQuery() throws Exception
+    {
+        // given
+        TermRangeQuery query = (TermRangeQuery) documentStructure.newRangeSeekByStringQuery( "apa", true, null, true );
+
+        // then
+        assertEquals( String.key(), query.getField() );
+        assertEquals( "apa", query.getLowerTerm() );
+        assertTrue( query.includesLower() );
+        assertNull( query.getUpperTerm() );
+        assertFalse( query.includesUpper() );
+    }
+
+    @Test
+    public void shouldBuildRangeSeekByPrefixQuery() throws Exception
+    {
+        // given
+        PrefixQuery query = (PrefixQuery) documentStructure.newRangeSeekByPrefixQuery( "Prefix" );
+
+        // then
+        assertEquals( String.key(), query.getPrefix().field() );
+        assertEquals( "Prefix", query.getPrefix().text() );
+    }
 }
@@ -197,7 +197,7 @@ public class LuceneIndexAccessorTest
                     {
                         return new NonUniqueLuceneIndexAccessor( documentLogic, standard(), writerLogic, dirFactory,
                                 dir,
-                                100_000 );
+                                100_000, 10_000, 1_000 );
                     }
 
                     @Override
@@ -212,7 +212,8 @@ public class LuceneIndexAccessorTest
                     public LuceneIndexAccessor apply( DirectoryFactory dirFactory )
                             throws IOException
                     {
-                        return new UniqueLuceneIndexAccessor( documentLogic, standard(), writerLogic, dirFactory, dir );
+                        return new UniqueLuceneIndexAccessor( documentLogic, standard(), writerLogic, dirFactory, dir,
+                                10_000, 1_000 );
                     }
 
                     @Override
@@ -99,7 +99,7 @@ public class LuceneIndexIT
     {
         dirFactory = DirectoryFactory.PERSISTENT;
         accessor = new NonUniqueLuceneIndexAccessor(
-                documentLogic, standard(), writerLogic, dirFactory, testDir.directory(), 100_000
+                documentLogic, standard(), writerLogic, dirFactory, testDir.directory(), 100_000, 10_000, 1_000
         );
     }
 
@@ -366,6 +366,31 @@ public class LuceneLabelScanStoreTest
         reader.close();
     }
 
+    @Test
+    public void shouldFindNodesWithAllLabels() throws Exception
+    {
+        // GIVEN
+        int labelId1 = 1, labelId2 = 2, labelId3 = 3;
+        start();
+        write( iterator(
+                labelChanges( 1, NO_LABELS, new long[]{labelId1, labelId2} ),
+                labelChanges( 2, NO_LABELS, new long[]{labelId1} ),
+                labelChanges( 100, NO_LABELS, new long[]{labelId2, labelId3} ),
+                labelChanges( 101, NO_LABELS, new long[]{labelId1, labelId2, labelId3} ),
+                labelChanges( 200, NO_LABELS, new long[]{labelId2} ) ) );
+
+        // WHEN
+        LabelScanReader reader = store.newReader();
+
+        // THEN
+        assertEquals( asSet( 1L, 101L ), asSet( reader.nodesWithAllLabels( labelId1, labelId2 ) ) );
+        assertEquals( asSet( 100L, 101L ), asSet( reader.nodesWithAllLabels( labelId2, labelId3 ) ) );
+        assertEquals( asSet( 101L ), asSet( reader.nodesWithAllLabels( labelId3, labelId1, labelId2 ) ) );
+        assertEquals( asSet( 1L, 2L, 101L ), asSet( reader.nodesWithAllLabels( labelId1 ) ) );
+        assertTrue( asSet( reader.nodesWithAllLabels( labelId1, 4 ) ).isEmpty() );
+        reader.close();
+    }
+
     private Set<Long> gaps( Set<Long> ids, int expectedCount )
     {
         Set<Long> gaps = new HashSet<>();
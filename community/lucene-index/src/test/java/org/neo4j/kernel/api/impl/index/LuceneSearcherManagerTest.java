@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.index;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import org.neo4j.helpers.FakeClock;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.neo4j.kernel.api.impl.index.IndexWriterFactories.nearRealTime;
+
+public class LuceneSearcherManagerTest
+{
+    @Test
+    public void shouldNotReopenSearcherForEveryCommit() throws Exception
+    {
+        // WHEN
+        addAndCommit( 1 );
+        addAndCommit( 2 );
+        addAndCommit( 3 );
+
+        // THEN
+        assertEquals( 1, searcherFactory.opened );
+    }
+
+    @Test
+    public void shouldReopenSearcherOnceForAllChangesCommittedBeforeItIsAcquired() throws Exception
+    {
+        // GIVEN
+        addAndCommit( 1 );
+        addAndCommit( 2 );
+        addAndCommit( 3 );
+
+        // WHEN
+        IndexSearcher searcher = searcherManager.acquire();
+
+        // THEN
+        assertEquals( 3, searcher.getIndexReader().numDocs() );
+        assertEquals( 2, searcherFactory.opened );
+        searcherManager.release( searcher );
+    }
+
+    @Test
+    public void shouldShareSearcherBetweenReadersWhileNothingIsCommitted() throws Exception
+    {
+        // GIVEN
+        addAndCommit( 1 );
+        IndexSearcher first = searcherManager.acquire();
+
+        // WHEN
+        IndexSearcher second = searcherManager.acquire();
+
+        // THEN
+        assertSame( first, second );
+        assertEquals( 2, searcherFactory.opened );
+        searcherManager.release( first );
+        searcherManager.release( second );
+    }
+
+    @Test
+    public void shouldNotLetLaterCommitsChangeAcquiredSearcher() throws Exception
+    {
+        // GIVEN
+        addAndCommit( 1 );
+        IndexSearcher searcher = searcherManager.acquire();
+
+        // WHEN
+        addAndCommit( 2 );
+
+        // THEN
+        assertEquals( 1, searcher.getIndexReader().numDocs() );
+        searcherManager.release( searcher );
+    }
+
+    @Test
+    public void shouldReopenSearcherWhenEnoughChangesHaveBeenCommitted() throws Exception
+    {
+        // WHEN
+        for ( int i = 0; i < REFRESH_CHANGES; i++ )
+        {
+            addAndCommit( i );
+        }
+
+        // THEN
+        assertEquals( 2, searcherFactory.opened );
+    }
+
+    @Test
+    public void shouldReopenSearcherWhenChangesHaveBeenCommittedOverTheRefreshInterval() throws Exception
+    {
+        // GIVEN
+        addAndCommit( 1 );
+
+        // WHEN
+        clock.forward( 1, SECONDS );
+        addAndCommit( 2 );
+
+        // THEN
+        assertEquals( 2, searcherFactory.opened );
+    }
+
+    private static final int REFRESH_CHANGES = 10;
+
+    private final FakeClock clock = new FakeClock();
+    private final CountingSearcherFactory searcherFactory = new CountingSearcherFactory();
+    private final LuceneDocumentStructure documentStructure = new LuceneDocumentStructure();
+    private RAMDirectory directory;
+    private IndexWriter writer;
+    private LuceneSearcherManager searcherManager;
+
+    @Before
+    public void before() throws IOException
+    {
+        directory = new RAMDirectory();
+        writer = nearRealTime().create( directory );
+        searcherManager = new LuceneSearcherManager( writer, REFRESH_CHANGES, SECONDS.toMillis( 1 ), clock,
+                searcherFactory );
+    }
+
+    @After
+    public void after() throws IOException
+    {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private void addAndCommit( long nodeId ) throws IOException
+    {
+        writer.addDocument( documentStructure.newDocumentRepresentingProperty(
+                nodeId, documentStructure.encodeAsFieldable( "value" ) ) );
+        searcherManager.committed( 1 );
+    }
+
+    private static class CountingSearcherFactory extends SearcherFactory
+    {
+        private int opened;
+
+        @Override
+        public IndexSearcher newSearcher( IndexReader reader ) throws IOException
+        {
+            opened++;
+            return super.newSearcher( reader );
+        }
+    }
+}
@@ -120,7 +120,7 @@ public class UniqueLuceneIndexAccessorTest
     private UniqueLuceneIndexAccessor createAccessor() throws IOException
     {
         return new UniqueLuceneIndexAccessor( new LuceneDocumentStructure(), standard(), new IndexWriterStatus(),
-                directoryFactory, indexDirectory );
+                directoryFactory, indexDirectory, 10_000, 1_000 );
     }
 
     private NodePropertyUpdate add( long nodeId, Object propertyValue )
@@ -43,14 +43,26 @@ public class OutputFormat
 {
     private static final String UTF8 = "UTF-8";
     private final RepresentationFormat format;
+    private final StreamingFormat streamingFormat;
     private final ExtensionInjector extensions;
     private final URI baseUri;
 
     private RepresentationWriteHandler representationWriteHandler = RepresentationWriteHandler.DO_NOTHING;
 
     public OutputFormat( RepresentationFormat format, URI baseUri, ExtensionInjector extensions )
+    {
+        this( format, format instanceof StreamingFormat ? (StreamingFormat) format : null, baseUri, extensions );
+    }
+
+    /**
+     * @param streamingFormat writes what the format does while serializing, for {@link #okStreamed(Representation)},
+     * or null if the format can only be assembled in memory.
+     */
+    public OutputFormat( RepresentationFormat format, StreamingFormat streamingFormat, URI baseUri,
+            ExtensionInjector extensions )
     {
         this.format = format;
+        this.streamingFormat = streamingFormat;
         this.baseUri = baseUri;
         this.extensions = extensions;
     }
@@ -73,6 +85,28 @@ public class OutputFormat
         return response( Response.ok(), representation );
     }
 
+    /**
+     * Like {@link #ok(Representation)}, but writes the representation to the client as it is serialized whenever the
+     * format allows, rather than assembling all of it in memory first. For representations that may be large, such
+     * as query results.
+     */
+    public final Response okStreamed( Representation representation )
+    {
+        if ( streamingFormat == null )
+        {
+            return ok( representation );
+        }
+        if ( representation.isEmpty() )
+        {
+            return noContent();
+        }
+        representationWriteHandler.onRepresentationStartWriting();
+        return Response.ok()
+                .entity( stream( representation, streamingFormat, false ) )
+                .type( HttpHeaderUtils.mediaTypeWithCharsetUtf8( getMediaType() ) )
+                .build();
+    }
+
     public final <REPR extends Representation & EntityRepresentation> Response okIncludeLocation( REPR representation ) throws BadInputException
     {
         if ( representation.isEmpty() )
@@ -58,7 +58,21 @@ public final class RepresentationFormatRepository
         {
             format = useDefault( acceptable );
         }
-        return new OutputFormat( format, baseUri, getExtensionManager() );
+        return new OutputFormat( format, streamingFormatFor( format ), baseUri, getExtensionManager() );
+    }
+
+    // Plain JSON is what the streaming format writes, so it can be streamed when asked for without the stream header
+    private StreamingFormat streamingFormatFor( RepresentationFormat format )
+    {
+        if ( format instanceof StreamingFormat )
+        {
+            return (StreamingFormat) format;
+        }
+        if ( format instanceof JsonFormat )
+        {
+            return (StreamingFormat) formats.get( StreamingFormat.MEDIA_TYPE );
+        }
+        return null;
     }
 
     private PluginManager getExtensionManager()
@@ -123,7 +123,11 @@ public class CypherService
                 handler.setTransaction( database.beginTx() );
             }
 
-            return output.ok( new CypherResultRepresentation( result, includeStats, includePlan ) );
+            // Once streaming has begun the status can no longer change, so queries failing on their first row are
+            // answered with a bad request here. Failures on later rows end the response and roll back the transaction.
+            prefetchFirstRow( result );
+
+            return output.okStreamed( new CypherResultRepresentation( result, includeStats, includePlan ) );
         }
         catch ( Throwable e )
         {
@@ -136,4 +140,17 @@ public class CypherService
             }
         }
     }
+
+    private void prefetchFirstRow( Result result ) throws BadInputException
+    {
+        try
+        {
+            result.hasNext();
+        }
+        catch ( RuntimeException e )
+        {
+            // Wrapped like the failures of the rows in CypherResultRepresentation, for the same error response
+            throw new BadInputException( e );
+        }
+    }
 }
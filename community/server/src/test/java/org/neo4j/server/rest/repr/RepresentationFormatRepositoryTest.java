@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
@@ -34,11 +35,14 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import org.neo4j.server.web.HttpHeaderUtils;
+
 import static java.util.Arrays.asList;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.isA;
@@ -112,6 +116,30 @@ public class RepresentationFormatRepositoryTest
         assertEquals( "{\"a\":\"test\"}", baos.toString() );
     }
 
+    @Test
+    public void canStreamJsonOutputWithoutStreamingHeader() throws Exception
+    {
+        OutputFormat format = repository.outputFormat( asList( MediaType.APPLICATION_JSON_TYPE ), null, null );
+
+        Response response = format.okStreamed( new MapRepresentation( map( "a", "test" ) ) );
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write( baos );
+        assertEquals( "{\"a\":\"test\"}", baos.toString() );
+        assertEquals( HttpHeaderUtils.mediaTypeWithCharsetUtf8( MediaType.APPLICATION_JSON_TYPE ),
+                response.getMetadata().getFirst( HttpHeaders.CONTENT_TYPE ) );
+    }
+
+    @Test
+    public void assemblesOutputThatCannotBeStreamed() throws Exception
+    {
+        OutputFormat format = repository.outputFormat( asList( MediaType.TEXT_HTML_TYPE ), null, null );
+
+        Response response = format.okStreamed( new MapRepresentation( map( "a", "test" ) ) );
+
+        assertTrue( response.getEntity() instanceof byte[] );
+    }
+
     private Response.ResponseBuilder mockResponsBuilder( Response response, final AtomicReference<StreamingOutput> ref )
     {
         final Response.ResponseBuilder responseBuilder = mock( Response.ResponseBuilder.class );
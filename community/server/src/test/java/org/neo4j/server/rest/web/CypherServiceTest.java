@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.server.rest.web;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.sun.jersey.api.core.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.neo4j.cypher.javacompat.internal.ServerExecutionEngine;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionType;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.query.QuerySession;
+import org.neo4j.server.database.CypherExecutor;
+import org.neo4j.server.rest.domain.JsonHelper;
+import org.neo4j.server.rest.repr.OutputFormat;
+import org.neo4j.server.rest.repr.formats.JsonFormat;
+import org.neo4j.server.rest.repr.formats.StreamingJsonFormat;
+import org.neo4j.server.rest.transactional.CommitOnSuccessfulStatusCodeRepresentationWriteHandler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CypherServiceTest
+{
+    private static final String QUERY = "{\"query\": \"UNWIND [1, 0] AS x RETURN 1/x AS y\"}";
+
+    private final Transaction transaction = mock( Transaction.class );
+    private final Result result = mock( Result.class );
+    private CypherService service;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ServerExecutionEngine engine = mock( ServerExecutionEngine.class );
+        when( engine.executeQuery( anyString(), anyMapOf( String.class, Object.class ), any( QuerySession.class ) ) )
+                .thenReturn( result );
+        CypherExecutor executor = mock( CypherExecutor.class );
+        when( executor.getExecutionEngine() ).thenReturn( engine );
+
+        when( result.columns() ).thenReturn( Arrays.asList( "y" ) );
+        when( result.getQueryExecutionType() )
+                .thenReturn( QueryExecutionType.query( QueryExecutionType.QueryType.READ_ONLY ) );
+
+        OutputFormat output = new OutputFormat( new JsonFormat(), new StreamingJsonFormat(),
+                new URI( "http://localhost/" ), null );
+        output.setRepresentationWriteHandler(
+                new CommitOnSuccessfulStatusCodeRepresentationWriteHandler( mock( HttpContext.class ), transaction ) );
+        service = new CypherService( executor, new JsonFormat(), output, mock( GraphDatabaseService.class ) );
+    }
+
+    @Test
+    public void shouldAnswerWithBadRequestWhenTheFirstRowFails() throws Exception
+    {
+        // given
+        when( result.hasNext() ).thenThrow( new ArithmeticException( "/ by zero" ) );
+
+        // when
+        Response response = service.cypher( QUERY, mock( HttpServletRequest.class ), false, false, false );
+
+        // then
+        assertEquals( 400, response.getStatus() );
+        Map<String, Object> error = JsonHelper.jsonToMap( new String( (byte[]) response.getEntity(), "UTF-8" ) );
+        assertTrue( error.containsKey( "message" ) );
+        assertTrue( error.containsKey( "exception" ) );
+        assertTrue( error.containsKey( "stacktrace" ) );
+    }
+
+    @Test
+    public void shouldEndTheStreamAndRollBackWhenALaterRowFails() throws Exception
+    {
+        // given
+        final Iterator<Map<String, Object>> rows =
+                Collections.<Map<String, Object>>singletonList( Collections.<String, Object>singletonMap( "y", 1 ) )
+                        .iterator();
+        when( result.hasNext() ).thenAnswer( new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer( InvocationOnMock invocation ) throws Throwable
+            {
+                if ( rows.hasNext() )
+                {
+                    return true;
+                }
+                throw new ArithmeticException( "/ by zero" );
+            }
+        } );
+        when( result.next() ).thenAnswer( new Answer<Map<String, Object>>()
+        {
+            @Override
+            public Map<String, Object> answer( InvocationOnMock invocation ) throws Throwable
+            {
+                return rows.next();
+            }
+        } );
+
+        // when
+        Response response = service.cypher( QUERY, mock( HttpServletRequest.class ), false, false, false );
+
+        // then
+        assertEquals( 200, response.getStatus() );
+        try
+        {
+            ((StreamingOutput) response.getEntity()).write( new ByteArrayOutputStream() );
+            fail( "the failure of the second row should have ended the stream" );
+        }
+        catch ( WebApplicationException e )
+        {
+            assertEquals( 400, e.getResponse().getStatus() );
+        }
+        assertFalse( rows.hasNext() );
+        verify( transaction, never() ).success();
+        verify( transaction ).close();
+    }
+}
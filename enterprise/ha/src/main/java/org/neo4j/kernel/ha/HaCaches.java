@@ -55,6 +55,7 @@ public class HaCaches implements Caches
     {
         if ( !cacheConfigSame( newType, config ) )
         {
+            close();
             node = newType.newNodeCache( logger, config, monitors );
             relationship = newType.newRelationshipCache( logger, config, monitors );
         }
@@ -119,4 +120,17 @@ public class HaCaches implements Caches
     {
         return type;
     }
+
+    @Override
+    public void close()
+    {
+        if ( node != null )
+        {
+            node.close();
+        }
+        if ( relationship != null )
+        {
+            relationship.close();
+        }
+    }
 }
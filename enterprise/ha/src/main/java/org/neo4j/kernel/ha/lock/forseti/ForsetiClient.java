@@ -19,8 +19,6 @@
  */
 package org.neo4j.kernel.ha.lock.forseti;
 
-import java.util.concurrent.ConcurrentMap;
-
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.pool.LinkedQueuePool;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
@@ -30,6 +28,7 @@ import org.neo4j.kernel.DeadlockDetectedException;
 import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
+import org.neo4j.kernel.impl.util.collection.StripedLongObjectMap;
 import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
 
 import static java.lang.String.format;
@@ -48,7 +47,7 @@ public class ForsetiClient implements Locks.Client
     private final int myId;
 
     /** resourceType -> lock map. These are the global lock maps, shared across all clients. */
-    private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+    private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
 
     /** resourceType -> wait strategy */
     private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
@@ -56,6 +55,13 @@ public class ForsetiClient implements Locks.Client
     /** Handle to return client to pool when closed. */
     private final LinkedQueuePool<ForsetiClient> clientPool;
 
+    /** Told about waits and deadlocks, never called when a lock is taken without waiting. */
+    private final Locks.Monitor monitor;
+
+    /** Whether this client is waiting for a lock, and if so, since when. */
+    private boolean waiting;
+    private long waitStartNanos;
+
     /**
      * The client uses this to track which locks it holds. It is solely an optimization to ensure we don't need to
      * coordinate if we grab the same lock multiple times.
@@ -77,14 +83,16 @@ public class ForsetiClient implements Locks.Client
     private final ExclusiveLock myExclusiveLock = new ExclusiveLock(this);
 
     public ForsetiClient( int id,
-                          ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps,
+                          StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps,
                           WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
-                          LinkedQueuePool<ForsetiClient> clientPool )
+                          LinkedQueuePool<ForsetiClient> clientPool,
+                          Locks.Monitor monitor )
     {
         this.myId                = id;
         this.lockMaps            = lockMaps;
         this.waitStrategies      = waitStrategies;
         this.clientPool          = clientPool;
+        this.monitor             = monitor;
         this.sharedLockCounts    = new PrimitiveLongIntMap[lockMaps.length];
         this.exclusiveLockCounts = new PrimitiveLongIntMap[lockMaps.length];
 
@@ -99,7 +107,7 @@ public class ForsetiClient implements Locks.Client
     public void acquireShared( Locks.ResourceType resourceType, long... resourceIds ) throws AcquireLockTimeoutException
     {
         // Grab the global lock map we will be using
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
 
         // And grab our local lock maps
         PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
@@ -175,15 +183,13 @@ public class ForsetiClient implements Locks.Client
                     throw new UnsupportedOperationException( "Unknown lock type: " + existingLock );
                 }
 
-                // Apply the designated wait strategy
-                waitStrategies[resourceType.typeId()].apply( tries++ );
-
-                // And take note of who we are waiting for. This is used for deadlock detection.
-                markAsWaitingFor( existingLock, resourceType, resourceId );
+                // Apply the designated wait strategy, and take note of who we are waiting for. This is used for
+                // deadlock detection.
+                waitFor( existingLock, resourceType, resourceId, tries++ );
             }
 
             // Got the lock, no longer waiting for anyone.
-            clearWaitList();
+            stopWaiting( resourceType, resourceId );
 
             // Make a local note about the fact that we now hold this lock
             heldShareLocks.put( resourceId, 1 );
@@ -195,7 +201,7 @@ public class ForsetiClient implements Locks.Client
     {
         // For details on how this works, refer to the acquireShared method call, as the two are very similar
 
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
         for ( long resourceId : resourceIds )
@@ -226,11 +232,10 @@ public class ForsetiClient implements Locks.Client
                     }
                 }
 
-                waitStrategies[resourceType.typeId()].apply( tries++ );
-                markAsWaitingFor( existingLock, resourceType, resourceId );
+                waitFor( existingLock, resourceType, resourceId, tries++ );
             }
 
-            clearWaitList();
+            stopWaiting( resourceType, resourceId );
             heldLocks.put( resourceId, 1 );
         }
     }
@@ -238,7 +243,7 @@ public class ForsetiClient implements Locks.Client
     @Override
     public boolean tryExclusiveLock( Locks.ResourceType resourceType, long... resourceIds )
     {
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
         for ( long resourceId : resourceIds )
@@ -295,7 +300,7 @@ public class ForsetiClient implements Locks.Client
     @Override
     public boolean trySharedLock( Locks.ResourceType resourceType, long... resourceIds )
     {
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap     = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap     = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
         PrimitiveLongIntMap heldExclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
 
@@ -559,7 +564,7 @@ public class ForsetiClient implements Locks.Client
     }
 
     /** Release a lock from the global pool. */
-    private void releaseGlobalLock( ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap, long resourceId )
+    private void releaseGlobalLock( StripedLongObjectMap<ForsetiLockManager.Lock> lockMap, long resourceId )
     {
         ForsetiLockManager.Lock lock = lockMap.get( resourceId );
         if( lock instanceof ExclusiveLock )
@@ -592,8 +597,10 @@ public class ForsetiClient implements Locks.Client
     }
 
     /** Attempt to upgrade a share lock to an exclusive lock, grabbing the share lock if we don't hold it. */
-    private boolean tryUpgradeSharedToExclusive( Locks.ResourceType resourceType, ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap,
-                                                 long resourceId, SharedLock sharedLock ) throws AcquireLockTimeoutException
+    private boolean tryUpgradeSharedToExclusive( Locks.ResourceType resourceType,
+                                                 StripedLongObjectMap<ForsetiLockManager.Lock> lockMap,
+                                                 long resourceId, SharedLock sharedLock )
+            throws AcquireLockTimeoutException
     {
         int tries = 0;
         if(!sharedLockCounts[resourceType.typeId()].containsKey( resourceId ))
@@ -632,7 +639,7 @@ public class ForsetiClient implements Locks.Client
     /** Attempt to upgrade a share lock that we hold to an exclusive lock. */
     private boolean tryUpgradeToExclusiveWithShareLockHeld(
             Locks.ResourceType resourceType,
-            ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap,
+            StripedLongObjectMap<ForsetiLockManager.Lock> lockMap,
             long resourceId,
             SharedLock sharedLock,
             int tries ) throws AcquireLockTimeoutException
@@ -644,8 +651,7 @@ public class ForsetiClient implements Locks.Client
                 // Now we just wait for all clients to release the the share lock
                 while(sharedLock.numberOfHolders() > 1)
                 {
-                    waitStrategies[resourceType.typeId()].apply( tries++ );
-                    markAsWaitingFor( sharedLock, resourceType, resourceId );
+                    waitFor( sharedLock, resourceType, resourceId, tries++ );
                 }
 
                 // No more people other than us holding this lock. Swap it to exclusive
@@ -677,13 +683,51 @@ public class ForsetiClient implements Locks.Client
         waitList.put( myId );
     }
 
+    /**
+     * Applies the wait strategy of the resource type, and then takes note of who we are waiting for. The wait counts
+     * from the first call since this client last stopped waiting, so that waiting to upgrade a shared lock adds to the
+     * wait for the exclusive lock it is part of. The monitor is told about the wait if it ends in a timeout.
+     */
+    private void waitFor( ForsetiLockManager.Lock lock, Locks.ResourceType type, long resourceId, int tries )
+            throws AcquireLockTimeoutException
+    {
+        if ( !waiting )
+        {
+            waiting = true;
+            waitStartNanos = System.nanoTime();
+        }
+        try
+        {
+            waitStrategies[type.typeId()].apply( tries );
+        }
+        catch ( AcquireLockTimeoutException e )
+        {
+            stopWaiting( type, resourceId );
+            throw e;
+        }
+        markAsWaitingFor( lock, type, resourceId );
+    }
+
+    /** Clears the wait list, and tells the monitor how long we waited, if we had to wait at all. */
+    private void stopWaiting( Locks.ResourceType type, long resourceId )
+    {
+        clearWaitList();
+        if ( waiting )
+        {
+            waiting = false;
+            monitor.lockWaited( type, resourceId, System.nanoTime() - waitStartNanos );
+        }
+    }
+
     private void markAsWaitingFor( ForsetiLockManager.Lock lock, Locks.ResourceType type, long resourceId )
     {
         clearWaitList();
         lock.copyHolderWaitListsInto( waitList );
         if(lock.anyHolderIsWaitingFor( myId ) && lock.holderWaitListSize() >= waitListSize())
         {
+            stopWaiting( type, resourceId );
             waitList.clear();
+            monitor.deadlockDetected( type, resourceId );
             throw new DeadlockDetectedException( this + " can't acquire " + lock + " on " + type + "("+resourceId+"), because holders of that lock " +
                     "are waiting for " + this + ".\n Wait list:" + lock.describeWaitList() );
         }
@@ -711,10 +755,10 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseSharedLocksVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap exclusiveLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private StripedLongObjectMap<ForsetiLockManager.Lock> lockMap;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap exclusiveLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 StripedLongObjectMap<ForsetiLockManager.Lock> lockMap )
         {
             this.exclusiveLockCounts = exclusiveLockCounts;
             this.lockMap = lockMap;
@@ -739,9 +783,10 @@ public class ForsetiClient implements Locks.Client
      */
     private class ReleaseSharedDontCheckExclusiveVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private StripedLongObjectMap<ForsetiLockManager.Lock> lockMap;
 
-        private PrimitiveLongVisitor<RuntimeException> initialize( ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+        private PrimitiveLongVisitor<RuntimeException> initialize(
+                StripedLongObjectMap<ForsetiLockManager.Lock> lockMap )
         {
             this.lockMap = lockMap;
             return this;
@@ -758,10 +803,10 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private StripedLongObjectMap<ForsetiLockManager.Lock> lockMap;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap sharedLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 StripedLongObjectMap<ForsetiLockManager.Lock> lockMap )
         {
             this.sharedLockCounts = sharedLockCounts;
             this.lockMap = lockMap;
@@ -792,10 +837,10 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksAndClearSharedVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private StripedLongObjectMap<ForsetiLockManager.Lock> lockMap;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap sharedLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 StripedLongObjectMap<ForsetiLockManager.Lock> lockMap )
         {
             this.sharedLockCounts = sharedLockCounts;
             this.lockMap = lockMap;
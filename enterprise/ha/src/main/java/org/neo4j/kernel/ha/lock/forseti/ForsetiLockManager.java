@@ -19,18 +19,17 @@
  */
 package org.neo4j.kernel.ha.lock.forseti;
 
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.collection.pool.LinkedQueuePool;
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
 import org.neo4j.collection.pool.Pool;
 import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
+import org.neo4j.kernel.impl.util.collection.StripedLongObjectMap;
 import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
@@ -85,14 +84,19 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
  * As it performs this union, B will find itself in A's waiting list, and when it does, it has detected a deadlock.
  *
  *
- * <h2>Future work</h2>
+ * <h2>Lock maps and shared locks</h2>
+ *
+ * The lock maps are {@link StripedLongObjectMap striped primitive maps}, which never box resource ids and which only
+ * lock a stripe on writes.
  *
- * We have at least one type of lock (SchemaLock) that can be held concurrently by several hundred transactions. It may
- * be worth investigating fat locks, or in any case optimize the current way SharedLock adds and removes clients from
- * its holder list.
+ * We have at least one type of lock (SchemaLock) that can be held concurrently by several hundred transactions. Shared
+ * locks therefore inflate into fat locks once they have more than a handful of holders, where each client has its
+ * own holder slot, see {@link SharedLock}.
  *
- * The maps used by forseti should be replaced by faster concurrent maps, perhaps a striped hopscotch map or something
- * similar.
+ * <h2>Future work</h2>
+ *
+ * All holders of a shared lock still bump one reference count, which could be striped as well. Measure with
+ * ForsetiMicroBenchmark on many-core machines before and after changing any of the above.
  */
 public class ForsetiLockManager extends LifecycleAdapter implements Locks
 {
@@ -108,7 +112,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     }
 
     /** Pointers to lock maps, one array per resource type. */
-    private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+    private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
 
     /** Reverse lookup resource types by id, used for introspection */
     private final ResourceType[] resourceTypes;
@@ -116,10 +120,15 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     /** Pool forseti clients. */
     private final Pool<ForsetiClient> clientPool;
 
-    @SuppressWarnings( "unchecked" )
     public ForsetiLockManager( ResourceType... resourceTypes )
     {
-        this.lockMaps = new ConcurrentMap[findMaxResourceId( resourceTypes )];
+        this( Monitor.NONE, resourceTypes );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public ForsetiLockManager( Monitor monitor, ResourceType... resourceTypes )
+    {
+        this.lockMaps = new StripedLongObjectMap[findMaxResourceId( resourceTypes )];
         this.resourceTypes = new ResourceType[findMaxResourceId( resourceTypes )];
 
         /* Wait strategies per resource type */
@@ -127,7 +136,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
 
         for ( ResourceType type : resourceTypes )
         {
-            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>(16, 0.6f, 512);
+            this.lockMaps[type.typeId()] = new StripedLongObjectMap<>();
             waitStrategies[type.typeId()] = type.waitStrategy();
             this.resourceTypes[type.typeId()] = type;
         }
@@ -136,7 +145,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
         // TODO be good enough. In fact, we could add the required fields for such a stack
         // TODO to the ForsetiClient objects themselves, making the stack garbage-free in
         // TODO the (presumably) common case of client re-use.
-        clientPool = new ForsetiClientFlyweightPool( lockMaps, waitStrategies );
+        clientPool = new ForsetiClientFlyweightPool( lockMaps, waitStrategies, monitor );
     }
 
     /**
@@ -149,18 +158,22 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     }
 
     @Override
-    public void accept( Visitor out )
+    public void accept( final Visitor out )
     {
         for ( int i = 0; i < lockMaps.length; i++ )
         {
             if(lockMaps[i] != null)
             {
-                ResourceType type = resourceTypes[i];
-                for ( Map.Entry<Long, Lock> entry : lockMaps[i].entrySet() )
+                final ResourceType type = resourceTypes[i];
+                lockMaps[i].visitEntries( new PrimitiveLongObjectVisitor<Lock,RuntimeException>()
                 {
-                    Lock lock = entry.getValue();
-                    out.visit( type, entry.getKey(), lock.describeWaitList(), 0 );
-                }
+                    @Override
+                    public boolean visited( long resourceId, Lock lock )
+                    {
+                        out.visit( type, resourceId, lock.describeWaitList(), 0 );
+                        return false;
+                    }
+                } );
             }
         }
     }
@@ -183,16 +196,19 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
         /** Re-use ids, forseti uses these in arrays, so we want to keep them low and not loose them. */
         // TODO we could use a synchronised SimpleBitSet instead, since we know that we only care about reusing a very limited set of integers.
         private final Queue<Integer> unusedIds = new ConcurrentLinkedQueue<>();
-        private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+        private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
         private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
+        private final Locks.Monitor monitor;
 
         public ForsetiClientFlyweightPool(
-                ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps,
-                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies )
+                StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps,
+                WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
+                Locks.Monitor monitor )
         {
             super( 128, null);
             this.lockMaps = lockMaps;
             this.waitStrategies = waitStrategies;
+            this.monitor = monitor;
         }
 
         @Override
@@ -203,7 +219,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
             {
                 id = clientIds.getAndIncrement();
             }
-            return new ForsetiClient(id, lockMaps, waitStrategies, this );
+            return new ForsetiClient(id, lockMaps, waitStrategies, this, monitor );
         }
 
         @Override
@@ -34,6 +34,12 @@ public class ForsetiLocksFactory extends Locks.Factory
     @Override
     public Locks newInstance( Locks.ResourceType[] resourceTypes )
     {
-        return new ForsetiLockManager( ResourceTypes.values() );
+        return newInstance( resourceTypes, Locks.Monitor.NONE );
+    }
+
+    @Override
+    public Locks newInstance( Locks.ResourceType[] resourceTypes, Locks.Monitor monitor )
+    {
+        return new ForsetiLockManager( monitor, ResourceTypes.values() );
     }
 }
@@ -43,6 +43,15 @@ class SharedLock implements ForsetiLockManager.Lock
      */
     private static final int MAX_HOLDERS = 4680;
 
+    /**
+     * Number of slots in the fat holder array, which is indexed by client id. Matches the client ids that the lock
+     * manager re-uses, so that clients practically always fit.
+     */
+    private static final int FAT_HOLDERS = 1024;
+
+    /** Index of the fat holder array in {@link #clientsHoldingThisLock}, after the thin holder arrays. */
+    private static final int FAT = 4;
+
     // TODO Investigate inlining and padding the refCount.
     // TODO My gut feeling tells me there's a high chance of false-sharing
     // TODO on these unpadded AtomicIntegers.
@@ -69,9 +78,13 @@ class SharedLock implements ForsetiLockManager.Lock
      * to resize (since the threads writing to the array are on one of the hottest code paths in the database).
      *
      * This data structure is, however, not optimal, since it requires O(n) at worst to search for a slot and to remove
-     * a client from the array. This should be revisited in the future.
+     * a client from the array. Locks like the schema lock are held by hundreds of clients at the same time, which
+     * would then all compete for the same slots. Therefore, once the first reference array is full, the lock inflates
+     * into a fat lock by adding one more array at index {@link #FAT}. It has one slot per client id, so clients with
+     * ids below {@link #FAT_HOLDERS} add and remove themselves in O(1), without ever competing for slots. Other clients
+     * keep using the exponentially larger arrays above.
      */
-    private final AtomicReferenceArray<ForsetiClient>[] clientsHoldingThisLock = new AtomicReferenceArray[4];
+    private final AtomicReferenceArray<ForsetiClient>[] clientsHoldingThisLock = new AtomicReferenceArray[FAT + 1];
 
     /** Client that holds the update lock, if any. */
     private ForsetiClient updateHolder;
@@ -240,12 +253,19 @@ class SharedLock implements ForsetiLockManager.Lock
 
     private void removeClientHoldingLock( ForsetiClient client )
     {
+        AtomicReferenceArray<ForsetiClient> fatHolders = clientsHoldingThisLock[FAT];
+        if ( fatHolders != null && client.id() < FAT_HOLDERS &&
+             fatHolders.compareAndSet( fatSlot( client ), client, null ) )
+        {
+            return;
+        }
+
         for ( int i = 0; i < clientsHoldingThisLock.length; i++ )
         {
             AtomicReferenceArray<ForsetiClient> holders = clientsHoldingThisLock[i];
             if(holders == null)
             {
-                break;
+                continue;
             }
 
             for ( int j = 0; j < holders.length(); j++ )
@@ -267,9 +287,18 @@ class SharedLock implements ForsetiLockManager.Lock
         assert !clientHoldsThisLock( client ) :
                 client + " can not grab a global lock it already holds: " + this + ".";
 
+        boolean fitsInFatHolders = client.id() < FAT_HOLDERS;
         while(true)
         {
-            for ( int i = 0; i < clientsHoldingThisLock.length; i++ )
+            AtomicReferenceArray<ForsetiClient> fatHolders = clientsHoldingThisLock[FAT];
+            if ( fatHolders != null && fitsInFatHolders )
+            {
+                // No other client ever writes to our slot, so there's nothing to compete for
+                fatHolders.set( fatSlot( client ), client );
+                return true;
+            }
+
+            for ( int i = 0; i < FAT; i++ )
             {
                 AtomicReferenceArray<ForsetiClient> holders = clientsHoldingThisLock[i];
                 if(holders == null)
@@ -292,6 +321,13 @@ class SharedLock implements ForsetiLockManager.Lock
                         }
                     }
                 }
+
+                if ( i == 0 && fitsInFatHolders )
+                {
+                    // The thin lock is full, so inflate it rather than looking for slots in the larger arrays
+                    addFatHolderArray().set( fatSlot( client ), client );
+                    return true;
+                }
             }
         }
     }
@@ -338,6 +374,24 @@ class SharedLock implements ForsetiLockManager.Lock
         return clientsHoldingThisLock[slot];
     }
 
+    private synchronized AtomicReferenceArray<ForsetiClient> addFatHolderArray()
+    {
+        if ( clientsHoldingThisLock[FAT] == null )
+        {
+            clientsHoldingThisLock[FAT] = new AtomicReferenceArray<>( FAT_HOLDERS );
+        }
+        return clientsHoldingThisLock[FAT];
+    }
+
+    /**
+     * Slot of a client in the fat holder array. Clients with consecutive ids would share cache lines if they were
+     * stored in id order, so the bits of the id are reversed to spread them out over the array.
+     */
+    private static int fatSlot( ForsetiClient client )
+    {
+        return Integer.reverse( client.id() ) >>> (Integer.SIZE - Integer.numberOfTrailingZeros( FAT_HOLDERS ));
+    }
+
     private boolean clientHoldsThisLock( ForsetiClient client )
     {
         for ( int i = 0; i < clientsHoldingThisLock.length; i++ )
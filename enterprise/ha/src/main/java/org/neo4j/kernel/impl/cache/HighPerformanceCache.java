@@ -20,15 +20,43 @@
 package org.neo4j.kernel.impl.cache;
 
 import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.info.DiagnosticsPhase;
 import org.neo4j.kernel.info.DiagnosticsProvider;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
+
+/**
+ * Cache backed by a fixed size array, where each entity has got exactly one slot, decided by its id.
+ *
+ * Size is accounted for per segment, where segment {@code n} consists of every {@code segmentCount}th slot
+ * starting at {@code n}. Since ids are spread out evenly over the slots, each segment will hold roughly
+ * an equal share of the total size, which means that a put only needs to look at the size of its own segment
+ * to decide whether or not the total size needs to be looked at. This keeps writers from contending on a
+ * single size counter. Since the shares are only roughly equal, the total size is also looked at every
+ * {@value #SIZE_CHECK_INTERVAL} puts into a segment, so that a cache where the segments that grow are not the
+ * ones above their share still gets purged.
+ *
+ * Purging happens incrementally in a background thread once the cache size goes above 95% of the max size,
+ * in steps that visit a bounded number of slots each. Callers putting entities into the cache never wait for
+ * a purge to complete. If the cache grows beyond 105% of the max size while a purge is ongoing the caller
+ * will help out by executing a single purge step itself, so the amount of work it does is bounded. A purge
+ * that completes while the cache is still above 95%, because of puts made during the purge, is followed
+ * by another one.
+ */
 public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.Adapter<E>
     implements DiagnosticsProvider
 {
@@ -37,12 +65,30 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     }
 
     public static final long MIN_SIZE = 1;
+    static final int MAX_SEGMENT_COUNT = 64;
+    static final int DEFAULT_PURGE_STEP_SIZE = 10000;
+    static final int SIZE_CHECK_INTERVAL = 64;
+    // Segment sizes are spread out in the array so that they end up on different cache lines, each followed by
+    // the number of puts into that segment
+    private static final int SEGMENT_STRIDE = 8;
+
+    private static final Executor SAME_THREAD_EXECUTOR = new Executor()
+    {
+        @Override
+        public void execute( Runnable command )
+        {
+            command.run();
+        }
+    };
+
     private final AtomicReferenceArray<E> cache;
     private final long maxSize;
     private long closeToMaxSize;
     private long purgeStopSize;
     private long purgeHandoffSize;
-    private final AtomicLong currentSize = new AtomicLong( 0 );
+    private final int segmentCount;
+    private final AtomicLongArray segmentSizes;
+    private long segmentCloseToMaxSize;
     private final long minLogInterval;
     private final String name;
     private final AtomicLong highestIdSet = new AtomicLong();
@@ -56,9 +102,13 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
 
     private final StringLogger logger;
 
+    private final Executor purgeExecutor;
+    private final int purgeStepSize;
     private final AtomicBoolean purging = new AtomicBoolean();
+    private final Object purgeLock = new Object();
+    private PurgeRun currentPurge; // guarded by purgeLock
     private final AtomicInteger avertedPurgeWaits = new AtomicInteger();
-    private final AtomicInteger forcedPurgeWaits = new AtomicInteger();
+    private final AtomicInteger assistedPurgeSteps = new AtomicInteger();
     private long purgeTime;
     private Monitor monitor;
 
@@ -69,16 +119,31 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         this.maxSize = 1024l*1024*1024;
         this.name = "test cache";
         this.logger = null;
+        this.purgeExecutor = SAME_THREAD_EXECUTOR;
+        this.purgeStepSize = DEFAULT_PURGE_STEP_SIZE;
+        this.segmentCount = segmentCount( cache.length() );
+        this.segmentSizes = new AtomicLongArray( segmentCount * SEGMENT_STRIDE );
         calculateSizes();
     }
 
     public HighPerformanceCache( long maxSizeInBytes, float arrayHeapFraction, long minLogInterval, String name,
                                  StringLogger logger, Monitor monitor )
+    {
+        this( maxSizeInBytes, arrayHeapFraction, minLogInterval, name, logger, monitor,
+                newPurgeExecutor( name ), DEFAULT_PURGE_STEP_SIZE );
+    }
+
+    HighPerformanceCache( long maxSizeInBytes, float arrayHeapFraction, long minLogInterval, String name,
+                          StringLogger logger, Monitor monitor, Executor purgeExecutor, int purgeStepSize )
     {
         if ( logger == null )
         {
             throw new IllegalArgumentException( "Null logger" );
         }
+        if ( purgeStepSize < 1 )
+        {
+            throw new IllegalArgumentException( "Purge step size must be positive, not " + purgeStepSize );
+        }
 
         this.minLogInterval = minLogInterval;
         if ( arrayHeapFraction < 1 || arrayHeapFraction > 10 )
@@ -103,14 +168,34 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         this.name = name == null ? super.toString() : name;
         this.logger = logger;
         this.monitor = monitor;
+        this.purgeExecutor = purgeExecutor;
+        this.purgeStepSize = purgeStepSize;
+        this.segmentCount = segmentCount( cache.length() );
+        this.segmentSizes = new AtomicLongArray( segmentCount * SEGMENT_STRIDE );
         calculateSizes();
     }
 
+    /**
+     * The purge thread is only kept around while there's purging to do, so that caches that are
+     * thrown away, f.ex. when the database shuts down, don't leave any threads behind.
+     */
+    private static Executor newPurgeExecutor( String name )
+    {
+        return new ThreadPoolExecutor( 0, 1, 10, SECONDS, new LinkedBlockingQueue<Runnable>(),
+                daemon( name + "-purger" ) );
+    }
+
+    private static int segmentCount( int arrayLength )
+    {
+        return Math.max( 1, Math.min( MAX_SEGMENT_COUNT, arrayLength ) );
+    }
+
     private void calculateSizes()
     {
         this.closeToMaxSize = (long)(maxSize * 0.95d);
         this.purgeStopSize = (long)(maxSize * 0.90d);
         this.purgeHandoffSize = (long)(maxSize * 1.05d);
+        this.segmentCloseToMaxSize = closeToMaxSize / segmentCount;
     }
 
     protected int getPosition( EntityWithSizeObject obj )
@@ -123,6 +208,29 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         return (int) ( id % cache.length() );
     }
 
+    private int segmentIndex( int pos )
+    {
+        return (pos % segmentCount) * SEGMENT_STRIDE;
+    }
+
+    /**
+     * @return the new size of the segment that {@code pos} belongs to.
+     */
+    private long addToSegmentSize( int pos, long delta )
+    {
+        return segmentSizes.addAndGet( segmentIndex( pos ), delta );
+    }
+
+    /**
+     * @return whether the size of the segment that {@code pos} belongs to is above its share of the purge
+     * threshold, or it's time to look at the total size anyway.
+     */
+    private boolean shouldCheckSize( int pos, long segmentSize )
+    {
+        return segmentSize > segmentCloseToMaxSize ||
+               segmentSizes.incrementAndGet( segmentIndex( pos ) + 1 ) % SIZE_CHECK_INTERVAL == 0;
+    }
+
     private long putTimeStamp = 0;
 
     @Override
@@ -154,14 +262,14 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
                 {
                     oldObjSize = oldObj.getRegisteredSize();
                 }
-                long size = currentSize.addAndGet( objectSize - oldObjSize );
+                long segmentSize = addToSegmentSize( pos, objectSize - oldObjSize );
                 obj.setRegisteredSize( objectSize );
                 if ( oldObj != null )
                 {
                     collisions++;
                 }
                 totalPuts++;
-                if ( size > closeToMaxSize )
+                if ( shouldCheckSize( pos, segmentSize ) )
                 {
                     purgeFrom( pos );
                 }
@@ -204,13 +312,17 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     @Override
     public E remove( long id )
     {
-        int pos = getPosition( id );
+        return removeAt( getPosition( id ) );
+    }
+
+    private E removeAt( int pos )
+    {
         E obj = cache.get(pos);
         if ( obj != null )
         {
             if ( cache.compareAndSet( pos, obj, null ) )
             {
-                currentSize.addAndGet( obj.getRegisteredSize() * -1 );
+                addToSegmentSize( pos, obj.getRegisteredSize() * -1 );
             }
         }
         return obj;
@@ -234,113 +346,222 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
 
     private void purgeFrom( int pos )
     {
-        long myCurrentSize = currentSize.get();
+        long myCurrentSize = size();
         if ( myCurrentSize <= closeToMaxSize )
         {
             return;
         }
 
         // if we're within 0.95 < size < 1.05 and someone else is purging then just return and let
-        // the other one purge for us. if we're above 1.05 then wait for the purger to finish before returning.
+        // the purger do its thing. if we're above 1.05 then help out with one step of the purge before returning.
         if ( purging.compareAndSet( false, true ) )
-        {   // We're going to do the purge
-            try
-            {
-                doPurge( pos );
-            }
-            finally
-            {
-                purging.set( false );
-            }
+        {   // We're going to start a purge
+            startPurge( pos, myCurrentSize );
         }
         else
-        {   // Someone else is currently doing a purge
+        {   // A purge is already ongoing
             if ( myCurrentSize < purgeHandoffSize )
             {   // It's safe to just return and let the purger do its thing
                 avertedPurgeWaits.incrementAndGet();
             }
             else
             {
-                // Wait for the current purge to complete. Some threads might slip through here before
-                // A thread just entering doPurge above, but that's fine
-                forcedPurgeWaits.incrementAndGet();
-                waitForCurrentPurgeToComplete();
+                // The purger can't keep up, do a bounded amount of purging in this thread as well.
+                // The purge may have completed right before we get here, in which case there's nothing to help with
+                assistedPurgeSteps.incrementAndGet();
+                synchronized ( purgeLock )
+                {
+                    if ( currentPurge != null )
+                    {
+                        purgeStep( currentPurge );
+                    }
+                }
+            }
+        }
+    }
+
+    private void startPurge( int pos, long sizeBefore )
+    {
+        final PurgeRun first = newPurgeRun( pos, sizeBefore );
+        Runnable purge = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                PurgeRun run = first;
+                while ( run != null )
+                {
+                    try
+                    {
+                        doPurge( run );
+                    }
+                    finally
+                    {
+                        synchronized ( purgeLock )
+                        {
+                            currentPurge = null;
+                        }
+                        purging.set( false );
+                    }
+
+                    // Puts made while purging didn't start purges of their own, so the cache may need another one
+                    long size = size();
+                    run = size > closeToMaxSize && purging.compareAndSet( false, true ) ?
+                          newPurgeRun( run.anchor, size ) : null;
+                }
             }
+        };
+        try
+        {
+            purgeExecutor.execute( purge );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            purge.run();
         }
     }
 
-    private synchronized void waitForCurrentPurgeToComplete()
+    private PurgeRun newPurgeRun( int pos, long sizeBefore )
     {
-        // Just a nice way of saying "wait for the monitor on this object currently held by the thread doing a purge"
+        PurgeRun run = new PurgeRun( pos, sizeBefore );
+        synchronized ( purgeLock )
+        {
+            currentPurge = run;
+        }
+        return run;
     }
 
-    private synchronized void doPurge( int pos )
+    private void doPurge( PurgeRun run )
     {
-        long sizeBefore = currentSize.get();
-        if ( sizeBefore <= closeToMaxSize )
+        if ( size() <= closeToMaxSize )
         {
             return;
         }
 
         long startTime = System.currentTimeMillis();
-        purgeCount++;
-        int numberOfEntitiesPurged = 0;
         try
         {
-            int index = 1;
-            do
+            while ( true )
             {
-                int minusPos = pos - index;
-                if ( minusPos >= 0 )
-                {
-                    if ( remove( minusPos ) != null )
-                    {
-                        numberOfEntitiesPurged++;
-                        if ( currentSize.get() <= purgeStopSize )
-                        {
-                            return;
-                        }
-                    }
-                }
-                int plusPos = pos + index;
-                if ( plusPos < cache.length() )
+                synchronized ( purgeLock )
                 {
-                    if ( remove( plusPos ) != null )
+                    if ( purgeStep( run ) )
                     {
-                        numberOfEntitiesPurged++;
-                        if ( currentSize.get() <= purgeStopSize )
-                        {
-                            return;
-                        }
+                        break;
                     }
                 }
-                index++;
+                // Let others have a go at the lock between steps
+                Thread.yield();
             }
-            while ( ( pos - index ) >= 0 || ( pos + index ) < cache.length() );
-            // current object larger than max size, clear it
-            remove( pos );
         }
         finally
         {
-            long timestamp = System.currentTimeMillis();
-            purgeTime += (timestamp-startTime);
-            if ( timestamp - lastPurgeLogTimestamp > minLogInterval )
+            synchronized ( purgeLock )
             {
-                lastPurgeLogTimestamp = timestamp;
-                long sizeAfter = currentSize.get();
+                purgeCount++;
+                long timestamp = System.currentTimeMillis();
+                purgeTime += (timestamp-startTime);
+                if ( timestamp - lastPurgeLogTimestamp > minLogInterval )
+                {
+                    lastPurgeLogTimestamp = timestamp;
+                    long sizeAfter = size();
+
+                    String sizeBeforeStr = getSize( run.sizeBefore );
+                    String sizeAfterStr = getSize( sizeAfter );
+                    String diffStr = getSize( run.sizeBefore - sizeAfter );
 
-                String sizeBeforeStr = getSize( sizeBefore );
-                String sizeAfterStr = getSize( sizeAfter );
-                String diffStr = getSize( sizeBefore - sizeAfter );
+                    String missPercentage =  ((float) missCount / (float) (hitCount+missCount) * 100.0f) + "%";
+                    String colPercentage = ((float) collisions / (float) totalPuts * 100.0f) + "%";
 
-                String missPercentage =  ((float) missCount / (float) (hitCount+missCount) * 100.0f) + "%";
-                String colPercentage = ((float) collisions / (float) totalPuts * 100.0f) + "%";
+                    logger.logMessage( name + " purge (nr " + purgeCount + ") " + sizeBeforeStr + " -> " + sizeAfterStr + " (" + diffStr +
+                            ") " + missPercentage + " misses, " + colPercentage + " collisions (" + collisions + ").", true );
+                    printAccurateStatistics();
+                }
+            }
+            monitor.purged( run.sizeBefore, size(), run.numberOfEntitiesPurged );
+        }
+    }
+
+    /**
+     * Purges entities outwards from the position that triggered the purge, visiting at most
+     * {@link #purgeStepSize} slots. Must be called while holding {@link #purgeLock}.
+     *
+     * @return {@code true} if the purge is completed, otherwise {@code false}.
+     */
+    private boolean purgeStep( PurgeRun run )
+    {
+        if ( run.done )
+        {
+            return true;
+        }
+
+        // Sizes of all segments are only summed up once per step, after that removals are accounted for locally
+        long size = size();
+        int slotsLeft = purgeStepSize;
+        while ( slotsLeft > 0 )
+        {
+            if ( size <= purgeStopSize )
+            {
+                return run.done = true;
+            }
 
-                logger.logMessage( name + " purge (nr " + purgeCount + ") " + sizeBeforeStr + " -> " + sizeAfterStr + " (" + diffStr +
-                        ") " + missPercentage + " misses, " + colPercentage + " collisions (" + collisions + ").", true );
-                printAccurateStatistics();
+            int minusPos = run.anchor - run.index;
+            int plusPos = run.anchor + run.index;
+            if ( minusPos < 0 && plusPos >= cache.length() )
+            {
+                // current object larger than max size, clear it
+                removeAt( run.anchor );
+                return run.done = true;
+            }
+            if ( minusPos >= 0 )
+            {
+                slotsLeft--;
+                size -= purgeSlot( run, minusPos );
+                if ( size <= purgeStopSize )
+                {
+                    return run.done = true;
+                }
+            }
+            if ( plusPos < cache.length() )
+            {
+                slotsLeft--;
+                size -= purgeSlot( run, plusPos );
             }
-            monitor.purged( sizeBefore, currentSize.get(), numberOfEntitiesPurged );
+            run.index++;
+        }
+        return false;
+    }
+
+    /**
+     * @return the registered size of the purged entity, or {@code 0} if the slot was empty.
+     */
+    private int purgeSlot( PurgeRun run, int pos )
+    {
+        E removed = removeAt( pos );
+        if ( removed == null )
+        {
+            return 0;
+        }
+        run.numberOfEntitiesPurged++;
+        return removed.getRegisteredSize();
+    }
+
+    /**
+     * State of one purge, which may span many purge steps, executed by the purge thread
+     * or by threads assisting it.
+     */
+    private static class PurgeRun
+    {
+        private final int anchor;
+        private final long sizeBefore;
+        private int index = 1;
+        private int numberOfEntitiesPurged;
+        private boolean done;
+
+        PurgeRun( int anchor, long sizeBefore )
+        {
+            this.anchor = anchor;
+            this.sizeBefore = sizeBefore;
         }
     }
 
@@ -359,8 +580,9 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
                 registeredSize += obj.getRegisteredSize();
             }
         }
+        long currentSize = size();
         logger.logMessage( name + " purge (nr " + purgeCount + "): elementCount:" + elementCount + " and sizes actual:" + getSize( actualSize ) +
-                    ", perceived:" + getSize( currentSize.get() ) + " (diff:" + getSize(currentSize.get() - actualSize) + "), registered:" + getSize( registeredSize ), true );
+                    ", perceived:" + getSize( currentSize ) + " (diff:" + getSize(currentSize - actualSize) + "), registered:" + getSize( registeredSize ), true );
     }
 
     @Override
@@ -402,14 +624,14 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     @Override
     public String toString()
     {
-        String currentSizeStr = getSize( currentSize.get() );
+        String currentSizeStr = getSize( size() );
 
         String missPercentage =  ((float) missCount / (float) (hitCount+missCount) * 100.0f) + "%";
         String colPercentage = ((float) collisions / (float) totalPuts * 100.0f) + "%";
 
         return name + " array:" + cache.length() + " purge:" + purgeCount + " size:" + currentSizeStr +
                 " misses:" + missPercentage + " collisions:" + colPercentage + " (" + collisions + ") av.purge waits:" +
-                avertedPurgeWaits.get() + " purge waits:" + forcedPurgeWaits.get() + " avg. purge time:" + (purgeCount > 0 ? (purgeTime/purgeCount) + "ms" : "N/A");
+                avertedPurgeWaits.get() + " purge assists:" + assistedPurgeSteps.get() + " avg. purge time:" + (purgeCount > 0 ? (purgeTime/purgeCount) + "ms" : "N/A");
     }
 
     private String getSize( long size )
@@ -439,10 +661,25 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         {
             cache.set( i, null );
         }
-        currentSize.set( 0 );
+        for ( int i = 0; i < segmentSizes.length(); i++ )
+        {
+            segmentSizes.set( i, 0 );
+        }
         highestIdSet.set( 0 );
     }
 
+    /**
+     * Stops the purge thread. A put that needs purging after this will do the purge itself.
+     */
+    @Override
+    public void close()
+    {
+        if ( purgeExecutor instanceof ExecutorService )
+        {
+            ((ExecutorService) purgeExecutor).shutdown();
+        }
+    }
+
     @Override
     public void putAll( Collection<E> objects )
     {
@@ -461,7 +698,12 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     @Override
     public long size()
     {
-        return currentSize.get();
+        long size = 0;
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            size += segmentSizes.get( i * SEGMENT_STRIDE );
+        }
+        return size;
     }
 
     @Override
@@ -485,9 +727,9 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         {
             return;
         }
-        long size = currentSize.addAndGet( newSize - existingObj.getRegisteredSize() );
+        long segmentSize = addToSegmentSize( pos, newSize - existingObj.getRegisteredSize() );
         obj.setRegisteredSize( newSize );
-        if ( size > closeToMaxSize )
+        if ( shouldCheckSize( pos, segmentSize ) )
         {
             purgeFrom( pos );
         }
@@ -38,7 +38,7 @@ import static org.neo4j.helpers.Settings.setting;
 public class HighPerformanceCacheSettings
 {
     @Description( "Maximum size of the heap memory to dedicate to the cached nodes. "
-            + "Right before the maximum size is reached a purge is performed. "
+            + "Right before the maximum size is reached a purge is started in the background. "
             + "The purge will evict objects from the cache until the cache size gets below 90% of the maximum size. "
             + "Optimal settings for the maximum size depends on the size of your graph. "
             + "The configured maximum size should leave enough room for other objects to coexist in the same JVM. "
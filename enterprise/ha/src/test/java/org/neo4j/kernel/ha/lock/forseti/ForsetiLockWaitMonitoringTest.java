@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.ha.lock.forseti;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
+import org.neo4j.kernel.impl.locking.LockWaitStatistics;
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ForsetiLockWaitMonitoringTest
+{
+    private static final int TIMEOUT_TRIES = 100;
+
+    private final Locks.ResourceType timingOut = new Locks.ResourceType()
+    {
+        @Override
+        public int typeId()
+        {
+            return 0;
+        }
+
+        @Override
+        public WaitStrategy waitStrategy()
+        {
+            return new WaitStrategy<AcquireLockTimeoutException>()
+            {
+                @Override
+                public void apply( long iteration ) throws AcquireLockTimeoutException
+                {
+                    if ( iteration >= TIMEOUT_TRIES )
+                    {
+                        throw new AcquireLockTimeoutException( null, "Gave up after %d tries", iteration );
+                    }
+                }
+            };
+        }
+    };
+
+    private final LockWaitStatistics lockWaits = new LockWaitStatistics( timingOut );
+    private final ForsetiLockManager locks = new ForsetiLockManager( lockWaits, timingOut );
+    private final Locks.Client clientA = locks.newClient();
+    private final Locks.Client clientB = locks.newClient();
+
+    @After
+    public void closeClients()
+    {
+        clientA.close();
+        clientB.close();
+    }
+
+    @Test
+    public void shouldReportWaitWhichTimesOut() throws Exception
+    {
+        // Given
+        clientA.acquireExclusive( timingOut, 1 );
+
+        // When
+        try
+        {
+            clientB.acquireExclusive( timingOut, 1 );
+            fail( "Should have timed out" );
+        }
+        catch ( AcquireLockTimeoutException e )
+        {
+            // Then
+            assertEquals( 1, lockWaits.waits( timingOut ) );
+            assertEquals( 0, lockWaits.deadlocks( timingOut ) );
+        }
+    }
+
+    @Test
+    public void shouldReportWaitToUpgradeSharedLockWhichTimesOut() throws Exception
+    {
+        // Given
+        clientA.acquireShared( timingOut, 1 );
+        clientB.acquireShared( timingOut, 1 );
+
+        // When
+        try
+        {
+            clientB.acquireExclusive( timingOut, 1 );
+            fail( "Should have timed out" );
+        }
+        catch ( RuntimeException e )
+        {
+            // Then
+            assertEquals( 1, lockWaits.waits( timingOut ) );
+        }
+    }
+}
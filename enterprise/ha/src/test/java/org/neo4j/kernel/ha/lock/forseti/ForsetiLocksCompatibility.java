@@ -26,8 +26,8 @@ import org.neo4j.kernel.impl.locking.ResourceTypes;
 public class ForsetiLocksCompatibility extends LockingCompatibilityTestSuite
 {
     @Override
-    protected Locks createLockManager()
+    protected Locks createLockManager( Locks.Monitor monitor )
     {
-        return new ForsetiLockManager( ResourceTypes.values());
+        return new ForsetiLockManager( monitor, ResourceTypes.values() );
     }
 }
@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.ha.lock.forseti;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
+import org.neo4j.kernel.impl.util.collection.StripedLongObjectMap;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.nanoTime;
+
+/**
+ * Measures the lock maps and shared locks of Forseti, run like:
+ *
+ * <pre>
+ * java -DBenchmark=LOCK_MAP -DImplementation=CONCURRENT_HASH_MAP ... ForsetiMicroBenchmark
+ * java -DBenchmark=LOCK_MAP -DImplementation=STRIPED_LOCK_MAP ... ForsetiMicroBenchmark
+ * java -DBenchmark=SCHEMA_AND_NODE_LOCKS ... ForsetiMicroBenchmark
+ * </pre>
+ *
+ * LOCK_MAP compares the lock map implementations in isolation, where CONCURRENT_HASH_MAP is how the lock maps used to
+ * be. SCHEMA_AND_NODE_LOCKS goes through the lock manager, the way transactions do, and so should be compared
+ * between builds.
+ */
+public class ForsetiMicroBenchmark
+{
+    public static void main( String... args ) throws Exception
+    {
+        get( Benchmark.class ).execute();
+    }
+
+    enum Benchmark
+    {
+        /** Each thread puts, gets and removes locks on its own resources, also reading one lock shared by all. */
+        LOCK_MAP
+                {
+                    @Override
+                    MeasuringThread newThread( int threadIndex, int threadCount, Object shared )
+                    {
+                        return new LockMapThread( (LockMap) shared, threadIndex, threadCount );
+                    }
+
+                    @Override
+                    Object newShared()
+                    {
+                        LockMap map = get( Implementation.class ).create();
+                        map.putIfAbsent( -1, new DummyLock() );
+                        return map;
+                    }
+                },
+        /**
+         * Each thread acts as a transaction which grabs a shared schema lock and an exclusive lock on a node of its
+         * own, the schema lock thereby being shared by all threads.
+         */
+        SCHEMA_AND_NODE_LOCKS
+                {
+                    @Override
+                    MeasuringThread newThread( int threadIndex, int threadCount, Object shared )
+                    {
+                        return new TransactionThread( ((Locks) shared).newClient(), threadIndex, threadCount );
+                    }
+
+                    @Override
+                    Object newShared()
+                    {
+                        return new ForsetiLockManager( ResourceTypes.values() );
+                    }
+                };
+
+        abstract MeasuringThread newThread( int threadIndex, int threadCount, Object shared );
+
+        abstract Object newShared();
+
+        void execute() throws InterruptedException
+        {
+            int minThreads = Integer.getInteger( "minThreads", 1 );
+            int maxThreads = Integer.getInteger( "maxThreads", cores() * 2 );
+            int iterations = Integer.getInteger( "iterations", 10 );
+            int operations = Integer.getInteger( "operations", 100_000 );
+            for ( int threads = minThreads; threads <= maxThreads; threads *= 2 )
+            {
+                System.out.printf( "=== %s - %s threads ===%n", this, threads );
+                for ( int i = 0; i < iterations; i++ )
+                {
+                    Object shared = newShared();
+                    MeasuringThread[] measuringThreads = new MeasuringThread[threads];
+                    for ( int t = 0; t < threads; t++ )
+                    {
+                        measuringThreads[t] = newThread( t, threads, shared );
+                    }
+                    run( measuringThreads, operations );
+                }
+            }
+        }
+    }
+
+    enum Implementation
+    {
+        CONCURRENT_HASH_MAP
+                {
+                    @Override
+                    LockMap create()
+                    {
+                        final ConcurrentMap<Long,ForsetiLockManager.Lock> map = new ConcurrentHashMap<>( 16, 0.6f, 512 );
+                        return new LockMap()
+                        {
+                            @Override
+                            public ForsetiLockManager.Lock get( long resourceId )
+                            {
+                                return map.get( resourceId );
+                            }
+
+                            @Override
+                            public ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+                            {
+                                return map.putIfAbsent( resourceId, lock );
+                            }
+
+                            @Override
+                            public ForsetiLockManager.Lock remove( long resourceId )
+                            {
+                                return map.remove( resourceId );
+                            }
+                        };
+                    }
+                },
+        STRIPED_LOCK_MAP
+                {
+                    @Override
+                    LockMap create()
+                    {
+                        final StripedLongObjectMap<ForsetiLockManager.Lock> map = new StripedLongObjectMap<>();
+                        return new LockMap()
+                        {
+                            @Override
+                            public ForsetiLockManager.Lock get( long resourceId )
+                            {
+                                return map.get( resourceId );
+                            }
+
+                            @Override
+                            public ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock )
+                            {
+                                return map.putIfAbsent( resourceId, lock );
+                            }
+
+                            @Override
+                            public ForsetiLockManager.Lock remove( long resourceId )
+                            {
+                                return map.remove( resourceId );
+                            }
+                        };
+                    }
+                };
+
+        abstract LockMap create();
+    }
+
+    interface LockMap
+    {
+        ForsetiLockManager.Lock get( long resourceId );
+
+        ForsetiLockManager.Lock putIfAbsent( long resourceId, ForsetiLockManager.Lock lock );
+
+        ForsetiLockManager.Lock remove( long resourceId );
+    }
+
+    static class LockMapThread extends MeasuringThread
+    {
+        private final LockMap map;
+        private final ForsetiLockManager.Lock lock = new DummyLock();
+        private final int threadCount;
+        private long resourceId;
+
+        LockMapThread( LockMap map, int threadIndex, int threadCount )
+        {
+            this.map = map;
+            this.threadCount = threadCount;
+            this.resourceId = threadIndex;
+        }
+
+        @Override
+        protected void execute()
+        {
+            long time = nanoTime();
+            map.putIfAbsent( resourceId, lock );
+            map.get( -1 );
+            map.remove( resourceId );
+            update( nanoTime() - time );
+            resourceId += threadCount;
+        }
+    }
+
+    static class TransactionThread extends MeasuringThread
+    {
+        private final Locks.Client client;
+        private final int threadCount;
+        private long nodeId;
+
+        TransactionThread( Locks.Client client, int threadIndex, int threadCount )
+        {
+            this.client = client;
+            this.threadCount = threadCount;
+            this.nodeId = threadIndex;
+        }
+
+        @Override
+        protected void execute()
+        {
+            long time = nanoTime();
+            client.acquireShared( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() );
+            client.acquireExclusive( ResourceTypes.NODE, nodeId );
+            client.releaseAll();
+            update( nanoTime() - time );
+            nodeId += threadCount;
+        }
+
+        @Override
+        void done()
+        {
+            client.close();
+        }
+    }
+
+    private static void run( MeasuringThread[] threads, int operations ) throws InterruptedException
+    {
+        CountDownLatch start = new CountDownLatch( 1 );
+        for ( MeasuringThread thread : threads )
+        {
+            thread.operations = operations;
+            thread.start = start;
+            thread.start();
+        }
+        long startTime = nanoTime();
+        start.countDown();
+        for ( MeasuringThread thread : threads )
+        {
+            thread.join();
+        }
+        long wallTime = nanoTime() - startTime;
+
+        long minTime = Long.MAX_VALUE, maxTime = 0, totalTime = 0;
+        double count = 0.0;
+        for ( MeasuringThread thread : threads )
+        {
+            minTime = min( minTime, thread.minTime );
+            maxTime = max( maxTime, thread.maxTime );
+            totalTime += thread.totalTime;
+            count += thread.operations;
+        }
+        System.out.printf( "min=%dns; max=%.3fus; avg=%.3fns; throughput=%.0f ops/s%n",
+                minTime, maxTime / 1_000.0, totalTime / count, count / (wallTime / 1_000_000_000.0) );
+    }
+
+    static <E extends Enum<E>> E get( Class<E> type )
+    {
+        try
+        {
+            return Enum.valueOf( type, System.getProperty( type.getSimpleName() ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IllegalArgumentException(
+                    "No such " + type.getSimpleName() + ": " + System.getProperty( type.getSimpleName() ) );
+        }
+        catch ( NullPointerException e )
+        {
+            throw new IllegalArgumentException( type.getSimpleName() + " not specified." );
+        }
+    }
+
+    private static int cores()
+    {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    static abstract class MeasuringThread extends Thread
+    {
+        int operations;
+        CountDownLatch start;
+        long minTime = Long.MAX_VALUE, maxTime, totalTime;
+
+        @Override
+        public final void run()
+        {
+            try
+            {
+                start.await();
+            }
+            catch ( InterruptedException e )
+            {
+                throw new RuntimeException( e );
+            }
+            for ( int i = 0; i < operations; i++ )
+            {
+                execute();
+            }
+            done();
+        }
+
+        void update( long time )
+        {
+            minTime = min( minTime, time );
+            maxTime = max( maxTime, time );
+            totalTime += time;
+        }
+
+        protected abstract void execute();
+
+        void done()
+        {
+        }
+    }
+
+    private static class DummyLock implements ForsetiLockManager.Lock
+    {
+        @Override
+        public void copyHolderWaitListsInto( SimpleBitSet waitList )
+        {
+        }
+
+        @Override
+        public int holderWaitListSize()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean anyHolderIsWaitingFor( int client )
+        {
+            return false;
+        }
+
+        @Override
+        public String describeWaitList()
+        {
+            return "DummyLock";
+        }
+    }
+}
@@ -19,8 +19,16 @@
  */
 package org.neo4j.kernel.ha.lock.forseti;
 
+import org.junit.After;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
+
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -28,6 +36,9 @@ import static org.mockito.Mockito.mock;
 
 public class SharedLockTest
 {
+    private final ForsetiLockManager locks = new ForsetiLockManager( ResourceTypes.values() );
+    private final List<Locks.Client> clients = new ArrayList<>();
+
     @Test
     public void shouldUpgradeToUpdateLock() throws Exception
     {
@@ -61,4 +72,101 @@ public class SharedLockTest
         assertThat( lock.isUpdateLock(), equalTo(false));
     }
 
+    @Test
+    public void shouldKeepTrackOfHundredsOfHoldersAcrossInflation() throws Exception
+    {
+        // GIVEN
+        List<ForsetiClient> holders = newClients( 300 );
+        SharedLock lock = new SharedLock( holders.get( 0 ) );
+
+        // WHEN
+        for ( int i = 1; i < holders.size(); i++ )
+        {
+            assertTrue( lock.acquire( holders.get( i ) ) );
+        }
+
+        // THEN
+        assertThat( lock.numberOfHolders(), equalTo( holders.size() ) );
+        String description = lock.describeWaitList();
+        for ( ForsetiClient holder : holders )
+        {
+            assertTrue( description.contains( "Client[" + holder.id() + "]" ) );
+        }
+
+        // and WHEN releasing in another order than acquired
+        for ( int i = holders.size() - 1; i > 0; i-- )
+        {
+            assertFalse( lock.release( holders.get( i ) ) );
+        }
+
+        // THEN the last holder is the one to drop the lock
+        assertThat( lock.describeWaitList(), equalTo( "SharedLock[" + holders.get( 0 ).describeWaitList() + "]" ) );
+        assertTrue( lock.release( holders.get( 0 ) ) );
+    }
+
+    @Test
+    public void shouldLetClientsComeAndGoFromInflatedLock() throws Exception
+    {
+        // GIVEN an inflated lock
+        List<ForsetiClient> holders = newClients( 20 );
+        SharedLock lock = new SharedLock( holders.get( 0 ) );
+        for ( int i = 1; i < holders.size(); i++ )
+        {
+            lock.acquire( holders.get( i ) );
+        }
+
+        // WHEN the holders come and go
+        for ( int round = 0; round < 3; round++ )
+        {
+            for ( int i = 1; i < holders.size(); i++ )
+            {
+                assertFalse( lock.release( holders.get( i ) ) );
+                assertTrue( lock.acquire( holders.get( i ) ) );
+            }
+        }
+
+        // THEN
+        assertThat( lock.numberOfHolders(), equalTo( holders.size() ) );
+    }
+
+    @Test
+    public void shouldNotHandOutExclusiveSchemaLockUntilAllOfManySharedHoldersHaveReleased() throws Exception
+    {
+        // GIVEN
+        List<ForsetiClient> sharedHolders = newClients( 200 );
+        for ( ForsetiClient client : sharedHolders )
+        {
+            client.acquireShared( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() );
+        }
+        Locks.Client exclusive = newClients( 1 ).get( 0 );
+
+        // WHEN/THEN
+        assertFalse( exclusive.tryExclusiveLock( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() ) );
+        for ( ForsetiClient client : sharedHolders )
+        {
+            client.releaseShared( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() );
+        }
+        assertTrue( exclusive.tryExclusiveLock( ResourceTypes.SCHEMA, ResourceTypes.schemaResource() ) );
+    }
+
+    @After
+    public void closeClients()
+    {
+        for ( Locks.Client client : clients )
+        {
+            client.close();
+        }
+    }
+
+    private List<ForsetiClient> newClients( int count )
+    {
+        List<ForsetiClient> result = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            ForsetiClient client = (ForsetiClient) locks.newClient();
+            clients.add( client );
+            result.add( client );
+        }
+        return result;
+    }
 }
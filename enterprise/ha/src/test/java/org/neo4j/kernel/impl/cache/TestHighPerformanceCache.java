@@ -19,6 +19,11 @@
  */
 package org.neo4j.kernel.impl.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.junit.Before;
@@ -27,11 +32,13 @@ import org.junit.Test;
 import org.neo4j.kernel.impl.cache.HighPerformanceCache.Monitor;
 import org.neo4j.kernel.impl.util.StringLogger;
 
+import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -172,9 +179,171 @@ public class TestHighPerformanceCache
         cache.put( new Entity( 4, 50 ) );
 
         // THEN
+        verify( monitor, timeout( 10000 ) ).purged( 130L, 60L, 3 );
+    }
+
+    @Test
+    public void shouldPurgeInTheBackgroundWithoutBlockingPut() throws Exception
+    {
+        // GIVEN
+        Monitor monitor = mock( Monitor.class );
+        ManualExecutor executor = new ManualExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                monitor, executor, HighPerformanceCache.DEFAULT_PURGE_STEP_SIZE );
+        cache.put( new Entity( 0, 10 ) );
+        cache.put( new Entity( 1, 50 ) );
+        cache.put( new Entity( 2, 10 ) );
+        cache.put( new Entity( 3, 10 ) );
+
+        // WHEN
+        cache.put( new Entity( 4, 50 ) );
+
+        // THEN
+        assertEquals( 130, cache.size() );
+        verifyZeroInteractions( monitor );
+        assertEquals( 1, executor.tasks.size() );
+
+        // WHEN
+        executor.runAll();
+
+        // THEN
+        assertEquals( 60, cache.size() );
         verify( monitor ).purged( 130L, 60L, 3 );
     }
 
+    @Test
+    public void shouldHelpOngoingPurgeWithSingleBoundedStepWhenAboveHandoffSize() throws Exception
+    {
+        // GIVEN
+        Monitor monitor = mock( Monitor.class );
+        ManualExecutor executor = new ManualExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                monitor, executor, 2 );
+        cache.put( new Entity( 10, 50 ) );
+        cache.put( new Entity( 20, 40 ) );
+        cache.put( new Entity( 30, 10 ) ); // triggers a purge, which won't run until we say so
+        assertEquals( 1, executor.tasks.size() );
+
+        // WHEN
+        cache.put( new Entity( 31, 10 ) ); // above the handoff size, so this thread does one step of the purge
+
+        // THEN the purge step visits positions 29 and 31, removing the entity just put
+        assertEquals( null, cache.get( 31 ) );
+        assertEquals( 100, cache.size() );
+        verifyZeroInteractions( monitor );
+
+        // WHEN
+        executor.runAll();
+
+        // THEN
+        assertEquals( null, cache.get( 20 ) );
+        assertEquals( 60, cache.size() );
+        verify( monitor ).purged( 100L, 60L, 2 );
+    }
+
+    @Test
+    public void shouldPurgeAgainIfPutsDuringPurgeLeaveCacheAboveThreshold() throws Exception
+    {
+        // GIVEN
+        final List<Long> sizesAfterPurges = new ArrayList<>();
+        ManualExecutor executor = new ManualExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                new Monitor()
+                {
+                    @Override
+                    public void purged( long sizeBefore, long sizeAfter, int numberOfEntitiesPurged )
+                    {
+                        sizesAfterPurges.add( sizeAfter );
+                        if ( sizesAfterPurges.size() == 1 )
+                        {   // Put while the purge is still considered ongoing, so this put doesn't start one
+                            cache.put( new Entity( 5, 40 ) );
+                        }
+                    }
+                }, executor, HighPerformanceCache.DEFAULT_PURGE_STEP_SIZE );
+        cache.put( new Entity( 0, 10 ) );
+        cache.put( new Entity( 1, 50 ) );
+        cache.put( new Entity( 2, 10 ) );
+        cache.put( new Entity( 3, 10 ) );
+        cache.put( new Entity( 4, 50 ) );
+
+        // WHEN
+        executor.runAll();
+
+        // THEN
+        assertEquals( asList( 60L, 60L ), sizesAfterPurges );
+        assertEquals( null, cache.get( 5 ) );
+    }
+
+    @Test
+    public void shouldPurgeWhenGrowingSegmentsAreBelowTheirShare() throws Exception
+    {
+        // GIVEN a cache where one segment holds most of the size
+        int maxSize = HighPerformanceCache.MAX_SEGMENT_COUNT * 1000;
+        ManualExecutor executor = new ManualExecutor();
+        cache = new HighPerformanceCache<>( maxSize, 1.0f, SECONDS.toMillis( 10 ), "purge test",
+                StringLogger.DEV_NULL, mock( Monitor.class ), executor, HighPerformanceCache.DEFAULT_PURGE_STEP_SIZE );
+        cache.put( new Entity( 0, maxSize * 9 / 10 ) );
+
+        // WHEN growing the other segments, none of them above its share, beyond the purge threshold
+        for ( int id = 1; cache.size() <= maxSize; id++ )
+        {
+            if ( id % HighPerformanceCache.MAX_SEGMENT_COUNT != 0 )
+            {
+                cache.put( new Entity( id, 1 ) );
+            }
+        }
+
+        // THEN
+        assertEquals( 1, executor.tasks.size() );
+    }
+
+    @Test
+    public void shouldStopPurgeExecutorOnCloseAndPurgeInCallingThreadAfterThat() throws Exception
+    {
+        // GIVEN
+        Monitor monitor = mock( Monitor.class );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                monitor, executor, HighPerformanceCache.DEFAULT_PURGE_STEP_SIZE );
+
+        // WHEN
+        cache.close();
+
+        // THEN
+        assertTrue( executor.isShutdown() );
+
+        // WHEN
+        cache.put( new Entity( 0, 10 ) );
+        cache.put( new Entity( 1, 50 ) );
+        cache.put( new Entity( 2, 10 ) );
+        cache.put( new Entity( 3, 10 ) );
+        cache.put( new Entity( 4, 50 ) );
+
+        // THEN
+        assertEquals( 60, cache.size() );
+        verify( monitor ).purged( 130L, 60L, 3 );
+    }
+
+    private static class ManualExecutor implements Executor
+    {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute( Runnable command )
+        {
+            tasks.add( command );
+        }
+
+        void runAll()
+        {
+            for ( Runnable task : tasks )
+            {
+                task.run();
+            }
+            tasks.clear();
+        }
+    }
+
     private static class Entity implements EntityWithSizeObject
     {
         private final long id;